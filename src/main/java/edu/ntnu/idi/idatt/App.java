@@ -1,6 +1,18 @@
 package edu.ntnu.idi.idatt;
 
+import edu.ntnu.idi.idatt.models.ExpiryNotifier;
+import edu.ntnu.idi.idatt.models.UndoHistory;
+import edu.ntnu.idi.idatt.persistence.MutationJournal;
+import edu.ntnu.idi.idatt.views.HttpLoadGenerator;
 import edu.ntnu.idi.idatt.views.TextUserInterface;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
 
 /**
  * The main class of the application. This class works as a wrapper class, containing the main
@@ -16,13 +28,139 @@ public class App {
   /**
    * The main method of the application. It initializes and starts the text user interface.
    *
+   * <p>
+   * If the application is started with {@code --journal <directory>}, the food storage and
+   * cookbook are rebuilt from the mutation journal in the directory, and every change is recorded
+   * in it. The durability of the journal can be chosen with {@code --durability <mode>}, where the
+   * mode is {@code async}, {@code group} or {@code sync}, and is {@code group} by default. A
+   * checkpoint of the journal is written every {@code --checkpoint-size <megabytes>} of changes,
+   * or every {@code --checkpoint-interval <minutes>}, and the changes before it are deleted.
+   *
+   * <p>
+   * If the application is started with {@code --storage <directory>}, the groceries are kept in
+   * files in the directory instead of in memory, for food storages larger than the heap. As the
+   * files already keep every change, it cannot be combined with {@code --journal}.
+   *
+   * <p>
+   * If the application is started with {@code --recipe-text <file>}, the descriptions and
+   * instructions of the recipes are kept in the file instead of in memory, and only read when a
+   * recipe is shown.
+   *
+   * <p>
+   * Changes can be undone and redone from the main menu. The versions kept for this are limited
+   * to {@code --undo-memory <megabytes>} of memory. As the groceries of a food storage kept in
+   * files do not fit in memory, changes cannot be undone when it is combined with
+   * {@code --storage}.
+   *
+   * <p>
+   * Batches that are about to expire, or have expired, are shown above the main menu as the days
+   * pass. A batch is about to expire {@code --expiry-warning-days <days>} days before its
+   * expiration date, two days by default.
+   *
+   * <p>
+   * If the application is started with {@code --server <port>}, the food storage and cookbook
+   * are served as a JSON API over HTTP on the port, instead of in the menus. Another instance
+   * started with {@code --load-test <url>} sends requests to the server at the address, from
+   * {@code --load-clients <number>} clients for {@code --load-seconds <seconds>}, and prints how
+   * many requests were served per second and how long they took.
+   *
+   * <p>
+   * If the application is started with {@code --sessions <port>}, several people can use the
+   * menus at the same time, each over their own connection to the port on the local machine,
+   * instead of on the console. With {@code --sessions <path>}, the connections are made to a
+   * Unix-domain socket at the path instead.
+   *
+   * <p>
+   * If the application is started with {@code --batch <file>}, the commands in the file are run
+   * without prompting, instead of the menus, and the application exits when they are done. With
+   * {@code --batch -}, the commands are read from the standard input.
+   *
    * @see TextUserInterface
+   * @see MutationJournal
    * @param args the command line arguments passed to the application
    *
    */
   public static void main(String[] args) {
+    Path journalDirectory = null;
+    Path storageDirectory = null;
+    Path recipeTextFile = null;
+    MutationJournal.Durability durability = MutationJournal.Durability.GROUP;
+    long checkpointBytes = MutationJournal.CheckpointPolicy.DEFAULT.bytes();
+    Duration checkpointInterval = MutationJournal.CheckpointPolicy.DEFAULT.interval();
+    long undoMemoryBudget = UndoHistory.DEFAULT_MEMORY_BUDGET;
+    int expiryWarningDays = ExpiryNotifier.DEFAULT_WARNING_DAYS;
+    Duration sweepInterval = null;
+    int serverPort = -1;
+    SocketAddress sessionAddress = null;
+    String batchSource = null;
+    URI loadTestUri = null;
+    int loadClients = HttpLoadGenerator.DEFAULT_CLIENTS;
+    Duration loadDuration = HttpLoadGenerator.DEFAULT_DURATION;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      switch (args[i]) {
+        case "--journal" -> journalDirectory = Path.of(args[i + 1]);
+        case "--storage" -> storageDirectory = Path.of(args[i + 1]);
+        case "--recipe-text" -> recipeTextFile = Path.of(args[i + 1]);
+        case "--durability" ->
+            durability = MutationJournal.Durability.valueOf(args[i + 1].toUpperCase(Locale.ROOT));
+        case "--checkpoint-size" -> checkpointBytes = Long.parseLong(args[i + 1]) << 20;
+        case "--checkpoint-interval" ->
+            checkpointInterval = Duration.ofMinutes(Long.parseLong(args[i + 1]));
+        case "--undo-memory" -> undoMemoryBudget = Long.parseLong(args[i + 1]) << 20;
+        case "--expiry-warning-days" -> expiryWarningDays = Integer.parseInt(args[i + 1]);
+        case "--sweep-interval" ->
+            sweepInterval = Duration.ofMinutes(Long.parseLong(args[i + 1]));
+        case "--batch" -> batchSource = args[i + 1];
+        case "--server" -> serverPort = Integer.parseInt(args[i + 1]);
+        case "--sessions" -> sessionAddress = args[i + 1].chars().allMatch(Character::isDigit)
+            ? new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                Integer.parseInt(args[i + 1]))
+            : UnixDomainSocketAddress.of(args[i + 1]);
+        case "--load-test" -> loadTestUri = URI.create(args[i + 1]);
+        case "--load-clients" -> loadClients = Integer.parseInt(args[i + 1]);
+        case "--load-seconds" -> loadDuration = Duration.ofSeconds(Long.parseLong(args[i + 1]));
+        default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+      }
+    }
+
+    if (journalDirectory != null && storageDirectory != null) {
+      throw new IllegalArgumentException("--journal and --storage cannot be combined");
+    }
+
     TextUserInterface tui = new TextUserInterface();
+    if (loadTestUri != null) {
+      tui.runLoadTest(loadTestUri, loadClients, loadDuration);
+      return;
+    }
     tui.init();
+    if (storageDirectory != null) {
+      tui.openDiskStorage(storageDirectory);
+    }
+    if (recipeTextFile != null) {
+      tui.openRecipeTextFile(recipeTextFile);
+    }
+    if (journalDirectory != null) {
+      tui.openJournal(journalDirectory, durability,
+          new MutationJournal.CheckpointPolicy(checkpointBytes, checkpointInterval));
+    }
+    if (batchSource != null) {
+      tui.runBatch(batchSource);
+      return;
+    }
+    if (serverPort >= 0) {
+      tui.serveHttpApi(serverPort);
+      return;
+    }
+    if (sessionAddress != null) {
+      tui.serveSessions(sessionAddress);
+      return;
+    }
+    if (sweepInterval != null) {
+      tui.openExpirySweeper(sweepInterval);
+    } else if (storageDirectory == null) {
+      tui.openUndoHistory(undoMemoryBudget);
+    }
+    tui.openExpiryNotifier(expiryWarningDays);
     tui.start();
   }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package edu.ntnu.idi.idatt.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Defers the slow part of reporting a change, like waiting for it to be forced to disk, until the
+ * thread that made the change has released the locks it held while the change was reported.
+ *
+ * <p>
+ * The models tell their listeners about a change while they hold the lock that orders their
+ * changes, so every listener sees the changes in the same order. A listener that has to wait for
+ * something after it has seen a change, like {@code MutationJournal} waiting for its record to
+ * reach the disk, hands the wait to {@code afterChanges} instead of waiting itself. The wait is run
+ * when the outermost scope open on the thread is closed, or right away if no scope is open.
+ *
+ * <p>
+ * Every change to the models opens a scope around the lock it holds, or around its turn to report
+ * a change to a grocery, so the waits are run after the lock or the turn is released, and the next
+ * change to the same grocery or recipe does not wait for the disk as well. A caller holding a lock of its own across changes, like the write lock of a
+ * server, opens a scope around that lock for the same reason. The change still does not return
+ * before the waits have run, so a change that has returned is still on disk.
+ *
+ * <p>
+ * A scope belongs to the thread that opened it, and must be closed on that thread, in the reverse
+ * order of opening, which a try-with-resources statement does.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class ChangeScope implements AutoCloseable {
+  /** The outermost scope open on each thread, or null if none is open. */
+  private static final ThreadLocal<ChangeScope> CURRENT = new ThreadLocal<>();
+
+  /** The waits handed to the scope, in the order they were handed over. */
+  private final List<Runnable> waits = new ArrayList<>();
+  /** The number of times the scope was opened and not closed yet. */
+  private int depth;
+
+  private ChangeScope() {
+  }
+
+  /**
+   * Opens a scope on the current thread. If a scope is already open, it is opened once more, and
+   * the waits are run when it is closed for the last time.
+   *
+   * @return the scope, to close when the changes are made and the locks released
+   */
+  public static ChangeScope open() {
+    ChangeScope scope = CURRENT.get();
+    if (scope == null) {
+      scope = new ChangeScope();
+      CURRENT.set(scope);
+    }
+    scope.depth++;
+    return scope;
+  }
+
+  /**
+   * Runs the provided wait when the outermost scope open on the current thread is closed, or
+   * right away if no scope is open.
+   *
+   * @param wait the wait to run
+   * @throws IllegalArgumentException if the wait is null.
+   */
+  public static void afterChanges(Runnable wait) throws IllegalArgumentException {
+    if (wait == null) {
+      throw new IllegalArgumentException("Wait cannot be null");
+    }
+    final ChangeScope scope = CURRENT.get();
+    if (scope == null) {
+      wait.run();
+    } else {
+      scope.waits.add(wait);
+    }
+  }
+
+  /**
+   * Closes the scope. Closing the outermost scope runs every wait handed to it, in the order they
+   * were handed over, even if one of them throws.
+   *
+   * @throws RuntimeException the exception thrown by the first wait that failed, with the
+   *         exceptions of the other waits that failed suppressed.
+   */
+  @Override
+  public void close() {
+    if (--depth > 0) {
+      return;
+    }
+    CURRENT.remove();
+    RuntimeException failure = null;
+    for (Runnable wait : waits) {
+      try {
+        wait.run();
+      } catch (RuntimeException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    waits.clear();
+    if (failure != null) {
+      throw failure;
+    }
+  }
+}
@@ -0,0 +1,482 @@
+package edu.ntnu.idi.idatt.models;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A stream of the changes made to a {@link FoodStorage}, the groceries in it, and a
+ * {@link Cookbook}, for other parts of the application to follow what changes without reading
+ * all groceries and recipes again.
+ *
+ * <p>
+ * Every change is published as an {@link Event} with a sequence number, one higher than the
+ * event before it, into a ring buffer of a fixed capacity. Publishing an event claims the next
+ * sequence number with a single atomic increment, and never waits for anything, so the threads
+ * changing the food storage and cook book are never slowed down by the subscribers. The oldest
+ * event is overwritten when the buffer is full.
+ *
+ * <p>
+ * Subscribers receive the events through {@link Flow}, each on its own schedule and only as many
+ * as they have requested, on the executor of the stream. A subscriber receives the events
+ * published after it subscribed. A subscriber that falls more than the capacity of the buffer
+ * behind receives an {@link EventsMissed} event in place of the events that were overwritten, and
+ * should read the groceries and recipes it follows again.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class ChangeStream implements Flow.Publisher<ChangeStream.Event>, AutoCloseable {
+  /** The number of events kept for slow subscribers, if no other capacity is provided. */
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  private final FoodStorage foodStorage;
+  private final Cookbook cookbook;
+  private final Executor executor;
+  private final AtomicReferenceArray<Event> events;
+  private final int mask;
+  /** The sequence number of the next event to publish. */
+  private final AtomicLong nextSequence = new AtomicLong();
+  private final List<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+  private final ModelChangeListener listener = new EventPublisher();
+  private volatile boolean closed;
+
+  /**
+   * Constructs a new change stream following the provided food storage and cook book, with the
+   * default capacity, delivering the events on the common fork-join pool.
+   *
+   * @param foodStorage the food storage to follow
+   * @param cookbook the cook book to follow
+   * @throws IllegalArgumentException if the food storage or cook book is null.
+   */
+  public ChangeStream(FoodStorage foodStorage, Cookbook cookbook)
+      throws IllegalArgumentException {
+    this(foodStorage, cookbook, DEFAULT_CAPACITY, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs a new change stream following the provided food storage and cook book.
+   *
+   * @param foodStorage the food storage to follow
+   * @param cookbook the cook book to follow
+   * @param capacity the number of events kept for slow subscribers, rounded up to a power of two
+   * @param executor the executor delivering the events to the subscribers. Should run the events
+   *                 on other threads than the one publishing them, or the subscribers are run by
+   *                 the threads changing the food storage and cook book.
+   * @throws IllegalArgumentException if any of the provided objects are null, or the capacity is
+   *         not a positive number of at most 2^30.
+   */
+  public ChangeStream(FoodStorage foodStorage, Cookbook cookbook, int capacity, Executor executor)
+      throws IllegalArgumentException {
+    if (foodStorage == null) {
+      throw new IllegalArgumentException("Food storage cannot be null");
+    }
+    if (cookbook == null) {
+      throw new IllegalArgumentException("Cookbook cannot be null");
+    }
+    if (capacity <= 0 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("Capacity must be a positive number of at most 2^30");
+    }
+    if (executor == null) {
+      throw new IllegalArgumentException("Executor cannot be null");
+    }
+    this.foodStorage = foodStorage;
+    this.cookbook = cookbook;
+    this.executor = executor;
+    final int size = Integer.highestOneBit(capacity) == capacity
+        ? capacity : Integer.highestOneBit(capacity) << 1;
+    this.events = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+    foodStorage.addChangeListener(listener);
+    cookbook.addChangeListener(listener);
+  }
+
+  /**
+   * Subscribes to the events published from now on, until the subscription is cancelled or the
+   * stream is closed.
+   *
+   * @param subscriber the subscriber
+   * @throws IllegalArgumentException if the subscriber is null.
+   */
+  @Override
+  public void subscribe(Flow.Subscriber<? super Event> subscriber)
+      throws IllegalArgumentException {
+    if (subscriber == null) {
+      throw new IllegalArgumentException("Subscriber cannot be null");
+    }
+    final EventSubscription subscription = new EventSubscription(subscriber, nextSequence.get());
+    subscriptions.add(subscription);
+    subscriber.onSubscribe(subscription);
+    if (closed) {
+      subscription.schedule();
+    }
+  }
+
+  /**
+   * Returns the sequence number the next event will be published with, which is also the number
+   * of events published so far.
+   *
+   * @return the sequence number of the next event
+   */
+  public long getNextSequence() {
+    return nextSequence.get();
+  }
+
+  /**
+   * Returns the number of events kept for slow subscribers.
+   *
+   * @return the capacity of the stream
+   */
+  public int getCapacity() {
+    return events.length();
+  }
+
+  /**
+   * Stops following the food storage and cook book. Every subscriber receives the events already
+   * published, and is then completed.
+   */
+  @Override
+  public void close() {
+    foodStorage.removeChangeListener(listener);
+    cookbook.removeChangeListener(listener);
+    closed = true;
+    subscriptions.forEach(EventSubscription::schedule);
+  }
+
+  /**
+   * Publishes an event with the next sequence number, and tells the subscribers waiting for it.
+   */
+  private void publish(SequencedEvent event) {
+    final long sequence = nextSequence.getAndIncrement();
+    events.set((int) sequence & mask, event.at(sequence));
+    for (EventSubscription subscription : subscriptions) {
+      if (subscription.requested.get() > 0) {
+        subscription.schedule();
+      }
+    }
+  }
+
+  /**
+   * A change to a food storage, a grocery in it, or a cook book.
+   */
+  public sealed interface Event {
+    /**
+     * Returns the sequence number of the event, one higher than the event published before it.
+     *
+     * @return the sequence number
+     */
+    long sequence();
+  }
+
+  /**
+   * A grocery was added to the food storage.
+   *
+   * @param sequence the sequence number of the event
+   * @param name the name of the grocery
+   * @param category the category of the grocery
+   * @param unit the unit of the grocery
+   * @param totalAmount the amount of the grocery when it was added
+   */
+  public record GroceryAdded(long sequence, String name, String category, String unit,
+      double totalAmount) implements Event {}
+
+  /**
+   * A grocery was removed from the food storage.
+   *
+   * @param sequence the sequence number of the event
+   * @param name the name of the grocery
+   */
+  public record GroceryRemoved(long sequence, String name) implements Event {}
+
+  /**
+   * All groceries were removed from the food storage.
+   *
+   * @param sequence the sequence number of the event
+   */
+  public record AllGroceriesRemoved(long sequence) implements Event {}
+
+  /**
+   * A batch was added to a grocery.
+   *
+   * @param sequence the sequence number of the event
+   * @param name the name of the grocery
+   * @param amount the amount of the batch
+   * @param pricePerUnit the price per unit of the batch
+   * @param expirationDate the expiration date of the batch
+   */
+  public record BatchAdded(long sequence, String name, double amount, double pricePerUnit,
+      LocalDate expirationDate) implements Event {}
+
+  /**
+   * An amount of a grocery was consumed.
+   *
+   * @param sequence the sequence number of the event
+   * @param name the name of the grocery
+   * @param amount the amount that was consumed
+   * @param remainingAmount the total amount of the grocery when the event was published
+   */
+  public record AmountConsumed(long sequence, String name, double amount, double remainingAmount)
+      implements Event {}
+
+  /**
+   * A recipe was added to the cook book.
+   *
+   * @param sequence the sequence number of the event
+   * @param name the name of the recipe
+   */
+  public record RecipeAdded(long sequence, String name) implements Event {}
+
+  /**
+   * A recipe was removed from the cook book.
+   *
+   * @param sequence the sequence number of the event
+   * @param name the name of the recipe
+   */
+  public record RecipeRemoved(long sequence, String name) implements Event {}
+
+  /**
+   * All recipes were removed from the cook book.
+   *
+   * @param sequence the sequence number of the event
+   */
+  public record AllRecipesRemoved(long sequence) implements Event {}
+
+  /**
+   * The details or ingredients of a recipe in the cook book were changed.
+   *
+   * @param sequence the sequence number of the event
+   * @param name the name of the recipe, after the change
+   */
+  public record RecipeEdited(long sequence, String name) implements Event {}
+
+  /**
+   * Events were overwritten before the subscriber received them. Only delivered to the subscriber
+   * that missed them.
+   *
+   * @param sequence the sequence number of the first event missed
+   * @param count the number of events missed
+   */
+  public record EventsMissed(long sequence, long count) implements Event {}
+
+  /**
+   * An event waiting for its sequence number.
+   */
+  @FunctionalInterface
+  private interface SequencedEvent {
+    Event at(long sequence);
+  }
+
+  /**
+   * Publishes an event for every change to the food storage and cook book.
+   */
+  private final class EventPublisher implements ModelChangeListener {
+    @Override
+    public void groceryAdded(Grocery grocery) {
+      final String name = grocery.getName();
+      final String category = grocery.getCategory();
+      final String unit = grocery.getUnit();
+      final double totalAmount = grocery.getTotalAmount();
+      publish(sequence -> new GroceryAdded(sequence, name, category, unit, totalAmount));
+    }
+
+    @Override
+    public void groceryRemoved(Grocery grocery) {
+      final String name = grocery.getName();
+      publish(sequence -> new GroceryRemoved(sequence, name));
+    }
+
+    @Override
+    public void allGroceriesRemoved() {
+      publish(AllGroceriesRemoved::new);
+    }
+
+    @Override
+    public void batchAdded(Grocery grocery, GroceryBatch batch) {
+      final String name = grocery.getName();
+      final double amount = batch.getAmount();
+      final double pricePerUnit = batch.getPricePerUnit();
+      final LocalDate expirationDate = batch.getExpirationDate();
+      publish(sequence -> new BatchAdded(sequence, name, amount, pricePerUnit, expirationDate));
+    }
+
+    @Override
+    public void groceryConsumed(Grocery grocery, double amount) {
+      final String name = grocery.getName();
+      final double remainingAmount = grocery.getTotalAmount();
+      publish(sequence -> new AmountConsumed(sequence, name, amount, remainingAmount));
+    }
+
+    @Override
+    public void recipeAdded(Recipe recipe) {
+      final String name = recipe.getName();
+      publish(sequence -> new RecipeAdded(sequence, name));
+    }
+
+    @Override
+    public void recipeRemoved(Recipe recipe) {
+      final String name = recipe.getName();
+      publish(sequence -> new RecipeRemoved(sequence, name));
+    }
+
+    @Override
+    public void allRecipesRemoved() {
+      publish(AllRecipesRemoved::new);
+    }
+
+    @Override
+    public void recipeDetailsChanged(Recipe recipe) {
+      recipeEdited(recipe);
+    }
+
+    @Override
+    public void ingredientAdded(Recipe recipe, Ingredient ingredient) {
+      recipeEdited(recipe);
+    }
+
+    @Override
+    public void ingredientRemoved(Recipe recipe, Ingredient ingredient) {
+      recipeEdited(recipe);
+    }
+
+    @Override
+    public void ingredientAmountChanged(Recipe recipe, Ingredient ingredient) {
+      recipeEdited(recipe);
+    }
+
+    private void recipeEdited(Recipe recipe) {
+      final String name = recipe.getName();
+      publish(sequence -> new RecipeEdited(sequence, name));
+    }
+  }
+
+  /**
+   * The subscription of a single subscriber, reading the ring buffer from its own position.
+   *
+   * <p>
+   * The events are delivered by a task on the executor, which is scheduled when events are
+   * published or requested. The number of times it has been scheduled is counted, so only one task
+   * runs at a time, and a task that is scheduled while one is running makes the running task go
+   * through the buffer again instead of starting another.
+   */
+  private final class EventSubscription implements Flow.Subscription {
+    private final Flow.Subscriber<? super Event> subscriber;
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger scheduled = new AtomicInteger();
+    /** The sequence number of the next event to deliver. Only used by the delivering task. */
+    private long position;
+    private volatile boolean cancelled;
+    private boolean completed;
+    private Throwable requestError;
+
+    private EventSubscription(Flow.Subscriber<? super Event> subscriber, long position) {
+      this.subscriber = subscriber;
+      this.position = position;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        requestError = new IllegalArgumentException("Number of events requested must be positive");
+      } else {
+        requested.accumulateAndGet(n, (current, added) -> current + added < 0
+            ? Long.MAX_VALUE : current + added);
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      subscriptions.remove(this);
+    }
+
+    private void schedule() {
+      if (scheduled.getAndIncrement() == 0) {
+        executor.execute(this::deliver);
+      }
+    }
+
+    /**
+     * Delivers the events published and requested since the last time, and completes the
+     * subscriber when the stream is closed and all events have been delivered.
+     */
+    private void deliver() {
+      int runs = scheduled.get();
+      do {
+        if (!cancelled && !completed) {
+          if (requestError != null) {
+            cancel();
+            subscriber.onError(requestError);
+          } else {
+            deliverRequested();
+          }
+        }
+        runs = scheduled.addAndGet(-runs);
+      } while (runs != 0);
+    }
+
+    private void deliverRequested() {
+      final boolean wasClosed = closed;
+      final long demand = requested.get();
+      long delivered = 0;
+      Event event = null;
+      while (delivered < demand && !cancelled && (event = nextEvent()) != null) {
+        try {
+          subscriber.onNext(event);
+        } catch (RuntimeException e) {
+          cancel();
+          subscriber.onError(e);
+          return;
+        }
+        delivered++;
+      }
+      if (delivered > 0 && demand != Long.MAX_VALUE) {
+        requested.addAndGet(-delivered);
+      }
+      // The stream publishes nothing after it is closed, so a subscriber that has reached the
+      // end after the stream was closed has received every event.
+      if (wasClosed && !cancelled && position == nextSequence.get()) {
+        completed = true;
+        subscriptions.remove(this);
+        subscriber.onComplete();
+      }
+    }
+
+    /**
+     * Returns the event at the position of the subscriber and moves past it, or an event telling
+     * how many events were overwritten before the subscriber got to them. Returns null if the
+     * next event is not published yet.
+     */
+    private Event nextEvent() {
+      final long published = nextSequence.get();
+      if (position == published) {
+        return null;
+      }
+      if (published - position > events.length()) {
+        return skipTo(published - events.length());
+      }
+      final Event event = events.get((int) position & mask);
+      if (event == null || event.sequence() < position) {
+        // The sequence number has been claimed, but the event is not written to the buffer yet.
+        return null;
+      }
+      if (event.sequence() > position) {
+        return skipTo(event.sequence() - events.length() + 1);
+      }
+      position++;
+      return event;
+    }
+
+    private Event skipTo(long oldestKept) {
+      final Event missed = new EventsMissed(position, oldestKept - position);
+      position = oldestKept;
+      return missed;
+    }
+  }
+}
@@ -0,0 +1,420 @@
+package edu.ntnu.idi.idatt.models;
+
+import edu.ntnu.idi.idatt.utils.PersistentSortedMap;
+import edu.ntnu.idi.idatt.utils.StringUtils;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Changes a {@link FoodStorage} and a {@link Cookbook} from a single thread, for any number of
+ * threads at once, without any of them taking a lock.
+ *
+ * <p>
+ * A thread submits a change as a {@link Command}, which is put in the next slot of a ring of
+ * slots allocated when the processor starts. The slots are claimed by counting up a shared
+ * sequence number, and a slot is handed to the writer thread by writing its sequence number, so
+ * submitting never blocks, unless every slot is waiting to be applied. The writer thread takes the
+ * commands in the order of their slots, and applies them one after the other, so the food storage
+ * and cookbook are only ever changed by one thread. The food storage and its groceries still take
+ * their monitors and turns as the writer changes them, but as nothing else changes them, the writer
+ * never waits for them. A command that throws, even an error, only fails its own future, so the
+ * writer goes on with the next.
+ *
+ * <p>
+ * After a group of commands is applied, the writer publishes a {@link Snapshot} of the groceries
+ * and recipes, before it completes the futures of the commands, so a thread that waited for its
+ * command reads its change in the next snapshot. The groceries of a snapshot are copies, kept in a
+ * {@link PersistentSortedMap}, and only the groceries changed by the group are copied again, so
+ * threads can read the snapshots without locking, while the writer goes on.
+ *
+ * <p>
+ * Nothing else may change the food storage or cookbook while the processor runs. The recipes of a
+ * snapshot are those of a {@link CookbookSnapshot}, and are shared with the cookbook.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class CommandProcessor implements AutoCloseable {
+  /** The number of slots in the ring, if not told otherwise. */
+  public static final int DEFAULT_CAPACITY = 1024;
+  /** The largest number of commands applied before a snapshot is published. */
+  private static final int MAX_GROUP_SIZE = 256;
+  /** How many times the writer checks for a new command before it parks. */
+  private static final int SPINS_BEFORE_PARKING = 1000;
+  /** Set in the next sequence number when the processor is closed, so no more are claimed. */
+  private static final long CLOSED = 1L << 62;
+
+  private final FoodStorage foodStorage;
+  private final Cookbook cookbook;
+  private final Slot[] ring;
+  private final int mask;
+  /** The sequence number of the next slot to claim, with {@code CLOSED} set once closed. */
+  private final AtomicLong nextSequence = new AtomicLong();
+  /** The sequence number of the first slot not yet applied and completed by the writer. */
+  private final AtomicLong completedSequence = new AtomicLong();
+  private final Thread writer;
+  /** The sequence number of the first slot never claimed, set when closed, or -1 until then. */
+  private volatile long closedSequence = -1;
+  private volatile boolean writerParked;
+  private volatile Snapshot snapshot;
+  /** The copies of the groceries, only used by the writer. */
+  private PersistentSortedMap<String, Grocery> groceries = PersistentSortedMap.empty();
+  /** The names of the groceries changed since the last snapshot, only used by the writer. */
+  private final Set<String> changedGroceries = new HashSet<>();
+  private long appliedCommands;
+  private final ModelChangeListener changeListener = new GroceryTracker();
+
+  private CommandProcessor(FoodStorage foodStorage, Cookbook cookbook, int capacity) {
+    this.foodStorage = foodStorage;
+    this.cookbook = cookbook;
+    this.ring = new Slot[capacity];
+    for (int i = 0; i < capacity; i++) {
+      ring[i] = new Slot(i - capacity);
+    }
+    this.mask = capacity - 1;
+    foodStorage.forEachGrocery(grocery ->
+        groceries = groceries.put(grocery.getName(), grocery.copy()));
+    this.snapshot = new Snapshot(0, groceries, cookbook.getSnapshot());
+    this.writer = Thread.ofPlatform().name("command-processor").daemon().unstarted(this::write);
+    foodStorage.addChangeListener(changeListener);
+  }
+
+  /**
+   * Starts a processor changing the provided food storage and cookbook, with a ring of the
+   * default number of slots.
+   *
+   * @param foodStorage the food storage to change
+   * @param cookbook the cookbook to change
+   * @return the running processor
+   * @throws IllegalArgumentException if any of the provided objects are null.
+   */
+  public static CommandProcessor start(FoodStorage foodStorage, Cookbook cookbook)
+      throws IllegalArgumentException {
+    return start(foodStorage, cookbook, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Starts a processor changing the provided food storage and cookbook, with a ring of the
+   * provided number of slots.
+   *
+   * @param foodStorage the food storage to change
+   * @param cookbook the cookbook to change
+   * @param capacity the number of slots, a power of two
+   * @return the running processor
+   * @throws IllegalArgumentException if any of the provided objects are null, or the capacity is
+   *         not a positive power of two.
+   */
+  public static CommandProcessor start(FoodStorage foodStorage, Cookbook cookbook, int capacity)
+      throws IllegalArgumentException {
+    if (foodStorage == null || cookbook == null) {
+      throw new IllegalArgumentException("Food storage and cookbook cannot be null");
+    }
+    if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("Capacity must be a positive power of two");
+    }
+    final CommandProcessor processor = new CommandProcessor(foodStorage, cookbook, capacity);
+    processor.writer.start();
+    return processor;
+  }
+
+  /**
+   * Submits a command to be applied by the writer thread, after the commands submitted before it.
+   * Waits for a free slot if every slot is waiting to be applied.
+   *
+   * @param command the command to apply
+   * @param <T> the type of the result of the command
+   * @return a future completed with the result of the command, or with the exception it threw,
+   *         once a snapshot showing its change is published
+   * @throws IllegalArgumentException if the command is null.
+   * @throws IllegalStateException if the processor is closed.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> CompletableFuture<T> submit(Command<T> command)
+      throws IllegalArgumentException, IllegalStateException {
+    if (command == null) {
+      throw new IllegalArgumentException("Command cannot be null");
+    }
+    final long sequence = nextSequence.getAndIncrement();
+    if ((sequence & CLOSED) != 0) {
+      throw new IllegalStateException("Processor is closed");
+    }
+    // The slot is free once the writer has completed the command a full ring before this one.
+    int spins = 0;
+    while (sequence - ring.length >= completedSequence.get()) {
+      if (++spins < SPINS_BEFORE_PARKING) {
+        Thread.onSpinWait();
+      } else {
+        LockSupport.parkNanos(1_000);
+      }
+    }
+    final Slot slot = ring[(int) sequence & mask];
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    slot.command = command;
+    slot.future = (CompletableFuture<Object>) future;
+    slot.sequence = sequence;
+    if (writerParked) {
+      LockSupport.unpark(writer);
+    }
+    return future;
+  }
+
+  /**
+   * Returns the latest published snapshot of the groceries and recipes.
+   *
+   * @return the snapshot
+   */
+  public Snapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Stops accepting commands, and waits for the writer to apply the commands already submitted.
+   * The food storage and cookbook can then be changed by other threads again.
+   */
+  @Override
+  public void close() {
+    final long claimed = nextSequence.getAndUpdate(sequence -> sequence | CLOSED);
+    if ((claimed & CLOSED) == 0) {
+      closedSequence = claimed;
+    }
+    LockSupport.unpark(writer);
+    boolean interrupted = false;
+    while (writer.isAlive()) {
+      try {
+        writer.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    foodStorage.removeChangeListener(changeListener);
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Applies the commands in the order of their slots, in groups, until the processor is closed
+   * and every submitted command is applied.
+   */
+  private void write() {
+    long next = 0;
+    while (true) {
+      final long end = applyGroup(next);
+      if (end > next) {
+        publish();
+        complete(next, end);
+        next = end;
+      } else {
+        if (next == closedSequence) {
+          return;
+        }
+        await(next);
+      }
+    }
+  }
+
+  /**
+   * Applies the commands submitted from the provided sequence number, up to the first slot not
+   * handed over yet, or the largest group.
+   *
+   * @return the sequence number after the last command applied
+   */
+  private long applyGroup(long start) {
+    long sequence = start;
+    while (sequence - start < MAX_GROUP_SIZE) {
+      final Slot slot = ring[(int) sequence & mask];
+      if (slot.sequence != sequence) {
+        break;
+      }
+      try {
+        slot.result = slot.command.apply(foodStorage, cookbook);
+      } catch (Throwable e) {
+        // Caught even if it is an error, as a writer that stopped would leave every future after
+        // it waiting forever.
+        slot.failure = e;
+      }
+      sequence++;
+    }
+    appliedCommands += sequence - start;
+    return sequence;
+  }
+
+  /**
+   * Publishes a snapshot with copies of the groceries changed since the last one.
+   */
+  private void publish() {
+    for (String name : changedGroceries) {
+      groceries = foodStorage.containsGrocery(name)
+          ? groceries.put(name, foodStorage.getGroceryByName(name).copy())
+          : groceries.remove(name);
+    }
+    changedGroceries.clear();
+    snapshot = new Snapshot(appliedCommands, groceries, cookbook.getSnapshot());
+  }
+
+  /**
+   * Completes the futures of the applied commands, and frees their slots.
+   */
+  private void complete(long start, long end) {
+    for (long sequence = start; sequence < end; sequence++) {
+      final Slot slot = ring[(int) sequence & mask];
+      final CompletableFuture<Object> future = slot.future;
+      final Object result = slot.result;
+      final Throwable failure = slot.failure;
+      slot.command = null;
+      slot.future = null;
+      slot.result = null;
+      slot.failure = null;
+      completedSequence.set(sequence + 1);
+      if (failure == null) {
+        future.complete(result);
+      } else {
+        future.completeExceptionally(failure);
+      }
+    }
+  }
+
+  /**
+   * Waits for the slot with the provided sequence number to be handed over, or the processor to
+   * be closed, spinning for a while before parking.
+   */
+  private void await(long sequence) {
+    final Slot slot = ring[(int) sequence & mask];
+    for (int spins = 0; spins < SPINS_BEFORE_PARKING; spins++) {
+      if (slot.sequence == sequence || (nextSequence.get() & CLOSED) != 0) {
+        return;
+      }
+      Thread.onSpinWait();
+    }
+    writerParked = true;
+    // Checked again after announcing the park, as a submitter only unparks a parked writer.
+    if (slot.sequence != sequence && (nextSequence.get() & CLOSED) == 0) {
+      LockSupport.park(this);
+    }
+    writerParked = false;
+  }
+
+  /**
+   * A change to the food storage and cookbook, applied by the writer thread of a processor.
+   *
+   * @param <T> the type of the result
+   */
+  @FunctionalInterface
+  public interface Command<T> {
+    /**
+     * Applies the change.
+     *
+     * @param foodStorage the food storage to change
+     * @param cookbook the cookbook to change
+     * @return the result of the change
+     */
+    T apply(FoodStorage foodStorage, Cookbook cookbook);
+  }
+
+  /**
+   * An immutable version of the groceries and recipes, published by the writer thread after a
+   * group of commands is applied. The groceries are copies, and must not be changed.
+   */
+  public static final class Snapshot {
+    private final long version;
+    private final PersistentSortedMap<String, Grocery> groceries;
+    private final CookbookSnapshot cookbook;
+
+    private Snapshot(long version, PersistentSortedMap<String, Grocery> groceries,
+        CookbookSnapshot cookbook) {
+      this.version = version;
+      this.groceries = groceries;
+      this.cookbook = cookbook;
+    }
+
+    /**
+     * Returns the version of the snapshot, which is the number of commands applied before it.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+      return version;
+    }
+
+    /**
+     * Returns an unmodifiable list of the groceries, sorted alphabetically by name.
+     *
+     * @return the groceries
+     */
+    public List<Grocery> getGroceries() {
+      return groceries.values();
+    }
+
+    /**
+     * Returns the grocery with the provided name, ignoring case.
+     *
+     * @param name the name of the grocery
+     * @return the grocery, or null if the snapshot has no grocery with the name
+     */
+    public Grocery getGrocery(String name) {
+      final String key = StringUtils.capitalize(name);
+      return key == null ? null : groceries.get(key);
+    }
+
+    /**
+     * Returns the recipes of the snapshot.
+     *
+     * @return the snapshot of the cookbook
+     */
+    public CookbookSnapshot getCookbook() {
+      return cookbook;
+    }
+  }
+
+  /**
+   * Notes the groceries changed by the commands, on the writer thread, so only those are copied
+   * into the next snapshot.
+   */
+  private final class GroceryTracker implements ModelChangeListener {
+    @Override
+    public void groceryAdded(Grocery grocery) {
+      changedGroceries.add(grocery.getName());
+    }
+
+    @Override
+    public void groceryRemoved(Grocery grocery) {
+      changedGroceries.add(grocery.getName());
+    }
+
+    @Override
+    public void allGroceriesRemoved() {
+      groceries = PersistentSortedMap.empty();
+      changedGroceries.clear();
+    }
+
+    @Override
+    public void batchAdded(Grocery grocery, GroceryBatch batch) {
+      changedGroceries.add(grocery.getName());
+    }
+
+    @Override
+    public void groceryConsumed(Grocery grocery, double amount) {
+      changedGroceries.add(grocery.getName());
+    }
+  }
+
+  /**
+   * A slot of the ring. The command and future are written by the submitting thread before the
+   * sequence number, and the result by the writer thread, which also clears the slot.
+   */
+  private static final class Slot {
+    private volatile long sequence;
+    private Command<?> command;
+    private CompletableFuture<Object> future;
+    private Object result;
+    private Throwable failure;
+
+    private Slot(long sequence) {
+      this.sequence = sequence;
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package edu.ntnu.idi.idatt.models;
+
+import edu.ntnu.idi.idatt.utils.StringUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Consumes groceries in a {@link FoodStorage} for many threads at once, by gathering the requests
+ * to consume the same grocery and applying them together.
+ *
+ * <p>
+ * Every grocery has a queue of requests. A thread that adds a request to a queue nobody is working
+ * on takes all the requests in the queue, and applies them under the provided lock: the requests
+ * are gone through in the order they were added, each one is granted if the amount left after the
+ * requests before it is enough, and the sum of the granted amounts is consumed from the grocery at
+ * once. The batches of the grocery are therefore walked, and the lock taken, once for all the
+ * requests, instead of once for each. Requests added meanwhile are applied the same way by a new
+ * thread, so the thread that took the first requests can return.
+ *
+ * <p>
+ * The requests are applied in a {@link ChangeScope}, so a listener waiting for the change to reach
+ * the disk waits after the lock is released, and the next group of requests is not held up by the
+ * disk. The futures of the requests are completed after that wait, so a request that has completed
+ * is on disk.
+ *
+ * <p>
+ * Consuming the whole amount of a grocery removes it from the food storage, like the food storage
+ * menu does.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class ConsumeCoalescer {
+  private final FoodStorage foodStorage;
+  private final Lock lock;
+  /** The queues of the groceries with requests, by the capitalized name of the grocery. */
+  private final ConcurrentHashMap<String, Lane> lanes = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs a new coalescer consuming groceries in the provided food storage.
+   *
+   * @param foodStorage the food storage to consume groceries in
+   * @param lock the lock to hold while requests are applied, which must be held by everything else
+   *             changing the food storage at the same time
+   * @throws IllegalArgumentException if any of the provided objects are null.
+   */
+  public ConsumeCoalescer(FoodStorage foodStorage, Lock lock) throws IllegalArgumentException {
+    if (foodStorage == null) {
+      throw new IllegalArgumentException("Food storage cannot be null");
+    }
+    if (lock == null) {
+      throw new IllegalArgumentException("Lock cannot be null");
+    }
+    this.foodStorage = foodStorage;
+    this.lock = lock;
+  }
+
+  /**
+   * Requests an amount of a grocery to be consumed.
+   *
+   * @param name the name of the grocery, case insensitive
+   * @param amount the amount to consume
+   * @return a future completed with the outcome of the request, or with the exception thrown if
+   *         the food storage could not be changed
+   * @throws IllegalArgumentException if the name is null or blank, or the amount is zero or a
+   *         negative number.
+   */
+  public CompletableFuture<Outcome> consume(String name, double amount)
+      throws IllegalArgumentException {
+    if (name == null || name.isBlank()) {
+      throw new IllegalArgumentException("Name cannot be null or blank");
+    }
+    if (amount <= 0) {
+      throw new IllegalArgumentException("Amount must be a positive number.");
+    }
+    final Request request = new Request(amount, new CompletableFuture<>());
+    // The request is added while the map holds the key, so a queue is never removed between
+    // being found and taking the request.
+    final Lane lane = lanes.compute(StringUtils.capitalize(name), (key, current) -> {
+      final Lane found = current == null ? new Lane(key) : current;
+      found.requests.add(request);
+      return found;
+    });
+    if (applyRequests(lane) && !lane.requests.isEmpty()) {
+      // The requests added while this thread applied the first ones are handed to a new thread.
+      Thread.startVirtualThread(() -> applyUntilEmpty(lane));
+    }
+    return request.result;
+  }
+
+  /**
+   * Applies the requests in a queue until it is empty, or another thread is applying them.
+   */
+  private void applyUntilEmpty(Lane lane) {
+    boolean applied;
+    do {
+      applied = applyRequests(lane);
+    } while (applied && !lane.requests.isEmpty());
+  }
+
+  /**
+   * Applies the requests in a queue, if no other thread is applying them.
+   *
+   * @return true if this thread applied the requests, false if another thread is applying them
+   */
+  private boolean applyRequests(Lane lane) {
+    if (!lane.applying.compareAndSet(false, true)) {
+      return false;
+    }
+    try {
+      final List<Request> requests = new ArrayList<>();
+      Request request;
+      while ((request = lane.requests.poll()) != null) {
+        requests.add(request);
+      }
+      if (!requests.isEmpty()) {
+        Outcome[] outcomes = null;
+        RuntimeException failure = null;
+        try (ChangeScope scope = ChangeScope.open()) {
+          outcomes = apply(lane.name, requests);
+        } catch (RuntimeException e) {
+          failure = e;
+        }
+        complete(requests, outcomes, failure);
+      }
+    } finally {
+      lane.applying.set(false);
+    }
+    // A queue left empty is removed, so the map only holds the groceries with requests. It is only
+    // removed while the map holds the key, and nobody is applying it, so every request is added to
+    // the one queue of its grocery, and is applied in the order it was added.
+    lanes.computeIfPresent(lane.name, (key, current) ->
+        current == lane && lane.requests.isEmpty() && !lane.applying.get() ? null : current);
+    return true;
+  }
+
+  /**
+   * Decides the outcome of every request in order, and consumes the granted amounts.
+   */
+  private Outcome[] apply(String name, List<Request> requests) {
+    final Outcome[] outcomes = new Outcome[requests.size()];
+    lock.lock();
+    try {
+      if (!foodStorage.containsGrocery(name)) {
+        Arrays.fill(outcomes, Outcome.NOT_FOUND);
+        return outcomes;
+      }
+      final Grocery grocery = foodStorage.getGroceryByName(name);
+      final double available = grocery.getTotalAmount();
+      double granted = 0;
+      int last = -1;
+      for (int i = 0; i < outcomes.length; i++) {
+        final double amount = requests.get(i).amount();
+        if (granted + amount <= available) {
+          granted += amount;
+          outcomes[i] = Outcome.CONSUMED;
+          last = i;
+        } else {
+          outcomes[i] = Outcome.INSUFFICIENT;
+        }
+      }
+      if (last < 0) {
+        return outcomes;
+      }
+      if (granted == available) {
+        foodStorage.removeGrocery(grocery);
+        outcomes[last] = Outcome.EMPTIED;
+      } else {
+        grocery.consume(granted);
+      }
+      return outcomes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Completes the futures of the requests with their outcomes, or with the exception thrown if the
+   * food storage could not be changed, or the change did not reach the disk.
+   */
+  private static void complete(List<Request> requests, Outcome[] outcomes,
+      RuntimeException failure) {
+    if (failure != null) {
+      requests.forEach(request -> request.result.completeExceptionally(failure));
+      return;
+    }
+    for (int i = 0; i < outcomes.length; i++) {
+      requests.get(i).result.complete(outcomes[i]);
+    }
+  }
+
+  /**
+   * The outcome of a request to consume a grocery.
+   */
+  public enum Outcome {
+    /** The amount was consumed. */
+    CONSUMED,
+    /** The amount was consumed, and was the rest of the grocery, which was removed. */
+    EMPTIED,
+    /** The amount was not consumed, as the grocery had less left. */
+    INSUFFICIENT,
+    /** The food storage has no grocery with the name. */
+    NOT_FOUND
+  }
+
+  /**
+   * A request to consume an amount, and the future to complete with its outcome.
+   */
+  private record Request(double amount, CompletableFuture<Outcome> result) {}
+
+  /**
+   * The queue of requests to consume a grocery, and whether a thread is applying them.
+   */
+  private static final class Lane {
+    private final String name;
+    private final Queue<Request> requests = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean applying = new AtomicBoolean();
+
+    private Lane(String name) {
+      this.name = name;
+    }
+  }
+}
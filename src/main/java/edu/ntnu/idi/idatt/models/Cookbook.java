@@ -1,7 +1,9 @@
 package edu.ntnu.idi.idatt.models;
 
-import java.util.Comparator;
+import edu.ntnu.idi.idatt.utils.PersistentSortedMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A class representing a cook book.
@@ -11,6 +13,21 @@ import java.util.List;
  * name. It also has methods for sorting the recipes in the cook book alphabetically by name,
  * and for removing all recipes from the cook book.
  *
+ * <p>
+ * The recipes are published as immutable, versioned {@link CookbookSnapshot} objects. Readers get
+ * the current snapshot with a single volatile read and never block, while a change builds the
+ * next snapshot from the previous one and publishes it. Snapshots are persistent data structures,
+ * so the next snapshot shares almost all of its structure with the previous one. A snapshot that
+ * is being read stays valid and unchanged, no matter how the cook book is changed afterwards.
+ *
+ * <p>
+ * A cook book constructed with a {@link RecipeTextStore} moves the descriptions and instructions
+ * of the recipes added to it into the store, so only the names, servings and ingredients of the
+ * recipes are kept in memory.
+ *
+ * @see CookbookSnapshot
+ * @see RecipeTextStore
+ *
  * @author WilliamHoltsdalen
  * @since V0.2
  */
@@ -19,23 +36,107 @@ public class Cookbook {
   private static final String RECIPE_NOT_FOUND_ERROR = "Recipe was not found";
   private static final String NULL_OR_BLANK_NAME = "Name cannot be null or blank";
   private static final String RECIPE_ALREADY_EXISTS_ERROR = "Recipe already exists";
+  private static final String NULL_TEXT_STORE_ERROR = "Text store cannot be null";
+
+  /** The current snapshot of the cook book. Replaced, never modified, on every change. */
+  private volatile CookbookSnapshot snapshot;
+  /**
+   * The keys of the recipes in the current snapshot. Only used by writers, while holding the lock
+   * of this object.
+   */
+  private final Map<Recipe, RecipeKey> recipeKeys;
+  /** The sequence number given to the next recipe added, to keep recipe keys unique. */
+  private long nextSequence;
+  /** The listeners told about changes to the cook book and the recipes in it. */
+  private final ModelChangeListeners changeListeners;
+  /** The store to keep the texts of the recipes in, or null to keep them in the recipes. */
+  private final RecipeTextStore textStore;
 
-  private final List<Recipe> recipes;
+  /**
+   * The key of a recipe in a snapshot, sorting recipes by their name when they were added, and
+   * then by the order they were added in. This allows multiple recipes with the same name.
+   *
+   * @param name the name of the recipe when the key was created
+   * @param sequence the sequence number of the recipe
+   */
+  record RecipeKey(String name, long sequence) implements Comparable<RecipeKey> {
+    @Override
+    public int compareTo(RecipeKey other) {
+      final int cmp = name.compareTo(other.name);
+      return cmp != 0 ? cmp : Long.compare(sequence, other.sequence);
+    }
+  }
 
   /**
    * Constructs a new empty cook book with no recipes.
    */
   public Cookbook() {
-    this.recipes = new java.util.ArrayList<>();
+    this.recipeKeys = new IdentityHashMap<>();
+    this.snapshot = new CookbookSnapshot(0, PersistentSortedMap.empty());
+    this.changeListeners = new ModelChangeListeners();
+    this.textStore = null;
+  }
+
+  /**
+   * Constructs a new empty cook book, keeping the descriptions and instructions of its recipes in
+   * the provided store.
+   *
+   * @param textStore the store to keep the texts of the recipes in
+   * @throws IllegalArgumentException if the store is null.
+   */
+  public Cookbook(RecipeTextStore textStore) throws IllegalArgumentException {
+    if (textStore == null) {
+      throw new IllegalArgumentException(NULL_TEXT_STORE_ERROR);
+    }
+    this.recipeKeys = new IdentityHashMap<>();
+    this.snapshot = new CookbookSnapshot(0, PersistentSortedMap.empty());
+    this.changeListeners = new ModelChangeListeners();
+    this.textStore = textStore;
+  }
+
+  /**
+   * Adds a listener to tell about every change to the cook book, and to the recipes in it.
+   *
+   * @param listener the listener to add
+   * @throws IllegalArgumentException if the listener is null.
+   */
+  public void addChangeListener(ModelChangeListener listener) throws IllegalArgumentException {
+    changeListeners.add(listener);
   }
 
   /**
-   * Returns a list of all recipes in the cook book.
+   * Removes a listener added with {@code addChangeListener}.
+   *
+   * @param listener the listener to remove
+   */
+  public void removeChangeListener(ModelChangeListener listener) {
+    changeListeners.remove(listener);
+  }
+
+  /**
+   * Returns the current snapshot of the cook book.
+   *
+   * <p>
+   * The snapshot is immutable, and is not affected by later changes to the cook book. This makes
+   * it safe to read from any thread, for as long as needed, without locking.
+   *
+   * @return the current snapshot of the cook book
+   */
+  public CookbookSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Returns an unmodifiable list of all recipes in the cook book, sorted alphabetically by name.
+   *
+   * <p>
+   * The list is the list of recipes of the current snapshot, so it does not change when the
+   * cook book is changed afterwards.
    *
    * @return a list of all recipes in the cook book
    */
   public List<Recipe> getRecipes() {
-    return recipes;
+    return snapshot.getRecipes();
   }
 
   /**
@@ -54,7 +155,7 @@ public class Cookbook {
     if (name == null || name.isBlank()) {
       throw new IllegalArgumentException(NULL_OR_BLANK_NAME);
     }
-    return recipes.stream()
+    return snapshot.getRecipes().stream()
       .filter(recipe -> recipe.getName().equalsIgnoreCase(name))
       .findFirst()
       .orElseThrow(() -> new IllegalArgumentException(RECIPE_NOT_FOUND_ERROR));
@@ -64,7 +165,8 @@ public class Cookbook {
    * Adds a recipe to the cook book.
    *
    * <p>
-   * After adding the recipe, the list of recipes is sorted alphabetically by name.
+   * After adding the recipe, the list of recipes is sorted alphabetically by name. If the cook
+   * book has a text store, the description and instructions of the recipe are moved into it.
    *
    * <p>
    * If the recipe object is null, or if the recipe already exists in the cook book, the method
@@ -78,11 +180,21 @@ public class Cookbook {
     if (recipe == null) {
       throw new IllegalArgumentException(NULL_RECIPE_ERROR);
     }
-    if (recipes.contains(recipe)) {
-      throw new IllegalArgumentException(RECIPE_ALREADY_EXISTS_ERROR);
+    try (ChangeScope scope = ChangeScope.open()) {
+      synchronized (this) {
+        if (recipeKeys.containsKey(recipe)) {
+          throw new IllegalArgumentException(RECIPE_ALREADY_EXISTS_ERROR);
+        }
+        if (textStore != null) {
+          recipe.moveTextTo(textStore);
+        }
+        final RecipeKey key = new RecipeKey(recipe.getName(), nextSequence++);
+        recipeKeys.put(recipe, key);
+        publish(snapshot.recipeMap().put(key, recipe));
+        recipe.setChangeListener(changeListeners);
+        changeListeners.recipeAdded(recipe);
+      }
     }
-    recipes.add(recipe);
-    sortRecipes();
   }
 
   /**
@@ -100,23 +212,61 @@ public class Cookbook {
     if (recipe == null) {
       throw new IllegalArgumentException(NULL_RECIPE_ERROR);
     }
-    if (!recipes.contains(recipe)) {
-      throw new IllegalArgumentException(RECIPE_NOT_FOUND_ERROR);
+    try (ChangeScope scope = ChangeScope.open()) {
+      synchronized (this) {
+        final RecipeKey key = recipeKeys.remove(recipe);
+        if (key == null) {
+          throw new IllegalArgumentException(RECIPE_NOT_FOUND_ERROR);
+        }
+        publish(snapshot.recipeMap().remove(key));
+        recipe.setChangeListener(ModelChangeListener.NONE);
+        changeListeners.recipeRemoved(recipe);
+      }
     }
-    recipes.remove(recipe);
   }
 
   /**
    * Sorts the recipes in the cook book by name, in alphabetical order.
+   *
+   * <p>
+   * Recipes are kept sorted by the name they had when they were added, so this method only needs
+   * to be called after a recipe in the cook book has been renamed.
    */
   public void sortRecipes() {
-    recipes.sort(Comparator.comparing(Recipe::getName));
+    try (ChangeScope scope = ChangeScope.open()) {
+      synchronized (this) {
+        PersistentSortedMap<RecipeKey, Recipe> sortedRecipes = PersistentSortedMap.empty();
+        for (Recipe recipe : snapshot.getRecipes()) {
+          final RecipeKey key = new RecipeKey(recipe.getName(), nextSequence++);
+          recipeKeys.put(recipe, key);
+          sortedRecipes = sortedRecipes.put(key, recipe);
+        }
+        publish(sortedRecipes);
+        changeListeners.recipesSorted();
+      }
+    }
   }
 
   /**
    * Removes all recipes from the cook book.
    */
   public void removeAllRecipes() {
-    recipes.clear();
+    try (ChangeScope scope = ChangeScope.open()) {
+      synchronized (this) {
+        recipeKeys.keySet().forEach(recipe -> recipe.setChangeListener(ModelChangeListener.NONE));
+        recipeKeys.clear();
+        publish(PersistentSortedMap.empty());
+        changeListeners.allRecipesRemoved();
+      }
+    }
+  }
+
+  /**
+   * Publishes a new snapshot with the provided recipes, and the next version number.
+   *
+   * @param recipes the recipes of the new snapshot
+   */
+  private void publish(PersistentSortedMap<RecipeKey, Recipe> recipes) {
+    snapshot = new CookbookSnapshot(snapshot.getVersion() + 1, recipes);
   }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package edu.ntnu.idi.idatt.models;
+
+import edu.ntnu.idi.idatt.utils.PersistentSortedMap;
+import java.util.List;
+
+/**
+ * A class representing an immutable version of the recipes in a {@link Cookbook}.
+ *
+ * <p>
+ * Every change to a cookbook publishes a new snapshot with a higher version number. A snapshot
+ * never changes after it is published, so it can be read by any thread without locking, and it
+ * stays valid for as long as it is needed, even while the cookbook is changed. The snapshot
+ * captures which recipes the cookbook contains, and their order. The recipe objects themselves
+ * are shared with the cookbook.
+ *
+ * <p>
+ * The recipes are kept in a {@link PersistentSortedMap}, so a new snapshot shares almost all of
+ * its structure with the previous one, instead of copying the whole list of recipes.
+ *
+ * @see Cookbook
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class CookbookSnapshot {
+  private final long version;
+  private final PersistentSortedMap<Cookbook.RecipeKey, Recipe> recipes;
+
+  /**
+   * Constructs a new snapshot with the provided version number and recipes. Snapshots are only
+   * created by the {@link Cookbook} class.
+   *
+   * @param version the version number of the snapshot
+   * @param recipes the recipes of the snapshot, sorted by name
+   */
+  CookbookSnapshot(long version, PersistentSortedMap<Cookbook.RecipeKey, Recipe> recipes) {
+    this.version = version;
+    this.recipes = recipes;
+  }
+
+  /**
+   * Returns the version number of the snapshot. The number increases by one for every change to
+   * the cookbook.
+   *
+   * @return the version number of the snapshot
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns an unmodifiable list of all recipes in the snapshot, sorted alphabetically by name.
+   *
+   * @return a list of all recipes in the snapshot
+   */
+  public List<Recipe> getRecipes() {
+    return recipes.values();
+  }
+
+  /**
+   * Returns the number of recipes in the snapshot.
+   *
+   * @return the number of recipes in the snapshot
+   */
+  public int size() {
+    return recipes.size();
+  }
+
+  /**
+   * Checks if the snapshot contains no recipes.
+   *
+   * @return true if the snapshot contains no recipes, false otherwise
+   */
+  public boolean isEmpty() {
+    return recipes.isEmpty();
+  }
+
+  /**
+   * Returns the map of recipes in the snapshot, which is used by the cookbook to build the next
+   * snapshot.
+   *
+   * @return the map of recipes in the snapshot
+   */
+  PersistentSortedMap<Cookbook.RecipeKey, Recipe> recipeMap() {
+    return recipes;
+  }
+}
@@ -0,0 +1,313 @@
+package edu.ntnu.idi.idatt.models;
+
+import edu.ntnu.idi.idatt.utils.TimingWheel;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Tells a listener when the grocery batches in a {@link FoodStorage} are about to expire, and
+ * when they have expired, without checking every batch every day.
+ *
+ * <p>
+ * Every batch in the food storage has two notices in a {@link TimingWheel}: one on the day a
+ * number of days before its expiration date, and one on the day after its expiration date, when
+ * it has expired. The notices are scheduled as batches are added, and cancelled as batches are
+ * consumed or groceries removed, which takes O(1) time for each notice. When the notifier is
+ * advanced to a new day, only the notices due on the days passed are looked at, so millions of
+ * batches can be followed without a timer or a scan for each of them.
+ *
+ * <p>
+ * Notices are only scheduled for days after the current day of the notifier, so a batch that is
+ * already about to expire when it is added is not announced again. When the rest of a partly
+ * consumed batch is kept as a new batch, its notices replace those of the old batch.
+ *
+ * <p>
+ * The notifier is advanced by {@code advanceTo}, or by a background thread started with
+ * {@code start}, which advances it to the date of its clock. The listener is called on the
+ * thread advancing the notifier, after the notices have been taken out of the wheel.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class ExpiryNotifier implements AutoCloseable {
+  /** How often the background thread looks at the date of the clock, if not told otherwise. */
+  public static final Duration DEFAULT_CHECK_INTERVAL = Duration.ofMinutes(1);
+  /** How many days before its expiration date a batch is about to expire, by default. */
+  public static final int DEFAULT_WARNING_DAYS = 2;
+
+  private final FoodStorage foodStorage;
+  private final Clock clock;
+  private final int warningDays;
+  private final Consumer<Notice> listener;
+  private final TimingWheel<Notice> wheel;
+  /** The notices of the batches of every grocery, by the name of the grocery. */
+  private final Map<String, Map<GroceryBatch, Notices>> groceries = new HashMap<>();
+  private final ModelChangeListener changeListener = new BatchTracker();
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * Constructs a new notifier for the batches in the provided food storage, starting at the date
+   * of the provided clock.
+   *
+   * @param foodStorage the food storage to follow
+   * @param clock the clock giving the current date
+   * @param warningDays how many days before its expiration date a batch is about to expire
+   * @param listener called with every notice that is due
+   * @throws IllegalArgumentException if any of the provided objects are null, or the number of
+   *         days is negative.
+   */
+  public ExpiryNotifier(FoodStorage foodStorage, Clock clock, int warningDays,
+      Consumer<Notice> listener) throws IllegalArgumentException {
+    if (foodStorage == null) {
+      throw new IllegalArgumentException("Food storage cannot be null");
+    }
+    if (clock == null) {
+      throw new IllegalArgumentException("Clock cannot be null");
+    }
+    if (warningDays < 0) {
+      throw new IllegalArgumentException("Number of warning days cannot be negative");
+    }
+    if (listener == null) {
+      throw new IllegalArgumentException("Listener cannot be null");
+    }
+    this.foodStorage = foodStorage;
+    this.clock = clock;
+    this.warningDays = warningDays;
+    this.listener = listener;
+    this.wheel = new TimingWheel<>(LocalDate.now(clock).toEpochDay());
+    synchronized (this) {
+      foodStorage.forEachGrocery(this::trackGrocery);
+    }
+    foodStorage.addChangeListener(changeListener);
+  }
+
+  /**
+   * Starts a background thread advancing the notifier to the date of the clock, at the provided
+   * interval.
+   *
+   * @param checkInterval how often to look at the date of the clock
+   * @throws IllegalArgumentException if the interval is null or not positive.
+   * @throws IllegalStateException if the background thread is already started.
+   */
+  public synchronized void start(Duration checkInterval)
+      throws IllegalArgumentException, IllegalStateException {
+    if (checkInterval == null || checkInterval.isNegative() || checkInterval.isZero()) {
+      throw new IllegalArgumentException("Check interval must be positive");
+    }
+    if (scheduler != null) {
+      throw new IllegalStateException("Notifier is already started");
+    }
+    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "expiry-notifier");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleWithFixedDelay(() -> advanceTo(LocalDate.now(clock)), 0,
+        checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Advances the notifier to the provided date, telling the listener about every notice due on
+   * or before it, in the order of their days.
+   *
+   * @param date the new current date
+   * @throws IllegalArgumentException if the date is null.
+   */
+  public void advanceTo(LocalDate date) throws IllegalArgumentException {
+    if (date == null) {
+      throw new IllegalArgumentException("Date cannot be null");
+    }
+    final List<Notice> due = new ArrayList<>();
+    synchronized (this) {
+      wheel.advanceTo(date.toEpochDay(), notice -> {
+        due.add(notice);
+        forget(notice);
+      });
+    }
+    due.forEach(listener);
+  }
+
+  /**
+   * Returns the number of notices waiting to be due.
+   *
+   * @return the number of notices
+   */
+  public synchronized int getPendingCount() {
+    return wheel.size();
+  }
+
+  /**
+   * Stops following the food storage, and stops the background thread if it is started.
+   */
+  @Override
+  public void close() {
+    foodStorage.removeChangeListener(changeListener);
+    final ScheduledExecutorService started;
+    synchronized (this) {
+      started = scheduler;
+    }
+    if (started != null) {
+      started.shutdownNow();
+    }
+  }
+
+  /**
+   * Schedules the notices of every batch of a grocery.
+   */
+  private void trackGrocery(Grocery grocery) {
+    for (GroceryBatch batch : grocery.getBatches()) {
+      trackBatch(grocery.getName(), batch);
+    }
+  }
+
+  /**
+   * Schedules the notices of a batch that are due after the current day.
+   */
+  private void trackBatch(String groceryName, GroceryBatch batch) {
+    final long expirationDay = batch.getExpirationDate().toEpochDay();
+    final Notices notices = new Notices(
+        scheduleNotice(expirationDay - warningDays, Notice.Kind.EXPIRING, groceryName, batch),
+        scheduleNotice(expirationDay + 1, Notice.Kind.EXPIRED, groceryName, batch));
+    if (notices.expiring != null || notices.expired != null) {
+      groceries.computeIfAbsent(groceryName, name -> new IdentityHashMap<>()).put(batch, notices);
+    }
+  }
+
+  private TimingWheel.Timer<Notice> scheduleNotice(long day, Notice.Kind kind, String groceryName,
+      GroceryBatch batch) {
+    if (day <= wheel.getCurrentDay()) {
+      return null;
+    }
+    return wheel.schedule(day, new Notice(kind, groceryName, batch));
+  }
+
+  /**
+   * Cancels the notices of every batch of a grocery.
+   */
+  private void untrackGrocery(String groceryName) {
+    final Map<GroceryBatch, Notices> batches = groceries.remove(groceryName);
+    if (batches != null) {
+      batches.values().forEach(this::cancel);
+    }
+  }
+
+  /**
+   * Cancels the notices of the batches that are no longer in a grocery, and schedules the notices
+   * of its batches that are not followed yet. Only looks at the batches of that grocery.
+   */
+  private void reconcile(Grocery grocery) {
+    final List<GroceryBatch> current = grocery.getBatches();
+    final Map<GroceryBatch, Notices> tracked = groceries.get(grocery.getName());
+    if (tracked != null) {
+      final Map<GroceryBatch, Boolean> kept = new IdentityHashMap<>();
+      current.forEach(batch -> kept.put(batch, Boolean.TRUE));
+      tracked.entrySet().removeIf(entry -> {
+        if (kept.containsKey(entry.getKey())) {
+          return false;
+        }
+        cancel(entry.getValue());
+        return true;
+      });
+    }
+    for (GroceryBatch batch : current) {
+      if (tracked == null || !tracked.containsKey(batch)) {
+        trackBatch(grocery.getName(), batch);
+      }
+    }
+  }
+
+  private void cancel(Notices notices) {
+    wheel.cancel(notices.expiring);
+    wheel.cancel(notices.expired);
+  }
+
+  /**
+   * Stops following a batch once its last notice is due.
+   */
+  private void forget(Notice notice) {
+    if (notice.kind() != Notice.Kind.EXPIRED) {
+      return;
+    }
+    final Map<GroceryBatch, Notices> batches = groceries.get(notice.groceryName());
+    if (batches != null && batches.remove(notice.batch()) != null && batches.isEmpty()) {
+      groceries.remove(notice.groceryName());
+    }
+  }
+
+  /**
+   * A notice that a grocery batch is about to expire, or has expired.
+   *
+   * @param kind whether the batch is about to expire or has expired
+   * @param groceryName the name of the grocery the batch belongs to
+   * @param batch the batch
+   */
+  public record Notice(Kind kind, String groceryName, GroceryBatch batch) {
+    /**
+     * The kinds of notices.
+     */
+    public enum Kind {
+      /** The batch expires within the number of warning days. */
+      EXPIRING,
+      /** The expiration date of the batch has passed. */
+      EXPIRED
+    }
+  }
+
+  /**
+   * The two notices of a batch, either of which is null if it was not scheduled.
+   */
+  private record Notices(TimingWheel.Timer<Notice> expiring, TimingWheel.Timer<Notice> expired) {}
+
+  /**
+   * Keeps the notices in step with the batches of the food storage.
+   */
+  private final class BatchTracker implements ModelChangeListener {
+    @Override
+    public void groceryAdded(Grocery grocery) {
+      synchronized (ExpiryNotifier.this) {
+        trackGrocery(grocery);
+      }
+    }
+
+    @Override
+    public void groceryRemoved(Grocery grocery) {
+      synchronized (ExpiryNotifier.this) {
+        untrackGrocery(grocery.getName());
+      }
+    }
+
+    @Override
+    public void allGroceriesRemoved() {
+      synchronized (ExpiryNotifier.this) {
+        for (Map<GroceryBatch, Notices> batches : groceries.values()) {
+          batches.values().forEach(ExpiryNotifier.this::cancel);
+        }
+        groceries.clear();
+      }
+    }
+
+    @Override
+    public void batchAdded(Grocery grocery, GroceryBatch batch) {
+      synchronized (ExpiryNotifier.this) {
+        trackBatch(grocery.getName(), batch);
+      }
+    }
+
+    @Override
+    public void groceryConsumed(Grocery grocery, double amount) {
+      synchronized (ExpiryNotifier.this) {
+        reconcile(grocery);
+      }
+    }
+  }
+}
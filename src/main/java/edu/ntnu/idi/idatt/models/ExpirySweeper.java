@@ -0,0 +1,238 @@
+package edu.ntnu.idi.idatt.models;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Removes the expired grocery batches from a {@link FoodStorage} in the background, a little at a
+ * time, so a large sweep does not hold up the users of the food storage.
+ *
+ * <p>
+ * A sweep removes every batch that expired before the date of the clock, like the food storage
+ * menu does. The groceries with expired batches are found with
+ * {@code getGroceriesExpiringBeforeDate}, and swept in chunks. When a sweep has run for longer
+ * than its time slice, it pauses for as long again before the next chunk, so it never takes more
+ * than about half of the time of a thread, and the pauses let other threads in between.
+ *
+ * <p>
+ * Every batch is removed with {@code consumeIfVersion}, and only if it is still the first batch of
+ * the grocery, so a grocery consumed or added to at the same time is looked at again instead of
+ * losing the change. A grocery whose last batch has expired is removed from the food storage with
+ * {@code removeGroceryIfVersion}, which is ordered with the changes to the grocery, so a batch
+ * added at the same time is either seen by the sweep, which then keeps the grocery, or fails
+ * because the grocery was removed.
+ *
+ * <p>
+ * The batches removed are kept as {@link Removal}s until they are taken with
+ * {@code takeRemovals}, so they can be reported to the user. The batches are removed for good, like
+ * the food storage menu removes them, and are not kept anywhere else.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class ExpirySweeper implements AutoCloseable {
+  /** How often the background thread sweeps, if not told otherwise. */
+  public static final Duration DEFAULT_SWEEP_INTERVAL = Duration.ofMinutes(10);
+  /** How many groceries are swept between checks of the time slice, if not told otherwise. */
+  public static final int DEFAULT_CHUNK_SIZE = 64;
+  /** How long a sweep runs before it pauses, if not told otherwise. */
+  public static final Duration DEFAULT_TIME_SLICE = Duration.ofMillis(2);
+
+  private final FoodStorage foodStorage;
+  private final Clock clock;
+  private final int chunkSize;
+  private final long timeSliceNanos;
+  /** The batches removed and not taken yet, in the order they were removed. */
+  private final List<Removal> removals = new ArrayList<>();
+  private Thread thread;
+  private boolean closed;
+
+  /**
+   * Constructs a new sweeper for the provided food storage, with the default chunk size and time
+   * slice.
+   *
+   * @param foodStorage the food storage to sweep
+   * @param clock the clock giving the current date
+   * @throws IllegalArgumentException if any of the provided objects are null.
+   */
+  public ExpirySweeper(FoodStorage foodStorage, Clock clock) throws IllegalArgumentException {
+    this(foodStorage, clock, DEFAULT_CHUNK_SIZE, DEFAULT_TIME_SLICE);
+  }
+
+  /**
+   * Constructs a new sweeper for the provided food storage.
+   *
+   * @param foodStorage the food storage to sweep
+   * @param clock the clock giving the current date
+   * @param chunkSize how many groceries to sweep between checks of the time slice
+   * @param timeSlice how long a sweep runs before it pauses
+   * @throws IllegalArgumentException if any of the provided objects are null, or the chunk size
+   *         or time slice is not positive.
+   */
+  public ExpirySweeper(FoodStorage foodStorage, Clock clock, int chunkSize, Duration timeSlice)
+      throws IllegalArgumentException {
+    if (foodStorage == null) {
+      throw new IllegalArgumentException("Food storage cannot be null");
+    }
+    if (clock == null) {
+      throw new IllegalArgumentException("Clock cannot be null");
+    }
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("Chunk size must be positive");
+    }
+    if (timeSlice == null || timeSlice.isNegative() || timeSlice.isZero()) {
+      throw new IllegalArgumentException("Time slice must be positive");
+    }
+    this.foodStorage = foodStorage;
+    this.clock = clock;
+    this.chunkSize = chunkSize;
+    this.timeSliceNanos = timeSlice.toNanos();
+  }
+
+  /**
+   * Starts a virtual thread sweeping the food storage at the provided interval, starting now.
+   *
+   * @param sweepInterval how long to wait between the end of a sweep and the start of the next
+   * @throws IllegalArgumentException if the interval is null or not positive.
+   * @throws IllegalStateException if the background thread is already started, or the sweeper is
+   *         closed.
+   */
+  public synchronized void start(Duration sweepInterval)
+      throws IllegalArgumentException, IllegalStateException {
+    if (sweepInterval == null || sweepInterval.isNegative() || sweepInterval.isZero()) {
+      throw new IllegalArgumentException("Sweep interval must be positive");
+    }
+    if (thread != null || closed) {
+      throw new IllegalStateException("Sweeper is already started or closed");
+    }
+    thread = Thread.ofVirtual().name("expiry-sweeper").start(() -> {
+      try {
+        while (!Thread.currentThread().isInterrupted()) {
+          sweep();
+          Thread.sleep(sweepInterval);
+        }
+      } catch (InterruptedException e) {
+        // Closed while sleeping.
+      }
+    });
+  }
+
+  /**
+   * Sweeps the food storage once on the current thread, removing every batch that expired before
+   * the date of the clock, and pausing between chunks as described above.
+   *
+   * @return the number of batches removed
+   * @throws InterruptedException if the thread is interrupted while pausing.
+   */
+  public int sweep() throws InterruptedException {
+    final LocalDate today = LocalDate.now(clock);
+    final List<Grocery> candidates = foodStorage.getGroceriesExpiringBeforeDate(today);
+    int removed = 0;
+    long sliceStart = System.nanoTime();
+    for (int start = 0; start < candidates.size(); start += chunkSize) {
+      final int end = Math.min(start + chunkSize, candidates.size());
+      for (Grocery grocery : candidates.subList(start, end)) {
+        removed += sweepGrocery(grocery, today);
+      }
+      final long elapsed = System.nanoTime() - sliceStart;
+      if (elapsed >= timeSliceNanos && end < candidates.size()) {
+        Thread.sleep(Duration.ofNanos(elapsed));
+        sliceStart = System.nanoTime();
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Returns the batches removed and not taken yet, in the order they were removed.
+   *
+   * @return a copy of the list of removals
+   */
+  public synchronized List<Removal> getRemovals() {
+    return List.copyOf(removals);
+  }
+
+  /**
+   * Returns the batches removed since they were last taken, and forgets them, so each removal is
+   * reported once.
+   *
+   * @return the removals, in the order they were removed
+   */
+  public synchronized List<Removal> takeRemovals() {
+    final List<Removal> taken = List.copyOf(removals);
+    removals.clear();
+    return taken;
+  }
+
+  /**
+   * Stops the background thread if it is started. A sweep running is stopped at its next pause.
+   */
+  @Override
+  public void close() {
+    final Thread started;
+    synchronized (this) {
+      closed = true;
+      started = thread;
+    }
+    if (started != null) {
+      started.interrupt();
+    }
+  }
+
+  /**
+   * Removes the expired batches of a grocery, one at a time, starting with the first.
+   *
+   * @return the number of batches removed
+   */
+  private int sweepGrocery(Grocery grocery, LocalDate today) {
+    int removed = 0;
+    while (true) {
+      final long version = grocery.getVersion();
+      final List<GroceryBatch> batches = grocery.getBatches();
+      if (batches.isEmpty() || !batches.getFirst().getExpirationDate().isBefore(today)) {
+        return removed;
+      }
+      final GroceryBatch batch = batches.getFirst();
+      try {
+        if (batches.size() == 1) {
+          if (!foodStorage.removeGroceryIfVersion(grocery, version)) {
+            if (grocery.getVersion() != version) {
+              continue;
+            }
+            return removed;
+          }
+        } else if (!grocery.consumeIfVersion(version, batch.getAmount())) {
+          continue;
+        }
+      } catch (IllegalStateException e) {
+        // Another thread removed the grocery.
+        return removed;
+      }
+      record(new Removal(grocery.getName(), grocery.getCategory(), grocery.getUnit(), batch,
+          today));
+      removed++;
+      if (batches.size() == 1) {
+        return removed;
+      }
+    }
+  }
+
+  private synchronized void record(Removal removal) {
+    removals.add(removal);
+  }
+
+  /**
+   * A batch removed from the food storage by a sweep.
+   *
+   * @param groceryName the name of the grocery the batch belonged to
+   * @param category the category of the grocery
+   * @param unit the unit of the grocery
+   * @param batch the batch, with the amount it had when it was removed
+   * @param sweptOn the date of the sweep that removed it
+   */
+  public record Removal(String groceryName, String category, String unit, GroceryBatch batch,
+      LocalDate sweptOn) {}
+}
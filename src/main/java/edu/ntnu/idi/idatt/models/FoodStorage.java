@@ -4,8 +4,8 @@ import edu.ntnu.idi.idatt.utils.StringUtils;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * A class representing a food storage system.
@@ -16,6 +16,14 @@ import java.util.List;
  * grocery objects, all grocery objects that expire before a given date, and all grocery objects in
  * the food storage, by category, expiration date, and alphabetically.
  *
+ * <p>
+ * A food storage can be shared by several threads, like the sessions of a
+ * {@link edu.ntnu.idi.idatt.views.SessionServer}. Groceries are added and removed one at a time,
+ * and the groceries themselves are changed atomically, so the groceries can be looked up while
+ * they are changed, as long as the store of the food storage is thread-safe. A grocery is added
+ * and removed in the same order as the changes made to it, so a change to it is either made and
+ * reported before it is removed, or not made at all.
+ *
  * @author WilliamHoltsdalen
  * @since V0.1
  */
@@ -30,10 +38,12 @@ public class FoodStorage {
   private static final String INVALID_EXPIRATION_DATE_ERROR = "Invalid expiration date.";
 
   /**
-   * A map of grocery objects. The key is the name of the grocery, and the value is the grocery
+   * The store of grocery objects. The key is the name of the grocery, and the value is the grocery
    * object.
    */
-  private final HashMap<String, Grocery> groceries;
+  private final GroceryStore groceries;
+  /** The listeners told about changes to the food storage and the groceries in it. */
+  private final ModelChangeListeners changeListeners;
 
   /**
    * Constructs a new empty food storage.
@@ -42,7 +52,56 @@ public class FoodStorage {
    * The method initializes an empty map to store grocery objects.
    */
   public FoodStorage() {
-    this.groceries = new HashMap<>();
+    this(new HeapGroceryStore());
+  }
+
+  /**
+   * Constructs a new food storage keeping its groceries in the provided store. The food storage
+   * contains the groceries already in the store.
+   *
+   * <p>
+   * Whenever a grocery in the food storage changes, it is put in the store again, so a store
+   * keeping copies of the groceries, like in a file, can update them.
+   *
+   * @param store the store to keep the groceries in
+   * @throws IllegalArgumentException if the store is null.
+   */
+  public FoodStorage(GroceryStore store) throws IllegalArgumentException {
+    if (store == null) {
+      throw new IllegalArgumentException("Store cannot be null.");
+    }
+    this.groceries = store;
+    this.changeListeners = new ModelChangeListeners();
+    this.changeListeners.add(new ModelChangeListener() {
+      @Override
+      public void batchAdded(Grocery grocery, GroceryBatch batch) {
+        groceries.put(StringUtils.capitalize(grocery.getName()), grocery);
+      }
+
+      @Override
+      public void groceryConsumed(Grocery grocery, double amount) {
+        groceries.put(StringUtils.capitalize(grocery.getName()), grocery);
+      }
+    });
+  }
+
+  /**
+   * Adds a listener to tell about every change to the food storage, and to the groceries in it.
+   *
+   * @param listener the listener to add
+   * @throws IllegalArgumentException if the listener is null.
+   */
+  public void addChangeListener(ModelChangeListener listener) throws IllegalArgumentException {
+    changeListeners.add(listener);
+  }
+
+  /**
+   * Removes a listener added with {@code addChangeListener}.
+   *
+   * @param listener the listener to remove
+   */
+  public void removeChangeListener(ModelChangeListener listener) {
+    changeListeners.remove(listener);
   }
 
   /**
@@ -51,7 +110,26 @@ public class FoodStorage {
    * @return a list of all grocery objects in the food storage.
    */
   public List<Grocery> getAllGroceries() {
-    return new ArrayList<>(groceries.values());
+    final List<Grocery> allGroceries = new ArrayList<>();
+    forEachGrocery(allGroceries::add);
+    return allGroceries;
+  }
+
+  /**
+   * Performs the provided action for each grocery object in the food storage, in no particular
+   * order, without copying the groceries to a list first.
+   *
+   * <p>
+   * The action must not add groceries to or remove groceries from the food storage.
+   *
+   * @param action the action to perform for each grocery object
+   * @throws IllegalArgumentException if the action is null.
+   */
+  public void forEachGrocery(Consumer<? super Grocery> action) throws IllegalArgumentException {
+    if (action == null) {
+      throw new IllegalArgumentException("Action cannot be null.");
+    }
+    groceries.forEach(grocery -> action.accept(attach(grocery)));
   }
 
   /**
@@ -63,7 +141,7 @@ public class FoodStorage {
    * @return a list of all grocery objects in the food storage, sorted alphabetically by name.
    */
   public List<Grocery> getAllGroceriesAlphabetically() {
-    List<Grocery> sortedGroceries = new ArrayList<>(groceries.values());
+    List<Grocery> sortedGroceries = getAllGroceries();
     sortedGroceries.sort(Comparator.comparing(Grocery::getName));
     return sortedGroceries;
   }
@@ -77,7 +155,7 @@ public class FoodStorage {
    * @return a list of all grocery objects in the food storage, sorted by expiration date.
    */
   public List<Grocery> getAllGroceriesByExpirationDate() {
-    List<Grocery> sortedGroceries = new ArrayList<>(groceries.values());
+    List<Grocery> sortedGroceries = getAllGroceries();
     sortedGroceries.sort(Comparator.comparing(grocery -> grocery.getBatches()
         .getFirst().getExpirationDate()));
     return sortedGroceries;
@@ -99,10 +177,25 @@ public class FoodStorage {
     if (name == null || name.isBlank()) {
       throw new IllegalArgumentException(INVALID_NAME_ERROR);
     }
-    if (!groceries.containsKey(StringUtils.capitalize(name))) {
+    final Grocery grocery = groceries.get(StringUtils.capitalize(name));
+    if (grocery == null) {
       throw new IllegalArgumentException(NO_GROCERY_FOUND_ERROR);
     }
-    return groceries.get(StringUtils.capitalize(name));
+    return attach(grocery);
+  }
+
+  /**
+   * Returns whether the food storage has a grocery with the specified name.
+   *
+   * @param name the name of the grocery object, case insensitive
+   * @return true if a grocery with the name exists in the food storage, false otherwise
+   * @throws IllegalArgumentException if the name is null or an empty string.
+   */
+  public boolean containsGrocery(String name) throws IllegalArgumentException {
+    if (name == null || name.isBlank()) {
+      throw new IllegalArgumentException(INVALID_NAME_ERROR);
+    }
+    return groceries.get(StringUtils.capitalize(name)) != null;
   }
 
   /**
@@ -122,9 +215,13 @@ public class FoodStorage {
     if (category == null || category.isBlank()) {
       throw new IllegalArgumentException(INVALID_CATEGORY_ERROR);
     }
-    return groceries.values().stream()
-        .filter(grocery -> grocery.getCategory().equalsIgnoreCase(category))
-        .toList();
+    final List<Grocery> groceriesInCategory = new ArrayList<>();
+    forEachGrocery(grocery -> {
+      if (grocery.getCategory().equalsIgnoreCase(category)) {
+        groceriesInCategory.add(grocery);
+      }
+    });
+    return groceriesInCategory;
   }
 
   /**
@@ -147,9 +244,9 @@ public class FoodStorage {
     if (date == null) {
       throw new IllegalArgumentException(INVALID_EXPIRATION_DATE_ERROR);
     }
-    return groceries.values().stream()
-        .filter(grocery -> grocery.getBatches().getFirst().getExpirationDate().isBefore(date))
-        .toList();
+    final List<Grocery> expiringGroceries = new ArrayList<>();
+    groceries.forEachExpiringBefore(date, grocery -> expiringGroceries.add(attach(grocery)));
+    return expiringGroceries;
   }
 
   /**
@@ -173,9 +270,13 @@ public class FoodStorage {
     if (date == null) {
       throw new IllegalArgumentException(INVALID_EXPIRATION_DATE_ERROR);
     }
-    return groceries.values().stream()
-        .filter(grocery -> grocery.getBatches().getFirst().getExpirationDate().isEqual(date))
-        .toList();
+    final List<Grocery> expiringGroceries = new ArrayList<>();
+    groceries.forEachExpiringBefore(date.plusDays(1), grocery -> {
+      if (grocery.getBatches().getFirst().getExpirationDate().isEqual(date)) {
+        expiringGroceries.add(attach(grocery));
+      }
+    });
+    return expiringGroceries;
   }
 
   /**
@@ -192,10 +293,18 @@ public class FoodStorage {
     if (grocery == null) {
       throw new IllegalArgumentException(NULL_GROCERY_ERROR);
     }
-    if (groceries.containsKey(StringUtils.capitalize(grocery.getName()))) {
-      throw new IllegalArgumentException(GROCERY_EXISTS_ERROR);
+    try (ChangeScope scope = ChangeScope.open()) {
+      synchronized (this) {
+        final String key = StringUtils.capitalize(grocery.getName());
+        if (groceries.get(key) != null) {
+          throw new IllegalArgumentException(GROCERY_EXISTS_ERROR);
+        }
+        grocery.attach(changeListeners, () -> {
+          groceries.put(key, grocery);
+          changeListeners.groceryAdded(grocery);
+        });
+      }
     }
-    groceries.put(StringUtils.capitalize(grocery.getName()), grocery);
   }
 
   /**
@@ -203,7 +312,8 @@ public class FoodStorage {
    *
    * <p>
    * If the grocery object is null, or if the grocery object does not exist in the food storage,
-   * the method throws an {@code IllegalArgumentException}.
+   * the method throws an {@code IllegalArgumentException}. Another grocery object with the same
+   * name, like one added after the grocery object was removed, is not removed.
    *
    * @param grocery the grocery object.
    * @throws IllegalArgumentException if the given grocery object does not exist in the food
@@ -213,16 +323,76 @@ public class FoodStorage {
     if (grocery == null) {
       throw new IllegalArgumentException(NULL_GROCERY_ERROR);
     }
-    if (!groceries.containsKey(StringUtils.capitalize(grocery.getName()))) {
-      throw new IllegalArgumentException(NO_GROCERY_FOUND_ERROR);
+    try (ChangeScope scope = ChangeScope.open()) {
+      synchronized (this) {
+        if (groceries.get(StringUtils.capitalize(grocery.getName())) != grocery
+            || !grocery.detach(() -> removeFromStore(grocery))) {
+          throw new IllegalArgumentException(NO_GROCERY_FOUND_ERROR);
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes the specified object from the food storage, like {@code removeGrocery}, but only if
+   * it is still in the food storage and still has the provided version. A batch added to the
+   * grocery, or an amount consumed from it, after the version was read is therefore never removed
+   * with it.
+   *
+   * @param grocery the grocery object.
+   * @param expectedVersion the version the grocery object must have, as returned by
+   *                        {@code getVersion}
+   * @return true if the grocery object was removed, false if it was not in the food storage or
+   *         had another version
+   * @throws IllegalArgumentException if the grocery object is null.
+   */
+  public boolean removeGroceryIfVersion(Grocery grocery, long expectedVersion)
+      throws IllegalArgumentException {
+    if (grocery == null) {
+      throw new IllegalArgumentException(NULL_GROCERY_ERROR);
+    }
+    try (ChangeScope scope = ChangeScope.open()) {
+      synchronized (this) {
+        return groceries.get(StringUtils.capitalize(grocery.getName())) == grocery
+            && grocery.detachIfVersion(expectedVersion, () -> removeFromStore(grocery));
+      }
     }
-    groceries.remove(grocery.getName());
   }
 
   /**
    * Removes all grocery objects from the food storage.
    */
   public void removeAllGroceries() {
-    groceries.clear();
+    try (ChangeScope scope = ChangeScope.open()) {
+      synchronized (this) {
+        // Each grocery is removed after the changes made to it before, which add it to the store.
+        final List<Grocery> removed = new ArrayList<>();
+        groceries.forEach(removed::add);
+        removed.forEach(grocery -> grocery.detach(() -> {}));
+        groceries.clear();
+        changeListeners.allGroceriesRemoved();
+      }
+    }
+  }
+
+  /**
+   * Removes a grocery from the store and tells the listeners. Run by the grocery as its removal is
+   * reported, after the changes made to it before, so none of them puts it in the store again.
+   */
+  private void removeFromStore(Grocery grocery) {
+    groceries.remove(StringUtils.capitalize(grocery.getName()));
+    changeListeners.groceryRemoved(grocery);
+  }
+
+  /**
+   * Gives a grocery from the store the listeners of the food storage, as a store that reads its
+   * groceries from somewhere else returns new grocery objects.
+   *
+   * @param grocery the grocery from the store
+   * @return the same grocery
+   */
+  private Grocery attach(Grocery grocery) {
+    grocery.attachIfPresent(changeListeners);
+    return grocery;
   }
 }
\ No newline at end of file
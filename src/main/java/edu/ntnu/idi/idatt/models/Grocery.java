@@ -1,9 +1,14 @@
 package edu.ntnu.idi.idatt.models;
 
+import edu.ntnu.idi.idatt.utils.ReadableRenderer;
 import edu.ntnu.idi.idatt.utils.StringUtils;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 /**
  * A class representing a grocery item, which is a food item that can be consumed. A grocery item
@@ -16,6 +21,28 @@ import java.util.List;
  * expiration date.
  *
  * <p>
+ * The batches and total amount are kept in an immutable snapshot, which is replaced on every
+ * change, and which carries a version that is one higher than the version of the snapshot it
+ * replaced. Reading the grocery item therefore needs no lock, and a change is made by replacing
+ * the snapshot with a compare-and-set, retried if another change replaced it first.
+ *
+ * <p>
+ * Every snapshot also carries a sequence number, one higher than the snapshot it replaced, and the
+ * listener to tell about it. After replacing the snapshot, a change waits until the changes before
+ * it have told their listener about them, and then tells the listener itself, so the listener sees
+ * the changes in the order they were made without a lock being held while it is told. A listener
+ * that waits for the change to reach the disk does so after it has told the listener, as described
+ * by {@link ChangeScope}, so the next change does not wait for the disk as well. Adding the
+ * grocery item to a food storage and removing it from one are ordered the same way, and no change
+ * is made until they have been reported, so the listener never sees a change after the removal,
+ * and sees the grocery item as it was added. A grocery item removed from its food storage cannot
+ * be changed until it is added to a food storage again, so a change made at the same time as the
+ * removal either comes before it, or fails instead of being lost. A caller that has read the
+ * grocery item, and wants to change it only if nobody else has since, can use
+ * {@code consumeIfVersion} and {@code addBatchIfVersion} with the version it read, and
+ * {@code FoodStorage.removeGroceryIfVersion} to remove it.
+ *
+ * <p>
  * The class implements the {@link FoodItem} interface, which provides methods for getting the name,
  * category, and unit of a food item.
  *
@@ -26,11 +53,28 @@ import java.util.List;
  * @since V0.1
  */
 public class Grocery implements FoodItem {
+  /**
+   * How many times a change spins while waiting for its turn to be reported, before it yields.
+   * With a single processor, the change it waits for cannot finish while it spins.
+   */
+  private static final int SPINS_BEFORE_YIELDING =
+      Runtime.getRuntime().availableProcessors() > 1 ? 100 : 0;
+  /** How many times a change yields while waiting for its turn to be reported, before it parks. */
+  private static final int YIELDS_BEFORE_PARKING = 100;
+
   private String name;
   private String category;
-  private double totalAmount;
   private String unit;
-  private final List<GroceryBatch> batches;
+  /**
+   * The batches, total amount, version and listener of the grocery item, replaced on every
+   * change.
+   */
+  private final AtomicReference<Snapshot> snapshot;
+  /**
+   * The sequence number of the last snapshot whose change was reported. Only written by the thread
+   * reporting the change of the next snapshot.
+   */
+  private volatile long published;
 
   /**
    * Constructs a new grocery object. The method validates the provided parameters and initializes
@@ -64,7 +108,7 @@ public class Grocery implements FoodItem {
       throw new IllegalArgumentException("Batch cannot be null");
     }
 
-    this.batches = new ArrayList<>();
+    this.snapshot = new AtomicReference<>(Snapshot.EMPTY);
 
     setName(name);
     setCategory(category);
@@ -72,6 +116,26 @@ public class Grocery implements FoodItem {
     addBatch(batch);
   }
 
+  /**
+   * Constructs a copy of the provided grocery item, with copies of its batches.
+   *
+   * @param other the grocery item to copy
+   */
+  private Grocery(Grocery other) {
+    final Snapshot current = other.snapshot.get();
+    final List<GroceryBatch> batches = new ArrayList<>(current.batches.size());
+    for (GroceryBatch batch : current.batches) {
+      batches.add(new GroceryBatch(batch.getAmount(), batch.getPricePerUnit(),
+          batch.getExpirationDate()));
+    }
+    this.name = other.name;
+    this.category = other.category;
+    this.unit = other.unit;
+    this.snapshot = new AtomicReference<>(new Snapshot(current.version, 0,
+        Collections.unmodifiableList(batches), current.totalAmount, ModelChangeListener.NONE,
+        false, false));
+  }
+
   /**
    * Returns the name of the grocery item.
    *
@@ -98,7 +162,7 @@ public class Grocery implements FoodItem {
    * @return The amount of the grocery item.
    */
   public double getTotalAmount() {
-    return totalAmount;
+    return snapshot.get().totalAmount;
   }
 
   /**
@@ -111,12 +175,23 @@ public class Grocery implements FoodItem {
   }
 
   /**
-   * Returns a list containing all the grocery batches of the grocery item.
+   * Returns a list containing all the grocery batches of the grocery item. The list cannot be
+   * changed, and is not changed by later changes to the grocery item.
    *
    * @return A list containing of GroceryBatch objects.
    */
   public List<GroceryBatch> getBatches() {
-    return batches;
+    return snapshot.get().batches;
+  }
+
+  /**
+   * Returns the version of the grocery item, which is increased by one every time a batch is
+   * added or the grocery item is consumed.
+   *
+   * @return the version of the grocery item
+   */
+  public long getVersion() {
+    return snapshot.get().version;
   }
 
   /**
@@ -160,34 +235,53 @@ public class Grocery implements FoodItem {
   }
 
   /**
-   * Sets the total amount of the grocery item. If the new amount is less than or equal to zero,
-   * the method throws an {@code IllegalArgumentException}. Otherwise, it sets the total amount of
-   * the grocery item to the provided value.
+   * Adds a new batch to the grocery item. If the batch is null, the method throws an
+   * {@code IllegalArgumentException}. Otherwise, the method adds the batch to the list of batches,
+   * and updates the total amount of the grocery item. The list of batches is sorted by expiration
+   * date when updated.
    *
-   * @param newAmount specifies the new amount of the grocery item. Amount must equal a positive
-   *               number or zero.
-   * @throws IllegalArgumentException if the amount equals zero or a negative number.
+   * @throws IllegalStateException if the grocery item was removed from its food storage.
    */
-  private void setTotalAmount(double newAmount) throws IllegalArgumentException {
-    if (newAmount < 0) {
-      throw new IllegalArgumentException("Amount must be a positive number");
+  public void addBatch(GroceryBatch batch) throws IllegalArgumentException, IllegalStateException {
+    if (batch == null) {
+      throw new IllegalArgumentException("Batch cannot be null");
+    }
+    try (ChangeScope scope = ChangeScope.open()) {
+      final Snapshot changed = update(current -> {
+        checkNotRemoved(current);
+        return current.withBatch(batch);
+      });
+      publish(changed, () -> changed.listener.batchAdded(this, batch));
     }
-    this.totalAmount = newAmount;
   }
 
   /**
-   * Adds a new batch to the grocery item. If the batch is null, the method throws an
-   * {@code IllegalArgumentException}. Otherwise, the method adds the batch to the list of batches,
-   * and updates the total amount of the grocery item. The list of batches is sorted by expiration
-   * date when updated.
+   * Adds a new batch to the grocery item, like {@code addBatch}, but only if the version of the
+   * grocery item is still the provided version.
+   *
+   * @param expectedVersion the version the grocery item must have, as returned by
+   *                        {@code getVersion}
+   * @param batch the batch to add
+   * @return true if the batch was added, false if the grocery item has another version
+   * @throws IllegalArgumentException if the batch is null.
+   * @throws IllegalStateException if the grocery item was removed from its food storage.
    */
-  public void addBatch(GroceryBatch batch) throws IllegalArgumentException {
+  public boolean addBatchIfVersion(long expectedVersion, GroceryBatch batch)
+      throws IllegalArgumentException, IllegalStateException {
     if (batch == null) {
       throw new IllegalArgumentException("Batch cannot be null");
     }
-    batches.add(batch);
-    setTotalAmount(this.totalAmount + batch.getAmount());
-    sortBatches();
+    try (ChangeScope scope = ChangeScope.open()) {
+      final Snapshot changed = update(current -> {
+        checkNotRemoved(current);
+        return current.version == expectedVersion ? current.withBatch(batch) : null;
+      });
+      if (changed == null) {
+        return false;
+      }
+      publish(changed, () -> changed.listener.batchAdded(this, batch));
+      return true;
+    }
   }
 
   /**
@@ -197,72 +291,435 @@ public class Grocery implements FoodItem {
    * equal to the amount of the batch. If the amount to consume is greater than the amount of the
    * batch, the method will remove the batch entirely and update the remaining amount to consume
    * for the next batch. If the amount to consume is less than the amount of the batch, the method
-   * will subtract the amount from the batch.
+   * will replace the batch with a batch holding the rest of its amount.
    *
    * @param amount specifies the amount of the grocery item to consume. Amount must equal a
    *               positive number.
    * @throws IllegalArgumentException if the amount to consume is greater than the total amount of
    *         the grocery item, or if the amount to consume is zero or a negative number.
+   * @throws IllegalStateException if the grocery item was removed from its food storage.
+   */
+  public void consume(double amount) throws IllegalArgumentException, IllegalStateException {
+    if (amount <= 0) {
+      throw new IllegalArgumentException("Amount must be a positive number.");
+    }
+    try (ChangeScope scope = ChangeScope.open()) {
+      final Snapshot changed = update(current -> {
+        checkNotRemoved(current);
+        checkConsumable(current, amount);
+        return current.consumed(amount);
+      });
+      publish(changed, () -> changed.listener.groceryConsumed(this, amount));
+    }
+  }
+
+  /**
+   * Consumes a specified amount of the grocery item, like {@code consume}, but only if the
+   * version of the grocery item is still the provided version.
+   *
+   * @param expectedVersion the version the grocery item must have, as returned by
+   *                        {@code getVersion}
+   * @param amount the amount to consume. Must be a positive number.
+   * @return true if the amount was consumed, false if the grocery item has another version
+   * @throws IllegalArgumentException if the amount is zero or a negative number, or if the
+   *         grocery item has the provided version and the amount is greater than its total amount.
+   * @throws IllegalStateException if the grocery item was removed from its food storage.
    */
-  public void consume(double amount) throws IllegalArgumentException {
+  public boolean consumeIfVersion(long expectedVersion, double amount)
+      throws IllegalArgumentException, IllegalStateException {
     if (amount <= 0) {
       throw new IllegalArgumentException("Amount must be a positive number.");
     }
-    if (amount > this.totalAmount) {
+    try (ChangeScope scope = ChangeScope.open()) {
+      final Snapshot changed = update(current -> {
+        checkNotRemoved(current);
+        if (current.version != expectedVersion) {
+          return null;
+        }
+        checkConsumable(current, amount);
+        return current.consumed(amount);
+      });
+      if (changed == null) {
+        return false;
+      }
+      publish(changed, () -> changed.listener.groceryConsumed(this, amount));
+      return true;
+    }
+  }
+
+  /**
+   * Replaces the snapshot with the one returned by the provided change, retrying with the new
+   * snapshot if another change replaced it first. A snapshot adding or removing the grocery item
+   * is not replaced until its change has been reported, so the listener reads the grocery item as
+   * that change left it.
+   *
+   * @param change returns the next snapshot, or null to leave the snapshot as it is
+   * @return the next snapshot, or null if the change returned null
+   */
+  private Snapshot update(UnaryOperator<Snapshot> change) {
+    while (true) {
+      final Snapshot current = snapshot.get();
+      if (current.barrier && published < current.sequence) {
+        awaitPublished(current.sequence);
+        continue;
+      }
+      final Snapshot next = change.apply(current);
+      if (next == null || snapshot.compareAndSet(current, next)) {
+        return next;
+      }
+    }
+  }
+
+  /**
+   * Reports the change of the provided snapshot, once the changes of the snapshots before it have
+   * been reported. The next change is reported after it, even if the report throws.
+   *
+   * @param changed the snapshot made by the change
+   * @param report tells the listener about the change
+   */
+  private void publish(Snapshot changed, Runnable report) {
+    awaitPublished(changed.sequence - 1);
+    try {
+      report.run();
+    } finally {
+      published = changed.sequence;
+    }
+  }
+
+  /**
+   * Waits until the change of the snapshot with the provided sequence number has been reported,
+   * spinning and then yielding for a while before parking, as the change waited for is usually
+   * only a listener call away.
+   */
+  private void awaitPublished(long sequence) {
+    int waits = 0;
+    while (published < sequence) {
+      if (waits < SPINS_BEFORE_YIELDING) {
+        Thread.onSpinWait();
+      } else if (waits < SPINS_BEFORE_YIELDING + YIELDS_BEFORE_PARKING) {
+        Thread.yield();
+      } else {
+        LockSupport.parkNanos(1_000);
+      }
+      waits++;
+    }
+  }
+
+  /**
+   * Checks that the grocery item was not removed from its food storage in the provided snapshot.
+   */
+  private void checkNotRemoved(Snapshot current) {
+    if (current.removed) {
+      throw new IllegalStateException("The grocery item was removed from the food storage.");
+    }
+  }
+
+  /**
+   * Checks that the provided amount is not greater than the total amount of a snapshot.
+   */
+  private void checkConsumable(Snapshot current, double amount) {
+    if (amount > current.totalAmount) {
       throw new IllegalArgumentException(
           "Amount to consume is greater than the total amount of the grocery item. \nTotal amount: "
-              + this.totalAmount + " " + unit);
+              + current.totalAmount + " " + unit);
     }
+  }
 
-    while (batches.iterator().hasNext()) {
-      GroceryBatch batch = batches.getFirst();
-      if (batch.getAmount() == amount) {
-        batches.remove(batch);
-        setTotalAmount(this.totalAmount - amount);
-        return;
-      } else if (batch.getAmount() < amount) {
-        amount -= batch.getAmount();
-        setTotalAmount(this.totalAmount - batch.getAmount());
-        batches.remove(batch);
+  /**
+   * Returns the price of consuming the provided amount of the grocery item, without consuming it.
+   *
+   * <p>
+   * The amount is taken from the batches in the same order as {@code consume} takes it, starting
+   * with the batch that expires first. The price is the sum of the amount taken from each batch,
+   * multiplied by the price per unit of that batch.
+   *
+   * <p>
+   * The method uses the cumulative amounts and prices of the batches, which are built the first
+   * time they are needed for the current batches. The price is then found with a binary search, in
+   * O(log n) time for n batches.
+   *
+   * @param amount the amount to find the price of. Must be a positive number, not greater than
+   *               the total amount of the grocery item.
+   * @return the price of the amount, in NOK
+   * @throws IllegalArgumentException if the amount is zero or a negative number, or if the amount
+   *         is greater than the total amount of the grocery item.
+   */
+  public double getPriceOf(double amount) throws IllegalArgumentException {
+    if (amount <= 0) {
+      throw new IllegalArgumentException("Amount must be a positive number.");
+    }
+    final Snapshot current = snapshot.get();
+    if (amount > current.totalAmount) {
+      throw new IllegalArgumentException(
+          "Amount is greater than the total amount of the grocery item. \nTotal amount: "
+              + current.totalAmount + " " + unit);
+    }
+    final PriceCurve curve = current.getPriceCurve();
+    final double[] cumulativeAmounts = curve.amounts();
+
+    int low = 0;
+    int high = cumulativeAmounts.length - 1;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (cumulativeAmounts[middle] < amount) {
+        low = middle + 1;
       } else {
-        batch.updateAmount(batch.getAmount() - amount);
-        setTotalAmount(this.totalAmount - amount);
+        high = middle;
+      }
+    }
+    final double amountBefore = low == 0 ? 0 : cumulativeAmounts[low - 1];
+    final double priceBefore = low == 0 ? 0 : curve.prices()[low - 1];
+    return priceBefore + (amount - amountBefore) * current.batches.get(low).getPricePerUnit();
+  }
+
+  /**
+   * Returns a copy of the grocery item, not contained in any food storage. Changing the copy does
+   * not change the grocery item, and the other way around.
+   *
+   * @return the copy
+   */
+  Grocery copy() {
+    return new Grocery(this);
+  }
+
+  /**
+   * Sets the listener to tell about changes to the grocery item, and reports that the grocery item
+   * was added, after the changes made to it before. Called by the food storage when the grocery
+   * item is added to it.
+   *
+   * @param changeListener the listener of the food storage
+   * @param addition adds the grocery item to the store of the food storage, and tells the listener
+   */
+  void attach(ModelChangeListener changeListener, Runnable addition) {
+    final Snapshot changed = update(current -> current.attached(changeListener));
+    publish(changed, addition);
+  }
+
+  /**
+   * Sets the listener to tell about changes to the grocery item, unless the grocery item was
+   * removed from its food storage. Called by the food storage when the grocery item is looked up
+   * in its store, which may return new grocery objects. Does not wait for other changes, as the
+   * store may be locked while it is called.
+   *
+   * @param changeListener the listener of the food storage
+   */
+  void attachIfPresent(ModelChangeListener changeListener) {
+    while (true) {
+      final Snapshot current = snapshot.get();
+      if (current.removed || current.listener == changeListener
+          || snapshot.compareAndSet(current, current.withListener(changeListener))) {
         return;
       }
     }
   }
 
   /**
-   * Sorts the batches of the grocery item by expiration date, in ascending order.
+   * Stops telling the listener about changes to the grocery item, and reports that the grocery
+   * item was removed, after the changes made to it before. Called by the food storage as the
+   * grocery item is removed from it.
+   *
+   * @param removal removes the grocery item from the store of the food storage, and tells the
+   *                listener
+   * @return true if the grocery item was removed, false if it was already removed
+   */
+  boolean detach(Runnable removal) {
+    return detachIf(current -> true, removal);
+  }
+
+  /**
+   * Removes the grocery item like {@code detach}, but only if it still has the provided version.
+   *
+   * @param expectedVersion the version the grocery item must have
+   * @param removal removes the grocery item from the store of the food storage, and tells the
+   *                listener
+   * @return true if the grocery item was removed, false if it was already removed or has another
+   *         version
+   */
+  boolean detachIfVersion(long expectedVersion, Runnable removal) {
+    return detachIf(current -> current.version == expectedVersion, removal);
+  }
+
+  /**
+   * Removes the grocery item if the provided condition holds for its current snapshot.
    */
-  private void sortBatches() {
-    batches.sort(Comparator.comparing(GroceryBatch::getExpirationDate));
+  private boolean detachIf(Predicate<Snapshot> condition, Runnable removal) {
+    final Snapshot changed = update(current -> !current.removed && condition.test(current)
+        ? current.detached() : null);
+    if (changed == null) {
+      return false;
+    }
+    publish(changed, removal);
+    return true;
   }
 
   /**
-   * Returns a reader-friendly string representation of the grocery item.
+   * Returns a reader-friendly string representation of the grocery item, written by a
+   * {@link ReadableRenderer}.
    *
    * @return A string representation of the grocery item. Including name, category, amount, unit,
    *        expiration date, and all batches.
    */
   public String toReadableString() {
-    StringBuilder str = new StringBuilder(String.format("""
-        %s
-        ---------------------------------
-        Category: %s
-        Unit: %s
-        Total amount: %.2f %s
-        Batches:
-        """, name, category, unit, totalAmount, unit));
-
-    for (GroceryBatch batch : batches) {
-      str.append(String.format("""
-          - Amount %.2f %s
-            Price per unit: %.2f NOK
-            Expiration date: %s
-          
-          """, batch.getAmount(), unit, batch.getPricePerUnit(), batch.getExpirationDate()));
-    }
+    final StringBuilder str = new StringBuilder();
+    new ReadableRenderer(str).renderGrocery(this);
     return str.toString();
   }
-}
\ No newline at end of file
+
+  /**
+   * The cumulative amounts and prices of the batches, in the order they are consumed. Element
+   * {@code i} of each array is the total of batch {@code 0} to {@code i}. The two arrays are kept
+   * in one object, so a reader always sees both arrays of the same curve.
+   */
+  private record PriceCurve(double[] amounts, double[] prices) {}
+
+  /**
+   * The batches, total amount and version of a grocery item at one moment, with the listener to
+   * tell about the change that made it. A snapshot is never changed, nor are the batches in it, so
+   * it can be read by any thread without a lock. The cumulative amounts and prices of the batches
+   * are built the first time they are needed, and belong to the snapshot, so they are never read
+   * for other batches than they were built from.
+   */
+  private static final class Snapshot {
+    private static final Snapshot EMPTY =
+        new Snapshot(0, 0, List.of(), 0, ModelChangeListener.NONE, false, false);
+
+    private final long version;
+    /** The order the change that made the snapshot is reported in. */
+    private final long sequence;
+    private final List<GroceryBatch> batches;
+    private final double totalAmount;
+    private final ModelChangeListener listener;
+    /** Whether the grocery item was removed from its food storage. */
+    private final boolean removed;
+    /** Whether the snapshot adds or removes the grocery item, which no change may overtake. */
+    private final boolean barrier;
+    /**
+     * The price curve of the batches, or null until it is first needed. Two threads may both
+     * build it, which gives the same curve.
+     */
+    private PriceCurve priceCurve;
+
+    private Snapshot(long version, long sequence, List<GroceryBatch> batches, double totalAmount,
+        ModelChangeListener listener, boolean removed, boolean barrier) {
+      this.version = version;
+      this.sequence = sequence;
+      this.batches = batches;
+      this.totalAmount = totalAmount;
+      this.listener = listener;
+      this.removed = removed;
+      this.barrier = barrier;
+    }
+
+    /**
+     * Returns the next snapshot, adding the grocery item to a food storage with the provided
+     * listener.
+     */
+    private Snapshot attached(ModelChangeListener changeListener) {
+      return new Snapshot(version, sequence + 1, batches, totalAmount, changeListener, false, true);
+    }
+
+    /**
+     * Returns the next snapshot, removing the grocery item from its food storage.
+     */
+    private Snapshot detached() {
+      return new Snapshot(version, sequence + 1, batches, totalAmount, ModelChangeListener.NONE,
+          true, true);
+    }
+
+    /**
+     * Returns the same snapshot with another listener, for the changes made after it.
+     */
+    private Snapshot withListener(ModelChangeListener changeListener) {
+      return new Snapshot(version, sequence, batches, totalAmount, changeListener, removed,
+          barrier);
+    }
+
+    /**
+     * Returns the next snapshot, with the provided batch added after the batches that expire
+     * before it, or on the same day.
+     */
+    private Snapshot withBatch(GroceryBatch batch) {
+      final List<GroceryBatch> next = new ArrayList<>(batches.size() + 1);
+      next.addAll(batches);
+      next.add(insertionIndex(batch), batch);
+      return new Snapshot(version + 1, sequence + 1, Collections.unmodifiableList(next),
+          totalAmount + batch.getAmount(), listener, false, false);
+    }
+
+    /**
+     * Returns the next snapshot, with the provided amount consumed from the batches that expire
+     * first. The amount must not be greater than the total amount. A batch that is only partly
+     * consumed is replaced by a new batch, as the batches of this snapshot are never changed.
+     */
+    private Snapshot consumed(double amount) {
+      int consumedBatches = 0;
+      double left = amount;
+      GroceryBatch rest = null;
+      while (consumedBatches < batches.size()) {
+        final GroceryBatch batch = batches.get(consumedBatches);
+        if (batch.getAmount() > left) {
+          rest = new GroceryBatch(batch.getAmount() - left, batch.getPricePerUnit(),
+              batch.getExpirationDate());
+          break;
+        }
+        consumedBatches++;
+        left -= batch.getAmount();
+        if (left == 0) {
+          break;
+        }
+      }
+      final List<GroceryBatch> next = new ArrayList<>(batches.size() - consumedBatches);
+      if (rest != null) {
+        next.add(rest);
+        next.addAll(batches.subList(consumedBatches + 1, batches.size()));
+      } else {
+        next.addAll(batches.subList(consumedBatches, batches.size()));
+      }
+      return new Snapshot(version + 1, sequence + 1, Collections.unmodifiableList(next),
+          Math.max(0, totalAmount - amount), listener, false, false);
+    }
+
+    /**
+     * Returns the cumulative amounts and prices of the batches, in the order they are consumed,
+     * building them the first time they are needed.
+     */
+    private PriceCurve getPriceCurve() {
+      PriceCurve curve = priceCurve;
+      if (curve == null) {
+        final double[] amounts = new double[batches.size()];
+        final double[] prices = new double[batches.size()];
+        double amountSum = 0;
+        double priceSum = 0;
+        for (int i = 0; i < batches.size(); i++) {
+          final GroceryBatch batch = batches.get(i);
+          amountSum += batch.getAmount();
+          priceSum += batch.getAmount() * batch.getPricePerUnit();
+          amounts[i] = amountSum;
+          prices[i] = priceSum;
+        }
+        curve = new PriceCurve(amounts, prices);
+        priceCurve = curve;
+      }
+      return curve;
+    }
+
+    /**
+     * Returns the index to insert a batch at, to keep the batches sorted by expiration date in
+     * ascending order. A batch is inserted after the batches with the same expiration date, so the
+     * batches that were added first are still consumed first.
+     */
+    private int insertionIndex(GroceryBatch batch) {
+      int low = 0;
+      int high = batches.size();
+      while (low < high) {
+        final int middle = (low + high) >>> 1;
+        if (batches.get(middle).getExpirationDate().isAfter(batch.getExpirationDate())) {
+          high = middle;
+        } else {
+          low = middle + 1;
+        }
+      }
+      return low;
+    }
+  }
+}
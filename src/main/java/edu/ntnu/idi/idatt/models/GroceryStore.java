@@ -0,0 +1,81 @@
+package edu.ntnu.idi.idatt.models;
+
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+/**
+ * The place a {@link FoodStorage} keeps its groceries, by their key, which is the name of the
+ * grocery as returned by {@code StringUtils.capitalize}.
+ *
+ * <p>
+ * By default, a food storage keeps its groceries in a map on the heap. A food storage constructed
+ * with another store, like one keeping the groceries in a file, can hold more groceries than fit
+ * in memory. The food storage calls {@code put} again whenever a grocery in it changes, so a store
+ * keeping copies of the groceries can update them.
+ *
+ * <p>
+ * A store that reads the groceries from somewhere else should return the same grocery object for
+ * a key for as long as that object is in use, so changes made to it are not lost. A store of a
+ * food storage used by several threads must be thread-safe.
+ *
+ * @see FoodStorage#FoodStorage(GroceryStore)
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public interface GroceryStore {
+  /**
+   * Returns the grocery with the provided key.
+   *
+   * @param key the key of the grocery
+   * @return the grocery, or null if the store has no grocery with the key
+   */
+  Grocery get(String key);
+
+  /**
+   * Stores a grocery with the provided key, replacing any grocery already stored with the key.
+   *
+   * @param key the key of the grocery
+   * @param grocery the grocery to store
+   */
+  void put(String key, Grocery grocery);
+
+  /**
+   * Removes the grocery with the provided key, if there is one.
+   *
+   * @param key the key of the grocery
+   */
+  void remove(String key);
+
+  /**
+   * Removes all groceries from the store.
+   */
+  void clear();
+
+  /**
+   * Performs the provided action for each grocery in the store, in no particular order.
+   *
+   * @param action the action to perform for each grocery
+   */
+  void forEach(Consumer<? super Grocery> action);
+
+  /**
+   * Performs the provided action for each grocery in the store with a batch that expires before
+   * the provided date, in no particular order. Groceries without batches are skipped.
+   *
+   * <p>
+   * By default, the method checks the first batch of each grocery, as the batches are sorted by
+   * expiration date. A store can override it to skip groceries without reading all of them.
+   *
+   * @param date the date the groceries must expire before
+   * @param action the action to perform for each grocery
+   */
+  default void forEachExpiringBefore(LocalDate date, Consumer<? super Grocery> action) {
+    forEach(grocery -> {
+      if (!grocery.getBatches().isEmpty()
+          && grocery.getBatches().getFirst().getExpirationDate().isBefore(date)) {
+        action.accept(grocery);
+      }
+    });
+  }
+}
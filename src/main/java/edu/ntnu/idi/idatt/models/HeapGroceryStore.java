@@ -0,0 +1,45 @@
+package edu.ntnu.idi.idatt.models;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * The default {@link GroceryStore} of a {@link FoodStorage}, keeping the groceries in a map on
+ * the heap. The map is concurrent, so the groceries can be looked up and walked from several
+ * threads while they are changed.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+final class HeapGroceryStore implements GroceryStore {
+  /**
+   * A map of grocery objects. The key is the name of the grocery, and the value is the grocery
+   * object.
+   */
+  private final ConcurrentHashMap<String, Grocery> groceries = new ConcurrentHashMap<>();
+
+  @Override
+  public Grocery get(String key) {
+    return groceries.get(key);
+  }
+
+  @Override
+  public void put(String key, Grocery grocery) {
+    groceries.put(key, grocery);
+  }
+
+  @Override
+  public void remove(String key) {
+    groceries.remove(key);
+  }
+
+  @Override
+  public void clear() {
+    groceries.clear();
+  }
+
+  @Override
+  public void forEach(Consumer<? super Grocery> action) {
+    groceries.values().forEach(action);
+  }
+}
@@ -0,0 +1,231 @@
+package edu.ntnu.idi.idatt.models;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A registry of many households, each with its own {@link FoodStorage} and {@link Cookbook},
+ * spread over a fixed number of shards to use every core of the machine.
+ *
+ * <p>
+ * Every household belongs to one shard, chosen by the hash of its name, and every shard has a
+ * single thread that runs all operations on its households, one at a time, in the order they were
+ * submitted. The food storage and cook book of a household are therefore only used by one thread,
+ * and need no locks, while the households of different shards are worked on in parallel. A
+ * household is created the first time an operation is submitted for it.
+ *
+ * <p>
+ * The operations waiting on each shard are counted, so an uneven spread of work over the shards
+ * shows up in the {@link ShardMetrics} of the busiest shard.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class HouseholdRegistry implements AutoCloseable {
+  private final Shard[] shards;
+
+  /**
+   * Constructs a new registry with the provided number of shards, each with its own thread.
+   *
+   * @param shardCount the number of shards, usually the number of cores
+   * @throws IllegalArgumentException if the number of shards is not positive.
+   */
+  public HouseholdRegistry(int shardCount) throws IllegalArgumentException {
+    if (shardCount <= 0) {
+      throw new IllegalArgumentException("Number of shards must be positive");
+    }
+    this.shards = new Shard[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new Shard(i);
+    }
+  }
+
+  /**
+   * Submits an operation on a household to the thread of its shard, creating the household if it
+   * does not exist yet. The operation must not keep the food storage or cook book of the
+   * household, nor use them after it returns, as they belong to the thread of the shard.
+   *
+   * @param name the name of the household
+   * @param operation the operation, given the household
+   * @param <T> the type of the result of the operation
+   * @return a future completed with the result of the operation, or with the exception it threw
+   * @throws IllegalArgumentException if the name is null or blank, or the operation is null.
+   * @throws RejectedExecutionException if the registry has been closed.
+   */
+  public <T> CompletableFuture<T> submit(String name, Function<Household, T> operation)
+      throws IllegalArgumentException, RejectedExecutionException {
+    if (name == null || name.isBlank()) {
+      throw new IllegalArgumentException("Name cannot be null or blank");
+    }
+    if (operation == null) {
+      throw new IllegalArgumentException("Operation cannot be null");
+    }
+    return shards[getShardOf(name)].submit(name, operation);
+  }
+
+  /**
+   * Removes a household and all its groceries and recipes, after the operations already submitted
+   * for it have run.
+   *
+   * @param name the name of the household
+   * @return a future completed with true if the household existed, false otherwise
+   * @throws IllegalArgumentException if the name is null or blank.
+   * @throws RejectedExecutionException if the registry has been closed.
+   */
+  public CompletableFuture<Boolean> remove(String name)
+      throws IllegalArgumentException, RejectedExecutionException {
+    if (name == null || name.isBlank()) {
+      throw new IllegalArgumentException("Name cannot be null or blank");
+    }
+    return shards[getShardOf(name)].remove(name);
+  }
+
+  /**
+   * Returns the shard the provided household belongs to.
+   *
+   * @param name the name of the household
+   * @return the number of the shard, from zero
+   */
+  public int getShardOf(String name) {
+    final int hash = name.hashCode();
+    // The high bits are mixed into the low bits, like HashMap does, as the number of shards is
+    // often a power of two, and only the low bits of the hash would then be used.
+    return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+  }
+
+  /**
+   * Returns the number of shards.
+   *
+   * @return the number of shards
+   */
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  /**
+   * Returns the metrics of every shard, in the order of their numbers. The metrics of a shard are
+   * read while it runs, so they are only a close estimate of a single moment.
+   *
+   * @return the metrics of the shards
+   */
+  public List<ShardMetrics> getShardMetrics() {
+    final List<ShardMetrics> metrics = new ArrayList<>(shards.length);
+    for (Shard shard : shards) {
+      metrics.add(shard.getMetrics());
+    }
+    return metrics;
+  }
+
+  /**
+   * Stops accepting operations, and waits for the operations already submitted to run.
+   */
+  @Override
+  public void close() {
+    for (Shard shard : shards) {
+      shard.executor.shutdown();
+    }
+    boolean interrupted = false;
+    for (Shard shard : shards) {
+      while (!shard.executor.isTerminated()) {
+        try {
+          shard.executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * A household, with the food storage and cook book that belong to it.
+   *
+   * @param name the name of the household
+   * @param foodStorage the food storage of the household
+   * @param cookbook the cook book of the household
+   */
+  public record Household(String name, FoodStorage foodStorage, Cookbook cookbook) {}
+
+  /**
+   * The metrics of a shard.
+   *
+   * @param shard the number of the shard
+   * @param households the number of households in the shard
+   * @param queueDepth the number of operations waiting to run
+   * @param peakQueueDepth the largest number of operations that have been waiting at once
+   * @param completedOperations the number of operations that have run
+   */
+  public record ShardMetrics(int shard, int households, int queueDepth, int peakQueueDepth,
+      long completedOperations) {}
+
+  /**
+   * A shard, with its thread and the households that belong to it. The map of households is only
+   * used by the thread of the shard.
+   */
+  private static final class Shard {
+    private final int number;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Household> households = new HashMap<>();
+    private final AtomicInteger peakQueueDepth = new AtomicInteger();
+    private volatile int householdCount;
+
+    private Shard(int number) {
+      this.number = number;
+      this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+          new LinkedBlockingQueue<>(), runnable -> {
+            final Thread thread = new Thread(runnable, "household-shard-" + number);
+            thread.setDaemon(true);
+            return thread;
+          });
+    }
+
+    private <T> CompletableFuture<T> submit(String name, Function<Household, T> operation) {
+      return run(() -> operation.apply(households.computeIfAbsent(name, this::createHousehold)));
+    }
+
+    private CompletableFuture<Boolean> remove(String name) {
+      return run(() -> {
+        final boolean removed = households.remove(name) != null;
+        householdCount = households.size();
+        return removed;
+      });
+    }
+
+    private Household createHousehold(String name) {
+      final Household household = new Household(name, new FoodStorage(), new Cookbook());
+      householdCount = households.size() + 1;
+      return household;
+    }
+
+    private <T> CompletableFuture<T> run(Supplier<T> task) {
+      final CompletableFuture<T> future = new CompletableFuture<>();
+      executor.execute(() -> {
+        try {
+          future.complete(task.get());
+        } catch (Throwable e) {
+          // Caught even if it is an error, so the future is never left waiting.
+          future.completeExceptionally(e);
+        }
+      });
+      peakQueueDepth.accumulateAndGet(executor.getQueue().size(), Math::max);
+      return future;
+    }
+
+    private ShardMetrics getMetrics() {
+      return new ShardMetrics(number, householdCount, executor.getQueue().size(),
+          peakQueueDepth.get(), executor.getCompletedTaskCount());
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package edu.ntnu.idi.idatt.models;
 
+import edu.ntnu.idi.idatt.utils.ReadableRenderer;
 import edu.ntnu.idi.idatt.utils.StringUtils;
 
 /**
@@ -27,7 +28,11 @@ public class Ingredient implements FoodItem {
   private String name;
   private String category;
   private String unit;
-  private double amount;
+  /**
+   * Volatile, so it is read without the lock of the ingredient, but only changed while holding
+   * it, so adding to the amount is atomic with setting it.
+   */
+  private volatile double amount;
 
   /**
    * Constructs a new ingredient with the provided name, category, unit, and amount.
@@ -155,13 +160,27 @@ public class Ingredient implements FoodItem {
    * @param amount the new amount of the ingredient
    * @throws IllegalArgumentException if the amount is less than or equal to zero.
    */
-  public void setAmount(double amount) throws IllegalArgumentException {
+  public synchronized void setAmount(double amount) throws IllegalArgumentException {
     if (amount <= 0) {
       throw new IllegalArgumentException(NON_POSITIVE_AMOUNT_ERROR);
     }
     this.amount = amount;
   }
 
+  /**
+   * Adds to the amount of the ingredient, in one step, so a change made by another thread at the
+   * same time is not lost.
+   *
+   * @param addition the amount to add
+   * @throws IllegalArgumentException if the amount to add is less than or equal to zero.
+   */
+  synchronized void addAmount(double addition) throws IllegalArgumentException {
+    if (addition <= 0) {
+      throw new IllegalArgumentException(NON_POSITIVE_AMOUNT_ERROR);
+    }
+    this.amount += addition;
+  }
+
   /**
    * Returns a user-friendly string representation of the ingredient, in the format:
    * "Name (Category): Amount Unit".
@@ -169,6 +188,8 @@ public class Ingredient implements FoodItem {
    * @return a string representation of the ingredient. Including name, category, amount, and unit.
    */
   public String toReadableString() {
-    return String.format("%s (%s): %.2f %s", name, category, amount, unit);
+    final StringBuilder str = new StringBuilder();
+    new ReadableRenderer(str).renderIngredient(this);
+    return str.toString();
   }
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package edu.ntnu.idi.idatt.models;
+
+/**
+ * A listener that is told about every change to a {@link FoodStorage}, a {@link Cookbook}, and
+ * the groceries and recipes in them.
+ *
+ * <p>
+ * Listeners are added to a food storage or cook book, which passes them on to the groceries and
+ * recipes it contains. Each method is called after the change has been made, on the thread that
+ * made the change, while the lock ordering the changes of the model is still held, so a listener
+ * must return quickly. A listener that has to wait for something, like a file being forced to
+ * disk, hands the wait to {@link ChangeScope#afterChanges(Runnable)}, which runs it once the lock
+ * is released. All methods do nothing by default, so a listener only has to override the changes
+ * it is interested in.
+ *
+ * <p>
+ * Changes made directly to a {@link GroceryBatch} or an {@link Ingredient} are not reported, so
+ * they should be made through the grocery or recipe that contains them.
+ *
+ * @see FoodStorage#addChangeListener(ModelChangeListener)
+ * @see Cookbook#addChangeListener(ModelChangeListener)
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public interface ModelChangeListener {
+  /** A listener that ignores all changes. */
+  ModelChangeListener NONE = new ModelChangeListener() {};
+
+  /**
+   * Called after a grocery has been added to a food storage.
+   *
+   * @param grocery the grocery that was added
+   */
+  default void groceryAdded(Grocery grocery) {}
+
+  /**
+   * Called after a grocery has been removed from a food storage.
+   *
+   * @param grocery the grocery that was removed
+   */
+  default void groceryRemoved(Grocery grocery) {}
+
+  /**
+   * Called after all groceries have been removed from a food storage.
+   */
+  default void allGroceriesRemoved() {}
+
+  /**
+   * Called after a batch has been added to a grocery.
+   *
+   * @param grocery the grocery the batch was added to
+   * @param batch the batch that was added
+   */
+  default void batchAdded(Grocery grocery, GroceryBatch batch) {}
+
+  /**
+   * Called after an amount of a grocery has been consumed.
+   *
+   * @param grocery the grocery that was consumed
+   * @param amount the amount that was consumed
+   */
+  default void groceryConsumed(Grocery grocery, double amount) {}
+
+  /**
+   * Called after a recipe has been added to a cook book.
+   *
+   * @param recipe the recipe that was added
+   */
+  default void recipeAdded(Recipe recipe) {}
+
+  /**
+   * Called after a recipe has been removed from a cook book.
+   *
+   * @param recipe the recipe that was removed
+   */
+  default void recipeRemoved(Recipe recipe) {}
+
+  /**
+   * Called after all recipes have been removed from a cook book.
+   */
+  default void allRecipesRemoved() {}
+
+  /**
+   * Called after the recipes in a cook book have been sorted by their current names.
+   */
+  default void recipesSorted() {}
+
+  /**
+   * Called after the name, description, instructions or servings of a recipe have been changed.
+   *
+   * @param recipe the recipe that was changed
+   */
+  default void recipeDetailsChanged(Recipe recipe) {}
+
+  /**
+   * Called after an ingredient has been added to a recipe. If the recipe already had an
+   * ingredient with the same name, the amount was added to that ingredient instead.
+   *
+   * @param recipe the recipe the ingredient was added to
+   * @param ingredient the ingredient that was added
+   */
+  default void ingredientAdded(Recipe recipe, Ingredient ingredient) {}
+
+  /**
+   * Called after an ingredient has been removed from a recipe.
+   *
+   * @param recipe the recipe the ingredient was removed from
+   * @param ingredient the ingredient that was removed
+   */
+  default void ingredientRemoved(Recipe recipe, Ingredient ingredient) {}
+
+  /**
+   * Called after the amount of an ingredient in a recipe has been changed.
+   *
+   * @param recipe the recipe containing the ingredient
+   * @param ingredient the ingredient, with its new amount
+   */
+  default void ingredientAmountChanged(Recipe recipe, Ingredient ingredient) {}
+}
@@ -0,0 +1,107 @@
+package edu.ntnu.idi.idatt.models;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A list of change listeners, which passes every change on to each listener in the order they
+ * were added. Used by {@link FoodStorage} and {@link Cookbook}, and given to the groceries and
+ * recipes they contain as their single listener.
+ *
+ * <p>
+ * Listeners can be added and removed while changes are being reported, as the list is copied on
+ * every change to it.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+final class ModelChangeListeners implements ModelChangeListener {
+  private final List<ModelChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Adds a listener to the end of the list.
+   *
+   * @param listener the listener to add
+   * @throws IllegalArgumentException if the listener is null.
+   */
+  void add(ModelChangeListener listener) throws IllegalArgumentException {
+    if (listener == null) {
+      throw new IllegalArgumentException("Listener cannot be null");
+    }
+    listeners.add(listener);
+  }
+
+  /**
+   * Removes a listener from the list, if it is in the list.
+   *
+   * @param listener the listener to remove
+   */
+  void remove(ModelChangeListener listener) {
+    listeners.remove(listener);
+  }
+
+  @Override
+  public void groceryAdded(Grocery grocery) {
+    listeners.forEach(listener -> listener.groceryAdded(grocery));
+  }
+
+  @Override
+  public void groceryRemoved(Grocery grocery) {
+    listeners.forEach(listener -> listener.groceryRemoved(grocery));
+  }
+
+  @Override
+  public void allGroceriesRemoved() {
+    listeners.forEach(ModelChangeListener::allGroceriesRemoved);
+  }
+
+  @Override
+  public void batchAdded(Grocery grocery, GroceryBatch batch) {
+    listeners.forEach(listener -> listener.batchAdded(grocery, batch));
+  }
+
+  @Override
+  public void groceryConsumed(Grocery grocery, double amount) {
+    listeners.forEach(listener -> listener.groceryConsumed(grocery, amount));
+  }
+
+  @Override
+  public void recipeAdded(Recipe recipe) {
+    listeners.forEach(listener -> listener.recipeAdded(recipe));
+  }
+
+  @Override
+  public void recipeRemoved(Recipe recipe) {
+    listeners.forEach(listener -> listener.recipeRemoved(recipe));
+  }
+
+  @Override
+  public void allRecipesRemoved() {
+    listeners.forEach(ModelChangeListener::allRecipesRemoved);
+  }
+
+  @Override
+  public void recipesSorted() {
+    listeners.forEach(ModelChangeListener::recipesSorted);
+  }
+
+  @Override
+  public void recipeDetailsChanged(Recipe recipe) {
+    listeners.forEach(listener -> listener.recipeDetailsChanged(recipe));
+  }
+
+  @Override
+  public void ingredientAdded(Recipe recipe, Ingredient ingredient) {
+    listeners.forEach(listener -> listener.ingredientAdded(recipe, ingredient));
+  }
+
+  @Override
+  public void ingredientRemoved(Recipe recipe, Ingredient ingredient) {
+    listeners.forEach(listener -> listener.ingredientRemoved(recipe, ingredient));
+  }
+
+  @Override
+  public void ingredientAmountChanged(Recipe recipe, Ingredient ingredient) {
+    listeners.forEach(listener -> listener.ingredientAmountChanged(recipe, ingredient));
+  }
+}
@@ -1,9 +1,15 @@
 package edu.ntnu.idi.idatt.models;
 
+import edu.ntnu.idi.idatt.utils.MinHash;
+import edu.ntnu.idi.idatt.utils.ReadableRenderer;
 import edu.ntnu.idi.idatt.utils.StringUtils;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * A class representing a recipe. A recipe consists of a name, description, instructions,
@@ -14,7 +20,20 @@ import java.util.List;
  * servings of a recipe object. Also provides methods for adding and removing ingredients, and for
  * setting the name, description, instructions, and amount of servings of a recipe.
  *
+ * <p>
+ * The description and instructions are kept in the recipe, until the recipe is added to a cook
+ * book with a {@link RecipeTextStore}. From then on, the recipe only keeps their handles in the
+ * store, and reads them from it when they are asked for.
+ *
+ * <p>
+ * A recipe can be read and edited from several threads at once. Every change is made while
+ * holding the lock of the recipe, and the ingredients are kept in a list copied on every change,
+ * which suits the few ingredients of a recipe, so they can be walked while the recipe is edited.
+ * The description and instructions, or their handles, are kept together in one immutable object,
+ * which is replaced on every change, so they are read without the lock, and never half changed.
+ *
  * @see Ingredient
+ * @see RecipeTextStore
  *
  * @author WilliamHoltsdalen
  * @since 0.2
@@ -26,12 +45,27 @@ public class Recipe {
   private static final String NULL_OR_BLANK_DESCRIPTION = "Description cannot be null or blank";
   private static final String NULL_OR_BLANK_INSTRUCTIONS = "Instructions cannot be null or blank";
   private static final String NON_POSITIVE_SERVINGS_ERROR = "Servings must be a positive number";
+  private static final Comparator<Ingredient> BY_NAME = Comparator.comparing(Ingredient::getName);
 
-  private String name;
-  private String description;
-  private String instructions;
+  private volatile String name;
+  /** The description and instructions, or their handles in a text store. */
+  private volatile Texts texts;
   private final List<Ingredient> ingredients;
-  private int servings;
+  /** Unmodifiable live view of {@code ingredients}, handed out by {@code getIngredients}. */
+  private final List<Ingredient> ingredientsView;
+  /**
+   * A map of the ingredients in the recipe. The key is the lower case name of the ingredient, and
+   * the value is the ingredient object.
+   */
+  private final Map<String, Ingredient> ingredientsByName;
+  /**
+   * The MinHash signature of the names of the ingredients. Computed when first needed, and
+   * cleared when an ingredient is added or removed.
+   */
+  private volatile int[] ingredientSignature;
+  private volatile int servings;
+  /** The listener told about changes to the recipe, set by the cook book containing it. */
+  private volatile ModelChangeListener changeListener = ModelChangeListener.NONE;
 
   /**
    * Constructs a new recipe with the provided name, description, instructions, and number of
@@ -67,14 +101,36 @@ public class Recipe {
       throw new IllegalArgumentException(NON_POSITIVE_SERVINGS_ERROR);
     }
 
-    this.ingredients = new ArrayList<>();
+    this.ingredients = new CopyOnWriteArrayList<>();
+    this.ingredientsView = Collections.unmodifiableList(ingredients);
+    this.ingredientsByName = new ConcurrentHashMap<>();
+    this.texts = new Texts(description, instructions, null, 0, 0);
 
     setName(name);
-    setDescription(description);
-    setInstructions(instructions);
     setServings(servings);
   }
 
+  /**
+   * Constructs a copy of the provided recipe, with copies of its ingredients. A description and
+   * instructions kept in a text store are not read, as the copy can use the same handles.
+   *
+   * @param other the recipe to copy
+   */
+  private Recipe(Recipe other) {
+    this.ingredients = new CopyOnWriteArrayList<>();
+    this.ingredientsView = Collections.unmodifiableList(ingredients);
+    this.ingredientsByName = new ConcurrentHashMap<>();
+    this.name = other.name;
+    this.texts = other.texts;
+    this.servings = other.servings;
+    for (Ingredient ingredient : other.ingredients) {
+      final Ingredient copy = new Ingredient(ingredient.getName(), ingredient.getCategory(),
+          ingredient.getUnit(), ingredient.getAmount());
+      ingredients.add(copy);
+      ingredientsByName.put(nameKey(copy.getName()), copy);
+    }
+  }
+
   /**
    * Returns the name of the recipe.
    *
@@ -90,7 +146,7 @@ public class Recipe {
    * @return the description of the recipe
    */
   public String getDescription() {
-    return description;
+    return texts.readDescription();
   }
 
   /**
@@ -99,16 +155,20 @@ public class Recipe {
    * @return the instructions for the recipe
    */
   public String getInstructions() {
-    return instructions;
+    return texts.readInstructions();
   }
 
   /**
-   * Returns a list of all ingredients in the recipe.
+   * Returns a list of all ingredients in the recipe, sorted alphabetically by name.
+   *
+   * <p>
+   * The returned list is an unmodifiable live view of the ingredients, meaning no copy is made,
+   * and later changes to the recipe are reflected in the list.
    *
-   * @return a list of all ingredients in the recipe
+   * @return an unmodifiable view of all ingredients in the recipe
    */
   public List<Ingredient> getIngredients() {
-    return ingredients.stream().toList();
+    return ingredientsView;
   }
 
   /**
@@ -129,8 +189,51 @@ public class Recipe {
     if (name == null || name.isBlank()) {
       throw new IllegalArgumentException(NULL_OR_BLANK_NAME);
     }
-    return ingredients.stream().filter(ingredient -> ingredient.getName().equalsIgnoreCase(name))
-        .findFirst().orElseThrow(() -> new IllegalArgumentException(INGREDIENT_NOT_FOUND_ERROR));
+    final Ingredient ingredient = ingredientsByName.get(nameKey(name));
+    if (ingredient == null) {
+      throw new IllegalArgumentException(INGREDIENT_NOT_FOUND_ERROR);
+    }
+    return ingredient;
+  }
+
+  /**
+   * Checks if the recipe contains an ingredient with the provided name, case insensitive.
+   *
+   * @param name the name of the ingredient to look for
+   * @return true if the recipe contains an ingredient with the provided name, false otherwise
+   *         (also if the name is null or an empty string).
+   */
+  public boolean containsIngredient(String name) {
+    if (name == null || name.isBlank()) {
+      return false;
+    }
+    return ingredientsByName.containsKey(nameKey(name));
+  }
+
+  /**
+   * Returns the MinHash signature of the set of ingredient names in the recipe, which can be used
+   * to estimate how similar the ingredients of two recipes are.
+   *
+   * <p>
+   * The signature is computed the first time it is needed, and kept until an ingredient is added
+   * to or removed from the recipe. Changing the amount of an ingredient does not change the
+   * signature. It is computed while holding the monitor of the recipe, so it is never computed
+   * from the ingredients while another thread changes them.
+   *
+   * @return a copy of the signature of the ingredient names
+   * @see MinHash
+   */
+  public int[] getIngredientSignature() {
+    int[] signature = ingredientSignature;
+    if (signature == null) {
+      synchronized (this) {
+        if (ingredientSignature == null) {
+          ingredientSignature = MinHash.signature(ingredientsByName.keySet());
+        }
+        signature = ingredientSignature;
+      }
+    }
+    return signature.clone();
   }
 
   /**
@@ -157,7 +260,12 @@ public class Recipe {
     if (name == null || name.isBlank()) {
       throw new IllegalArgumentException(NULL_OR_BLANK_NAME);
     }
-    this.name = StringUtils.capitalize(name);
+    try (ChangeScope scope = ChangeScope.open()) {
+      synchronized (this) {
+        this.name = StringUtils.capitalize(name);
+        changeListener.recipeDetailsChanged(this);
+      }
+    }
   }
 
   /**
@@ -175,7 +283,12 @@ public class Recipe {
     if (description == null || description.isBlank()) {
       throw new IllegalArgumentException(NULL_OR_BLANK_DESCRIPTION);
     }
-    this.description = description;
+    try (ChangeScope scope = ChangeScope.open()) {
+      synchronized (this) {
+        this.texts = texts.withDescription(description);
+        changeListener.recipeDetailsChanged(this);
+      }
+    }
   }
 
   /**
@@ -193,7 +306,12 @@ public class Recipe {
     if (instructions == null || instructions.isBlank()) {
       throw new IllegalArgumentException(NULL_OR_BLANK_INSTRUCTIONS);
     }
-    this.instructions = instructions;
+    try (ChangeScope scope = ChangeScope.open()) {
+      synchronized (this) {
+        this.texts = texts.withInstructions(instructions);
+        changeListener.recipeDetailsChanged(this);
+      }
+    }
   }
 
   /**
@@ -211,7 +329,12 @@ public class Recipe {
     if (servings <= 0) {
       throw new IllegalArgumentException(NON_POSITIVE_SERVINGS_ERROR);
     }
-    this.servings = servings;
+    try (ChangeScope scope = ChangeScope.open()) {
+      synchronized (this) {
+        this.servings = servings;
+        changeListener.recipeDetailsChanged(this);
+      }
+    }
   }
 
   /**
@@ -231,15 +354,42 @@ public class Recipe {
     if (ingredient == null) {
       throw new IllegalArgumentException(NULL_INGREDIENT_ERROR);
     }
+    try (ChangeScope scope = ChangeScope.open()) {
+      synchronized (this) {
+        final Ingredient existingIngredient = ingredientsByName.get(nameKey(ingredient.getName()));
+        if (existingIngredient != null) {
+          existingIngredient.addAmount(ingredient.getAmount());
+        } else {
+          ingredients.add(insertionIndex(ingredient), ingredient);
+          ingredientsByName.put(nameKey(ingredient.getName()), ingredient);
+          ingredientSignature = null;
+        }
+        changeListener.ingredientAdded(this, ingredient);
+      }
+    }
+  }
 
-    Ingredient existingIngredient = ingredients.stream().filter(i -> i.getName()
-        .equals(ingredient.getName())).findFirst().orElse(null);
-    if (existingIngredient != null) {
-      existingIngredient.setAmount(existingIngredient.getAmount() + ingredient.getAmount());
-      return;
+  /**
+   * Sets the amount of the ingredient with the provided name.
+   *
+   * <p>
+   * Changing the amount through the recipe, instead of on the ingredient itself, makes sure the
+   * change is reported to the listener of the recipe.
+   *
+   * @param name the name of the ingredient, ignoring case
+   * @param amount the new amount of the ingredient
+   * @throws IllegalArgumentException if the recipe does not contain an ingredient with the
+   *         provided name, or if the amount is not a positive number.
+   */
+  public void setIngredientAmount(String name, double amount)
+      throws IllegalArgumentException {
+    try (ChangeScope scope = ChangeScope.open()) {
+      synchronized (this) {
+        final Ingredient ingredient = getIngredient(name);
+        ingredient.setAmount(amount);
+        changeListener.ingredientAmountChanged(this, ingredient);
+      }
     }
-    ingredients.add(ingredient);
-    sortIngredients();
   }
 
   /**
@@ -258,40 +408,122 @@ public class Recipe {
     if (ingredient == null) {
       throw new IllegalArgumentException(NULL_INGREDIENT_ERROR);
     }
-    if (!ingredients.contains(ingredient)) {
-      throw new IllegalArgumentException(INGREDIENT_NOT_FOUND_ERROR);
+    try (ChangeScope scope = ChangeScope.open()) {
+      synchronized (this) {
+        if (ingredientsByName.get(nameKey(ingredient.getName())) != ingredient) {
+          throw new IllegalArgumentException(INGREDIENT_NOT_FOUND_ERROR);
+        }
+        ingredients.remove(ingredient);
+        ingredientsByName.remove(nameKey(ingredient.getName()));
+        ingredientSignature = null;
+        changeListener.ingredientRemoved(this, ingredient);
+      }
+    }
+  }
+
+  /**
+   * Sets the listener to tell about changes to the recipe. Called by the cook book when the
+   * recipe is added to or removed from it.
+   *
+   * @param changeListener the listener, or {@code ModelChangeListener.NONE} to stop reporting
+   *                       changes
+   */
+  void setChangeListener(ModelChangeListener changeListener) {
+    this.changeListener = changeListener;
+  }
+
+  /**
+   * Returns a copy of the recipe, not contained in any cook book. Changing the copy does not
+   * change the recipe, and the other way around.
+   *
+   * @return the copy
+   */
+  synchronized Recipe copy() {
+    return new Recipe(this);
+  }
+
+  /**
+   * Moves the description and instructions of the recipe into the provided store, so the recipe
+   * only keeps their handles. Called by the cook book when the recipe is added to it. Does
+   * nothing if the texts are already kept in the store.
+   *
+   * @param textStore the store to keep the texts in
+   */
+  synchronized void moveTextTo(RecipeTextStore textStore) {
+    if (texts.store() == textStore) {
+      return;
     }
-    ingredients.remove(ingredient);
+    this.texts = new Texts(null, null, textStore, textStore.put(texts.readDescription()),
+        textStore.put(texts.readInstructions()));
   }
 
   /**
-   * Sorts the ingredients in the recipe by amount, in ascending order.
+   * Finds the index where the provided ingredient should be inserted to keep the ingredients
+   * sorted alphabetically by name. Uses a binary search, so the list never has to be re-sorted.
+   *
+   * @param ingredient the ingredient to find the insertion index of
+   * @return the index where the ingredient should be inserted
    */
-  private void sortIngredients() {
-    ingredients.sort(Comparator.comparing(Ingredient::getName));
+  private int insertionIndex(Ingredient ingredient) {
+    final int index = Collections.binarySearch(ingredients, ingredient, BY_NAME);
+    return index < 0 ? -(index + 1) : index;
   }
 
   /**
-   * Returns a user-friendly string representation of the recipe.
+   * Returns the key used for an ingredient name in the map of ingredients, which is the name in
+   * lower case.
+   *
+   * @param name the name of the ingredient
+   * @return the key of the ingredient name
+   */
+  private static String nameKey(String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Returns a user-friendly string representation of the recipe, written by a
+   * {@link ReadableRenderer}.
    *
    * @return a string representation of the recipe. Including name, description, instructions, and
    *         servings. Also includes a list of ingredients, with the details of each ingredient.
    */
   public String toReadableString() {
-    String ingredientsString = ingredients.stream()
-        .map(Ingredient::toReadableString)
-        .reduce("", (acc, ingredient) -> acc + ingredient + "\n");
-
-    return String.format("""
-            Name: %s
-            Description: %s
-            Servings: %d
-            
-            Instructions: 
-            %s
-            
-            Ingredients: 
-            %s
-            """, name, description, servings, instructions, ingredientsString);
+    final StringBuilder str = new StringBuilder();
+    new ReadableRenderer(str).renderRecipe(this);
+    return str.toString();
+  }
+
+
+  /**
+   * The description and instructions of a recipe, either kept here, or as handles in a text
+   * store. Never changed, so a recipe replaces the whole object when one of them changes.
+   *
+   * @param description the description, or null if it is kept in the store
+   * @param instructions the instructions, or null if they are kept in the store
+   * @param store the store keeping the texts, or null if they are kept here
+   * @param descriptionHandle the handle of the description in the store
+   * @param instructionsHandle the handle of the instructions in the store
+   */
+  private record Texts(String description, String instructions, RecipeTextStore store,
+      long descriptionHandle, long instructionsHandle) {
+    private String readDescription() {
+      return store == null ? description : store.get(descriptionHandle);
+    }
+
+    private String readInstructions() {
+      return store == null ? instructions : store.get(instructionsHandle);
+    }
+
+    private Texts withDescription(String newDescription) {
+      return store == null
+          ? new Texts(newDescription, instructions, null, 0, 0)
+          : new Texts(null, null, store, store.put(newDescription), instructionsHandle);
+    }
+
+    private Texts withInstructions(String newInstructions) {
+      return store == null
+          ? new Texts(description, newInstructions, null, 0, 0)
+          : new Texts(null, null, store, descriptionHandle, store.put(newInstructions));
+    }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,40 @@
+package edu.ntnu.idi.idatt.models;
+
+/**
+ * A place a {@link Cookbook} can keep the descriptions and instructions of its recipes, instead
+ * of keeping them in memory.
+ *
+ * <p>
+ * The descriptions and instructions of recipes are often long, but only needed when a recipe is
+ * shown. A cook book constructed with a text store moves the texts of every recipe added to it
+ * into the store, and the recipe only keeps the handles returned by {@code put}. The texts are
+ * read from the store again when {@code getDescription}, {@code getInstructions} or
+ * {@code toReadableString} is called on the recipe.
+ *
+ * <p>
+ * A text is never changed once stored. Setting the description or instructions of a recipe
+ * stores the new text, and the recipe then uses its handle instead. A recipe removed from the
+ * cook book keeps reading its texts from the store.
+ *
+ * @see Cookbook#Cookbook(RecipeTextStore)
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public interface RecipeTextStore {
+  /**
+   * Stores a text.
+   *
+   * @param text the text to store
+   * @return the handle to read the text with
+   */
+  long put(String text);
+
+  /**
+   * Returns the text stored with the provided handle.
+   *
+   * @param handle the handle returned by {@code put}
+   * @return the text
+   */
+  String get(long handle);
+}
@@ -0,0 +1,385 @@
+package edu.ntnu.idi.idatt.models;
+
+import edu.ntnu.idi.idatt.utils.PersistentSortedMap;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A history of the changes made to a {@link FoodStorage} and a {@link Cookbook}, which can be
+ * undone and redone.
+ *
+ * <p>
+ * The history keeps every version of the groceries and recipes in a {@link PersistentSortedMap},
+ * holding copies of the groceries and recipes as they were. A change only copies the grocery or
+ * recipe that changed and the path to it in the map, and every other part of the map is shared
+ * with the version before, so a version costs memory in proportion to what changed, and never a
+ * copy of all the data. The history listens to the food storage and cook book, and keeps the
+ * latest version up to date as they change.
+ *
+ * <p>
+ * A call to {@code commit} ends a change the user can undo, like one choice in a menu. Undoing
+ * or redoing a change switches the history to the version before or after it by swapping the
+ * roots of the maps, which takes constant time, no matter how large the change was. The food
+ * storage and cook book are then brought in line with the version, by walking only the parts of
+ * the maps that differ between the two versions, and replacing the groceries and recipes found
+ * there. The versions kept are limited by an estimate of their memory use, and the oldest
+ * versions are dropped first when it exceeds the budget.
+ *
+ * <p>
+ * The history is not thread-safe, and should only be used by the thread making the changes.
+ *
+ * @see PersistentSortedMap
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class UndoHistory {
+  /** The memory budget of a history, in bytes, if no other budget is chosen. */
+  public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+  /** The estimated memory use of a copy of a grocery without batches, in bytes. */
+  private static final long GROCERY_BYTES = 96;
+  /** The estimated memory use of a copy of a batch, in bytes. */
+  private static final long BATCH_BYTES = 64;
+  /** The estimated memory use of a copy of a recipe without ingredients, in bytes. */
+  private static final long RECIPE_BYTES = 160;
+  /** The estimated memory use of a copy of an ingredient, in bytes. */
+  private static final long INGREDIENT_BYTES = 96;
+  /** The estimated memory use of a node of a map, in bytes. */
+  private static final long NODE_BYTES = 48;
+
+  private final FoodStorage foodStorage;
+  private final Cookbook cookbook;
+  private final long memoryBudget;
+  /** The versions before the current version, the most recent first. */
+  private final Deque<Version> undoVersions = new ArrayDeque<>();
+  /** The versions after the current version, the nearest first. */
+  private final Deque<Version> redoVersions = new ArrayDeque<>();
+  /** The ids the recipes in the cook book are kept by in the history. */
+  private final Map<Recipe, Long> recipeIds = new IdentityHashMap<>();
+  private final Map<Long, Recipe> recipesById = new HashMap<>();
+  /** The copies of the groceries in the food storage, by name. */
+  private PersistentSortedMap<String, Grocery> groceries = PersistentSortedMap.empty();
+  /** The copies of the recipes in the cook book, by id. */
+  private PersistentSortedMap<Long, Recipe> recipes = PersistentSortedMap.empty();
+  private Version current;
+  private long retainedBytes;
+  private long nextRecipeId;
+  private boolean changed;
+  private boolean restoring;
+
+  /**
+   * Constructs a new history of the provided food storage and cook book, starting with the
+   * groceries and recipes they contain now.
+   *
+   * @param foodStorage the food storage to record the changes of
+   * @param cookbook the cook book to record the changes of
+   * @param memoryBudget the largest estimated memory use of the versions kept, in bytes
+   * @throws IllegalArgumentException if the food storage or cook book is null, or if the memory
+   *         budget is negative.
+   */
+  public UndoHistory(FoodStorage foodStorage, Cookbook cookbook, long memoryBudget)
+      throws IllegalArgumentException {
+    if (foodStorage == null || cookbook == null) {
+      throw new IllegalArgumentException("Food storage and cookbook cannot be null");
+    }
+    if (memoryBudget < 0) {
+      throw new IllegalArgumentException("Memory budget cannot be negative");
+    }
+    this.foodStorage = foodStorage;
+    this.cookbook = cookbook;
+    this.memoryBudget = memoryBudget;
+
+    foodStorage.forEachGrocery(grocery ->
+        groceries = groceries.put(grocery.getName(), grocery.copy()));
+    cookbook.getRecipes().forEach(this::recipeAdded);
+    this.current = new Version(groceries, recipes, 0);
+
+    final ModelChangeListener listener = new ModelChangeListener() {
+      @Override
+      public void groceryAdded(Grocery grocery) {
+        groceryChanged(grocery);
+      }
+
+      @Override
+      public void groceryRemoved(Grocery grocery) {
+        if (!restoring) {
+          groceries = groceries.remove(grocery.getName());
+          changed = true;
+        }
+      }
+
+      @Override
+      public void allGroceriesRemoved() {
+        if (!restoring) {
+          groceries = PersistentSortedMap.empty();
+          changed = true;
+        }
+      }
+
+      @Override
+      public void batchAdded(Grocery grocery, GroceryBatch batch) {
+        groceryChanged(grocery);
+      }
+
+      @Override
+      public void groceryConsumed(Grocery grocery, double amount) {
+        groceryChanged(grocery);
+      }
+
+      @Override
+      public void recipeAdded(Recipe recipe) {
+        if (!restoring) {
+          UndoHistory.this.recipeAdded(recipe);
+          changed = true;
+        }
+      }
+
+      @Override
+      public void recipeRemoved(Recipe recipe) {
+        final Long id = recipeIds.get(recipe);
+        if (!restoring && id != null) {
+          recipeIds.remove(recipe);
+          recipesById.remove(id);
+          recipes = recipes.remove(id);
+          changed = true;
+        }
+      }
+
+      @Override
+      public void allRecipesRemoved() {
+        if (!restoring) {
+          recipeIds.clear();
+          recipesById.clear();
+          recipes = PersistentSortedMap.empty();
+          changed = true;
+        }
+      }
+
+      @Override
+      public void recipeDetailsChanged(Recipe recipe) {
+        recipeChanged(recipe);
+      }
+
+      @Override
+      public void ingredientAdded(Recipe recipe, Ingredient ingredient) {
+        recipeChanged(recipe);
+      }
+
+      @Override
+      public void ingredientRemoved(Recipe recipe, Ingredient ingredient) {
+        recipeChanged(recipe);
+      }
+
+      @Override
+      public void ingredientAmountChanged(Recipe recipe, Ingredient ingredient) {
+        recipeChanged(recipe);
+      }
+    };
+    foodStorage.addChangeListener(listener);
+    cookbook.addChangeListener(listener);
+  }
+
+  /**
+   * Ends the change made since the last commit, so it can be undone on its own. Any changes that
+   * were undone are then dropped, and can no longer be redone. Does nothing if nothing has
+   * changed since the last commit.
+   *
+   * @return true if a change was committed, false if nothing had changed
+   */
+  public boolean commit() {
+    if (!changed) {
+      return false;
+    }
+    final Version version = new Version(groceries, recipes, 0);
+    redoVersions.forEach(redone -> retainedBytes -= redone.bytes());
+    redoVersions.clear();
+    push(undoVersions, version);
+    current = version;
+    changed = false;
+    trim();
+    return true;
+  }
+
+  /**
+   * Undoes the last change, committing any change not yet committed first.
+   *
+   * @return true if a change was undone, false if there was nothing to undo
+   */
+  public boolean undo() {
+    commit();
+    final Version target = undoVersions.poll();
+    if (target == null) {
+      return false;
+    }
+    retainedBytes -= target.bytes();
+    push(redoVersions, target);
+    restore(target);
+    return true;
+  }
+
+  /**
+   * Redoes the last change that was undone.
+   *
+   * @return true if a change was redone, false if there was nothing to redo
+   */
+  public boolean redo() {
+    if (changed) {
+      return false;
+    }
+    final Version target = redoVersions.poll();
+    if (target == null) {
+      return false;
+    }
+    retainedBytes -= target.bytes();
+    push(undoVersions, target);
+    restore(target);
+    return true;
+  }
+
+  /**
+   * Returns the number of changes that can be undone.
+   *
+   * @return the number of changes to undo
+   */
+  public int getUndoCount() {
+    return undoVersions.size() + (changed ? 1 : 0);
+  }
+
+  /**
+   * Returns the number of changes that can be redone.
+   *
+   * @return the number of changes to redo, which is zero if anything changed since the last undo
+   */
+  public int getRedoCount() {
+    return changed ? 0 : redoVersions.size();
+  }
+
+  /**
+   * Returns the estimated memory use of the versions that can be undone or redone to, in bytes.
+   *
+   * @return the estimated memory use
+   */
+  public long getRetainedBytes() {
+    return retainedBytes;
+  }
+
+  private void groceryChanged(Grocery grocery) {
+    if (!restoring) {
+      groceries = groceries.put(grocery.getName(), grocery.copy());
+      changed = true;
+    }
+  }
+
+  private void recipeChanged(Recipe recipe) {
+    final Long id = recipeIds.get(recipe);
+    if (!restoring && id != null) {
+      recipes = recipes.put(id, recipe.copy());
+      changed = true;
+    }
+  }
+
+  private void recipeAdded(Recipe recipe) {
+    final long id = nextRecipeId++;
+    recipeIds.put(recipe, id);
+    recipesById.put(id, recipe);
+    recipes = recipes.put(id, recipe.copy());
+  }
+
+  /**
+   * Switches the history to the provided version, and replaces the groceries and recipes that
+   * differ from it in the food storage and cook book. The changes are not recorded as new
+   * changes.
+   */
+  private void restore(Version target) {
+    restoring = true;
+    try {
+      groceries.forEachDifference(target.groceries(), (name, grocery, targetGrocery) -> {
+        if (grocery != null) {
+          foodStorage.removeGrocery(foodStorage.getGroceryByName(name));
+        }
+        if (targetGrocery != null) {
+          foodStorage.addGrocery(targetGrocery.copy());
+        }
+      });
+      recipes.forEachDifference(target.recipes(), (id, recipe, targetRecipe) -> {
+        if (recipe != null) {
+          cookbook.removeRecipe(recipesById.get(id));
+          recipeIds.remove(recipesById.remove(id));
+        }
+        if (targetRecipe != null) {
+          final Recipe restored = targetRecipe.copy();
+          recipeIds.put(restored, id);
+          recipesById.put(id, restored);
+          cookbook.addRecipe(restored);
+        }
+      });
+    } finally {
+      restoring = false;
+    }
+    groceries = target.groceries();
+    recipes = target.recipes();
+    current = target;
+  }
+
+  /**
+   * Pushes the current version onto a stack of versions, with the estimated memory it uses in
+   * addition to the version that is switched to.
+   */
+  private void push(Deque<Version> stack, Version next) {
+    final Version version = new Version(current.groceries(), current.recipes(),
+        estimateBytes(current, next));
+    stack.push(version);
+    retainedBytes += version.bytes();
+  }
+
+  /**
+   * Drops the oldest versions that can be undone to, until the estimated memory use of the kept
+   * versions is within the budget. Only called when a change is committed, as undoing and redoing
+   * only move versions between the two stacks.
+   */
+  private void trim() {
+    while (retainedBytes > memoryBudget && !undoVersions.isEmpty()) {
+      retainedBytes -= undoVersions.removeLast().bytes();
+    }
+  }
+
+  /**
+   * Estimates the memory used by a version in addition to another version, from the groceries
+   * and recipes it holds that differ from the other version, and the nodes on the paths to them.
+   */
+  private static long estimateBytes(Version version, Version other) {
+    final long[] bytes = new long[1];
+    final int[] differences = new int[1];
+    version.groceries().forEachDifference(other.groceries(), (name, grocery, otherGrocery) -> {
+      differences[0]++;
+      if (grocery != null) {
+        bytes[0] += GROCERY_BYTES + BATCH_BYTES * grocery.getBatches().size();
+      }
+    });
+    version.recipes().forEachDifference(other.recipes(), (id, recipe, otherRecipe) -> {
+      differences[0]++;
+      if (recipe != null) {
+        bytes[0] += RECIPE_BYTES + INGREDIENT_BYTES * recipe.getIngredients().size();
+      }
+    });
+    if (differences[0] == 0) {
+      return 0;
+    }
+    // The paths of many changes share their top nodes, so each change is counted with the
+    // nodes below the point where the paths of the changes split.
+    final long size = Math.max(1, version.groceries().size() + version.recipes().size());
+    final long pathNodes = 1 + Long.SIZE
+        - Long.numberOfLeadingZeros(Math.max(1, size / differences[0]));
+    return bytes[0] + NODE_BYTES * pathNodes * differences[0];
+  }
+
+  /**
+   * A version of the groceries and recipes. A version kept to undo or redo to has the estimated
+   * memory it uses in addition to the version it was switched away from.
+   */
+  private record Version(PersistentSortedMap<String, Grocery> groceries,
+      PersistentSortedMap<Long, Recipe> recipes, long bytes) {}
+}
@@ -0,0 +1,115 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of blocks read from the table files of a {@link LsmGroceryStore}, holding at most a
+ * fixed number of bytes. When the cache is full, the block that was used longest ago is evicted.
+ *
+ * <p>
+ * A block is identified by the id of its table and its index in the table, packed into a long.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+final class BlockCache {
+  private final long capacityBytes;
+  /** The blocks, in the order they were last used, with the least recently used first. */
+  private final LinkedHashMap<Long, byte[]> blocks;
+  private long sizeBytes;
+  private long hits;
+  private long misses;
+
+  /**
+   * Constructs an empty block cache.
+   *
+   * @param capacityBytes the largest number of bytes of blocks to hold
+   */
+  BlockCache(long capacityBytes) {
+    this.capacityBytes = capacityBytes;
+    this.blocks = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Returns the key of a block.
+   *
+   * @param tableId the id of the table the block is in
+   * @param blockIndex the index of the block in the table
+   * @return the key of the block
+   */
+  static long key(int tableId, int blockIndex) {
+    return (long) tableId << 32 | blockIndex & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Returns the block with the provided key, and marks it as the most recently used.
+   *
+   * @param key the key of the block
+   * @return the block, or null if it is not in the cache
+   */
+  synchronized byte[] get(long key) {
+    final byte[] block = blocks.get(key);
+    if (block == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return block;
+  }
+
+  /**
+   * Adds a block to the cache, evicting the least recently used blocks until it fits. A block
+   * larger than the whole cache is not added.
+   *
+   * @param key the key of the block
+   * @param block the block
+   */
+  synchronized void put(long key, byte[] block) {
+    if (block.length > capacityBytes) {
+      return;
+    }
+    final byte[] previous = blocks.put(key, block);
+    sizeBytes += block.length - (previous == null ? 0 : previous.length);
+    final Iterator<byte[]> eldest = blocks.values().iterator();
+    while (sizeBytes > capacityBytes) {
+      sizeBytes -= eldest.next().length;
+      eldest.remove();
+    }
+  }
+
+  /**
+   * Removes all blocks of a table, when the table has been deleted.
+   *
+   * @param tableId the id of the table
+   */
+  synchronized void invalidate(int tableId) {
+    final Iterator<Map.Entry<Long, byte[]>> entries = blocks.entrySet().iterator();
+    while (entries.hasNext()) {
+      final Map.Entry<Long, byte[]> entry = entries.next();
+      if ((int) (entry.getKey() >>> 32) == tableId) {
+        sizeBytes -= entry.getValue().length;
+        entries.remove();
+      }
+    }
+  }
+
+  /**
+   * Returns how many times a block was found in the cache.
+   *
+   * @return the number of cache hits
+   */
+  synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Returns how many times a block was not found in the cache, and had to be read from the file.
+   *
+   * @return the number of cache misses
+   */
+  synchronized long getMisses() {
+    return misses;
+  }
+}
@@ -0,0 +1,156 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Helpers for parsing numbers and dates straight from the bytes of a file, without creating a
+ * string first.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+final class ByteParsers {
+  /** Powers of ten that can be represented exactly as a double. */
+  private static final double[] EXACT_POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+  /** The largest integer that can be represented exactly as a double. */
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  /** Private constructor to prevent instantiation, as this is a utility class. */
+  private ByteParsers() {}
+
+  /**
+   * Parses a decimal number.
+   *
+   * <p>
+   * Plain decimal numbers whose digits fit exactly in a double, which covers amounts and prices,
+   * are parsed directly from the bytes, and give the same result as {@code Double.parseDouble}.
+   * Other numbers, like numbers with an exponent, are passed on to {@code Double.parseDouble}.
+   *
+   * @param bytes the array containing the number
+   * @param start the index of the first byte of the number
+   * @param end the index after the last byte of the number
+   * @return the parsed number
+   * @throws NumberFormatException if the bytes are not a finite decimal number.
+   */
+  static double parseDouble(byte[] bytes, int start, int end) throws NumberFormatException {
+    int i = start;
+    boolean negative = false;
+    if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+      negative = bytes[i] == '-';
+      i++;
+    }
+    long mantissa = 0;
+    int fractionDigits = -1;
+    boolean anyDigits = false;
+    for (; i < end; i++) {
+      final byte b = bytes[i];
+      if (b >= '0' && b <= '9') {
+        mantissa = mantissa * 10 + (b - '0');
+        anyDigits = true;
+        if (fractionDigits >= 0) {
+          fractionDigits++;
+        }
+        if (mantissa >= MAX_EXACT_MANTISSA) {
+          return parseDoubleSlowly(bytes, start, end);
+        }
+      } else if (b == '.' && fractionDigits < 0) {
+        fractionDigits = 0;
+      } else {
+        return parseDoubleSlowly(bytes, start, end);
+      }
+    }
+    if (!anyDigits) {
+      throw new NumberFormatException("Invalid number: " + decode(bytes, start, end));
+    }
+    if (fractionDigits >= EXACT_POWERS_OF_TEN.length) {
+      return parseDoubleSlowly(bytes, start, end);
+    }
+    final double value = fractionDigits > 0
+        ? mantissa / EXACT_POWERS_OF_TEN[fractionDigits] : mantissa;
+    return negative ? -value : value;
+  }
+
+  /**
+   * Parses a number with {@code Double.parseDouble}, and rejects numbers that are not finite.
+   */
+  private static double parseDoubleSlowly(byte[] bytes, int start, int end)
+      throws NumberFormatException {
+    final String text = decode(bytes, start, end);
+    final double value;
+    try {
+      value = Double.parseDouble(text);
+    } catch (NumberFormatException e) {
+      throw new NumberFormatException("Invalid number: " + text);
+    }
+    if (!Double.isFinite(value)) {
+      throw new NumberFormatException("Invalid number: " + text);
+    }
+    return value;
+  }
+
+  /**
+   * Parses a whole number.
+   *
+   * @param bytes the array containing the number
+   * @param start the index of the first byte of the number
+   * @param end the index after the last byte of the number
+   * @return the parsed number
+   * @throws NumberFormatException if the bytes are not a whole number that fits in an int.
+   */
+  static int parseInt(byte[] bytes, int start, int end) throws NumberFormatException {
+    final double value = parseDouble(bytes, start, end);
+    if (value != Math.rint(value) || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new NumberFormatException("Invalid whole number: " + decode(bytes, start, end));
+    }
+    return (int) value;
+  }
+
+  /**
+   * Parses a date in the format yyyy-mm-dd.
+   *
+   * @param bytes the array containing the date
+   * @param start the index of the first byte of the date
+   * @param end the index after the last byte of the date
+   * @return the parsed date
+   * @throws IllegalArgumentException if the bytes are not a valid date in the format
+   *         yyyy-mm-dd.
+   */
+  static LocalDate parseDate(byte[] bytes, int start, int end) throws IllegalArgumentException {
+    if (end - start != 10 || bytes[start + 4] != '-' || bytes[start + 7] != '-') {
+      throw new IllegalArgumentException("Invalid date: " + decode(bytes, start, end));
+    }
+    try {
+      return LocalDate.of(digits(bytes, start, start + 4), digits(bytes, start + 5, start + 7),
+          digits(bytes, start + 8, end));
+    } catch (DateTimeException | NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid date: " + decode(bytes, start, end));
+    }
+  }
+
+  private static int digits(byte[] bytes, int start, int end) throws NumberFormatException {
+    int value = 0;
+    for (int i = start; i < end; i++) {
+      if (bytes[i] < '0' || bytes[i] > '9') {
+        throw new NumberFormatException();
+      }
+      value = value * 10 + (bytes[i] - '0');
+    }
+    return value;
+  }
+
+  /**
+   * Decodes bytes as a UTF-8 string.
+   *
+   * @param bytes the array containing the string
+   * @param start the index of the first byte of the string
+   * @param end the index after the last byte of the string
+   * @return the decoded string
+   */
+  static String decode(byte[] bytes, int start, int end) {
+    return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,92 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Reads a script of commands, from a file or from a stream like the standard input, where every
+ * line is one command written as a JSON object. The name of the command is the field
+ * {@code command}, and its arguments are the other fields, with the same names as in
+ * {@link JsonMessages}, like {@code {"command": "consume", "name": "Milk", "amount": 0.5}}. Blank
+ * lines are skipped.
+ *
+ * <p>
+ * The lines are read through the buffer of a {@link LineSource} and parsed straight from its
+ * bytes, so a script of any length is read with the memory of a single line.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class CommandScript implements Closeable {
+  private final LineSource lines;
+  private final JsonLineParser parser = new JsonLineParser();
+
+  private CommandScript(LineSource lines) {
+    this.lines = lines;
+  }
+
+  /**
+   * Opens a script file for reading.
+   *
+   * @param path the file to read
+   * @return the script
+   * @throws IOException if the file could not be opened.
+   * @throws IllegalArgumentException if the path is null.
+   */
+  public static CommandScript open(Path path) throws IOException, IllegalArgumentException {
+    if (path == null) {
+      throw new IllegalArgumentException("Path cannot be null");
+    }
+    return new CommandScript(new LineSource(path, false));
+  }
+
+  /**
+   * Reads a script from the provided channel, which is closed with the script.
+   *
+   * @param channel the channel to read, like a channel of the standard input
+   * @return the script
+   * @throws IOException if the channel could not be read.
+   * @throws IllegalArgumentException if the channel is null.
+   */
+  public static CommandScript of(ReadableByteChannel channel)
+      throws IOException, IllegalArgumentException {
+    if (channel == null) {
+      throw new IllegalArgumentException("Channel cannot be null");
+    }
+    return new CommandScript(new LineSource(channel, false));
+  }
+
+  /**
+   * Reads the next command of the script.
+   *
+   * @return the fields of the command, or null at the end of the script
+   * @throws IOException if the script could not be read.
+   * @throws IllegalArgumentException if the line is not a valid JSON object. The line is skipped,
+   *         and the next call reads the line after it.
+   */
+  public Map<String, Object> nextCommand() throws IOException, IllegalArgumentException {
+    while (lines.nextLine()) {
+      if (!lines.isBlank()) {
+        return parser.parseObject(lines.getBuffer(), lines.getLineStart(), lines.getLineEnd());
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the number of the line of the last command read, counting from one.
+   *
+   * @return the line number
+   */
+  public long getLineNumber() {
+    return lines.getLineNumber();
+  }
+
+  @Override
+  public void close() throws IOException {
+    lines.close();
+  }
+}
@@ -0,0 +1,214 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A tokenizer for the rows of a CSV file, which splits a row into fields by recording where each
+ * field starts and ends in the bytes of the row, without copying them.
+ *
+ * <p>
+ * Fields are separated by commas. A field can be quoted with double quotes, to contain commas,
+ * line breaks and quotes written as two double quotes. Whitespace around unquoted fields is
+ * ignored. Fields are read by the name of their column, from the header row of the file. A field
+ * is only decoded into a string or parsed into a number when it is read.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+final class CsvRow {
+  private final Map<String, Integer> columns;
+  private byte[] bytes;
+  private int[] fieldStarts;
+  private int[] fieldEnds;
+  private boolean[] fieldEscaped;
+  private int fieldCount;
+
+  /**
+   * Constructs a new CSV row tokenizer, with the columns named in a header row.
+   *
+   * @param bytes the array containing the header row
+   * @param start the index of the first byte of the header row
+   * @param end the index after the last byte of the header row
+   * @param requiredColumns the names of the columns that must be in the header row
+   * @throws IllegalArgumentException if the header row is missing a required column.
+   */
+  CsvRow(byte[] bytes, int start, int end, List<String> requiredColumns)
+      throws IllegalArgumentException {
+    this.fieldStarts = new int[16];
+    this.fieldEnds = new int[16];
+    this.fieldEscaped = new boolean[16];
+    this.columns = new HashMap<>();
+    tokenize(bytes, start, end);
+    for (int i = 0; i < fieldCount; i++) {
+      columns.putIfAbsent(field(i).strip().toLowerCase(Locale.ROOT), i);
+    }
+    for (String column : requiredColumns) {
+      if (!columns.containsKey(column.toLowerCase(Locale.ROOT))) {
+        throw new IllegalArgumentException("Missing column: " + column);
+      }
+    }
+  }
+
+  /**
+   * Splits a row into fields.
+   *
+   * @param bytes the array containing the row
+   * @param start the index of the first byte of the row
+   * @param end the index after the last byte of the row
+   * @throws IllegalArgumentException if a quoted field is not closed.
+   */
+  void tokenize(byte[] bytes, int start, int end) throws IllegalArgumentException {
+    this.bytes = bytes;
+    fieldCount = 0;
+    int i = start;
+    while (true) {
+      while (i < end && (bytes[i] == ' ' || bytes[i] == '\t')) {
+        i++;
+      }
+      if (i < end && bytes[i] == '"') {
+        final int fieldStart = ++i;
+        boolean escaped = false;
+        while (true) {
+          if (i >= end) {
+            throw new IllegalArgumentException("Quoted field is not closed");
+          }
+          if (bytes[i] == '"') {
+            if (i + 1 < end && bytes[i + 1] == '"') {
+              escaped = true;
+              i += 2;
+              continue;
+            }
+            break;
+          }
+          i++;
+        }
+        addField(fieldStart, i, escaped);
+        i++;
+        while (i < end && bytes[i] != ',') {
+          i++;
+        }
+      } else {
+        final int fieldStart = i;
+        while (i < end && bytes[i] != ',') {
+          i++;
+        }
+        int fieldEnd = i;
+        while (fieldEnd > fieldStart
+            && (bytes[fieldEnd - 1] == ' ' || bytes[fieldEnd - 1] == '\t')) {
+          fieldEnd--;
+        }
+        addField(fieldStart, fieldEnd, false);
+      }
+      if (i >= end) {
+        return;
+      }
+      i++;
+    }
+  }
+
+  private void addField(int start, int end, boolean escaped) {
+    if (fieldCount == fieldStarts.length) {
+      fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+      fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+      fieldEscaped = Arrays.copyOf(fieldEscaped, fieldCount * 2);
+    }
+    fieldStarts[fieldCount] = start;
+    fieldEnds[fieldCount] = end;
+    fieldEscaped[fieldCount] = escaped;
+    fieldCount++;
+  }
+
+  /**
+   * Returns true if the row has a non-empty field in the provided column.
+   *
+   * @param column the name of the column
+   * @return true if the field has a value, false otherwise
+   */
+  boolean has(String column) {
+    final Integer index = columns.get(column.toLowerCase(Locale.ROOT));
+    return index != null && index < fieldCount && fieldEnds[index] > fieldStarts[index];
+  }
+
+  /**
+   * Returns the field in the provided column as a string.
+   *
+   * @param column the name of the column
+   * @return the field, decoded as UTF-8
+   * @throws IllegalArgumentException if the row has no field in the column.
+   */
+  String getString(String column) throws IllegalArgumentException {
+    return field(index(column));
+  }
+
+  /**
+   * Returns the field in the provided column as a decimal number.
+   *
+   * @param column the name of the column
+   * @return the parsed number
+   * @throws IllegalArgumentException if the row has no field in the column, or if the field is
+   *         not a number.
+   */
+  double getDouble(String column) throws IllegalArgumentException {
+    final int index = index(column);
+    return ByteParsers.parseDouble(bytes, fieldStarts[index], fieldEnds[index]);
+  }
+
+  /**
+   * Returns the field in the provided column as a whole number.
+   *
+   * @param column the name of the column
+   * @return the parsed number
+   * @throws IllegalArgumentException if the row has no field in the column, or if the field is
+   *         not a whole number.
+   */
+  int getInt(String column) throws IllegalArgumentException {
+    final int index = index(column);
+    return ByteParsers.parseInt(bytes, fieldStarts[index], fieldEnds[index]);
+  }
+
+  /**
+   * Returns the field in the provided column as a date in the format yyyy-mm-dd.
+   *
+   * @param column the name of the column
+   * @return the parsed date
+   * @throws IllegalArgumentException if the row has no field in the column, or if the field is
+   *         not a valid date.
+   */
+  LocalDate getDate(String column) throws IllegalArgumentException {
+    final int index = index(column);
+    return ByteParsers.parseDate(bytes, fieldStarts[index], fieldEnds[index]);
+  }
+
+  /**
+   * Returns true if the field in the provided column is equal to the provided string, comparing
+   * the bytes of the field without decoding it.
+   *
+   * @param column the name of the column
+   * @param utf8 the UTF-8 bytes of the string to compare with
+   * @return true if the field is equal to the string, false otherwise
+   */
+  boolean fieldEquals(String column, byte[] utf8) {
+    final Integer index = columns.get(column.toLowerCase(Locale.ROOT));
+    if (index == null || index >= fieldCount || fieldEscaped[index]) {
+      return false;
+    }
+    return Arrays.equals(bytes, fieldStarts[index], fieldEnds[index], utf8, 0, utf8.length);
+  }
+
+  private int index(String column) throws IllegalArgumentException {
+    if (!has(column)) {
+      throw new IllegalArgumentException("Missing value for " + column);
+    }
+    return columns.get(column.toLowerCase(Locale.ROOT));
+  }
+
+  private String field(int index) {
+    final String field = ByteParsers.decode(bytes, fieldStarts[index], fieldEnds[index]);
+    return fieldEscaped[index] ? field.replace("\"\"", "\"") : field;
+  }
+}
@@ -0,0 +1,38 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A cursor over the entries of a {@link LsmGroceryStore}, in the order of their keys. An entry
+ * is a key and the bytes stored for it, or {@link SortedTable#TOMBSTONE} if the key was removed.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+interface EntryCursor extends Closeable {
+  /**
+   * Moves the cursor to the next entry.
+   *
+   * @return true if there was a next entry, false if the cursor is past the last entry
+   * @throws IOException if the entry could not be read.
+   */
+  boolean next() throws IOException;
+
+  /**
+   * Returns the key of the current entry.
+   *
+   * @return the key
+   */
+  String key();
+
+  /**
+   * Returns the bytes of the current entry.
+   *
+   * @return the bytes, or {@link SortedTable#TOMBSTONE} if the key was removed
+   */
+  byte[] value();
+
+  @Override
+  default void close() throws IOException {}
+}
@@ -0,0 +1,41 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * The file formats that can be imported by {@link GroceryImporter} and {@link RecipeImporter},
+ * and exported by {@link ReportExporter}.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public enum FileFormat {
+  /** Comma separated values, with a header row naming the columns. */
+  CSV,
+  /** One JSON object on each line. */
+  JSON_LINES;
+
+  /**
+   * Finds the format of a file from its extension. Files ending in {@code .csv} are CSV files,
+   * and files ending in {@code .jsonl}, {@code .ndjson} or {@code .json} are JSON-lines files.
+   *
+   * @param path the file to find the format of
+   * @return the format of the file
+   * @throws IllegalArgumentException if the path is null, or if the extension is not known.
+   */
+  public static FileFormat of(Path path) throws IllegalArgumentException {
+    if (path == null || path.getFileName() == null) {
+      throw new IllegalArgumentException("Path must name a file");
+    }
+    final String fileName = path.getFileName().toString().toLowerCase(Locale.ROOT);
+    if (fileName.endsWith(".csv")) {
+      return CSV;
+    }
+    if (fileName.endsWith(".jsonl") || fileName.endsWith(".ndjson")
+        || fileName.endsWith(".json")) {
+      return JSON_LINES;
+    }
+    throw new IllegalArgumentException("Unknown file format: " + fileName);
+  }
+}
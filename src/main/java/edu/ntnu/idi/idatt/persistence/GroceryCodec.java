@@ -0,0 +1,121 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Encodes a grocery as the bytes stored for it by {@link LsmGroceryStore}, and decodes it again.
+ * The name of the grocery is its key, and is not part of the bytes.
+ *
+ * <p>
+ * The bytes start with the day the first batch expires, as a count of days since 1970-01-01, so
+ * the groceries expiring before a date can be found without decoding the rest. Then follow the
+ * category and unit, as UTF-8 with the length first, and the batches, sorted by expiration date,
+ * with the number of batches first. Each batch is its amount, its price per unit, and the day it
+ * expires.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+final class GroceryCodec {
+  /** The first expiration day stored for a grocery without batches. */
+  static final long NO_EXPIRATION_DAY = Long.MAX_VALUE;
+  private static final int BATCH_SIZE = 24;
+
+  /** Private constructor to prevent instantiation. */
+  private GroceryCodec() {}
+
+  /**
+   * Encodes a grocery.
+   *
+   * @param grocery the grocery to encode
+   * @return the bytes of the grocery
+   */
+  static byte[] encode(Grocery grocery) {
+    final byte[] category = grocery.getCategory().getBytes(StandardCharsets.UTF_8);
+    final byte[] unit = grocery.getUnit().getBytes(StandardCharsets.UTF_8);
+    final List<GroceryBatch> batches = grocery.getBatches();
+    final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + 3 * Integer.BYTES + category.length
+        + unit.length + batches.size() * BATCH_SIZE);
+
+    buffer.putLong(batches.isEmpty()
+        ? NO_EXPIRATION_DAY : batches.getFirst().getExpirationDate().toEpochDay());
+    buffer.putInt(category.length).put(category);
+    buffer.putInt(unit.length).put(unit);
+    buffer.putInt(batches.size());
+    for (GroceryBatch batch : batches) {
+      buffer.putDouble(batch.getAmount());
+      buffer.putDouble(batch.getPricePerUnit());
+      buffer.putLong(batch.getExpirationDate().toEpochDay());
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Returns the day the first batch of an encoded grocery expires, without decoding the rest.
+   *
+   * @param bytes the bytes of the grocery
+   * @return the day the first batch expires, counted from 1970-01-01, or
+   *         {@value #NO_EXPIRATION_DAY} if the grocery has no batches
+   */
+  static long firstExpirationDay(byte[] bytes) {
+    return ByteBuffer.wrap(bytes).getLong(0);
+  }
+
+  /**
+   * Decodes a grocery.
+   *
+   * @param name the name of the grocery, which is its key
+   * @param bytes the bytes of the grocery
+   * @return a new grocery object
+   */
+  static Grocery decode(String name, byte[] bytes) {
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    buffer.getLong();
+    final String category = readString(buffer);
+    final String unit = readString(buffer);
+    final int batchCount = buffer.getInt();
+
+    if (batchCount == 0) {
+      return emptyGrocery(name, category, unit);
+    }
+    final Grocery grocery = new Grocery(name, category, unit, readBatch(buffer));
+    for (int i = 1; i < batchCount; i++) {
+      grocery.addBatch(readBatch(buffer));
+    }
+    return grocery;
+  }
+
+  /**
+   * Creates a grocery without any batches, like a grocery that has been consumed to nothing.
+   *
+   * @param name the name of the grocery
+   * @param category the category of the grocery
+   * @param unit the unit of the grocery
+   * @return a new grocery object without batches
+   */
+  static Grocery emptyGrocery(String name, String category, String unit) {
+    // A grocery cannot be created without a batch, so it is created with a placeholder batch,
+    // which is then consumed.
+    final Grocery grocery = new Grocery(name, category, unit,
+        new GroceryBatch(1, 0, LocalDate.EPOCH));
+    grocery.consume(1);
+    return grocery;
+  }
+
+  private static GroceryBatch readBatch(ByteBuffer buffer) {
+    final double amount = buffer.getDouble();
+    final double pricePerUnit = buffer.getDouble();
+    return new GroceryBatch(amount, pricePerUnit, LocalDate.ofEpochDay(buffer.getLong()));
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    final byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
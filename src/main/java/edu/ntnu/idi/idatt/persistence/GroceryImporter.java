@@ -0,0 +1,106 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class for importing groceries into a {@link FoodStorage} from CSV and JSON-lines files.
+ *
+ * <p>
+ * Every row of the file is one batch of a grocery, with the fields {@code name},
+ * {@code category}, {@code unit}, {@code amount}, {@code pricePerUnit} and
+ * {@code expirationDate}, where the date is written as yyyy-mm-dd. In a CSV file the fields are
+ * the columns of the header row, in any order. In a JSON-lines file they are the fields of the
+ * object on each line, with the amount and price as numbers.
+ *
+ * <p>
+ * If the food storage already has a grocery with the same name, the batch is added to it, as long
+ * as the unit is the same. Otherwise, a new grocery is added. The values are checked by the
+ * constructors of {@link Grocery} and {@link GroceryBatch}, and a row with invalid values is
+ * rejected without stopping the import.
+ *
+ * @see ImportResult
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class GroceryImporter extends RowImporter {
+  private static final List<String> COLUMNS =
+      List.of("name", "category", "unit", "amount", "pricePerUnit", "expirationDate");
+
+  private final FoodStorage foodStorage;
+
+  /**
+   * Constructs a new grocery importer, importing into the provided food storage.
+   *
+   * @param foodStorage the food storage to add the groceries to
+   * @throws IllegalArgumentException if the food storage is null.
+   */
+  public GroceryImporter(FoodStorage foodStorage) throws IllegalArgumentException {
+    if (foodStorage == null) {
+      throw new IllegalArgumentException("Food storage cannot be null");
+    }
+    this.foodStorage = foodStorage;
+  }
+
+  /**
+   * Imports the groceries in the provided file.
+   *
+   * @param path the file to import
+   * @param format the format of the file
+   * @param progressListener the listener to tell about the progress of the import
+   * @return the result of the import
+   * @throws IllegalArgumentException if any of the provided objects are null.
+   * @throws IOException if the file could not be read, or if a CSV file is missing a column.
+   */
+  public ImportResult importGroceries(Path path, FileFormat format,
+      ImportProgressListener progressListener) throws IllegalArgumentException, IOException {
+    return importFile(path, format, progressListener);
+  }
+
+  @Override
+  List<String> requiredCsvColumns() {
+    return COLUMNS;
+  }
+
+  @Override
+  void importCsvRow(CsvRow row, long lineNumber) throws IllegalArgumentException {
+    addBatch(row.getString("name"), row.getString("category"), row.getString("unit"),
+        new GroceryBatch(row.getDouble("amount"), row.getDouble("pricePerUnit"),
+            row.getDate("expirationDate")));
+  }
+
+  @Override
+  void importJsonRow(Map<String, Object> object, long lineNumber)
+      throws IllegalArgumentException {
+    final double amount = getDouble(object, "amount");
+    final double pricePerUnit = getDouble(object, "pricePerUnit");
+    final LocalDate expirationDate = getDate(object, "expirationDate");
+    addBatch(getString(object, "name"), getString(object, "category"),
+        getString(object, "unit"), new GroceryBatch(amount, pricePerUnit, expirationDate));
+  }
+
+  /**
+   * Adds a batch to the grocery with the provided name, or adds a new grocery if the food storage
+   * has no grocery with the name.
+   */
+  private void addBatch(String name, String category, String unit, GroceryBatch batch)
+      throws IllegalArgumentException {
+    if (!foodStorage.containsGrocery(name)) {
+      foodStorage.addGrocery(new Grocery(name, category, unit, batch));
+      return;
+    }
+    final Grocery grocery = foodStorage.getGroceryByName(name);
+    if (!grocery.getUnit().equalsIgnoreCase(unit.strip())) {
+      throw new IllegalArgumentException("Unit " + unit + " does not match the unit "
+          + grocery.getUnit() + " of " + grocery.getName());
+    }
+    grocery.addBatch(batch);
+  }
+}
@@ -0,0 +1,23 @@
+package edu.ntnu.idi.idatt.persistence;
+
+/**
+ * A listener that is told how far an import has come, regularly while the file is read, and once
+ * more when the import is done.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+@FunctionalInterface
+public interface ImportProgressListener {
+  /** A listener that ignores the progress. */
+  ImportProgressListener NONE = (bytesRead, totalBytes, rows) -> { };
+
+  /**
+   * Called with the progress of the import.
+   *
+   * @param bytesRead the number of bytes of the file read so far
+   * @param totalBytes the size of the file, in bytes
+   * @param rows the number of rows read so far
+   */
+  void progress(long bytesRead, long totalBytes, long rows);
+}
@@ -0,0 +1,68 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of importing a file, with the number of rows that were imported and rejected, and
+ * the reasons the first {@value #MAX_REPORTED_ERRORS} rows were rejected.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class ImportResult {
+  /** The largest number of rejected rows that are reported with a reason. */
+  public static final int MAX_REPORTED_ERRORS = 100;
+
+  private long importedRows;
+  private long rejectedRows;
+  private final List<RowError> errors = new ArrayList<>();
+
+  /**
+   * A row that was rejected, and why.
+   *
+   * @param lineNumber the line in the file where the row starts, counting from one
+   * @param message the reason the row was rejected
+   */
+  public record RowError(long lineNumber, String message) {}
+
+  /**
+   * Returns the number of rows that were imported.
+   *
+   * @return the number of imported rows
+   */
+  public long getImportedRows() {
+    return importedRows;
+  }
+
+  /**
+   * Returns the number of rows that were rejected.
+   *
+   * @return the number of rejected rows
+   */
+  public long getRejectedRows() {
+    return rejectedRows;
+  }
+
+  /**
+   * Returns the reasons the first rejected rows were rejected, in the order they appear in the
+   * file.
+   *
+   * @return an unmodifiable list of at most {@value #MAX_REPORTED_ERRORS} row errors
+   */
+  public List<RowError> getErrors() {
+    return Collections.unmodifiableList(errors);
+  }
+
+  void rowImported() {
+    importedRows++;
+  }
+
+  void rowRejected(long lineNumber, String message) {
+    rejectedRows++;
+    if (errors.size() < MAX_REPORTED_ERRORS) {
+      errors.add(new RowError(lineNumber, message));
+    }
+  }
+}
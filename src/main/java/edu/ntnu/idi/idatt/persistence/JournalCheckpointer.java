@@ -0,0 +1,138 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the checkpoints of a {@link MutationJournal}, and deletes the files they replace.
+ *
+ * <p>
+ * A checkpoint is not written from the food storage and cook book in use, which would have to
+ * stop changing while they are read. Instead, the previous checkpoint and the segments written
+ * since are replayed into a new, private food storage and cook book, which are then written as
+ * the new checkpoint. Only segments the journal no longer writes to are replayed, so the
+ * checkpoint never waits for, or blocks, the changes being made at the same time.
+ *
+ * @see JournalFormat
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+final class JournalCheckpointer {
+  /** The size the buffer of records can grow to before it is written to the file, in bytes. */
+  private static final int WRITE_THRESHOLD = 1 << 20;
+
+  /** Private constructor to prevent instantiation. */
+  private JournalCheckpointer() {}
+
+  /**
+   * Writes a checkpoint covering the segments up to and including the provided number, and then
+   * deletes those segments and the previous checkpoint.
+   *
+   * @param directory the directory of the journal
+   * @param lastSegment the number of the last segment to cover, which the journal must no longer
+   *                    write to
+   * @throws IOException if the checkpoint could not be written, or the journal is corrupt.
+   */
+  static void checkpoint(Path directory, long lastSegment) throws IOException {
+    final FoodStorage foodStorage = new FoodStorage();
+    final Cookbook cookbook = new Cookbook();
+    final JournalReplay replay = new JournalReplay(foodStorage, cookbook);
+
+    final List<Path> checkpoints = JournalFormat.listCheckpoints(directory);
+    long firstSegment = 0;
+    if (!checkpoints.isEmpty()) {
+      replay.replayCheckpoint(checkpoints.getLast());
+      firstSegment = JournalFormat.checkpointNumber(checkpoints.getLast()) + 1;
+    }
+    final long from = firstSegment;
+    replay.replay(JournalFormat.listSegments(directory).stream()
+        .filter(segment -> JournalFormat.segmentNumber(segment) >= from
+            && JournalFormat.segmentNumber(segment) <= lastSegment)
+        .toList(), false);
+
+    write(JournalFormat.checkpointPath(directory, lastSegment), foodStorage, cookbook,
+        replay.getRecipesById());
+    deleteCovered(directory, lastSegment);
+  }
+
+  /**
+   * Deletes the segments covered by the checkpoint with the provided number, the checkpoints
+   * before it, and any checkpoint left half-written.
+   *
+   * @param directory the directory of the journal
+   * @param lastSegment the number of the last segment covered by the newest checkpoint
+   * @throws IOException if a file could not be deleted.
+   */
+  static void deleteCovered(Path directory, long lastSegment) throws IOException {
+    for (Path segment : JournalFormat.listSegments(directory)) {
+      if (JournalFormat.segmentNumber(segment) <= lastSegment) {
+        Files.delete(segment);
+      }
+    }
+    for (Path checkpoint : JournalFormat.listCheckpoints(directory)) {
+      if (JournalFormat.checkpointNumber(checkpoint) < lastSegment) {
+        Files.delete(checkpoint);
+      }
+    }
+    Files.deleteIfExists(temporaryPath(JournalFormat.checkpointPath(directory, lastSegment)));
+  }
+
+  /**
+   * Writes a checkpoint file with a record adding each grocery and recipe. The file is written
+   * to a temporary file first, and moved in place once it is on disk.
+   */
+  private static void write(Path path, FoodStorage foodStorage, Cookbook cookbook,
+      Map<Long, Recipe> recipesById) throws IOException {
+    final Map<Recipe, Long> recipeIds = new IdentityHashMap<>();
+    recipesById.forEach((id, recipe) -> recipeIds.put(recipe, id));
+
+    final Path temporaryPath = temporaryPath(path);
+    try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      final ByteBuffer header = ByteBuffer.allocate(JournalFormat.SEGMENT_HEADER_SIZE);
+      header.putInt(JournalFormat.CHECKPOINT_MAGIC).putShort(JournalFormat.FORMAT_VERSION)
+          .putShort((short) 0);
+      header.flip();
+      channel.write(header);
+
+      final JournalEncoder out = new JournalEncoder();
+      for (Grocery grocery : foodStorage.getAllGroceries()) {
+        out.beginRecord(JournalFormat.GROCERY_ADDED);
+        MutationJournal.writeGrocery(out, grocery);
+        out.endRecord();
+        if (out.size() >= WRITE_THRESHOLD) {
+          out.writeTo(channel);
+        }
+      }
+      for (Recipe recipe : cookbook.getRecipes()) {
+        out.beginRecord(JournalFormat.RECIPE_ADDED);
+        MutationJournal.writeRecipe(out, recipeIds.get(recipe), recipe);
+        out.endRecord();
+        if (out.size() >= WRITE_THRESHOLD) {
+          out.writeTo(channel);
+        }
+      }
+      out.writeTo(channel);
+      channel.force(true);
+    }
+    Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static Path temporaryPath(Path path) {
+    return path.resolveSibling(path.getFileName() + ".tmp");
+  }
+}
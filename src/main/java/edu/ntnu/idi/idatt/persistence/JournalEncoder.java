@@ -0,0 +1,124 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A growable buffer of encoded journal records, waiting to be written to a segment file.
+ *
+ * <p>
+ * A record is written by calling {@code beginRecord}, then the methods for each field, and then
+ * {@code endRecord}, which fills in the length and checksum of the record. The class is not
+ * thread-safe, and is only used while holding the lock of the journal, or by the thread writing
+ * the buffer to the file.
+ *
+ * @see JournalFormat
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+final class JournalEncoder {
+  private static final int INITIAL_CAPACITY = 1 << 12;
+
+  private final CRC32 crc = new CRC32();
+  private byte[] buffer = new byte[INITIAL_CAPACITY];
+  private int size;
+  private int recordStart;
+
+  /**
+   * Returns true if the buffer contains no records.
+   *
+   * @return true if the buffer is empty, false otherwise
+   */
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the number of bytes in the buffer.
+   *
+   * @return the number of bytes
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Starts a new record of the provided type, leaving room for the record header.
+   *
+   * @param type the type of the record
+   */
+  void beginRecord(byte type) {
+    recordStart = size;
+    ensureCapacity(JournalFormat.RECORD_HEADER_SIZE + 1);
+    size += JournalFormat.RECORD_HEADER_SIZE;
+    buffer[size++] = type;
+  }
+
+  /**
+   * Ends the current record, by writing its length and checksum into the record header.
+   */
+  void endRecord() {
+    final int bodyStart = recordStart + JournalFormat.RECORD_HEADER_SIZE;
+    crc.reset();
+    crc.update(buffer, bodyStart, size - bodyStart);
+    final ByteBuffer header = ByteBuffer.wrap(buffer, recordStart,
+        JournalFormat.RECORD_HEADER_SIZE);
+    header.putInt(size - bodyStart).putInt((int) crc.getValue());
+  }
+
+  /**
+   * Removes the current record from the buffer, if it could not be completed.
+   */
+  void abortRecord() {
+    size = recordStart;
+  }
+
+  void writeInt(int value) {
+    ensureCapacity(Integer.BYTES);
+    ByteBuffer.wrap(buffer, size, Integer.BYTES).putInt(value);
+    size += Integer.BYTES;
+  }
+
+  void writeLong(long value) {
+    ensureCapacity(Long.BYTES);
+    ByteBuffer.wrap(buffer, size, Long.BYTES).putLong(value);
+    size += Long.BYTES;
+  }
+
+  void writeDouble(double value) {
+    writeLong(Double.doubleToRawLongBits(value));
+  }
+
+  void writeString(String value) {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeInt(bytes.length);
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buffer, size, bytes.length);
+    size += bytes.length;
+  }
+
+  /**
+   * Writes all records in the buffer to the provided channel, and empties the buffer.
+   *
+   * @param channel the channel to write to
+   * @throws IOException if the records could not be written.
+   */
+  void writeTo(WritableByteChannel channel) throws IOException {
+    final ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, size);
+    while (bytes.hasRemaining()) {
+      channel.write(bytes);
+    }
+    size = 0;
+  }
+
+  private void ensureCapacity(int extra) {
+    if (size + extra > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+    }
+  }
+}
@@ -0,0 +1,183 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Constants and helpers describing the files of a {@link MutationJournal}.
+ *
+ * <p>
+ * A journal is a directory of segment files, named {@code journal-<number>.log} with the number
+ * padded to {@value #SEGMENT_NUMBER_DIGITS} digits. Each segment starts with a header of
+ * {@value #SEGMENT_HEADER_SIZE} bytes, followed by records. All numbers are big-endian.
+ *
+ * <pre>
+ * segment header: int magic, short format version, short reserved
+ * record:         int body length, int CRC-32 of the body, body
+ * body:           byte record type, then the fields of the record type
+ * string field:   int length in bytes, UTF-8 bytes
+ * </pre>
+ *
+ * <p>
+ * A checkpoint file, named {@code checkpoint-<number>.log}, holds the state of the food storage
+ * and cook book after the segments up to and including the segment with the same number, as
+ * records adding every grocery and recipe. It has the same header and records as a segment, but
+ * starts with {@link #CHECKPOINT_MAGIC}. The state of a journal is rebuilt by replaying its newest
+ * checkpoint, followed by the segments with higher numbers.
+ *
+ * <p>
+ * Groceries are identified by name. Recipes are identified by an id given to them when they are
+ * added, as several recipes can have the same name.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+final class JournalFormat {
+  /** The first four bytes of every segment file, "FWJL". */
+  static final int MAGIC = 0x46574A4C;
+  /** The first four bytes of every checkpoint file, "FWCK". */
+  static final int CHECKPOINT_MAGIC = 0x4657434B;
+  /** The version of the format written by this version of the application. */
+  static final short FORMAT_VERSION = 1;
+  /** The size of the segment header, in bytes. */
+  static final int SEGMENT_HEADER_SIZE = 8;
+  /** The size of the header of a record, before the body, in bytes. */
+  static final int RECORD_HEADER_SIZE = 8;
+  /** The number of digits in the number of a segment or checkpoint file name. */
+  static final int SEGMENT_NUMBER_DIGITS = 16;
+  private static final String SEGMENT_PREFIX = "journal-";
+  private static final String CHECKPOINT_PREFIX = "checkpoint-";
+  private static final String FILE_SUFFIX = ".log";
+
+  /**
+   * Fields: name, category, unit, int batch count, then per batch amount, price, day. Only a
+   * checkpoint can have a batch count of zero.
+   */
+  static final byte GROCERY_ADDED = 1;
+  /** Fields: name. */
+  static final byte GROCERY_REMOVED = 2;
+  /** No fields. */
+  static final byte ALL_GROCERIES_REMOVED = 3;
+  /** Fields: name, double amount, double price per unit, long expiration day. */
+  static final byte BATCH_ADDED = 4;
+  /** Fields: name, double amount. */
+  static final byte GROCERY_CONSUMED = 5;
+  /**
+   * Fields: long id, name, description, instructions, int servings, int ingredient count, then
+   * per ingredient name, category, unit, double amount.
+   */
+  static final byte RECIPE_ADDED = 6;
+  /** Fields: long id. */
+  static final byte RECIPE_REMOVED = 7;
+  /** No fields. */
+  static final byte ALL_RECIPES_REMOVED = 8;
+  /** No fields. */
+  static final byte RECIPES_SORTED = 9;
+  /** Fields: long id, name, description, instructions, int servings. */
+  static final byte RECIPE_DETAILS_CHANGED = 10;
+  /** Fields: long id, name, category, unit, double amount. */
+  static final byte INGREDIENT_ADDED = 11;
+  /** Fields: long id, name. */
+  static final byte INGREDIENT_REMOVED = 12;
+  /** Fields: long id, name, double amount. */
+  static final byte INGREDIENT_AMOUNT_CHANGED = 13;
+
+  /** Private constructor to prevent instantiation, as this class only holds constants. */
+  private JournalFormat() {}
+
+  /**
+   * Returns the path of the segment file with the provided number.
+   *
+   * @param directory the directory of the journal
+   * @param number the number of the segment
+   * @return the path of the segment file
+   */
+  static Path segmentPath(Path directory, long number) {
+    return directory.resolve(fileName(SEGMENT_PREFIX, number));
+  }
+
+  /**
+   * Returns the path of the checkpoint file covering the segments up to the provided number.
+   *
+   * @param directory the directory of the journal
+   * @param number the number of the last segment covered by the checkpoint
+   * @return the path of the checkpoint file
+   */
+  static Path checkpointPath(Path directory, long number) {
+    return directory.resolve(fileName(CHECKPOINT_PREFIX, number));
+  }
+
+  /**
+   * Returns the number of a segment file, from its name.
+   *
+   * @param segment the path of the segment file
+   * @return the number of the segment, or -1 if the file is not a segment file
+   */
+  static long segmentNumber(Path segment) {
+    return fileNumber(segment, SEGMENT_PREFIX);
+  }
+
+  /**
+   * Returns the number of the last segment covered by a checkpoint file, from its name.
+   *
+   * @param checkpoint the path of the checkpoint file
+   * @return the number of the last segment covered, or -1 if the file is not a checkpoint file
+   */
+  static long checkpointNumber(Path checkpoint) {
+    return fileNumber(checkpoint, CHECKPOINT_PREFIX);
+  }
+
+  /**
+   * Lists the segment files in a journal directory, sorted by number.
+   *
+   * @param directory the directory of the journal
+   * @return the segment files, oldest first
+   * @throws IOException if the directory could not be read.
+   */
+  static List<Path> listSegments(Path directory) throws IOException {
+    return listFiles(directory, SEGMENT_PREFIX);
+  }
+
+  /**
+   * Lists the checkpoint files in a journal directory, sorted by number.
+   *
+   * @param directory the directory of the journal
+   * @return the checkpoint files, oldest first
+   * @throws IOException if the directory could not be read.
+   */
+  static List<Path> listCheckpoints(Path directory) throws IOException {
+    return listFiles(directory, CHECKPOINT_PREFIX);
+  }
+
+  private static String fileName(String prefix, long number) {
+    return String.format("%s%0" + SEGMENT_NUMBER_DIGITS + "d%s", prefix, number, FILE_SUFFIX);
+  }
+
+  private static long fileNumber(Path file, String prefix) {
+    final String fileName = file.getFileName().toString();
+    if (!fileName.matches(prefix + "\\d{" + SEGMENT_NUMBER_DIGITS + "}\\" + FILE_SUFFIX)) {
+      return -1;
+    }
+    return Long.parseLong(fileName.substring(prefix.length(),
+        prefix.length() + SEGMENT_NUMBER_DIGITS));
+  }
+
+  private static List<Path> listFiles(Path directory, String prefix) throws IOException {
+    final List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(directory, prefix + "*" + FILE_SUFFIX)) {
+      for (Path path : stream) {
+        if (fileNumber(path, prefix) >= 0) {
+          files.add(path);
+        }
+      }
+    }
+    files.sort((first, second) -> Long.compare(fileNumber(first, prefix),
+        fileNumber(second, prefix)));
+    return files;
+  }
+}
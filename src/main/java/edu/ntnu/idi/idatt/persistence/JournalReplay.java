@@ -0,0 +1,317 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Replays the records of a journal into a {@link FoodStorage} and a {@link Cookbook}, by making
+ * the same changes to them as the records describe.
+ *
+ * <p>
+ * A crash can leave the last record of the last segment half-written. Such a torn record fails
+ * its length or checksum check, and the last segment is cut off right before it, so new records
+ * can be written after the last complete record. A bad record in any other segment, or in a
+ * checkpoint, means the journal is corrupt, and replaying it fails.
+ *
+ * <p>
+ * A complete record whose change cannot be made, like a consume of a grocery that is not in the
+ * food storage, is skipped and reported by {@code getSkippedRecords}, and the records after it
+ * are still replayed, so one such record never makes the whole journal impossible to open. The
+ * checkpoints skip the same records, so they are gone once a checkpoint covers them.
+ *
+ * @see JournalFormat
+ * @see MutationJournal
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+final class JournalReplay {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final FoodStorage foodStorage;
+  private final Cookbook cookbook;
+  private final Map<Long, Recipe> recipesById;
+  private final CRC32 crc;
+  private final List<String> skippedRecords;
+  private long nextRecipeId;
+  private long recordCount;
+
+  /**
+   * Constructs a new replay into the provided food storage and cook book.
+   *
+   * @param foodStorage the food storage to make the changes to
+   * @param cookbook the cook book to make the changes to
+   */
+  JournalReplay(FoodStorage foodStorage, Cookbook cookbook) {
+    this.foodStorage = foodStorage;
+    this.cookbook = cookbook;
+    this.recipesById = new HashMap<>();
+    this.crc = new CRC32();
+    this.skippedRecords = new ArrayList<>();
+  }
+
+  /**
+   * Returns the recipes in the cook book, by the id the journal gave them.
+   *
+   * @return a map of recipe ids to recipes
+   */
+  Map<Long, Recipe> getRecipesById() {
+    return recipesById;
+  }
+
+  /**
+   * Returns the id to give the next recipe added to the cook book.
+   *
+   * @return the next recipe id
+   */
+  long getNextRecipeId() {
+    return nextRecipeId;
+  }
+
+  /**
+   * Returns a description of every record skipped so far, as its change could not be made.
+   *
+   * @return the descriptions, in the order the records were replayed
+   */
+  List<String> getSkippedRecords() {
+    return List.copyOf(skippedRecords);
+  }
+
+  /**
+   * Returns the number of records replayed so far.
+   *
+   * @return the number of records
+   */
+  long getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Replays the records of a checkpoint, which should be replayed before any segment.
+   *
+   * @param checkpoint the checkpoint file
+   * @throws IOException if the checkpoint could not be read, or is corrupt.
+   */
+  void replayCheckpoint(Path checkpoint) throws IOException {
+    replaySegment(checkpoint, JournalFormat.CHECKPOINT_MAGIC, false);
+  }
+
+  /**
+   * Replays the provided segments, in order.
+   *
+   * @param segments the segment files to replay, oldest first
+   * @param lastMayBeTorn true if the last segment is the one the journal was writing to, which
+   *                      may end with a torn record
+   * @throws IOException if a segment could not be read, or is corrupt.
+   */
+  void replay(List<Path> segments, boolean lastMayBeTorn) throws IOException {
+    for (int i = 0; i < segments.size(); i++) {
+      replaySegment(segments.get(i), JournalFormat.MAGIC,
+          lastMayBeTorn && i == segments.size() - 1);
+    }
+  }
+
+  /**
+   * Replays the records in one segment or checkpoint file.
+   *
+   * @param segment the segment file
+   * @param magic the magic number the file must start with
+   * @param last true if this is the last segment of the journal, which may end with a torn record
+   * @throws IOException if the segment could not be read, or is corrupt.
+   */
+  private void replaySegment(Path segment, int magic, boolean last) throws IOException {
+    final long fileSize = Files.size(segment);
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(segment), BUFFER_SIZE))) {
+      try {
+        if (in.readInt() != magic) {
+          throw new IOException(segment + " is not a journal segment");
+        }
+        final short version = in.readShort();
+        if (version != JournalFormat.FORMAT_VERSION) {
+          throw new IOException("Unsupported journal version: " + version);
+        }
+        in.readShort();
+      } catch (EOFException e) {
+        if (!last) {
+          throw new IOException(segment + " is corrupt", e);
+        }
+        Files.delete(segment);
+        return;
+      }
+
+      long position = JournalFormat.SEGMENT_HEADER_SIZE;
+      while (position < fileSize) {
+        final ByteBuffer body = readRecord(in, fileSize - position);
+        if (body == null) {
+          if (!last) {
+            throw new IOException(segment + " is corrupt at offset " + position);
+          }
+          truncate(segment, position);
+          return;
+        }
+        try {
+          apply(body);
+        } catch (RuntimeException e) {
+          skippedRecords.add("Record at offset " + position + " in " + segment.getFileName()
+              + " was skipped: " + e.getMessage());
+        }
+        recordCount++;
+        position += JournalFormat.RECORD_HEADER_SIZE + body.limit();
+      }
+    }
+  }
+
+  /**
+   * Reads the next record from a segment.
+   *
+   * @param in the stream of the segment, positioned at the start of a record
+   * @param remaining the number of bytes left in the segment
+   * @return the body of the record, or null if the record is torn
+   * @throws IOException if the segment could not be read.
+   */
+  private ByteBuffer readRecord(DataInputStream in, long remaining) throws IOException {
+    if (remaining < JournalFormat.RECORD_HEADER_SIZE + 1) {
+      return null;
+    }
+    final int length = in.readInt();
+    final int checksum = in.readInt();
+    if (length < 1 || length > remaining - JournalFormat.RECORD_HEADER_SIZE) {
+      return null;
+    }
+    final byte[] body = new byte[length];
+    in.readFully(body);
+    crc.reset();
+    crc.update(body);
+    if ((int) crc.getValue() != checksum) {
+      return null;
+    }
+    return ByteBuffer.wrap(body);
+  }
+
+  /**
+   * Cuts off a segment file at the provided position, removing a torn record at its end.
+   */
+  private static void truncate(Path segment, long position) throws IOException {
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.truncate(position);
+      channel.force(true);
+    }
+  }
+
+  /**
+   * Makes the change described by a record to the food storage or cook book.
+   *
+   * @param body the body of the record
+   * @throws IllegalArgumentException if the change could not be made.
+   */
+  private void apply(ByteBuffer body) throws IllegalArgumentException {
+    final byte type = body.get();
+    switch (type) {
+      case JournalFormat.GROCERY_ADDED -> {
+        final String name = readString(body);
+        final String category = readString(body);
+        final String unit = readString(body);
+        final int batchCount = body.getInt();
+        final Grocery grocery = batchCount == 0
+            ? GroceryCodec.emptyGrocery(name, category, unit)
+            : new Grocery(name, category, unit, readBatch(body));
+        for (int i = 1; i < batchCount; i++) {
+          grocery.addBatch(readBatch(body));
+        }
+        foodStorage.addGrocery(grocery);
+      }
+      case JournalFormat.GROCERY_REMOVED ->
+          foodStorage.removeGrocery(foodStorage.getGroceryByName(readString(body)));
+      case JournalFormat.ALL_GROCERIES_REMOVED -> foodStorage.removeAllGroceries();
+      case JournalFormat.BATCH_ADDED ->
+          foodStorage.getGroceryByName(readString(body)).addBatch(readBatch(body));
+      case JournalFormat.GROCERY_CONSUMED ->
+          foodStorage.getGroceryByName(readString(body)).consume(body.getDouble());
+      case JournalFormat.RECIPE_ADDED -> {
+        final long id = body.getLong();
+        final Recipe recipe = new Recipe(readString(body), readString(body), readString(body),
+            body.getInt());
+        final int ingredientCount = body.getInt();
+        for (int i = 0; i < ingredientCount; i++) {
+          recipe.addIngredient(readIngredient(body));
+        }
+        cookbook.addRecipe(recipe);
+        recipesById.put(id, recipe);
+        nextRecipeId = Math.max(nextRecipeId, id + 1);
+      }
+      case JournalFormat.RECIPE_REMOVED -> cookbook.removeRecipe(removeRecipe(body.getLong()));
+      case JournalFormat.ALL_RECIPES_REMOVED -> {
+        cookbook.removeAllRecipes();
+        recipesById.clear();
+      }
+      case JournalFormat.RECIPES_SORTED -> cookbook.sortRecipes();
+      case JournalFormat.RECIPE_DETAILS_CHANGED -> {
+        final Recipe recipe = recipe(body.getLong());
+        recipe.setName(readString(body));
+        recipe.setDescription(readString(body));
+        recipe.setInstructions(readString(body));
+        recipe.setServings(body.getInt());
+      }
+      case JournalFormat.INGREDIENT_ADDED ->
+          recipe(body.getLong()).addIngredient(readIngredient(body));
+      case JournalFormat.INGREDIENT_REMOVED -> {
+        final Recipe recipe = recipe(body.getLong());
+        recipe.removeIngredient(recipe.getIngredient(readString(body)));
+      }
+      case JournalFormat.INGREDIENT_AMOUNT_CHANGED ->
+          recipe(body.getLong()).setIngredientAmount(readString(body), body.getDouble());
+      default -> throw new IllegalArgumentException("Unknown record type: " + type);
+    }
+  }
+
+  private Recipe recipe(long id) throws IllegalArgumentException {
+    final Recipe recipe = recipesById.get(id);
+    if (recipe == null) {
+      throw new IllegalArgumentException("Unknown recipe id: " + id);
+    }
+    return recipe;
+  }
+
+  private Recipe removeRecipe(long id) throws IllegalArgumentException {
+    final Recipe recipe = recipe(id);
+    recipesById.remove(id);
+    return recipe;
+  }
+
+  private static GroceryBatch readBatch(ByteBuffer body) {
+    return new GroceryBatch(body.getDouble(), body.getDouble(),
+        LocalDate.ofEpochDay(body.getLong()));
+  }
+
+  private static Ingredient readIngredient(ByteBuffer body) {
+    return new Ingredient(readString(body), readString(body), readString(body),
+        body.getDouble());
+  }
+
+  private static String readString(ByteBuffer body) {
+    final byte[] bytes = new byte[body.getInt()];
+    body.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
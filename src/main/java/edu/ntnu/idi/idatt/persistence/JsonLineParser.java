@@ -0,0 +1,217 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A parser for the lines of a JSON-lines file, where every line is a JSON object.
+ *
+ * <p>
+ * The parser reads the bytes of a line directly, without decoding the line into a string first.
+ * Objects become maps, arrays become lists, strings become strings, numbers become doubles, and
+ * {@code true}, {@code false} and {@code null} become booleans and null. Numbers are parsed
+ * straight from the bytes, and strings without escapes are decoded in one step.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+final class JsonLineParser {
+  private static final int MAX_DEPTH = 32;
+
+  private byte[] bytes;
+  private int position;
+  private int end;
+
+  /**
+   * Parses a line containing a single JSON object.
+   *
+   * @param bytes the array containing the line
+   * @param start the index of the first byte of the line
+   * @param end the index after the last byte of the line
+   * @return the fields of the object
+   * @throws IllegalArgumentException if the line is not a valid JSON object.
+   */
+  Map<String, Object> parseObject(byte[] bytes, int start, int end)
+      throws IllegalArgumentException {
+    this.bytes = bytes;
+    this.position = start;
+    this.end = end;
+    skipWhitespace();
+    if (position >= end || bytes[position] != '{') {
+      throw error("Expected an object");
+    }
+    final Map<String, Object> object = readObject(0);
+    skipWhitespace();
+    if (position != end) {
+      throw error("Unexpected content after the object");
+    }
+    return object;
+  }
+
+  private Object readValue(int depth) {
+    skipWhitespace();
+    if (position >= end) {
+      throw error("Expected a value");
+    }
+    if (depth > MAX_DEPTH) {
+      throw error("Too deeply nested");
+    }
+    return switch (bytes[position]) {
+      case '{' -> readObject(depth + 1);
+      case '[' -> readArray(depth + 1);
+      case '"' -> readString();
+      case 't' -> readLiteral("true", Boolean.TRUE);
+      case 'f' -> readLiteral("false", Boolean.FALSE);
+      case 'n' -> readLiteral("null", null);
+      default -> readNumber();
+    };
+  }
+
+  private Map<String, Object> readObject(int depth) {
+    final Map<String, Object> object = new HashMap<>();
+    position++;
+    skipWhitespace();
+    if (position < end && bytes[position] == '}') {
+      position++;
+      return object;
+    }
+    while (true) {
+      skipWhitespace();
+      if (position >= end || bytes[position] != '"') {
+        throw error("Expected a field name");
+      }
+      final String name = readString();
+      skipWhitespace();
+      expect(':');
+      object.put(name, readValue(depth));
+      skipWhitespace();
+      if (position < end && bytes[position] == ',') {
+        position++;
+      } else {
+        expect('}');
+        return object;
+      }
+    }
+  }
+
+  private List<Object> readArray(int depth) {
+    final List<Object> array = new ArrayList<>();
+    position++;
+    skipWhitespace();
+    if (position < end && bytes[position] == ']') {
+      position++;
+      return array;
+    }
+    while (true) {
+      array.add(readValue(depth));
+      skipWhitespace();
+      if (position < end && bytes[position] == ',') {
+        position++;
+      } else {
+        expect(']');
+        return array;
+      }
+    }
+  }
+
+  private String readString() {
+    final int start = ++position;
+    while (position < end && bytes[position] != '"' && bytes[position] != '\\') {
+      position++;
+    }
+    if (position < end && bytes[position] == '"') {
+      return ByteParsers.decode(bytes, start, position++);
+    }
+
+    final StringBuilder string = new StringBuilder(ByteParsers.decode(bytes, start, position));
+    while (true) {
+      if (position >= end) {
+        throw error("String is not closed");
+      }
+      final byte b = bytes[position];
+      if (b == '"') {
+        position++;
+        return string.toString();
+      }
+      if (b != '\\') {
+        final int runStart = position;
+        while (position < end && bytes[position] != '"' && bytes[position] != '\\') {
+          position++;
+        }
+        string.append(ByteParsers.decode(bytes, runStart, position));
+        continue;
+      }
+      if (position + 1 >= end) {
+        throw error("String is not closed");
+      }
+      final byte escape = bytes[position + 1];
+      position += 2;
+      switch (escape) {
+        case '"' -> string.append('"');
+        case '\\' -> string.append('\\');
+        case '/' -> string.append('/');
+        case 'b' -> string.append('\b');
+        case 'f' -> string.append('\f');
+        case 'n' -> string.append('\n');
+        case 'r' -> string.append('\r');
+        case 't' -> string.append('\t');
+        case 'u' -> {
+          if (position + 4 > end) {
+            throw error("Invalid unicode escape");
+          }
+          try {
+            string.append((char) Integer.parseInt(ByteParsers.decode(bytes, position,
+                position + 4), 16));
+          } catch (NumberFormatException e) {
+            throw error("Invalid unicode escape");
+          }
+          position += 4;
+        }
+        default -> throw error("Invalid escape");
+      }
+    }
+  }
+
+  private Object readLiteral(String literal, Object value) {
+    for (int i = 0; i < literal.length(); i++) {
+      if (position + i >= end || bytes[position + i] != literal.charAt(i)) {
+        throw error("Invalid value");
+      }
+    }
+    position += literal.length();
+    return value;
+  }
+
+  private Double readNumber() {
+    final int start = position;
+    while (position < end && (Character.isDigit(bytes[position]) || bytes[position] == '-'
+        || bytes[position] == '+' || bytes[position] == '.' || bytes[position] == 'e'
+        || bytes[position] == 'E')) {
+      position++;
+    }
+    if (start == position) {
+      throw error("Invalid value");
+    }
+    return ByteParsers.parseDouble(bytes, start, position);
+  }
+
+  private void expect(char expected) {
+    if (position >= end || bytes[position] != expected) {
+      throw error("Expected '" + expected + "'");
+    }
+    position++;
+  }
+
+  private void skipWhitespace() {
+    while (position < end && (bytes[position] == ' ' || bytes[position] == '\t'
+        || bytes[position] == '\r' || bytes[position] == '\n')) {
+      position++;
+    }
+  }
+
+  private IllegalArgumentException error(String message) {
+    return new IllegalArgumentException("Invalid JSON: " + message);
+  }
+}
@@ -0,0 +1,274 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class for reading groceries and recipes from single JSON objects, and writing them as JSON,
+ * for messages sent to and from other programs, like the requests and responses of an HTTP API.
+ *
+ * <p>
+ * The fields are the same as in the JSON-lines files read by {@link GroceryImporter} and
+ * {@link RecipeImporter}. A grocery batch has the fields {@code amount}, {@code pricePerUnit} and
+ * {@code expirationDate}, and a grocery has the fields {@code name}, {@code category} and
+ * {@code unit} in addition, when it is read. A written grocery has the fields {@code name},
+ * {@code category}, {@code unit}, {@code totalAmount} and {@code batches}. A recipe has the fields
+ * {@code name}, {@code description}, {@code instructions}, {@code servings} and
+ * {@code ingredients}, where the ingredients are objects with the fields {@code name},
+ * {@code category}, {@code unit} and {@code amount}.
+ *
+ * @see JsonLineParser
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class JsonMessages {
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private JsonMessages() {}
+
+  /**
+   * Parses a message containing a single JSON object, encoded as UTF-8.
+   *
+   * @param bytes the message
+   * @return the fields of the object
+   * @throws IllegalArgumentException if the message is not a valid JSON object.
+   */
+  public static Map<String, Object> parseObject(byte[] bytes) throws IllegalArgumentException {
+    if (bytes == null) {
+      throw new IllegalArgumentException("Message cannot be null");
+    }
+    return new JsonLineParser().parseObject(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Returns the grocery described by a JSON object, with a single batch.
+   *
+   * @param object the fields of the grocery and its batch
+   * @return the grocery
+   * @throws IllegalArgumentException if a field is missing or invalid.
+   */
+  public static Grocery groceryOf(Map<String, Object> object) throws IllegalArgumentException {
+    return new Grocery(RowImporter.getString(object, "name"),
+        RowImporter.getString(object, "category"), RowImporter.getString(object, "unit"),
+        batchOf(object));
+  }
+
+  /**
+   * Returns the grocery batch described by a JSON object.
+   *
+   * @param object the fields of the batch
+   * @return the grocery batch
+   * @throws IllegalArgumentException if a field is missing or invalid.
+   */
+  public static GroceryBatch batchOf(Map<String, Object> object) throws IllegalArgumentException {
+    return new GroceryBatch(RowImporter.getDouble(object, "amount"),
+        RowImporter.getDouble(object, "pricePerUnit"),
+        RowImporter.getDate(object, "expirationDate"));
+  }
+
+  /**
+   * Returns the recipe described by a JSON object, with its ingredients.
+   *
+   * @param object the fields of the recipe
+   * @return the recipe
+   * @throws IllegalArgumentException if a field is missing or invalid, or if an ingredient is
+   *         invalid.
+   */
+  public static Recipe recipeOf(Map<String, Object> object) throws IllegalArgumentException {
+    final Recipe recipe = new Recipe(RowImporter.getString(object, "name"),
+        RowImporter.getString(object, "description"),
+        RowImporter.getString(object, "instructions"), RowImporter.getInt(object, "servings"));
+    final Object ingredients = object.getOrDefault("ingredients", List.of());
+    if (!(ingredients instanceof List<?> ingredientList)) {
+      throw new IllegalArgumentException("Ingredients must be an array");
+    }
+    for (Object element : ingredientList) {
+      if (!(element instanceof Map<?, ?> ingredient)) {
+        throw new IllegalArgumentException("Ingredient must be an object");
+      }
+      @SuppressWarnings("unchecked")
+      final Map<String, Object> fields = (Map<String, Object>) ingredient;
+      recipe.addIngredient(new Ingredient(RowImporter.getString(fields, "name"),
+          RowImporter.getString(fields, "category"), RowImporter.getString(fields, "unit"),
+          RowImporter.getDouble(fields, "amount")));
+    }
+    return recipe;
+  }
+
+  /**
+   * Returns a number field of a JSON object.
+   *
+   * @param object the fields of the object
+   * @param field the name of the field
+   * @return the number
+   * @throws IllegalArgumentException if the field is missing or not a number.
+   */
+  public static double getNumber(Map<String, Object> object, String field)
+      throws IllegalArgumentException {
+    return RowImporter.getDouble(object, field);
+  }
+
+  /**
+   * Returns a text field of a JSON object.
+   *
+   * @param object the fields of the object
+   * @param field the name of the field
+   * @return the text
+   * @throws IllegalArgumentException if the field is missing or not a text.
+   */
+  public static String getString(Map<String, Object> object, String field)
+      throws IllegalArgumentException {
+    return RowImporter.getString(object, field);
+  }
+
+  /**
+   * Returns a date field of a JSON object, written as a text in the format yyyy-mm-dd.
+   *
+   * @param object the fields of the object
+   * @param field the name of the field
+   * @return the date
+   * @throws IllegalArgumentException if the field is missing or not a valid date.
+   */
+  public static LocalDate getDate(Map<String, Object> object, String field)
+      throws IllegalArgumentException {
+    return RowImporter.getDate(object, field);
+  }
+
+  /**
+   * Writes a grocery as a JSON object, with its batches in the order they are consumed.
+   *
+   * @param out the builder to write to
+   * @param grocery the grocery to write
+   * @return the builder
+   */
+  public static StringBuilder appendGrocery(StringBuilder out, Grocery grocery) {
+    out.append("{\"name\":");
+    appendString(out, grocery.getName());
+    out.append(",\"category\":");
+    appendString(out, grocery.getCategory());
+    out.append(",\"unit\":");
+    appendString(out, grocery.getUnit());
+    out.append(",\"totalAmount\":");
+    appendNumber(out, grocery.getTotalAmount());
+    out.append(",\"batches\":[");
+    final List<GroceryBatch> batches = grocery.getBatches();
+    for (int i = 0; i < batches.size(); i++) {
+      if (i > 0) {
+        out.append(',');
+      }
+      final GroceryBatch batch = batches.get(i);
+      out.append("{\"amount\":");
+      appendNumber(out, batch.getAmount());
+      out.append(",\"pricePerUnit\":");
+      appendNumber(out, batch.getPricePerUnit());
+      out.append(",\"expirationDate\":");
+      appendDate(out, batch.getExpirationDate());
+      out.append('}');
+    }
+    return out.append("]}");
+  }
+
+  /**
+   * Writes a recipe as a JSON object, with its ingredients. The description and instructions are
+   * only written if asked for, as they may have to be read from a file.
+   *
+   * @param out the builder to write to
+   * @param recipe the recipe to write
+   * @param withTexts whether to write the description and instructions
+   * @return the builder
+   */
+  public static StringBuilder appendRecipe(StringBuilder out, Recipe recipe, boolean withTexts) {
+    out.append("{\"name\":");
+    appendString(out, recipe.getName());
+    if (withTexts) {
+      out.append(",\"description\":");
+      appendString(out, recipe.getDescription());
+      out.append(",\"instructions\":");
+      appendString(out, recipe.getInstructions());
+    }
+    out.append(",\"servings\":").append(recipe.getServings());
+    out.append(",\"ingredients\":[");
+    final List<Ingredient> ingredients = recipe.getIngredients();
+    for (int i = 0; i < ingredients.size(); i++) {
+      if (i > 0) {
+        out.append(',');
+      }
+      final Ingredient ingredient = ingredients.get(i);
+      out.append("{\"name\":");
+      appendString(out, ingredient.getName());
+      out.append(",\"category\":");
+      appendString(out, ingredient.getCategory());
+      out.append(",\"unit\":");
+      appendString(out, ingredient.getUnit());
+      out.append(",\"amount\":");
+      appendNumber(out, ingredient.getAmount());
+      out.append('}');
+    }
+    return out.append("]}");
+  }
+
+  /**
+   * Writes a text as a JSON string, in quotes. Quotes, backslashes and control characters are
+   * escaped with a backslash.
+   *
+   * @param out the builder to write to
+   * @param text the text to write
+   * @return the builder
+   */
+  public static StringBuilder appendString(StringBuilder out, CharSequence text) {
+    out.append('"');
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      switch (c) {
+        case '"' -> out.append("\\\"");
+        case '\\' -> out.append("\\\\");
+        case '\n' -> out.append("\\n");
+        case '\r' -> out.append("\\r");
+        case '\t' -> out.append("\\t");
+        default -> {
+          if (c < 0x20) {
+            out.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+          } else {
+            out.append(c);
+          }
+        }
+      }
+    }
+    return out.append('"');
+  }
+
+  /**
+   * Writes a number, without a fraction if it is a whole number. Numbers JSON cannot hold, like
+   * infinity, are written as null.
+   *
+   * @param out the builder to write to
+   * @param value the number to write
+   * @return the builder
+   */
+  public static StringBuilder appendNumber(StringBuilder out, double value) {
+    if (!Double.isFinite(value)) {
+      return out.append("null");
+    }
+    if (value == (long) value) {
+      return out.append((long) value);
+    }
+    return out.append(value);
+  }
+
+  /**
+   * Writes a date as a JSON string, in the format yyyy-mm-dd.
+   *
+   * @param out the builder to write to
+   * @param date the date to write
+   * @return the builder
+   */
+  public static StringBuilder appendDate(StringBuilder out, LocalDate date) {
+    return out.append('"').append(date).append('"');
+  }
+}
@@ -0,0 +1,219 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file, or another stream of bytes like the standard input, one line at a time, through a
+ * fixed size buffer, without decoding the lines into strings.
+ *
+ * <p>
+ * After {@code nextLine} returns true, the current line is the bytes from {@code getLineStart} to
+ * {@code getLineEnd} in the array returned by {@code getBuffer}, without the line break. The bytes
+ * are only valid until the next call to {@code nextLine}. The buffer only grows if a single line is
+ * longer than it, so memory use does not depend on the size of the file.
+ *
+ * <p>
+ * For CSV files, line breaks inside double quotes do not end the line, so a quoted field can
+ * span several lines.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+final class LineSource implements Closeable {
+  private static final int INITIAL_BUFFER_SIZE = 1 << 20;
+  private static final int MAX_LINE_LENGTH = 64 << 20;
+
+  private final ReadableByteChannel channel;
+  private final long fileSize;
+  private final boolean quotedLineBreaks;
+  private ByteBuffer buffer;
+  private int lineStart;
+  private int lineEnd;
+  /** The position in the buffer where the next line starts. */
+  private int next;
+  private long bytesRead;
+  private long lineNumber;
+  private long nextLineNumber;
+  private boolean endOfFile;
+
+  /**
+   * Opens the provided file for reading.
+   *
+   * @param path the file to read
+   * @param quotedLineBreaks true if line breaks inside double quotes should not end a line
+   * @throws IOException if the file could not be opened.
+   */
+  LineSource(Path path, boolean quotedLineBreaks) throws IOException {
+    this(FileChannel.open(path, StandardOpenOption.READ), quotedLineBreaks);
+  }
+
+  /**
+   * Reads from the provided channel, which is closed with the line source.
+   *
+   * @param channel the channel to read
+   * @param quotedLineBreaks true if line breaks inside double quotes should not end a line
+   * @throws IOException if the size of a file channel could not be read.
+   */
+  LineSource(ReadableByteChannel channel, boolean quotedLineBreaks) throws IOException {
+    this.channel = channel;
+    this.fileSize = channel instanceof FileChannel file ? file.size() : -1;
+    this.quotedLineBreaks = quotedLineBreaks;
+    this.buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    this.buffer.limit(0);
+    this.nextLineNumber = 1;
+  }
+
+  byte[] getBuffer() {
+    return buffer.array();
+  }
+
+  int getLineStart() {
+    return lineStart;
+  }
+
+  int getLineEnd() {
+    return lineEnd;
+  }
+
+  /**
+   * Returns the number of the line in the file where the current line starts, counting from one.
+   *
+   * @return the line number
+   */
+  long getLineNumber() {
+    return lineNumber;
+  }
+
+  /**
+   * Returns the number of bytes of the file read into the buffer so far.
+   *
+   * @return the number of bytes read
+   */
+  long getBytesRead() {
+    return bytesRead;
+  }
+
+  /**
+   * Returns the size of the file, in bytes.
+   *
+   * @return the size of the file, or -1 if the channel is not a file
+   */
+  long getFileSize() {
+    return fileSize;
+  }
+
+  /**
+   * Returns true if the current line is empty or only contains whitespace.
+   *
+   * @return true if the current line is blank, false otherwise
+   */
+  boolean isBlank() {
+    final byte[] bytes = buffer.array();
+    for (int i = lineStart; i < lineEnd; i++) {
+      if (bytes[i] != ' ' && bytes[i] != '\t') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Moves to the next line of the file.
+   *
+   * @return true if there was another line, false if the end of the file has been reached
+   * @throws IOException if the file could not be read, or if a line is longer than 64 MB.
+   */
+  boolean nextLine() throws IOException {
+    lineNumber = nextLineNumber;
+    int scan = next;
+    boolean quoted = false;
+    while (true) {
+      final byte[] bytes = buffer.array();
+      final int limit = buffer.limit();
+      for (; scan < limit; scan++) {
+        final byte b = bytes[scan];
+        if (b == '\n') {
+          nextLineNumber++;
+          if (!quoted) {
+            setLine(next, scan);
+            next = scan + 1;
+            return true;
+          }
+        } else if (b == '"' && quotedLineBreaks) {
+          quoted = !quoted;
+        }
+      }
+      if (endOfFile) {
+        if (next == limit) {
+          return false;
+        }
+        setLine(next, limit);
+        next = limit;
+        return true;
+      }
+      scan -= next;
+      fill();
+      scan = Math.max(scan, next);
+    }
+  }
+
+  /**
+   * Moves the unread part of the buffer to its start, and reads more of the file after it,
+   * growing the buffer if it is full.
+   */
+  private void fill() throws IOException {
+    final int unread = buffer.limit() - next;
+    if (next == 0 && unread == buffer.capacity()) {
+      if (buffer.capacity() >= MAX_LINE_LENGTH) {
+        throw new IOException("Line " + lineNumber + " is longer than " + MAX_LINE_LENGTH
+            + " bytes");
+      }
+      final ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+      larger.put(buffer.array(), 0, unread);
+      buffer = larger;
+    } else {
+      System.arraycopy(buffer.array(), next, buffer.array(), 0, unread);
+      buffer.clear();
+      buffer.position(unread);
+    }
+    next = 0;
+
+    final int read = channel.read(buffer);
+    if (read < 0) {
+      endOfFile = true;
+    } else {
+      bytesRead += read;
+    }
+    buffer.flip();
+    if (bytesRead == read && read >= 3 && hasByteOrderMark()) {
+      next = 3;
+    }
+  }
+
+  /**
+   * Returns true if the buffer starts with a UTF-8 byte order mark, which is skipped.
+   */
+  private boolean hasByteOrderMark() {
+    final byte[] bytes = buffer.array();
+    return bytes[0] == (byte) 0xEF && bytes[1] == (byte) 0xBB && bytes[2] == (byte) 0xBF;
+  }
+
+  /**
+   * Sets the bounds of the current line, leaving out a carriage return at its end.
+   */
+  private void setLine(int start, int end) {
+    lineStart = start;
+    lineEnd = end > start && buffer.array()[end - 1] == '\r' ? end - 1 : end;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
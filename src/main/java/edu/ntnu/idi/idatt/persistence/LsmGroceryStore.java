@@ -0,0 +1,549 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryStore;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link GroceryStore} keeping the groceries in files in a directory, for food storages with
+ * more groceries than fit in memory. Use it with {@link FoodStorage#FoodStorage(GroceryStore)}.
+ *
+ * <p>
+ * The store is a log-structured merge tree. Changes are appended to a log file and kept in a
+ * sorted map in memory. When the map reaches {@value #MEMTABLE_LIMIT} bytes, it is written to a
+ * new {@link SortedTable} file and the log is emptied. When there are more than
+ * {@value #MAX_TABLES} tables, they are merged into one, dropping old versions and removed
+ * groceries. A grocery is looked up in the map first, and then in the tables from the newest to
+ * the oldest, so only the index of each table and a {@link BlockCache} of recently read blocks
+ * are kept in memory.
+ *
+ * <p>
+ * The groceries are keyed by their name, and each is stored with its batches sorted by
+ * expiration date and the first expiration date in front, so groceries expiring before a date
+ * are found without decoding the rest. A grocery read from the files is kept only as long as it
+ * is in use elsewhere, and the same object is returned for it until then.
+ *
+ * <p>
+ * The log is written on every change, but not forced to disk, so the changes made just before
+ * the operating system stops may be lost. The tables are forced to disk when written.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class LsmGroceryStore implements GroceryStore, Closeable {
+  /** The number of bytes of blocks cached by default. */
+  public static final long DEFAULT_CACHE_BYTES = 64L << 20;
+  /** The number of bytes of changes kept in memory before they are written to a table. */
+  static final int MEMTABLE_LIMIT = 4 << 20;
+  /** The number of tables there can be before they are merged. */
+  static final int MAX_TABLES = 8;
+  private static final String LOG_FILE = "memtable.log";
+  private static final Pattern TABLE_FILE = Pattern.compile("table-(\\d{10})\\.sst");
+  /** The number of bytes a map entry is assumed to use, apart from its key and value. */
+  private static final int ENTRY_OVERHEAD = 64;
+
+  private final Path directory;
+  private final BlockCache cache;
+  /** The changes not yet written to a table, with {@link SortedTable#TOMBSTONE} for removals. */
+  private final TreeMap<String, byte[]> memtable;
+  /** The tables, from the newest to the oldest. */
+  private final List<SortedTable> tables;
+  /** The groceries read from the store or put in it that may still be in use. */
+  private final Map<String, GroceryReference> loaded;
+  private final ReferenceQueue<Grocery> unused;
+  private FileChannel log;
+  private long memtableBytes;
+  private int nextTableId;
+
+  /**
+   * A weak reference to a grocery, remembering its key so it can be removed from the loaded
+   * groceries when the grocery is no longer in use.
+   */
+  private static final class GroceryReference extends WeakReference<Grocery> {
+    private final String key;
+
+    GroceryReference(String key, Grocery grocery, ReferenceQueue<Grocery> queue) {
+      super(grocery, queue);
+      this.key = key;
+    }
+  }
+
+  /**
+   * The current entry of a cursor, when merging cursors. A lower rank means a newer cursor.
+   */
+  private record MergeEntry(String key, byte[] value, int rank, EntryCursor cursor) {}
+
+  private LsmGroceryStore(Path directory, long cacheBytes) {
+    this.directory = directory;
+    this.cache = new BlockCache(cacheBytes);
+    this.memtable = new TreeMap<>();
+    this.tables = new ArrayList<>();
+    this.loaded = new HashMap<>();
+    this.unused = new ReferenceQueue<>();
+  }
+
+  /**
+   * Opens the store in the provided directory, creating the directory if it does not exist.
+   * Changes in the log that were not written to a table before the store was last closed are read
+   * back into memory.
+   *
+   * @param directory the directory of the store
+   * @param cacheBytes the largest number of bytes of blocks to cache
+   * @return the opened store
+   * @throws IllegalArgumentException if the directory is null, or the cache size is negative.
+   * @throws IOException if the files could not be read.
+   */
+  public static LsmGroceryStore open(Path directory, long cacheBytes)
+      throws IllegalArgumentException, IOException {
+    if (directory == null) {
+      throw new IllegalArgumentException("Directory cannot be null");
+    }
+    if (cacheBytes < 0) {
+      throw new IllegalArgumentException("Cache size cannot be negative");
+    }
+    Files.createDirectories(directory);
+    final LsmGroceryStore store = new LsmGroceryStore(directory, cacheBytes);
+    try {
+      store.openTables();
+      store.replayLog();
+    } catch (IOException | RuntimeException e) {
+      store.close();
+      throw e;
+    }
+    return store;
+  }
+
+  @Override
+  public synchronized Grocery get(String key) {
+    expungeUnused();
+    final GroceryReference reference = loaded.get(key);
+    final Grocery loadedGrocery = reference == null ? null : reference.get();
+    if (loadedGrocery != null) {
+      return loadedGrocery;
+    }
+    final byte[] value = find(key);
+    if (value == null || value == SortedTable.TOMBSTONE) {
+      return null;
+    }
+    return load(key, value);
+  }
+
+  @Override
+  public synchronized void put(String key, Grocery grocery) {
+    expungeUnused();
+    write(key, GroceryCodec.encode(grocery));
+    final GroceryReference reference = loaded.get(key);
+    if (reference == null || reference.get() != grocery) {
+      loaded.put(key, new GroceryReference(key, grocery, unused));
+    }
+  }
+
+  @Override
+  public synchronized void remove(String key) {
+    expungeUnused();
+    loaded.remove(key);
+    write(key, SortedTable.TOMBSTONE);
+  }
+
+  @Override
+  public synchronized void clear() {
+    loaded.clear();
+    memtable.clear();
+    memtableBytes = 0;
+    try {
+      for (SortedTable table : tables) {
+        table.close();
+        Files.delete(table.getPath());
+        cache.invalidate(table.getId());
+      }
+      tables.clear();
+      log.truncate(0);
+      log.force(true);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public synchronized void forEach(Consumer<? super Grocery> action) {
+    forEachEntry(null, action);
+  }
+
+  /**
+   * Performs the provided action for each grocery in the store with a batch that expires before
+   * the provided date. Only the first expiration date is read for the other groceries.
+   */
+  @Override
+  public synchronized void forEachExpiringBefore(LocalDate date,
+      Consumer<? super Grocery> action) {
+    forEachEntry(date, action);
+  }
+
+  /**
+   * Writes the changes in memory to a table, empties the log, and closes the files of the store.
+   *
+   * @throws IOException if the changes could not be written.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      if (log != null && log.isOpen() && !memtable.isEmpty()) {
+        flushMemtable();
+      }
+    } finally {
+      for (SortedTable table : tables) {
+        table.close();
+      }
+      if (log != null) {
+        log.close();
+      }
+    }
+  }
+
+  /**
+   * Returns how many times a block was found in the block cache.
+   *
+   * @return the number of cache hits
+   */
+  public long getCacheHits() {
+    return cache.getHits();
+  }
+
+  /**
+   * Returns how many times a block had to be read from a table file.
+   *
+   * @return the number of cache misses
+   */
+  public long getCacheMisses() {
+    return cache.getMisses();
+  }
+
+  /**
+   * Returns the number of table files in the store.
+   *
+   * @return the number of tables
+   */
+  public synchronized int getTableCount() {
+    return tables.size();
+  }
+
+  private void openTables() throws IOException {
+    final List<Path> paths;
+    try (var files = Files.list(directory)) {
+      paths = files.filter(path -> TABLE_FILE.matcher(path.getFileName().toString()).matches())
+          .sorted(Comparator.reverseOrder())
+          .toList();
+    }
+    for (Path path : paths) {
+      final Matcher matcher = TABLE_FILE.matcher(path.getFileName().toString());
+      matcher.matches();
+      final int id = Integer.parseInt(matcher.group(1));
+      tables.add(SortedTable.open(path, id, cache));
+      nextTableId = Math.max(nextTableId, id + 1);
+    }
+  }
+
+  /**
+   * Reads the changes in the log into memory. A change that was only partly written, because the
+   * application stopped while writing it, is cut off the end of the log.
+   */
+  private void replayLog() throws IOException {
+    log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    final ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES);
+    long position = 0;
+    while (true) {
+      header.clear();
+      if (log.read(header, position) < header.capacity()) {
+        break;
+      }
+      final int length = header.getInt(0);
+      final ByteBuffer record = ByteBuffer.allocate(Math.max(length, 0));
+      if (length < 2 * Integer.BYTES
+          || log.read(record, position + header.capacity()) < length) {
+        break;
+      }
+      final CRC32 crc = new CRC32();
+      crc.update(record.array());
+      if ((int) crc.getValue() != header.getInt(Integer.BYTES)) {
+        break;
+      }
+
+      final byte[] key = new byte[record.flip().getInt()];
+      record.get(key);
+      final int valueLength = record.getInt();
+      final byte[] value = valueLength < 0 ? SortedTable.TOMBSTONE : new byte[valueLength];
+      record.get(value);
+      putInMemtable(new String(key, StandardCharsets.UTF_8), value);
+      position += header.capacity() + length;
+    }
+    log.truncate(position);
+    log.position(position);
+  }
+
+  /**
+   * Appends a change to the log and the memtable, and writes the memtable to a table if it is
+   * full.
+   */
+  private void write(String key, byte[] value) {
+    final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    final int length = 2 * Integer.BYTES + keyBytes.length + value.length;
+    final ByteBuffer record = ByteBuffer.allocate(2 * Integer.BYTES + length);
+    record.putInt(length).putInt(0).putInt(keyBytes.length).put(keyBytes)
+        .putInt(value == SortedTable.TOMBSTONE ? -1 : value.length).put(value);
+    final CRC32 crc = new CRC32();
+    crc.update(record.array(), 2 * Integer.BYTES, length);
+    record.putInt(Integer.BYTES, (int) crc.getValue()).flip();
+    try {
+      while (record.hasRemaining()) {
+        log.write(record);
+      }
+      putInMemtable(key, value);
+      if (memtableBytes >= MEMTABLE_LIMIT) {
+        flushMemtable();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void putInMemtable(String key, byte[] value) {
+    final byte[] previous = memtable.put(key, value);
+    if (previous == null) {
+      memtableBytes += 2L * key.length() + ENTRY_OVERHEAD + value.length;
+    } else {
+      memtableBytes += value.length - previous.length;
+    }
+  }
+
+  /**
+   * Writes the memtable to a new table, and empties the memtable and the log. Tables are merged
+   * if there are too many of them.
+   */
+  private void flushMemtable() throws IOException {
+    final SortedTable table;
+    try (SortedTable.Writer writer =
+        new SortedTable.Writer(tablePath(nextTableId), memtable.size())) {
+      for (Map.Entry<String, byte[]> entry : memtable.entrySet()) {
+        // Removed keys only have to be kept if an older table may contain them.
+        if (entry.getValue() != SortedTable.TOMBSTONE || !tables.isEmpty()) {
+          writer.add(entry.getKey(), entry.getValue());
+        }
+      }
+      writer.finish();
+    }
+    table = SortedTable.open(tablePath(nextTableId), nextTableId, cache);
+    nextTableId++;
+    tables.addFirst(table);
+    memtable.clear();
+    memtableBytes = 0;
+    log.truncate(0);
+    log.force(true);
+
+    if (tables.size() > MAX_TABLES) {
+      mergeTables();
+    }
+  }
+
+  /**
+   * Merges all tables into one, keeping only the newest entry for each key, and dropping removed
+   * keys.
+   */
+  private void mergeTables() throws IOException {
+    final List<EntryCursor> cursors = new ArrayList<>();
+    final long expectedEntries = tables.stream().mapToLong(SortedTable::getEntryCount).sum();
+    try (SortedTable.Writer writer =
+        new SortedTable.Writer(tablePath(nextTableId), expectedEntries)) {
+      for (SortedTable table : tables) {
+        cursors.add(table.cursor());
+      }
+      merge(cursors, (key, value) -> {
+        if (value != SortedTable.TOMBSTONE) {
+          writer.add(key, value);
+        }
+      });
+      writer.finish();
+    } finally {
+      closeAll(cursors);
+    }
+
+    final SortedTable merged = SortedTable.open(tablePath(nextTableId), nextTableId, cache);
+    nextTableId++;
+    for (SortedTable table : tables) {
+      table.close();
+      Files.delete(table.getPath());
+      cache.invalidate(table.getId());
+    }
+    tables.clear();
+    tables.add(merged);
+  }
+
+  /**
+   * Finds the newest value stored for a key.
+   *
+   * @return the value, {@link SortedTable#TOMBSTONE} if the key was removed, or null if the key
+   *         was never stored
+   */
+  private byte[] find(String key) {
+    final byte[] value = memtable.get(key);
+    if (value != null) {
+      return value;
+    }
+    try {
+      for (SortedTable table : tables) {
+        final byte[] tableValue = table.get(key);
+        if (tableValue != null) {
+          return tableValue;
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return null;
+  }
+
+  /**
+   * Performs an action for each grocery whose first batch expires before the provided date, or
+   * for each grocery if the date is null.
+   */
+  private void forEachEntry(LocalDate date, Consumer<? super Grocery> action) {
+    final long beforeDay = date == null ? 0 : date.toEpochDay();
+    expungeUnused();
+    // The memtable is copied, as the action may change groceries, which puts them again.
+    final Iterator<Map.Entry<String, byte[]>> memtableEntries =
+        new ArrayList<>(memtable.entrySet()).iterator();
+    final List<EntryCursor> cursors = new ArrayList<>();
+    cursors.add(new EntryCursor() {
+      private Map.Entry<String, byte[]> entry;
+
+      @Override
+      public boolean next() {
+        entry = memtableEntries.hasNext() ? memtableEntries.next() : null;
+        return entry != null;
+      }
+
+      @Override
+      public String key() {
+        return entry.getKey();
+      }
+
+      @Override
+      public byte[] value() {
+        return entry.getValue();
+      }
+    });
+    try {
+      for (SortedTable table : List.copyOf(tables)) {
+        cursors.add(table.cursor());
+      }
+      merge(cursors, (key, value) -> {
+        if (value != SortedTable.TOMBSTONE
+            && (date == null || GroceryCodec.firstExpirationDay(value) < beforeDay)) {
+          final GroceryReference reference = loaded.get(key);
+          final Grocery loadedGrocery = reference == null ? null : reference.get();
+          action.accept(loadedGrocery != null ? loadedGrocery : load(key, value));
+        }
+      });
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      try {
+        closeAll(cursors);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * An action performed for each entry when merging cursors.
+   */
+  @FunctionalInterface
+  private interface EntryAction {
+    void accept(String key, byte[] value) throws IOException;
+  }
+
+  /**
+   * Merges the entries of the provided cursors in the order of their keys. For a key found by
+   * more than one cursor, only the entry of the first cursor in the list is used, as the cursors
+   * are ordered from the newest to the oldest.
+   */
+  private static void merge(List<EntryCursor> cursors, EntryAction action) throws IOException {
+    final PriorityQueue<MergeEntry> queue = new PriorityQueue<>(
+        Comparator.comparing(MergeEntry::key).thenComparingInt(MergeEntry::rank));
+    for (int rank = 0; rank < cursors.size(); rank++) {
+      advance(queue, cursors.get(rank), rank);
+    }
+    while (!queue.isEmpty()) {
+      final MergeEntry newest = queue.poll();
+      advance(queue, newest.cursor(), newest.rank());
+      while (!queue.isEmpty() && queue.peek().key().equals(newest.key())) {
+        final MergeEntry older = queue.poll();
+        advance(queue, older.cursor(), older.rank());
+      }
+      action.accept(newest.key(), newest.value());
+    }
+  }
+
+  private static void advance(PriorityQueue<MergeEntry> queue, EntryCursor cursor, int rank)
+      throws IOException {
+    if (cursor.next()) {
+      queue.add(new MergeEntry(cursor.key(), cursor.value(), rank, cursor));
+    }
+  }
+
+  private static void closeAll(List<EntryCursor> cursors) throws IOException {
+    for (EntryCursor cursor : cursors) {
+      cursor.close();
+    }
+  }
+
+  private Grocery load(String key, byte[] value) {
+    expungeUnused();
+    final Grocery grocery = GroceryCodec.decode(key, value);
+    loaded.put(key, new GroceryReference(key, grocery, unused));
+    return grocery;
+  }
+
+  /**
+   * Removes the groceries that are no longer in use from the loaded groceries.
+   */
+  private void expungeUnused() {
+    Reference<? extends Grocery> reference;
+    while ((reference = unused.poll()) != null) {
+      final String key = ((GroceryReference) reference).key;
+      if (loaded.get(key) == reference) {
+        loaded.remove(key);
+      }
+    }
+  }
+
+  private Path tablePath(int id) {
+    return directory.resolve(String.format("table-%010d.sst", id));
+  }
+}
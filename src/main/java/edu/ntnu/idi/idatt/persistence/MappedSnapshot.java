@@ -0,0 +1,473 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import edu.ntnu.idi.idatt.utils.StringUtils;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A read-only view of a snapshot file written by {@link SnapshotWriter}.
+ *
+ * <p>
+ * Opening a snapshot only maps the sections of the file into memory and reads the header, so it
+ * takes the same time no matter how large the file is. Groceries, recipes and strings are decoded
+ * from the mapped file each time they are asked for, and the operating system only reads the
+ * pages of the file that are actually touched. Every call to {@code getGrocery} or
+ * {@code getRecipe} returns a new object, so changing it does not change the snapshot.
+ *
+ * <p>
+ * Only the reads of single entries are lazy. {@code loadInto} decodes every grocery and recipe, as
+ * a food storage and cook book hold theirs as objects, so loading a snapshot into them still takes
+ * time in proportion to its size. The application loads snapshots this way, as its menus work on
+ * the food storage and cook book, and reads lazily only when comparing two snapshots with
+ * {@link SnapshotDiff}, which decodes just the entries that differ.
+ *
+ * <p>
+ * Every offset and count read from the file is checked against the size of its section, so a
+ * corrupt file makes the methods throw an {@code IllegalArgumentException} rather than read
+ * outside the section.
+ *
+ * <p>
+ * The mapping stays valid until the snapshot is garbage collected, so there is nothing to close.
+ * A snapshot can be read from several threads at the same time.
+ *
+ * @see SnapshotFormat
+ * @see SnapshotWriter
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class MappedSnapshot {
+  private static final String INDEX_OUT_OF_BOUNDS_ERROR = "Index is out of bounds";
+  private static final String CORRUPT_ERROR = "Snapshot file is corrupt";
+
+  private final ByteBuffer groceries;
+  private final ByteBuffer recipes;
+  private final ByteBuffer strings;
+  private final int groceryCount;
+  private final int recipeCount;
+  private final int stringCount;
+  /** The header of the file, which identifies the snapshot. */
+  private final byte[] header;
+
+  /**
+   * Private constructor, as snapshots are opened with the static {@code open} method.
+   */
+  private MappedSnapshot(byte[] header, ByteBuffer groceries, ByteBuffer recipes,
+      ByteBuffer strings) throws IOException {
+    this.header = header;
+    this.groceries = groceries;
+    this.recipes = recipes;
+    this.strings = strings;
+    this.groceryCount = readCount(groceries);
+    this.recipeCount = readCount(recipes);
+    this.stringCount = readCount(strings);
+  }
+
+  /**
+   * Opens the provided snapshot file.
+   *
+   * @param path the snapshot file to open
+   * @return the opened snapshot
+   * @throws IllegalArgumentException if the path is null.
+   * @throws IOException if the file could not be read, or is not a snapshot file of a supported
+   *         version.
+   */
+  public static MappedSnapshot open(Path path) throws IllegalArgumentException, IOException {
+    if (path == null) {
+      throw new IllegalArgumentException("Path cannot be null");
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() < SnapshotFormat.HEADER_SIZE) {
+        throw new IOException("File is not a snapshot file");
+      }
+      final ByteBuffer header = ByteBuffer.allocate(SnapshotFormat.HEADER_SIZE);
+      while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+        // Read until the header is full.
+      }
+      header.flip();
+      if (header.getInt() != SnapshotFormat.MAGIC) {
+        throw new IOException("File is not a snapshot file");
+      }
+      final short version = header.getShort();
+      if (version != SnapshotFormat.FORMAT_VERSION) {
+        throw new IOException("Unsupported snapshot version: " + version);
+      }
+      header.getShort();
+      return new MappedSnapshot(header.array().clone(),
+          mapSection(channel, header.getLong(), header.getLong()),
+          mapSection(channel, header.getLong(), header.getLong()),
+          mapSection(channel, header.getLong(), header.getLong()));
+    }
+  }
+
+  /**
+   * Maps one section of the file into memory.
+   */
+  private static MappedByteBuffer mapSection(FileChannel channel, long offset, long length)
+      throws IOException {
+    if (offset < SnapshotFormat.HEADER_SIZE || length < Integer.BYTES
+        || length > Integer.MAX_VALUE || offset + length > channel.size()) {
+      throw new IOException("Snapshot file is corrupt");
+    }
+    return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+  }
+
+  /**
+   * Reads the number of entries in a section, which is stored in its last four bytes.
+   */
+  private static int readCount(ByteBuffer section) throws IOException {
+    final int count = section.getInt(section.limit() - Integer.BYTES);
+    if (count < 0 || (long) count * Integer.BYTES > section.limit() - Integer.BYTES) {
+      throw new IOException("Snapshot file is corrupt");
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of groceries in the snapshot.
+   *
+   * @return the number of groceries
+   */
+  public int getGroceryCount() {
+    return groceryCount;
+  }
+
+  /**
+   * Returns the number of recipes in the snapshot.
+   *
+   * @return the number of recipes
+   */
+  public int getRecipeCount() {
+    return recipeCount;
+  }
+
+  /**
+   * Returns the name of the grocery at the provided index, without decoding the rest of the
+   * grocery. Groceries are sorted alphabetically by name.
+   *
+   * @param index the index of the grocery
+   * @return the name of the grocery
+   * @throws IllegalArgumentException if the index is out of bounds.
+   */
+  public String getGroceryName(int index) throws IllegalArgumentException {
+    return getString(readInt(groceries, recordOffset(groceries, groceryCount, index)));
+  }
+
+  /**
+   * Decodes the grocery at the provided index. Groceries are sorted alphabetically by name.
+   *
+   * @param index the index of the grocery
+   * @return a new grocery object with the batches of the grocery in the snapshot
+   * @throws IllegalArgumentException if the index is out of bounds, or if the stored grocery is
+   *         not valid.
+   */
+  public Grocery getGrocery(int index) throws IllegalArgumentException {
+    int offset = recordOffset(groceries, groceryCount, index);
+    final String name = getString(readInt(groceries, offset));
+    final String category = getString(readInt(groceries, offset + 4));
+    final String unit = getString(readInt(groceries, offset + 8));
+    final int batchCount = readInt(groceries, offset + 12);
+    offset += 16;
+
+    Grocery grocery = null;
+    for (int i = 0; i < batchCount; i++, offset += SnapshotFormat.BATCH_SIZE) {
+      final GroceryBatch batch = new GroceryBatch(readDouble(groceries, offset),
+          readDouble(groceries, offset + 8), readDate(groceries, offset + 16));
+      if (grocery == null) {
+        grocery = new Grocery(name, category, unit, batch);
+      } else {
+        grocery.addBatch(batch);
+      }
+    }
+    if (grocery == null) {
+      throw new IllegalArgumentException("Grocery in snapshot has no batches");
+    }
+    return grocery;
+  }
+
+  /**
+   * Finds and decodes the grocery with the provided name. The groceries are searched with a
+   * binary search, so only the names of about log n groceries are decoded.
+   *
+   * @param name the name of the grocery to find
+   * @return a new grocery object with the batches of the grocery in the snapshot
+   * @throws IllegalArgumentException if the name is null or blank, or if the snapshot does not
+   *         contain a grocery with the provided name.
+   */
+  public Grocery getGroceryByName(String name) throws IllegalArgumentException {
+    if (name == null || name.isBlank()) {
+      throw new IllegalArgumentException("Name cannot be null or blank");
+    }
+    final String key = StringUtils.capitalize(name);
+    int low = 0;
+    int high = groceryCount - 1;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      final int cmp = getGroceryName(middle).compareTo(key);
+      if (cmp < 0) {
+        low = middle + 1;
+      } else if (cmp > 0) {
+        high = middle - 1;
+      } else {
+        return getGrocery(middle);
+      }
+    }
+    throw new IllegalArgumentException("Grocery not found.");
+  }
+
+  /**
+   * Decodes the recipe at the provided index. Recipes are in the same order as in the cookbook
+   * the snapshot was written from.
+   *
+   * @param index the index of the recipe
+   * @return a new recipe object with the ingredients of the recipe in the snapshot
+   * @throws IllegalArgumentException if the index is out of bounds, or if the stored recipe is
+   *         not valid.
+   */
+  public Recipe getRecipe(int index) throws IllegalArgumentException {
+    int offset = recordOffset(recipes, recipeCount, index);
+    final Recipe recipe = new Recipe(getString(readInt(recipes, offset)),
+        getString(readInt(recipes, offset + 4)), getString(readInt(recipes, offset + 8)),
+        readInt(recipes, offset + 12));
+    final int ingredientCount = readInt(recipes, offset + 16);
+    offset += 20;
+
+    for (int i = 0; i < ingredientCount; i++, offset += SnapshotFormat.INGREDIENT_SIZE) {
+      recipe.addIngredient(new Ingredient(getString(readInt(recipes, offset)),
+          getString(readInt(recipes, offset + 4)), getString(readInt(recipes, offset + 8)),
+          readDouble(recipes, offset + 12)));
+    }
+    return recipe;
+  }
+
+  /**
+   * Returns a list view of the groceries in the snapshot. Each grocery is decoded when it is
+   * read from the list.
+   *
+   * @return an unmodifiable list of the groceries, sorted alphabetically by name
+   */
+  public List<Grocery> getGroceries() {
+    return new AbstractList<>() {
+      @Override
+      public Grocery get(int index) {
+        return getGrocery(index);
+      }
+
+      @Override
+      public int size() {
+        return groceryCount;
+      }
+    };
+  }
+
+  /**
+   * Returns a list view of the recipes in the snapshot. Each recipe is decoded when it is read
+   * from the list.
+   *
+   * @return an unmodifiable list of the recipes
+   */
+  public List<Recipe> getRecipes() {
+    return new AbstractList<>() {
+      @Override
+      public Recipe get(int index) {
+        return getRecipe(index);
+      }
+
+      @Override
+      public int size() {
+        return recipeCount;
+      }
+    };
+  }
+
+  /**
+   * Replaces the groceries in the provided food storage and the recipes in the provided cookbook
+   * with the ones in the snapshot. The whole snapshot is decoded before anything is replaced, so
+   * the food storage and cookbook are left as they were if the snapshot is not valid. Unlike the
+   * other reads, this is not lazy, and takes time in proportion to the size of the snapshot.
+   *
+   * @param foodStorage the food storage to load the groceries into
+   * @param cookbook the cookbook to load the recipes into
+   * @throws IllegalArgumentException if any of the provided objects are null, if the snapshot
+   *         contains a grocery or recipe that is not valid, or if it contains a grocery more than
+   *         once.
+   */
+  public void loadInto(FoodStorage foodStorage, Cookbook cookbook)
+      throws IllegalArgumentException {
+    if (foodStorage == null || cookbook == null) {
+      throw new IllegalArgumentException("Food storage and cookbook cannot be null");
+    }
+    final List<Grocery> loadedGroceries = new ArrayList<>(groceryCount);
+    final Set<String> names = new HashSet<>();
+    for (Grocery grocery : getGroceries()) {
+      if (!names.add(StringUtils.capitalize(grocery.getName()))) {
+        throw new IllegalArgumentException(CORRUPT_ERROR);
+      }
+      loadedGroceries.add(grocery);
+    }
+    final List<Recipe> loadedRecipes = new ArrayList<>(getRecipes());
+
+    synchronized (foodStorage) {
+      foodStorage.removeAllGroceries();
+      loadedGroceries.forEach(foodStorage::addGrocery);
+    }
+    synchronized (cookbook) {
+      cookbook.removeAllRecipes();
+      loadedRecipes.forEach(cookbook::addRecipe);
+    }
+  }
+
+  /**
+   * Returns a copy of the header of the snapshot file. Two snapshot files with the same header
+   * have the same contents, as the header ends with a checksum of the rest of the file.
+   *
+   * @return the header bytes
+   */
+  byte[] getHeader() {
+    return header.clone();
+  }
+
+  /**
+   * Returns the id of the category string of the grocery at the provided index.
+   *
+   * @param index the index of the grocery
+   * @return the string id of the category
+   * @throws IllegalArgumentException if the index is out of bounds.
+   */
+  int getGroceryCategoryId(int index) throws IllegalArgumentException {
+    return readInt(groceries, recordOffset(groceries, groceryCount, index) + 4);
+  }
+
+  /**
+   * Returns the day the first batch of the grocery at the provided index expires, without
+   * decoding the grocery. The batches are stored sorted by expiration date.
+   *
+   * @param index the index of the grocery
+   * @return the day the first batch expires, counted from 1970-01-01
+   * @throws IllegalArgumentException if the index is out of bounds.
+   */
+  long getGroceryFirstExpirationDay(int index) throws IllegalArgumentException {
+    return readLong(groceries, recordOffset(groceries, groceryCount, index) + 16 + 16);
+  }
+
+  /**
+   * Returns the id of the name string of the recipe at the provided index.
+   *
+   * @param index the index of the recipe
+   * @return the string id of the name
+   * @throws IllegalArgumentException if the index is out of bounds.
+   */
+  int getRecipeNameId(int index) throws IllegalArgumentException {
+    return readInt(recipes, recordOffset(recipes, recipeCount, index));
+  }
+
+  /**
+   * Returns the ids of the name strings of the ingredients of the recipe at the provided index.
+   *
+   * @param index the index of the recipe
+   * @return the string ids of the ingredient names
+   * @throws IllegalArgumentException if the index is out of bounds.
+   */
+  int[] getRecipeIngredientNameIds(int index) throws IllegalArgumentException {
+    final int offset = recordOffset(recipes, recipeCount, index);
+    final int count = readInt(recipes, offset + 16);
+    if (count < 0 || count > (recipes.limit() - offset - 20) / SnapshotFormat.INGREDIENT_SIZE) {
+      throw new IllegalArgumentException(CORRUPT_ERROR);
+    }
+    final int[] ids = new int[count];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = readInt(recipes, offset + 20 + i * SnapshotFormat.INGREDIENT_SIZE);
+    }
+    return ids;
+  }
+
+  /**
+   * Decodes the string with the provided id.
+   *
+   * @param id the id of the string
+   * @return the string
+   * @throws IllegalArgumentException if the id is out of bounds, or the string is stored outside
+   *         the string section.
+   */
+  String getString(int id) throws IllegalArgumentException {
+    if (id < 0 || id >= stringCount) {
+      throw new IllegalArgumentException("String id is out of bounds");
+    }
+    final int tableOffset = strings.limit() - Integer.BYTES * (stringCount + 2);
+    final int start = readInt(strings, tableOffset + id * Integer.BYTES);
+    final int end = readInt(strings, tableOffset + (id + 1) * Integer.BYTES);
+    if (start < 0 || start > end || end > tableOffset) {
+      throw new IllegalArgumentException(CORRUPT_ERROR);
+    }
+    final byte[] bytes = new byte[end - start];
+    strings.get(start, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the offset of a record in a section, from the offset table at the end of the section.
+   */
+  private static int recordOffset(ByteBuffer section, int count, int index)
+      throws IllegalArgumentException {
+    if (index < 0 || index >= count) {
+      throw new IllegalArgumentException(INDEX_OUT_OF_BOUNDS_ERROR);
+    }
+    final int offset = readInt(section,
+        section.limit() - Integer.BYTES * (count + 1) + index * Integer.BYTES);
+    checkBounds(section, offset, 0);
+    return offset;
+  }
+
+  /**
+   * Reads an int at an offset in a section, checking that it is inside the section.
+   */
+  private static int readInt(ByteBuffer section, int offset) throws IllegalArgumentException {
+    checkBounds(section, offset, Integer.BYTES);
+    return section.getInt(offset);
+  }
+
+  private static long readLong(ByteBuffer section, int offset) throws IllegalArgumentException {
+    checkBounds(section, offset, Long.BYTES);
+    return section.getLong(offset);
+  }
+
+  private static double readDouble(ByteBuffer section, int offset)
+      throws IllegalArgumentException {
+    checkBounds(section, offset, Double.BYTES);
+    return section.getDouble(offset);
+  }
+
+  private static LocalDate readDate(ByteBuffer section, int offset)
+      throws IllegalArgumentException {
+    try {
+      return LocalDate.ofEpochDay(readLong(section, offset));
+    } catch (DateTimeException e) {
+      throw new IllegalArgumentException(CORRUPT_ERROR, e);
+    }
+  }
+
+  private static void checkBounds(ByteBuffer section, int offset, int length)
+      throws IllegalArgumentException {
+    if (offset < 0 || offset > section.limit() - length) {
+      throw new IllegalArgumentException(CORRUPT_ERROR);
+    }
+  }
+}
@@ -0,0 +1,211 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntFunction;
+import java.util.function.IntToLongFunction;
+
+/**
+ * A hash tree over the groceries or recipes of a snapshot, stored as a section of a
+ * {@link SnapshotIndex}, which lets {@link SnapshotDiff} find the entries that differ between two
+ * snapshots without reading the entries that are the same.
+ *
+ * <p>
+ * Every entry has a key, its name, and a hash of its whole contents. The entries are put in
+ * buckets by the first {@code depth} bits of the hash of their key, and the tree is a complete
+ * binary tree over the buckets, where the node at a level and position covers the buckets whose
+ * first bits are the position. The hash of a node is the sum of the content hashes of the entries
+ * it covers, so it does not depend on the order of the entries, nor on the depth of the tree.
+ * Two trees of different depths can therefore be compared down to the level of the shallower one.
+ *
+ * <pre>
+ * tree:    int depth, long[2^(depth + 1) - 1] node hashes, level by level from the root,
+ *          int[2^depth + 1] first entry of each bucket,
+ *          then per entry, sorted by bucket: int index in the snapshot, long content hash
+ * </pre>
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+final class MerkleTree {
+  /** The average number of entries a bucket is sized for. */
+  private static final int ENTRIES_PER_BUCKET = 4;
+  /** The deepest tree built, which is reached with about four million entries. */
+  private static final int MAX_DEPTH = 20;
+  private static final int ENTRY_SIZE = Integer.BYTES + Long.BYTES;
+  private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+  private static final long FNV_PRIME = 0x100000001B3L;
+
+  private final ByteBuffer section;
+  private final int depth;
+  private final int bucketsOffset;
+  private final int entriesOffset;
+
+  /**
+   * Constructs a view of a tree section of an index file.
+   *
+   * @param section the section holding the tree
+   */
+  MerkleTree(ByteBuffer section) {
+    this.section = section;
+    this.depth = section.getInt(0);
+    this.bucketsOffset = Integer.BYTES + Long.BYTES * ((2 << depth) - 1);
+    this.entriesOffset = bucketsOffset + Integer.BYTES * ((1 << depth) + 1);
+  }
+
+  /**
+   * Returns the depth of the tree. The tree has {@code 2^depth} buckets.
+   *
+   * @return the depth
+   */
+  int getDepth() {
+    return depth;
+  }
+
+  /**
+   * Returns the hash of the node at the provided level and position.
+   *
+   * @param level the level of the node, from 0 at the root to the depth of the tree
+   * @param position the position of the node in its level
+   * @return the sum of the content hashes of the entries the node covers
+   */
+  long getNodeHash(int level, int position) {
+    return section.getLong(Integer.BYTES + Long.BYTES * ((1 << level) - 1 + position));
+  }
+
+  /**
+   * Returns the first entry covered by the node at the provided level and position. The entries
+   * covered by a node are the ones from its first entry up to the first entry of the node after
+   * it in the same level.
+   *
+   * @param level the level of the node
+   * @param position the position of the node in its level, or the number of nodes in the level
+   *                 to get the number of entries
+   * @return the number of the first entry
+   */
+  int getFirstEntry(int level, int position) {
+    return section.getInt(bucketsOffset + Integer.BYTES * (position << (depth - level)));
+  }
+
+  /**
+   * Returns the index in the snapshot of the provided entry.
+   *
+   * @param entry the number of the entry
+   * @return the index of the grocery or recipe
+   */
+  int getEntryIndex(int entry) {
+    return section.getInt(entriesOffset + entry * ENTRY_SIZE);
+  }
+
+  /**
+   * Returns the content hash of the provided entry.
+   *
+   * @param entry the number of the entry
+   * @return the hash of the grocery or recipe
+   */
+  long getEntryHash(int entry) {
+    return section.getLong(entriesOffset + entry * ENTRY_SIZE + Integer.BYTES);
+  }
+
+  /**
+   * Builds a tree over the provided number of entries.
+   *
+   * @param count the number of entries
+   * @param key the key of each entry, by its index
+   * @param contentHash the hash of the contents of each entry, by its index
+   * @return the encoded tree section
+   */
+  static byte[] build(int count, IntFunction<String> key, IntToLongFunction contentHash) {
+    int depth = 0;
+    while (depth < MAX_DEPTH && (long) ENTRIES_PER_BUCKET << depth < count) {
+      depth++;
+    }
+    final int bucketCount = 1 << depth;
+    final int[] buckets = new int[count];
+    final long[] hashes = new long[count];
+    final int[] bucketStarts = new int[bucketCount + 1];
+    final long[] nodes = new long[(2 << depth) - 1];
+    for (int i = 0; i < count; i++) {
+      buckets[i] = bucket(new Hasher().add(key.apply(i)).finish(), depth);
+      hashes[i] = contentHash.applyAsLong(i);
+      bucketStarts[buckets[i] + 1]++;
+      nodes[bucketCount - 1 + buckets[i]] += hashes[i];
+    }
+    for (int bucket = 0; bucket < bucketCount; bucket++) {
+      bucketStarts[bucket + 1] += bucketStarts[bucket];
+    }
+    for (int node = bucketCount - 2; node >= 0; node--) {
+      nodes[node] = nodes[2 * node + 1] + nodes[2 * node + 2];
+    }
+
+    // The entries are placed by counting sort, so the entries of a bucket stay in index order.
+    final int[] next = bucketStarts.clone();
+    final int[] order = new int[count];
+    for (int i = 0; i < count; i++) {
+      order[next[buckets[i]]++] = i;
+    }
+
+    final ByteBuffer section = ByteBuffer.allocate(Integer.BYTES + Long.BYTES * nodes.length
+        + Integer.BYTES * bucketStarts.length + ENTRY_SIZE * count);
+    section.putInt(depth);
+    for (long node : nodes) {
+      section.putLong(node);
+    }
+    for (int start : bucketStarts) {
+      section.putInt(start);
+    }
+    for (int index : order) {
+      section.putInt(index).putLong(hashes[index]);
+    }
+    return section.array();
+  }
+
+  private static int bucket(long keyHash, int depth) {
+    return depth == 0 ? 0 : (int) (keyHash >>> (Long.SIZE - depth));
+  }
+
+  /**
+   * Computes a 64-bit hash of a sequence of fields, with FNV-1a followed by a final mix, so
+   * every bit of the hash depends on every field. Strings are prefixed by their length, so the
+   * fields cannot run into each other.
+   */
+  static final class Hasher {
+    private long hash = FNV_OFFSET_BASIS;
+
+    Hasher add(String value) {
+      add(value.length());
+      for (int i = 0; i < value.length(); i++) {
+        final char c = value.charAt(i);
+        mixByte(c >>> 8);
+        mixByte(c);
+      }
+      return this;
+    }
+
+    Hasher add(int value) {
+      for (int shift = Integer.SIZE - 8; shift >= 0; shift -= 8) {
+        mixByte(value >>> shift);
+      }
+      return this;
+    }
+
+    Hasher add(long value) {
+      add((int) (value >>> Integer.SIZE));
+      return add((int) value);
+    }
+
+    Hasher add(double value) {
+      return add(Double.doubleToLongBits(value));
+    }
+
+    long finish() {
+      long h = hash;
+      h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+      h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+      return h ^ (h >>> 33);
+    }
+
+    private void mixByte(int value) {
+      hash = (hash ^ (value & 0xFF)) * FNV_PRIME;
+    }
+  }
+}
@@ -0,0 +1,791 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import edu.ntnu.idi.idatt.models.ChangeScope;
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.ModelChangeListener;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An append-only journal of every change made to a {@link FoodStorage} and a {@link Cookbook},
+ * which is replayed to rebuild them after the application is restarted or has crashed.
+ *
+ * <p>
+ * The journal listens for changes to the food storage and cook book, and writes each change as a
+ * small binary record to the current segment file in the journal directory. When a segment grows
+ * larger than {@value #SEGMENT_SIZE} bytes, a new segment is started.
+ *
+ * <p>
+ * Forcing a file to disk is slow, so how often it is done is chosen with a {@link Durability}:
+ * <ul>
+ * <li>{@code SYNC} forces every record to disk before the change returns.
+ * <li>{@code GROUP} also waits until the record is on disk before the change returns, but one
+ * background thread forces all records written while the previous force was running at once. Under
+ * load, many changes share a single force, while a change is still never lost once it has
+ * returned. The wait is made after the change has released its locks, as described by
+ * {@link ChangeScope}, so changes to the same grocery or recipe can share a force too.
+ * <li>{@code ASYNC} returns right away, and the background thread writes and forces the records
+ * every {@value #ASYNC_FLUSH_INTERVAL_MILLIS} milliseconds. Changes made in the last interval
+ * before a crash can be lost.
+ * </ul>
+ *
+ * <p>
+ * So the journal does not grow forever, and opening it does not get slower every day, a
+ * background thread writes checkpoints as chosen by a {@link CheckpointPolicy}. The current
+ * segment is closed once the policy asks for a checkpoint, and the checkpoint thread then writes
+ * the state after all closed segments to a checkpoint file and deletes the segments. Opening the
+ * journal replays the newest checkpoint and the segments written after it. The checkpoint is built
+ * from the closed segments, and never from the food storage and cook book in use, so changes
+ * never wait for it.
+ *
+ * <p>
+ * A change is made to the food storage or cook book before it is written to the journal. If the
+ * journal cannot be written, the change throws an {@link UncheckedIOException}, and the journal
+ * refuses all later changes.
+ *
+ * @see JournalFormat
+ * @see JournalCheckpointer
+ * @see ModelChangeListener
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class MutationJournal implements ModelChangeListener, Closeable {
+  /** The size a segment can grow to before a new segment is started, in bytes. */
+  static final long SEGMENT_SIZE = 64L << 20;
+  /** How often records are written and forced to disk with {@code Durability.ASYNC}. */
+  static final long ASYNC_FLUSH_INTERVAL_MILLIS = 200;
+
+  private static final String CLOSED_ERROR = "Journal is closed";
+  private static final String NON_POSITIVE_CHECKPOINT_ERROR =
+      "Checkpoint size and interval must be positive";
+
+  /**
+   * How long a change waits before it is forced to disk.
+   */
+  public enum Durability {
+    /** Records are forced to disk in the background, and can be lost in a crash. */
+    ASYNC,
+    /** Records are forced to disk in groups, before the change returns. */
+    GROUP,
+    /** Every record is forced to disk on its own, before the change returns. */
+    SYNC
+  }
+
+  /**
+   * When the journal writes a checkpoint: after a number of bytes of records have been written
+   * since the last checkpoint, or after an amount of time has passed since it, whichever comes
+   * first. A checkpoint is only written if records have been written since the last one.
+   *
+   * @param bytes the number of bytes of records to write between checkpoints
+   * @param interval the longest time between checkpoints
+   */
+  public record CheckpointPolicy(long bytes, Duration interval) {
+    /** A checkpoint for every segment, and at least every ten minutes. */
+    public static final CheckpointPolicy DEFAULT =
+        new CheckpointPolicy(SEGMENT_SIZE, Duration.ofMinutes(10));
+
+    /**
+     * Constructs a checkpoint policy.
+     *
+     * @param bytes the number of bytes of records to write between checkpoints
+     * @param interval the longest time between checkpoints
+     * @throws IllegalArgumentException if the number of bytes or the interval is not positive,
+     *         or the interval is null.
+     */
+    public CheckpointPolicy {
+      if (bytes <= 0 || interval == null || interval.isNegative() || interval.isZero()) {
+        throw new IllegalArgumentException(NON_POSITIVE_CHECKPOINT_ERROR);
+      }
+    }
+  }
+
+  private final Path directory;
+  private final Durability durability;
+  private final CheckpointPolicy checkpointPolicy;
+  private final FoodStorage foodStorage;
+  private final Cookbook cookbook;
+  private final Map<Recipe, Long> recipeIds;
+  private final List<String> skippedRecords;
+  private long nextRecipeId;
+
+  private final ReentrantLock lock;
+  private final Condition recordsAppended;
+  private final Condition recordsDurable;
+  /** The records appended, and not yet given to the flusher. Guarded by {@code lock}. */
+  private JournalEncoder pending;
+  /** The records being written by the flusher. Only used by the thread writing to the file. */
+  private JournalEncoder flushing;
+  /** The number of records appended. Guarded by {@code lock}. */
+  private long appendedRecords;
+  /** The number of records forced to disk. Guarded by {@code lock}. */
+  private long durableRecords;
+  private IOException failure;
+  private boolean closed;
+
+  /**
+   * Signalled when a segment is closed, or the journal is closed, to wake up the checkpoint
+   * thread.
+   */
+  private final Condition segmentClosed;
+  /** The number of the newest closed segment, or 0 if none has been closed. */
+  private volatile long lastClosedSegment;
+  /** The number of the last segment covered by the checkpoint when the journal was opened. */
+  private final long openedCheckpoint;
+  /** True if the checkpoint thread wants the current segment closed on the next write. */
+  private volatile boolean closeSegmentRequested;
+  /** The failure of the last checkpoint, or null if it succeeded. */
+  private volatile IOException checkpointFailure;
+
+  /** The current segment. Only used by the thread writing to the file. */
+  private FileChannel segment;
+  private long segmentNumber;
+  /** The bytes written since a segment was last closed. Only used by the writing thread. */
+  private long bytesSinceClose;
+  private final Thread flusher;
+  private final Thread checkpointer;
+
+  /**
+   * Private constructor, as journals are opened with the static {@code open} method.
+   */
+  private MutationJournal(Path directory, Durability durability,
+      CheckpointPolicy checkpointPolicy, FoodStorage foodStorage, Cookbook cookbook,
+      JournalReplay replay, long openedCheckpoint, long segmentNumber) throws IOException {
+    this.directory = directory;
+    this.durability = durability;
+    this.checkpointPolicy = checkpointPolicy;
+    this.foodStorage = foodStorage;
+    this.cookbook = cookbook;
+    this.recipeIds = new IdentityHashMap<>();
+    replay.getRecipesById().forEach((id, recipe) -> recipeIds.put(recipe, id));
+    this.nextRecipeId = replay.getNextRecipeId();
+    this.skippedRecords = replay.getSkippedRecords();
+
+    this.lock = new ReentrantLock();
+    this.recordsAppended = lock.newCondition();
+    this.recordsDurable = lock.newCondition();
+    this.segmentClosed = lock.newCondition();
+    this.pending = new JournalEncoder();
+    this.flushing = new JournalEncoder();
+    this.segmentNumber = segmentNumber;
+    this.lastClosedSegment = segmentNumber - 1;
+    this.openedCheckpoint = openedCheckpoint;
+    this.segment = createSegment(segmentNumber);
+
+    if (durability == Durability.SYNC) {
+      this.flusher = null;
+    } else {
+      this.flusher = Thread.ofPlatform().name("journal-flusher").daemon()
+          .unstarted(this::runFlusher);
+    }
+    this.checkpointer = Thread.ofPlatform().name("journal-checkpointer").daemon()
+        .unstarted(this::runCheckpointer);
+  }
+
+  /**
+   * Opens the journal in the provided directory, with the default checkpoint policy.
+   *
+   * @param directory the directory of the journal, created if it does not exist
+   * @param durability how long a change waits before it is forced to disk
+   * @param foodStorage the food storage to rebuild and record changes to
+   * @param cookbook the cook book to rebuild and record changes to
+   * @return the opened journal
+   * @throws IllegalArgumentException if any of the provided objects are null.
+   * @throws IOException if the journal could not be read or created, or is corrupt.
+   * @see #open(Path, Durability, CheckpointPolicy, FoodStorage, Cookbook)
+   */
+  public static MutationJournal open(Path directory, Durability durability,
+      FoodStorage foodStorage, Cookbook cookbook) throws IllegalArgumentException, IOException {
+    return open(directory, durability, CheckpointPolicy.DEFAULT, foodStorage, cookbook);
+  }
+
+  /**
+   * Opens the journal in the provided directory. The newest checkpoint and the changes in the
+   * journal after it are first replayed into the food storage and cook book, which should be
+   * empty, and the journal then records every later change to them in a new segment. A record
+   * whose change cannot be made is skipped, and reported by {@code getSkippedRecords}.
+   *
+   * @param directory the directory of the journal, created if it does not exist
+   * @param durability how long a change waits before it is forced to disk
+   * @param checkpointPolicy when to write checkpoints
+   * @param foodStorage the food storage to rebuild and record changes to
+   * @param cookbook the cook book to rebuild and record changes to
+   * @return the opened journal
+   * @throws IllegalArgumentException if any of the provided objects are null.
+   * @throws IOException if the journal could not be read or created, or is corrupt.
+   */
+  public static MutationJournal open(Path directory, Durability durability,
+      CheckpointPolicy checkpointPolicy, FoodStorage foodStorage, Cookbook cookbook)
+      throws IllegalArgumentException, IOException {
+    if (directory == null || durability == null || checkpointPolicy == null
+        || foodStorage == null || cookbook == null) {
+      throw new IllegalArgumentException("Directory, durability, checkpoint policy, food storage "
+          + "and cook book cannot be null");
+    }
+    Files.createDirectories(directory);
+    final JournalReplay replay = new JournalReplay(foodStorage, cookbook);
+    final List<Path> checkpoints = JournalFormat.listCheckpoints(directory);
+    long lastCheckpoint = 0;
+    if (!checkpoints.isEmpty()) {
+      replay.replayCheckpoint(checkpoints.getLast());
+      lastCheckpoint = JournalFormat.checkpointNumber(checkpoints.getLast());
+      // The checkpoint may have been written just before the journal stopped, without deleting
+      // the files it replaces.
+      JournalCheckpointer.deleteCovered(directory, lastCheckpoint);
+    }
+    long lastSegment = lastCheckpoint;
+    final List<Path> segments = JournalFormat.listSegments(directory);
+    replay.replay(segments, true);
+    if (!segments.isEmpty()) {
+      lastSegment = JournalFormat.segmentNumber(segments.getLast());
+    }
+
+    final MutationJournal journal = new MutationJournal(directory, durability,
+        checkpointPolicy, foodStorage, cookbook, replay, lastCheckpoint, lastSegment + 1);
+    if (journal.flusher != null) {
+      journal.flusher.start();
+    }
+    journal.checkpointer.start();
+    foodStorage.addChangeListener(journal);
+    cookbook.addChangeListener(journal);
+    return journal;
+  }
+
+  /**
+   * Returns the durability of the journal.
+   *
+   * @return the durability
+   */
+  public Durability getDurability() {
+    return durability;
+  }
+
+  /**
+   * Returns the checkpoint policy of the journal.
+   *
+   * @return the checkpoint policy
+   */
+  public CheckpointPolicy getCheckpointPolicy() {
+    return checkpointPolicy;
+  }
+
+  /**
+   * Returns a description of every record that was skipped when the journal was opened, as its
+   * change could not be made to the food storage or cook book.
+   *
+   * @return the descriptions, empty if every record was replayed
+   */
+  public List<String> getSkippedRecords() {
+    return skippedRecords;
+  }
+
+  /**
+   * Returns the error of the last checkpoint, if it failed. A failed checkpoint does not lose
+   * any changes, as the segments it would have replaced are kept, and it is tried again when the
+   * next segment is closed.
+   *
+   * @return the error of the last checkpoint, or null if it succeeded or none has been written
+   */
+  public IOException getCheckpointFailure() {
+    return checkpointFailure;
+  }
+
+  /**
+   * Stops recording changes, writes and forces all records appended so far to disk, and closes
+   * the current segment. Waits for a checkpoint being written to finish.
+   *
+   * @throws IOException if the remaining records could not be written.
+   */
+  @Override
+  public void close() throws IOException {
+    foodStorage.removeChangeListener(this);
+    cookbook.removeChangeListener(this);
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      recordsAppended.signalAll();
+      segmentClosed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    try {
+      if (flusher != null) {
+        flusher.join();
+      }
+      checkpointer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    segment.close();
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  @Override
+  public void groceryAdded(Grocery grocery) {
+    lock.lock();
+    try {
+      writeGrocery(beginRecord(JournalFormat.GROCERY_ADDED), grocery);
+      endRecord();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void groceryRemoved(Grocery grocery) {
+    lock.lock();
+    try {
+      beginRecord(JournalFormat.GROCERY_REMOVED).writeString(grocery.getName());
+      endRecord();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void allGroceriesRemoved() {
+    lock.lock();
+    try {
+      beginRecord(JournalFormat.ALL_GROCERIES_REMOVED);
+      endRecord();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void batchAdded(Grocery grocery, GroceryBatch batch) {
+    lock.lock();
+    try {
+      final JournalEncoder out = beginRecord(JournalFormat.BATCH_ADDED);
+      out.writeString(grocery.getName());
+      writeBatch(out, batch);
+      endRecord();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void groceryConsumed(Grocery grocery, double amount) {
+    lock.lock();
+    try {
+      final JournalEncoder out = beginRecord(JournalFormat.GROCERY_CONSUMED);
+      out.writeString(grocery.getName());
+      out.writeDouble(amount);
+      endRecord();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void recipeAdded(Recipe recipe) {
+    lock.lock();
+    try {
+      final long id = nextRecipeId++;
+      recipeIds.put(recipe, id);
+      writeRecipe(beginRecord(JournalFormat.RECIPE_ADDED), id, recipe);
+      endRecord();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void recipeRemoved(Recipe recipe) {
+    lock.lock();
+    try {
+      final long id = recipeId(recipe);
+      recipeIds.remove(recipe);
+      beginRecord(JournalFormat.RECIPE_REMOVED).writeLong(id);
+      endRecord();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void allRecipesRemoved() {
+    lock.lock();
+    try {
+      recipeIds.clear();
+      beginRecord(JournalFormat.ALL_RECIPES_REMOVED);
+      endRecord();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void recipesSorted() {
+    lock.lock();
+    try {
+      beginRecord(JournalFormat.RECIPES_SORTED);
+      endRecord();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void recipeDetailsChanged(Recipe recipe) {
+    lock.lock();
+    try {
+      final long id = recipeId(recipe);
+      final JournalEncoder out = beginRecord(JournalFormat.RECIPE_DETAILS_CHANGED);
+      out.writeLong(id);
+      writeRecipeDetails(out, recipe);
+      endRecord();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void ingredientAdded(Recipe recipe, Ingredient ingredient) {
+    lock.lock();
+    try {
+      final long id = recipeId(recipe);
+      final JournalEncoder out = beginRecord(JournalFormat.INGREDIENT_ADDED);
+      out.writeLong(id);
+      writeIngredient(out, ingredient);
+      endRecord();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void ingredientRemoved(Recipe recipe, Ingredient ingredient) {
+    lock.lock();
+    try {
+      final long id = recipeId(recipe);
+      final JournalEncoder out = beginRecord(JournalFormat.INGREDIENT_REMOVED);
+      out.writeLong(id);
+      out.writeString(ingredient.getName());
+      endRecord();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void ingredientAmountChanged(Recipe recipe, Ingredient ingredient) {
+    lock.lock();
+    try {
+      final long id = recipeId(recipe);
+      final JournalEncoder out = beginRecord(JournalFormat.INGREDIENT_AMOUNT_CHANGED);
+      out.writeLong(id);
+      out.writeString(ingredient.getName());
+      out.writeDouble(ingredient.getAmount());
+      endRecord();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Starts a new record in the pending records. Must be called while holding the lock.
+   *
+   * @param type the type of the record
+   * @return the encoder to write the fields of the record to
+   * @throws UncheckedIOException if the journal has failed.
+   * @throws IllegalStateException if the journal is closed.
+   */
+  private JournalEncoder beginRecord(byte type) {
+    if (failure != null) {
+      throw new UncheckedIOException("Journal could not be written", failure);
+    }
+    if (closed) {
+      throw new IllegalStateException(CLOSED_ERROR);
+    }
+    pending.beginRecord(type);
+    return pending;
+  }
+
+  /**
+   * Ends the current record, and waits until it is on disk if the durability requires it. With
+   * {@code Durability.GROUP}, the wait is handed to the {@link ChangeScope} of the thread, so it
+   * is run once the thread has released the locks it holds for the change. Must be called while
+   * holding the lock.
+   *
+   * @throws UncheckedIOException if the record could not be written.
+   */
+  private void endRecord() {
+    pending.endRecord();
+    final long record = ++appendedRecords;
+    switch (durability) {
+      case SYNC -> {
+        final JournalEncoder records = pending;
+        pending = flushing;
+        flushing = records;
+        try {
+          writeAndForce();
+          durableRecords = record;
+        } catch (IOException e) {
+          failure = e;
+          throw new UncheckedIOException("Journal could not be written", e);
+        }
+      }
+      case GROUP -> {
+        recordsAppended.signal();
+        // The thread making the change may hold the lock of a grocery or a server, so it waits
+        // for the disk after releasing it, and other changes can be appended to the same force.
+        ChangeScope.afterChanges(() -> awaitDurable(record));
+      }
+      case ASYNC -> {
+        // The flusher writes the record on its next round.
+      }
+      default -> throw new IllegalStateException("Unknown durability: " + durability);
+    }
+  }
+
+  /**
+   * Waits until the provided record is on disk.
+   *
+   * @throws UncheckedIOException if the record could not be written.
+   */
+  private void awaitDurable(long record) {
+    lock.lock();
+    try {
+      while (durableRecords < record && failure == null) {
+        recordsDurable.awaitUninterruptibly();
+      }
+      if (durableRecords < record) {
+        throw new UncheckedIOException("Journal could not be written", failure);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * The loop of the flusher thread. Takes all pending records at once, writes them to the
+   * segment, and forces the segment to disk, until the journal is closed.
+   */
+  private void runFlusher() {
+    while (true) {
+      final long target;
+      lock.lock();
+      try {
+        if (durability == Durability.ASYNC) {
+          // Appenders do not signal, so wake up every interval to look for records.
+          while (!closed) {
+            recordsAppended.awaitNanos(
+                TimeUnit.MILLISECONDS.toNanos(ASYNC_FLUSH_INTERVAL_MILLIS));
+            if (!pending.isEmpty()) {
+              break;
+            }
+          }
+        }
+        while (pending.isEmpty() && !closed) {
+          recordsAppended.await();
+        }
+        if (pending.isEmpty() || failure != null) {
+          return;
+        }
+        final JournalEncoder records = pending;
+        pending = flushing;
+        flushing = records;
+        target = appendedRecords;
+      } catch (InterruptedException e) {
+        return;
+      } finally {
+        lock.unlock();
+      }
+
+      IOException error = null;
+      try {
+        writeAndForce();
+      } catch (IOException e) {
+        error = e;
+      }
+
+      lock.lock();
+      try {
+        if (error != null) {
+          failure = error;
+        } else {
+          durableRecords = target;
+        }
+        recordsDurable.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * The loop of the checkpoint thread. Writes a checkpoint every time a segment is closed, and
+   * asks for the current segment to be closed when the checkpoint interval has passed, until the
+   * journal is closed. The segments written before the journal was opened are covered by a
+   * checkpoint right away.
+   */
+  private void runCheckpointer() {
+    long checkpointedSegment = openedCheckpoint;
+    long lastCheckpointNanos = System.nanoTime();
+    while (true) {
+      lock.lock();
+      try {
+        final long intervalNanos = checkpointPolicy.interval().toNanos();
+        while (!closed && lastClosedSegment == checkpointedSegment) {
+          final long waitNanos = lastCheckpointNanos + intervalNanos - System.nanoTime();
+          if (waitNanos <= 0) {
+            // Records written since the last checkpoint are in the current segment, which is
+            // closed on the next write.
+            closeSegmentRequested = true;
+            lastCheckpointNanos = System.nanoTime();
+          } else {
+            segmentClosed.awaitNanos(waitNanos);
+          }
+        }
+        if (closed) {
+          return;
+        }
+      } catch (InterruptedException e) {
+        return;
+      } finally {
+        lock.unlock();
+      }
+
+      final long lastSegment = lastClosedSegment;
+      try {
+        JournalCheckpointer.checkpoint(directory, lastSegment);
+        checkpointFailure = null;
+        checkpointedSegment = lastSegment;
+      } catch (IOException e) {
+        checkpointFailure = e;
+        // Try again with the next closed segment, instead of retrying right away.
+        checkpointedSegment = lastSegment;
+      }
+      lastCheckpointNanos = System.nanoTime();
+    }
+  }
+
+  /**
+   * Writes the records in {@code flushing} to the current segment and forces it to disk, and
+   * starts a new segment if the current one has grown too large, or a checkpoint is due.
+   *
+   * @throws IOException if the records could not be written.
+   */
+  private void writeAndForce() throws IOException {
+    bytesSinceClose += flushing.size();
+    flushing.writeTo(segment);
+    segment.force(false);
+    if (segment.position() >= SEGMENT_SIZE || bytesSinceClose >= checkpointPolicy.bytes()
+        || closeSegmentRequested) {
+      segment.close();
+      closeSegmentRequested = false;
+      bytesSinceClose = 0;
+      lastClosedSegment = segmentNumber;
+      segmentNumber++;
+      segment = createSegment(segmentNumber);
+      // The lock is reentrant, so this also works when the lock is already held, as it is with
+      // Durability.SYNC.
+      lock.lock();
+      try {
+        segmentClosed.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Creates a new segment file with the provided number, and writes its header.
+   */
+  private FileChannel createSegment(long number) throws IOException {
+    final FileChannel channel = FileChannel.open(JournalFormat.segmentPath(directory, number),
+        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    final ByteBuffer header = ByteBuffer.allocate(JournalFormat.SEGMENT_HEADER_SIZE);
+    header.putInt(JournalFormat.MAGIC).putShort(JournalFormat.FORMAT_VERSION).putShort((short) 0);
+    header.flip();
+    channel.write(header);
+    channel.force(true);
+    return channel;
+  }
+
+  private long recipeId(Recipe recipe) {
+    final Long id = recipeIds.get(recipe);
+    if (id == null) {
+      throw new IllegalStateException("Recipe is not recorded in the journal");
+    }
+    return id;
+  }
+
+  /**
+   * Writes the fields of a {@code GROCERY_ADDED} record for the provided grocery.
+   *
+   * @param out the encoder to write the fields to
+   * @param grocery the grocery
+   */
+  static void writeGrocery(JournalEncoder out, Grocery grocery) {
+    out.writeString(grocery.getName());
+    out.writeString(grocery.getCategory());
+    out.writeString(grocery.getUnit());
+    out.writeInt(grocery.getBatches().size());
+    for (GroceryBatch batch : grocery.getBatches()) {
+      writeBatch(out, batch);
+    }
+  }
+
+  /**
+   * Writes the fields of a {@code RECIPE_ADDED} record for the provided recipe.
+   *
+   * @param out the encoder to write the fields to
+   * @param id the id of the recipe in the journal
+   * @param recipe the recipe
+   */
+  static void writeRecipe(JournalEncoder out, long id, Recipe recipe) {
+    out.writeLong(id);
+    writeRecipeDetails(out, recipe);
+    out.writeInt(recipe.getIngredients().size());
+    for (Ingredient ingredient : recipe.getIngredients()) {
+      writeIngredient(out, ingredient);
+    }
+  }
+
+  private static void writeBatch(JournalEncoder out, GroceryBatch batch) {
+    out.writeDouble(batch.getAmount());
+    out.writeDouble(batch.getPricePerUnit());
+    out.writeLong(batch.getExpirationDate().toEpochDay());
+  }
+
+  private static void writeRecipeDetails(JournalEncoder out, Recipe recipe) {
+    out.writeString(recipe.getName());
+    out.writeString(recipe.getDescription());
+    out.writeString(recipe.getInstructions());
+    out.writeInt(recipe.getServings());
+  }
+
+  private static void writeIngredient(JournalEncoder out, Ingredient ingredient) {
+    out.writeString(ingredient.getName());
+    out.writeString(ingredient.getCategory());
+    out.writeString(ingredient.getUnit());
+    out.writeDouble(ingredient.getAmount());
+  }
+}
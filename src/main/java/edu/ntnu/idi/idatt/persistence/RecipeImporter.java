@@ -0,0 +1,130 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class for importing recipes into a {@link Cookbook} from CSV and JSON-lines files.
+ *
+ * <p>
+ * In a CSV file, every row is one ingredient of a recipe, with the columns {@code name},
+ * {@code description}, {@code instructions}, {@code servings}, {@code ingredientName},
+ * {@code ingredientCategory}, {@code ingredientUnit} and {@code ingredientAmount}. The rows of a
+ * recipe must follow each other, and the recipe is made from the first of them. A recipe without
+ * ingredients is a single row with empty ingredient columns. Rows with invalid ingredients are
+ * rejected, while the rest of the recipe is still imported.
+ *
+ * <p>
+ * In a JSON-lines file, every line is one recipe, with the fields {@code name},
+ * {@code description}, {@code instructions}, {@code servings} and {@code ingredients}, where the
+ * ingredients are an array of objects with the fields {@code name}, {@code category},
+ * {@code unit} and {@code amount}. A line with an invalid ingredient is rejected as a whole.
+ *
+ * <p>
+ * The values are checked by the constructors of {@link Recipe} and {@link Ingredient}. Only the
+ * recipe being read is kept in memory, apart from the recipes already added to the cook book.
+ *
+ * @see ImportResult
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class RecipeImporter extends RowImporter {
+  private static final List<String> COLUMNS = List.of("name", "description", "instructions",
+      "servings", "ingredientName", "ingredientCategory", "ingredientUnit", "ingredientAmount");
+
+  private final Cookbook cookbook;
+  /** The recipe of the current group of CSV rows, or null if it was rejected. */
+  private Recipe currentRecipe;
+  /** The name of the current group of CSV rows, as UTF-8 bytes. */
+  private byte[] currentName;
+  /** The line of the first row of the current group of CSV rows. */
+  private long currentLineNumber;
+
+  /**
+   * Constructs a new recipe importer, importing into the provided cook book.
+   *
+   * @param cookbook the cook book to add the recipes to
+   * @throws IllegalArgumentException if the cook book is null.
+   */
+  public RecipeImporter(Cookbook cookbook) throws IllegalArgumentException {
+    if (cookbook == null) {
+      throw new IllegalArgumentException("Cookbook cannot be null");
+    }
+    this.cookbook = cookbook;
+  }
+
+  /**
+   * Imports the recipes in the provided file.
+   *
+   * @param path the file to import
+   * @param format the format of the file
+   * @param progressListener the listener to tell about the progress of the import
+   * @return the result of the import
+   * @throws IllegalArgumentException if any of the provided objects are null.
+   * @throws IOException if the file could not be read, or if a CSV file is missing a column.
+   */
+  public ImportResult importRecipes(Path path, FileFormat format,
+      ImportProgressListener progressListener) throws IllegalArgumentException, IOException {
+    currentRecipe = null;
+    currentName = null;
+    return importFile(path, format, progressListener);
+  }
+
+  @Override
+  List<String> requiredCsvColumns() {
+    return COLUMNS;
+  }
+
+  @Override
+  void importCsvRow(CsvRow row, long lineNumber) throws IllegalArgumentException {
+    if (currentName == null || !row.fieldEquals("name", currentName)) {
+      final String name = row.getString("name");
+      if (currentName == null || !name.equals(new String(currentName, StandardCharsets.UTF_8))) {
+        finishRecipe();
+        currentName = name.getBytes(StandardCharsets.UTF_8);
+        currentLineNumber = lineNumber;
+        currentRecipe = new Recipe(name, row.getString("description"),
+            row.getString("instructions"), row.getInt("servings"));
+      }
+    }
+    if (currentRecipe == null) {
+      throw new IllegalArgumentException("The recipe on line " + currentLineNumber
+          + " was rejected");
+    }
+    if (row.has("ingredientName")) {
+      currentRecipe.addIngredient(new Ingredient(row.getString("ingredientName"),
+          row.getString("ingredientCategory"), row.getString("ingredientUnit"),
+          row.getDouble("ingredientAmount")));
+    }
+  }
+
+  @Override
+  void importJsonRow(Map<String, Object> object, long lineNumber)
+      throws IllegalArgumentException {
+    final Recipe recipe = JsonMessages.recipeOf(object);
+    cookbook.addRecipe(recipe);
+  }
+
+  @Override
+  void finish(ImportResult result) {
+    finishRecipe();
+    currentName = null;
+  }
+
+  /**
+   * Adds the recipe of the current group of CSV rows to the cook book, if it was not rejected.
+   */
+  private void finishRecipe() {
+    if (currentRecipe != null) {
+      cookbook.addRecipe(currentRecipe);
+      currentRecipe = null;
+    }
+  }
+}
@@ -0,0 +1,176 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.RecipeTextStore;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A {@link RecipeTextStore} keeping the descriptions and instructions of recipes in a file, so a
+ * cook book only keeps the names, servings and ingredients of its recipes in memory. Use it with
+ * {@link Cookbook#Cookbook(RecipeTextStore)}.
+ *
+ * <p>
+ * The texts are appended to the file, each as its length followed by its UTF-8 bytes, and the
+ * handle of a text is its offset in the file. The texts read or stored most recently are kept in
+ * a cache of at most a fixed number of characters, and when the cache is full, the text that was
+ * used longest ago is evicted.
+ *
+ * <p>
+ * The file only holds the texts of the recipes in memory, and the recipes themselves are saved
+ * elsewhere, so the file is emptied when opened and deleted when closed. A text that is replaced
+ * is not removed from the file. A store can be used from several threads at the same time.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class RecipeTextFile implements RecipeTextStore, Closeable {
+  /** The number of characters of texts cached by default. */
+  public static final long DEFAULT_CACHE_CHARS = 1L << 20;
+
+  private final Path file;
+  private final FileChannel channel;
+  private final long capacityChars;
+  /** The texts by their handle, in the order they were last used, least recently used first. */
+  private final LinkedHashMap<Long, String> cache;
+  private final ByteBuffer lengthBuffer;
+  private long cachedChars;
+  private long size;
+  private long hits;
+  private long misses;
+
+  private RecipeTextFile(Path file, FileChannel channel, long capacityChars) {
+    this.file = file;
+    this.channel = channel;
+    this.capacityChars = capacityChars;
+    this.cache = new LinkedHashMap<>(16, 0.75f, true);
+    this.lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+  }
+
+  /**
+   * Opens the provided file as an empty text store, creating it if it does not exist.
+   *
+   * @param file the file to keep the texts in
+   * @param capacityChars the largest number of characters of texts to cache
+   * @return the opened store
+   * @throws IOException if the file could not be opened.
+   * @throws IllegalArgumentException if the file is null, or the capacity is negative.
+   */
+  public static RecipeTextFile open(Path file, long capacityChars)
+      throws IOException, IllegalArgumentException {
+    if (file == null) {
+      throw new IllegalArgumentException("File cannot be null");
+    }
+    if (capacityChars < 0) {
+      throw new IllegalArgumentException("Cache capacity cannot be negative");
+    }
+    final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    return new RecipeTextFile(file, channel, capacityChars);
+  }
+
+  @Override
+  public synchronized long put(String text) {
+    final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + bytes.length);
+    buffer.putInt(bytes.length).put(bytes).flip();
+    final long handle = size;
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer, handle + buffer.position());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    size += buffer.limit();
+    // A text that was just stored, like one of a recipe being edited, is likely to be read soon.
+    cache(handle, text);
+    return handle;
+  }
+
+  @Override
+  public synchronized String get(long handle) {
+    final String cached = cache.get(handle);
+    if (cached != null) {
+      hits++;
+      return cached;
+    }
+    misses++;
+    try {
+      readFully(lengthBuffer.clear(), handle);
+      final ByteBuffer bytes = ByteBuffer.allocate(lengthBuffer.getInt(0));
+      readFully(bytes, handle + Integer.BYTES);
+      final String text = new String(bytes.array(), StandardCharsets.UTF_8);
+      cache(handle, text);
+      return text;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns how many times a text was found in the cache.
+   *
+   * @return the number of cache hits
+   */
+  public synchronized long getCacheHits() {
+    return hits;
+  }
+
+  /**
+   * Returns how many times a text was not found in the cache, and had to be read from the file.
+   *
+   * @return the number of cache misses
+   */
+  public synchronized long getCacheMisses() {
+    return misses;
+  }
+
+  /**
+   * Closes and deletes the file. The texts in the store cannot be read afterwards.
+   *
+   * @throws IOException if the file could not be closed or deleted.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    cache.clear();
+    cachedChars = 0;
+    channel.close();
+    Files.deleteIfExists(file);
+  }
+
+  /**
+   * Adds a text to the cache, evicting the least recently used texts until it fits. A text longer
+   * than the whole cache is not added.
+   */
+  private void cache(long handle, String text) {
+    if (text.length() > capacityChars) {
+      return;
+    }
+    final String previous = cache.put(handle, text);
+    cachedChars += text.length() - (previous == null ? 0 : previous.length());
+    final Iterator<String> eldest = cache.values().iterator();
+    while (cachedChars > capacityChars) {
+      cachedChars -= eldest.next().length();
+      eldest.remove();
+    }
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Text file ended early");
+      }
+    }
+  }
+}
@@ -0,0 +1,204 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * A class for exporting reports of the groceries in a {@link FoodStorage} and the recipes in a
+ * {@link Cookbook} to CSV or JSON-lines files.
+ *
+ * <p>
+ * Provides the following reports:
+ * <ul>
+ * <li>The inventory, with one row for each batch of each grocery, and the value of the batch. The
+ *     file can be imported again with {@link GroceryImporter}.
+ * <li>The batches expiring on or before a date, with the number of days until they expire.
+ * <li>The availability of each recipe, with the ingredients missing from the food storage.
+ * </ul>
+ *
+ * <p>
+ * The reports are written while the food storage and cook book are iterated, without collecting
+ * the rows in lists or strings first, so the memory used does not depend on the size of the
+ * report. The rows are therefore not sorted. A report replaces the file only once it has been
+ * written in full.
+ *
+ * @see ReportWriter
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class ReportExporter {
+  private static final String NULL_ARGUMENT_ERROR = "Arguments cannot be null";
+
+  /** Private constructor to prevent instantiation. */
+  private ReportExporter() {}
+
+  /**
+   * An action performed for each grocery in a food storage, which can fail with an
+   * {@code IOException}.
+   */
+  @FunctionalInterface
+  private interface GroceryAction {
+    void accept(Grocery grocery) throws IOException;
+  }
+
+  /**
+   * Exports the inventory of the food storage, with one row for each batch of each grocery.
+   *
+   * @param path the file to write the report to
+   * @param format the format of the report
+   * @param foodStorage the food storage to export the groceries of
+   * @return the number of rows written
+   * @throws IllegalArgumentException if any of the provided objects are null.
+   * @throws IOException if the file could not be written.
+   */
+  public static long exportInventory(Path path, FileFormat format, FoodStorage foodStorage)
+      throws IllegalArgumentException, IOException {
+    if (path == null || format == null || foodStorage == null) {
+      throw new IllegalArgumentException(NULL_ARGUMENT_ERROR);
+    }
+    try (ReportWriter writer = new ReportWriter(path, format, "name", "category", "unit",
+        "amount", "pricePerUnit", "expirationDate", "value")) {
+      forEachGrocery(foodStorage, grocery -> {
+        for (GroceryBatch batch : grocery.getBatches()) {
+          writer.beginRow();
+          writer.field(grocery.getName());
+          writer.field(grocery.getCategory());
+          writer.field(grocery.getUnit());
+          writer.field(batch.getAmount());
+          writer.field(batch.getPricePerUnit());
+          writer.field(batch.getExpirationDate());
+          writer.field(batch.getAmount() * batch.getPricePerUnit());
+          writer.endRow();
+        }
+      });
+      writer.commit();
+      return writer.getRows();
+    }
+  }
+
+  /**
+   * Exports the batches of the groceries in the food storage that expire on or before the
+   * provided date. The number of days until each batch expires is counted from the current date,
+   * and is negative for batches that have already expired.
+   *
+   * @param path the file to write the report to
+   * @param format the format of the report
+   * @param foodStorage the food storage to export the batches of
+   * @param currentDate the date to count the days until expiry from
+   * @param lastDate the last expiration date to include
+   * @return the number of rows written
+   * @throws IllegalArgumentException if any of the provided objects are null.
+   * @throws IOException if the file could not be written.
+   */
+  public static long exportExpiringBatches(Path path, FileFormat format, FoodStorage foodStorage,
+      LocalDate currentDate, LocalDate lastDate) throws IllegalArgumentException, IOException {
+    if (path == null || format == null || foodStorage == null || currentDate == null
+        || lastDate == null) {
+      throw new IllegalArgumentException(NULL_ARGUMENT_ERROR);
+    }
+    try (ReportWriter writer = new ReportWriter(path, format, "name", "category", "unit",
+        "amount", "expirationDate", "daysUntilExpiry", "expired")) {
+      forEachGrocery(foodStorage, grocery -> {
+        // The batches are sorted by expiration date, so the rest of them expire later.
+        for (GroceryBatch batch : grocery.getBatches()) {
+          if (batch.getExpirationDate().isAfter(lastDate)) {
+            break;
+          }
+          writer.beginRow();
+          writer.field(grocery.getName());
+          writer.field(grocery.getCategory());
+          writer.field(grocery.getUnit());
+          writer.field(batch.getAmount());
+          writer.field(batch.getExpirationDate());
+          writer.field(ChronoUnit.DAYS.between(currentDate, batch.getExpirationDate()));
+          writer.field(batch.getExpirationDate().isBefore(currentDate));
+          writer.endRow();
+        }
+      });
+      writer.commit();
+      return writer.getRows();
+    }
+  }
+
+  /**
+   * Exports the availability of each recipe in the cook book. An ingredient is available if the
+   * food storage has a grocery with the same name, of at least the amount the recipe needs, and a
+   * recipe can be made if all its ingredients are available.
+   *
+   * @param path the file to write the report to
+   * @param format the format of the report
+   * @param foodStorage the food storage to look for the ingredients in
+   * @param cookbook the cook book to export the recipes of
+   * @return the number of rows written
+   * @throws IllegalArgumentException if any of the provided objects are null.
+   * @throws IOException if the file could not be written.
+   */
+  public static long exportRecipeAvailability(Path path, FileFormat format,
+      FoodStorage foodStorage, Cookbook cookbook) throws IllegalArgumentException, IOException {
+    if (path == null || format == null || foodStorage == null || cookbook == null) {
+      throw new IllegalArgumentException(NULL_ARGUMENT_ERROR);
+    }
+    try (ReportWriter writer = new ReportWriter(path, format, "name", "servings", "ingredients",
+        "availableIngredients", "canBeMade", "missingIngredients")) {
+      for (Recipe recipe : cookbook.getRecipes()) {
+        int available = 0;
+        for (Ingredient ingredient : recipe.getIngredients()) {
+          if (isAvailable(foodStorage, ingredient)) {
+            available++;
+          }
+        }
+        writer.beginRow();
+        writer.field(recipe.getName());
+        writer.field(recipe.getServings());
+        writer.field(recipe.getIngredients().size());
+        writer.field(available);
+        writer.field(available == recipe.getIngredients().size());
+        writer.beginList();
+        for (Ingredient ingredient : recipe.getIngredients()) {
+          if (!isAvailable(foodStorage, ingredient)) {
+            writer.listItem(ingredient.getName());
+          }
+        }
+        writer.endList();
+        writer.endRow();
+      }
+      writer.commit();
+      return writer.getRows();
+    }
+  }
+
+  private static boolean isAvailable(FoodStorage foodStorage, Ingredient ingredient) {
+    return foodStorage.containsGrocery(ingredient.getName())
+        && foodStorage.getGroceryByName(ingredient.getName()).getTotalAmount()
+            >= ingredient.getAmount();
+  }
+
+  /**
+   * Performs an action for each grocery in the food storage, passing on any
+   * {@code IOException} thrown by the action.
+   */
+  private static void forEachGrocery(FoodStorage foodStorage, GroceryAction action)
+      throws IOException {
+    try {
+      foodStorage.forEachGrocery(grocery -> {
+        try {
+          action.accept(grocery);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+}
@@ -0,0 +1,415 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * Writes the rows of a report to a CSV or JSON-lines file, one field at a time.
+ *
+ * <p>
+ * The fields are encoded as UTF-8 straight into a direct buffer, which is written to the file
+ * channel whenever it is full, so no strings are built for the rows, and the memory used does not
+ * depend on the size of the report. Numbers are formatted in a reused {@code StringBuilder}.
+ *
+ * <p>
+ * A CSV file starts with a header row naming the columns, and a JSON-lines file has one object
+ * on each line, with the column names as field names. The report is written to a temporary file
+ * next to the target, which is moved in place by {@link #commit()}. If the writer is closed
+ * without being committed, the temporary file is deleted and the target is left unchanged.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+final class ReportWriter implements Closeable {
+  private static final int BUFFER_SIZE = 1 << 16;
+  /** The largest number of bytes a single character is encoded as. */
+  private static final int MAX_CHAR_BYTES = 6;
+  private static final byte[] HEX_DIGITS =
+      "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+  private final FileFormat format;
+  private final String[] columns;
+  private final Path path;
+  private final Path temporaryPath;
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private final StringBuilder number;
+  /** The index of the next field of the current row. */
+  private int column;
+  /** The number of items written to the current list, or -1 if no list is being written. */
+  private int listItems;
+  private long rows;
+  private boolean committed;
+
+  /**
+   * Opens a writer for a report with the provided columns. For a CSV file, the header row is
+   * written at once.
+   *
+   * @param path the file to write the report to
+   * @param format the format of the report
+   * @param columns the names of the columns, in the order the fields of each row are written
+   * @throws IOException if the file could not be created.
+   */
+  ReportWriter(Path path, FileFormat format, String... columns) throws IOException {
+    this.format = format;
+    this.columns = columns;
+    this.path = path.toAbsolutePath();
+    this.temporaryPath = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+    this.channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    this.number = new StringBuilder(32);
+    this.listItems = -1;
+
+    if (format == FileFormat.CSV) {
+      for (int i = 0; i < columns.length; i++) {
+        if (i > 0) {
+          put(',');
+        }
+        writeCsvText(columns[i]);
+      }
+      put('\n');
+    }
+  }
+
+  /**
+   * Returns the number of rows written, not counting the header row of a CSV file.
+   *
+   * @return the number of rows
+   */
+  long getRows() {
+    return rows;
+  }
+
+  /**
+   * Starts a new row.
+   *
+   * @throws IOException if the file could not be written.
+   */
+  void beginRow() throws IOException {
+    column = 0;
+    if (format == FileFormat.JSON_LINES) {
+      put('{');
+    }
+  }
+
+  /**
+   * Ends the current row.
+   *
+   * @throws IllegalStateException if not every column of the row has been written.
+   * @throws IOException if the file could not be written.
+   */
+  void endRow() throws IllegalStateException, IOException {
+    if (column != columns.length) {
+      throw new IllegalStateException("Row has " + column + " of " + columns.length + " fields");
+    }
+    if (format == FileFormat.JSON_LINES) {
+      put('}');
+    }
+    put('\n');
+    rows++;
+  }
+
+  /**
+   * Writes a text field.
+   *
+   * @param text the text to write
+   * @throws IOException if the file could not be written.
+   */
+  void field(CharSequence text) throws IOException {
+    beginField();
+    if (format == FileFormat.CSV) {
+      writeCsvText(text);
+    } else {
+      writeJsonText(text);
+    }
+  }
+
+  /**
+   * Writes a number field.
+   *
+   * @param value the number to write
+   * @throws IOException if the file could not be written.
+   */
+  void field(double value) throws IOException {
+    beginField();
+    number.setLength(0);
+    if (value == (long) value) {
+      number.append((long) value);
+    } else {
+      number.append(value);
+    }
+    writeChars(number);
+  }
+
+  /**
+   * Writes a whole number field.
+   *
+   * @param value the number to write
+   * @throws IOException if the file could not be written.
+   */
+  void field(long value) throws IOException {
+    beginField();
+    number.setLength(0);
+    writeChars(number.append(value));
+  }
+
+  /**
+   * Writes a field that is either true or false.
+   *
+   * @param value the value to write
+   * @throws IOException if the file could not be written.
+   */
+  void field(boolean value) throws IOException {
+    beginField();
+    writeChars(value ? "true" : "false");
+  }
+
+  /**
+   * Writes a date field, in the format yyyy-mm-dd.
+   *
+   * @param date the date to write
+   * @throws IOException if the file could not be written.
+   */
+  void field(LocalDate date) throws IOException {
+    beginField();
+    if (format == FileFormat.JSON_LINES) {
+      put('"');
+    }
+    if (date.getYear() < 0 || date.getYear() > 9999) {
+      writeChars(date.toString());
+    } else {
+      putDigits(date.getYear(), 4);
+      put('-');
+      putDigits(date.getMonthValue(), 2);
+      put('-');
+      putDigits(date.getDayOfMonth(), 2);
+    }
+    if (format == FileFormat.JSON_LINES) {
+      put('"');
+    }
+  }
+
+  /**
+   * Starts a field holding a list of texts. In a CSV file the texts are written as a single
+   * quoted field, separated by semicolons, and in a JSON-lines file they are written as an array.
+   *
+   * @throws IOException if the file could not be written.
+   */
+  void beginList() throws IOException {
+    beginField();
+    put(format == FileFormat.CSV ? '"' : '[');
+    listItems = 0;
+  }
+
+  /**
+   * Writes a text to the list started by {@link #beginList()}.
+   *
+   * @param text the text to write
+   * @throws IOException if the file could not be written.
+   */
+  void listItem(CharSequence text) throws IOException {
+    if (format == FileFormat.CSV) {
+      if (listItems > 0) {
+        put(';');
+        put(' ');
+      }
+      writeEscaped(text, true);
+    } else {
+      if (listItems > 0) {
+        put(',');
+      }
+      writeJsonText(text);
+    }
+    listItems++;
+  }
+
+  /**
+   * Ends the list started by {@link #beginList()}.
+   *
+   * @throws IOException if the file could not be written.
+   */
+  void endList() throws IOException {
+    put(format == FileFormat.CSV ? '"' : ']');
+    listItems = -1;
+  }
+
+  /**
+   * Writes the rest of the report to the file, and moves the file in place of the target.
+   *
+   * @throws IOException if the file could not be written or moved.
+   */
+  void commit() throws IOException {
+    flush();
+    channel.force(true);
+    channel.close();
+    Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    committed = true;
+  }
+
+  /**
+   * Closes the file. If the report has not been committed, the temporary file is deleted.
+   *
+   * @throws IOException if the file could not be closed or deleted.
+   */
+  @Override
+  public void close() throws IOException {
+    if (!committed) {
+      channel.close();
+      Files.deleteIfExists(temporaryPath);
+    }
+  }
+
+  /**
+   * Writes what comes before the value of the next field, which is a comma if it is not the first
+   * field, and the name of the column in a JSON-lines file.
+   */
+  private void beginField() throws IOException {
+    if (column == columns.length) {
+      throw new IllegalStateException("Row already has " + columns.length + " fields");
+    }
+    if (column > 0) {
+      put(',');
+    }
+    if (format == FileFormat.JSON_LINES) {
+      writeJsonText(columns[column]);
+      put(':');
+    }
+    column++;
+  }
+
+  /**
+   * Writes a text as a CSV field, in quotes if it contains a comma, a quote or a line break, or
+   * starts or ends with white space, since such fields would otherwise be read differently.
+   */
+  private void writeCsvText(CharSequence text) throws IOException {
+    boolean quote = !text.isEmpty() && (Character.isWhitespace(text.charAt(0))
+        || Character.isWhitespace(text.charAt(text.length() - 1)));
+    for (int i = 0; i < text.length() && !quote; i++) {
+      final char c = text.charAt(i);
+      quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+    if (quote) {
+      put('"');
+      writeEscaped(text, true);
+      put('"');
+    } else {
+      writeChars(text);
+    }
+  }
+
+  /**
+   * Writes a text as a JSON string, in quotes.
+   */
+  private void writeJsonText(CharSequence text) throws IOException {
+    put('"');
+    writeEscaped(text, false);
+    put('"');
+  }
+
+  /**
+   * Writes a text, escaping the characters that cannot appear in a quoted CSV field or a JSON
+   * string. In a CSV field, quotes are doubled. In a JSON string, quotes, backslashes and control
+   * characters are escaped with a backslash.
+   */
+  private void writeEscaped(CharSequence text, boolean csv) throws IOException {
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      if (csv) {
+        if (c == '"') {
+          put('"');
+        }
+      } else if (c == '"' || c == '\\') {
+        put('\\');
+      } else if (c < 0x20) {
+        ensureRemaining(MAX_CHAR_BYTES);
+        switch (c) {
+          case '\n' -> buffer.put((byte) '\\').put((byte) 'n');
+          case '\r' -> buffer.put((byte) '\\').put((byte) 'r');
+          case '\t' -> buffer.put((byte) '\\').put((byte) 't');
+          default -> buffer.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+              .put(HEX_DIGITS[c >> 4]).put(HEX_DIGITS[c & 0xF]);
+        }
+        continue;
+      }
+      i = writeChar(text, i);
+    }
+  }
+
+  /**
+   * Writes a text as it is, encoded as UTF-8.
+   */
+  private void writeChars(CharSequence text) throws IOException {
+    for (int i = 0; i < text.length(); i++) {
+      i = writeChar(text, i);
+    }
+  }
+
+  /**
+   * Writes the character at the provided index of a text, encoded as UTF-8. A character outside
+   * the basic multilingual plane is written from its surrogate pair, and a lone surrogate is
+   * written as a question mark.
+   *
+   * @return the index of the last char written, which is one more than the provided index if a
+   *         surrogate pair was written
+   */
+  private int writeChar(CharSequence text, int index) throws IOException {
+    ensureRemaining(MAX_CHAR_BYTES);
+    final char c = text.charAt(index);
+    if (c < 0x80) {
+      buffer.put((byte) c);
+    } else if (c < 0x800) {
+      buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+    } else if (!Character.isSurrogate(c)) {
+      buffer.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F))
+          .put((byte) (0x80 | c & 0x3F));
+    } else if (Character.isHighSurrogate(c) && index + 1 < text.length()
+        && Character.isLowSurrogate(text.charAt(index + 1))) {
+      final int codePoint = Character.toCodePoint(c, text.charAt(index + 1));
+      buffer.put((byte) (0xF0 | codePoint >> 18)).put((byte) (0x80 | codePoint >> 12 & 0x3F))
+          .put((byte) (0x80 | codePoint >> 6 & 0x3F)).put((byte) (0x80 | codePoint & 0x3F));
+      return index + 1;
+    } else {
+      buffer.put((byte) '?');
+    }
+    return index;
+  }
+
+  /**
+   * Writes a number with the provided number of digits, padded with leading zeros.
+   */
+  private void putDigits(int value, int digits) throws IOException {
+    ensureRemaining(digits);
+    for (int divisor = (int) Math.pow(10, digits - 1); divisor > 0; divisor /= 10) {
+      buffer.put((byte) ('0' + value / divisor % 10));
+    }
+  }
+
+  private void put(char c) throws IOException {
+    ensureRemaining(1);
+    buffer.put((byte) c);
+  }
+
+  private void ensureRemaining(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      flush();
+    }
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
@@ -0,0 +1,170 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The common part of {@link GroceryImporter} and {@link RecipeImporter}, which reads a CSV or
+ * JSON-lines file one row at a time and passes each row on to the subclass.
+ *
+ * <p>
+ * A row that cannot be imported, because it cannot be parsed or because the model classes reject
+ * its values, is counted and reported in the {@link ImportResult}, and the import goes on with the
+ * next row. Only one row is kept in memory at a time.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+abstract class RowImporter {
+  /** How many rows are read between each call to the progress listener. */
+  static final int PROGRESS_INTERVAL = 100_000;
+
+  /**
+   * Imports all rows of a file.
+   *
+   * @param path the file to import
+   * @param format the format of the file
+   * @param progressListener the listener to tell about the progress of the import
+   * @return the result of the import
+   * @throws IllegalArgumentException if any of the provided objects are null.
+   * @throws IOException if the file could not be read, or if a CSV file is missing a column.
+   */
+  ImportResult importFile(Path path, FileFormat format, ImportProgressListener progressListener)
+      throws IllegalArgumentException, IOException {
+    if (path == null || format == null || progressListener == null) {
+      throw new IllegalArgumentException("Path, format and progress listener cannot be null");
+    }
+    final ImportResult result = new ImportResult();
+    final JsonLineParser jsonParser = new JsonLineParser();
+    CsvRow csvRow = null;
+    long rows = 0;
+
+    try (LineSource lines = new LineSource(path, format == FileFormat.CSV)) {
+      while (lines.nextLine()) {
+        if (lines.isBlank()) {
+          continue;
+        }
+        final byte[] bytes = lines.getBuffer();
+        if (format == FileFormat.CSV && csvRow == null) {
+          try {
+            csvRow = new CsvRow(bytes, lines.getLineStart(), lines.getLineEnd(),
+                requiredCsvColumns());
+          } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid header row: " + e.getMessage(), e);
+          }
+          continue;
+        }
+
+        try {
+          if (format == FileFormat.CSV) {
+            csvRow.tokenize(bytes, lines.getLineStart(), lines.getLineEnd());
+            importCsvRow(csvRow, lines.getLineNumber());
+          } else {
+            importJsonRow(jsonParser.parseObject(bytes, lines.getLineStart(),
+                lines.getLineEnd()), lines.getLineNumber());
+          }
+          result.rowImported();
+        } catch (IllegalArgumentException e) {
+          result.rowRejected(lines.getLineNumber(), e.getMessage());
+        }
+
+        if (++rows % PROGRESS_INTERVAL == 0) {
+          progressListener.progress(lines.getBytesRead(), lines.getFileSize(), rows);
+        }
+      }
+      finish(result);
+      progressListener.progress(lines.getBytesRead(), lines.getFileSize(), rows);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the names of the columns a CSV file must have.
+   *
+   * @return the required column names
+   */
+  abstract List<String> requiredCsvColumns();
+
+  /**
+   * Imports a row of a CSV file.
+   *
+   * @param row the row to import
+   * @param lineNumber the line in the file where the row starts
+   * @throws IllegalArgumentException if the row could not be imported.
+   */
+  abstract void importCsvRow(CsvRow row, long lineNumber) throws IllegalArgumentException;
+
+  /**
+   * Imports a row of a JSON-lines file.
+   *
+   * @param object the fields of the JSON object on the row
+   * @param lineNumber the line in the file where the row starts
+   * @throws IllegalArgumentException if the row could not be imported.
+   */
+  abstract void importJsonRow(Map<String, Object> object, long lineNumber)
+      throws IllegalArgumentException;
+
+  /**
+   * Called after the last row of the file has been imported. Does nothing by default.
+   *
+   * @param result the result of the import, to report rejected rows to
+   */
+  void finish(ImportResult result) {}
+
+  /**
+   * Returns a string field of a JSON object.
+   *
+   * @throws IllegalArgumentException if the field is missing or not a string.
+   */
+  static String getString(Map<String, Object> object, String field)
+      throws IllegalArgumentException {
+    if (!(object.get(field) instanceof String value)) {
+      throw new IllegalArgumentException("Missing text value for " + field);
+    }
+    return value;
+  }
+
+  /**
+   * Returns a number field of a JSON object.
+   *
+   * @throws IllegalArgumentException if the field is missing or not a number.
+   */
+  static double getDouble(Map<String, Object> object, String field)
+      throws IllegalArgumentException {
+    if (!(object.get(field) instanceof Double value)) {
+      throw new IllegalArgumentException("Missing number value for " + field);
+    }
+    return value;
+  }
+
+  /**
+   * Returns a whole number field of a JSON object.
+   *
+   * @throws IllegalArgumentException if the field is missing or not a whole number.
+   */
+  static int getInt(Map<String, Object> object, String field) throws IllegalArgumentException {
+    final double value = getDouble(object, field);
+    if (value != Math.rint(value) || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid whole number for " + field);
+    }
+    return (int) value;
+  }
+
+  /**
+   * Returns a date field of a JSON object, written as a string in the format yyyy-mm-dd.
+   *
+   * @throws IllegalArgumentException if the field is missing or not a valid date.
+   */
+  static LocalDate getDate(Map<String, Object> object, String field)
+      throws IllegalArgumentException {
+    try {
+      return LocalDate.parse(getString(object, field));
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Invalid date for " + field);
+    }
+  }
+}
@@ -0,0 +1,450 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * The differences between two snapshots, used to sync the food storage and cook book of one
+ * household with the ones of another, by sending only what differs as a patch file.
+ *
+ * <p>
+ * The snapshots are compared with the {@link MerkleTree} hash trees in their
+ * {@link SnapshotIndex}, starting at the roots. Only the nodes whose hashes differ are followed
+ * down, so when two snapshots are mostly the same, only the groceries and recipes near a
+ * difference are read, and comparing them takes time proportional to the number of differences
+ * rather than to the size of the snapshots. A grocery differs if its category, unit or batches
+ * differ, and the recipes with a name differ if any of them differ, or if there are more or fewer
+ * of them.
+ *
+ * <p>
+ * A patch file holds the groceries to put, the names of the groceries to remove, and the recipes
+ * to replace the recipes with a name with, so that applying it to the food storage and cook book
+ * of the first snapshot makes them equal to the ones of the second. The records are framed like
+ * the records of a {@link MutationJournal}, and all numbers are big-endian.
+ *
+ * <pre>
+ * header:  int magic, short format version, short reserved
+ * record:  int body length, int CRC-32 of the body, then the body:
+ *          byte 1 (put grocery), string name, string category, string unit, int batch count,
+ *                 then per batch: double amount, double price per unit, long expiration day
+ *          byte 2 (remove grocery), string name
+ *          byte 3 (replace recipes), string name, int recipe count, then per recipe:
+ *                 string description, string instructions, int servings, int ingredient count,
+ *                 then per ingredient: string name, string category, string unit, double amount
+ * string:  int length, then UTF-8 bytes
+ * </pre>
+ *
+ * @see SnapshotIndex
+ * @see MerkleTree
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class SnapshotDiff {
+  /** The first four bytes of every patch file, "FWPT". */
+  private static final int MAGIC = 0x46575054;
+  private static final short FORMAT_VERSION = 1;
+  private static final int HEADER_SIZE = 8;
+  private static final byte GROCERY_PUT = 1;
+  private static final byte GROCERY_REMOVED = 2;
+  private static final byte RECIPES_REPLACED = 3;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final MappedSnapshot target;
+  /** The indexes in the second snapshot of the groceries that were added or changed. */
+  private final List<Integer> changedGroceries = new ArrayList<>();
+  /** The names of the groceries that are only in the first snapshot. */
+  private final List<String> removedGroceries = new ArrayList<>();
+  /** The indexes in the second snapshot of the recipes with each name that changed. */
+  private final Map<String, List<Integer>> changedRecipes = new TreeMap<>();
+  private int comparedNodes;
+
+  private SnapshotDiff(MappedSnapshot target) {
+    this.target = target;
+  }
+
+  /**
+   * Compares two snapshots by their indexes.
+   *
+   * @param from the indexes of the snapshot to sync from
+   * @param to the indexes of the snapshot to sync to
+   * @return the differences between the snapshots
+   * @throws IllegalArgumentException if any of the provided indexes are null.
+   */
+  public static SnapshotDiff compare(SnapshotIndex from, SnapshotIndex to)
+      throws IllegalArgumentException {
+    if (from == null || to == null) {
+      throw new IllegalArgumentException("Snapshot indexes cannot be null");
+    }
+    final SnapshotDiff diff = new SnapshotDiff(to.getSnapshot());
+    diff.compareNode(from.getGroceryTree(), to.getGroceryTree(), 0, 0,
+        (fromRange, toRange) -> diff.compareGroceries(from.getSnapshot(), fromRange, toRange));
+    diff.compareNode(from.getRecipeTree(), to.getRecipeTree(), 0, 0,
+        (fromRange, toRange) -> diff.compareRecipes(from.getSnapshot(), fromRange, toRange));
+    return diff;
+  }
+
+  /**
+   * Returns the number of groceries that were added or changed.
+   *
+   * @return the number of groceries to put
+   */
+  public int getChangedGroceryCount() {
+    return changedGroceries.size();
+  }
+
+  /**
+   * Returns the number of groceries that were removed.
+   *
+   * @return the number of groceries to remove
+   */
+  public int getRemovedGroceryCount() {
+    return removedGroceries.size();
+  }
+
+  /**
+   * Returns the number of recipe names whose recipes were added, changed or removed.
+   *
+   * @return the number of recipe names to replace the recipes of
+   */
+  public int getChangedRecipeNameCount() {
+    return changedRecipes.size();
+  }
+
+  /**
+   * Returns the number of nodes of the hash trees that were compared, which grows with the
+   * number of differences, and not with the size of the snapshots.
+   *
+   * @return the number of compared nodes
+   */
+  public int getComparedNodeCount() {
+    return comparedNodes;
+  }
+
+  /**
+   * Returns true if the snapshots have the same groceries and recipes.
+   *
+   * @return true if there are no differences, false otherwise
+   */
+  public boolean isEmpty() {
+    return changedGroceries.isEmpty() && removedGroceries.isEmpty() && changedRecipes.isEmpty();
+  }
+
+  /**
+   * Writes the differences to a patch file. The file is written to a temporary file first, and
+   * moved in place once it is on disk.
+   *
+   * @param path the patch file to write
+   * @throws IllegalArgumentException if the path is null.
+   * @throws IOException if the file could not be written.
+   */
+  public void writePatch(Path path) throws IllegalArgumentException, IOException {
+    if (path == null) {
+      throw new IllegalArgumentException("Path cannot be null");
+    }
+    final Path absolutePath = path.toAbsolutePath();
+    final Path temporaryPath = absolutePath.resolveSibling(absolutePath.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(MAGIC).putShort(FORMAT_VERSION).putShort((short) 0);
+      header.flip();
+      channel.write(header);
+
+      final JournalEncoder out = new JournalEncoder();
+      for (String name : removedGroceries) {
+        out.beginRecord(GROCERY_REMOVED);
+        out.writeString(name);
+        out.endRecord();
+        flushIfFull(out, channel);
+      }
+      for (int index : changedGroceries) {
+        out.beginRecord(GROCERY_PUT);
+        MutationJournal.writeGrocery(out, target.getGrocery(index));
+        out.endRecord();
+        flushIfFull(out, channel);
+      }
+      for (Map.Entry<String, List<Integer>> entry : changedRecipes.entrySet()) {
+        out.beginRecord(RECIPES_REPLACED);
+        out.writeString(entry.getKey());
+        out.writeInt(entry.getValue().size());
+        for (int index : entry.getValue()) {
+          final Recipe recipe = target.getRecipe(index);
+          out.writeString(recipe.getDescription());
+          out.writeString(recipe.getInstructions());
+          out.writeInt(recipe.getServings());
+          out.writeInt(recipe.getIngredients().size());
+          for (Ingredient ingredient : recipe.getIngredients()) {
+            out.writeString(ingredient.getName());
+            out.writeString(ingredient.getCategory());
+            out.writeString(ingredient.getUnit());
+            out.writeDouble(ingredient.getAmount());
+          }
+        }
+        out.endRecord();
+        flushIfFull(out, channel);
+      }
+      out.writeTo(channel);
+      channel.force(true);
+    }
+    Files.move(temporaryPath, absolutePath, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Applies a patch file to a food storage and cook book. The whole file is read and checked
+   * before anything is changed, so a corrupt patch changes nothing.
+   *
+   * @param path the patch file
+   * @param foodStorage the food storage to put and remove groceries in
+   * @param cookbook the cook book to replace recipes in
+   * @return the number of records applied
+   * @throws IllegalArgumentException if any of the provided objects are null, or if the patch
+   *         contains a grocery or recipe that is not valid.
+   * @throws IOException if the file could not be read, or is not a valid patch file.
+   */
+  public static int applyPatch(Path path, FoodStorage foodStorage, Cookbook cookbook)
+      throws IllegalArgumentException, IOException {
+    if (path == null || foodStorage == null || cookbook == null) {
+      throw new IllegalArgumentException("Path, food storage and cookbook cannot be null");
+    }
+    final List<ByteBuffer> records = readPatch(path);
+
+    final Map<String, List<Recipe>> recipesByName = new HashMap<>();
+    for (ByteBuffer body : records) {
+      final byte type = body.get();
+      switch (type) {
+        case GROCERY_PUT -> {
+          final Grocery grocery = readGrocery(body);
+          if (foodStorage.containsGrocery(grocery.getName())) {
+            foodStorage.removeGrocery(foodStorage.getGroceryByName(grocery.getName()));
+          }
+          foodStorage.addGrocery(grocery);
+        }
+        case GROCERY_REMOVED -> {
+          final String name = readString(body);
+          if (foodStorage.containsGrocery(name)) {
+            foodStorage.removeGrocery(foodStorage.getGroceryByName(name));
+          }
+        }
+        case RECIPES_REPLACED -> {
+          final String name = readString(body);
+          final List<Recipe> recipes = new ArrayList<>();
+          final int recipeCount = body.getInt();
+          for (int i = 0; i < recipeCount; i++) {
+            recipes.add(readRecipe(name, body));
+          }
+          recipesByName.put(name, recipes);
+        }
+        default -> throw new IOException("Unknown patch record type: " + type);
+      }
+    }
+
+    // The recipes are replaced in one pass over the cook book, instead of one pass per name.
+    if (!recipesByName.isEmpty()) {
+      for (Recipe recipe : cookbook.getRecipes()) {
+        if (recipesByName.containsKey(recipe.getName())) {
+          cookbook.removeRecipe(recipe);
+        }
+      }
+      recipesByName.values().forEach(recipes -> recipes.forEach(cookbook::addRecipe));
+    }
+    return records.size();
+  }
+
+  /**
+   * Compares the nodes at the same level and position in two trees, and follows the children of
+   * nodes that differ, until the deepest level both trees have.
+   */
+  private void compareNode(MerkleTree from, MerkleTree to, int level, int position,
+      RangeComparator leaves) {
+    comparedNodes++;
+    if (from.getNodeHash(level, position) == to.getNodeHash(level, position)) {
+      return;
+    }
+    if (level == Math.min(from.getDepth(), to.getDepth())) {
+      leaves.compare(range(from, level, position), range(to, level, position));
+      return;
+    }
+    compareNode(from, to, level + 1, 2 * position, leaves);
+    compareNode(from, to, level + 1, 2 * position + 1, leaves);
+  }
+
+  private static Range range(MerkleTree tree, int level, int position) {
+    return new Range(tree, tree.getFirstEntry(level, position),
+        tree.getFirstEntry(level, position + 1));
+  }
+
+  /**
+   * Compares the groceries covered by two differing nodes by name and content hash.
+   */
+  private void compareGroceries(MappedSnapshot from, Range fromRange, Range toRange) {
+    final Map<String, Long> fromHashes = new HashMap<>();
+    for (int entry = fromRange.first; entry < fromRange.end; entry++) {
+      fromHashes.put(from.getGroceryName(fromRange.tree.getEntryIndex(entry)),
+          fromRange.tree.getEntryHash(entry));
+    }
+    for (int entry = toRange.first; entry < toRange.end; entry++) {
+      final int index = toRange.tree.getEntryIndex(entry);
+      final Long fromHash = fromHashes.remove(target.getGroceryName(index));
+      if (fromHash == null || fromHash != toRange.tree.getEntryHash(entry)) {
+        changedGroceries.add(index);
+      }
+    }
+    removedGroceries.addAll(fromHashes.keySet());
+  }
+
+  /**
+   * Compares the recipes covered by two differing nodes, by the sum of the content hashes of the
+   * recipes with each name.
+   */
+  private void compareRecipes(MappedSnapshot from, Range fromRange, Range toRange) {
+    final Map<String, long[]> fromHashes = new HashMap<>();
+    for (int entry = fromRange.first; entry < fromRange.end; entry++) {
+      final long[] sumAndCount = fromHashes.computeIfAbsent(
+          from.getString(from.getRecipeNameId(fromRange.tree.getEntryIndex(entry))),
+          name -> new long[2]);
+      sumAndCount[0] += fromRange.tree.getEntryHash(entry);
+      sumAndCount[1]++;
+    }
+    final Map<String, long[]> toHashes = new HashMap<>();
+    final Map<String, List<Integer>> toIndexes = new HashMap<>();
+    for (int entry = toRange.first; entry < toRange.end; entry++) {
+      final int index = toRange.tree.getEntryIndex(entry);
+      final String name = target.getString(target.getRecipeNameId(index));
+      final long[] sumAndCount = toHashes.computeIfAbsent(name, key -> new long[2]);
+      sumAndCount[0] += toRange.tree.getEntryHash(entry);
+      sumAndCount[1]++;
+      toIndexes.computeIfAbsent(name, key -> new ArrayList<>()).add(index);
+    }
+    toIndexes.forEach((name, indexes) -> {
+      final long[] fromSumAndCount = fromHashes.remove(name);
+      final long[] toSumAndCount = toHashes.get(name);
+      if (fromSumAndCount == null || fromSumAndCount[0] != toSumAndCount[0]
+          || fromSumAndCount[1] != toSumAndCount[1]) {
+        changedRecipes.put(name, indexes);
+      }
+    });
+    fromHashes.keySet().forEach(name -> changedRecipes.put(name, List.of()));
+  }
+
+  private static void flushIfFull(JournalEncoder out, FileChannel channel) throws IOException {
+    if (out.size() >= BUFFER_SIZE) {
+      out.writeTo(channel);
+    }
+  }
+
+  /**
+   * Reads and checks every record of a patch file.
+   *
+   * @return the bodies of the records
+   */
+  private static List<ByteBuffer> readPatch(Path path) throws IOException {
+    final long fileSize = Files.size(path);
+    final List<ByteBuffer> records = new ArrayList<>();
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+      if (fileSize < HEADER_SIZE || in.readInt() != MAGIC) {
+        throw new IOException(path + " is not a patch file");
+      }
+      final short version = in.readShort();
+      if (version != FORMAT_VERSION) {
+        throw new IOException("Unsupported patch version: " + version);
+      }
+      in.readShort();
+
+      final CRC32 crc = new CRC32();
+      long position = HEADER_SIZE;
+      while (position < fileSize) {
+        final int length = in.readInt();
+        final int checksum = in.readInt();
+        if (length < 1 || length > fileSize - position - JournalFormat.RECORD_HEADER_SIZE) {
+          throw new IOException(path + " is corrupt at offset " + position);
+        }
+        final byte[] body = new byte[length];
+        in.readFully(body);
+        crc.reset();
+        crc.update(body);
+        if ((int) crc.getValue() != checksum) {
+          throw new IOException(path + " is corrupt at offset " + position);
+        }
+        records.add(ByteBuffer.wrap(body));
+        position += JournalFormat.RECORD_HEADER_SIZE + length;
+      }
+    } catch (EOFException e) {
+      throw new IOException(path + " ended early", e);
+    }
+    return records;
+  }
+
+  private static Grocery readGrocery(ByteBuffer body) {
+    final String name = readString(body);
+    final String category = readString(body);
+    final String unit = readString(body);
+    final int batchCount = body.getInt();
+    final Grocery grocery = batchCount == 0
+        ? GroceryCodec.emptyGrocery(name, category, unit)
+        : new Grocery(name, category, unit, readBatch(body));
+    for (int i = 1; i < batchCount; i++) {
+      grocery.addBatch(readBatch(body));
+    }
+    return grocery;
+  }
+
+  private static Recipe readRecipe(String name, ByteBuffer body) {
+    final Recipe recipe = new Recipe(name, readString(body), readString(body), body.getInt());
+    final int ingredientCount = body.getInt();
+    for (int i = 0; i < ingredientCount; i++) {
+      recipe.addIngredient(new Ingredient(readString(body), readString(body), readString(body),
+          body.getDouble()));
+    }
+    return recipe;
+  }
+
+  private static GroceryBatch readBatch(ByteBuffer body) {
+    return new GroceryBatch(body.getDouble(), body.getDouble(),
+        LocalDate.ofEpochDay(body.getLong()));
+  }
+
+  private static String readString(ByteBuffer body) {
+    final byte[] bytes = new byte[body.getInt()];
+    body.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * The entries of a tree covered by a node, from the first entry up to, but not including, the
+   * end.
+   */
+  private record Range(MerkleTree tree, int first, int end) {}
+
+  /**
+   * Compares the entries covered by two differing nodes at the deepest level compared.
+   */
+  @FunctionalInterface
+  private interface RangeComparator {
+    void compare(Range from, Range to);
+  }
+}
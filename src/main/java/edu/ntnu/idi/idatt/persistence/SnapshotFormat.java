@@ -0,0 +1,49 @@
+package edu.ntnu.idi.idatt.persistence;
+
+/**
+ * Constants describing the binary snapshot format, shared by {@link SnapshotWriter} and
+ * {@link MappedSnapshot}.
+ *
+ * <p>
+ * A snapshot file starts with a header of {@value #HEADER_SIZE} bytes, followed by three sections:
+ * groceries, recipes and strings. All numbers are big-endian.
+ *
+ * <pre>
+ * header:    int magic, short format version, short reserved,
+ *            then the offset and length (two longs) of the grocery, recipe and string sections,
+ *            then long CRC-32 of the sections (zero in files written before it was added)
+ * groceries: records, int[count] record offsets, int count
+ *            record: int name, int category, int unit, int batch count,
+ *                    then per batch: double amount, double price per unit, long expiration day
+ * recipes:   records, int[count] record offsets, int count
+ *            record: int name, int description, int instructions, int servings,
+ *                    int ingredient count, then per ingredient: int name, int category, int unit,
+ *                    double amount
+ * strings:   UTF-8 bytes, int[count + 1] string offsets, int count
+ * </pre>
+ *
+ * <p>
+ * Every string in the records is stored as an id into the string section, so each distinct name,
+ * category, unit and text is only stored once. Groceries are sorted by name, so a grocery can be
+ * found with a binary search. Record and string offsets are relative to the start of their
+ * section, and each section is limited to 2 GB. The checksum identifies the contents of the file,
+ * so a {@link SnapshotIndex} can tell whether it was built from the same snapshot.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+final class SnapshotFormat {
+  /** The first four bytes of every snapshot file, "FWSN". */
+  static final int MAGIC = 0x4657534E;
+  /** The version of the format written by this version of the application. */
+  static final short FORMAT_VERSION = 1;
+  /** The size of the header, in bytes. */
+  static final int HEADER_SIZE = 64;
+  /** The size of a batch in a grocery record, in bytes. */
+  static final int BATCH_SIZE = 24;
+  /** The size of an ingredient in a recipe record, in bytes. */
+  static final int INGREDIENT_SIZE = 20;
+
+  /** Private constructor to prevent instantiation, as this class only holds constants. */
+  private SnapshotFormat() {}
+}
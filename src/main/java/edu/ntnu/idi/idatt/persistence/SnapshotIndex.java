@@ -0,0 +1,565 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Indexes of a {@link MappedSnapshot}, kept in a file next to the snapshot, so the groceries and
+ * recipes in a snapshot can be queried right after it is opened, without loading them into a food
+ * storage and cook book first.
+ *
+ * <p>
+ * The index file is named after the snapshot file, with {@value #FILE_SUFFIX} added, and holds
+ * four indexes: the groceries sorted by the day their first batch expires, the groceries in each
+ * category, the recipes containing each ingredient, and the recipes sorted by name. The groceries
+ * in the snapshot are already sorted by name. It also holds a {@link MerkleTree} over the
+ * groceries and one over the recipes, which {@link SnapshotDiff} compares to find the differences
+ * between two snapshots. All numbers are big-endian.
+ *
+ * <pre>
+ * header:      int magic, short format version, short reserved, the header of the snapshot,
+ *              then the offset, length (two longs) and CRC-32 (int) of each section
+ * expiry:      int count, int[count] grocery indexes, long[count] first expiration days
+ * categories:  postings of grocery indexes, by category
+ * ingredients: postings of recipe indexes, by ingredient name
+ * recipes:     int count, int[count] recipe indexes
+ * trees:       a tree over the groceries, keyed by name, then a tree over the recipes, keyed by
+ *              name, as described in {@link MerkleTree}
+ * postings:    int key count, then per key: int string id, int start, int length,
+ *              then int[] indexes, where each key has the indexes from start to start + length
+ * </pre>
+ *
+ * <p>
+ * The keys of the postings are sorted by their string in lower case, and are compared ignoring
+ * case. When an index file is opened, the checksum of every section is checked, and the header of
+ * the snapshot it was built from is compared with the snapshot being opened. If the file is
+ * missing, corrupt or was built from another snapshot, the indexes are built from the snapshot
+ * again and the file is replaced.
+ *
+ * <p>
+ * The queries are for reading a snapshot without loading it. The application itself loads a
+ * snapshot whole, with {@link MappedSnapshot#loadInto}, and then queries the food storage and
+ * cook book, so it only checks the indexes when loading, and uses the trees to compare snapshots.
+ *
+ * @see MappedSnapshot
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class SnapshotIndex {
+  /** The suffix added to the name of the snapshot file to get the name of the index file. */
+  public static final String FILE_SUFFIX = ".idx";
+  /** The first four bytes of every index file, "FWIX". */
+  private static final int MAGIC = 0x46574958;
+  private static final short FORMAT_VERSION = 2;
+  private static final int SECTION_COUNT = 6;
+  private static final int SECTION_ENTRY_SIZE = 2 * Long.BYTES + Integer.BYTES;
+  private static final int HEADER_SIZE =
+      8 + SnapshotFormat.HEADER_SIZE + SECTION_COUNT * SECTION_ENTRY_SIZE;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final MappedSnapshot snapshot;
+  private final ByteBuffer expiry;
+  private final ByteBuffer categories;
+  private final ByteBuffer ingredients;
+  private final ByteBuffer recipeNames;
+  private final MerkleTree groceryTree;
+  private final MerkleTree recipeTree;
+  private final boolean rebuilt;
+
+  private SnapshotIndex(MappedSnapshot snapshot, ByteBuffer[] sections, boolean rebuilt) {
+    this.snapshot = snapshot;
+    this.expiry = sections[0];
+    this.categories = sections[1];
+    this.ingredients = sections[2];
+    this.recipeNames = sections[3];
+    this.groceryTree = new MerkleTree(sections[4]);
+    this.recipeTree = new MerkleTree(sections[5]);
+    this.rebuilt = rebuilt;
+  }
+
+  /**
+   * Opens the index file of the provided snapshot, or builds the indexes and writes the file if
+   * it is missing, corrupt, or was built from another snapshot.
+   *
+   * @param snapshotPath the snapshot file
+   * @param snapshot the snapshot opened from the file
+   * @return the indexes of the snapshot
+   * @throws IllegalArgumentException if any of the provided objects are null.
+   * @throws IOException if the index file could not be read or written.
+   */
+  public static SnapshotIndex open(Path snapshotPath, MappedSnapshot snapshot)
+      throws IllegalArgumentException, IOException {
+    if (snapshotPath == null || snapshot == null) {
+      throw new IllegalArgumentException("Snapshot path and snapshot cannot be null");
+    }
+    final Path indexPath = indexPath(snapshotPath);
+    final ByteBuffer[] sections = read(indexPath, snapshot.getHeader());
+    if (sections != null) {
+      return new SnapshotIndex(snapshot, sections, false);
+    }
+    write(indexPath, snapshot);
+    final ByteBuffer[] written = read(indexPath, snapshot.getHeader());
+    if (written == null) {
+      throw new IOException("Index file could not be read back: " + indexPath);
+    }
+    return new SnapshotIndex(snapshot, written, true);
+  }
+
+  /**
+   * Returns the path of the index file of the provided snapshot file.
+   *
+   * @param snapshotPath the snapshot file
+   * @return the path of the index file
+   */
+  public static Path indexPath(Path snapshotPath) {
+    final Path absolutePath = snapshotPath.toAbsolutePath();
+    return absolutePath.resolveSibling(absolutePath.getFileName() + FILE_SUFFIX);
+  }
+
+  /**
+   * Returns true if the index file was built when it was opened, because it was missing, corrupt
+   * or stale, and false if it was loaded as it was.
+   *
+   * @return true if the indexes were rebuilt
+   */
+  public boolean isRebuilt() {
+    return rebuilt;
+  }
+
+  /**
+   * Returns the groceries with a batch that expires before the provided date, sorted by the
+   * date their first batch expires. The groceries are found with a binary search, and decoded
+   * when they are read from the list.
+   *
+   * @param date the date the groceries must expire before
+   * @return an unmodifiable list of the groceries
+   * @throws IllegalArgumentException if the date is null.
+   */
+  public List<Grocery> getGroceriesExpiringBefore(LocalDate date)
+      throws IllegalArgumentException {
+    if (date == null) {
+      throw new IllegalArgumentException("Date cannot be null");
+    }
+    final int count = expiry.getInt(0);
+    final int daysOffset = Integer.BYTES * (1 + count);
+    final long day = date.toEpochDay();
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (expiry.getLong(daysOffset + middle * Long.BYTES) < day) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return groceryList(expiry, Integer.BYTES, low);
+  }
+
+  /**
+   * Returns the groceries in the provided category, ignoring case, sorted by name.
+   *
+   * @param category the category
+   * @return an unmodifiable list of the groceries, decoded when they are read from the list
+   * @throws IllegalArgumentException if the category is null or blank.
+   */
+  public List<Grocery> getGroceriesInCategory(String category) throws IllegalArgumentException {
+    if (category == null || category.isBlank()) {
+      throw new IllegalArgumentException("Category cannot be null or blank");
+    }
+    final int entry = findKey(categories, key(category));
+    if (entry < 0) {
+      return List.of();
+    }
+    return groceryList(categories, postingsOffset(categories, entry),
+        categories.getInt(entry + 8));
+  }
+
+  /**
+   * Returns the recipes containing an ingredient with the provided name, ignoring case, in the
+   * order they are in the snapshot.
+   *
+   * @param name the name of the ingredient
+   * @return an unmodifiable list of the recipes, decoded when they are read from the list
+   * @throws IllegalArgumentException if the name is null or blank.
+   */
+  public List<Recipe> getRecipesWithIngredient(String name) throws IllegalArgumentException {
+    if (name == null || name.isBlank()) {
+      throw new IllegalArgumentException("Name cannot be null or blank");
+    }
+    final int entry = findKey(ingredients, key(name));
+    if (entry < 0) {
+      return List.of();
+    }
+    return recipeList(ingredients, postingsOffset(ingredients, entry),
+        ingredients.getInt(entry + 8));
+  }
+
+  /**
+   * Returns the recipes in the snapshot, sorted alphabetically by name.
+   *
+   * @return an unmodifiable list of the recipes, decoded when they are read from the list
+   */
+  public List<Recipe> getRecipesByName() {
+    return recipeList(recipeNames, Integer.BYTES, recipeNames.getInt(0));
+  }
+
+  /**
+   * Returns the snapshot the indexes were opened for.
+   *
+   * @return the snapshot
+   */
+  MappedSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Returns the hash tree over the groceries in the snapshot, keyed by name.
+   *
+   * @return the tree
+   */
+  MerkleTree getGroceryTree() {
+    return groceryTree;
+  }
+
+  /**
+   * Returns the hash tree over the recipes in the snapshot, keyed by name.
+   *
+   * @return the tree
+   */
+  MerkleTree getRecipeTree() {
+    return recipeTree;
+  }
+
+  private List<Grocery> groceryList(ByteBuffer section, int offset, int size) {
+    return new AbstractList<>() {
+      @Override
+      public Grocery get(int index) {
+        return snapshot.getGrocery(section.getInt(offset + checkIndex(index, size)
+            * Integer.BYTES));
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  private List<Recipe> recipeList(ByteBuffer section, int offset, int size) {
+    return new AbstractList<>() {
+      @Override
+      public Recipe get(int index) {
+        return snapshot.getRecipe(section.getInt(offset + checkIndex(index, size)
+            * Integer.BYTES));
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  private static int checkIndex(int index, int size) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+    return index;
+  }
+
+  /**
+   * Finds a key in a postings section with a binary search.
+   *
+   * @return the offset of the entry of the key, or -1 if the section has no such key
+   */
+  private int findKey(ByteBuffer section, String key) {
+    int low = 0;
+    int high = section.getInt(0) - 1;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      final int entry = Integer.BYTES + middle * 3 * Integer.BYTES;
+      final int cmp = key(snapshot.getString(section.getInt(entry))).compareTo(key);
+      if (cmp < 0) {
+        low = middle + 1;
+      } else if (cmp > 0) {
+        high = middle - 1;
+      } else {
+        return entry;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the offset of the first index of an entry in a postings section.
+   */
+  private static int postingsOffset(ByteBuffer section, int entry) {
+    return Integer.BYTES * (1 + 3 * section.getInt(0) + section.getInt(entry + 4));
+  }
+
+  private static String key(String string) {
+    return string.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Reads and checks an index file.
+   *
+   * @return the sections of the file, or null if the file is missing, corrupt, or was not built
+   *         from the snapshot with the provided header
+   */
+  private static ByteBuffer[] read(Path indexPath, byte[] snapshotHeader) throws IOException {
+    try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size < HEADER_SIZE) {
+        return null;
+      }
+      final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+      if (header.getInt() != MAGIC || header.getShort() != FORMAT_VERSION) {
+        return null;
+      }
+      header.getShort();
+      final byte[] builtFrom = new byte[SnapshotFormat.HEADER_SIZE];
+      header.get(builtFrom);
+      if (!Arrays.equals(builtFrom, snapshotHeader)) {
+        return null;
+      }
+
+      final ByteBuffer[] sections = new ByteBuffer[SECTION_COUNT];
+      final CRC32 crc = new CRC32();
+      for (int i = 0; i < SECTION_COUNT; i++) {
+        final long offset = header.getLong();
+        final long length = header.getLong();
+        final int checksum = header.getInt();
+        if (offset < HEADER_SIZE || length < Integer.BYTES || length > Integer.MAX_VALUE
+            || offset + length > size) {
+          return null;
+        }
+        sections[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        crc.reset();
+        crc.update(sections[i].duplicate());
+        if ((int) crc.getValue() != checksum) {
+          return null;
+        }
+      }
+      return sections;
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Builds the indexes of a snapshot, and writes them to the index file. The file is written to
+   * a temporary file first, and then moved in place.
+   */
+  private static void write(Path indexPath, MappedSnapshot snapshot) throws IOException {
+    final byte[][] sections = {
+        buildExpiry(snapshot), buildCategories(snapshot), buildIngredients(snapshot),
+        buildRecipeNames(snapshot), buildGroceryTree(snapshot), buildRecipeTree(snapshot)};
+
+    final Path temporaryPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      final DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+      out.writeInt(MAGIC);
+      out.writeShort(FORMAT_VERSION);
+      out.writeShort(0);
+      out.write(snapshot.getHeader());
+      final CRC32 crc = new CRC32();
+      long offset = HEADER_SIZE;
+      for (byte[] section : sections) {
+        crc.reset();
+        crc.update(section);
+        out.writeLong(offset);
+        out.writeLong(section.length);
+        out.writeInt((int) crc.getValue());
+        offset += section.length;
+      }
+      for (byte[] section : sections) {
+        out.write(section);
+      }
+      out.flush();
+      channel.force(true);
+    }
+    Files.move(temporaryPath, indexPath, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static byte[] buildExpiry(MappedSnapshot snapshot) {
+    final int count = snapshot.getGroceryCount();
+    final long[] days = new long[count];
+    final Integer[] order = new Integer[count];
+    for (int i = 0; i < count; i++) {
+      days[i] = snapshot.getGroceryFirstExpirationDay(i);
+      order[i] = i;
+    }
+    // The sort is stable, so groceries expiring on the same day stay sorted by name.
+    Arrays.sort(order, Comparator.comparingLong(index -> days[index]));
+
+    final ByteBuffer section = ByteBuffer.allocate(Integer.BYTES * (1 + count)
+        + Long.BYTES * count);
+    section.putInt(count);
+    for (int index : order) {
+      section.putInt(index);
+    }
+    for (int index : order) {
+      section.putLong(days[index]);
+    }
+    return section.array();
+  }
+
+  private static byte[] buildCategories(MappedSnapshot snapshot) {
+    final Map<String, Postings> postings = new TreeMap<>();
+    for (int i = 0; i < snapshot.getGroceryCount(); i++) {
+      final int categoryId = snapshot.getGroceryCategoryId(i);
+      postings.computeIfAbsent(key(snapshot.getString(categoryId)),
+          key -> new Postings(categoryId)).add(i);
+    }
+    return encodePostings(postings);
+  }
+
+  private static byte[] buildIngredients(MappedSnapshot snapshot) {
+    final Map<String, Postings> postings = new TreeMap<>();
+    for (int i = 0; i < snapshot.getRecipeCount(); i++) {
+      for (int nameId : snapshot.getRecipeIngredientNameIds(i)) {
+        final Postings ingredientPostings = postings.computeIfAbsent(
+            key(snapshot.getString(nameId)), key -> new Postings(nameId));
+        // A recipe is listed once for a key, even if two of its ingredient names only differ
+        // in case.
+        if (ingredientPostings.last() != i) {
+          ingredientPostings.add(i);
+        }
+      }
+    }
+    return encodePostings(postings);
+  }
+
+  private static byte[] buildRecipeNames(MappedSnapshot snapshot) {
+    final int count = snapshot.getRecipeCount();
+    final Integer[] order = new Integer[count];
+    for (int i = 0; i < count; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.comparing(
+        index -> snapshot.getString(snapshot.getRecipeNameId(index))));
+
+    final ByteBuffer section = ByteBuffer.allocate(Integer.BYTES * (1 + count));
+    section.putInt(count);
+    for (int index : order) {
+      section.putInt(index);
+    }
+    return section.array();
+  }
+
+  private static byte[] buildGroceryTree(MappedSnapshot snapshot) {
+    return MerkleTree.build(snapshot.getGroceryCount(), snapshot::getGroceryName,
+        index -> groceryHash(snapshot.getGrocery(index)));
+  }
+
+  private static byte[] buildRecipeTree(MappedSnapshot snapshot) {
+    return MerkleTree.build(snapshot.getRecipeCount(),
+        index -> snapshot.getString(snapshot.getRecipeNameId(index)),
+        index -> recipeHash(snapshot.getRecipe(index)));
+  }
+
+  /**
+   * Returns the hash of the contents of a grocery, which is the same for two groceries with the
+   * same name, category, unit and batches, in whichever snapshot they are.
+   *
+   * @param grocery the grocery
+   * @return the content hash
+   */
+  static long groceryHash(Grocery grocery) {
+    final MerkleTree.Hasher hasher = new MerkleTree.Hasher().add(grocery.getName())
+        .add(grocery.getCategory()).add(grocery.getUnit()).add(grocery.getBatches().size());
+    for (GroceryBatch batch : grocery.getBatches()) {
+      hasher.add(batch.getAmount()).add(batch.getPricePerUnit())
+          .add(batch.getExpirationDate().toEpochDay());
+    }
+    return hasher.finish();
+  }
+
+  /**
+   * Returns the hash of the contents of a recipe, which is the same for two recipes with the same
+   * name, texts, servings and ingredients, in the same order.
+   *
+   * @param recipe the recipe
+   * @return the content hash
+   */
+  static long recipeHash(Recipe recipe) {
+    final MerkleTree.Hasher hasher = new MerkleTree.Hasher().add(recipe.getName())
+        .add(recipe.getDescription()).add(recipe.getInstructions()).add(recipe.getServings())
+        .add(recipe.getIngredients().size());
+    for (Ingredient ingredient : recipe.getIngredients()) {
+      hasher.add(ingredient.getName()).add(ingredient.getCategory()).add(ingredient.getUnit())
+          .add(ingredient.getAmount());
+    }
+    return hasher.finish();
+  }
+
+  private static byte[] encodePostings(Map<String, Postings> postings) {
+    final int total = postings.values().stream().mapToInt(Postings::size).sum();
+    final ByteBuffer section = ByteBuffer.allocate(Integer.BYTES
+        * (1 + 3 * postings.size() + total));
+    section.putInt(postings.size());
+    int start = 0;
+    for (Postings keyPostings : postings.values()) {
+      section.putInt(keyPostings.stringId).putInt(start).putInt(keyPostings.size());
+      start += keyPostings.size();
+    }
+    for (Postings keyPostings : postings.values()) {
+      keyPostings.indexes.forEach(section::putInt);
+    }
+    return section.array();
+  }
+
+  /**
+   * The indexes listed for one key while building a postings section, with the id of a string
+   * of the key.
+   */
+  private static final class Postings {
+    private final int stringId;
+    private final List<Integer> indexes = new ArrayList<>();
+
+    private Postings(int stringId) {
+      this.stringId = stringId;
+    }
+
+    private void add(int index) {
+      indexes.add(index);
+    }
+
+    private int last() {
+      return indexes.isEmpty() ? -1 : indexes.getLast();
+    }
+
+    private int size() {
+      return indexes.size();
+    }
+  }
+}
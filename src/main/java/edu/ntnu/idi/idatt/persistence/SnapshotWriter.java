@@ -0,0 +1,243 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A class for writing the groceries of a {@link FoodStorage} and the recipes of a
+ * {@link Cookbook} to a binary snapshot file, which can be opened again with
+ * {@link MappedSnapshot}.
+ *
+ * <p>
+ * The file is first written to a temporary file next to the target, and then moved in place, so
+ * an existing snapshot is never left half-written. Groceries without any batches are not written,
+ * as a grocery cannot be created without a batch.
+ *
+ * @see SnapshotFormat
+ * @see MappedSnapshot
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class SnapshotWriter {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final DataOutputStream out;
+  private final Map<String, Integer> stringIds;
+  private final List<String> strings;
+  private long position;
+
+  /**
+   * Private constructor, as snapshots are written with the static {@code write} method.
+   *
+   * @param out the stream to write the file to
+   */
+  private SnapshotWriter(DataOutputStream out) {
+    this.out = out;
+    this.stringIds = new HashMap<>();
+    this.strings = new ArrayList<>();
+  }
+
+  /**
+   * Writes a snapshot of the provided food storage and cookbook to the provided file, replacing
+   * the file if it already exists.
+   *
+   * @param path the file to write the snapshot to
+   * @param foodStorage the food storage containing the groceries to write
+   * @param cookbook the cookbook containing the recipes to write
+   * @throws IllegalArgumentException if any of the provided objects are null.
+   * @throws IOException if the file could not be written.
+   */
+  public static void write(Path path, FoodStorage foodStorage, Cookbook cookbook)
+      throws IllegalArgumentException, IOException {
+    if (path == null || foodStorage == null || cookbook == null) {
+      throw new IllegalArgumentException("Path, food storage and cookbook cannot be null");
+    }
+    write(path, foodStorage.getAllGroceriesAlphabetically(), cookbook.getRecipes());
+  }
+
+  /**
+   * Writes a snapshot of the provided groceries and recipes to the provided file, replacing the
+   * file if it already exists.
+   *
+   * @param path the file to write the snapshot to
+   * @param groceries the groceries to write, sorted alphabetically by name
+   * @param recipes the recipes to write
+   * @throws IOException if the file could not be written.
+   */
+  static void write(Path path, Iterable<Grocery> groceries, Iterable<Recipe> recipes)
+      throws IOException {
+    final Path absolutePath = path.toAbsolutePath();
+    final Path temporaryPath = absolutePath.resolveSibling(absolutePath.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      final CRC32 checksum = new CRC32();
+      final SnapshotWriter writer = new SnapshotWriter(new DataOutputStream(
+          new BufferedOutputStream(new CheckedOutputStream(Channels.newOutputStream(channel),
+              checksum), BUFFER_SIZE)));
+      writer.out.write(new byte[SnapshotFormat.HEADER_SIZE]);
+      writer.out.flush();
+      // The header is written last, so it is not part of the checksum.
+      checksum.reset();
+      final long[] sections = writer.writeSections(groceries, recipes);
+      writer.out.flush();
+
+      final ByteBuffer header = ByteBuffer.allocate(SnapshotFormat.HEADER_SIZE);
+      header.putInt(SnapshotFormat.MAGIC).putShort(SnapshotFormat.FORMAT_VERSION)
+          .putShort((short) 0);
+      for (long section : sections) {
+        header.putLong(section);
+      }
+      header.putLong(checksum.getValue());
+      header.rewind();
+      channel.write(header, 0);
+      channel.force(true);
+    }
+    Files.move(temporaryPath, absolutePath, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Writes the grocery, recipe and string sections, after the empty header.
+   *
+   * @return the offset and length of each section, in the order they appear in the header
+   */
+  private long[] writeSections(Iterable<Grocery> groceries, Iterable<Recipe> recipes)
+      throws IOException {
+    position = SnapshotFormat.HEADER_SIZE;
+
+    final long groceriesOffset = position;
+    writeGroceries(groceries);
+    final long recipesOffset = position;
+    writeRecipes(recipes);
+    final long stringsOffset = position;
+    writeStrings();
+
+    return new long[] {groceriesOffset, recipesOffset - groceriesOffset,
+        recipesOffset, stringsOffset - recipesOffset,
+        stringsOffset, position - stringsOffset};
+  }
+
+  private void writeGroceries(Iterable<Grocery> groceries) throws IOException {
+    final long sectionStart = position;
+    final List<Integer> offsets = new ArrayList<>();
+    for (Grocery grocery : groceries) {
+      final List<GroceryBatch> batches = grocery.getBatches();
+      if (batches.isEmpty()) {
+        continue;
+      }
+      offsets.add(sectionOffset(sectionStart));
+      writeInt(stringId(grocery.getName()));
+      writeInt(stringId(grocery.getCategory()));
+      writeInt(stringId(grocery.getUnit()));
+      writeInt(batches.size());
+      for (GroceryBatch batch : batches) {
+        writeDouble(batch.getAmount());
+        writeDouble(batch.getPricePerUnit());
+        writeLong(batch.getExpirationDate().toEpochDay());
+      }
+    }
+    writeOffsets(offsets);
+  }
+
+  private void writeRecipes(Iterable<Recipe> recipes) throws IOException {
+    final long sectionStart = position;
+    final List<Integer> offsets = new ArrayList<>();
+    for (Recipe recipe : recipes) {
+      offsets.add(sectionOffset(sectionStart));
+      writeInt(stringId(recipe.getName()));
+      writeInt(stringId(recipe.getDescription()));
+      writeInt(stringId(recipe.getInstructions()));
+      writeInt(recipe.getServings());
+      writeInt(recipe.getIngredients().size());
+      for (Ingredient ingredient : recipe.getIngredients()) {
+        writeInt(stringId(ingredient.getName()));
+        writeInt(stringId(ingredient.getCategory()));
+        writeInt(stringId(ingredient.getUnit()));
+        writeDouble(ingredient.getAmount());
+      }
+    }
+    writeOffsets(offsets);
+  }
+
+  private void writeStrings() throws IOException {
+    final long sectionStart = position;
+    final List<Integer> offsets = new ArrayList<>(strings.size() + 1);
+    for (String string : strings) {
+      offsets.add(sectionOffset(sectionStart));
+      final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+      out.write(bytes);
+      position += bytes.length;
+    }
+    offsets.add(sectionOffset(sectionStart));
+    for (int offset : offsets) {
+      writeInt(offset);
+    }
+    writeInt(strings.size());
+  }
+
+  /**
+   * Writes the provided record offsets, followed by the number of records.
+   */
+  private void writeOffsets(List<Integer> offsets) throws IOException {
+    for (int offset : offsets) {
+      writeInt(offset);
+    }
+    writeInt(offsets.size());
+  }
+
+  /**
+   * Returns the id of the provided string in the string section, adding it if it has not been
+   * written before.
+   */
+  private int stringId(String string) {
+    return stringIds.computeIfAbsent(string, key -> {
+      strings.add(key);
+      return strings.size() - 1;
+    });
+  }
+
+  private int sectionOffset(long sectionStart) throws IOException {
+    final long offset = position - sectionStart;
+    if (offset > Integer.MAX_VALUE) {
+      throw new IOException("Snapshot section is larger than 2 GB");
+    }
+    return (int) offset;
+  }
+
+  private void writeInt(int value) throws IOException {
+    out.writeInt(value);
+    position += Integer.BYTES;
+  }
+
+  private void writeLong(long value) throws IOException {
+    out.writeLong(value);
+    position += Long.BYTES;
+  }
+
+  private void writeDouble(double value) throws IOException {
+    out.writeDouble(value);
+    position += Double.BYTES;
+  }
+}
@@ -0,0 +1,412 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable file of entries sorted by key, written when the entries in memory of a
+ * {@link LsmGroceryStore} are flushed, or when tables are merged.
+ *
+ * <p>
+ * The entries are written one after the other, each as the length and UTF-8 bytes of the key,
+ * followed by the length and the bytes of the value, where a length of -1 marks a removed key.
+ * The entries are split into blocks of about {@value #BLOCK_SIZE} bytes, and an index with the
+ * first key and offset of each block follows the last block. Then follows a Bloom filter of the
+ * keys, with {@value #BLOOM_BITS_PER_KEY} bits for each key. The file ends with the offsets of the
+ * index and the filter, the number of entries, and a magic number.
+ *
+ * <p>
+ * Only the index and the filter are kept in memory. To find a key, the filter is checked first,
+ * which rules out most keys that are not in the table without reading it. Otherwise, the block
+ * that could contain the key is found in the index with a binary search, and read through the
+ * {@link BlockCache}.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+final class SortedTable implements Closeable {
+  /** The value of an entry whose key was removed. Compared by identity. */
+  static final byte[] TOMBSTONE = new byte[0];
+  static final int BLOCK_SIZE = 16 * 1024;
+  static final int BLOOM_BITS_PER_KEY = 10;
+  private static final int BLOOM_HASHES = 7;
+  private static final int MAGIC = 0x46575354;
+  private static final int FOOTER_SIZE = 3 * Long.BYTES + Integer.BYTES;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final int id;
+  private final Path path;
+  private final FileChannel channel;
+  private final BlockCache cache;
+  private final String[] firstKeys;
+  /** The offset of each block, followed by the offset of the index, where the last block ends. */
+  private final long[] blockOffsets;
+  private final long[] bloomFilter;
+  private final long entryCount;
+
+  private SortedTable(int id, Path path, FileChannel channel, BlockCache cache,
+      String[] firstKeys, long[] blockOffsets, long[] bloomFilter, long entryCount) {
+    this.id = id;
+    this.path = path;
+    this.channel = channel;
+    this.cache = cache;
+    this.firstKeys = firstKeys;
+    this.blockOffsets = blockOffsets;
+    this.bloomFilter = bloomFilter;
+    this.entryCount = entryCount;
+  }
+
+  /**
+   * Opens a table file, reading its index.
+   *
+   * @param path the table file
+   * @param id the id of the table, unique in the store
+   * @param cache the cache to read the blocks through
+   * @return the opened table
+   * @throws IOException if the file could not be read, or is not a table file.
+   */
+  static SortedTable open(Path path, int id, BlockCache cache) throws IOException {
+    final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      final long size = channel.size();
+      if (size < FOOTER_SIZE) {
+        throw new IOException("Not a table file: " + path);
+      }
+      final ByteBuffer footer = readFully(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+      final long indexOffset = footer.getLong();
+      final long bloomOffset = footer.getLong();
+      final long entryCount = footer.getLong();
+      if (footer.getInt() != MAGIC || indexOffset < 0 || indexOffset > bloomOffset
+          || bloomOffset > size - FOOTER_SIZE) {
+        throw new IOException("Not a table file: " + path);
+      }
+
+      final ByteBuffer bloom =
+          readFully(channel, bloomOffset, (int) (size - FOOTER_SIZE - bloomOffset));
+      final long[] bloomFilter = new long[bloom.remaining() / Long.BYTES];
+      bloom.asLongBuffer().get(bloomFilter);
+
+      final ByteBuffer index =
+          readFully(channel, indexOffset, (int) (bloomOffset - indexOffset));
+      final int blockCount = index.getInt();
+      final String[] firstKeys = new String[blockCount];
+      final long[] blockOffsets = new long[blockCount + 1];
+      for (int i = 0; i < blockCount; i++) {
+        blockOffsets[i] = index.getLong();
+        final byte[] key = new byte[index.getInt()];
+        index.get(key);
+        firstKeys[i] = new String(key, StandardCharsets.UTF_8);
+      }
+      blockOffsets[blockCount] = indexOffset;
+      return new SortedTable(id, path, channel, cache, firstKeys, blockOffsets, bloomFilter,
+          entryCount);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  int getId() {
+    return id;
+  }
+
+  Path getPath() {
+    return path;
+  }
+
+  /**
+   * Returns the number of entries in the table, including removed keys.
+   *
+   * @return the number of entries
+   */
+  long getEntryCount() {
+    return entryCount;
+  }
+
+  /**
+   * Returns the value stored for a key in the table.
+   *
+   * @param key the key to find
+   * @return the value, {@link #TOMBSTONE} if the key was removed, or null if the table has no
+   *         entry for the key
+   * @throws IOException if the block could not be read.
+   */
+  byte[] get(String key) throws IOException {
+    if (!mayContain(bloomFilter, key)) {
+      return null;
+    }
+    int low = 0;
+    int high = firstKeys.length - 1;
+    int blockIndex = -1;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      if (firstKeys[middle].compareTo(key) <= 0) {
+        blockIndex = middle;
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    if (blockIndex < 0) {
+      return null;
+    }
+
+    final byte[] block = readBlock(blockIndex);
+    final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    int position = 0;
+    while (position < block.length) {
+      final int keyLength = readInt(block, position);
+      position += Integer.BYTES;
+      final boolean match = keyLength == keyBytes.length
+          && Arrays.equals(block, position, position + keyLength, keyBytes, 0, keyLength);
+      position += keyLength;
+      final int valueLength = readInt(block, position);
+      position += Integer.BYTES;
+      if (match) {
+        return valueLength < 0
+            ? TOMBSTONE : Arrays.copyOfRange(block, position, position + valueLength);
+      }
+      position += Math.max(valueLength, 0);
+    }
+    return null;
+  }
+
+  /**
+   * Returns a cursor reading the entries of the table in order. The cursor reads the file through
+   * its own stream, and not through the block cache, so reading the whole table does not evict
+   * the blocks in use.
+   *
+   * @return a cursor before the first entry
+   * @throws IOException if the file could not be opened.
+   */
+  EntryCursor cursor() throws IOException {
+    final DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+    final long end = blockOffsets[blockOffsets.length - 1];
+    return new EntryCursor() {
+      private long position;
+      private String key;
+      private byte[] value;
+
+      @Override
+      public boolean next() throws IOException {
+        if (position >= end) {
+          return false;
+        }
+        final byte[] keyBytes = new byte[in.readInt()];
+        in.readFully(keyBytes);
+        final int valueLength = in.readInt();
+        key = new String(keyBytes, StandardCharsets.UTF_8);
+        value = valueLength < 0 ? TOMBSTONE : new byte[valueLength];
+        in.readFully(value);
+        position += 2 * Integer.BYTES + keyBytes.length + value.length;
+        return true;
+      }
+
+      @Override
+      public String key() {
+        return key;
+      }
+
+      @Override
+      public byte[] value() {
+        return value;
+      }
+
+      @Override
+      public void close() throws IOException {
+        in.close();
+      }
+    };
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private byte[] readBlock(int blockIndex) throws IOException {
+    final long key = BlockCache.key(id, blockIndex);
+    byte[] block = cache.get(key);
+    if (block == null) {
+      final long offset = blockOffsets[blockIndex];
+      block = readFully(channel, offset, (int) (blockOffsets[blockIndex + 1] - offset)).array();
+      cache.put(key, block);
+    }
+    return block;
+  }
+
+  private static int readInt(byte[] bytes, int position) {
+    return (bytes[position] & 0xFF) << 24 | (bytes[position + 1] & 0xFF) << 16
+        | (bytes[position + 2] & 0xFF) << 8 | bytes[position + 3] & 0xFF;
+  }
+
+  /**
+   * Returns the hash of a key used by the Bloom filter, mixing the bits of its hash code so the
+   * two halves can be used as independent hashes.
+   */
+  private static long bloomHash(String key) {
+    long hash = key.hashCode() * 0x9E3779B97F4A7C15L;
+    hash ^= hash >>> 29;
+    hash *= 0xBF58476D1CE4E5B9L;
+    return hash ^ hash >>> 32;
+  }
+
+  /**
+   * Returns the bits of the Bloom filter set for a key, by combining two hashes of it.
+   */
+  private static int bloomBit(long hash, int i, int bitCount) {
+    return Math.floorMod((int) hash + i * (int) (hash >>> 32), bitCount);
+  }
+
+  private static boolean mayContain(long[] bloomFilter, String key) {
+    final long hash = bloomHash(key);
+    final int bitCount = bloomFilter.length * Long.SIZE;
+    for (int i = 0; i < BLOOM_HASHES; i++) {
+      final int bit = bloomBit(hash, i, bitCount);
+      if ((bloomFilter[bit >>> 6] & 1L << bit) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static ByteBuffer readFully(FileChannel channel, long position, int length)
+      throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Table file ended early");
+      }
+    }
+    return buffer.flip();
+  }
+
+  /**
+   * Writes a new table file. The entries must be added in the order of their keys, and the file
+   * is moved in place when {@code finish} is called.
+   */
+  static final class Writer implements Closeable {
+    private final Path path;
+    private final Path temporaryPath;
+    private final FileChannel channel;
+    private final DataOutputStream out;
+    private final List<byte[]> firstKeys;
+    private final List<Long> blockOffsets;
+    private final long[] bloomFilter;
+    private long entryCount;
+    private long position;
+    private long blockStart;
+    private boolean finished;
+
+    /**
+     * Creates a temporary file to write the table to.
+     *
+     * @param path the file the table is moved to when finished
+     * @param expectedEntries the number of entries expected, to size the Bloom filter by
+     * @throws IOException if the file could not be created.
+     */
+    Writer(Path path, long expectedEntries) throws IOException {
+      this.path = path;
+      this.temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+      this.channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+      this.out = new DataOutputStream(
+          new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+      this.firstKeys = new ArrayList<>();
+      this.blockOffsets = new ArrayList<>();
+      this.blockStart = -1;
+      this.bloomFilter = new long[(int) Math.max(1,
+          Math.min(Integer.MAX_VALUE / Long.SIZE, expectedEntries * BLOOM_BITS_PER_KEY / Long.SIZE
+              + 1))];
+    }
+
+    /**
+     * Adds an entry to the table.
+     *
+     * @param key the key, which must come after the key of the previous entry
+     * @param value the value, or {@link #TOMBSTONE} if the key was removed
+     * @throws IOException if the file could not be written.
+     */
+    void add(String key, byte[] value) throws IOException {
+      final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+      if (blockStart < 0 || position - blockStart >= BLOCK_SIZE) {
+        blockStart = position;
+        firstKeys.add(keyBytes);
+        blockOffsets.add(position);
+      }
+      out.writeInt(keyBytes.length);
+      out.write(keyBytes);
+      if (value == TOMBSTONE) {
+        out.writeInt(-1);
+      } else {
+        out.writeInt(value.length);
+        out.write(value);
+      }
+      position += 2 * Integer.BYTES + keyBytes.length + value.length;
+      entryCount++;
+
+      final long hash = bloomHash(key);
+      final int bitCount = bloomFilter.length * Long.SIZE;
+      for (int i = 0; i < BLOOM_HASHES; i++) {
+        final int bit = bloomBit(hash, i, bitCount);
+        bloomFilter[bit >>> 6] |= 1L << bit;
+      }
+    }
+
+    /**
+     * Writes the index and the Bloom filter, forces the file to disk, and moves it in place.
+     *
+     * @throws IOException if the file could not be written or moved.
+     */
+    void finish() throws IOException {
+      final long indexOffset = position;
+      out.writeInt(firstKeys.size());
+      position += Integer.BYTES;
+      for (int i = 0; i < firstKeys.size(); i++) {
+        out.writeLong(blockOffsets.get(i));
+        out.writeInt(firstKeys.get(i).length);
+        out.write(firstKeys.get(i));
+        position += Long.BYTES + Integer.BYTES + firstKeys.get(i).length;
+      }
+      final long bloomOffset = position;
+      for (long word : bloomFilter) {
+        out.writeLong(word);
+      }
+      out.writeLong(indexOffset);
+      out.writeLong(bloomOffset);
+      out.writeLong(entryCount);
+      out.writeInt(MAGIC);
+      out.flush();
+      channel.force(true);
+      channel.close();
+      Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!finished) {
+        channel.close();
+        Files.deleteIfExists(temporaryPath);
+      }
+    }
+  }
+}
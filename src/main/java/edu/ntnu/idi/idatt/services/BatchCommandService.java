@@ -0,0 +1,236 @@
+package edu.ntnu.idi.idatt.services;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.Recipe;
+import edu.ntnu.idi.idatt.persistence.CommandScript;
+import edu.ntnu.idi.idatt.persistence.JsonMessages;
+import edu.ntnu.idi.idatt.utils.ReadableRenderer;
+import edu.ntnu.idi.idatt.views.TextUserInterface;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A service class running scripts of commands against a {@link FoodStorage} and {@link Cookbook}
+ * without prompting, for a user interface like {@link TextUserInterface} to run scripted work.
+ *
+ * <p>
+ * Every command is a line of a {@link CommandScript}. The commands and their fields are:
+ * <ul>
+ * <li>{@code addGrocery}: {@code name}, {@code category}, {@code unit}, {@code amount},
+ *     {@code pricePerUnit} and {@code expirationDate}. Adds a batch instead if the grocery exists.
+ * <li>{@code addBatch}: {@code name}, {@code amount}, {@code pricePerUnit} and
+ *     {@code expirationDate}
+ * <li>{@code consume}: {@code name} and {@code amount}. Consuming the whole amount removes the
+ *     grocery.
+ * <li>{@code removeGrocery}: {@code name}
+ * <li>{@code findGrocery}: {@code name}
+ * <li>{@code listGroceries}: optionally {@code category} or {@code expiringBefore}
+ * <li>{@code addRecipe}: {@code name}, {@code description}, {@code instructions},
+ *     {@code servings} and {@code ingredients}
+ * <li>{@code removeRecipe}: {@code name}
+ * <li>{@code findRecipe}: {@code name}
+ * <li>{@code suggestMeals}: optionally {@code expiringBefore}
+ * <li>{@code recipeCosts}
+ * </ul>
+ *
+ * <p>
+ * The commands that change the food storage or cookbook write nothing, and the commands that find
+ * or list something write it in the same form as the menus. A command that fails writes its line
+ * number and the reason, and the script goes on with the next command. All output goes to the
+ * destination provided, which should be buffered, so a long script is not slowed down by writing
+ * to the console.
+ *
+ * @see CommandScript
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public class BatchCommandService {
+  private static final String FOODSTORAGE_NULL_ERROR = "Food storage cannot be null";
+  private static final String COOKBOOK_NULL_ERROR = "Cookbook cannot be null";
+
+  private final FoodStorage foodStorage;
+  private final Cookbook cookbook;
+  private final Formatter formatter;
+  private final ReadableRenderer renderer;
+  private final MealSuggestionsService mealSuggestionsService;
+  private final RecipeCostService recipeCostService;
+
+  /**
+   * Constructs a new batch command service for the provided food storage and cookbook, writing
+   * its output to the provided destination.
+   *
+   * @param foodStorage the food storage to run the commands against
+   * @param cookbook the cookbook to run the commands against
+   * @param out the destination of the output
+   * @throws IllegalArgumentException if any of the provided objects are null.
+   */
+  public BatchCommandService(FoodStorage foodStorage, Cookbook cookbook, Appendable out)
+      throws IllegalArgumentException {
+    if (foodStorage == null) {
+      throw new IllegalArgumentException(FOODSTORAGE_NULL_ERROR);
+    }
+    if (cookbook == null) {
+      throw new IllegalArgumentException(COOKBOOK_NULL_ERROR);
+    }
+    if (out == null) {
+      throw new IllegalArgumentException("Destination cannot be null");
+    }
+    this.foodStorage = foodStorage;
+    this.cookbook = cookbook;
+    this.formatter = new Formatter(out);
+    this.renderer = new ReadableRenderer(out);
+    this.mealSuggestionsService = new MealSuggestionsService(foodStorage, cookbook);
+    this.recipeCostService = new RecipeCostService(foodStorage);
+  }
+
+  /**
+   * Runs every command of a script, and writes a summary of the commands run and failed when the
+   * script ends.
+   *
+   * @param script the script to run
+   * @return the number of commands that failed
+   * @throws IOException if the script could not be read, or the output could not be written.
+   * @throws IllegalArgumentException if the script is null.
+   */
+  public long runScript(CommandScript script) throws IOException, IllegalArgumentException {
+    if (script == null) {
+      throw new IllegalArgumentException("Script cannot be null");
+    }
+    long commands = 0;
+    long failures = 0;
+    try {
+      while (true) {
+        try {
+          final Map<String, Object> command = script.nextCommand();
+          if (command == null) {
+            break;
+          }
+          commands++;
+          execute(command);
+        } catch (IllegalArgumentException e) {
+          failures++;
+          formatter.format("Line %d: %s%n", script.getLineNumber(), e.getMessage());
+        }
+      }
+      formatter.format("Ran %d commands, %d failed.%n", commands, failures);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    checkError();
+    return failures;
+  }
+
+  /**
+   * Runs a single command.
+   *
+   * @param command the fields of the command, with its name in the field {@code command}
+   * @throws IllegalArgumentException if the command is unknown, or if it failed.
+   */
+  public void execute(Map<String, Object> command) throws IllegalArgumentException {
+    if (command == null) {
+      throw new IllegalArgumentException("Command cannot be null");
+    }
+    switch (JsonMessages.getString(command, "command")) {
+      case "addGrocery" -> addGrocery(command);
+      case "addBatch" -> getGrocery(command).addBatch(JsonMessages.batchOf(command));
+      case "consume" -> consume(command);
+      case "removeGrocery" -> foodStorage.removeGrocery(getGrocery(command));
+      case "findGrocery" -> renderer.renderGrocery(getGrocery(command));
+      case "listGroceries" -> renderer.renderGroceries(listGroceries(command));
+      case "addRecipe" -> cookbook.addRecipe(JsonMessages.recipeOf(command));
+      case "removeRecipe" -> cookbook.removeRecipe(getRecipe(command));
+      case "findRecipe" -> renderer.renderRecipe(getRecipe(command));
+      case "suggestMeals" -> suggestMeals(command);
+      case "recipeCosts" -> recipeCosts();
+      default -> throw new IllegalArgumentException("Unknown command: "
+          + command.get("command"));
+    }
+    checkError();
+  }
+
+  private void addGrocery(Map<String, Object> command) {
+    final String name = JsonMessages.getString(command, "name");
+    if (foodStorage.containsGrocery(name)) {
+      foodStorage.getGroceryByName(name).addBatch(JsonMessages.batchOf(command));
+    } else {
+      foodStorage.addGrocery(JsonMessages.groceryOf(command));
+    }
+  }
+
+  /**
+   * Consumes an amount of a grocery, removing the grocery if the whole amount is consumed, like
+   * the food storage menu does.
+   */
+  private void consume(Map<String, Object> command) {
+    final Grocery grocery = getGrocery(command);
+    final double amount = JsonMessages.getNumber(command, "amount");
+    if (amount == grocery.getTotalAmount()) {
+      foodStorage.removeGrocery(grocery);
+    } else {
+      grocery.consume(amount);
+    }
+  }
+
+  private List<Grocery> listGroceries(Map<String, Object> command) {
+    if (command.containsKey("category")) {
+      return foodStorage.getGroceriesByCategory(JsonMessages.getString(command, "category"));
+    }
+    if (command.containsKey("expiringBefore")) {
+      return foodStorage.getGroceriesExpiringBeforeDate(
+          JsonMessages.getDate(command, "expiringBefore"));
+    }
+    return foodStorage.getAllGroceriesAlphabetically();
+  }
+
+  private void suggestMeals(Map<String, Object> command) {
+    final List<Grocery> groceries = command.containsKey("expiringBefore")
+        ? foodStorage.getGroceriesExpiringBeforeDate(
+            JsonMessages.getDate(command, "expiringBefore"))
+        : foodStorage.getAllGroceries();
+    final Map<Recipe, List<Grocery>> suggestions =
+        mealSuggestionsService.findPossibleRecipes(groceries);
+    if (suggestions.isEmpty()) {
+      formatter.format("No meal suggestions available.%n");
+      return;
+    }
+    for (Map.Entry<Recipe, List<Grocery>> entry : suggestions.entrySet()) {
+      formatter.format("Meal suggestion: %s (", entry.getKey().getName());
+      final List<Grocery> used = entry.getValue();
+      for (int i = 0; i < used.size(); i++) {
+        formatter.format(i == 0 ? "%s" : ", %s", used.get(i).getName());
+      }
+      formatter.format(")%n");
+    }
+  }
+
+  private void recipeCosts() {
+    for (Map.Entry<Recipe, Double> entry : recipeCostService.estimateCosts(cookbook).entrySet()) {
+      formatter.format("- %s: %.2f NOK (%.2f NOK per serving)%n", entry.getKey().getName(),
+          entry.getValue(), entry.getValue() / entry.getKey().getServings());
+    }
+  }
+
+  private Grocery getGrocery(Map<String, Object> command) {
+    return foodStorage.getGroceryByName(JsonMessages.getString(command, "name"));
+  }
+
+  private Recipe getRecipe(Map<String, Object> command) {
+    return cookbook.getRecipe(JsonMessages.getString(command, "name"));
+  }
+
+  /**
+   * Throws the error of the last write to the destination, which the formatter does not throw
+   * itself.
+   */
+  private void checkError() {
+    if (formatter.ioException() != null) {
+      throw new UncheckedIOException(formatter.ioException());
+    }
+  }
+}
@@ -3,12 +3,17 @@ package edu.ntnu.idi.idatt.services;
 import edu.ntnu.idi.idatt.models.Cookbook;
 import edu.ntnu.idi.idatt.models.Ingredient;
 import edu.ntnu.idi.idatt.models.Recipe;
+import edu.ntnu.idi.idatt.persistence.FileFormat;
+import edu.ntnu.idi.idatt.persistence.ImportResult;
+import edu.ntnu.idi.idatt.persistence.RecipeImporter;
 import edu.ntnu.idi.idatt.utils.InterfaceUtils;
+import edu.ntnu.idi.idatt.utils.ReadableRenderer;
 import edu.ntnu.idi.idatt.utils.StringUtils;
 import edu.ntnu.idi.idatt.views.TextUserInterface;
-import java.util.HashSet;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -24,6 +29,8 @@ import java.util.stream.Stream;
  * <li>Editing a recipe
  * <li>Removing a recipe
  * <li>Showing all recipes
+ * <li>Finding and removing near-duplicate recipes
+ * <li>Importing recipes from a CSV or JSON-lines file
  * </ul>
  *
  * @see TextUserInterface
@@ -33,6 +40,12 @@ import java.util.stream.Stream;
  * @since 0.2
  */
 public class CookbookMenuService {
+  /** The minimum similarity of the ingredients of two recipes for them to be duplicates. */
+  private static final double DUPLICATE_THRESHOLD = 0.8;
+
+  private final ReadableRenderer renderer;
+  /** The output of the session the service was made for. */
+  private final PrintStream out;
   private Cookbook cookbook;
 
   /**
@@ -45,6 +58,8 @@ public class CookbookMenuService {
     if (cookbook == null) {
       throw new IllegalArgumentException("Cookbook cannot be null");
     }
+    this.out = InterfaceUtils.output();
+    this.renderer = new ReadableRenderer(out);
     setCookbook(cookbook);
   }
 
@@ -70,14 +85,15 @@ public class CookbookMenuService {
    * error message.
    */
   public void caseFindRecipeByName() {
-    System.out.println("Enter the name of the recipe you want to find: ");
+    out.println("Enter the name of the recipe you want to find: ");
     final String name = StringUtils.capitalize(InterfaceUtils.stringInput());
     try {
       final Recipe recipe = cookbook.getRecipe(name);
-      System.out.println("Recipe found:");
-      System.out.println(recipe.toReadableString());
+      out.println("Recipe found:");
+      renderer.renderRecipe(recipe);
+      out.println();
     } catch (IllegalArgumentException e) {
-      System.out.println(e.getMessage());
+      out.println(e.getMessage());
     }
   }
 
@@ -90,24 +106,24 @@ public class CookbookMenuService {
    * the method prints the recipes to the console.
    */
   public void caseSearchRecipesByIngredients() {
-    System.out.println("Enter the ingredients you want to search for (comma-separated): ");
+    out.println("Enter the ingredients you want to search for (comma-separated): ");
     final String ingredients = InterfaceUtils.stringInput();
     final List<String> ingredientList = Stream.of(ingredients.replace(" ", "")
         .split(",")).map(StringUtils::capitalize).toList();
 
     final List<Recipe> recipesFound = cookbook.getRecipes().stream()
-        .filter(recipe -> recipe.getIngredients().stream()
-            .map(Ingredient::getName)
-            .collect(Collectors.toSet())
-            .containsAll(new HashSet<>(ingredientList)))
+        .filter(recipe -> ingredientList.stream().allMatch(recipe::containsIngredient))
         .toList();
 
     if (recipesFound.isEmpty()) {
-      System.out.println("No recipes found");
+      out.println("No recipes found");
       return;
     }
-    System.out.println("\nRecipes found:");
-    recipesFound.forEach(recipe -> System.out.println(recipe.toReadableString()));
+    out.println("\nRecipes found:");
+    for (Recipe recipe : recipesFound) {
+      renderer.renderRecipe(recipe);
+      out.println();
+    }
   }
 
   /**
@@ -123,42 +139,42 @@ public class CookbookMenuService {
    */
   public void caseAddNewRecipe() {
     try {
-      System.out.println("Enter the name of the recipe: ");
+      out.println("Enter the name of the recipe: ");
       final String name = StringUtils.capitalize(InterfaceUtils.stringInput());
       if (cookbook.getRecipes().stream().anyMatch(recipe -> recipe.getName()
           .equalsIgnoreCase(name))) {
         throw new IllegalArgumentException("Recipe already exists in cookbook.");
       }
 
-      System.out.println("Enter the description of the recipe: ");
+      out.println("Enter the description of the recipe: ");
       final String description = InterfaceUtils.stringInput();
-      System.out.println("Enter the instructions for the recipe: ");
+      out.println("Enter the instructions for the recipe: ");
       final String instructions = InterfaceUtils.stringInput();
-      System.out.println("Enter the number of servings: ");
+      out.println("Enter the number of servings: ");
       final int servings = InterfaceUtils.integerInput();
 
       final Recipe recipe = new Recipe(name, description, instructions, servings);
 
-      System.out.println("Enter the ingredients for the recipe. ");
+      out.println("Enter the ingredients for the recipe. ");
       boolean finished = false;
       for (int i = 1; !finished; i++) {
-        System.out.printf("Enter the name of ingredient #%d: ", i);
+        out.printf("Enter the name of ingredient #%d: ", i);
         final String ingredientName = InterfaceUtils.stringInput();
 
-        System.out.printf("Enter the category of ingredient #%d: ", i);
+        out.printf("Enter the category of ingredient #%d: ", i);
         final String ingredientCategory = InterfaceUtils.stringInput();
 
-        System.out.printf("Enter the unit of ingredient #%d: ", i);
+        out.printf("Enter the unit of ingredient #%d: ", i);
         final String ingredientUnit = InterfaceUtils.stringInput();
 
-        System.out.printf("Enter the amount of ingredient #%d: ", i);
+        out.printf("Enter the amount of ingredient #%d: ", i);
         final double ingredientAmount = InterfaceUtils.doubleInput();
 
         final Ingredient ingredient = new Ingredient(ingredientName, ingredientCategory,
             ingredientUnit, ingredientAmount);
         recipe.addIngredient(ingredient);
 
-        System.out.println("Do you want to add another ingredient? If so, enter 'yes'.");
+        out.println("Do you want to add another ingredient? If so, enter 'yes'.");
         final String answer = InterfaceUtils.stringInput();
         if (!answer.equalsIgnoreCase("yes")) {
           finished = true;
@@ -166,10 +182,10 @@ public class CookbookMenuService {
       }
 
       cookbook.addRecipe(recipe);
-      System.out.println("Recipe added successfully");
+      out.println("Recipe added successfully");
     } catch (IllegalArgumentException e) {
-      System.out.println("Failed to add recipe: ");
-      System.out.println("Error: " + e.getMessage());
+      out.println("Failed to add recipe: ");
+      out.println("Error: " + e.getMessage());
     }
   }
 
@@ -184,80 +200,81 @@ public class CookbookMenuService {
    * edit the amount of an ingredient.
    */
   public void caseEditRecipe() {
-    System.out.println("Enter the name of the recipe you want to edit: ");
+    out.println("Enter the name of the recipe you want to edit: ");
     final String recipeName = StringUtils.capitalize(InterfaceUtils.stringInput());
     try {
       final Recipe recipe = cookbook.getRecipe(recipeName);
-      System.out.println("Recipe found:");
-      System.out.println(recipe.toReadableString());
+      out.println("Recipe found:");
+      renderer.renderRecipe(recipe);
+      out.println();
 
       InterfaceUtils.promptRecipeEditMenu();
       final int editChoice = InterfaceUtils.integerInput();
 
       switch (editChoice) {
         case 1:
-          System.out.println("Enter the new name: ");
+          out.println("Enter the new name: ");
           final String newName = InterfaceUtils.stringInput();
           recipe.setName(newName);
+          cookbook.sortRecipes();
           break;
         case 2:
-          System.out.println("Enter the new description: ");
+          out.println("Enter the new description: ");
           final String newDescription = InterfaceUtils.stringInput();
           recipe.setDescription(newDescription);
           break;
         case 3:
-          System.out.println("Enter the new instructions: ");
+          out.println("Enter the new instructions: ");
           final String newInstructions = InterfaceUtils.stringInput();
           recipe.setInstructions(newInstructions);
           break;
         case 4:
-          System.out.println("Enter the name of the ingredient you want to add: ");
+          out.println("Enter the name of the ingredient you want to add: ");
           final String ingredientName = InterfaceUtils.stringInput();
-          System.out.println("Enter the category of the ingredient you want to add: ");
+          out.println("Enter the category of the ingredient you want to add: ");
           final String ingredientCategory = InterfaceUtils.stringInput();
-          System.out.println("Enter the unit of the ingredient you want to add: ");
+          out.println("Enter the unit of the ingredient you want to add: ");
           final String ingredientUnit = InterfaceUtils.stringInput();
-          System.out.println("Enter the amount of the ingredient you want to add: ");
+          out.println("Enter the amount of the ingredient you want to add: ");
           final double ingredientAmount = InterfaceUtils.doubleInput();
           recipe.addIngredient(new Ingredient(ingredientName, ingredientCategory, ingredientUnit,
               ingredientAmount));
           break;
         case 5:
-          System.out.println("Enter the name of the ingredient to edit the amount of: ");
+          out.println("Enter the name of the ingredient to edit the amount of: ");
           final String ingredientToEditName = InterfaceUtils.stringInput();
-          final Ingredient ingredient = cookbook.getRecipe(recipeName)
-              .getIngredient(ingredientToEditName);
-          System.out.printf("Enter the new amount for the ingredient (currently %.2f): %n",
+          final Ingredient ingredient = recipe.getIngredient(ingredientToEditName);
+          out.printf("Enter the new amount for the ingredient (currently %.2f): %n",
               ingredient.getAmount());
           final double newAmount = InterfaceUtils.doubleInput();
           try {
-            ingredient.setAmount(newAmount);
+            recipe.setIngredientAmount(ingredientToEditName, newAmount);
           } catch (IllegalArgumentException e) {
-            System.out.println("Could not edit the amount.");
-            System.out.println("Error: " + e.getMessage());
+            out.println("Could not edit the amount.");
+            out.println("Error: " + e.getMessage());
             return;
           }
           break;
         case 6:
-          System.out.println("Enter the name of the ingredient you want to remove: ");
+          out.println("Enter the name of the ingredient you want to remove: ");
           final String ingredientToRemove = InterfaceUtils.stringInput();
           cookbook.getRecipe(recipeName).removeIngredient(cookbook.getRecipe(recipeName)
               .getIngredient(ingredientToRemove));
           break;
         case 7:
-          System.out.println("Enter the new amount of servings: ");
+          out.println("Enter the new amount of servings: ");
           final int newServings = InterfaceUtils.integerInput();
           recipe.setServings(newServings);
           break;
         default:
-          System.out.println("Invalid choice");
+          out.println("Invalid choice");
           break;
       }
     } catch (IllegalArgumentException e) {
-      System.out.println(e.getMessage());
+      out.println(e.getMessage());
       return;
     }
-    System.out.println("Recipe edited successfully");
+    out.println("Recipe edited successfully");
   }
 
   /**
@@ -269,15 +286,15 @@ public class CookbookMenuService {
    * cookbook.
    */
   public void caseRemoveRecipe() {
-    System.out.println("Enter the name of the recipe you want to remove: ");
+    out.println("Enter the name of the recipe you want to remove: ");
     final String name = StringUtils.capitalize(InterfaceUtils.stringInput());
     try {
       cookbook.removeRecipe(cookbook.getRecipe(name));
     } catch (IllegalArgumentException e) {
-      System.out.println(e.getMessage());
+      out.println(e.getMessage());
       return;
     }
-    System.out.println("Recipe removed successfully");
+    out.println("Recipe removed successfully");
   }
 
   /**
@@ -285,19 +302,71 @@ public class CookbookMenuService {
    *
    * <p>
    * The method prints all recipes in the cookbook to the console. If there are no recipes in the
-   * cookbook, the method prints an error message.
+   * cookbook, the method prints an error message. The recipes are written directly to the console
+   * one by one, so no string containing the whole cookbook is built.
    */
   public void caseShowAllRecipes() {
     if (cookbook.getRecipes().isEmpty()) {
-      System.out.println("There are no recipes in the cookbook.");
+      out.println("There are no recipes in the cookbook.");
+      return;
+    }
+    out.println("All recipes:");
+    renderer.renderRecipes(cookbook.getRecipes());
+    renderer.flush();
+  }
+
+  /**
+   * Finds recipes in the cookbook that are near-duplicates of each other, and lets the user remove
+   * the duplicates.
+   *
+   * <p>
+   * Two recipes are near-duplicates if at least 80 % of their ingredients are the same. The method
+   * prints each group of near-duplicate recipes to the console. If the user then enters 'yes', the
+   * first recipe of each group is kept, and the others are removed from the cookbook.
+   */
+  public void caseFindDuplicateRecipes() {
+    final RecipeDeduplicationService deduplicationService =
+        new RecipeDeduplicationService(cookbook);
+    final List<List<Recipe>> clusters =
+        deduplicationService.findDuplicateClusters(DUPLICATE_THRESHOLD);
+    if (clusters.isEmpty()) {
+      out.println("No near-duplicate recipes found.");
       return;
     }
-    System.out.println("All recipes:");
-    for (Recipe recipe : cookbook.getRecipes()) {
-      System.out.printf("""
-          -------------------------------------------
-          %s
-          """, recipe.toReadableString());
+
+    out.println("Near-duplicate recipes:");
+    for (List<Recipe> cluster : clusters) {
+      out.println("- " + String.join(", ", cluster.stream().map(Recipe::getName)
+          .toList()));
+    }
+
+    out.println("Do you want to keep only the first recipe of each group? If so, enter "
+        + "'yes'.");
+    if (InterfaceUtils.stringInput().equalsIgnoreCase("yes")) {
+      final int removed = deduplicationService.removeDuplicates(clusters);
+      out.printf("Removed %d duplicate recipes.%n", removed);
+    }
+  }
+
+  /**
+   * Imports recipes from a CSV or JSON-lines file chosen by the user.
+   *
+   * <p>
+   * The format of the file is chosen by its extension. The method prints the progress while the
+   * file is read, and then the number of imported and rejected rows, with the reasons the first
+   * rows were rejected.
+   *
+   * @see RecipeImporter
+   */
+  public void caseImportRecipes() {
+    out.print("Enter the file to import recipes from: ");
+    try {
+      final Path path = Path.of(InterfaceUtils.stringInput().strip());
+      final ImportResult result = new RecipeImporter(cookbook)
+          .importRecipes(path, FileFormat.of(path), InterfaceUtils.importProgressPrinter());
+      InterfaceUtils.printImportResult(result);
+    } catch (IOException | IllegalArgumentException e) {
+      out.println("Recipes could not be imported: " + e.getMessage());
     }
   }
 }
\ No newline at end of file
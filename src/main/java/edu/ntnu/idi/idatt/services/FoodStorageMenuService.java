@@ -3,9 +3,17 @@ package edu.ntnu.idi.idatt.services;
 import edu.ntnu.idi.idatt.models.FoodStorage;
 import edu.ntnu.idi.idatt.models.Grocery;
 import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.persistence.FileFormat;
+import edu.ntnu.idi.idatt.persistence.GroceryImporter;
+import edu.ntnu.idi.idatt.persistence.ImportResult;
+import edu.ntnu.idi.idatt.persistence.ReportExporter;
 import edu.ntnu.idi.idatt.utils.InterfaceUtils;
+import edu.ntnu.idi.idatt.utils.ReadableRenderer;
 import edu.ntnu.idi.idatt.utils.StringUtils;
 import edu.ntnu.idi.idatt.views.TextUserInterface;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
@@ -27,6 +35,8 @@ import java.util.List;
  * <li>Showing all grocery items expiring before a date
  * <li>Calculating the total value of all grocery items
  * <li>Removing all expired grocery items
+ * <li>Importing grocery items from a CSV or JSON-lines file
+ * <li>Exporting the inventory and the batches expiring before a date to a CSV or JSON-lines file
  * </ul>
  *
  * @see TextUserInterface
@@ -40,6 +50,9 @@ public class FoodStorageMenuService {
   private static final String FOODSTORAGE_NULL_ERROR = "Food storage cannot be null";
   private static final String CURRENTDATE_NULL_ERROR = "Current date cannot be null";
 
+  private final ReadableRenderer renderer;
+  /** The output of the session the service was made for. */
+  private final PrintStream out;
   private FoodStorage foodStorage;
   private LocalDate currentDate;
 
@@ -59,6 +72,8 @@ public class FoodStorageMenuService {
       throw new IllegalArgumentException(CURRENTDATE_NULL_ERROR);
     }
 
+    this.out = InterfaceUtils.output();
+    this.renderer = new ReadableRenderer(out);
     setFoodStorage(foodStorage);
     setCurrentDate(currentDate);
   }
@@ -133,33 +148,33 @@ public class FoodStorageMenuService {
    * date of the grocery. The method then adds the grocery to the food storage.
    */
   public void caseAddGrocery() {
-    System.out.print("Enter name: ");
+    out.print("Enter name: ");
     final String name = StringUtils.capitalize(InterfaceUtils.stringInput());
 
     if (checkIfGroceryExists(name)) {
-      System.out.println("Grocery already exists. Adding batch instead.");
+      out.println("Grocery already exists. Adding batch instead.");
       addGroceryBatch(name);
       return;
     }
 
     try {
-      System.out.print("Enter category: ");
+      out.print("Enter category: ");
       final String category = InterfaceUtils.stringInput();
-      System.out.print("Enter unit: ");
+      out.print("Enter unit: ");
       final String unit = InterfaceUtils.stringInput();
-      System.out.print("Enter amount: ");
+      out.print("Enter amount: ");
       final double amount = InterfaceUtils.doubleInput();
-      System.out.printf("Enter price (per %s) in NOK: ", unit);
+      out.printf("Enter price (per %s) in NOK: ", unit);
       final double pricePerUnit = InterfaceUtils.doubleInput();
-      System.out.print("Enter expiration date (yyyy-mm-dd): ");
+      out.print("Enter expiration date (yyyy-mm-dd): ");
       final LocalDate expDate = InterfaceUtils.dateInput();
 
       foodStorage.addGrocery(new Grocery(name, category, unit,
           new GroceryBatch(amount, pricePerUnit, expDate)));
-      System.out.println("\nGrocery added successfully!");
+      out.println("\nGrocery added successfully!");
     } catch (IllegalArgumentException e) {
-      System.out.println("Failed to add grocery: ");
-      System.out.println("Error: " + e.getMessage());
+      out.println("Failed to add grocery: ");
+      out.println("Error: " + e.getMessage());
     }
   }
 
@@ -185,20 +200,26 @@ public class FoodStorageMenuService {
       throw new IllegalArgumentException("Grocery not found");
     }
 
-    System.out.printf("Enter amount (%s): ", grocery.getUnit());
+    out.printf("Enter amount (%s): ", grocery.getUnit());
     final double amount = InterfaceUtils.doubleInput();
-    System.out.print("Enter price (per " + grocery.getUnit() + ") in NOK: ");
+    out.print("Enter price (per " + grocery.getUnit() + ") in NOK: ");
     final double pricePerUnit = InterfaceUtils.doubleInput();
-    System.out.print("Enter expiration date (yyyy-mm-dd): ");
+    out.print("Enter expiration date (yyyy-mm-dd): ");
     final LocalDate expDate = InterfaceUtils.dateInput();
+    // Another session may have removed the grocery while the user was typing.
+    final Grocery current = getGroceryByName(name);
+    if (current == null) {
+      out.println("Grocery called '" + name + "' was removed before the batch was added.");
+      return;
+    }
     try {
-      grocery.addBatch(new GroceryBatch(amount, pricePerUnit, expDate));
-    } catch (IllegalArgumentException e) {
-      System.out.println("Failed to add batch: ");
-      System.out.println(e.getMessage());
+      current.addBatch(new GroceryBatch(amount, pricePerUnit, expDate));
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      out.println("Failed to add batch: ");
+      out.println(e.getMessage());
       return;
     }
-    System.out.println("\nBatch added successfully!");
+    out.println("\nBatch added successfully!");
   }
 
   /**
@@ -211,35 +232,45 @@ public class FoodStorageMenuService {
    * grocery entirely from the food storage. If the amount to consume is less than the total amount
    * of the grocery, the method calls the {@code consume} method of the grocery object to update
    * the amount of the grocery. When the method is finished, it prints a success message.
+   *
+   * <p>
+   * The grocery is looked up again after the amount is entered, as another session may have
+   * changed or removed it meanwhile. It is only removed if nobody has changed it since.
    */
   public void caseConsumeGrocery() {
-    System.out.print("Enter name of grocery to consume: ");
+    out.print("Enter name of grocery to consume: ");
     final String name = StringUtils.capitalize(InterfaceUtils.stringInput());
 
     final Grocery grocery = getGroceryByName(name);
     if (grocery == null) {
-      System.out.println("Grocery called '" + name + "' not found.");
+      out.println("Grocery called '" + name + "' not found.");
       return;
     }
 
-    System.out.printf("Current amount: %.2f %s%n", grocery.getTotalAmount(), grocery.getUnit());
-    System.out.printf("Enter amount to consume (%s): ", grocery.getUnit());
+    out.printf("Current amount: %.2f %s%n", grocery.getTotalAmount(), grocery.getUnit());
+    out.printf("Enter amount to consume (%s): ", grocery.getUnit());
     final double amount = InterfaceUtils.doubleInput();
-    if (amount == grocery.getTotalAmount()) {
-      foodStorage.removeGrocery(grocery);
-      System.out.println("Successfully removed grocery.");
+    final Grocery current = getGroceryByName(name);
+    if (current == null) {
+      out.println("Grocery called '" + name + "' was removed before it was consumed.");
+      return;
+    }
+    final long version = current.getVersion();
+    if (amount == current.getTotalAmount()
+        && foodStorage.removeGroceryIfVersion(current, version)) {
+      out.println("Successfully removed grocery.");
       return;
     }
 
     try {
-      grocery.consume(amount);
-    } catch (IllegalArgumentException e) {
-      System.out.println("Failed to consume grocery: ");
-      System.out.println("Error: " + e.getMessage());
+      current.consume(amount);
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      out.println("Failed to consume grocery: ");
+      out.println("Error: " + e.getMessage());
       return;
     }
-    System.out.printf("Successfully consumed %.2f %s of %s!%n", amount, grocery.getUnit(),
-        grocery.getName());
+    out.printf("Successfully consumed %.2f %s of %s!%n", amount, current.getUnit(),
+        current.getName());
   }
 
   /**
@@ -251,15 +282,16 @@ public class FoodStorageMenuService {
    * an error message.
    */
   public void caseFindGroceryByName() {
-    System.out.print("Enter name of grocery to find: ");
+    out.print("Enter name of grocery to find: ");
     final String name = StringUtils.capitalize(InterfaceUtils.stringInput());
     final Grocery grocery = getGroceryByName(name);
     if (grocery == null) {
-      System.out.println("Grocery called '" + name + "' not found.");
+      out.println("Grocery called '" + name + "' not found.");
       return;
     }
-    System.out.println("Grocery:\n");
-    System.out.println(grocery.toReadableString());
+    out.println("Grocery:\n");
+    renderer.renderGrocery(grocery);
+    out.println();
   }
 
   /**
@@ -271,17 +303,16 @@ public class FoodStorageMenuService {
    * groceries to the console.
    */
   public void caseFindGroceriesByCategory() {
-    System.out.print("Enter category of groceries to find: ");
+    out.print("Enter category of groceries to find: ");
     final String category = StringUtils.capitalize(InterfaceUtils.stringInput());
     final List<Grocery> groceries = foodStorage.getGroceriesByCategory(category);
     if (groceries.isEmpty()) {
-      System.out.println("No groceries found in category: " + category);
+      out.println("No groceries found in category: " + category);
       return;
     }
-    System.out.printf("%nGroceries in category: %s%n%n", category);
-    for (Grocery grocery : groceries) {
-      System.out.println(grocery.toReadableString());
-    }
+    out.printf("%nGroceries in category: %s%n%n", category);
+    renderer.renderGroceries(groceries);
+    renderer.flush();
   }
 
   /**
@@ -293,17 +324,16 @@ public class FoodStorageMenuService {
    * method prints the groceries to the console.
    */
   public void caseFindGroceriesExpiringOnDate() {
-    System.out.print("Enter expiration date (yyyy-mm-dd): ");
+    out.print("Enter expiration date (yyyy-mm-dd): ");
     final LocalDate expDate = InterfaceUtils.dateInput();
     final List<Grocery> groceries = foodStorage.getGroceriesExpiringOnDate(expDate);
     if (groceries.isEmpty()) {
-      System.out.println("No groceries expire on: " + expDate);
+      out.println("No groceries expire on: " + expDate);
       return;
     }
-    System.out.printf("%nGroceries expiring on: %s%n%n", expDate);
-    for (Grocery grocery : groceries) {
-      System.out.println(grocery.toReadableString());
-    }
+    out.printf("%nGroceries expiring on: %s%n%n", expDate);
+    renderer.renderGroceries(groceries);
+    renderer.flush();
   }
 
   /**
@@ -316,14 +346,13 @@ public class FoodStorageMenuService {
   public void caseShowAllGroceries() {
     final List<Grocery> groceries = foodStorage.getAllGroceriesAlphabetically();
     if (groceries.isEmpty()) {
-      System.out.println("There are no groceries in the food storage.");
+      out.println("There are no groceries in the food storage.");
       return;
     }
 
-    System.out.println("All groceries in the food storage:\n");
-    for (Grocery grocery : groceries) {
-      System.out.println(grocery.toReadableString());
-    }
+    out.println("All groceries in the food storage:\n");
+    renderer.renderGroceries(groceries);
+    renderer.flush();
   }
 
   /**
@@ -336,20 +365,21 @@ public class FoodStorageMenuService {
   public void caseShowAllExpiredGroceries() {
     final List<Grocery> groceries = foodStorage.getGroceriesExpiringBeforeDate(currentDate);
     if (groceries.isEmpty()) {
-      System.out.println("There are no expired groceries in the food storage.");
+      out.println("There are no expired groceries in the food storage.");
       return;
     }
     double totalValue = 0;
-    System.out.println("Expired groceries:\n");
+    out.println("Expired groceries:\n");
     for (Grocery grocery : groceries) {
-      System.out.println(grocery);
+      renderer.renderGrocery(grocery);
+      out.println();
       for (GroceryBatch batch : grocery.getBatches()) {
         if (batch.getExpirationDate().isBefore(currentDate)) {
           totalValue += batch.getAmount() * batch.getPricePerUnit();
         }
       }
     }
-    System.out.printf("%nTotal value of all expired grocery batches: %.2f NOK%n", totalValue);
+    out.printf("%nTotal value of all expired grocery batches: %.2f NOK%n", totalValue);
   }
 
   /**
@@ -362,18 +392,17 @@ public class FoodStorageMenuService {
    * Otherwise, the method prints the groceries to the console.
    */
   public void caseShowGroceriesExpiringBeforeDate() {
-    System.out.print("Enter expiration date (yyyy-mm-dd): ");
+    out.print("Enter expiration date (yyyy-mm-dd): ");
     final LocalDate expDate = InterfaceUtils.dateInput();
 
     final List<Grocery> groceries = foodStorage.getGroceriesExpiringBeforeDate(expDate);
     if (groceries.isEmpty()) {
-      System.out.println("No groceries expire before: " + expDate);
+      out.println("No groceries expire before: " + expDate);
       return;
     }
-    System.out.println("Groceries expiring before " + expDate + ":\n");
-    for (Grocery grocery : groceries) {
-      System.out.println(grocery.toReadableString());
-    }
+    out.println("Groceries expiring before " + expDate + ":\n");
+    renderer.renderGroceries(groceries);
+    renderer.flush();
   }
 
   /**
@@ -392,7 +421,7 @@ public class FoodStorageMenuService {
       }
     }
 
-    System.out.printf("Total value of all groceries: %.2f NOK%n", totalValue);
+    out.printf("Total value of all groceries: %.2f NOK%n", totalValue);
   }
 
   /**
@@ -409,7 +438,7 @@ public class FoodStorageMenuService {
     final List<Grocery> expiredGroceriesForIteration = new ArrayList<>(
         foodStorage.getGroceriesExpiringBeforeDate(currentDate));
     if (expiredGroceriesForIteration.isEmpty()) {
-      System.out.println("There are no expired groceries in the food storage.");
+      out.println("There are no expired groceries in the food storage.");
       return;
     }
 
@@ -421,16 +450,75 @@ public class FoodStorageMenuService {
         if (batch.getExpirationDate().isBefore(currentDate)) {
           if (grocery.getBatches().size() == 1) {
             foodStorage.removeGrocery(grocery);
-            System.out.printf("Removed %s, expired on %s%n", grocery.getName(),
+            out.printf("Removed %s, expired on %s%n", grocery.getName(),
                 batch.getExpirationDate());
             break;
           }
           grocery.consume(batch.getAmount());
-          System.out.printf("Removed batch from %s, expired on %s%n",
+          out.printf("Removed batch from %s, expired on %s%n",
               grocery.getName(), batch.getExpirationDate());
         }
       }
     }
-    System.out.println("All expired grocery batches removed from the food storage.");
+    out.println("All expired grocery batches removed from the food storage.");
+  }
+
+  /**
+   * Imports groceries from a CSV or JSON-lines file chosen by the user.
+   *
+   * <p>
+   * The format of the file is chosen by its extension. The method prints the progress while the
+   * file is read, and then the number of imported and rejected rows, with the reasons the first
+   * rows were rejected.
+   *
+   * @see GroceryImporter
+   */
+  public void caseImportGroceries() {
+    out.print("Enter the file to import groceries from: ");
+    try {
+      final Path path = Path.of(InterfaceUtils.stringInput().strip());
+      final ImportResult result = new GroceryImporter(foodStorage)
+          .importGroceries(path, FileFormat.of(path), InterfaceUtils.importProgressPrinter());
+      InterfaceUtils.printImportResult(result);
+    } catch (IOException | IllegalArgumentException e) {
+      out.println("Groceries could not be imported: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Exports the inventory of the food storage to a CSV or JSON-lines file chosen by the user,
+   * with one row for each grocery batch.
+   *
+   * @see ReportExporter
+   */
+  public void caseExportInventory() {
+    out.print("Enter the file to export the inventory to: ");
+    try {
+      final Path path = Path.of(InterfaceUtils.stringInput().strip());
+      final long rows = ReportExporter.exportInventory(path, FileFormat.of(path), foodStorage);
+      out.printf("Exported %d grocery batches to %s%n", rows, path.toAbsolutePath());
+    } catch (IOException | IllegalArgumentException e) {
+      out.println("Inventory could not be exported: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Exports the grocery batches expiring on or before a date chosen by the user to a CSV or
+   * JSON-lines file chosen by the user.
+   *
+   * @see ReportExporter
+   */
+  public void caseExportExpiringBatches() {
+    out.print("Enter the last expiration date to include (yyyy-mm-dd): ");
+    final LocalDate lastDate = InterfaceUtils.dateInput();
+    out.print("Enter the file to export the expiring batches to: ");
+    try {
+      final Path path = Path.of(InterfaceUtils.stringInput().strip());
+      final long rows = ReportExporter.exportExpiringBatches(path, FileFormat.of(path),
+          foodStorage, currentDate, lastDate);
+      out.printf("Exported %d grocery batches to %s%n", rows, path.toAbsolutePath());
+    } catch (IOException | IllegalArgumentException e) {
+      out.println("Expiring batches could not be exported: " + e.getMessage());
+    }
   }
 }
\ No newline at end of file
@@ -3,16 +3,22 @@ package edu.ntnu.idi.idatt.services;
 import edu.ntnu.idi.idatt.models.Cookbook;
 import edu.ntnu.idi.idatt.models.FoodStorage;
 import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.Ingredient;
 import edu.ntnu.idi.idatt.models.Recipe;
+import edu.ntnu.idi.idatt.persistence.FileFormat;
+import edu.ntnu.idi.idatt.persistence.ReportExporter;
 import edu.ntnu.idi.idatt.utils.InterfaceUtils;
 import edu.ntnu.idi.idatt.views.TextUserInterface;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.stream.Collectors;
 
 /**
  * A service class allowing for a user interface, like {@link TextUserInterface}, to interact with
@@ -24,6 +30,9 @@ import java.util.stream.Collectors;
  * <li>Suggesting meals based on groceries expiring before a date
  * <li>Suggesting meals based on groceries in the food storage
  * <li>Suggesting a random meal, based on groceries in the food storage
+ * <li>Showing the estimated cost of the recipes that can be made
+ * <li>Exporting the availability of all recipes to a CSV or JSON-lines file
+ * <li>Finding the recipes that can be made with a list of groceries, for other interfaces
  * </ul>
  *
  * @see TextUserInterface
@@ -36,10 +45,17 @@ import java.util.stream.Collectors;
 public class MealSuggestionsService {
   private static final String FOODSTORAGE_NULL_ERROR = "Food storage cannot be null";
   private static final String COOKBOOK_NULL_ERROR = "Cookbook cannot be null";
+  private static final Comparator<Grocery> BY_EXPIRATION_DATE_THEN_NAME = Comparator
+      .comparing((Grocery grocery) -> grocery.getBatches().getFirst().getExpirationDate())
+      .thenComparing(Grocery::getName);
 
   private FoodStorage foodStorage;
   private Cookbook cookbook;
   private final Random random;
+  /** The output of the session the service was made for. */
+  private final PrintStream out;
+  /** Estimates the costs of recipes from the prices in {@code foodStorage}. */
+  private RecipeCostService recipeCostService;
 
   /**
    * Constructs a new meal suggestions service with the provided food storage and cookbook.
@@ -58,6 +74,7 @@ public class MealSuggestionsService {
       throw new IllegalArgumentException(COOKBOOK_NULL_ERROR);
     }
 
+    this.out = InterfaceUtils.output();
     this.random = new Random();
 
     setFoodStorage(foodStorage);
@@ -65,7 +82,7 @@ public class MealSuggestionsService {
   }
 
   /**
-   * Sets the food storage object to use.
+   * Sets the food storage object to use, and the cost service estimating costs from its prices.
    *
    * @param foodStorage the food storage object to use
    * @throws IllegalArgumentException if the provided food storage is null.
@@ -75,6 +92,7 @@ public class MealSuggestionsService {
       throw new IllegalArgumentException(FOODSTORAGE_NULL_ERROR);
     }
     this.foodStorage = foodStorage;
+    this.recipeCostService = new RecipeCostService(foodStorage);
   }
 
   /**
@@ -100,28 +118,28 @@ public class MealSuggestionsService {
    * message indicating that no meals can be suggested.
    */
   public void caseSuggestMealsFromExpiringGroceries() {
-    System.out.println("The meal suggestions based on expiration date work as follows:");
-    System.out.println("You enter a date, and recipes you can make, with groceries in the food"
+    out.println("The meal suggestions based on expiration date work as follows:");
+    out.println("You enter a date, and recipes you can make, with groceries in the food"
         + "storage that expire *before* that date, are suggested.");
 
-    System.out.print("Enter expiration date (yyyy-mm-dd): ");
+    out.print("Enter expiration date (yyyy-mm-dd): ");
     final LocalDate expDate = InterfaceUtils.dateInput();
     final List<Grocery> expiringGroceries = foodStorage.getGroceriesExpiringBeforeDate(expDate);
 
     final Map<Recipe, List<Grocery>> possibleRecipes = findPossibleRecipes(expiringGroceries);
 
     if (possibleRecipes.isEmpty()) {
-      System.out.println("No meal suggestions available for the given date.");
+      out.println("No meal suggestions available for the given date.");
       return;
     }
 
-    System.out.println("Meal suggestions:");
+    out.println("Meal suggestions:");
     int suggestionNumber = 1;
     for (Map.Entry<Recipe, List<Grocery>> entry : possibleRecipes.entrySet()) {
       final Recipe recipe = entry.getKey();
       final List<Grocery> matchingGroceries = entry.getValue();
 
-      System.out.printf("""
+      out.printf("""
             -------------------------
             Meal suggestion %d:
             Recipe: %s
@@ -129,13 +147,13 @@ public class MealSuggestionsService {
             """, suggestionNumber++, recipe.getName(), expDate);
 
       matchingGroceries.forEach(grocery ->
-          System.out.printf("- %s (expires: %s, amount: %.2f %s)%n",
+          out.printf("- %s (expires: %s, amount: %.2f %s)%n",
               grocery.getName(),
               grocery.getBatches().getFirst().getExpirationDate(), // Tar den tidligste batchen
               grocery.getBatches().getFirst().getAmount(),
               grocery.getUnit())
       );
-      System.out.print("\n");
+      out.print("\n");
     }
   }
 
@@ -149,36 +167,37 @@ public class MealSuggestionsService {
    * existing groceries, the method prints a message indicating that no meals can be suggested.
    */
   public void caseSuggestMealsFromExistingGroceries() {
-    System.out.print("Possible meals based on groceries in the food storage: ");
+    out.print("Possible meals based on groceries in the food storage: ");
     final List<Grocery> groceriesList = foodStorage.getAllGroceriesAlphabetically();
     final Map<Recipe, List<Grocery>> possibleRecipes = findPossibleRecipes(groceriesList);
 
     if (possibleRecipes.isEmpty()) {
-      System.out.println("No meal suggestions available for the given date.");
+      out.println("No meal suggestions available for the given date.");
       return;
     }
-    System.out.println("Meal suggestions:");
+    out.println("Meal suggestions:");
     int suggestionNumber = 1;
     for (Map.Entry<Recipe, List<Grocery>> entry : possibleRecipes.entrySet()) {
       final Recipe recipe = entry.getKey();
       final List<Grocery> matchingGroceries = entry.getValue();
 
-      System.out.printf("""
+      out.printf("""
           -------------------------
           Meal suggestion %d:
           - - - - - - - - - - - - -
           Recipe: %s
           Ingredients:
           """, suggestionNumber++, recipe.getName());
-      matchingGroceries.forEach(grocery ->
-          System.out.printf("- %s (Need: %.2f %s, Amount in storage: %.2f %s)%n",
+      for (Grocery grocery : matchingGroceries) {
+        final Ingredient ingredient = recipe.getIngredient(grocery.getName());
+        out.printf("- %s (Need: %.2f %s, Amount in storage: %.2f %s)%n",
             grocery.getName(),
-            recipe.getIngredient(grocery.getName()).getAmount(),
-            recipe.getIngredient(grocery.getName()).getUnit(),
+            ingredient.getAmount(),
+            ingredient.getUnit(),
             grocery.getTotalAmount(),
-            grocery.getUnit())
-      );
-      System.out.print("\n");
+            grocery.getUnit());
+      }
+      out.print("\n");
     }
   }
 
@@ -194,11 +213,11 @@ public class MealSuggestionsService {
    */
   public void caseSuggestRandomMeal() {
     if (cookbook.getRecipes().isEmpty()) {
-      System.out.println("No recipes in the cookbook.");
+      out.println("No recipes in the cookbook.");
       return;
     }
     if (foodStorage.getAllGroceries().isEmpty()) {
-      System.out.println("No groceries in the food storage.");
+      out.println("No groceries in the food storage.");
       return;
     }
 
@@ -206,29 +225,71 @@ public class MealSuggestionsService {
         .getAllGroceriesAlphabetically());
 
     if (possibleRecipes.isEmpty()) {
-      System.out.println("No meal suggestions available for the groceries in the food storage.");
+      out.println("No meal suggestions available for the groceries in the food storage.");
       return;
     }
 
     final Object[] recipeArray = possibleRecipes.keySet().toArray();
     final Recipe randomRecipe = (Recipe) recipeArray[random.nextInt(recipeArray.length)];
 
-    System.out.printf("""
+    out.printf("""
             -------------------------
             Random meal suggestion:
             - - - - - - - - - - - - -
             Recipe: %s
             Ingredients:
             """, randomRecipe.getName());
-    possibleRecipes.get(randomRecipe).forEach(grocery ->
-        System.out.printf("- %s (Need: %.2f %s, Amount in storage: %.2f %s)%n",
-            grocery.getName(),
-            randomRecipe.getIngredient(grocery.getName()).getAmount(),
-            randomRecipe.getIngredient(grocery.getName()).getUnit(),
-            grocery.getTotalAmount(),
-            grocery.getUnit())
-    );
-    System.out.print("\n");
+    for (Grocery grocery : possibleRecipes.get(randomRecipe)) {
+      final Ingredient ingredient = randomRecipe.getIngredient(grocery.getName());
+      out.printf("- %s (Need: %.2f %s, Amount in storage: %.2f %s)%n",
+          grocery.getName(),
+          ingredient.getAmount(),
+          ingredient.getUnit(),
+          grocery.getTotalAmount(),
+          grocery.getUnit());
+    }
+    out.print("\n");
+  }
+
+  /**
+   * Shows the estimated cost of every recipe that can be made with the groceries in the food
+   * storage.
+   *
+   * <p>
+   * The cost of each recipe is estimated by the {@link RecipeCostService}, using the price of the
+   * grocery batches that would be consumed first. If no recipes can be made with the groceries in
+   * the food storage, the method prints a message indicating that no costs can be estimated.
+   */
+  public void caseShowRecipeCosts() {
+    final Map<Recipe, Double> costs = recipeCostService.estimateCosts(cookbook);
+    if (costs.isEmpty()) {
+      out.println("No recipes can be made with the groceries in the food storage.");
+      return;
+    }
+
+    out.println("Estimated cost of recipes, using the batches that expire first:");
+    for (Map.Entry<Recipe, Double> entry : costs.entrySet()) {
+      out.printf("- %s: %.2f NOK (%.2f NOK per serving)%n", entry.getKey().getName(),
+          entry.getValue(), entry.getValue() / entry.getKey().getServings());
+    }
+  }
+
+  /**
+   * Exports the availability of every recipe in the cookbook to a CSV or JSON-lines file chosen
+   * by the user, with the ingredients missing from the food storage.
+   *
+   * @see ReportExporter
+   */
+  public void caseExportRecipeAvailability() {
+    out.print("Enter the file to export the recipe availability to: ");
+    try {
+      final Path path = Path.of(InterfaceUtils.stringInput().strip());
+      final long rows = ReportExporter.exportRecipeAvailability(path, FileFormat.of(path),
+          foodStorage, cookbook);
+      out.printf("Exported %d recipes to %s%n", rows, path.toAbsolutePath());
+    } catch (IOException | IllegalArgumentException e) {
+      out.println("Recipe availability could not be exported: " + e.getMessage());
+    }
   }
 
   /**
@@ -240,38 +301,47 @@ public class MealSuggestionsService {
    * used to make the recipe. The method also checks if the ingredients of the recipe are available
    * in the groceries list. If an ingredient is not available, the method skips the recipe.
    *
+   * <p>
+   * The groceries are put in a map by name first, so each ingredient is matched with a single
+   * lookup instead of a search through the whole list of groceries.
+   *
    * @param groceriesList the list of groceries to find recipes for
    * @return a map of recipes to groceries, or an empty map if no recipes can be made with the
    *         provided groceries, or if the provided groceries list is empty.
+   * @throws IllegalArgumentException if the provided groceries list is null.
    */
-  private Map<Recipe, List<Grocery>> findPossibleRecipes(List<Grocery> groceriesList) {
+  public Map<Recipe, List<Grocery>> findPossibleRecipes(List<Grocery> groceriesList)
+      throws IllegalArgumentException {
+    if (groceriesList == null) {
+      throw new IllegalArgumentException("Groceries list cannot be null");
+    }
+    final Map<Recipe, List<Grocery>> recipeToGroceriesMap = new HashMap<>();
     if (groceriesList.isEmpty()) {
-      return new HashMap<>();
+      return recipeToGroceriesMap;
     }
 
-    final Map<Recipe, List<Grocery>> recipeToGroceriesMap = cookbook.getRecipes()
-        .stream()
-          .filter(recipe -> recipe.getIngredients().stream()
-            .allMatch(ingredient -> {
-              Grocery matchingGrocery = groceriesList.stream()
-                  .filter(grocery -> grocery.getName().equals(ingredient.getName()))
-                  .findFirst()
-                  .orElse(null);
+    final Map<String, Grocery> groceriesByName = new HashMap<>();
+    for (Grocery grocery : groceriesList) {
+      groceriesByName.put(grocery.getName(), grocery);
+    }
 
-              return matchingGrocery != null
-                  && matchingGrocery.getTotalAmount() >= ingredient.getAmount();
-            })
-          ).collect(Collectors.toMap(recipe -> recipe, recipe -> groceriesList.stream()
-            .filter(grocery -> recipe.getIngredients().stream()
-                .anyMatch(ingredient -> ingredient.getName().equals(grocery.getName())
-                    && grocery.getTotalAmount() >= ingredient.getAmount()))
-            .sorted(Comparator.comparing(Grocery::getName))
-            .sorted(Comparator.comparing(grocery -> grocery.getBatches().getFirst()
-                .getExpirationDate()))
-            .toList()
-          ));
+    for (Recipe recipe : cookbook.getRecipes()) {
+      final List<Grocery> matchingGroceries = new ArrayList<>();
+      for (Ingredient ingredient : recipe.getIngredients()) {
+        final Grocery matchingGrocery = groceriesByName.get(ingredient.getName());
+        if (matchingGrocery == null
+            || matchingGrocery.getTotalAmount() < ingredient.getAmount()) {
+          matchingGroceries.clear();
+          break;
+        }
+        matchingGroceries.add(matchingGrocery);
+      }
 
-    recipeToGroceriesMap.entrySet().removeIf(entry -> entry.getValue().isEmpty());
+      if (!matchingGroceries.isEmpty()) {
+        matchingGroceries.sort(BY_EXPIRATION_DATE_THEN_NAME);
+        recipeToGroceriesMap.put(recipe, matchingGroceries);
+      }
+    }
     return recipeToGroceriesMap;
   }
 }
\ No newline at end of file
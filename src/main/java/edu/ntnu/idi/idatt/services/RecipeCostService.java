@@ -0,0 +1,123 @@
+package edu.ntnu.idi.idatt.services;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A service class for estimating what it costs to make recipes with the groceries in a
+ * {@link FoodStorage}.
+ *
+ * <p>
+ * The cost of a recipe is the sum of the cost of its ingredients. The cost of an ingredient is
+ * found by taking the amount needed from the batches of the grocery with the same name, in the
+ * same order as the groceries are consumed, starting with the batch that expires first. Each
+ * batch contributes the amount taken from it multiplied by its price per unit.
+ *
+ * <p>
+ * The groceries keep the cumulative prices of their batches between estimates, so the cost of an
+ * ingredient is found in O(log n) time for n batches.
+ *
+ * @see Grocery#getPriceOf(double)
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public class RecipeCostService {
+  private static final String FOODSTORAGE_NULL_ERROR = "Food storage cannot be null";
+
+  private FoodStorage foodStorage;
+
+  /**
+   * Constructs a new recipe cost service, estimating costs from the provided food storage.
+   *
+   * @param foodStorage the food storage object to use
+   * @throws IllegalArgumentException if the provided food storage is null.
+   */
+  public RecipeCostService(FoodStorage foodStorage) throws IllegalArgumentException {
+    if (foodStorage == null) {
+      throw new IllegalArgumentException(FOODSTORAGE_NULL_ERROR);
+    }
+    setFoodStorage(foodStorage);
+  }
+
+  /**
+   * Sets the food storage object to use.
+   *
+   * @param foodStorage the food storage object to use
+   * @throws IllegalArgumentException if the provided food storage is null.
+   */
+  private void setFoodStorage(FoodStorage foodStorage) throws IllegalArgumentException {
+    if (foodStorage == null) {
+      throw new IllegalArgumentException(FOODSTORAGE_NULL_ERROR);
+    }
+    this.foodStorage = foodStorage;
+  }
+
+  /**
+   * Estimates the cost of making the provided recipe with the groceries in the food storage.
+   *
+   * @param recipe the recipe to estimate the cost of
+   * @return the estimated cost of the recipe, in NOK
+   * @throws IllegalArgumentException if the recipe is null, or if the food storage does not
+   *         contain enough of an ingredient in the recipe.
+   */
+  public double estimateCost(Recipe recipe) throws IllegalArgumentException {
+    if (recipe == null) {
+      throw new IllegalArgumentException("Recipe cannot be null");
+    }
+    double cost = 0;
+    for (Ingredient ingredient : recipe.getIngredients()) {
+      final Grocery grocery = foodStorage.getGroceryByName(ingredient.getName());
+      if (grocery.getTotalAmount() < ingredient.getAmount()) {
+        throw new IllegalArgumentException("Not enough " + ingredient.getName()
+            + " in the food storage.");
+      }
+      cost += grocery.getPriceOf(ingredient.getAmount());
+    }
+    return cost;
+  }
+
+  /**
+   * Estimates the cost of every recipe in the provided cookbook that can be made with the
+   * groceries in the food storage. Recipes that cannot be made are left out.
+   *
+   * @param cookbook the cookbook containing the recipes to estimate the cost of
+   * @return a map of recipes to their estimated cost in NOK, in the same order as the recipes in
+   *         the cookbook. The map can be empty.
+   * @throws IllegalArgumentException if the cookbook is null.
+   */
+  public Map<Recipe, Double> estimateCosts(Cookbook cookbook) throws IllegalArgumentException {
+    if (cookbook == null) {
+      throw new IllegalArgumentException("Cookbook cannot be null");
+    }
+    final Map<Recipe, Double> costs = new LinkedHashMap<>();
+    for (Recipe recipe : cookbook.getRecipes()) {
+      if (canBeMade(recipe)) {
+        costs.put(recipe, estimateCost(recipe));
+      }
+    }
+    return costs;
+  }
+
+  /**
+   * Checks if the food storage contains enough of every ingredient in the provided recipe.
+   *
+   * @param recipe the recipe to check
+   * @return true if the recipe can be made, false otherwise
+   */
+  private boolean canBeMade(Recipe recipe) {
+    for (Ingredient ingredient : recipe.getIngredients()) {
+      if (!foodStorage.containsGrocery(ingredient.getName())
+          || foodStorage.getGroceryByName(ingredient.getName()).getTotalAmount()
+              < ingredient.getAmount()) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,208 @@
+package edu.ntnu.idi.idatt.services;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import edu.ntnu.idi.idatt.utils.MinHash;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A service class for finding recipes in a {@link Cookbook} that are near-duplicates of each
+ * other, meaning their sets of ingredient names are very similar.
+ *
+ * <p>
+ * The similarity of two recipes is the Jaccard similarity of their ingredient names: the number
+ * of ingredients they have in common, divided by the number of different ingredients in the two
+ * recipes together. Instead of comparing every pair of recipes, the service groups the recipes by
+ * each band of their {@link MinHash} signatures, and only compares recipes that share at least
+ * one band. The exact similarity of these candidate pairs is then checked against the threshold,
+ * and recipes above it are joined into clusters. Within a bucket, every recipe is compared with
+ * each of the {@value #MAX_COMPARISONS} recipes before it, skipping those already in its cluster,
+ * so a bucket of similar recipes is compared pairwise, while a bucket of many recipes takes time
+ * linear in its size. Only two recipes further apart than that in every bucket they share can be
+ * missed, which needs more than {@value #MAX_COMPARISONS} other recipes sharing those bands.
+ *
+ * <p>
+ * Recipes keep their signatures between runs, and only compute them again when an ingredient is
+ * added or removed.
+ *
+ * @see MinHash
+ * @see Recipe#getIngredientSignature()
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public class RecipeDeduplicationService {
+  private static final String COOKBOOK_NULL_ERROR = "Cookbook cannot be null";
+  private static final String INVALID_THRESHOLD_ERROR = "Threshold must be between 0 and 1";
+  /** The largest number of recipes before it in a bucket that a recipe is compared with. */
+  private static final int MAX_COMPARISONS = 64;
+
+  private Cookbook cookbook;
+
+  /**
+   * Constructs a new recipe deduplication service for the provided cookbook.
+   *
+   * @param cookbook the cookbook object to use
+   * @throws IllegalArgumentException if the provided cookbook is null.
+   */
+  public RecipeDeduplicationService(Cookbook cookbook) throws IllegalArgumentException {
+    if (cookbook == null) {
+      throw new IllegalArgumentException(COOKBOOK_NULL_ERROR);
+    }
+    setCookbook(cookbook);
+  }
+
+  /**
+   * Sets the cookbook object to use.
+   *
+   * @param cookbook the cookbook object to use
+   * @throws IllegalArgumentException if the provided cookbook is null.
+   */
+  private void setCookbook(Cookbook cookbook) throws IllegalArgumentException {
+    if (cookbook == null) {
+      throw new IllegalArgumentException(COOKBOOK_NULL_ERROR);
+    }
+    this.cookbook = cookbook;
+  }
+
+  /**
+   * Finds clusters of recipes whose ingredients are at least as similar as the threshold.
+   *
+   * <p>
+   * Two recipes end up in the same cluster if they are similar, or if they are both similar to a
+   * third recipe in the cluster. Recipes without ingredients are never considered duplicates.
+   *
+   * @param threshold the minimum Jaccard similarity of two recipes for them to be considered
+   *                  duplicates. Must be greater than 0, and at most 1.
+   * @return a list of clusters, each containing at least two recipes sorted by name. The list can
+   *         be empty.
+   * @throws IllegalArgumentException if the threshold is not greater than 0 and at most 1.
+   */
+  public List<List<Recipe>> findDuplicateClusters(double threshold)
+      throws IllegalArgumentException {
+    if (threshold <= 0 || threshold > 1) {
+      throw new IllegalArgumentException(INVALID_THRESHOLD_ERROR);
+    }
+
+    final List<Recipe> recipes = new ArrayList<>();
+    final List<int[]> signatures = new ArrayList<>();
+    for (Recipe recipe : cookbook.getRecipes()) {
+      if (!recipe.getIngredients().isEmpty()) {
+        recipes.add(recipe);
+        signatures.add(recipe.getIngredientSignature());
+      }
+    }
+
+    final int[] parents = new int[recipes.size()];
+    for (int i = 0; i < parents.length; i++) {
+      parents[i] = i;
+    }
+
+    for (int band = 0; band < MinHash.BANDS; band++) {
+      final Map<Long, List<Integer>> buckets = new HashMap<>();
+      for (int i = 0; i < recipes.size(); i++) {
+        buckets.computeIfAbsent(MinHash.bandHash(signatures.get(i), band),
+            hash -> new ArrayList<>()).add(i);
+      }
+      for (List<Integer> bucket : buckets.values()) {
+        for (int i = 1; i < bucket.size(); i++) {
+          final int other = bucket.get(i);
+          for (int j = Math.max(0, i - MAX_COMPARISONS); j < i; j++) {
+            final int earlier = bucket.get(j);
+            if (find(parents, earlier) != find(parents, other)
+                && similarity(recipes.get(earlier), recipes.get(other)) >= threshold) {
+              parents[find(parents, other)] = find(parents, earlier);
+            }
+          }
+        }
+      }
+    }
+
+    final Map<Integer, List<Recipe>> clusters = new HashMap<>();
+    for (int i = 0; i < recipes.size(); i++) {
+      clusters.computeIfAbsent(find(parents, i), root -> new ArrayList<>()).add(recipes.get(i));
+    }
+    return clusters.values().stream()
+        .filter(cluster -> cluster.size() > 1)
+        .sorted((first, second) -> first.getFirst().getName()
+            .compareTo(second.getFirst().getName()))
+        .toList();
+  }
+
+  /**
+   * Removes near-duplicate recipes from the cookbook, keeping the first recipe of each of the
+   * provided clusters. The clusters should be the ones found by {@code findDuplicateClusters} and
+   * shown to the user, so exactly the recipes the user agreed to remove are removed.
+   *
+   * @param clusters the clusters of near-duplicate recipes, each sorted with the recipe to keep
+   *                 first
+   * @return the number of recipes removed from the cookbook
+   * @throws IllegalArgumentException if the clusters are null, or if a recipe to remove is no
+   *                                  longer in the cookbook.
+   */
+  public int removeDuplicates(List<List<Recipe>> clusters) throws IllegalArgumentException {
+    if (clusters == null) {
+      throw new IllegalArgumentException("Clusters cannot be null");
+    }
+    int removed = 0;
+    for (List<Recipe> cluster : clusters) {
+      for (Recipe duplicate : cluster.subList(1, cluster.size())) {
+        cookbook.removeRecipe(duplicate);
+        removed++;
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Computes the exact Jaccard similarity of the ingredient names of two recipes. Since the
+   * ingredients of a recipe are sorted by name, the common ingredients are counted by walking
+   * both lists once.
+   *
+   * @param first the first recipe
+   * @param second the second recipe
+   * @return the similarity of the recipes, between 0 and 1
+   */
+  private static double similarity(Recipe first, Recipe second) {
+    final List<Ingredient> firstIngredients = first.getIngredients();
+    final List<Ingredient> secondIngredients = second.getIngredients();
+    int i = 0;
+    int j = 0;
+    int common = 0;
+    while (i < firstIngredients.size() && j < secondIngredients.size()) {
+      final int cmp = firstIngredients.get(i).getName()
+          .compareTo(secondIngredients.get(j).getName());
+      if (cmp == 0) {
+        common++;
+        i++;
+        j++;
+      } else if (cmp < 0) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return (double) common / (firstIngredients.size() + secondIngredients.size() - common);
+  }
+
+  /**
+   * Finds the root of the cluster containing the provided recipe, shortening the path to the
+   * root along the way.
+   *
+   * @param parents the parent of each recipe in the clusters
+   * @param index the index of the recipe
+   * @return the index of the root recipe of the cluster
+   */
+  private static int find(int[] parents, int index) {
+    int root = index;
+    while (parents[root] != root) {
+      parents[root] = parents[parents[root]];
+      root = parents[root];
+    }
+    return root;
+  }
+}
@@ -6,8 +6,16 @@ import edu.ntnu.idi.idatt.models.Grocery;
 import edu.ntnu.idi.idatt.models.GroceryBatch;
 import edu.ntnu.idi.idatt.models.Ingredient;
 import edu.ntnu.idi.idatt.models.Recipe;
+import edu.ntnu.idi.idatt.persistence.MappedSnapshot;
+import edu.ntnu.idi.idatt.persistence.SnapshotDiff;
+import edu.ntnu.idi.idatt.persistence.SnapshotIndex;
+import edu.ntnu.idi.idatt.persistence.SnapshotWriter;
 import edu.ntnu.idi.idatt.utils.InterfaceUtils;
 import edu.ntnu.idi.idatt.views.TextUserInterface;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.time.LocalDate;
 
 /**
@@ -21,11 +29,19 @@ import java.time.LocalDate;
  * <li>Removing demo data
  * <li>Showing the current date
  * <li>Changing the current date
+ * <li>Saving all data to a snapshot file
+ * <li>Loading all data from a snapshot file
+ * <li>Writing a sync patch with the differences between two snapshot files
+ * <li>Applying a sync patch to all data
  * </ul>
  *
  * @see TextUserInterface
  * @see FoodStorage
  * @see Cookbook
+ * @see SnapshotWriter
+ * @see MappedSnapshot
+ * @see SnapshotIndex
+ * @see SnapshotDiff
  *
  * @author WilliamHoltsdalen
  * @since 0.2
@@ -39,6 +55,8 @@ public class SettingsMenuService {
   private FoodStorage foodStorage;
   private Cookbook cookbook;
   private LocalDate currentDate;
+  /** The output of the session the service was made for. */
+  private final PrintStream out;
 
   /**
    * Constructs a new settings menu service with the provided food storage, cookbook, and current
@@ -61,6 +79,7 @@ public class SettingsMenuService {
       throw new IllegalArgumentException(CURRENTDATE_NULL_ERROR);
     }
 
+    this.out = InterfaceUtils.output();
     setFoodStorage(foodStorage);
     setCookbook(cookbook);
     setCurrentDate(currentDate);
@@ -243,10 +262,10 @@ public class SettingsMenuService {
       cookbook.addRecipe(recipe4);
 
     } catch (IllegalArgumentException e) {
-      System.out.println("Demo data could not be added.");
+      out.println("Demo data could not be added.");
       return;
     }
-    System.out.println("Demo data added successfully");
+    out.println("Demo data added successfully");
   }
 
   /**
@@ -254,16 +273,16 @@ public class SettingsMenuService {
    */
   public void caseRemoveAllData() {
     foodStorage.removeAllGroceries();
-    System.out.println("All grocery objects removed from the food storage.");
+    out.println("All grocery objects removed from the food storage.");
     cookbook.removeAllRecipes();
-    System.out.println("All recipe objects removed from the cookbook.");
+    out.println("All recipe objects removed from the cookbook.");
   }
 
   /**
    * Prints the current date of the application to the console.
    */
   public void caseShowCurrentDate() {
-    System.out.println("Current date: " + currentDate);
+    out.println("Current date: " + currentDate);
   }
 
   /**
@@ -276,9 +295,99 @@ public class SettingsMenuService {
    * @return the new date as a {@code LocalDate} object
    */
   public LocalDate caseGetNewDate() {
-    System.out.print("Enter a new date in the format yyyy-mm-dd: ");
+    out.print("Enter a new date in the format yyyy-mm-dd: ");
     final LocalDate newDate = InterfaceUtils.dateInput();
     this.currentDate = newDate; // Update the current date object for this service class
     return newDate;
   }
-}
\ No newline at end of file
+
+  /**
+   * Saves all groceries and recipes to a snapshot file chosen by the user, replacing the file if
+   * it already exists. The indexes of the snapshot are written next to it.
+   *
+   * @see SnapshotWriter
+   * @see SnapshotIndex
+   */
+  public void caseSaveData() {
+    out.print("Enter the file to save the data to: ");
+    try {
+      final Path path = Path.of(InterfaceUtils.stringInput().strip());
+      SnapshotWriter.write(path, foodStorage, cookbook);
+      SnapshotIndex.open(path, MappedSnapshot.open(path));
+      out.println("Data saved to " + path.toAbsolutePath());
+    } catch (InvalidPathException | IOException e) {
+      out.println("Data could not be saved: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Loads the groceries and recipes in a snapshot file chosen by the user, replacing all data in
+   * the food storage and cookbook. The indexes of the snapshot are checked, and rebuilt if they
+   * are missing or stale. Every grocery and recipe in the snapshot is decoded, as the menus work
+   * on the food storage and cookbook, so this takes time in proportion to the size of the file.
+   *
+   * @see MappedSnapshot
+   * @see SnapshotIndex
+   */
+  public void caseLoadData() {
+    out.print("Enter the file to load the data from: ");
+    try {
+      final Path path = Path.of(InterfaceUtils.stringInput().strip());
+      final MappedSnapshot snapshot = MappedSnapshot.open(path);
+      if (SnapshotIndex.open(path, snapshot).isRebuilt()) {
+        out.println("The indexes of the snapshot were missing or stale, and were rebuilt.");
+      }
+      snapshot.loadInto(foodStorage, cookbook);
+      out.println("Loaded " + snapshot.getGroceryCount() + " groceries and "
+          + snapshot.getRecipeCount() + " recipes.");
+    } catch (IOException | IllegalArgumentException e) {
+      out.println("Data could not be loaded: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Compares two snapshot files chosen by the user, and writes the differences to a patch file.
+   * Applying the patch to the data of the first snapshot makes it equal to the data of the
+   * second, so a household only has to send the patch to sync with another.
+   *
+   * @see SnapshotDiff
+   */
+  public void caseWritePatch() {
+    try {
+      out.print("Enter the snapshot file to sync from: ");
+      final Path fromPath = Path.of(InterfaceUtils.stringInput().strip());
+      out.print("Enter the snapshot file to sync to: ");
+      final Path toPath = Path.of(InterfaceUtils.stringInput().strip());
+      out.print("Enter the file to save the patch to: ");
+      final Path patchPath = Path.of(InterfaceUtils.stringInput().strip());
+
+      final SnapshotDiff diff = SnapshotDiff.compare(
+          SnapshotIndex.open(fromPath, MappedSnapshot.open(fromPath)),
+          SnapshotIndex.open(toPath, MappedSnapshot.open(toPath)));
+      diff.writePatch(patchPath);
+      out.println("Patch saved to " + patchPath.toAbsolutePath() + ": "
+          + diff.getChangedGroceryCount() + " groceries added or changed, "
+          + diff.getRemovedGroceryCount() + " groceries removed, and the recipes of "
+          + diff.getChangedRecipeNameCount() + " names replaced.");
+    } catch (IOException | IllegalArgumentException e) {
+      out.println("Patch could not be written: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Applies a patch file chosen by the user to the groceries in the food storage and the recipes
+   * in the cookbook.
+   *
+   * @see SnapshotDiff
+   */
+  public void caseApplyPatch() {
+    out.print("Enter the patch file to apply: ");
+    try {
+      final Path path = Path.of(InterfaceUtils.stringInput().strip());
+      final int changes = SnapshotDiff.applyPatch(path, foodStorage, cookbook);
+      out.println("Applied " + changes + " changes from " + path.toAbsolutePath());
+    } catch (IOException | IllegalArgumentException e) {
+      out.println("Patch could not be applied: " + e.getMessage());
+    }
+  }
+}
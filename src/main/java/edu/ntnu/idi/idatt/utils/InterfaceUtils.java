@@ -1,8 +1,10 @@
 package edu.ntnu.idi.idatt.utils;
 
+import edu.ntnu.idi.idatt.persistence.ImportProgressListener;
+import edu.ntnu.idi.idatt.persistence.ImportResult;
 import edu.ntnu.idi.idatt.views.TextUserInterface;
+import java.io.PrintStream;
 import java.time.LocalDate;
-import java.util.Scanner;
 
 /**
  * A utility class containing methods for interacting with the user, meant to be used in conjunction
@@ -13,6 +15,10 @@ import java.util.Scanner;
  * interacting with the user through the console, such as inputting integers, doubles strings, and
  * dates. Also provides methods for printing menu and sub-menus, and for exiting the application.
  *
+ * <p>
+ * Input is read from, and output printed to, the {@link Session} of the current thread, which is
+ * the console unless the thread runs a session of its own.
+ *
  * @see TextUserInterface
  *
  * @author WilliamHoltsdalen
@@ -20,18 +26,28 @@ import java.util.Scanner;
  */
 public final class InterfaceUtils {
   private static final String TRY_AGAIN_ERROR = "Try again: ";
-  /** The scanner used to read input from the console. */
-  private static final Scanner scanner = new Scanner(System.in);
+  /** The largest number of rejected rows printed after an import. */
+  private static final int MAX_PRINTED_IMPORT_ERRORS = 10;
 
   /** Prevent instantiation, as this is a utility class. */
   private InterfaceUtils() {}
 
+  /**
+   * Returns the stream to print output to, which is the output of the session of the current
+   * thread.
+   *
+   * @return the output stream
+   */
+  public static PrintStream output() {
+    return Session.current().getOutput();
+  }
+
   /**
    * Prints the welcome message to the console.
    */
   public static void printWelcomeMessage() {
     printMenuSpacing();
-    System.out.println(
+    output().println(
               """
               |------------------------------------|
               | Welcome to the Food Storage System!|
@@ -44,7 +60,7 @@ public final class InterfaceUtils {
    */
   public static void printGoodbyeMessage() {
     printMenuSpacing();
-    System.out.println(
+    output().println(
               """
               |---------------------------------------------|
               | Thank you for using the Food Storage System!|
@@ -58,21 +74,53 @@ public final class InterfaceUtils {
    * @param errorMessage the error message to print
    */
   public static void printErrorMessage(String errorMessage) {
-    System.out.println("Error: " + errorMessage);
+    output().println("Error: " + errorMessage);
+  }
+
+  /**
+   * Returns a listener printing the progress of an import to the console, on a single line that
+   * is overwritten each time.
+   *
+   * @return the progress listener
+   */
+  public static ImportProgressListener importProgressPrinter() {
+    // The output is taken here, as the listener may be called on another thread.
+    final PrintStream out = output();
+    return (bytesRead, totalBytes, rows) -> out.printf("\rRead %d rows (%d %%)", rows,
+        totalBytes == 0 ? 100 : bytesRead * 100 / totalBytes);
+  }
+
+  /**
+   * Prints the result of an import to the console, with the reasons the first rejected rows were
+   * rejected.
+   *
+   * @param result the result of the import
+   */
+  public static void printImportResult(ImportResult result) {
+    output().printf("%nImported %d rows, rejected %d rows.%n", result.getImportedRows(),
+        result.getRejectedRows());
+    result.getErrors().stream()
+        .limit(MAX_PRINTED_IMPORT_ERRORS)
+        .forEach(error -> output().printf("- Line %d: %s%n", error.lineNumber(),
+            error.message()));
+    if (result.getRejectedRows() > MAX_PRINTED_IMPORT_ERRORS) {
+      output().printf("- ... and %d more%n", result.getRejectedRows()
+          - MAX_PRINTED_IMPORT_ERRORS);
+    }
   }
 
   /**
    * Prints a menu spacing to the console, which is two newlines.
    */
   public static void printMenuSpacing() {
-    System.out.print("\n\n");
+    output().print("\n\n");
   }
 
   /**
    * Prints a sub-menu spacing to the console, which is one newline.
    */
   public static void printSubMenuSpacing() {
-    System.out.print("\n");
+    output().print("\n");
   }
 
   /**
@@ -83,15 +131,16 @@ public final class InterfaceUtils {
    * @return the integer input read from the console
    */
   public static int integerInput() {
+    final String line = Session.current().readLine();
     try {
-      int input = Integer.parseInt(scanner.nextLine());
+      int input = Integer.parseInt(line);
       if (!ValidationUtils.isValidPositiveInteger(input)) {
         throw new IllegalArgumentException();
       }
       return input;
     } catch (Exception e) {
       printErrorMessage("Please enter a valid integer (positive whole number).");
-      System.out.print(TRY_AGAIN_ERROR);
+      output().print(TRY_AGAIN_ERROR);
       return integerInput();
     }
   }
@@ -104,15 +153,16 @@ public final class InterfaceUtils {
    * @return the double input read from the console
    */
   public static double doubleInput() {
+    final String line = Session.current().readLine();
     try {
-      double input = Double.parseDouble(scanner.nextLine());
+      double input = Double.parseDouble(line);
       if (!ValidationUtils.isValidPositiveDouble(input)) {
         throw new IllegalArgumentException();
       }
       return input;
     } catch (Exception e) {
       printErrorMessage("Please enter a valid number (positive).");
-      System.out.print(TRY_AGAIN_ERROR);
+      output().print(TRY_AGAIN_ERROR);
       return doubleInput();
     }
   }
@@ -125,15 +175,15 @@ public final class InterfaceUtils {
    * @return the string input read from the console
    */
   public static String stringInput() {
+    final String input = Session.current().readLine();
     try {
-      String input = scanner.nextLine();
       if (!ValidationUtils.isValidString(input)) {
         throw new IllegalArgumentException();
       }
       return input.trim();
     } catch (Exception e) {
       printErrorMessage("Please enter a valid text string.");
-      System.out.print(TRY_AGAIN_ERROR);
+      output().print(TRY_AGAIN_ERROR);
       return stringInput();
     }
   }
@@ -146,11 +196,12 @@ public final class InterfaceUtils {
    * @return the date input read from the console
    */
   public static LocalDate dateInput() {
+    final String line = Session.current().readLine();
     try {
-      return LocalDate.parse(scanner.nextLine());
+      return LocalDate.parse(line);
     } catch (Exception e) {
       printErrorMessage("Please enter a valid date (yyyy-mm-dd)");
-      System.out.print(TRY_AGAIN_ERROR);
+      output().print(TRY_AGAIN_ERROR);
       return dateInput();
     }
   }
@@ -160,7 +211,7 @@ public final class InterfaceUtils {
    */
   public static void promptMainMenu() {
     printMenuSpacing();
-    System.out.print(
+    output().print(
               """
                        Main menu
               ---------------------------
@@ -168,6 +219,8 @@ public final class InterfaceUtils {
               2. Open cookbook menu
               3. Explore meal suggestions
               4. Open settings
+              5. Undo last change
+              6. Redo last undone change
               0. Exit application
               ---------------------------
               Your choice:\s""");
@@ -178,7 +231,7 @@ public final class InterfaceUtils {
    */
   public static void promptFoodStorageMenu() {
     printMenuSpacing();
-    System.out.print(
+    output().print(
               """
                                   Food storage menu
               --  --  --  --  --  --  --  --  --  --  --  --  --  --  --
@@ -192,6 +245,9 @@ public final class InterfaceUtils {
               8.  Show all groceries that expire before a given date
               9.  Calculate total value of all groceries
               10. Remove all expired grocery batches
+              11. Import groceries from file
+              12. Export inventory to file
+              13. Export expiring batches to file
               0.  Return to main menu
               --  --  --  --  --  --  --  --  --  --  --  --  --  --  --
               Your choice:\s""");
@@ -202,7 +258,7 @@ public final class InterfaceUtils {
    */
   public static void promptCookbookMenu() {
     printMenuSpacing();
-    System.out.print(
+    output().print(
               """
                          Cookbook menu
               --  --  --  --  --  --  --  --  --
@@ -212,6 +268,8 @@ public final class InterfaceUtils {
               4. Edit a recipe
               5. Remove a recipe
               6. Show all recipes
+              7. Find duplicate recipes
+              8. Import recipes from file
               0. Return to main menu
               --  -- --  --  --  --  --  --  --
               Your choice:\s""");
@@ -222,7 +280,7 @@ public final class InterfaceUtils {
    */
   public static void promptRecipeEditMenu() {
     printSubMenuSpacing();
-    System.out.print(
+    output().print(
             """
                 What would you like to edit?
             - - - - - - - - - - - - - - - - - -
@@ -243,13 +301,15 @@ public final class InterfaceUtils {
    */
   public static void promptMealSuggestionsMenu() {
     printMenuSpacing();
-    System.out.print(
+    output().print(
             """
                            Meal suggestions menu
             --  -- --  --  --  --  --  --  --  --  --  --  --  --
             1. Suggest meals from expiring groceries
             2. Suggest meals from groceries in the food storage
             3. Suggest random meal
+            4. Show estimated cost of recipes
+            5. Export recipe availability to file
             0. Return to main menu
             --  -- --  --  --  --  --  --  --  --  --  --  --  --
             Your choice:\s""");
@@ -260,7 +320,7 @@ public final class InterfaceUtils {
    */
   public static void promptSettingsMenu() {
     printMenuSpacing();
-    System.out.print(
+    output().print(
             """
                  Settings menu
             --  -- --  --  --  --  --
@@ -268,18 +328,26 @@ public final class InterfaceUtils {
             2. Remove all data
             3. Show current date
             4. Change current date
+            5. Save data to file
+            6. Load data from file
+            7. Write sync patch from two files
+            8. Apply sync patch
             0. Return to main menu
             --  -- --  --  --  --  --
             Your choice:\s""");
   }
 
   /**
-   * Exits the application by closing the scanner and printing the goodbye message, and then exiting
-   * the application.
+   * Exits the application by printing the goodbye message and closing the session, and then exiting
+   * the application. A session other than the console is only closed, and the application keeps
+   * running for the other sessions.
    */
   public static void exitApplication() {
-    scanner.close();
+    final Session session = Session.current();
     printGoodbyeMessage();
-    System.exit(0);
+    session.close();
+    if (session.isConsole()) {
+      System.exit(0);
+    }
   }
 }
\ No newline at end of file
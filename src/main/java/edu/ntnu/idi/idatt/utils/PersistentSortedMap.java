@@ -0,0 +1,539 @@
+package edu.ntnu.idi.idatt.utils;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * An immutable map sorted by key, where every change returns a new map instead of modifying the
+ * existing one.
+ *
+ * <p>
+ * The map is a balanced binary search tree (AVL tree). A change only copies the nodes on the
+ * path from the root to the changed key, and shares every other node with the previous version
+ * of the map. Adding or removing a key therefore takes O(log n) time and memory, and all earlier
+ * versions of the map stay valid and unchanged. Since nothing is ever modified, a map can be read
+ * by any number of threads without locking.
+ *
+ * <p>
+ * Every node also keeps the size of its subtree, so the entry at a given position in the sorted
+ * order can be found in O(log n) time, which allows the values to be viewed as a {@link List}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class PersistentSortedMap<K, V> implements Iterable<Map.Entry<K, V>> {
+  private final Comparator<? super K> comparator;
+  private final Node<K, V> root;
+  private final List<V> valuesView;
+
+  /**
+   * A node in the tree. Nodes are never modified after they are created.
+   *
+   * @param <K> the type of the key
+   * @param <V> the type of the value
+   */
+  private static final class Node<K, V> {
+    private final K key;
+    private final V value;
+    private final Node<K, V> left;
+    private final Node<K, V> right;
+    private final int height;
+    private final int size;
+
+    private Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+      this.key = key;
+      this.value = value;
+      this.left = left;
+      this.right = right;
+      this.height = Math.max(height(left), height(right)) + 1;
+      this.size = size(left) + size(right) + 1;
+    }
+  }
+
+  /**
+   * Private constructor, as maps are created with the {@code empty} methods, and changed with
+   * {@code put} and {@code remove}.
+   *
+   * @param comparator the comparator used to sort the keys
+   * @param root the root node of the tree, or null if the map is empty
+   */
+  private PersistentSortedMap(Comparator<? super K> comparator, Node<K, V> root) {
+    this.comparator = comparator;
+    this.root = root;
+    this.valuesView = new ValuesView();
+  }
+
+  /**
+   * Returns an empty map, sorting the keys by their natural order.
+   *
+   * @param <K> the type of the keys
+   * @param <V> the type of the values
+   * @return an empty map
+   */
+  public static <K extends Comparable<? super K>, V> PersistentSortedMap<K, V> empty() {
+    return new PersistentSortedMap<>(Comparator.naturalOrder(), null);
+  }
+
+  /**
+   * Returns an empty map, sorting the keys with the provided comparator.
+   *
+   * @param comparator the comparator used to sort the keys
+   * @param <K> the type of the keys
+   * @param <V> the type of the values
+   * @return an empty map
+   * @throws IllegalArgumentException if the comparator is null.
+   */
+  public static <K, V> PersistentSortedMap<K, V> empty(Comparator<? super K> comparator)
+      throws IllegalArgumentException {
+    if (comparator == null) {
+      throw new IllegalArgumentException("Comparator cannot be null");
+    }
+    return new PersistentSortedMap<>(comparator, null);
+  }
+
+  /**
+   * Returns the number of entries in the map.
+   *
+   * @return the number of entries in the map
+   */
+  public int size() {
+    return size(root);
+  }
+
+  /**
+   * Checks if the map is empty.
+   *
+   * @return true if the map contains no entries, false otherwise
+   */
+  public boolean isEmpty() {
+    return root == null;
+  }
+
+  /**
+   * Returns the value of the provided key.
+   *
+   * @param key the key to look up
+   * @return the value of the key, or null if the map does not contain the key
+   */
+  public V get(K key) {
+    Node<K, V> node = root;
+    while (node != null) {
+      final int cmp = comparator.compare(key, node.key);
+      if (cmp == 0) {
+        return node.value;
+      }
+      node = cmp < 0 ? node.left : node.right;
+    }
+    return null;
+  }
+
+  /**
+   * Checks if the map contains the provided key.
+   *
+   * @param key the key to look for
+   * @return true if the map contains the key, false otherwise
+   */
+  public boolean containsKey(K key) {
+    Node<K, V> node = root;
+    while (node != null) {
+      final int cmp = comparator.compare(key, node.key);
+      if (cmp == 0) {
+        return true;
+      }
+      node = cmp < 0 ? node.left : node.right;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the key at the provided position in the sorted order of the keys.
+   *
+   * @param index the position of the key, starting at zero
+   * @return the key at the provided position
+   * @throws IndexOutOfBoundsException if the index is negative, or not less than the size.
+   */
+  public K keyAt(int index) throws IndexOutOfBoundsException {
+    return nodeAt(index).key;
+  }
+
+  /**
+   * Returns the value at the provided position in the sorted order of the keys.
+   *
+   * @param index the position of the value, starting at zero
+   * @return the value at the provided position
+   * @throws IndexOutOfBoundsException if the index is negative, or not less than the size.
+   */
+  public V valueAt(int index) throws IndexOutOfBoundsException {
+    return nodeAt(index).value;
+  }
+
+  /**
+   * Returns a map with the provided key set to the provided value. If the key already exists,
+   * its value is replaced. This map is not changed.
+   *
+   * @param key the key to set
+   * @param value the value of the key
+   * @return the new map
+   * @throws IllegalArgumentException if the key is null.
+   */
+  public PersistentSortedMap<K, V> put(K key, V value) throws IllegalArgumentException {
+    if (key == null) {
+      throw new IllegalArgumentException("Key cannot be null");
+    }
+    return new PersistentSortedMap<>(comparator, put(root, key, value));
+  }
+
+  /**
+   * Returns a map without the provided key. If the key does not exist, this map is returned.
+   * This map is not changed.
+   *
+   * @param key the key to remove
+   * @return the new map
+   */
+  public PersistentSortedMap<K, V> remove(K key) {
+    if (!containsKey(key)) {
+      return this;
+    }
+    return new PersistentSortedMap<>(comparator, remove(root, key));
+  }
+
+  /**
+   * Returns a map with the value of the provided key replaced by the result of the provided
+   * function. The function receives the current value, or null if the key does not exist. If the
+   * function returns null, the key is removed. This map is not changed.
+   *
+   * @param key the key to update
+   * @param update the function computing the new value
+   * @return the new map
+   * @throws IllegalArgumentException if the key or the function is null.
+   */
+  public PersistentSortedMap<K, V> update(K key, Function<? super V, ? extends V> update)
+      throws IllegalArgumentException {
+    if (key == null || update == null) {
+      throw new IllegalArgumentException("Key and update function cannot be null");
+    }
+    final V newValue = update.apply(get(key));
+    return newValue == null ? remove(key) : put(key, newValue);
+  }
+
+  /**
+   * Returns the values of the map as an unmodifiable list, sorted by key. The list is backed by
+   * this map, which never changes, so it can be kept and read for as long as needed.
+   *
+   * @return the values of the map, sorted by key
+   */
+  public List<V> values() {
+    return valuesView;
+  }
+
+  /**
+   * Returns an iterator over the entries of the map, sorted by key.
+   *
+   * @return an iterator over the entries of the map
+   */
+  @Override
+  public Iterator<Map.Entry<K, V>> iterator() {
+    return new NodeIterator<>(root, null, comparator) {
+      @Override
+      Map.Entry<K, V> valueOf(Node<K, V> node) {
+        return new AbstractMap.SimpleImmutableEntry<>(node.key, node.value);
+      }
+    };
+  }
+
+  /**
+   * Returns an iterator over the values of the map, starting at the first key that is greater
+   * than or equal to the provided key, sorted by key.
+   *
+   * @param fromKey the key to start at
+   * @return an iterator over the values from the provided key
+   */
+  public Iterator<V> valuesFrom(K fromKey) {
+    return new NodeIterator<>(root, fromKey, comparator) {
+      @Override
+      V valueOf(Node<K, V> node) {
+        return node.value;
+      }
+    };
+  }
+
+  /**
+   * Calls the provided visitor for every key whose value differs between this map and the
+   * provided map, in the sorted order of the keys. Values are compared by identity.
+   *
+   * <p>
+   * Two versions of a map made from each other share every subtree that was not changed, and a
+   * subtree found in both maps is skipped without being visited. Comparing a map with a version
+   * a few changes away therefore takes time proportional to the number of changes, times
+   * log n, instead of the size of the maps.
+   *
+   * @param other the map to compare with, sorted with the same comparator
+   * @param visitor the visitor to call for each difference
+   * @throws IllegalArgumentException if the map or the visitor is null.
+   */
+  public void forEachDifference(PersistentSortedMap<K, V> other,
+      DifferenceVisitor<? super K, ? super V> visitor) throws IllegalArgumentException {
+    if (other == null || visitor == null) {
+      throw new IllegalArgumentException("Map and visitor cannot be null");
+    }
+    final Deque<Node<K, V>> these = new ArrayDeque<>();
+    final Deque<Node<K, V>> others = new ArrayDeque<>();
+    // A stack holds the subtrees still to visit, nearest first. A node whose children were
+    // already pushed is pushed as a copy without children, so it stands for its own entry.
+    pushSubtree(these, root);
+    pushSubtree(others, other.root);
+    while (!these.isEmpty() && !others.isEmpty()) {
+      final Node<K, V> mine = these.peek();
+      final Node<K, V> theirs = others.peek();
+      if (mine == theirs) {
+        these.pop();
+        others.pop();
+      } else if (size(mine) > 1 && size(mine) >= size(theirs)) {
+        expand(these);
+      } else if (size(theirs) > 1) {
+        expand(others);
+      } else {
+        final int cmp = comparator.compare(mine.key, theirs.key);
+        if (cmp < 0) {
+          visitor.visit(these.pop().key, mine.value, null);
+        } else if (cmp > 0) {
+          visitor.visit(others.pop().key, null, theirs.value);
+        } else {
+          these.pop();
+          others.pop();
+          if (mine.value != theirs.value) {
+            visitor.visit(mine.key, mine.value, theirs.value);
+          }
+        }
+      }
+    }
+    while (!these.isEmpty()) {
+      if (size(these.peek()) > 1) {
+        expand(these);
+      } else {
+        final Node<K, V> mine = these.pop();
+        visitor.visit(mine.key, mine.value, null);
+      }
+    }
+    while (!others.isEmpty()) {
+      if (size(others.peek()) > 1) {
+        expand(others);
+      } else {
+        final Node<K, V> theirs = others.pop();
+        visitor.visit(theirs.key, null, theirs.value);
+      }
+    }
+  }
+
+  private static <K, V> void pushSubtree(Deque<Node<K, V>> stack, Node<K, V> node) {
+    if (node != null) {
+      stack.push(node);
+    }
+  }
+
+  /**
+   * Replaces the subtree on top of a stack with its left subtree, its own entry and its right
+   * subtree, so the left subtree is visited first.
+   */
+  private static <K, V> void expand(Deque<Node<K, V>> stack) {
+    final Node<K, V> node = stack.pop();
+    pushSubtree(stack, node.right);
+    stack.push(node.left == null && node.right == null
+        ? node : new Node<>(node.key, node.value, null, null));
+    pushSubtree(stack, node.left);
+  }
+
+  private Node<K, V> nodeAt(int index) throws IndexOutOfBoundsException {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+    }
+    Node<K, V> node = root;
+    while (true) {
+      final int leftSize = size(node.left);
+      if (index < leftSize) {
+        node = node.left;
+      } else if (index == leftSize) {
+        return node;
+      } else {
+        index -= leftSize + 1;
+        node = node.right;
+      }
+    }
+  }
+
+  private Node<K, V> put(Node<K, V> node, K key, V value) {
+    if (node == null) {
+      return new Node<>(key, value, null, null);
+    }
+    final int cmp = comparator.compare(key, node.key);
+    if (cmp == 0) {
+      return value == node.value ? node : new Node<>(key, value, node.left, node.right);
+    }
+    if (cmp < 0) {
+      return balance(node.key, node.value, put(node.left, key, value), node.right);
+    }
+    return balance(node.key, node.value, node.left, put(node.right, key, value));
+  }
+
+  private Node<K, V> remove(Node<K, V> node, K key) {
+    final int cmp = comparator.compare(key, node.key);
+    if (cmp < 0) {
+      return balance(node.key, node.value, remove(node.left, key), node.right);
+    }
+    if (cmp > 0) {
+      return balance(node.key, node.value, node.left, remove(node.right, key));
+    }
+    if (node.left == null) {
+      return node.right;
+    }
+    if (node.right == null) {
+      return node.left;
+    }
+    Node<K, V> successor = node.right;
+    while (successor.left != null) {
+      successor = successor.left;
+    }
+    return balance(successor.key, successor.value, node.left,
+        removeFirst(node.right));
+  }
+
+  private Node<K, V> removeFirst(Node<K, V> node) {
+    if (node.left == null) {
+      return node.right;
+    }
+    return balance(node.key, node.value, removeFirst(node.left), node.right);
+  }
+
+  /**
+   * Creates a node with the provided key, value and children, rotating the tree if the heights of
+   * the children differ by more than one.
+   */
+  private Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+    final int difference = height(left) - height(right);
+    if (difference > 1) {
+      if (height(left.left) >= height(left.right)) {
+        return new Node<>(left.key, left.value, left.left,
+            new Node<>(key, value, left.right, right));
+      }
+      return new Node<>(left.right.key, left.right.value,
+          new Node<>(left.key, left.value, left.left, left.right.left),
+          new Node<>(key, value, left.right.right, right));
+    }
+    if (difference < -1) {
+      if (height(right.right) >= height(right.left)) {
+        return new Node<>(right.key, right.value,
+            new Node<>(key, value, left, right.left), right.right);
+      }
+      return new Node<>(right.left.key, right.left.value,
+          new Node<>(key, value, left, right.left.left),
+          new Node<>(right.key, right.value, right.left.right, right.right));
+    }
+    return new Node<>(key, value, left, right);
+  }
+
+  private static int height(Node<?, ?> node) {
+    return node == null ? 0 : node.height;
+  }
+
+  private static int size(Node<?, ?> node) {
+    return node == null ? 0 : node.size;
+  }
+
+  /**
+   * A visitor of the differences between two maps.
+   *
+   * @param <K> the type of the keys
+   * @param <V> the type of the values
+   */
+  @FunctionalInterface
+  public interface DifferenceVisitor<K, V> {
+    /**
+     * Called for a key whose value differs between the two maps.
+     *
+     * @param key the key
+     * @param value the value in this map, or null if this map does not contain the key
+     * @param otherValue the value in the other map, or null if it does not contain the key
+     */
+    void visit(K key, V value, V otherValue);
+  }
+
+  /**
+   * An unmodifiable list view of the values of the map.
+   */
+  private final class ValuesView extends AbstractList<V> {
+    @Override
+    public V get(int index) {
+      return valueAt(index);
+    }
+
+    @Override
+    public int size() {
+      return PersistentSortedMap.this.size();
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+      return new NodeIterator<>(root, null, comparator) {
+        @Override
+        V valueOf(Node<K, V> node) {
+          return node.value;
+        }
+      };
+    }
+  }
+
+  /**
+   * An in-order iterator over the nodes of a tree, using a stack of the nodes still to visit.
+   *
+   * @param <K> the type of the keys
+   * @param <V> the type of the values
+   * @param <T> the type of the elements returned by the iterator
+   */
+  private abstract static class NodeIterator<K, V, T> implements Iterator<T> {
+    private final Deque<Node<K, V>> stack = new ArrayDeque<>();
+
+    NodeIterator(Node<K, V> root, K fromKey, Comparator<? super K> comparator) {
+      Node<K, V> node = root;
+      while (node != null) {
+        if (fromKey == null || comparator.compare(fromKey, node.key) <= 0) {
+          stack.push(node);
+          node = node.left;
+        } else {
+          node = node.right;
+        }
+      }
+    }
+
+    abstract T valueOf(Node<K, V> node);
+
+    @Override
+    public boolean hasNext() {
+      return !stack.isEmpty();
+    }
+
+    @Override
+    public T next() {
+      if (stack.isEmpty()) {
+        throw new NoSuchElementException();
+      }
+      final Node<K, V> node = stack.pop();
+      Node<K, V> child = node.right;
+      while (child != null) {
+        stack.push(child);
+        child = child.left;
+      }
+      return valueOf(node);
+    }
+  }
+}
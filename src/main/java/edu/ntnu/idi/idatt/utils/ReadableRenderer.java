@@ -0,0 +1,154 @@
+package edu.ntnu.idi.idatt.utils;
+
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Formatter;
+
+/**
+ * A class for writing reader-friendly representations of recipes, ingredients and groceries
+ * directly to an {@link Appendable}, like {@code System.out}, a {@code Writer} or a
+ * {@code StringBuilder}.
+ *
+ * <p>
+ * The renderer keeps a single {@link Formatter} for all number and date formatting, and writes
+ * every part of the output straight to the destination. No intermediate strings are built for
+ * a recipe or grocery, so listing a large cookbook or food storage uses a constant amount of
+ * memory, no matter how many recipes, ingredients or batches there are.
+ *
+ * <p>
+ * The output is the same as the {@code toReadableString} methods of {@link Recipe},
+ * {@link Ingredient} and {@link Grocery}, which use this class themselves.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class ReadableRenderer {
+  private static final String RECIPE_SEPARATOR = "-------------------------------------------\n";
+
+  /** The formatter used for all output, writing directly to the destination. */
+  private final Formatter formatter;
+
+  /**
+   * Constructs a new renderer writing to the provided destination.
+   *
+   * @param out the destination to write to
+   * @throws IllegalArgumentException if the destination is null.
+   */
+  public ReadableRenderer(Appendable out) throws IllegalArgumentException {
+    if (out == null) {
+      throw new IllegalArgumentException("Destination cannot be null");
+    }
+    this.formatter = new Formatter(out);
+  }
+
+  /**
+   * Writes a reader-friendly representation of an ingredient, in the format:
+   * "Name (Category): Amount Unit". No line break is written after the ingredient.
+   *
+   * @param ingredient the ingredient to write
+   */
+  public void renderIngredient(Ingredient ingredient) {
+    formatter.format("%s (%s): %.2f %s", ingredient.getName(), ingredient.getCategory(),
+        ingredient.getAmount(), ingredient.getUnit());
+    checkError();
+  }
+
+  /**
+   * Writes a reader-friendly representation of a recipe. Including name, description,
+   * instructions, servings and a list of ingredients, with the details of each ingredient.
+   *
+   * @param recipe the recipe to write
+   */
+  public void renderRecipe(Recipe recipe) {
+    formatter.format("Name: %s\nDescription: %s\nServings: %d\n\nInstructions:\n%s\n\n"
+        + "Ingredients:\n", recipe.getName(), recipe.getDescription(), recipe.getServings(),
+        recipe.getInstructions());
+    checkError();
+    for (Ingredient ingredient : recipe.getIngredients()) {
+      renderIngredient(ingredient);
+      append("\n");
+    }
+    append("\n");
+  }
+
+  /**
+   * Writes all the provided recipes, each preceded by a separator line, like in the list of all
+   * recipes in the cookbook.
+   *
+   * @param recipes the recipes to write
+   */
+  public void renderRecipes(Iterable<Recipe> recipes) {
+    for (Recipe recipe : recipes) {
+      append(RECIPE_SEPARATOR);
+      renderRecipe(recipe);
+      append("\n");
+    }
+  }
+
+  /**
+   * Writes a reader-friendly representation of a grocery item. Including name, category, unit,
+   * total amount, and the details of all batches.
+   *
+   * @param grocery the grocery to write
+   */
+  public void renderGrocery(Grocery grocery) {
+    formatter.format("%s\n---------------------------------\nCategory: %s\nUnit: %s\n"
+        + "Total amount: %.2f %s\nBatches:\n", grocery.getName(), grocery.getCategory(),
+        grocery.getUnit(), grocery.getTotalAmount(), grocery.getUnit());
+    checkError();
+    for (GroceryBatch batch : grocery.getBatches()) {
+      formatter.format("- Amount %.2f %s\n  Price per unit: %.2f NOK\n  Expiration date: %s\n\n",
+          batch.getAmount(), grocery.getUnit(), batch.getPricePerUnit(),
+          batch.getExpirationDate());
+      checkError();
+    }
+  }
+
+  /**
+   * Writes all the provided groceries, each followed by a line separator, like in the lists of
+   * groceries in the food storage.
+   *
+   * @param groceries the groceries to write
+   */
+  public void renderGroceries(Iterable<Grocery> groceries) {
+    for (Grocery grocery : groceries) {
+      renderGrocery(grocery);
+      append(System.lineSeparator());
+    }
+  }
+
+  /**
+   * Flushes the destination, if it supports flushing.
+   */
+  public void flush() {
+    formatter.flush();
+    checkError();
+  }
+
+  /**
+   * Writes the provided text to the destination as is.
+   *
+   * @param text the text to write
+   */
+  private void append(String text) {
+    try {
+      formatter.out().append(text);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Checks if the formatter failed to write to the destination, and throws an
+   * {@code UncheckedIOException} if it did.
+   */
+  private void checkError() {
+    if (formatter.ioException() != null) {
+      throw new UncheckedIOException(formatter.ioException());
+    }
+  }
+}
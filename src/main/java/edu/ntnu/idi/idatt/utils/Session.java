@@ -0,0 +1,148 @@
+package edu.ntnu.idi.idatt.utils;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+
+/**
+ * The input and output of one person using the text user interface, like the console, or a
+ * connection to a {@link edu.ntnu.idi.idatt.views.SessionServer}.
+ *
+ * <p>
+ * A session is bound to the thread running it with {@code run}, and {@link InterfaceUtils} and
+ * the menu services read from and print to the session of the current thread, so several people
+ * can use the menus at the same time, each on their own thread. A thread that has no session
+ * bound uses the console.
+ *
+ * <p>
+ * When the input of a session ends, like when the other end closes the connection, the session
+ * is closed, and reading from it throws an {@code IllegalStateException}, so the menus can stop.
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class Session implements AutoCloseable {
+  private static final Session CONSOLE = new Session(System.in, System.out, true);
+  private static final ThreadLocal<Session> CURRENT = ThreadLocal.withInitial(() -> CONSOLE);
+
+  private final Scanner scanner;
+  private final PrintStream output;
+  private final boolean console;
+  private volatile boolean open = true;
+
+  /**
+   * Constructs a new session reading from and printing to the provided streams, in UTF-8.
+   *
+   * @param input the stream to read input from
+   * @param output the stream to print to
+   * @throws IllegalArgumentException if any of the provided streams are null.
+   */
+  public Session(InputStream input, OutputStream output) throws IllegalArgumentException {
+    this(input, output, false);
+  }
+
+  private Session(InputStream input, OutputStream output, boolean console) {
+    if (input == null) {
+      throw new IllegalArgumentException("Input stream cannot be null");
+    }
+    if (output == null) {
+      throw new IllegalArgumentException("Output stream cannot be null");
+    }
+    this.scanner = new Scanner(input, StandardCharsets.UTF_8);
+    this.output = output instanceof PrintStream printStream
+        ? printStream : new PrintStream(output, true, StandardCharsets.UTF_8);
+    this.console = console;
+  }
+
+  /**
+   * Returns the session of the console.
+   *
+   * @return the console session
+   */
+  public static Session console() {
+    return CONSOLE;
+  }
+
+  /**
+   * Returns the session bound to the current thread, or the console session if none is bound.
+   *
+   * @return the current session
+   */
+  public static Session current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Runs an action with this session bound to the current thread, and binds the previous session
+   * again when it returns.
+   *
+   * @param action the action to run
+   * @throws IllegalArgumentException if the action is null.
+   */
+  public void run(Runnable action) throws IllegalArgumentException {
+    if (action == null) {
+      throw new IllegalArgumentException("Action cannot be null");
+    }
+    final Session previous = CURRENT.get();
+    CURRENT.set(this);
+    try {
+      action.run();
+    } finally {
+      CURRENT.set(previous);
+    }
+  }
+
+  /**
+   * Reads the next line of input, waiting until there is one.
+   *
+   * @return the line, without the line break
+   * @throws IllegalStateException if the input has ended, or the session is closed.
+   */
+  public String readLine() throws IllegalStateException {
+    if (!open || !scanner.hasNextLine()) {
+      open = false;
+      throw new IllegalStateException("The session has ended");
+    }
+    return scanner.nextLine();
+  }
+
+  /**
+   * Returns the stream to print the output of the session to.
+   *
+   * @return the output stream
+   */
+  public PrintStream getOutput() {
+    return output;
+  }
+
+  /**
+   * Returns whether the session is the console session, which ends the application when it ends.
+   *
+   * @return true if the session is the console session
+   */
+  public boolean isConsole() {
+    return console;
+  }
+
+  /**
+   * Returns whether the session is still open, and its input has not ended.
+   *
+   * @return true if the session is open
+   */
+  public boolean isOpen() {
+    return open;
+  }
+
+  /**
+   * Closes the session and its input. The output is flushed, but only closed by whoever opened
+   * the stream, as the console output is shared.
+   */
+  @Override
+  public void close() {
+    open = false;
+    output.flush();
+    scanner.close();
+  }
+}
@@ -0,0 +1,253 @@
+package edu.ntnu.idi.idatt.utils;
+
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel, keeping values that are due on a given day, counted in epoch days
+ * like {@link java.time.LocalDate#toEpochDay()}, and handing them out when the wheel is advanced
+ * to that day.
+ *
+ * <p>
+ * The wheel has four levels of 64 slots. The first level has one slot for each of the days of
+ * the current block of 64 days, the second level one slot for each block of 64 days of the current
+ * block of 4096 days, and so on. A value is kept in the lowest level where its day is in the
+ * current block, or in a list of far values if it is more than about 45 000 years away. When the
+ * wheel reaches a new block, the values in the slot of that block are moved down to the level
+ * below, so every value is moved at most four times before it is due.
+ *
+ * <p>
+ * Every slot is a doubly linked list, so a value is scheduled and cancelled in O(1) time, no
+ * matter how many values the wheel keeps. Advancing the wheel takes O(1) time for each day passed,
+ * in addition to the values that are moved or due. The wheel is not thread-safe.
+ *
+ * @param <T> the type of the values
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class TimingWheel<T> {
+  private static final int LEVELS = 4;
+  private static final int SLOT_BITS = 6;
+  private static final int SLOTS = 1 << SLOT_BITS;
+  private static final int SLOT_MASK = SLOTS - 1;
+
+  /** The slots of every level, each the head of a circular list. */
+  private final Timer<T>[][] slots;
+  /** The values more days away than the levels reach. */
+  private final Timer<T> far = new Timer<>(0, null);
+  /** The values scheduled on or before the current day, due at the next advance. */
+  private final Timer<T> overdue = new Timer<>(0, null);
+  private long currentDay;
+  private int size;
+
+  /**
+   * Constructs a new empty timing wheel, starting at the provided day.
+   *
+   * @param startDay the current day, in epoch days
+   */
+  public TimingWheel(long startDay) {
+    this.currentDay = startDay;
+    this.slots = newSlots();
+    for (Timer<T>[] level : slots) {
+      for (int i = 0; i < SLOTS; i++) {
+        level[i] = new Timer<>(0, null);
+      }
+    }
+  }
+
+  /**
+   * Schedules a value to be handed out when the wheel is advanced to the provided day. A value
+   * scheduled on or before the current day is handed out at the next advance.
+   *
+   * @param day the day the value is due, in epoch days
+   * @param value the value
+   * @return the timer of the value, for cancelling it
+   */
+  public Timer<T> schedule(long day, T value) {
+    final Timer<T> timer = new Timer<>(day, value);
+    place(timer);
+    size++;
+    return timer;
+  }
+
+  /**
+   * Cancels a scheduled value, so it is not handed out.
+   *
+   * @param timer the timer returned when the value was scheduled
+   * @return true if the value was cancelled, false if it was handed out or cancelled already
+   */
+  public boolean cancel(Timer<T> timer) {
+    if (timer == null || !timer.isScheduled()) {
+      return false;
+    }
+    timer.unlink();
+    size--;
+    return true;
+  }
+
+  /**
+   * Advances the wheel to the provided day, handing out the values due on or before it, in the
+   * order of their days. Does nothing but hand out the overdue values if the day is not after the
+   * current day.
+   *
+   * @param day the new current day, in epoch days
+   * @param due called with every value that is due
+   */
+  public void advanceTo(long day, Consumer<? super T> due) {
+    drain(overdue, due);
+    while (currentDay < day) {
+      currentDay++;
+      for (int level = LEVELS - 1; level >= 1; level--) {
+        if ((currentDay & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+          cascade(slots[level][slotOf(currentDay, level)]);
+        }
+      }
+      if ((currentDay & ((1L << (SLOT_BITS * LEVELS)) - 1)) == 0) {
+        cascade(far);
+      }
+      drain(slots[0][(int) (currentDay & SLOT_MASK)], due);
+    }
+  }
+
+  /**
+   * Returns the current day of the wheel.
+   *
+   * @return the current day, in epoch days
+   */
+  public long getCurrentDay() {
+    return currentDay;
+  }
+
+  /**
+   * Returns the number of values scheduled.
+   *
+   * @return the number of values
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Puts a timer in the slot for its day, seen from the current day.
+   */
+  private void place(Timer<T> timer) {
+    if (timer.day <= currentDay) {
+      overdue.append(timer);
+      return;
+    }
+    // The level is the highest group of bits where the day differs from the current day, so the
+    // value stays in its slot until the wheel reaches the block of its day on that level.
+    final long difference = timer.day ^ currentDay;
+    for (int level = 0; level < LEVELS; level++) {
+      if ((difference >>> (SLOT_BITS * (level + 1))) == 0) {
+        slots[level][slotOf(timer.day, level)].append(timer);
+        return;
+      }
+    }
+    far.append(timer);
+  }
+
+  /**
+   * Moves the timers of a slot to the slots they belong in now, on lower levels. A timer due on
+   * the current day, the first day of the block just reached, goes into the first level slot of
+   * the current day, which is drained right after the cascade, and not into the overdue values,
+   * which are only drained at the next advance.
+   */
+  private void cascade(Timer<T> head) {
+    Timer<T> timer = head.next;
+    while (timer != head) {
+      final Timer<T> next = timer.next;
+      timer.unlink();
+      if (timer.day == currentDay) {
+        slots[0][(int) (currentDay & SLOT_MASK)].append(timer);
+      } else {
+        place(timer);
+      }
+      timer = next;
+    }
+  }
+
+  /**
+   * Hands out the values of every timer in a slot, and empties it.
+   */
+  private void drain(Timer<T> head, Consumer<? super T> due) {
+    while (head.next != head) {
+      final Timer<T> timer = head.next;
+      timer.unlink();
+      size--;
+      due.accept(timer.value);
+    }
+  }
+
+  /**
+   * Creates the arrays of slots. An array of a generic type cannot be created, so an array of
+   * timers of any type is created and cast, which is safe as the arrays never leave the wheel.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> Timer<T>[][] newSlots() {
+    return (Timer<T>[][]) new Timer<?>[LEVELS][SLOTS];
+  }
+
+  private static int slotOf(long day, int level) {
+    return (int) ((day >>> (SLOT_BITS * level)) & SLOT_MASK);
+  }
+
+  /**
+   * A value scheduled in a timing wheel, linked into the list of its slot. The head of a slot is
+   * a timer without a value, linked to itself when the slot is empty.
+   *
+   * @param <T> the type of the value
+   */
+  public static final class Timer<T> {
+    private final long day;
+    private final T value;
+    private Timer<T> previous = this;
+    private Timer<T> next = this;
+
+    private Timer(long day, T value) {
+      this.day = day;
+      this.value = value;
+    }
+
+    /**
+     * Returns the day the value is due.
+     *
+     * @return the day, in epoch days
+     */
+    public long getDay() {
+      return day;
+    }
+
+    /**
+     * Returns the value.
+     *
+     * @return the value
+     */
+    public T getValue() {
+      return value;
+    }
+
+    /**
+     * Returns whether the value is still scheduled, and has not been handed out or cancelled.
+     *
+     * @return true if the value is scheduled
+     */
+    public boolean isScheduled() {
+      return next != this;
+    }
+
+    private void append(Timer<T> timer) {
+      timer.previous = previous;
+      timer.next = this;
+      previous.next = timer;
+      previous = timer;
+    }
+
+    private void unlink() {
+      previous.next = next;
+      next.previous = previous;
+      previous = this;
+      next = this;
+    }
+  }
+}
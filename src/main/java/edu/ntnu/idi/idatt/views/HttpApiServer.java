@@ -0,0 +1,517 @@
+package edu.ntnu.idi.idatt.views;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import edu.ntnu.idi.idatt.models.ChangeScope;
+import edu.ntnu.idi.idatt.models.ConsumeCoalescer;
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.Recipe;
+import edu.ntnu.idi.idatt.persistence.JsonMessages;
+import edu.ntnu.idi.idatt.services.MealSuggestionsService;
+import edu.ntnu.idi.idatt.services.RecipeCostService;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * A headless interface to a food storage and cookbook, serving the operations of the menus as a
+ * JSON API over HTTP, for other programs to use instead of a user at a terminal.
+ *
+ * <pre>
+ * GET    /groceries                   all groceries, or ?category= or ?expiringBefore=yyyy-mm-dd
+ * POST   /groceries                   add a grocery with one batch
+ * GET    /groceries/{name}            one grocery
+ * DELETE /groceries/{name}            remove a grocery
+ * POST   /groceries/{name}/batches    add a batch to a grocery
+ * POST   /groceries/{name}/consume    consume an amount of a grocery, {"amount": 1.5}
+ * GET    /recipes                     all recipes, without descriptions and instructions
+ * POST   /recipes                     add a recipe with its ingredients
+ * GET    /recipes/{name}              one recipe
+ * DELETE /recipes/{name}              remove a recipe
+ * GET    /suggestions                 the recipes that can be made, or ?expiringBefore=yyyy-mm-dd
+ * GET    /costs                       the estimated cost of the recipes that can be made
+ * </pre>
+ *
+ * <p>
+ * The bodies of the requests and responses are the JSON objects of {@link JsonMessages}. An
+ * invalid request gets the status 400, a grocery or recipe that does not exist 404, and adding one
+ * that already exists, or changing a grocery removed at the same time, 409. A request the server
+ * failed to carry out, like a change that could not be written to disk, gets 500. All of them have
+ * a body holding the field {@code error}.
+ *
+ * <p>
+ * The server is the JDK's {@link HttpServer}, handing each request to a new virtual thread, so a
+ * request waiting for the models or for a file only holds a cheap virtual thread, and many
+ * requests can wait at once. The models are not thread-safe, so requests that only read take the
+ * read lock of a {@link ReentrantReadWriteLock}, and can run at the same time, while requests
+ * that change the models take its write lock, and run alone. The lock is used instead of
+ * {@code synchronized}, as a virtual thread waiting to enter a synchronized block holds on to the
+ * platform thread it runs on. The body of a request is read before the lock is taken. A request
+ * changing the models opens a {@link ChangeScope} around the write lock, so a journal waiting for
+ * the change to reach the disk waits after the lock is released, and the next request does not
+ * wait for the disk as well. The response is still sent after the change is on disk.
+ *
+ * <p>
+ * Requests to consume the same grocery are gathered by a {@link ConsumeCoalescer}, which takes
+ * the write lock once for all the requests waiting, so a popular grocery does not make every
+ * request wait for the lock on its own.
+ *
+ * @see HttpLoadGenerator
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class HttpApiServer implements Closeable {
+  /** The largest request body accepted, in bytes. */
+  public static final int MAX_BODY_BYTES = 1 << 20;
+  private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+  private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+  private static final Comparator<Recipe> BY_NAME = Comparator.comparing(Recipe::getName);
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final FoodStorage foodStorage;
+  private final Cookbook cookbook;
+  private final MealSuggestionsService mealSuggestionsService;
+  private final RecipeCostService recipeCostService;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final ConsumeCoalescer consumeCoalescer;
+
+  private HttpApiServer(HttpServer server, FoodStorage foodStorage, Cookbook cookbook) {
+    this.server = server;
+    this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    this.foodStorage = foodStorage;
+    this.cookbook = cookbook;
+    this.mealSuggestionsService = new MealSuggestionsService(foodStorage, cookbook);
+    this.recipeCostService = new RecipeCostService(foodStorage);
+    this.consumeCoalescer = new ConsumeCoalescer(foodStorage, lock.writeLock());
+  }
+
+  /**
+   * Starts a server on the provided address, serving the provided food storage and cookbook.
+   * Nothing else may change the food storage or cookbook while the server runs.
+   *
+   * @param address the address to listen on, with port 0 for any free port
+   * @param foodStorage the food storage to serve
+   * @param cookbook the cookbook to serve
+   * @return the running server
+   * @throws IOException if the server could not listen on the address.
+   * @throws IllegalArgumentException if any of the provided objects are null.
+   */
+  public static HttpApiServer start(InetSocketAddress address, FoodStorage foodStorage,
+      Cookbook cookbook) throws IOException, IllegalArgumentException {
+    if (address == null || foodStorage == null || cookbook == null) {
+      throw new IllegalArgumentException("Address, food storage and cookbook cannot be null");
+    }
+    // The server writes the headers and the body of a response separately. Without TCP_NODELAY,
+    // the body waits for the client to acknowledge the headers, which Linux delays by up to 40 ms.
+    if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+      System.setProperty(NO_DELAY_PROPERTY, "true");
+    }
+    final HttpApiServer apiServer =
+        new HttpApiServer(HttpServer.create(address, 0), foodStorage, cookbook);
+    apiServer.server.createContext("/", apiServer::handle);
+    apiServer.server.setExecutor(apiServer.executor);
+    apiServer.server.start();
+    return apiServer;
+  }
+
+  /**
+   * Returns the address the server listens on.
+   *
+   * @return the address, with the port chosen if the server was started on port 0
+   */
+  public InetSocketAddress getAddress() {
+    return server.getAddress();
+  }
+
+  /**
+   * Stops the server, and waits for the requests being served to finish.
+   */
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.close();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      Response response;
+      try {
+        response = route(exchange);
+      } catch (RuntimeException e) {
+        response = errorOf(e);
+      }
+      send(exchange, response);
+    }
+  }
+
+  /**
+   * Returns the error response for an exception thrown while serving a request, looking through
+   * the {@code CompletionException} of a future to the exception it was completed with.
+   */
+  private static Response errorOf(RuntimeException exception) {
+    final Throwable cause = exception instanceof CompletionException && exception.getCause() != null
+        ? exception.getCause() : exception;
+    if (cause instanceof IllegalArgumentException) {
+      return Response.error(400, cause.getMessage());
+    }
+    if (cause instanceof IllegalStateException) {
+      return Response.error(409, cause.getMessage());
+    }
+    return Response.error(500, "The request failed: " + cause.getMessage());
+  }
+
+  /**
+   * Finds the operation of a request from its method and path, and runs it under the read or
+   * write lock.
+   */
+  private Response route(HttpExchange exchange) throws IOException {
+    final String method = exchange.getRequestMethod();
+    final List<String> path = new ArrayList<>();
+    for (String segment : exchange.getRequestURI().getPath().split("/")) {
+      if (!segment.isEmpty()) {
+        path.add(segment);
+      }
+    }
+    final Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+    final String resource = path.isEmpty() ? "" : path.getFirst();
+    final String name = path.size() > 1 ? path.get(1) : null;
+
+    if (resource.equals("groceries") && path.size() == 1) {
+      return switch (method) {
+        case "GET" -> read(() -> listGroceries(query));
+        case "POST" -> {
+          final Map<String, Object> body = readBody(exchange);
+          yield write(() -> addGrocery(body));
+        }
+        default -> Response.METHOD_NOT_ALLOWED;
+      };
+    }
+    if (resource.equals("groceries") && path.size() == 2) {
+      return switch (method) {
+        case "GET" -> read(() -> getGrocery(name));
+        case "DELETE" -> write(() -> removeGrocery(name));
+        default -> Response.METHOD_NOT_ALLOWED;
+      };
+    }
+    if (resource.equals("groceries") && path.size() == 3) {
+      final String action = path.get(2);
+      if (!action.equals("batches") && !action.equals("consume")) {
+        return Response.NOT_FOUND;
+      }
+      if (!method.equals("POST")) {
+        return Response.METHOD_NOT_ALLOWED;
+      }
+      final Map<String, Object> body = readBody(exchange);
+      return action.equals("batches")
+          ? write(() -> addBatch(name, body)) : consumeGrocery(name, body);
+    }
+    if (resource.equals("recipes") && path.size() == 1) {
+      return switch (method) {
+        case "GET" -> read(this::listRecipes);
+        case "POST" -> {
+          final Map<String, Object> body = readBody(exchange);
+          yield write(() -> addRecipe(body));
+        }
+        default -> Response.METHOD_NOT_ALLOWED;
+      };
+    }
+    if (resource.equals("recipes") && path.size() == 2) {
+      return switch (method) {
+        case "GET" -> read(() -> getRecipe(name));
+        case "DELETE" -> write(() -> removeRecipe(name));
+        default -> Response.METHOD_NOT_ALLOWED;
+      };
+    }
+    if ((resource.equals("suggestions") || resource.equals("costs")) && path.size() == 1) {
+      if (!method.equals("GET")) {
+        return Response.METHOD_NOT_ALLOWED;
+      }
+      return resource.equals("suggestions")
+          ? read(() -> listSuggestions(query)) : read(this::listCosts);
+    }
+    return Response.NOT_FOUND;
+  }
+
+  private Response listGroceries(Map<String, String> query) {
+    final List<Grocery> groceries;
+    if (query.containsKey("category")) {
+      groceries = foodStorage.getGroceriesByCategory(query.get("category"));
+      groceries.sort(Comparator.comparing(Grocery::getName));
+    } else if (query.containsKey("expiringBefore")) {
+      groceries = foodStorage.getGroceriesExpiringBeforeDate(
+          parseDate(query.get("expiringBefore")));
+    } else {
+      groceries = foodStorage.getAllGroceriesAlphabetically();
+    }
+    final StringBuilder out = new StringBuilder().append('[');
+    for (int i = 0; i < groceries.size(); i++) {
+      if (i > 0) {
+        out.append(',');
+      }
+      JsonMessages.appendGrocery(out, groceries.get(i));
+    }
+    return Response.ok(out.append(']'));
+  }
+
+  private Response getGrocery(String name) {
+    if (!foodStorage.containsGrocery(name)) {
+      return Response.error(404, "No grocery named " + name);
+    }
+    return Response.ok(JsonMessages.appendGrocery(new StringBuilder(),
+        foodStorage.getGroceryByName(name)));
+  }
+
+  private Response addGrocery(Map<String, Object> body) {
+    final Grocery grocery = JsonMessages.groceryOf(body);
+    if (foodStorage.containsGrocery(grocery.getName())) {
+      return Response.error(409, "A grocery named " + grocery.getName() + " already exists");
+    }
+    foodStorage.addGrocery(grocery);
+    return new Response(201, JsonMessages.appendGrocery(new StringBuilder(), grocery).toString());
+  }
+
+  private Response removeGrocery(String name) {
+    if (!foodStorage.containsGrocery(name)) {
+      return Response.error(404, "No grocery named " + name);
+    }
+    foodStorage.removeGrocery(foodStorage.getGroceryByName(name));
+    return Response.NO_CONTENT;
+  }
+
+  private Response addBatch(String name, Map<String, Object> body) {
+    if (!foodStorage.containsGrocery(name)) {
+      return Response.error(404, "No grocery named " + name);
+    }
+    final Grocery grocery = foodStorage.getGroceryByName(name);
+    grocery.addBatch(JsonMessages.batchOf(body));
+    return Response.ok(JsonMessages.appendGrocery(new StringBuilder(), grocery));
+  }
+
+  /**
+   * Consumes an amount of a grocery, together with the other requests to consume it at the same
+   * time. Consuming the whole amount removes the grocery, like the food storage menu does, and
+   * then the response has no body.
+   */
+  private Response consumeGrocery(String name, Map<String, Object> body) {
+    final double amount = JsonMessages.getNumber(body, "amount");
+    return switch (consumeCoalescer.consume(name, amount).join()) {
+      case CONSUMED -> read(() -> foodStorage.containsGrocery(name)
+          ? Response.ok(JsonMessages.appendGrocery(new StringBuilder(),
+              foodStorage.getGroceryByName(name)))
+          : Response.NO_CONTENT);
+      case EMPTIED -> Response.NO_CONTENT;
+      case INSUFFICIENT -> Response.error(400,
+          "Amount to consume is greater than the total amount of the grocery item.");
+      case NOT_FOUND -> Response.error(404, "No grocery named " + name);
+    };
+  }
+
+  private Response listRecipes() {
+    final List<Recipe> recipes = new ArrayList<>(cookbook.getRecipes());
+    recipes.sort(BY_NAME);
+    final StringBuilder out = new StringBuilder().append('[');
+    for (int i = 0; i < recipes.size(); i++) {
+      if (i > 0) {
+        out.append(',');
+      }
+      JsonMessages.appendRecipe(out, recipes.get(i), false);
+    }
+    return Response.ok(out.append(']'));
+  }
+
+  private Response getRecipe(String name) {
+    final Recipe recipe = findRecipe(name);
+    if (recipe == null) {
+      return Response.error(404, "No recipe named " + name);
+    }
+    return Response.ok(JsonMessages.appendRecipe(new StringBuilder(), recipe, true));
+  }
+
+  private Response addRecipe(Map<String, Object> body) {
+    final Recipe recipe = JsonMessages.recipeOf(body);
+    if (findRecipe(recipe.getName()) != null) {
+      return Response.error(409, "A recipe named " + recipe.getName() + " already exists");
+    }
+    cookbook.addRecipe(recipe);
+    return new Response(201,
+        JsonMessages.appendRecipe(new StringBuilder(), recipe, true).toString());
+  }
+
+  private Response removeRecipe(String name) {
+    final Recipe recipe = findRecipe(name);
+    if (recipe == null) {
+      return Response.error(404, "No recipe named " + name);
+    }
+    cookbook.removeRecipe(recipe);
+    return Response.NO_CONTENT;
+  }
+
+  /**
+   * Lists the recipes that can be made with the groceries in the food storage, or with the
+   * groceries expiring before a date, with the names of the groceries used.
+   */
+  private Response listSuggestions(Map<String, String> query) {
+    final List<Grocery> groceries = query.containsKey("expiringBefore")
+        ? foodStorage.getGroceriesExpiringBeforeDate(parseDate(query.get("expiringBefore")))
+        : foodStorage.getAllGroceries();
+    final Map<Recipe, List<Grocery>> suggestions =
+        mealSuggestionsService.findPossibleRecipes(groceries);
+    final List<Recipe> recipes = new ArrayList<>(suggestions.keySet());
+    recipes.sort(BY_NAME);
+
+    final StringBuilder out = new StringBuilder().append('[');
+    for (int i = 0; i < recipes.size(); i++) {
+      if (i > 0) {
+        out.append(',');
+      }
+      out.append("{\"recipe\":");
+      JsonMessages.appendString(out, recipes.get(i).getName());
+      out.append(",\"groceries\":[");
+      final List<Grocery> used = suggestions.get(recipes.get(i));
+      for (int j = 0; j < used.size(); j++) {
+        if (j > 0) {
+          out.append(',');
+        }
+        JsonMessages.appendString(out, used.get(j).getName());
+      }
+      out.append("]}");
+    }
+    return Response.ok(out.append(']'));
+  }
+
+  private Response listCosts() {
+    final Map<Recipe, Double> costs = recipeCostService.estimateCosts(cookbook);
+    final StringBuilder out = new StringBuilder().append('[');
+    for (Map.Entry<Recipe, Double> entry : costs.entrySet()) {
+      if (out.length() > 1) {
+        out.append(',');
+      }
+      out.append("{\"recipe\":");
+      JsonMessages.appendString(out, entry.getKey().getName());
+      out.append(",\"cost\":");
+      JsonMessages.appendNumber(out, entry.getValue());
+      out.append(",\"costPerServing\":");
+      JsonMessages.appendNumber(out, entry.getValue() / entry.getKey().getServings());
+      out.append('}');
+    }
+    return Response.ok(out.append(']'));
+  }
+
+  private Recipe findRecipe(String name) {
+    for (Recipe recipe : cookbook.getRecipes()) {
+      if (recipe.getName().equalsIgnoreCase(name)) {
+        return recipe;
+      }
+    }
+    return null;
+  }
+
+  private Response read(Supplier<Response> operation) {
+    return locked(lock.readLock(), operation);
+  }
+
+  private Response write(Supplier<Response> operation) {
+    try (ChangeScope scope = ChangeScope.open()) {
+      return locked(lock.writeLock(), operation);
+    }
+  }
+
+  private static Response locked(Lock lock, Supplier<Response> operation) {
+    lock.lock();
+    try {
+      return operation.get();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Reads the body of a request as a JSON object.
+   *
+   * @throws IllegalArgumentException if the body is too large or not a JSON object.
+   */
+  private static Map<String, Object> readBody(HttpExchange exchange)
+      throws IOException, IllegalArgumentException {
+    try (InputStream in = exchange.getRequestBody()) {
+      final byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+      if (body.length > MAX_BODY_BYTES) {
+        throw new IllegalArgumentException("Request body is larger than "
+            + MAX_BODY_BYTES + " bytes");
+      }
+      return JsonMessages.parseObject(body);
+    }
+  }
+
+  private static Map<String, String> parseQuery(String rawQuery) {
+    final Map<String, String> query = new HashMap<>();
+    if (rawQuery == null || rawQuery.isEmpty()) {
+      return query;
+    }
+    for (String parameter : rawQuery.split("&")) {
+      final int equals = parameter.indexOf('=');
+      final String key = equals < 0 ? parameter : parameter.substring(0, equals);
+      final String value = equals < 0 ? "" : parameter.substring(equals + 1);
+      query.put(URLDecoder.decode(key, StandardCharsets.UTF_8),
+          URLDecoder.decode(value, StandardCharsets.UTF_8));
+    }
+    return query;
+  }
+
+  private static LocalDate parseDate(String date) throws IllegalArgumentException {
+    try {
+      return LocalDate.parse(date);
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Invalid date: " + date);
+    }
+  }
+
+  private static void send(HttpExchange exchange, Response response) throws IOException {
+    if (response.body() == null) {
+      exchange.sendResponseHeaders(response.status(), -1);
+      return;
+    }
+    final byte[] body = response.body().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+    exchange.sendResponseHeaders(response.status(), body.length);
+    exchange.getResponseBody().write(body);
+  }
+
+  /**
+   * The status and JSON body of a response, or a null body for a response without one.
+   */
+  private record Response(int status, String body) {
+    static final Response NO_CONTENT = new Response(204, null);
+    static final Response NOT_FOUND = error(404, "Not found");
+    static final Response METHOD_NOT_ALLOWED = error(405, "Method not allowed");
+
+    static Response ok(CharSequence body) {
+      return new Response(200, body.toString());
+    }
+
+    static Response error(int status, String message) {
+      return new Response(status, JsonMessages.appendString(new StringBuilder("{\"error\":"),
+          message == null ? "" : message).append('}').toString());
+    }
+  }
+}
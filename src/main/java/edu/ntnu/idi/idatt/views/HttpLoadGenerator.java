@@ -0,0 +1,227 @@
+package edu.ntnu.idi.idatt.views;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A load generator for an {@link HttpApiServer}, measuring how many requests it serves per second
+ * and how long they take.
+ *
+ * <p>
+ * The generator first adds a grocery and a recipe using it, with names that are not in use. Every
+ * client then sends one request at a time on its own virtual thread, in a repeating mix of eight
+ * reads of the grocery, the recipe and the meal suggestions, and two writes adding a batch to the
+ * grocery and consuming it again. The added batches expire before the first batch, so they are
+ * the ones consumed, and the grocery does not grow. The grocery and recipe are removed when the
+ * run ends, so the data served is left as it was.
+ *
+ * <p>
+ * The time of every request is kept, from before it is sent until its response is read, and the
+ * percentiles are found by sorting the times of all the clients once the run has ended.
+ *
+ * @see HttpApiServer
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class HttpLoadGenerator {
+  /** The number of clients sending requests, if no other number is chosen. */
+  public static final int DEFAULT_CLIENTS = 64;
+  /** How long the requests are sent for, if no other duration is chosen. */
+  public static final Duration DEFAULT_DURATION = Duration.ofSeconds(10);
+  private static final int OPERATIONS_PER_CYCLE = 10;
+
+  private final HttpClient client;
+  private final URI baseUri;
+  private final String groceryPath;
+  private final String recipePath;
+  private final String batchBody;
+
+  private HttpLoadGenerator(HttpClient client, URI baseUri, String name) {
+    this.client = client;
+    this.baseUri = baseUri;
+    this.groceryPath = "groceries/" + name;
+    this.recipePath = "recipes/" + name + "cake";
+    this.batchBody = "{\"amount\":1,\"pricePerUnit\":25,\"expirationDate\":\""
+        + LocalDate.now().plusMonths(6) + "\"}";
+  }
+
+  /**
+   * Sends requests to the server at the provided address from the provided number of clients, for
+   * the provided duration, and returns the measurements.
+   *
+   * @param baseUri the address of the server, like {@code http://localhost:8080/}
+   * @param clients the number of clients sending requests at the same time
+   * @param duration how long to send requests for
+   * @return the measurements of the run
+   * @throws IOException if the grocery and recipe of the run could not be added or removed.
+   * @throws InterruptedException if the thread was interrupted while waiting for the clients.
+   * @throws IllegalArgumentException if the address is null, the number of clients is not
+   *         positive, or the duration is null or not positive.
+   */
+  public static Result run(URI baseUri, int clients, Duration duration)
+      throws IOException, InterruptedException, IllegalArgumentException {
+    if (baseUri == null) {
+      throw new IllegalArgumentException("Address cannot be null");
+    }
+    if (clients <= 0) {
+      throw new IllegalArgumentException("Number of clients must be positive");
+    }
+    if (duration == null || duration.isNegative() || duration.isZero()) {
+      throw new IllegalArgumentException("Duration must be positive");
+    }
+    final URI base = baseUri.getPath().endsWith("/") ? baseUri : URI.create(baseUri + "/");
+    final String name = "Loadtest" + Long.toString(
+        ThreadLocalRandom.current().nextLong() >>> 1, Character.MAX_RADIX);
+
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+            .executor(executor).build()) {
+      final HttpLoadGenerator generator = new HttpLoadGenerator(client, base, name);
+      generator.setUp(name);
+      try {
+        final long start = System.nanoTime();
+        final long deadline = start + duration.toNanos();
+        final List<Future<long[]>> futures = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+          futures.add(executor.submit(() -> generator.sendUntil(deadline)));
+        }
+        final List<long[]> times = new ArrayList<>(clients);
+        for (Future<long[]> future : futures) {
+          times.add(future.get());
+        }
+        return Result.of(times, Duration.ofNanos(System.nanoTime() - start));
+      } catch (ExecutionException e) {
+        throw new IOException("A client failed: " + e.getCause().getMessage(), e.getCause());
+      } finally {
+        generator.tearDown();
+      }
+    }
+  }
+
+  private void setUp(String name) throws IOException, InterruptedException {
+    expect(201, send("POST", "groceries", "{\"name\":\"" + name + "\",\"category\":\"Load test\","
+        + "\"unit\":\"pieces\",\"amount\":1000,\"pricePerUnit\":25,\"expirationDate\":\""
+        + LocalDate.now().plusYears(1) + "\"}"));
+    expect(201, send("POST", "recipes", "{\"name\":\"" + name + "cake\",\"description\":"
+        + "\"Load test recipe\",\"instructions\":\"None\",\"servings\":4,\"ingredients\":"
+        + "[{\"name\":\"" + name + "\",\"category\":\"Load test\",\"unit\":\"pieces\","
+        + "\"amount\":2}]}"));
+  }
+
+  private void tearDown() throws IOException, InterruptedException {
+    send("DELETE", recipePath, null);
+    send("DELETE", groceryPath, null);
+  }
+
+  /**
+   * Sends requests one at a time until the deadline, and returns how long each of them took, in
+   * nanoseconds, with the number of failed requests as the last element.
+   */
+  private long[] sendUntil(long deadline) throws IOException, InterruptedException {
+    long[] times = new long[1024];
+    int count = 0;
+    long failures = 0;
+    // Each client starts at its own place in the mix, so the writes are spread out in time.
+    int operation = ThreadLocalRandom.current().nextInt(OPERATIONS_PER_CYCLE);
+    long now = System.nanoTime();
+    while (now < deadline) {
+      final HttpResponse<Void> response = switch (operation) {
+        case 7 -> send("POST", groceryPath + "/batches", batchBody);
+        case 8 -> send("POST", groceryPath + "/consume", "{\"amount\":1}");
+        case 2, 5 -> send("GET", recipePath, null);
+        case 9 -> send("GET", "suggestions", null);
+        default -> send("GET", groceryPath, null);
+      };
+      final long end = System.nanoTime();
+      if (response.statusCode() >= 400) {
+        failures++;
+      }
+      if (count == times.length - 1) {
+        times = Arrays.copyOf(times, times.length * 2);
+      }
+      times[count++] = end - now;
+      operation = (operation + 1) % OPERATIONS_PER_CYCLE;
+      now = end;
+    }
+    times = Arrays.copyOf(times, count + 1);
+    times[count] = failures;
+    return times;
+  }
+
+  private HttpResponse<Void> send(String method, String path, String body)
+      throws IOException, InterruptedException {
+    final HttpRequest.Builder request = HttpRequest.newBuilder(baseUri.resolve(path));
+    if (body == null) {
+      request.method(method, HttpRequest.BodyPublishers.noBody());
+    } else {
+      request.header("Content-Type", "application/json")
+          .method(method, HttpRequest.BodyPublishers.ofString(body));
+    }
+    return client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+  }
+
+  private static void expect(int status, HttpResponse<Void> response) throws IOException {
+    if (response.statusCode() != status) {
+      throw new IOException("Unexpected status " + response.statusCode() + " from "
+          + response.request().method() + " " + response.uri());
+    }
+  }
+
+  /**
+   * The measurements of a run.
+   *
+   * @param requests the number of requests sent
+   * @param failures the number of requests that got an error status
+   * @param elapsed how long the requests were sent for
+   * @param medianNanos the median time of a request, in nanoseconds
+   * @param p99Nanos the time 99 percent of the requests were faster than, in nanoseconds
+   * @param maxNanos the time of the slowest request, in nanoseconds
+   */
+  public record Result(long requests, long failures, Duration elapsed, long medianNanos,
+      long p99Nanos, long maxNanos) {
+
+    /**
+     * Returns the number of requests sent per second.
+     *
+     * @return the requests per second
+     */
+    public double requestsPerSecond() {
+      return requests / (elapsed.toNanos() / 1e9);
+    }
+
+    private static Result of(List<long[]> clientTimes, Duration elapsed) {
+      long failures = 0;
+      int count = 0;
+      for (long[] times : clientTimes) {
+        failures += times[times.length - 1];
+        count += times.length - 1;
+      }
+      final long[] all = new long[count];
+      int offset = 0;
+      for (long[] times : clientTimes) {
+        System.arraycopy(times, 0, all, offset, times.length - 1);
+        offset += times.length - 1;
+      }
+      Arrays.sort(all);
+      if (count == 0) {
+        return new Result(0, failures, elapsed, 0, 0, 0);
+      }
+      return new Result(count, failures, elapsed, all[(count - 1) / 2],
+          all[(int) Math.ceil(count * 0.99) - 1], all[count - 1]);
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package edu.ntnu.idi.idatt.views;
+
+import edu.ntnu.idi.idatt.utils.Session;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Lets several people use the text user interface at the same time, each over their own
+ * connection to a local socket, with a tool like {@code nc} or {@code socat}.
+ *
+ * <p>
+ * The server listens on a TCP address, or on the path of a Unix-domain socket. Every connection
+ * gets a {@link Session} reading from and printing to it, which is run by the handler on a new
+ * virtual thread, so a session waiting for its user to type only holds a cheap virtual thread.
+ * The session ends when the handler returns, or when the other end closes the connection.
+ *
+ * <p>
+ * The sessions run at the same time, so whatever they share, like the food storage and cookbook,
+ * must be thread-safe.
+ *
+ * @see TextUserInterface#serveSessions(SocketAddress)
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+public final class SessionServer implements Closeable {
+  private final ServerSocketChannel channel;
+  private final SocketAddress address;
+  private final Consumer<Session> handler;
+  /** The connections of the sessions running, closed when the server is closed. */
+  private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+  private final Thread acceptor;
+
+  private SessionServer(ServerSocketChannel channel, Consumer<Session> handler)
+      throws IOException {
+    this.channel = channel;
+    this.address = channel.getLocalAddress();
+    this.handler = handler;
+    // A platform thread accepts the connections, so the application keeps running while the
+    // server does, as virtual threads do not.
+    this.acceptor = Thread.ofPlatform().name("session-server").unstarted(this::accept);
+  }
+
+  /**
+   * Starts a server on the provided address, running the provided handler with a session for
+   * every connection.
+   *
+   * @param address the address to listen on, either a TCP address, with port 0 for any free port,
+   *                or the address of a Unix-domain socket file, which must not exist
+   * @param handler runs a session, on the thread of the session
+   * @return the running server
+   * @throws IOException if the server could not listen on the address.
+   * @throws IllegalArgumentException if any of the provided objects are null.
+   */
+  public static SessionServer start(SocketAddress address, Consumer<Session> handler)
+      throws IOException, IllegalArgumentException {
+    if (address == null || handler == null) {
+      throw new IllegalArgumentException("Address and handler cannot be null");
+    }
+    final ServerSocketChannel channel = address instanceof UnixDomainSocketAddress
+        ? ServerSocketChannel.open(StandardProtocolFamily.UNIX) : ServerSocketChannel.open();
+    try {
+      channel.bind(address);
+      final SessionServer server = new SessionServer(channel, handler);
+      server.acceptor.start();
+      return server;
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the address the server listens on.
+   *
+   * @return the address, with the port chosen if the server was started on port 0
+   */
+  public SocketAddress getAddress() {
+    return address;
+  }
+
+  /**
+   * Returns the number of sessions running.
+   *
+   * @return the number of sessions
+   */
+  public int getSessionCount() {
+    return connections.size();
+  }
+
+  /**
+   * Stops accepting connections, and ends the sessions running by closing their connections. A
+   * Unix-domain socket file is deleted.
+   */
+  @Override
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      // The server is stopping, and nothing more can be done about it.
+    }
+    for (SocketChannel connection : connections) {
+      closeQuietly(connection);
+    }
+    if (address instanceof UnixDomainSocketAddress unixAddress) {
+      try {
+        Files.deleteIfExists(unixAddress.getPath());
+      } catch (IOException e) {
+        // The file is left behind, and must be deleted before a new server can use the path.
+      }
+    }
+  }
+
+  /**
+   * Accepts connections until the server is closed, starting a session for each.
+   */
+  private void accept() {
+    while (channel.isOpen()) {
+      try {
+        final SocketChannel connection = channel.accept();
+        connections.add(connection);
+        Thread.ofVirtual().name("session-" + connection.getRemoteAddress())
+            .start(() -> serve(connection));
+      } catch (ClosedChannelException e) {
+        return;
+      } catch (IOException e) {
+        // A connection that failed while being accepted only affects that connection.
+      }
+    }
+  }
+
+  /**
+   * Runs the handler with a session over a connection, and closes the connection afterwards.
+   */
+  private void serve(SocketChannel connection) {
+    try (Session session = new Session(Channels.newInputStream(connection),
+        new BufferedOutputStream(Channels.newOutputStream(connection)))) {
+      session.run(() -> handler.accept(session));
+    } finally {
+      connections.remove(connection);
+      closeQuietly(connection);
+    }
+  }
+
+  private static void closeQuietly(SocketChannel connection) {
+    try {
+      connection.close();
+    } catch (IOException e) {
+      // The connection is closed either way.
+    }
+  }
+}
@@ -1,13 +1,38 @@
 package edu.ntnu.idi.idatt.views;
 
 import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.ExpiryNotifier;
+import edu.ntnu.idi.idatt.models.ExpirySweeper;
 import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.UndoHistory;
+import edu.ntnu.idi.idatt.persistence.CommandScript;
+import edu.ntnu.idi.idatt.persistence.LsmGroceryStore;
+import edu.ntnu.idi.idatt.persistence.MutationJournal;
+import edu.ntnu.idi.idatt.persistence.RecipeTextFile;
+import edu.ntnu.idi.idatt.services.BatchCommandService;
 import edu.ntnu.idi.idatt.services.CookbookMenuService;
 import edu.ntnu.idi.idatt.services.FoodStorageMenuService;
 import edu.ntnu.idi.idatt.services.MealSuggestionsService;
 import edu.ntnu.idi.idatt.services.SettingsMenuService;
 import edu.ntnu.idi.idatt.utils.InterfaceUtils;
+import edu.ntnu.idi.idatt.utils.Session;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * A text-based user interface for a food storage system. This class provides the main navigation
@@ -16,11 +41,27 @@ import java.time.LocalDate;
  *
  * <p>
  * The {@code init} method initializes an empty food storage system and a cookbook. It also sets the
- * current date of the application to the current date of the system.
+ * current date of the application to the current date of the system. The {@code openJournal}
+ * method can then rebuild the food storage and cookbook from a {@link MutationJournal}, and record
+ * every later change to them in it. Instead, the {@code openDiskStorage} method can keep the
+ * groceries in files, with a {@link LsmGroceryStore}. The {@code openRecipeTextFile} method can
+ * keep the descriptions and instructions of the recipes in a file, with a {@link RecipeTextFile}.
+ * The {@code openUndoHistory} method lets the changes made from the menus be undone and redone
+ * from the main menu, with an {@link UndoHistory}. The {@code openExpiryNotifier} method shows
+ * the batches that are about to expire or have expired above the main menu, as the days pass,
+ * with an {@link ExpiryNotifier}.
  *
  * <p>
  * The {@code start} method starts the application, allowing the user to navigate through the
- * different menus and sub-menus.
+ * different menus and sub-menus. Instead, the {@code serveHttpApi} method can serve the food
+ * storage and cookbook to other programs, with an {@link HttpApiServer}, the {@code serveSessions}
+ * method can let several people use the menus at the same time over a local socket, with a
+ * {@link SessionServer}, and the {@code runBatch} method can run a script of commands without
+ * prompting, with a {@link BatchCommandService}.
+ *
+ * <p>
+ * The menus read from and print to the {@link Session} of the thread running them, which is the
+ * console unless they run in a session of a session server.
  *
  * @see InterfaceUtils
  *
@@ -30,6 +71,10 @@ import java.time.LocalDate;
 public class TextUserInterface {
   private static final String INVALID_CHOICE_ERROR = "Invalid choice";
   private static final String RETURNING_TO_MAIN_MENU = "Returning to main menu";
+  private static final int BATCH_OUTPUT_BUFFER = 1 << 16;
+  private static final String UNDO_UNAVAILABLE_ERROR =
+      "Changes cannot be undone when the groceries are kept in files, shared by sessions, or "
+      + "swept in the background.";
 
   /** The food storage used by the application. */
   private FoodStorage foodStorage;
@@ -37,6 +82,12 @@ public class TextUserInterface {
   private Cookbook cookbook;
   /** The current date used by the application. Can be changed by the user. */
   private LocalDate currentDate;
+  /** The history of changes to undo and redo, or null if changes cannot be undone. */
+  private UndoHistory history;
+  /** The expiry notices not shown yet, added by the thread of the expiry notifier. */
+  private final Queue<ExpiryNotifier.Notice> expiryNotices = new ConcurrentLinkedQueue<>();
+  /** The sweeper removing expired batches in the background, or null if there is none. */
+  private ExpirySweeper expirySweeper;
 
   /**
    * Initializes the text user interface application, by creating a new food storage, cookbook, and
@@ -58,7 +109,262 @@ public class TextUserInterface {
   }
 
   /**
-   * Start the text user interface application.
+   * Opens the mutation journal in the provided directory, replaying the changes in it into the
+   * food storage and cookbook, and recording every later change to them. Must be called after
+   * {@code init}.
+   *
+   * <p>
+   * The journal is closed when the application exits. If the journal cannot be opened, the method
+   * passes the error message to the {@code stopByError} method. Records of the journal that could
+   * not be replayed are printed as warnings.
+   *
+   * @param directory the directory of the journal
+   * @param durability how long a change waits before it is forced to disk
+   * @param checkpointPolicy when to write checkpoints of the journal
+   */
+  public void openJournal(Path directory, MutationJournal.Durability durability,
+      MutationJournal.CheckpointPolicy checkpointPolicy) {
+    try {
+      final MutationJournal journal = MutationJournal.open(directory, durability,
+          checkpointPolicy, foodStorage, cookbook);
+      journal.getSkippedRecords().forEach(skipped ->
+          InterfaceUtils.output().println("Warning: " + skipped));
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          journal.close();
+        } catch (IOException e) {
+          System.out.println("Journal could not be closed: " + e.getMessage());
+        }
+      }));
+    } catch (IOException | IllegalArgumentException e) {
+      stopByError(e.getMessage());
+    }
+  }
+
+  /**
+   * Replaces the food storage with one keeping its groceries in files in the provided directory,
+   * containing the groceries already stored there. Must be called after {@code init}.
+   *
+   * <p>
+   * The files are closed when the application exits. If they cannot be opened, the method passes
+   * the error message to the {@code stopByError} method.
+   *
+   * @param directory the directory of the files
+   * @see LsmGroceryStore
+   */
+  public void openDiskStorage(Path directory) {
+    try {
+      final LsmGroceryStore store =
+          LsmGroceryStore.open(directory, LsmGroceryStore.DEFAULT_CACHE_BYTES);
+      this.foodStorage = new FoodStorage(store);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          store.close();
+        } catch (IOException e) {
+          System.out.println("Food storage could not be closed: " + e.getMessage());
+        }
+      }));
+    } catch (IOException | IllegalArgumentException e) {
+      stopByError(e.getMessage());
+    }
+  }
+
+  /**
+   * Replaces the cookbook with one keeping the descriptions and instructions of its recipes in the
+   * provided file. Must be called after {@code init}, and before {@code openJournal}.
+   *
+   * <p>
+   * The file is closed and deleted when the application exits. If it cannot be opened, the method
+   * passes the error message to the {@code stopByError} method.
+   *
+   * @param file the file to keep the texts in
+   * @see RecipeTextFile
+   */
+  public void openRecipeTextFile(Path file) {
+    try {
+      final RecipeTextFile textFile = RecipeTextFile.open(file, RecipeTextFile.DEFAULT_CACHE_CHARS);
+      this.cookbook = new Cookbook(textFile);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          textFile.close();
+        } catch (IOException e) {
+          System.out.println("Recipe text file could not be closed: " + e.getMessage());
+        }
+      }));
+    } catch (IOException | IllegalArgumentException e) {
+      stopByError(e.getMessage());
+    }
+  }
+
+  /**
+   * Starts recording the changes made to the food storage and cookbook from the menus, so they
+   * can be undone and redone. Must be called after the food storage and cookbook are opened, and
+   * after {@code openJournal}, so the history starts from the data in the journal.
+   *
+   * @param memoryBudget the largest estimated memory use of the versions kept, in bytes
+   * @see UndoHistory
+   */
+  public void openUndoHistory(long memoryBudget) {
+    try {
+      this.history = new UndoHistory(foodStorage, cookbook, memoryBudget);
+    } catch (IllegalArgumentException e) {
+      stopByError(e.getMessage());
+    }
+  }
+
+  /**
+   * Starts telling the user about grocery batches that are about to expire, or have expired, as
+   * the days of the system clock pass. The notices are shown above the main menu the next time it
+   * is shown. Must be called after the food storage is opened.
+   *
+   * @param warningDays how many days before its expiration date a batch is about to expire
+   * @see ExpiryNotifier
+   */
+  public void openExpiryNotifier(int warningDays) {
+    try {
+      final ExpiryNotifier notifier = new ExpiryNotifier(foodStorage, Clock.systemDefaultZone(),
+          warningDays, expiryNotices::add);
+      notifier.start(ExpiryNotifier.DEFAULT_CHECK_INTERVAL);
+    } catch (IllegalArgumentException e) {
+      stopByError(e.getMessage());
+    }
+  }
+
+  /**
+   * Starts removing the expired grocery batches from the food storage in the background, at the
+   * provided interval, as the days of the system clock pass. The batches removed are shown above
+   * the main menu the next time it is shown. Must be called after the food storage is opened, and
+   * not combined with {@code openUndoHistory}, as the history can only follow the changes of the
+   * menus.
+   *
+   * @param sweepInterval how long to wait between sweeps
+   * @see ExpirySweeper
+   */
+  public void openExpirySweeper(Duration sweepInterval) {
+    try {
+      final ExpirySweeper sweeper = new ExpirySweeper(foodStorage, Clock.systemDefaultZone());
+      sweeper.start(sweepInterval);
+      this.expirySweeper = sweeper;
+    } catch (IllegalArgumentException e) {
+      stopByError(e.getMessage());
+    }
+  }
+
+  /**
+   * Serves the food storage and cookbook as a JSON API over HTTP on the provided port, instead of
+   * starting the menus. Must be called after the food storage and cookbook are opened. The server
+   * runs until the application is stopped, and the menus cannot be used meanwhile.
+   *
+   * <p>
+   * If the server cannot be started, the method passes the error message to the
+   * {@code stopByError} method.
+   *
+   * @param port the port to listen on
+   * @see HttpApiServer
+   */
+  public void serveHttpApi(int port) {
+    try {
+      final HttpApiServer server =
+          HttpApiServer.start(new InetSocketAddress(port), foodStorage, cookbook);
+      Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+      System.out.printf("Serving the food storage and cookbook on http://localhost:%d/%n",
+          server.getAddress().getPort());
+    } catch (IOException | IllegalArgumentException e) {
+      stopByError(e.getMessage());
+    }
+  }
+
+  /**
+   * Lets several people use the menus at the same time, each over their own connection to a local
+   * socket, instead of starting the menus on the console. Must be called after the food storage
+   * and cookbook are opened. The server runs until the application is stopped.
+   *
+   * <p>
+   * Every session has its own current date, and starts at the date of the system. Changes cannot
+   * be undone in the sessions, as one session would undo the changes of another. If the server
+   * cannot be started, the method passes the error message to the {@code stopByError} method.
+   *
+   * @param address the TCP address or Unix-domain socket address to listen on
+   * @see SessionServer
+   */
+  public void serveSessions(SocketAddress address) {
+    try {
+      final SessionServer server = SessionServer.start(address, session -> newSession().start());
+      Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+      System.out.println("Serving sessions on " + server.getAddress());
+    } catch (IOException | IllegalArgumentException e) {
+      stopByError(e.getMessage());
+    }
+  }
+
+  /**
+   * Returns a new text user interface for a session, using the same food storage and cookbook.
+   */
+  private TextUserInterface newSession() {
+    final TextUserInterface session = new TextUserInterface();
+    session.foodStorage = foodStorage;
+    session.cookbook = cookbook;
+    session.currentDate = LocalDate.now();
+    return session;
+  }
+
+  /**
+   * Runs the commands of a script against the food storage and cookbook, instead of starting the
+   * menus. Must be called after the food storage and cookbook are opened.
+   *
+   * <p>
+   * The output is written to the standard output through a large buffer, and is only flushed
+   * when the buffer is full or the script ends, so the speed of the console does not limit the
+   * script. If the script cannot be read, the method passes the error message to the
+   * {@code stopByError} method.
+   *
+   * @param source the script file, or {@code -} to read the script from the standard input
+   * @see CommandScript
+   */
+  public void runBatch(String source) {
+    // The standard output is written to directly, as System.out flushes on every line break.
+    final Writer out = new BufferedWriter(new OutputStreamWriter(
+        new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), BATCH_OUTPUT_BUFFER);
+    try (CommandScript script = source.equals("-")
+        ? CommandScript.of(Channels.newChannel(System.in)) : CommandScript.open(Path.of(source))) {
+      new BatchCommandService(foodStorage, cookbook, out).runScript(script);
+      out.flush();
+    } catch (IOException | IllegalArgumentException e) {
+      stopByError(e.getMessage());
+    }
+  }
+
+  /**
+   * Sends requests to the JSON API of another running instance of the application, and prints
+   * how many requests it served per second and how long they took. Does not need {@code init}.
+   *
+   * @param baseUri the address of the server
+   * @param clients the number of clients sending requests at the same time
+   * @param duration how long to send requests for
+   * @see HttpLoadGenerator
+   */
+  public void runLoadTest(URI baseUri, int clients, Duration duration) {
+    System.out.printf("Sending requests to %s from %d clients for %d seconds...%n", baseUri,
+        clients, duration.toSeconds());
+    try {
+      final HttpLoadGenerator.Result result = HttpLoadGenerator.run(baseUri, clients, duration);
+      System.out.printf("""
+          Requests: %d (%d failed)
+          Requests per second: %.0f
+          Latency: median %.2f ms, p99 %.2f ms, max %.2f ms
+          """, result.requests(), result.failures(), result.requestsPerSecond(),
+          result.medianNanos() / 1e6, result.p99Nanos() / 1e6, result.maxNanos() / 1e6);
+    } catch (IOException | IllegalArgumentException e) {
+      System.out.println("Load test failed: " + e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      System.out.println("Load test was interrupted.");
+    }
+  }
+
+  /**
+   * Start the text user interface application, in the session of the current thread. The
+   * application exits when the user exits the console session, while other sessions only end.
    *
    * <p>
    * If an error occurs during the start process, the method passes the error message to the
@@ -77,13 +383,18 @@ public class TextUserInterface {
 
   /**
    * Stops the application by printing the provided error message and exiting the application
-   * smoothly.
+   * smoothly. In a session other than the console, only the session is ended.
    *
    * @param errorMessage the error message to print
    */
   private void stopByError(String errorMessage) {
-    System.out.println("An error occurred: " + errorMessage);
-    System.out.println("Exiting application...");
+    InterfaceUtils.output().println("An error occurred: " + errorMessage);
+    if (!Session.current().isConsole()) {
+      InterfaceUtils.output().println("Ending session...");
+      Session.current().close();
+      return;
+    }
+    InterfaceUtils.output().println("Exiting application...");
     System.exit(0);
   }
 
@@ -98,8 +409,10 @@ public class TextUserInterface {
    */
   private void handleMainMenu() {
     boolean finished = false;
-    while (!finished) {
+    while (!finished && Session.current().isOpen()) {
       try {
+        printExpiryNotices();
+        printSweptBatches();
         InterfaceUtils.promptMainMenu();
         final int choice = InterfaceUtils.integerInput();
         switch (choice) {
@@ -107,8 +420,10 @@ public class TextUserInterface {
           case 2 -> handleCookbookMenu();
           case 3 -> handleMealSuggestionsMenu();
           case 4 -> handleSettingsMenu();
+          case 5 -> handleUndo();
+          case 6 -> handleRedo();
           case 0 -> finished = true;
-          default -> System.out.println(INVALID_CHOICE_ERROR);
+          default -> InterfaceUtils.output().println(INVALID_CHOICE_ERROR);
         }
       } catch (Exception e) {
         InterfaceUtils.printErrorMessage(e.getMessage());
@@ -116,6 +431,70 @@ public class TextUserInterface {
     }
   }
 
+  /**
+   * Prints the expiry notices that have come since the main menu was last shown.
+   */
+  private void printExpiryNotices() {
+    ExpiryNotifier.Notice notice;
+    while ((notice = expiryNotices.poll()) != null) {
+      InterfaceUtils.output().printf(notice.kind() == ExpiryNotifier.Notice.Kind.EXPIRED
+              ? "Notice: a batch of %s expired on %s.%n"
+              : "Notice: a batch of %s expires on %s.%n",
+          notice.groceryName(), notice.batch().getExpirationDate());
+    }
+  }
+
+  /**
+   * Prints the batches removed by the expiry sweeper since the main menu was last shown.
+   */
+  private void printSweptBatches() {
+    if (expirySweeper == null) {
+      return;
+    }
+    for (ExpirySweeper.Removal removal : expirySweeper.takeRemovals()) {
+      InterfaceUtils.output().printf("Notice: removed %s %s of %s, which expired on %s.%n",
+          removal.batch().getAmount(), removal.unit(), removal.groceryName(),
+          removal.batch().getExpirationDate());
+    }
+  }
+
+  /**
+   * Undoes the last change made from the menus, if there is one.
+   */
+  private void handleUndo() {
+    if (history == null) {
+      InterfaceUtils.output().println(UNDO_UNAVAILABLE_ERROR);
+    } else if (history.undo()) {
+      InterfaceUtils.output().println("Last change undone. " + history.getUndoCount()
+          + " more changes can be undone.");
+    } else {
+      InterfaceUtils.output().println("There is nothing to undo.");
+    }
+  }
+
+  /**
+   * Redoes the last change that was undone, if there is one.
+   */
+  private void handleRedo() {
+    if (history == null) {
+      InterfaceUtils.output().println(UNDO_UNAVAILABLE_ERROR);
+    } else if (history.redo()) {
+      InterfaceUtils.output().println("Change redone. " + history.getRedoCount()
+          + " more changes can be redone.");
+    } else {
+      InterfaceUtils.output().println("There is nothing to redo.");
+    }
+  }
+
+  /**
+   * Ends the change made by the last menu choice, so it can be undone on its own.
+   */
+  private void commitChange() {
+    if (history != null) {
+      history.commit();
+    }
+  }
+
   /**
    * Handles the food storage menu of the application. This method prompts the user to select a menu
    * option and then calls the appropriate method based on the selected option.
@@ -126,7 +505,7 @@ public class TextUserInterface {
     final FoodStorageMenuService foodStorageMenuService = new FoodStorageMenuService(foodStorage,
         currentDate);
     boolean finished = false;
-    while (!finished) {
+    while (!finished && Session.current().isOpen()) {
       try {
         InterfaceUtils.promptFoodStorageMenu();
         final int choice = InterfaceUtils.integerInput();
@@ -141,14 +520,18 @@ public class TextUserInterface {
           case 8 -> foodStorageMenuService.caseShowGroceriesExpiringBeforeDate();
           case 9 -> foodStorageMenuService.caseCalculateGroceriesTotalValue();
           case 10 -> foodStorageMenuService.caseRemoveAllExpiredGroceries();
+          case 11 -> foodStorageMenuService.caseImportGroceries();
+          case 12 -> foodStorageMenuService.caseExportInventory();
+          case 13 -> foodStorageMenuService.caseExportExpiringBatches();
           case 0 -> finished = true;
-          default -> System.out.println(INVALID_CHOICE_ERROR);
+          default -> InterfaceUtils.output().println(INVALID_CHOICE_ERROR);
         }
       } catch (Exception e) {
         InterfaceUtils.printErrorMessage(e.getMessage());
       }
+      commitChange();
     }
-    System.out.println(RETURNING_TO_MAIN_MENU);
+    InterfaceUtils.output().println(RETURNING_TO_MAIN_MENU);
   }
 
   /**
@@ -160,7 +543,7 @@ public class TextUserInterface {
   private void handleCookbookMenu() {
     final CookbookMenuService cookbookMenuService = new CookbookMenuService(cookbook);
     boolean finished = false;
-    while (!finished) {
+    while (!finished && Session.current().isOpen()) {
       try {
         InterfaceUtils.promptCookbookMenu();
         final int choice = InterfaceUtils.integerInput();
@@ -171,14 +554,17 @@ public class TextUserInterface {
           case 4 -> cookbookMenuService.caseEditRecipe();
           case 5 -> cookbookMenuService.caseRemoveRecipe();
           case 6 -> cookbookMenuService.caseShowAllRecipes();
+          case 7 -> cookbookMenuService.caseFindDuplicateRecipes();
+          case 8 -> cookbookMenuService.caseImportRecipes();
           case 0 -> finished = true;
-          default -> System.out.println(INVALID_CHOICE_ERROR);
+          default -> InterfaceUtils.output().println(INVALID_CHOICE_ERROR);
         }
       } catch (Exception e) {
         InterfaceUtils.printErrorMessage(e.getMessage());
       }
+      commitChange();
     }
-    System.out.println(RETURNING_TO_MAIN_MENU);
+    InterfaceUtils.output().println(RETURNING_TO_MAIN_MENU);
   }
 
   /**
@@ -191,7 +577,7 @@ public class TextUserInterface {
     final MealSuggestionsService mealSuggestionsService = new MealSuggestionsService(foodStorage,
         cookbook);
     boolean finished = false;
-    while (!finished) {
+    while (!finished && Session.current().isOpen()) {
       try {
         InterfaceUtils.promptMealSuggestionsMenu();
         final int choice = InterfaceUtils.integerInput();
@@ -199,14 +585,17 @@ public class TextUserInterface {
           case 1 -> mealSuggestionsService.caseSuggestMealsFromExpiringGroceries();
           case 2 -> mealSuggestionsService.caseSuggestMealsFromExistingGroceries();
           case 3 -> mealSuggestionsService.caseSuggestRandomMeal();
+          case 4 -> mealSuggestionsService.caseShowRecipeCosts();
+          case 5 -> mealSuggestionsService.caseExportRecipeAvailability();
           case 0 -> finished = true;
-          default -> System.out.println(INVALID_CHOICE_ERROR);
+          default -> InterfaceUtils.output().println(INVALID_CHOICE_ERROR);
         }
       } catch (Exception e) {
         InterfaceUtils.printErrorMessage(e.getMessage());
       }
+      commitChange();
     }
-    System.out.println(RETURNING_TO_MAIN_MENU);
+    InterfaceUtils.output().println(RETURNING_TO_MAIN_MENU);
   }
 
   /**
@@ -219,7 +608,7 @@ public class TextUserInterface {
     final SettingsMenuService settingsMenuService = new SettingsMenuService(foodStorage, cookbook,
         currentDate);
     boolean finished = false;
-    while (!finished) {
+    while (!finished && Session.current().isOpen()) {
       try {
         InterfaceUtils.promptSettingsMenu();
         final int choice = InterfaceUtils.integerInput();
@@ -228,13 +617,18 @@ public class TextUserInterface {
           case 2 -> settingsMenuService.caseRemoveAllData();
           case 3 -> settingsMenuService.caseShowCurrentDate();
           case 4 -> currentDate = settingsMenuService.caseGetNewDate();
+          case 5 -> settingsMenuService.caseSaveData();
+          case 6 -> settingsMenuService.caseLoadData();
+          case 7 -> settingsMenuService.caseWritePatch();
+          case 8 -> settingsMenuService.caseApplyPatch();
           case 0 -> finished = true;
-          default -> System.out.println(INVALID_CHOICE_ERROR);
+          default -> InterfaceUtils.output().println(INVALID_CHOICE_ERROR);
         }
       } catch (Exception e) {
         InterfaceUtils.printErrorMessage(e.getMessage());
       }
+      commitChange();
     }
-    System.out.println(RETURNING_TO_MAIN_MENU);
+    InterfaceUtils.output().println(RETURNING_TO_MAIN_MENU);
   }
 }
\ No newline at end of file
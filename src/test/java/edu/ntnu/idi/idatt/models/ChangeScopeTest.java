@@ -0,0 +1,174 @@
+package edu.ntnu.idi.idatt.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the ChangeScope class.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that a wait is run right away when no scope is open.
+ * <li>that the waits are run in order when the outermost scope is closed, and not before.
+ * <li>that a wait handed over by a listener of a grocery or food storage is run after the change
+ *      has released the monitors it held, and before the change returns.
+ * <li>that the waits of a caller's scope are run after the caller's own lock is released.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that {@code afterChanges} throws an {@code IllegalArgumentException} when the wait is null.
+ * <li>that every wait is run when one of them throws, and that the first exception is thrown with
+ *      the others suppressed.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the ChangeScope class")
+class ChangeScopeTest {
+  private List<String> events;
+
+  @BeforeEach
+  void setUp() {
+    events = new ArrayList<>();
+  }
+
+  /**
+   * Positive tests for the ChangeScope class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the ChangeScope class")
+  class PositiveChangeScopeTests {
+
+    /**
+     * Test that a wait is run right away when no scope is open.
+     */
+    @Test
+    @DisplayName("Test that a wait is run right away without a scope")
+    void testWaitWithoutScope() {
+      ChangeScope.afterChanges(() -> events.add("wait"));
+
+      assertEquals(List.of("wait"), events);
+    }
+
+    /**
+     * Test that the waits are run in order when the outermost scope is closed, and not before.
+     */
+    @Test
+    @DisplayName("Test that the waits are run when the outermost scope is closed")
+    void testNestedScopes() {
+      try (ChangeScope outer = ChangeScope.open()) {
+        try (ChangeScope inner = ChangeScope.open()) {
+          assertSame(outer, inner);
+          ChangeScope.afterChanges(() -> events.add("first"));
+        }
+        ChangeScope.afterChanges(() -> events.add("second"));
+        assertTrue(events.isEmpty());
+      }
+      assertEquals(List.of("first", "second"), events);
+
+      ChangeScope.afterChanges(() -> events.add("third"));
+      assertEquals(List.of("first", "second", "third"), events);
+    }
+
+    /**
+     * Test that a wait handed over by a listener of a grocery or food storage is run after the
+     * change has released the monitors it held, and before the change returns.
+     */
+    @Test
+    @DisplayName("Test that a listener's wait is run after the model's monitors are released")
+    void testWaitAfterModelMonitors() {
+      final FoodStorage foodStorage = new FoodStorage();
+      final Grocery milk = new Grocery("Milk", "Dairy", "liters",
+          new GroceryBatch(2, 20, LocalDate.of(2024, 12, 1)));
+      foodStorage.addChangeListener(new ModelChangeListener() {
+        @Override
+        public void groceryAdded(Grocery grocery) {
+          ChangeScope.afterChanges(() -> events.add("added, food storage locked: "
+              + Thread.holdsLock(foodStorage)));
+        }
+
+        @Override
+        public void groceryConsumed(Grocery grocery, double amount) {
+          ChangeScope.afterChanges(() -> events.add("consumed, grocery locked: "
+              + Thread.holdsLock(grocery)));
+        }
+      });
+
+      foodStorage.addGrocery(milk);
+      milk.consume(1);
+
+      assertEquals(List.of("added, food storage locked: false",
+          "consumed, grocery locked: false"), events);
+    }
+
+    /**
+     * Test that the waits of a caller's scope are run after the caller's own lock is released.
+     */
+    @Test
+    @DisplayName("Test that the waits of a caller's scope are run after its lock is released")
+    void testWaitAfterCallerLock() {
+      final Object lock = new Object();
+      try (ChangeScope scope = ChangeScope.open()) {
+        synchronized (lock) {
+          ChangeScope.afterChanges(() -> events.add("locked: " + Thread.holdsLock(lock)));
+        }
+      }
+      assertEquals(List.of("locked: false"), events);
+    }
+  }
+
+  /**
+   * Negative tests for the ChangeScope class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the ChangeScope class")
+  class NegativeChangeScopeTests {
+
+    /**
+     * Test that {@code afterChanges} throws an {@code IllegalArgumentException} when the wait is
+     * null.
+     */
+    @Test
+    @DisplayName("Test afterChanges throws IllegalArgumentException when the wait is null")
+    void testNullWaitThrows() {
+      assertThrows(IllegalArgumentException.class, () -> ChangeScope.afterChanges(null));
+    }
+
+    /**
+     * Test that every wait is run when one of them throws, and that the first exception is thrown
+     * with the others suppressed.
+     */
+    @Test
+    @DisplayName("Test that a failed wait does not stop the others")
+    void testFailedWaits() {
+      final ChangeScope scope = ChangeScope.open();
+      ChangeScope.afterChanges(() -> {
+        throw new IllegalStateException("first");
+      });
+      ChangeScope.afterChanges(() -> events.add("ran"));
+      ChangeScope.afterChanges(() -> {
+        throw new IllegalStateException("second");
+      });
+
+      final IllegalStateException thrown =
+          assertThrows(IllegalStateException.class, scope::close);
+
+      assertEquals("first", thrown.getMessage());
+      assertEquals("second", thrown.getSuppressed()[0].getMessage());
+      assertEquals(List.of("ran"), events);
+      ChangeScope.afterChanges(() -> events.add("no scope"));
+      assertEquals(List.of("ran", "no scope"), events);
+    }
+  }
+}
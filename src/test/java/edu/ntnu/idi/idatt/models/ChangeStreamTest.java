@@ -0,0 +1,270 @@
+package edu.ntnu.idi.idatt.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the ChangeStream class.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that changes to the food storage, its groceries and the cook book are published as events,
+ *      in the order they were made, with increasing sequence numbers.
+ * <li>that a subscriber only receives as many events as it has requested.
+ * <li>that a subscriber that falls behind receives an {@code EventsMissed} event in place of the
+ *      events that were overwritten.
+ * <li>that closing the stream completes the subscribers, and stops publishing changes.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that the constructor throws an {@code IllegalArgumentException} when an argument is null or
+ *      the capacity is not positive.
+ * <li>that the method {@code subscribe} throws an {@code IllegalArgumentException} when the
+ *      subscriber is null.
+ * <li>that requesting zero events ends the subscription with an error.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the ChangeStream class")
+class ChangeStreamTest {
+  /** Delivers the events on the thread publishing them, so the tests need not wait for them. */
+  private static final Executor DIRECT = Runnable::run;
+
+  private FoodStorage foodStorage;
+  private Cookbook cookbook;
+
+  @BeforeEach
+  void setUp() {
+    foodStorage = new FoodStorage();
+    cookbook = new Cookbook();
+  }
+
+  private static Grocery milk() {
+    return new Grocery("Milk", "Dairy", "liters",
+        new GroceryBatch(2, 20, LocalDate.of(2024, 12, 1)));
+  }
+
+  /**
+   * A subscriber keeping the events and signals it receives.
+   */
+  private static final class RecordingSubscriber implements Flow.Subscriber<ChangeStream.Event> {
+    private final List<ChangeStream.Event> events = new ArrayList<>();
+    private final long initialRequest;
+    private Flow.Subscription subscription;
+    private Throwable error;
+    private boolean completed;
+
+    private RecordingSubscriber(long initialRequest) {
+      this.initialRequest = initialRequest;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      subscription.request(initialRequest);
+    }
+
+    @Override
+    public void onNext(ChangeStream.Event event) {
+      events.add(event);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+
+  /**
+   * Positive tests for the ChangeStream class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the ChangeStream class")
+  class PositiveChangeStreamTests {
+
+    /**
+     * Test that changes are published as events, in order, with increasing sequence numbers.
+     */
+    @Test
+    @DisplayName("Test that changes are published as events in the order they were made")
+    void testChangesArePublished() {
+      final ChangeStream stream = new ChangeStream(foodStorage, cookbook, 16, DIRECT);
+      final RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+      stream.subscribe(subscriber);
+
+      final Grocery milk = milk();
+      foodStorage.addGrocery(milk);
+      milk.addBatch(new GroceryBatch(1, 25, LocalDate.of(2024, 12, 5)));
+      milk.consume(0.5);
+      final Recipe recipe = new Recipe("Pancakes", "Thin pancakes", "Mix and fry", 4);
+      cookbook.addRecipe(recipe);
+      recipe.addIngredient(new Ingredient("Milk", "Dairy", "liters", 0.5));
+      cookbook.removeRecipe(recipe);
+      foodStorage.removeGrocery(milk);
+
+      final List<ChangeStream.Event> events = subscriber.events;
+      assertEquals(7, events.size());
+      assertEquals(new ChangeStream.GroceryAdded(0, "Milk", "Dairy", "liters", 2), events.get(0));
+      assertEquals(new ChangeStream.BatchAdded(1, "Milk", 1, 25, LocalDate.of(2024, 12, 5)),
+          events.get(1));
+      assertEquals(new ChangeStream.AmountConsumed(2, "Milk", 0.5, 2.5), events.get(2));
+      assertEquals(new ChangeStream.RecipeAdded(3, "Pancakes"), events.get(3));
+      assertEquals(new ChangeStream.RecipeEdited(4, "Pancakes"), events.get(4));
+      assertEquals(new ChangeStream.RecipeRemoved(5, "Pancakes"), events.get(5));
+      assertEquals(new ChangeStream.GroceryRemoved(6, "Milk"), events.get(6));
+      assertEquals(7, stream.getNextSequence());
+    }
+
+    /**
+     * Test that a subscriber only receives as many events as it has requested.
+     */
+    @Test
+    @DisplayName("Test that a subscriber only receives the events it has requested")
+    void testBackpressure() {
+      final ChangeStream stream = new ChangeStream(foodStorage, cookbook, 16, DIRECT);
+      final RecordingSubscriber subscriber = new RecordingSubscriber(1);
+      stream.subscribe(subscriber);
+
+      final Grocery milk = milk();
+      foodStorage.addGrocery(milk);
+      milk.consume(0.5);
+      milk.consume(0.5);
+      assertEquals(1, subscriber.events.size());
+
+      subscriber.subscription.request(5);
+      assertEquals(3, subscriber.events.size());
+      assertEquals(2, subscriber.events.get(2).sequence());
+
+      milk.consume(0.5);
+      assertEquals(4, subscriber.events.size());
+    }
+
+    /**
+     * Test that a subscriber that falls behind receives an {@code EventsMissed} event in place of
+     * the events that were overwritten, followed by the events still kept.
+     */
+    @Test
+    @DisplayName("Test that a slow subscriber is told about the events it missed")
+    void testSlowSubscriberMissesEvents() {
+      final ChangeStream stream = new ChangeStream(foodStorage, cookbook, 3, DIRECT);
+      assertEquals(4, stream.getCapacity());
+      final RecordingSubscriber slow = new RecordingSubscriber(1);
+      stream.subscribe(slow);
+
+      final Grocery milk = new Grocery("Milk", "Dairy", "liters",
+          new GroceryBatch(100, 20, LocalDate.of(2024, 12, 1)));
+      foodStorage.addGrocery(milk);
+      for (int i = 0; i < 10; i++) {
+        milk.consume(1);
+      }
+      assertEquals(1, slow.events.size());
+
+      slow.subscription.request(Long.MAX_VALUE);
+      assertEquals(new ChangeStream.EventsMissed(1, 6), slow.events.get(1));
+      assertEquals(List.of(7L, 8L, 9L, 10L), slow.events.subList(2, 6).stream()
+          .map(ChangeStream.Event::sequence).toList());
+    }
+
+    /**
+     * Test that closing the stream completes the subscribers after the events already published,
+     * and that later changes are not published.
+     */
+    @Test
+    @DisplayName("Test that closing the stream completes the subscribers")
+    void testCloseCompletesSubscribers() {
+      final ChangeStream stream = new ChangeStream(foodStorage, cookbook, 16, DIRECT);
+      final RecordingSubscriber waiting = new RecordingSubscriber(1);
+      stream.subscribe(waiting);
+
+      foodStorage.addGrocery(milk());
+      foodStorage.removeAllGroceries();
+      stream.close();
+      foodStorage.addGrocery(milk());
+
+      assertFalse(waiting.completed);
+      waiting.subscription.request(10);
+      assertEquals(2, waiting.events.size());
+      assertInstanceOf(ChangeStream.AllGroceriesRemoved.class, waiting.events.get(1));
+      assertTrue(waiting.completed);
+      assertEquals(2, stream.getNextSequence());
+
+      final RecordingSubscriber late = new RecordingSubscriber(1);
+      stream.subscribe(late);
+      assertTrue(late.completed);
+      assertTrue(late.events.isEmpty());
+    }
+  }
+
+  /**
+   * Negative tests for the ChangeStream class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the ChangeStream class")
+  class NegativeChangeStreamTests {
+
+    /**
+     * Test that the constructor throws an {@code IllegalArgumentException} when an argument is
+     * null or the capacity is not positive.
+     */
+    @Test
+    @DisplayName("Test constructor throws IllegalArgumentException when an argument is invalid")
+    void testCreateStreamWithInvalidArgumentsThrows() {
+      assertThrows(IllegalArgumentException.class,
+          () -> new ChangeStream(null, cookbook, 16, DIRECT));
+      assertThrows(IllegalArgumentException.class,
+          () -> new ChangeStream(foodStorage, null, 16, DIRECT));
+      assertThrows(IllegalArgumentException.class,
+          () -> new ChangeStream(foodStorage, cookbook, 0, DIRECT));
+      assertThrows(IllegalArgumentException.class,
+          () -> new ChangeStream(foodStorage, cookbook, 16, null));
+    }
+
+    /**
+     * Test that {@code subscribe} throws an {@code IllegalArgumentException} when the subscriber
+     * is null.
+     */
+    @Test
+    @DisplayName("Test subscribe throws IllegalArgumentException when the subscriber is null")
+    void testSubscribeNullThrows() {
+      final ChangeStream stream = new ChangeStream(foodStorage, cookbook, 16, DIRECT);
+      assertThrows(IllegalArgumentException.class, () -> stream.subscribe(null));
+    }
+
+    /**
+     * Test that requesting zero events ends the subscription with an
+     * {@code IllegalArgumentException}, and that no more events are delivered to it.
+     */
+    @Test
+    @DisplayName("Test that requesting zero events ends the subscription with an error")
+    void testRequestZeroEventsFails() {
+      final ChangeStream stream = new ChangeStream(foodStorage, cookbook, 16, DIRECT);
+      final RecordingSubscriber subscriber = new RecordingSubscriber(0);
+      stream.subscribe(subscriber);
+
+      assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+      foodStorage.addGrocery(milk());
+      subscriber.subscription.request(1);
+      assertTrue(subscriber.events.isEmpty());
+    }
+  }
+}
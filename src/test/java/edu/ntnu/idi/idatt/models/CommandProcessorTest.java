@@ -0,0 +1,270 @@
+package edu.ntnu.idi.idatt.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the CommandProcessor class.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that a command is applied, and that its change is in the snapshot once its future is
+ *      completed.
+ * <li>that the groceries already in the food storage are in the first snapshot, and that a
+ *      snapshot is not changed by later commands.
+ * <li>that the commands of many threads are all applied, when the ring is much smaller than the
+ *      number of commands.
+ * <li>that a command throwing an exception completes its future exceptionally, and that the
+ *      commands after it are still applied.
+ * <li>that a command throwing an error completes its future exceptionally, and does not stop the
+ *      writer thread.
+ * <li>that closing the processor applies the commands already submitted.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that the method {@code start} throws an {@code IllegalArgumentException} when an argument
+ *      is null, or the capacity is not a power of two.
+ * <li>that the method {@code submit} throws an {@code IllegalArgumentException} when the command
+ *      is null, and an {@code IllegalStateException} when the processor is closed.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the CommandProcessor class")
+class CommandProcessorTest {
+  private FoodStorage foodStorage;
+  private Cookbook cookbook;
+
+  @BeforeEach
+  void setUp() {
+    foodStorage = new FoodStorage();
+    cookbook = new Cookbook();
+  }
+
+  private static Grocery grocery(String name, double amount) {
+    return new Grocery(name, "Category", "pieces",
+        new GroceryBatch(amount, 10, LocalDate.of(2024, 12, 1)));
+  }
+
+  /**
+   * Positive tests for the CommandProcessor class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the CommandProcessor class")
+  class PositiveCommandProcessorTests {
+
+    /**
+     * Test that a command is applied, and that its change is in the snapshot once its future is
+     * completed.
+     */
+    @Test
+    @DisplayName("Test that a command is applied, and its change is in the snapshot")
+    void testSubmit() {
+      try (CommandProcessor processor = CommandProcessor.start(foodStorage, cookbook)) {
+        processor.submit((groceries, recipes) -> {
+          groceries.addGrocery(grocery("Milk", 3));
+          return null;
+        }).join();
+        final double left = processor.submit((groceries, recipes) -> {
+          final Grocery milk = groceries.getGroceryByName("Milk");
+          milk.consume(1);
+          return milk.getTotalAmount();
+        }).join();
+
+        assertEquals(2, left);
+        final CommandProcessor.Snapshot snapshot = processor.getSnapshot();
+        assertEquals(2, snapshot.getVersion());
+        assertEquals(2, snapshot.getGrocery("milk").getTotalAmount());
+        assertEquals(1, snapshot.getGroceries().size());
+      }
+    }
+
+    /**
+     * Test that the groceries already in the food storage are in the first snapshot, and that a
+     * snapshot is not changed by later commands.
+     */
+    @Test
+    @DisplayName("Test that a snapshot holds the groceries as they were when it was published")
+    void testSnapshotIsImmutable() {
+      foodStorage.addGrocery(grocery("Eggs", 12));
+      try (CommandProcessor processor = CommandProcessor.start(foodStorage, cookbook)) {
+        final CommandProcessor.Snapshot first = processor.getSnapshot();
+        assertEquals(12, first.getGrocery("Eggs").getTotalAmount());
+
+        processor.submit((groceries, recipes) -> {
+          groceries.getGroceryByName("Eggs").consume(5);
+          groceries.addGrocery(grocery("Bread", 1));
+          return null;
+        }).join();
+        processor.submit((groceries, recipes) -> {
+          groceries.removeGrocery(groceries.getGroceryByName("Bread"));
+          return null;
+        }).join();
+
+        assertEquals(12, first.getGrocery("Eggs").getTotalAmount());
+        assertNull(first.getGrocery("Bread"));
+        assertEquals(7, processor.getSnapshot().getGrocery("Eggs").getTotalAmount());
+        assertNull(processor.getSnapshot().getGrocery("Bread"));
+      }
+    }
+
+    /**
+     * Test that the commands of many threads are all applied, when the ring is much smaller than
+     * the number of commands.
+     */
+    @Test
+    @DisplayName("Test that the commands of many threads are all applied")
+    void testConcurrentSubmit() throws Exception {
+      foodStorage.addGrocery(grocery("Rice", 10_000));
+      final ExecutorService executor = Executors.newFixedThreadPool(4);
+      try (CommandProcessor processor = CommandProcessor.start(foodStorage, cookbook, 8)) {
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+          futures.add(executor.submit(() -> {
+            CompletableFuture<Object> last = null;
+            for (int i = 0; i < 1000; i++) {
+              last = processor.submit((groceries, recipes) -> {
+                groceries.getGroceryByName("Rice").consume(1);
+                return null;
+              });
+            }
+            last.join();
+          }));
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+
+        assertEquals(6000, foodStorage.getGroceryByName("Rice").getTotalAmount());
+        assertEquals(6000, processor.getSnapshot().getGrocery("Rice").getTotalAmount());
+        assertEquals(4000, processor.getSnapshot().getVersion());
+      } finally {
+        executor.shutdown();
+      }
+    }
+
+    /**
+     * Test that a command throwing an exception completes its future exceptionally, and that the
+     * commands after it are still applied.
+     */
+    @Test
+    @DisplayName("Test that a failing command does not stop the commands after it")
+    void testFailingCommand() {
+      try (CommandProcessor processor = CommandProcessor.start(foodStorage, cookbook)) {
+        final CompletableFuture<Object> failing = processor.submit((groceries, recipes) ->
+            groceries.getGroceryByName("Missing"));
+        final CompletableFuture<Object> next = processor.submit((groceries, recipes) -> {
+          groceries.addGrocery(grocery("Milk", 1));
+          return null;
+        });
+
+        final CompletionException exception = assertThrows(CompletionException.class,
+            failing::join);
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        next.join();
+        assertTrue(foodStorage.containsGrocery("Milk"));
+      }
+    }
+
+    /**
+     * Test that a command throwing an error completes its future exceptionally, and does not stop
+     * the writer thread.
+     */
+    @Test
+    @DisplayName("Test that a command throwing an error does not stop the writer")
+    void testCommandThrowingError() {
+      try (CommandProcessor processor = CommandProcessor.start(foodStorage, cookbook)) {
+        final CompletableFuture<Object> failing = processor.submit((groceries, recipes) -> {
+          throw new StackOverflowError();
+        });
+        final CompletableFuture<Object> next = processor.submit((groceries, recipes) -> {
+          groceries.addGrocery(grocery("Milk", 1));
+          return null;
+        });
+
+        final CompletionException exception = assertThrows(CompletionException.class,
+            failing::join);
+        assertInstanceOf(StackOverflowError.class, exception.getCause());
+        next.join();
+        assertTrue(foodStorage.containsGrocery("Milk"));
+      }
+    }
+
+    /**
+     * Test that closing the processor applies the commands already submitted.
+     */
+    @Test
+    @DisplayName("Test that closing the processor applies the commands already submitted")
+    void testCloseAppliesSubmittedCommands() {
+      final CommandProcessor processor = CommandProcessor.start(foodStorage, cookbook, 4);
+      final List<CompletableFuture<Object>> futures = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        final String name = "Grocery " + i;
+        futures.add(processor.submit((groceries, recipes) -> {
+          groceries.addGrocery(grocery(name, 1));
+          return null;
+        }));
+      }
+      processor.close();
+
+      assertTrue(futures.stream().allMatch(CompletableFuture::isDone));
+      assertEquals(20, foodStorage.getAllGroceries().size());
+    }
+  }
+
+  /**
+   * Negative tests for the CommandProcessor class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the CommandProcessor class")
+  class NegativeCommandProcessorTests {
+
+    /**
+     * Test that {@code start} throws an {@code IllegalArgumentException} when an argument is null,
+     * or the capacity is not a power of two.
+     */
+    @Test
+    @DisplayName("Test start throws IllegalArgumentException when an argument is invalid")
+    void testStartWithInvalidArgumentsThrows() {
+      assertThrows(IllegalArgumentException.class,
+          () -> CommandProcessor.start(null, cookbook));
+      assertThrows(IllegalArgumentException.class,
+          () -> CommandProcessor.start(foodStorage, null));
+      assertThrows(IllegalArgumentException.class,
+          () -> CommandProcessor.start(foodStorage, cookbook, 0));
+      assertThrows(IllegalArgumentException.class,
+          () -> CommandProcessor.start(foodStorage, cookbook, 100));
+    }
+
+    /**
+     * Test that {@code submit} throws an {@code IllegalArgumentException} when the command is
+     * null, and an {@code IllegalStateException} when the processor is closed.
+     */
+    @Test
+    @DisplayName("Test submit throws an exception when the command is null or it is closed")
+    void testInvalidSubmitThrows() {
+      final CommandProcessor processor = CommandProcessor.start(foodStorage, cookbook);
+      assertThrows(IllegalArgumentException.class, () -> processor.submit(null));
+      processor.close();
+      assertThrows(IllegalStateException.class,
+          () -> processor.submit((groceries, recipes) -> null));
+    }
+  }
+}
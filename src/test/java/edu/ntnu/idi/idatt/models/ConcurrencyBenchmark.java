@@ -0,0 +1,362 @@
+package edu.ntnu.idi.idatt.models;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Measures the concurrent write paths of the models against plain locking, without JMH.
+ * <p>
+ * This is not a test, and is not run by the build. Every scenario runs a number of threads at
+ * once, each doing the same operation a number of times, first for three rounds to warm up, and
+ * then for five measured rounds, each on a new model. For every scenario, the harness prints the
+ * wall time of the measured rounds divided by the number of operations, and the median and 99th
+ * percentile of the time of a single operation. The numbers depend on the number of processors:
+ * with a single processor the threads take turns, so there is no contention for the scenarios to
+ * save. The grocery scenarios are then slower than the monitor, as a change whose thread loses the
+ * processor before it has reported the change holds back the reports of the changes made after it.
+ * <p>
+ * Run it from the project directory with:
+ * <pre>
+ * mvn -B test-compile
+ * java -cp target/classes:target/test-classes edu.ntnu.idi.idatt.models.ConcurrencyBenchmark \
+ *     [scenario prefix] [threads] [operations per thread]
+ * </pre>
+ * The scenarios are:
+ * <ul>
+ * <li>{@code grocery/...}: many threads consuming one grocery with 8 batches, through
+ *      {@code consume}, through {@code consumeIfVersion} retried until it succeeds, and through a
+ *      grocery keeping its batches in a mutable array changed under its monitor. Measured with
+ *      {@code grocery 4 500000}.
+ * <li>{@code coalescer/...}: many virtual threads consuming one grocery with 51 batches in a food
+ *      storage, through a {@link ConsumeCoalescer}, and through the write lock for every request.
+ *      Measured with {@code coalescer 64 5000}.
+ * <li>{@code processor/...}: threads consuming and reading random groceries among 1000, through a
+ *      {@link CommandProcessor}, waiting for every command or only for the last one, and reading
+ *      its snapshots, and through the monitor of the food storage. Measured with
+ *      {@code processor 4 50000}.
+ * </ul>
+ *
+ * @author WilliamHoltsdalen
+ * @since 1.4
+ */
+final class ConcurrencyBenchmark {
+  private static final int WARMUP_ROUNDS = 3;
+  private static final int MEASURED_ROUNDS = 5;
+  private static final LocalDate EXPIRATION_DATE = LocalDate.of(2030, 1, 1);
+  private static final int GROCERIES = 1000;
+
+  /** Written with every amount read, so the reads cannot be left out by the compiler. */
+  private static volatile double sink;
+
+  private ConcurrencyBenchmark() {
+  }
+
+  /**
+   * Runs the scenarios whose names start with the first argument, or every scenario if there is
+   * none.
+   *
+   * @param args the scenario prefix, the number of threads, and the number of operations done by
+   *             every thread, defaulting to every scenario, 4 threads and 50 000 operations
+   * @throws Exception if a scenario fails
+   */
+  public static void main(String[] args) throws Exception {
+    final String prefix = args.length > 0 ? args[0] : "";
+    final int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+    final int operations = args.length > 2 ? Integer.parseInt(args[2]) : 50_000;
+    System.out.printf("%d threads, %d operations each, %d processors%n", threads, operations,
+        Runtime.getRuntime().availableProcessors());
+    System.out.printf("%-28s %10s %10s %10s%n", "scenario", "ns/op", "p50 ns", "p99 ns");
+    for (Map.Entry<String, Scenario> entry : scenarios().entrySet()) {
+      if (entry.getKey().startsWith(prefix)) {
+        measure(entry.getKey(), entry.getValue(), threads, operations);
+      }
+    }
+  }
+
+  /**
+   * Returns the scenarios by name, in the order they are run.
+   */
+  private static Map<String, Scenario> scenarios() {
+    final Map<String, Scenario> scenarios = new LinkedHashMap<>();
+
+    scenarios.put("grocery/consume", new Scenario(false, (threads, operations) -> {
+      final Grocery grocery = hotGrocery("Milk", 8, threads * operations);
+      return thread -> grocery.consume(1);
+    }));
+    scenarios.put("grocery/consume-if-version", new Scenario(false, (threads, operations) -> {
+      final Grocery grocery = hotGrocery("Milk", 8, threads * operations);
+      return thread -> {
+        while (!grocery.consumeIfVersion(grocery.getVersion(), 1)) {
+          Thread.onSpinWait();
+        }
+      };
+    }));
+    scenarios.put("grocery/locked-array", new Scenario(false, (threads, operations) -> {
+      final LockedGrocery grocery = new LockedGrocery(8, threads * operations);
+      return thread -> grocery.consume(1);
+    }));
+
+    scenarios.put("coalescer/coalesced", new Scenario(true, (threads, operations) -> {
+      final FoodStorage foodStorage = new FoodStorage();
+      foodStorage.addGrocery(hotGrocery("Milk", 51, threads * operations));
+      final ConsumeCoalescer coalescer =
+          new ConsumeCoalescer(foodStorage, new ReentrantReadWriteLock().writeLock());
+      return thread -> {
+        if (coalescer.consume("Milk", 1).join() != ConsumeCoalescer.Outcome.CONSUMED) {
+          throw new IllegalStateException("The grocery ran out");
+        }
+      };
+    }));
+    scenarios.put("coalescer/write-lock", new Scenario(true, (threads, operations) -> {
+      final FoodStorage foodStorage = new FoodStorage();
+      foodStorage.addGrocery(hotGrocery("Milk", 51, threads * operations));
+      final Lock lock = new ReentrantReadWriteLock().writeLock();
+      return thread -> {
+        lock.lock();
+        try {
+          foodStorage.getGroceryByName("Milk").consume(1);
+        } finally {
+          lock.unlock();
+        }
+      };
+    }));
+
+    scenarios.put("processor/write-await", new Scenario(false, (threads, operations) -> {
+      final CommandProcessor processor =
+          CommandProcessor.start(groceries(threads * operations), new Cookbook());
+      return new Round() {
+        @Override
+        public void operate(int thread) {
+          final String name = randomGrocery();
+          processor.submit((foodStorage, cookbook) -> consume(foodStorage, name)).join();
+        }
+
+        @Override
+        public void close() {
+          processor.close();
+        }
+      };
+    }));
+    scenarios.put("processor/write-async", new Scenario(false, (threads, operations) -> {
+      final CommandProcessor processor =
+          CommandProcessor.start(groceries(threads * operations), new Cookbook());
+      return new Round() {
+        @Override
+        public void operate(int thread) {
+          final String name = randomGrocery();
+          processor.submit((foodStorage, cookbook) -> consume(foodStorage, name));
+        }
+
+        @Override
+        public void finish() {
+          // The commands are applied in order, so every command is applied once this one is.
+          processor.submit((foodStorage, cookbook) -> null).join();
+        }
+
+        @Override
+        public void close() {
+          processor.close();
+        }
+      };
+    }));
+    scenarios.put("processor/snapshot-read", new Scenario(false, (threads, operations) -> {
+      final CommandProcessor processor =
+          CommandProcessor.start(groceries(threads * operations), new Cookbook());
+      return new Round() {
+        @Override
+        public void operate(int thread) {
+          sink = processor.getSnapshot().getGrocery(randomGrocery()).getTotalAmount();
+        }
+
+        @Override
+        public void close() {
+          processor.close();
+        }
+      };
+    }));
+    scenarios.put("processor/synchronized-write", new Scenario(false, (threads, operations) -> {
+      final FoodStorage foodStorage = groceries(threads * operations);
+      return thread -> {
+        final String name = randomGrocery();
+        synchronized (foodStorage) {
+          consume(foodStorage, name);
+        }
+      };
+    }));
+    scenarios.put("processor/synchronized-read", new Scenario(false, (threads, operations) -> {
+      final FoodStorage foodStorage = groceries(threads * operations);
+      return thread -> {
+        final String name = randomGrocery();
+        synchronized (foodStorage) {
+          sink = foodStorage.getGroceryByName(name).getTotalAmount();
+        }
+      };
+    }));
+    return scenarios;
+  }
+
+  /**
+   * Runs the warmup and measured rounds of a scenario, and prints its numbers.
+   */
+  private static void measure(String name, Scenario scenario, int threads, int operations)
+      throws Exception {
+    final int roundSize = threads * operations;
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      runRound(scenario, threads, operations, new long[roundSize], 0);
+    }
+    final long[] latencies = new long[MEASURED_ROUNDS * roundSize];
+    long elapsed = 0;
+    for (int i = 0; i < MEASURED_ROUNDS; i++) {
+      elapsed += runRound(scenario, threads, operations, latencies, i * roundSize);
+    }
+    Arrays.sort(latencies);
+    System.out.printf("%-28s %10.0f %10d %10d%n", name, (double) elapsed / latencies.length,
+        latencies[latencies.length / 2], latencies[(int) (latencies.length * 0.99)]);
+  }
+
+  /**
+   * Runs one round of a scenario on a new model, writing the time of every operation to the
+   * latencies from the offset, and returns the wall time of the round in nanoseconds.
+   */
+  private static long runRound(Scenario scenario, int threads, int operations, long[] latencies,
+      int offset) throws Exception {
+    try (Round round = scenario.setUp().create(threads, operations)) {
+      final CountDownLatch start = new CountDownLatch(1);
+      final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+      final Thread.Builder builder = scenario.virtual() ? Thread.ofVirtual() : Thread.ofPlatform();
+      final List<Thread> workers = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        final int thread = t;
+        final int first = offset + t * operations;
+        workers.add(builder.start(() -> {
+          try {
+            start.await();
+            for (int i = 0; i < operations; i++) {
+              final long before = System.nanoTime();
+              round.operate(thread);
+              latencies[first + i] = System.nanoTime() - before;
+            }
+          } catch (Throwable e) {
+            failures.add(e);
+          }
+        }));
+      }
+      final long started = System.nanoTime();
+      start.countDown();
+      for (Thread worker : workers) {
+        worker.join();
+      }
+      round.finish();
+      final long elapsed = System.nanoTime() - started;
+      if (!failures.isEmpty()) {
+        throw new IllegalStateException("A thread of the scenario failed", failures.peek());
+      }
+      return elapsed;
+    }
+  }
+
+  /**
+   * Returns a grocery with the provided number of batches, each holding the provided amount.
+   */
+  private static Grocery hotGrocery(String name, int batches, double amount) {
+    final Grocery grocery = new Grocery(name, "Dairy", "liters",
+        new GroceryBatch(amount, 20, EXPIRATION_DATE));
+    for (int i = 1; i < batches; i++) {
+      grocery.addBatch(new GroceryBatch(amount, 20, EXPIRATION_DATE.plusDays(i)));
+    }
+    return grocery;
+  }
+
+  /**
+   * Returns a food storage with 1000 groceries, each holding the provided amount.
+   */
+  private static FoodStorage groceries(double amount) {
+    final FoodStorage foodStorage = new FoodStorage();
+    for (int i = 0; i < GROCERIES; i++) {
+      foodStorage.addGrocery(hotGrocery(groceryName(i), 1, amount));
+    }
+    return foodStorage;
+  }
+
+  private static String groceryName(int index) {
+    return String.format("Grocery %04d", index);
+  }
+
+  private static String randomGrocery() {
+    return groceryName(ThreadLocalRandom.current().nextInt(GROCERIES));
+  }
+
+  private static Void consume(FoodStorage foodStorage, String name) {
+    foodStorage.getGroceryByName(name).consume(1);
+    return null;
+  }
+
+  /**
+   * A scenario, run on platform threads or virtual threads.
+   *
+   * @param virtual whether the scenario is run on virtual threads
+   * @param setUp creates the model of a round
+   */
+  private record Scenario(boolean virtual, RoundFactory setUp) {
+  }
+
+  /**
+   * Creates the model of a round, large enough for the provided number of operations.
+   */
+  @FunctionalInterface
+  private interface RoundFactory {
+    Round create(int threads, int operations) throws Exception;
+  }
+
+  /**
+   * The operation of a round, done by every thread. The round is finished, as part of its wall
+   * time, and then closed after every thread is done.
+   */
+  @FunctionalInterface
+  private interface Round extends AutoCloseable {
+    void operate(int thread) throws Exception;
+
+    default void finish() throws Exception {
+    }
+
+    @Override
+    default void close() {
+    }
+  }
+
+  /**
+   * A grocery keeping the amounts of its batches in a mutable array, changed while holding its
+   * monitor, as the baseline for the snapshots of {@link Grocery}.
+   */
+  private static final class LockedGrocery {
+    private final double[] amounts;
+    private int first;
+
+    private LockedGrocery(int batches, double amount) {
+      this.amounts = new double[batches];
+      Arrays.fill(amounts, amount);
+    }
+
+    private synchronized void consume(double amount) {
+      double left = amount;
+      while (left > 0) {
+        final double taken = Math.min(left, amounts[first]);
+        amounts[first] -= taken;
+        left -= taken;
+        if (amounts[first] == 0) {
+          first++;
+        }
+      }
+    }
+  }
+}
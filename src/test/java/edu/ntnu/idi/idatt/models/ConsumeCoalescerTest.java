@@ -0,0 +1,252 @@
+package edu.ntnu.idi.idatt.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the ConsumeCoalescer class.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that a request consumes the amount, and that consuming the rest of a grocery removes it.
+ * <li>that the requests waiting for the lock are applied together, in the order they were made,
+ *      and that a request too large for what is left does not stop the requests after it.
+ * <li>that many threads consuming the same grocery at once are granted exactly what it holds.
+ * <li>that a request for a grocery that does not exist is completed as not found.
+ * <li>that a listener waiting for the change to reach the disk waits after the lock is released,
+ *      and before the request is completed.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that the constructor throws an {@code IllegalArgumentException} when an argument is null.
+ * <li>that the method {@code consume} throws an {@code IllegalArgumentException} when the name is
+ *      blank or the amount is not positive.
+ * <li>that a request is completed with the exception thrown if the change did not reach the disk.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the ConsumeCoalescer class")
+class ConsumeCoalescerTest {
+  private FoodStorage foodStorage;
+  private ReentrantLock lock;
+  private ConsumeCoalescer coalescer;
+
+  @BeforeEach
+  void setUp() {
+    foodStorage = new FoodStorage();
+    lock = new ReentrantLock();
+    coalescer = new ConsumeCoalescer(foodStorage, lock);
+  }
+
+  private void addGrocery(String name, double amount) {
+    foodStorage.addGrocery(new Grocery(name, "Category", "pieces",
+        new GroceryBatch(amount, 10, LocalDate.of(2024, 12, 1))));
+  }
+
+  /**
+   * Positive tests for the ConsumeCoalescer class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the ConsumeCoalescer class")
+  class PositiveConsumeCoalescerTests {
+
+    /**
+     * Test that a request consumes the amount, and that consuming the rest of a grocery removes
+     * it.
+     */
+    @Test
+    @DisplayName("Test that a request consumes the amount, and the rest removes the grocery")
+    void testConsume() {
+      addGrocery("Milk", 3);
+
+      assertEquals(ConsumeCoalescer.Outcome.CONSUMED, coalescer.consume("milk", 1).join());
+      assertEquals(2, foodStorage.getGroceryByName("Milk").getTotalAmount());
+      assertEquals(ConsumeCoalescer.Outcome.EMPTIED, coalescer.consume("Milk", 2).join());
+      assertFalse(foodStorage.containsGrocery("Milk"));
+    }
+
+    /**
+     * Test that the requests waiting for the lock are applied together, in the order they were
+     * made, and that a request too large for what is left does not stop the requests after it.
+     */
+    @Test
+    @DisplayName("Test that waiting requests are applied together and in order")
+    void testWaitingRequestsAreApplied() throws Exception {
+      addGrocery("Milk", 5);
+      final AtomicInteger consumed = new AtomicInteger();
+      foodStorage.addChangeListener(new ModelChangeListener() {
+        @Override
+        public void groceryConsumed(Grocery grocery, double amount) {
+          consumed.incrementAndGet();
+        }
+      });
+
+      final List<CompletableFuture<ConsumeCoalescer.Outcome>> outcomes = new ArrayList<>();
+      lock.lock();
+      final ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+        // The first request takes the queue, and waits for the lock while the others are made.
+        final Future<CompletableFuture<ConsumeCoalescer.Outcome>> first =
+            executor.submit(() -> coalescer.consume("Milk", 2));
+        while (!lock.hasQueuedThreads()) {
+          Thread.onSpinWait();
+        }
+        outcomes.add(coalescer.consume("Milk", 1.5));
+        outcomes.add(coalescer.consume("Milk", 5));
+        outcomes.add(coalescer.consume("Milk", 0.5));
+        lock.unlock();
+        outcomes.addFirst(first.get());
+      } finally {
+        executor.shutdown();
+      }
+
+      assertEquals(List.of(ConsumeCoalescer.Outcome.CONSUMED, ConsumeCoalescer.Outcome.CONSUMED,
+              ConsumeCoalescer.Outcome.INSUFFICIENT, ConsumeCoalescer.Outcome.CONSUMED),
+          outcomes.stream().map(CompletableFuture::join).toList());
+      assertEquals(1, foodStorage.getGroceryByName("Milk").getTotalAmount());
+      // The first request is applied alone, and the three waiting requests together.
+      assertEquals(2, consumed.get());
+    }
+
+    /**
+     * Test that many threads consuming the same grocery at once are granted exactly what it
+     * holds.
+     */
+    @Test
+    @DisplayName("Test that threads consuming at once are granted exactly what the grocery holds")
+    void testConcurrentRequests() throws Exception {
+      addGrocery("Eggs", 100);
+
+      final Map<ConsumeCoalescer.Outcome, Integer> counts =
+          new EnumMap<>(ConsumeCoalescer.Outcome.class);
+      final ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+        final List<Future<ConsumeCoalescer.Outcome>> futures = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+          futures.add(executor.submit(() -> coalescer.consume("Eggs", 1).join()));
+        }
+        for (Future<ConsumeCoalescer.Outcome> future : futures) {
+          counts.merge(future.get(), 1, Integer::sum);
+        }
+      } finally {
+        executor.shutdown();
+      }
+
+      assertEquals(99, counts.get(ConsumeCoalescer.Outcome.CONSUMED));
+      assertEquals(1, counts.get(ConsumeCoalescer.Outcome.EMPTIED));
+      // The requests after the last egg find too little left, or the grocery already removed.
+      assertEquals(50, counts.getOrDefault(ConsumeCoalescer.Outcome.INSUFFICIENT, 0)
+          + counts.getOrDefault(ConsumeCoalescer.Outcome.NOT_FOUND, 0));
+      assertFalse(foodStorage.containsGrocery("Eggs"));
+    }
+
+    /**
+     * Test that a request for a grocery that does not exist is completed as not found.
+     */
+    @Test
+    @DisplayName("Test that a request for a missing grocery is completed as not found")
+    void testMissingGrocery() {
+      assertEquals(ConsumeCoalescer.Outcome.NOT_FOUND, coalescer.consume("Milk", 1).join());
+    }
+
+    /**
+     * Test that a listener waiting for the change to reach the disk waits after the lock is
+     * released, and before the request is completed.
+     */
+    @Test
+    @DisplayName("Test that a listener's wait is made after the lock, before the request completes")
+    void testWaitAfterLock() {
+      addGrocery("Milk", 3);
+      final List<String> events = new ArrayList<>();
+      foodStorage.addChangeListener(new ModelChangeListener() {
+        @Override
+        public void groceryConsumed(Grocery grocery, double amount) {
+          ChangeScope.afterChanges(() -> events.add("locked: " + lock.isHeldByCurrentThread()));
+        }
+      });
+
+      final CompletableFuture<ConsumeCoalescer.Outcome> outcome = coalescer.consume("Milk", 1);
+
+      assertEquals(List.of("locked: false"), events);
+      assertEquals(ConsumeCoalescer.Outcome.CONSUMED, outcome.getNow(null));
+    }
+  }
+
+  /**
+   * Negative tests for the ConsumeCoalescer class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the ConsumeCoalescer class")
+  class NegativeConsumeCoalescerTests {
+
+    /**
+     * Test that the constructor throws an {@code IllegalArgumentException} when an argument is
+     * null.
+     */
+    @Test
+    @DisplayName("Test constructor throws IllegalArgumentException when an argument is null")
+    void testCreateCoalescerWithNullThrows() {
+      assertThrows(IllegalArgumentException.class, () -> new ConsumeCoalescer(null, lock));
+      assertThrows(IllegalArgumentException.class, () -> new ConsumeCoalescer(foodStorage, null));
+    }
+
+    /**
+     * Test that {@code consume} throws an {@code IllegalArgumentException} when the name is blank
+     * or the amount is not positive.
+     */
+    @Test
+    @DisplayName("Test consume throws IllegalArgumentException when an argument is invalid")
+    void testConsumeWithInvalidArgumentsThrows() {
+      assertThrows(IllegalArgumentException.class, () -> coalescer.consume(" ", 1));
+      assertThrows(IllegalArgumentException.class, () -> coalescer.consume(null, 1));
+      assertThrows(IllegalArgumentException.class, () -> coalescer.consume("Milk", 0));
+      assertThrows(IllegalArgumentException.class, () -> coalescer.consume("Milk", -1));
+    }
+
+    /**
+     * Test that a request is completed with the exception thrown if the change did not reach the
+     * disk.
+     */
+    @Test
+    @DisplayName("Test that a request fails if the change did not reach the disk")
+    void testFailedWaitCompletesExceptionally() {
+      addGrocery("Milk", 3);
+      foodStorage.addChangeListener(new ModelChangeListener() {
+        @Override
+        public void groceryConsumed(Grocery grocery, double amount) {
+          ChangeScope.afterChanges(() -> {
+            throw new UncheckedIOException(new IOException("Disk full"));
+          });
+        }
+      });
+
+      final CompletableFuture<ConsumeCoalescer.Outcome> outcome = coalescer.consume("Milk", 1);
+
+      final CompletionException thrown = assertThrows(CompletionException.class, outcome::join);
+      assertInstanceOf(UncheckedIOException.class, thrown.getCause());
+    }
+  }
+}
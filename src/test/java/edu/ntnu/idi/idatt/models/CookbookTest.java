@@ -3,6 +3,7 @@ package edu.ntnu.idi.idatt.models;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.ArrayList;
 import java.util.List;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
@@ -25,9 +26,15 @@ import org.junit.jupiter.api.Test;
  * <li>that the method {@code removeRecipe} removes a recipe from the cookbook.
  * <li>that the method {@code sortRecipes} sorts the recipes in the cookbook in ascending alphabetical order, by name.
  * <li>that the method {@code removeAllRecipes} removes all recipes from the cookbook.
+ * <li>that a snapshot of the cookbook is not affected by later changes to the cookbook, and that
+ *      every change publishes a snapshot with a higher version number.
+ * <li>that the method {@code sortRecipes} moves a renamed recipe to its new position.
+ * <li>that a cookbook with a text store moves the description and instructions of an added
+ *      recipe into the store, and reads them from it.
  * </ul>
  * <li>Negative tests:
  * <ul>
+ * <li>that the constructor throws an {@code IllegalArgumentException} when the text store is null.
  * <li>that the method {@code getRecipe} throws an {@code IllegalArgumentException} when the name of
  *      the recipe is null or blank.
  * <li>that the method {@code getRecipe} throws an {@code IllegalArgumentException} when no recipe
@@ -163,6 +170,94 @@ class CookbookTest {
       cookbook.removeAllRecipes();
       assertEquals(List.of(), cookbook.getRecipes());
     }
+
+    /**
+     * Test that a cookbook with a text store moves the description and instructions of an added
+     * recipe into the store, and reads them from it.
+     */
+    @Test
+    @DisplayName("Test that a cookbook with a text store keeps the texts of its recipes in it")
+    void testAddRecipeWithTextStore() {
+      List<String> texts = new ArrayList<>();
+      RecipeTextStore textStore = new RecipeTextStore() {
+        @Override
+        public long put(String text) {
+          texts.add(text);
+          return texts.size() - 1;
+        }
+
+        @Override
+        public String get(long handle) {
+          return texts.get((int) handle);
+        }
+      };
+      Cookbook cookbook = new Cookbook(textStore);
+      Recipe recipe = new Recipe("Test recipe", "Test description", "Test instructions", 1);
+
+      cookbook.addRecipe(recipe);
+      assertEquals(List.of("Test description", "Test instructions"), texts);
+
+      recipe.setDescription("New description");
+      assertEquals("New description", recipe.getDescription());
+      assertEquals("Test instructions", recipe.getInstructions());
+      assertEquals(3, texts.size());
+    }
+  }
+
+  /**
+   * Test that a snapshot of the cookbook is not affected by later changes to the cookbook, and
+   * that every change publishes a snapshot with a higher version number.
+   */
+  @Nested
+  @DisplayName("Snapshot tests for the Cookbook class")
+  class SnapshotCookbookTests {
+
+    /**
+     * Test that a snapshot is not affected by later changes to the cookbook.
+     */
+    @Test
+    @DisplayName("Test that a snapshot is not affected by later changes to the cookbook")
+    void testSnapshotIsUnchangedByLaterChanges() {
+      Cookbook cookbook = new Cookbook();
+      Recipe recipe1 = new Recipe("Test recipe 5", "Test description", "Test instructions", 1);
+      Recipe recipe2 = new Recipe("Test recipe 2", "Test description 2", "Test instructions 2", 1);
+
+      cookbook.addRecipe(recipe1);
+      CookbookSnapshot snapshot = cookbook.getSnapshot();
+      cookbook.addRecipe(recipe2);
+      cookbook.removeRecipe(recipe1);
+
+      assertEquals(List.of(recipe1), snapshot.getRecipes());
+      assertEquals(List.of(recipe2), cookbook.getRecipes());
+      assertEquals(snapshot.getVersion() + 2, cookbook.getSnapshot().getVersion());
+
+      cookbook.removeAllRecipes();
+
+      assertEquals(List.of(recipe1), snapshot.getRecipes());
+      assertEquals(0, cookbook.getSnapshot().size());
+    }
+
+    /**
+     * Test that the method {@code sortRecipes} moves a renamed recipe to its new position.
+     */
+    @Test
+    @DisplayName("Test that the method sortRecipes moves a renamed recipe to its new position")
+    void testSortRecipesAfterRename() {
+      Cookbook cookbook = new Cookbook();
+      Recipe recipe1 = new Recipe("Test recipe 1", "Test description", "Test instructions", 1);
+      Recipe recipe2 = new Recipe("Test recipe 2", "Test description 2", "Test instructions 2", 1);
+
+      cookbook.addRecipe(recipe1);
+      cookbook.addRecipe(recipe2);
+      recipe1.setName("Test recipe 3");
+      cookbook.sortRecipes();
+
+      assertEquals(List.of(recipe2, recipe1), cookbook.getRecipes());
+
+      cookbook.removeRecipe(recipe1);
+
+      assertEquals(List.of(recipe2), cookbook.getRecipes());
+    }
   }
 
   /**
@@ -184,6 +279,16 @@ class CookbookTest {
       cookbook.addRecipe(recipe);
     }
 
+    /**
+     * Test that the constructor throws an {@code IllegalArgumentException} when the text store is
+     * null.
+     */
+    @Test
+    @DisplayName("Test that the constructor throws an IllegalArgumentException when the text store is null")
+    void testCreateCookbookWithNullTextStore() {
+      assertThrows(IllegalArgumentException.class, () -> new Cookbook(null));
+    }
+
     /**
      * Test that the method {@code getRecipe} throws an {@code IllegalArgumentException} when the
      * name of the recipe is null or blank.
@@ -0,0 +1,218 @@
+package edu.ntnu.idi.idatt.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the ExpiryNotifier class.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that a batch is announced as about to expire, and as expired, on the right days.
+ * <li>that the batches already in the food storage are followed, and that notices due before the
+ *      start are not given.
+ * <li>that consuming or removing batches cancels their notices, without announcing the rest of a
+ *      partly consumed batch twice.
+ * <li>that notices far apart are given in the order of their days when many days pass at once.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that the constructor throws an {@code IllegalArgumentException} when an argument is null or
+ *      the number of warning days is negative.
+ * <li>that the method {@code advanceTo} throws an {@code IllegalArgumentException} when the date
+ *      is null.
+ * <li>that the method {@code start} throws an exception when the interval is not positive, or the
+ *      notifier is already started.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the ExpiryNotifier class")
+class ExpiryNotifierTest {
+  private static final LocalDate START = LocalDate.of(2024, 12, 1);
+  private static final Clock CLOCK =
+      Clock.fixed(START.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+
+  private FoodStorage foodStorage;
+  private List<ExpiryNotifier.Notice> notices;
+
+  @BeforeEach
+  void setUp() {
+    foodStorage = new FoodStorage();
+    notices = new ArrayList<>();
+  }
+
+  private static Grocery grocery(String name, double amount, LocalDate expirationDate) {
+    return new Grocery(name, "Category", "pieces", new GroceryBatch(amount, 10, expirationDate));
+  }
+
+  /**
+   * Positive tests for the ExpiryNotifier class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the ExpiryNotifier class")
+  class PositiveExpiryNotifierTests {
+
+    /**
+     * Test that a batch is announced as about to expire, and as expired, on the right days.
+     */
+    @Test
+    @DisplayName("Test that a batch is announced on the right days")
+    void testNoticesAreGivenOnTheirDays() {
+      final ExpiryNotifier notifier = new ExpiryNotifier(foodStorage, CLOCK, 2, notices::add);
+      final Grocery milk = grocery("Milk", 1, START.plusDays(9));
+      foodStorage.addGrocery(milk);
+      assertEquals(2, notifier.getPendingCount());
+
+      notifier.advanceTo(START.plusDays(6));
+      assertTrue(notices.isEmpty());
+      notifier.advanceTo(START.plusDays(7));
+      assertEquals(List.of(new ExpiryNotifier.Notice(ExpiryNotifier.Notice.Kind.EXPIRING, "Milk",
+          milk.getBatches().getFirst())), notices);
+
+      notifier.advanceTo(START.plusDays(9));
+      assertEquals(1, notices.size());
+      notifier.advanceTo(START.plusDays(10));
+      assertEquals(2, notices.size());
+      assertEquals(ExpiryNotifier.Notice.Kind.EXPIRED, notices.get(1).kind());
+      assertEquals(0, notifier.getPendingCount());
+    }
+
+    /**
+     * Test that the batches already in the food storage are followed, and that notices due
+     * before the start are not given.
+     */
+    @Test
+    @DisplayName("Test that the batches already in the food storage are followed")
+    void testExistingBatchesAreFollowed() {
+      foodStorage.addGrocery(grocery("Bread", 1, START.minusDays(3)));
+      foodStorage.addGrocery(grocery("Cheese", 1, START.plusDays(1)));
+      final ExpiryNotifier notifier = new ExpiryNotifier(foodStorage, CLOCK, 2, notices::add);
+      assertEquals(1, notifier.getPendingCount());
+
+      notifier.advanceTo(START.plusDays(2));
+      assertEquals(1, notices.size());
+      assertEquals("Cheese", notices.getFirst().groceryName());
+      assertEquals(ExpiryNotifier.Notice.Kind.EXPIRED, notices.getFirst().kind());
+    }
+
+    /**
+     * Test that consuming or removing batches cancels their notices, and that the rest of a partly
+     * consumed batch is only announced once.
+     */
+    @Test
+    @DisplayName("Test that consumed and removed batches are not announced")
+    void testConsumedAndRemovedBatchesAreCancelled() {
+      final ExpiryNotifier notifier = new ExpiryNotifier(foodStorage, CLOCK, 1, notices::add);
+      final Grocery milk = grocery("Milk", 2, START.plusDays(5));
+      foodStorage.addGrocery(milk);
+      milk.addBatch(new GroceryBatch(3, 10, START.plusDays(10)));
+      assertEquals(4, notifier.getPendingCount());
+
+      milk.consume(3);
+      assertEquals(2, notifier.getPendingCount());
+      notifier.advanceTo(START.plusDays(9));
+      assertEquals(1, notices.size());
+      assertEquals(START.plusDays(10), notices.getFirst().batch().getExpirationDate());
+
+      milk.consume(1);
+      assertEquals(1, notifier.getPendingCount());
+      foodStorage.addGrocery(grocery("Eggs", 6, START.plusDays(20)));
+      foodStorage.removeGrocery(milk);
+      assertEquals(2, notifier.getPendingCount());
+      foodStorage.removeAllGroceries();
+      assertEquals(0, notifier.getPendingCount());
+
+      notifier.advanceTo(START.plusDays(30));
+      assertEquals(1, notices.size());
+    }
+
+    /**
+     * Test that notices far apart are given in the order of their days when many days pass at
+     * once.
+     */
+    @Test
+    @DisplayName("Test that notices far apart are given in the order of their days")
+    void testNoticesFarApartAreOrdered() {
+      final ExpiryNotifier notifier = new ExpiryNotifier(foodStorage, CLOCK, 0, notices::add);
+      final long[] days = {300_000, 5_000, 3, 100, 63, 64, 4_096};
+      for (int i = 0; i < days.length; i++) {
+        foodStorage.addGrocery(grocery("Grocery " + i, 1, START.plusDays(days[i])));
+      }
+
+      notifier.advanceTo(START.plusDays(300_001));
+      assertEquals(2 * days.length, notices.size());
+      for (int i = 1; i < notices.size(); i++) {
+        final LocalDate previous = notices.get(i - 1).batch().getExpirationDate();
+        final LocalDate current = notices.get(i).batch().getExpirationDate();
+        assertFalse(current.isBefore(previous));
+      }
+      assertEquals(START.plusDays(300_000), notices.getLast().batch().getExpirationDate());
+    }
+  }
+
+  /**
+   * Negative tests for the ExpiryNotifier class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the ExpiryNotifier class")
+  class NegativeExpiryNotifierTests {
+
+    /**
+     * Test that the constructor throws an {@code IllegalArgumentException} when an argument is
+     * null or the number of warning days is negative.
+     */
+    @Test
+    @DisplayName("Test constructor throws IllegalArgumentException when an argument is invalid")
+    void testCreateNotifierWithInvalidArgumentsThrows() {
+      assertThrows(IllegalArgumentException.class,
+          () -> new ExpiryNotifier(null, CLOCK, 2, notices::add));
+      assertThrows(IllegalArgumentException.class,
+          () -> new ExpiryNotifier(foodStorage, null, 2, notices::add));
+      assertThrows(IllegalArgumentException.class,
+          () -> new ExpiryNotifier(foodStorage, CLOCK, -1, notices::add));
+      assertThrows(IllegalArgumentException.class,
+          () -> new ExpiryNotifier(foodStorage, CLOCK, 2, null));
+    }
+
+    /**
+     * Test that {@code advanceTo} throws an {@code IllegalArgumentException} when the date is
+     * null.
+     */
+    @Test
+    @DisplayName("Test advanceTo throws IllegalArgumentException when the date is null")
+    void testAdvanceToNullThrows() {
+      final ExpiryNotifier notifier = new ExpiryNotifier(foodStorage, CLOCK, 2, notices::add);
+      assertThrows(IllegalArgumentException.class, () -> notifier.advanceTo(null));
+    }
+
+    /**
+     * Test that {@code start} throws an {@code IllegalArgumentException} when the interval is not
+     * positive, and an {@code IllegalStateException} when the notifier is already started.
+     */
+    @Test
+    @DisplayName("Test start throws an exception when the interval is invalid or it is started")
+    void testInvalidStartThrows() {
+      try (ExpiryNotifier notifier = new ExpiryNotifier(foodStorage, CLOCK, 2, notices::add)) {
+        assertThrows(IllegalArgumentException.class, () -> notifier.start(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> notifier.start(null));
+        notifier.start(Duration.ofHours(1));
+        assertThrows(IllegalStateException.class, () -> notifier.start(Duration.ofHours(1)));
+      }
+    }
+  }
+}
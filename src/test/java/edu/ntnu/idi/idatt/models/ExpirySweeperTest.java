@@ -0,0 +1,262 @@
+package edu.ntnu.idi.idatt.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the ExpirySweeper class.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that a sweep removes the batches that expired before the date of the clock, and keeps the
+ *      rest.
+ * <li>that a sweep removes a grocery when all of its batches have expired.
+ * <li>that the removals are kept until taken, and are taken only once.
+ * <li>that a sweep in many small chunks removes the expired batches of every grocery.
+ * <li>that the background thread sweeps the food storage once started.
+ * <li>that a batch added while a sweep removes the grocery is either kept in the food storage, or
+ *      fails to be added, and is never lost.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that the constructor throws an {@code IllegalArgumentException} when an argument is null,
+ *      or the chunk size or time slice is not positive.
+ * <li>that the method {@code start} throws an {@code IllegalArgumentException} when the interval
+ *      is not positive, and an {@code IllegalStateException} when already started.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the ExpirySweeper class")
+class ExpirySweeperTest {
+  private static final LocalDate TODAY = LocalDate.of(2024, 12, 10);
+
+  private FoodStorage foodStorage;
+  private Clock clock;
+
+  @BeforeEach
+  void setUp() {
+    foodStorage = new FoodStorage();
+    clock = Clock.fixed(TODAY.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+  }
+
+  private static GroceryBatch batch(double amount, LocalDate expirationDate) {
+    return new GroceryBatch(amount, 10, expirationDate);
+  }
+
+  /**
+   * Positive tests for the ExpirySweeper class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the ExpirySweeper class")
+  class PositiveExpirySweeperTests {
+
+    /**
+     * Test that a sweep removes the batches that expired before the date of the clock, and keeps
+     * the rest.
+     */
+    @Test
+    @DisplayName("Test that a sweep removes only the expired batches")
+    void testSweepRemovesExpiredBatches() throws InterruptedException {
+      final Grocery milk = new Grocery("Milk", "Dairy", "liters", batch(1, TODAY.minusDays(3)));
+      milk.addBatch(batch(2, TODAY.minusDays(1)));
+      milk.addBatch(batch(3, TODAY));
+      foodStorage.addGrocery(milk);
+
+      final ExpirySweeper sweeper = new ExpirySweeper(foodStorage, clock);
+
+      assertEquals(2, sweeper.sweep());
+      assertEquals(3, milk.getTotalAmount());
+      assertEquals(1, milk.getBatches().size());
+      assertEquals(TODAY, milk.getBatches().getFirst().getExpirationDate());
+      assertEquals(0, sweeper.sweep());
+    }
+
+    /**
+     * Test that a sweep removes a grocery when all of its batches have expired.
+     */
+    @Test
+    @DisplayName("Test that a sweep removes a grocery with only expired batches")
+    void testSweepRemovesExpiredGrocery() throws InterruptedException {
+      final Grocery bread = new Grocery("Bread", "Bakery", "pieces",
+          batch(1, TODAY.minusDays(2)));
+      bread.addBatch(batch(1, TODAY.minusDays(1)));
+      foodStorage.addGrocery(bread);
+      foodStorage.addGrocery(new Grocery("Eggs", "Dairy", "pieces",
+          batch(12, TODAY.plusDays(5))));
+
+      final ExpirySweeper sweeper = new ExpirySweeper(foodStorage, clock);
+
+      assertEquals(2, sweeper.sweep());
+      assertFalse(foodStorage.containsGrocery("Bread"));
+      assertTrue(foodStorage.containsGrocery("Eggs"));
+    }
+
+    /**
+     * Test that the removals are kept until taken, and are taken only once.
+     */
+    @Test
+    @DisplayName("Test that the removals are kept until taken, and are taken only once")
+    void testRemovals() throws InterruptedException {
+      foodStorage.addGrocery(new Grocery("Cheese", "Dairy", "grams",
+          batch(200, TODAY.minusDays(1))));
+      final ExpirySweeper sweeper = new ExpirySweeper(foodStorage, clock);
+      sweeper.sweep();
+
+      final List<ExpirySweeper.Removal> removals = sweeper.getRemovals();
+      assertEquals(1, removals.size());
+      final ExpirySweeper.Removal removal = removals.getFirst();
+      assertEquals("Cheese", removal.groceryName());
+      assertEquals("grams", removal.unit());
+      assertEquals(200, removal.batch().getAmount());
+      assertEquals(TODAY, removal.sweptOn());
+
+      assertFalse(foodStorage.containsGrocery("Cheese"));
+
+      assertEquals(removals, sweeper.takeRemovals());
+      assertTrue(sweeper.takeRemovals().isEmpty());
+      assertTrue(sweeper.getRemovals().isEmpty());
+    }
+
+    /**
+     * Test that a sweep in many small chunks removes the expired batches of every grocery.
+     */
+    @Test
+    @DisplayName("Test that a sweep in small chunks removes the expired batches of every grocery")
+    void testChunkedSweep() throws InterruptedException {
+      for (int i = 0; i < 500; i++) {
+        final Grocery grocery = new Grocery("Grocery " + i, "Category", "pieces",
+            batch(1, TODAY.minusDays(1 + i % 5)));
+        grocery.addBatch(batch(2, TODAY.plusDays(1)));
+        foodStorage.addGrocery(grocery);
+      }
+      final ExpirySweeper sweeper = new ExpirySweeper(foodStorage, clock, 7,
+          Duration.ofNanos(1));
+
+      assertEquals(500, sweeper.sweep());
+      assertEquals(500, foodStorage.getAllGroceries().size());
+      assertTrue(foodStorage.getAllGroceries().stream()
+          .allMatch(grocery -> grocery.getTotalAmount() == 2));
+      assertTrue(foodStorage.getGroceriesExpiringBeforeDate(TODAY).isEmpty());
+    }
+
+    /**
+     * Test that the background thread sweeps the food storage once started.
+     */
+    @Test
+    @DisplayName("Test that the background thread sweeps the food storage")
+    void testStart() throws InterruptedException {
+      foodStorage.addGrocery(new Grocery("Yogurt", "Dairy", "pieces",
+          batch(4, TODAY.minusDays(1))));
+      try (ExpirySweeper sweeper = new ExpirySweeper(foodStorage, clock)) {
+        sweeper.start(Duration.ofMinutes(10));
+        final long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (sweeper.getRemovals().isEmpty() && System.nanoTime() < deadline) {
+          Thread.sleep(5);
+        }
+
+        assertFalse(foodStorage.containsGrocery("Yogurt"));
+        assertEquals(1, sweeper.getRemovals().size());
+      }
+    }
+
+    /**
+     * Test that a batch added while a sweep removes the grocery is either kept in the food
+     * storage, or fails to be added, and is never lost.
+     */
+    @Test
+    @DisplayName("Test that a batch added during a sweep is never lost")
+    void testConcurrentAddBatch() throws Exception {
+      final ExpirySweeper sweeper = new ExpirySweeper(foodStorage, clock);
+      final ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+        for (int round = 0; round < 500; round++) {
+          final Grocery milk = new Grocery("Milk", "Dairy", "liters",
+              batch(1, TODAY.minusDays(1)));
+          foodStorage.addGrocery(milk);
+          final GroceryBatch fresh = batch(2, TODAY.plusDays(5));
+          final CountDownLatch ready = new CountDownLatch(1);
+          final Future<Boolean> adder = executor.submit(() -> {
+            ready.countDown();
+            try {
+              milk.addBatch(fresh);
+              return true;
+            } catch (IllegalStateException e) {
+              return false;
+            }
+          });
+          ready.await();
+          sweeper.sweep();
+          final boolean added = adder.get();
+
+          assertTrue(foodStorage.getGroceriesExpiringBeforeDate(TODAY).isEmpty());
+          if (added) {
+            assertTrue(foodStorage.getGroceryByName("Milk").getBatches().contains(fresh));
+            foodStorage.removeGrocery(foodStorage.getGroceryByName("Milk"));
+          } else {
+            assertFalse(foodStorage.containsGrocery("Milk"));
+          }
+        }
+      } finally {
+        executor.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Negative tests for the ExpirySweeper class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the ExpirySweeper class")
+  class NegativeExpirySweeperTests {
+
+    /**
+     * Test that the constructor throws an {@code IllegalArgumentException} when an argument is
+     * null, or the chunk size or time slice is not positive.
+     */
+    @Test
+    @DisplayName("Test constructor throws IllegalArgumentException when an argument is invalid")
+    void testConstructorWithInvalidArgumentsThrows() {
+      assertThrows(IllegalArgumentException.class, () -> new ExpirySweeper(null, clock));
+      assertThrows(IllegalArgumentException.class, () -> new ExpirySweeper(foodStorage, null));
+      assertThrows(IllegalArgumentException.class,
+          () -> new ExpirySweeper(foodStorage, clock, 0, Duration.ofMillis(1)));
+      assertThrows(IllegalArgumentException.class,
+          () -> new ExpirySweeper(foodStorage, clock, 1, Duration.ZERO));
+      assertThrows(IllegalArgumentException.class,
+          () -> new ExpirySweeper(foodStorage, clock, 1, null));
+    }
+
+    /**
+     * Test that {@code start} throws an {@code IllegalArgumentException} when the interval is not
+     * positive, and an {@code IllegalStateException} when already started.
+     */
+    @Test
+    @DisplayName("Test start throws an exception when the interval is invalid or it is started")
+    void testInvalidStartThrows() {
+      try (ExpirySweeper sweeper = new ExpirySweeper(foodStorage, clock)) {
+        assertThrows(IllegalArgumentException.class, () -> sweeper.start(null));
+        assertThrows(IllegalArgumentException.class, () -> sweeper.start(Duration.ZERO));
+        sweeper.start(Duration.ofMinutes(10));
+        assertThrows(IllegalStateException.class, () -> sweeper.start(Duration.ofMinutes(10)));
+      }
+    }
+  }
+}
@@ -1,10 +1,18 @@
 package edu.ntnu.idi.idatt.models;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -21,12 +29,21 @@ import org.junit.jupiter.api.Test;
  * <li>that the accessor method {@code getAllGroceriesAlphabetically} returns the list of groceries, sorted alphabetically by name.
  * <li>that the accessor method {@code getAllGroceriesByExpirationDate} returns the list of groceries, sorted by expiration date.
  * <li>that the accessor method {@code getGroceryByName} returns the grocery with the provided name.
+ * <li>that the method {@code containsGrocery} tells whether a grocery with the provided name exists, ignoring case.
  * <li>that the accessor method {@code getGroceriesByCategory} returns the list of groceries that belong to the specified category.
  * <li>that the accessor method {@code getGroceriesExpiringBeforeDate} returns the list of groceries that expire before the given date.
  * <li>that the accessor method {@code getGroceriesExpiringOnDate} returns the list of groceries that expire on the given date.
  * <li>that the method {@code addGrocery} adds a grocery to the food storage.
  * <li>that the method {@code removeGrocery} removes a grocery from the food storage.
  * <li>that the method {@code removeAllGroceries} removes all groceries from the food storage.
+ * <li>that a change listener is told about changes to the food storage and the groceries in it,
+ *     and that a grocery that has been removed cannot be changed.
+ * <li>that threads adding the same groceries at once add each grocery exactly once.
+ * <li>that the method {@code removeGroceryIfVersion} removes a grocery only if it has the provided version.
+ * <li>that a grocery consumed by one thread while another removes it is not put back, and that no
+ *     change to it is reported after its removal.
+ * <li>that batches added to and amounts consumed from a grocery by several threads at once are
+ *     reported one at a time, in the order they were made.
  * </ul>
  * <li>Negative tests:
  * <ul>
@@ -39,6 +56,7 @@ import org.junit.jupiter.api.Test;
  * <li>that the method {@code addGrocery} throws an {@code IllegalArgumentException} when the grocery already exists in the food storage.
  * <li>that the method {@code removeGrocery} throws an {@code IllegalArgumentException} when the grocery is null.
  * <li>that the method {@code removeGrocery} throws an {@code IllegalArgumentException} when the grocery does not exist in the food storage.
+ * <li>that the method {@code removeGrocery} throws an {@code IllegalArgumentException} when another grocery with the same name is in the food storage.
  * </ul>
  * </ul>
  */
@@ -148,6 +166,20 @@ class FoodStorageTest {
       assertEquals(grocery1, foodStorage.getGroceryByName("Milk"));
     }
 
+    /**
+     * Test the method {@code containsGrocery}
+     */
+    @Test
+    @DisplayName("Test method containsGrocery")
+    void testContainsGrocery() {
+      FoodStorage foodStorage = new FoodStorage();
+      foodStorage.addGrocery(new Grocery("Milk", "Dairy", "liters",
+          new GroceryBatch(1, 5, LocalDate.now())));
+
+      assertTrue(foodStorage.containsGrocery("milk"));
+      assertFalse(foodStorage.containsGrocery("Apple"));
+    }
+
     /**
      * Test the accessor method {@code getGroceriesByCategory}
      */
@@ -265,6 +297,228 @@ class FoodStorageTest {
 
       assertEquals(List.of(), foodStorage.getAllGroceries());
     }
+
+    /**
+     * Test that a change listener is told about changes to the food storage and the groceries in
+     * it, and that a grocery that has been removed cannot be changed.
+     */
+    @Test
+    @DisplayName("Test that a change listener is told about changes to the food storage and its "
+        + "groceries")
+    void testChangeListener() {
+      FoodStorage foodStorage = new FoodStorage();
+      List<String> changes = new ArrayList<>();
+      foodStorage.addChangeListener(new ModelChangeListener() {
+        @Override
+        public void groceryAdded(Grocery grocery) {
+          changes.add("added " + grocery.getName());
+        }
+
+        @Override
+        public void groceryRemoved(Grocery grocery) {
+          changes.add("removed " + grocery.getName());
+        }
+
+        @Override
+        public void batchAdded(Grocery grocery, GroceryBatch batch) {
+          changes.add("batch " + grocery.getName() + " " + batch.getAmount());
+        }
+
+        @Override
+        public void groceryConsumed(Grocery grocery, double amount) {
+          changes.add("consumed " + grocery.getName() + " " + amount);
+        }
+      });
+      Grocery grocery = new Grocery("Milk", "Dairy", "liters",
+          new GroceryBatch(1, 5, LocalDate.now()));
+
+      foodStorage.addGrocery(grocery);
+      grocery.addBatch(new GroceryBatch(2, 5, LocalDate.now()));
+      grocery.consume(0.5);
+      foodStorage.removeGrocery(grocery);
+      assertThrows(IllegalStateException.class, () -> grocery.consume(0.5));
+
+      assertEquals(List.of("added Milk", "batch Milk 2.0", "consumed Milk 0.5", "removed Milk"),
+          changes);
+    }
+
+    /**
+     * Test that threads adding the same groceries at once add each grocery exactly once.
+     */
+    @Test
+    @DisplayName("Test that threads adding the same groceries at once add each grocery once")
+    void testConcurrentAddGrocery() throws Exception {
+      FoodStorage foodStorage = new FoodStorage();
+      AtomicInteger added = new AtomicInteger();
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+          futures.add(executor.submit(() -> {
+            for (int i = 0; i < 500; i++) {
+              try {
+                foodStorage.addGrocery(new Grocery("Grocery " + i, "Category", "pieces",
+                    new GroceryBatch(1, 5, LocalDate.now())));
+                added.incrementAndGet();
+              } catch (IllegalArgumentException e) {
+                // Another thread added the grocery first.
+              }
+            }
+          }));
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } finally {
+        executor.shutdown();
+      }
+
+      assertEquals(500, added.get());
+      assertEquals(500, foodStorage.getAllGroceries().size());
+    }
+
+    /**
+     * Test that the method {@code removeGroceryIfVersion} removes a grocery only if it has the
+     * provided version.
+     */
+    @Test
+    @DisplayName("Test method removeGroceryIfVersion")
+    void testRemoveGroceryIfVersion() {
+      FoodStorage foodStorage = new FoodStorage();
+      Grocery grocery = new Grocery("Milk", "Dairy", "liters",
+          new GroceryBatch(1, 5, LocalDate.now()));
+      foodStorage.addGrocery(grocery);
+      long version = grocery.getVersion();
+      grocery.addBatch(new GroceryBatch(2, 5, LocalDate.now().plusDays(3)));
+
+      assertFalse(foodStorage.removeGroceryIfVersion(grocery, version));
+      assertTrue(foodStorage.containsGrocery("Milk"));
+      assertTrue(foodStorage.removeGroceryIfVersion(grocery, grocery.getVersion()));
+      assertFalse(foodStorage.containsGrocery("Milk"));
+      assertFalse(foodStorage.removeGroceryIfVersion(grocery, grocery.getVersion()));
+    }
+
+    /**
+     * Test that a grocery consumed by one thread while another removes it is not put back, and
+     * that no change to it is reported after its removal.
+     */
+    @Test
+    @DisplayName("Test that a grocery consumed while it is removed is not put back")
+    void testConcurrentConsumeAndRemove() throws Exception {
+      FoodStorage foodStorage = new FoodStorage();
+      List<String> events = new ArrayList<>();
+      foodStorage.addChangeListener(new ModelChangeListener() {
+        @Override
+        public void groceryRemoved(Grocery grocery) {
+          synchronized (events) {
+            events.add("removed");
+          }
+        }
+
+        @Override
+        public void groceryConsumed(Grocery grocery, double amount) {
+          synchronized (events) {
+            events.add("consumed");
+          }
+        }
+      });
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+        for (int round = 0; round < 200; round++) {
+          Grocery grocery = new Grocery("Milk", "Dairy", "liters",
+              new GroceryBatch(1000, 5, LocalDate.now()));
+          foodStorage.addGrocery(grocery);
+          Future<?> consumer = executor.submit(() -> {
+            for (int i = 0; i < 50; i++) {
+              try {
+                grocery.consume(1);
+              } catch (RuntimeException e) {
+                // The grocery was removed.
+              }
+            }
+          });
+          foodStorage.removeGrocery(grocery);
+          consumer.get();
+
+          assertFalse(foodStorage.containsGrocery("Milk"));
+          synchronized (events) {
+            assertEquals("removed", events.getLast());
+            events.clear();
+          }
+        }
+      } finally {
+        executor.shutdown();
+      }
+    }
+
+    /**
+     * Test that batches added to and amounts consumed from a grocery by several threads at once are
+     * reported one at a time, in the order they were made. A copy of the grocery, changed as the
+     * changes are reported, ends with the same batches as the grocery, which it would not if a
+     * batch was reported before an amount consumed before it was added.
+     */
+    @Test
+    @DisplayName("Test that concurrent changes to a grocery are reported in order")
+    void testOrderedChangeReports() throws Exception {
+      FoodStorage foodStorage = new FoodStorage();
+      Grocery grocery = new Grocery("Milk", "Dairy", "liters",
+          new GroceryBatch(2000, 5, LocalDate.now().plusDays(50)));
+      Grocery replica = grocery.copy();
+      AtomicBoolean reporting = new AtomicBoolean();
+      AtomicBoolean overlapped = new AtomicBoolean();
+      foodStorage.addChangeListener(new ModelChangeListener() {
+        @Override
+        public void batchAdded(Grocery changed, GroceryBatch batch) {
+          report(() -> replica.addBatch(batch));
+        }
+
+        @Override
+        public void groceryConsumed(Grocery changed, double amount) {
+          report(() -> replica.consume(amount));
+        }
+
+        private void report(Runnable change) {
+          if (!reporting.compareAndSet(false, true)) {
+            overlapped.set(true);
+          }
+          change.run();
+          reporting.set(false);
+        }
+      });
+      foodStorage.addGrocery(grocery);
+
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+          final boolean adding = i % 2 == 0;
+          futures.add(executor.submit(() -> {
+            for (int j = 0; j < 500; j++) {
+              if (adding) {
+                grocery.addBatch(new GroceryBatch(1, j, LocalDate.now().plusDays(j % 40)));
+              } else {
+                grocery.consume(1.5);
+              }
+            }
+          }));
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } finally {
+        executor.shutdown();
+      }
+
+      assertFalse(overlapped.get());
+      assertEquals(grocery.getBatches().size(), replica.getBatches().size());
+      for (int i = 0; i < grocery.getBatches().size(); i++) {
+        GroceryBatch expected = grocery.getBatches().get(i);
+        GroceryBatch actual = replica.getBatches().get(i);
+        assertEquals(expected.getAmount(), actual.getAmount());
+        assertEquals(expected.getPricePerUnit(), actual.getPricePerUnit());
+        assertEquals(expected.getExpirationDate(), actual.getExpirationDate());
+      }
+    }
   }
 
   /**
@@ -377,5 +631,23 @@ class FoodStorageTest {
 
       assertThrows(IllegalArgumentException.class, () -> foodStorage.removeGrocery(grocery1));
     }
+
+    /**
+     * Test that the method {@code removeGrocery} throws an {@code IllegalArgumentException} when
+     * another grocery with the same name is in the food storage.
+     */
+    @Test
+    @DisplayName("Test method removeGrocery throws IllegalArgumentException when another grocery has the name")
+    void testRemoveGroceryWithSameNameThrows() {
+      FoodStorage foodStorage = new FoodStorage();
+      Grocery grocery1 = new Grocery("Milk", "Dairy", "liters",
+          new GroceryBatch(1, 5, LocalDate.now()));
+      Grocery grocery2 = new Grocery("Milk", "Dairy", "liters",
+          new GroceryBatch(2, 5, LocalDate.now()));
+      foodStorage.addGrocery(grocery2);
+
+      assertThrows(IllegalArgumentException.class, () -> foodStorage.removeGrocery(grocery1));
+      assertEquals(2, foodStorage.getGroceryByName("Milk").getTotalAmount());
+    }
   }
 }
\ No newline at end of file
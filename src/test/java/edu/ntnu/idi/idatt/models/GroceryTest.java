@@ -1,11 +1,16 @@
 package edu.ntnu.idi.idatt.models;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -22,6 +27,11 @@ import org.junit.jupiter.api.Test;
  * <li>that the method {@code addBatch} adds a batch to the grocery object.
  * <li>that the method {@code consume} updates the amount of the grocery object correctly.
  * <li>that the method {@code toReadableString} returns the correct string representation.
+ * <li>that the method {@code getPriceOf} returns the price of an amount, taken from the batches
+ *     that expire first, also after the batches change.
+ * <li>that the methods {@code consumeIfVersion} and {@code addBatchIfVersion} only change the
+ *     grocery object when it has the provided version.
+ * <li>that threads consuming the grocery object at once consume the correct amount in total.
  * </ul>
  * <li>Negative tests:
  * <ul>
@@ -37,6 +47,10 @@ import org.junit.jupiter.api.Test;
  *     zero or a negative number.
  * <li>that an exception is thrown when trying to consume an amount greater than the total amount
  *     of the grocery object.
+ * <li>that an exception is thrown when trying to get the price of an amount that equals zero, a
+ *     negative number, or a number greater than the total amount of the grocery object.
+ * <li>that an exception is thrown when calling {@code consumeIfVersion} with an invalid amount,
+ *     or {@code addBatchIfVersion} with a batch that equals {@code null}.
  * </ul>
  * </ul>
  */
@@ -136,6 +150,29 @@ class GroceryTest {
       assertEquals(LocalDate.now().plusDays(1), grocery.getBatches().get(2).getExpirationDate());
     }
 
+    /**
+     * Ensure that the method {@code getPriceOf} returns the price of an amount, taken from the
+     * batches that expire first, and that the price is updated when the batches change.
+     */
+    @Test
+    @DisplayName("Test getting the price of different amounts of the grocery object, and ensure "
+        + "the price is taken from the batches that expire first.")
+    void testGetPriceOf() {
+      Grocery grocery = new Grocery("Milk", "Dairy", "liters",
+          new GroceryBatch(2, 30, LocalDate.now().plusDays(1)));
+      grocery.addBatch(new GroceryBatch(3, 20, LocalDate.now()));
+
+      assertEquals(40, grocery.getPriceOf(2), 1e-9);
+      assertEquals(60 + 30, grocery.getPriceOf(4), 1e-9);
+      assertEquals(60 + 60, grocery.getPriceOf(5), 1e-9);
+
+      grocery.consume(3);
+      assertEquals(30, grocery.getPriceOf(1), 1e-9);
+
+      grocery.addBatch(new GroceryBatch(1, 10, LocalDate.now()));
+      assertEquals(10 + 30, grocery.getPriceOf(2), 1e-9);
+    }
+
     /**
      * Ensure that the method {@code toReadAbleString} returns the correct string representation of the
      * grocery object.
@@ -167,6 +204,70 @@ class GroceryTest {
           """, LocalDate.now(), LocalDate.now().plusDays(1)), grocery.toReadableString());
     }
 
+    /**
+     * Ensure that the methods {@code consumeIfVersion} and {@code addBatchIfVersion} change the
+     * grocery object when it has the provided version, and leave it unchanged otherwise.
+     */
+    @Test
+    @DisplayName("Test that the versioned updates only change the grocery object when it has the "
+        + "provided version.")
+    void testVersionedUpdates() {
+      Grocery grocery = new Grocery("Milk", "Dairy", "liters",
+          new GroceryBatch(3, 20, LocalDate.now()));
+      final long version = grocery.getVersion();
+
+      assertTrue(grocery.consumeIfVersion(version, 1));
+      assertEquals(version + 1, grocery.getVersion());
+      assertEquals(2, grocery.getTotalAmount());
+
+      assertFalse(grocery.consumeIfVersion(version, 1));
+      assertFalse(grocery.addBatchIfVersion(version,
+          new GroceryBatch(2, 20, LocalDate.now().plusDays(1))));
+      assertEquals(2, grocery.getTotalAmount());
+      assertEquals(1, grocery.getBatches().size());
+
+      assertTrue(grocery.addBatchIfVersion(version + 1,
+          new GroceryBatch(2, 20, LocalDate.now().plusDays(1))));
+      assertEquals(version + 2, grocery.getVersion());
+      assertEquals(4, grocery.getTotalAmount());
+      assertEquals(2, grocery.getBatches().size());
+    }
+
+    /**
+     * Ensure that threads consuming the grocery object at once consume the correct amount in
+     * total, from the batches that expire first.
+     */
+    @Test
+    @DisplayName("Test that threads consuming the grocery object at once consume the correct "
+        + "amount in total.")
+    void testConcurrentConsume() throws Exception {
+      Grocery grocery = new Grocery("Eggs", "Dairy", "pieces",
+          new GroceryBatch(4000, 3, LocalDate.now()));
+      grocery.addBatch(new GroceryBatch(1000, 4, LocalDate.now().plusDays(1)));
+      final long version = grocery.getVersion();
+
+      final ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+          futures.add(executor.submit(() -> {
+            for (int j = 0; j < 1000; j++) {
+              grocery.consume(1);
+            }
+          }));
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } finally {
+        executor.shutdown();
+      }
+
+      assertEquals(1000, grocery.getTotalAmount());
+      assertEquals(1, grocery.getBatches().size());
+      assertEquals(4, grocery.getBatches().getFirst().getPricePerUnit());
+      assertEquals(version + 4000, grocery.getVersion());
+    }
   }
 
   /**
@@ -282,5 +383,44 @@ class GroceryTest {
           new GroceryBatch(3, 20, LocalDate.now()));
       assertThrows(IllegalArgumentException.class, () -> grocery.consume(4));
     }
+
+    /**
+     * Test getting the price of an amount that equals zero, a negative number, or a number greater
+     * than the total amount of the grocery object. Check for thrown
+     * {@code IllegalArgumentException} in the cases specified.
+     */
+    @Test
+    @DisplayName("Test getting the price of an invalid amount. Check for thrown "
+        + "IllegalArgumentException in the cases specified.")
+    void testGetPriceOfInvalidAmountThrows() {
+      Grocery grocery = new Grocery("Milk", "Dairy", "liters",
+          new GroceryBatch(2, 30, LocalDate.now()));
+
+      assertThrows(IllegalArgumentException.class, () -> grocery.getPriceOf(0));
+      assertThrows(IllegalArgumentException.class, () -> grocery.getPriceOf(-1));
+      assertThrows(IllegalArgumentException.class, () -> grocery.getPriceOf(3));
+    }
+
+    /**
+     * Test calling {@code consumeIfVersion} with an amount that equals zero, a negative number, or
+     * a number greater than the total amount, and {@code addBatchIfVersion} with a batch that
+     * equals {@code null}. Check for thrown {@code IllegalArgumentException} in the cases
+     * specified.
+     */
+    @Test
+    @DisplayName("Test the versioned updates with invalid arguments. Check for thrown "
+        + "IllegalArgumentException in the cases specified.")
+    void testVersionedUpdatesWithInvalidArgumentsThrow() {
+      Grocery grocery = new Grocery("Milk", "Dairy", "liters",
+          new GroceryBatch(2, 30, LocalDate.now()));
+      final long version = grocery.getVersion();
+
+      assertThrows(IllegalArgumentException.class, () -> grocery.consumeIfVersion(version, 0));
+      assertThrows(IllegalArgumentException.class, () -> grocery.consumeIfVersion(version, -1));
+      assertThrows(IllegalArgumentException.class, () -> grocery.consumeIfVersion(version, 3));
+      assertThrows(IllegalArgumentException.class,
+          () -> grocery.addBatchIfVersion(version, null));
+      assertEquals(version, grocery.getVersion());
+    }
   }
 }
\ No newline at end of file
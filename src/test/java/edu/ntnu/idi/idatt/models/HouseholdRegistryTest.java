@@ -0,0 +1,227 @@
+package edu.ntnu.idi.idatt.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the HouseholdRegistry class.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that the operations on a household run in the order they were submitted, on the same
+ *      household.
+ * <li>that different households have their own food storage, and are counted in the metrics of
+ *      their shards.
+ * <li>that the method {@code remove} removes a household, which is created again by the next
+ *      operation.
+ * <li>that the future of an operation that throws an exception or an error is completed with
+ *      it.
+ * <li>that the method {@code close} waits for the submitted operations to run.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that the constructor throws an {@code IllegalArgumentException} when the number of shards
+ *      is not positive.
+ * <li>that the method {@code submit} throws an {@code IllegalArgumentException} when the name is
+ *      blank or the operation is null.
+ * <li>that the method {@code submit} throws a {@code RejectedExecutionException} after the
+ *      registry is closed.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the HouseholdRegistry class")
+class HouseholdRegistryTest {
+
+  private static Grocery grocery(String name, double amount) {
+    return new Grocery(name, "Category", "pieces",
+        new GroceryBatch(amount, 10, LocalDate.of(2024, 12, 1)));
+  }
+
+  /**
+   * Positive tests for the HouseholdRegistry class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the HouseholdRegistry class")
+  class PositiveHouseholdRegistryTests {
+
+    /**
+     * Test that the operations on a household run in the order they were submitted.
+     */
+    @Test
+    @DisplayName("Test that operations on a household run in order")
+    void testOperationsRunInOrder() throws Exception {
+      try (HouseholdRegistry registry = new HouseholdRegistry(4)) {
+        registry.submit("Smith", household -> {
+          household.foodStorage().addGrocery(grocery("Milk", 1000));
+          return null;
+        });
+        final List<CompletableFuture<Double>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+          futures.add(registry.submit("Smith", household -> {
+            final Grocery milk = household.foodStorage().getGroceryByName("Milk");
+            milk.consume(1);
+            return milk.getTotalAmount();
+          }));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+          assertEquals(999 - i, futures.get(i).get());
+        }
+      }
+    }
+
+    /**
+     * Test that different households have their own food storage, and are counted in the metrics.
+     */
+    @Test
+    @DisplayName("Test that households are kept apart and counted in their shards")
+    void testHouseholdsAreSeparate() throws Exception {
+      final HouseholdRegistry registry = new HouseholdRegistry(3);
+      for (int i = 0; i < 30; i++) {
+        registry.submit("Household " + i, household ->
+            household.foodStorage().getAllGroceries().size()).get();
+      }
+      registry.submit("Household 1", household -> {
+        household.foodStorage().addGrocery(grocery("Bread", 1));
+        return null;
+      }).get();
+
+      assertTrue(registry.submit("Household 1", household ->
+          household.foodStorage().containsGrocery("Bread")).get());
+      assertFalse(registry.submit("Household 2", household ->
+          household.foodStorage().containsGrocery("Bread")).get());
+      assertEquals(registry.getShardOf("Household 7"), registry.getShardOf("Household 7"));
+
+      // The operations are only counted as completed after their futures are, so the metrics are
+      // read when the registry is closed.
+      registry.close();
+      final List<HouseholdRegistry.ShardMetrics> metrics = registry.getShardMetrics();
+      assertEquals(3, metrics.size());
+      assertEquals(30, metrics.stream().mapToInt(HouseholdRegistry.ShardMetrics::households)
+          .sum());
+      assertEquals(33, metrics.stream()
+          .mapToLong(HouseholdRegistry.ShardMetrics::completedOperations).sum());
+    }
+
+    /**
+     * Test that {@code remove} removes a household, which is created again by the next operation.
+     */
+    @Test
+    @DisplayName("Test that remove removes a household")
+    void testRemoveHousehold() throws Exception {
+      try (HouseholdRegistry registry = new HouseholdRegistry(2)) {
+        final FoodStorage first = registry.submit("Smith", HouseholdRegistry.Household::foodStorage)
+            .get();
+        assertTrue(registry.remove("Smith").get());
+        assertFalse(registry.remove("Smith").get());
+        assertNotSame(first, registry.submit("Smith", HouseholdRegistry.Household::foodStorage)
+            .get());
+      }
+    }
+
+    /**
+     * Test that the future of an operation that throws an exception or an error is completed with
+     * it, and that the shard goes on with the next operation.
+     */
+    @Test
+    @DisplayName("Test that a failed operation completes its future with the exception")
+    void testFailedOperation() throws Exception {
+      try (HouseholdRegistry registry = new HouseholdRegistry(1)) {
+        final CompletableFuture<Grocery> failed = registry.submit("Smith", household ->
+            household.foodStorage().getGroceryByName("Milk"));
+        final ExecutionException exception = assertThrows(ExecutionException.class, failed::get);
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        final CompletableFuture<Object> error = registry.submit("Smith", household -> {
+          throw new StackOverflowError();
+        });
+        final ExecutionException errorException = assertThrows(ExecutionException.class,
+            () -> error.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(StackOverflowError.class, errorException.getCause());
+        assertEquals("Smith", registry.submit("Smith", HouseholdRegistry.Household::name).get());
+      }
+    }
+
+    /**
+     * Test that {@code close} waits for the submitted operations to run.
+     */
+    @Test
+    @DisplayName("Test that close waits for the submitted operations")
+    void testCloseWaitsForOperations() {
+      final HouseholdRegistry registry = new HouseholdRegistry(2);
+      final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        final int number = i;
+        futures.add(registry.submit("Household " + (i % 10), household -> number));
+      }
+      registry.close();
+      for (int i = 0; i < futures.size(); i++) {
+        assertTrue(futures.get(i).isDone());
+        assertEquals(i, futures.get(i).join());
+      }
+    }
+  }
+
+  /**
+   * Negative tests for the HouseholdRegistry class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the HouseholdRegistry class")
+  class NegativeHouseholdRegistryTests {
+
+    /**
+     * Test that the constructor throws an {@code IllegalArgumentException} when the number of
+     * shards is not positive.
+     */
+    @Test
+    @DisplayName("Test constructor throws IllegalArgumentException when the number of shards is not positive")
+    void testCreateRegistryWithoutShardsThrows() {
+      assertThrows(IllegalArgumentException.class, () -> new HouseholdRegistry(0));
+      assertThrows(IllegalArgumentException.class, () -> new HouseholdRegistry(-1));
+    }
+
+    /**
+     * Test that {@code submit} throws an {@code IllegalArgumentException} when the name is blank
+     * or the operation is null.
+     */
+    @Test
+    @DisplayName("Test submit throws IllegalArgumentException when the name or operation is invalid")
+    void testSubmitWithInvalidArgumentsThrows() {
+      try (HouseholdRegistry registry = new HouseholdRegistry(1)) {
+        assertThrows(IllegalArgumentException.class,
+            () -> registry.submit(" ", HouseholdRegistry.Household::name));
+        assertThrows(IllegalArgumentException.class,
+            () -> registry.submit(null, HouseholdRegistry.Household::name));
+        assertThrows(IllegalArgumentException.class, () -> registry.submit("Smith", null));
+      }
+    }
+
+    /**
+     * Test that {@code submit} throws a {@code RejectedExecutionException} after the registry is
+     * closed.
+     */
+    @Test
+    @DisplayName("Test submit throws RejectedExecutionException after the registry is closed")
+    void testSubmitAfterCloseThrows() {
+      final HouseholdRegistry registry = new HouseholdRegistry(1);
+      registry.close();
+      assertThrows(RejectedExecutionException.class,
+          () -> registry.submit("Smith", HouseholdRegistry.Household::name));
+    }
+  }
+}
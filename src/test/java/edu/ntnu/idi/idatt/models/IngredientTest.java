@@ -17,6 +17,7 @@ import org.junit.jupiter.api.Test;
  * <li>that an ingredient can be created with valid values.
  * <li>that the accessor methods for all fields return the correct values.
  * <li>that the method {@code setAmount} sets the correct amount of the ingredient.
+ * <li>that the method {@code addAmount} loses no additions made from several threads at once.
  * <li>that the method {@code toReadableString} returns the correct string representation.
  * </ul>
  * <li>Negative tests:
@@ -28,8 +29,8 @@ import org.junit.jupiter.api.Test;
  * <li>{@code unit} that equals {@code null} or an empty string.
  * <li>{@code amount} that equals zero or a negative number.
  * </ul>
- * <li>that an exception is thrown when trying to set an amount of an ingredient that equals zero or
- *     a negative number.
+ * <li>that an exception is thrown when trying to set an amount of an ingredient, or add to it, an
+ *     amount that equals zero or a negative number.
  * </ul>
  * </ul>
  */
@@ -69,6 +70,27 @@ class IngredientTest {
       assertEquals(2.0, ingredient.getAmount());
     }
 
+    /**
+     * Test that the method {@code addAmount} loses no additions made from several threads at once.
+     */
+    @Test
+    @DisplayName("Test that the method addAmount loses no concurrent additions.")
+    void testAddAmountConcurrently() throws InterruptedException {
+      Ingredient ingredient = new Ingredient("Milk", "Dairy", "liters", 1.0);
+      final Thread[] threads = new Thread[4];
+      for (int i = 0; i < threads.length; i++) {
+        threads[i] = Thread.ofPlatform().start(() -> {
+          for (int j = 0; j < 10_000; j++) {
+            ingredient.addAmount(1.0);
+          }
+        });
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertEquals(40_001.0, ingredient.getAmount());
+    }
+
     /**
      * Test that the method {@code toReadableString} returns the correct string representation.
      */
@@ -159,6 +181,8 @@ class IngredientTest {
       Ingredient ingredient = new Ingredient("Milk", "Dairy", "liters", 1.0);
       assertThrows(IllegalArgumentException.class, () -> ingredient.setAmount(0.0));
       assertThrows(IllegalArgumentException.class, () -> ingredient.setAmount(-1.0));
+      assertThrows(IllegalArgumentException.class, () -> ingredient.addAmount(0.0));
+      assertEquals(1.0, ingredient.getAmount());
     }
   }
 }
\ No newline at end of file
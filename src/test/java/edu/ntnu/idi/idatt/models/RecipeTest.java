@@ -1,7 +1,12 @@
 package edu.ntnu.idi.idatt.models;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.utils.MinHash;
 
 import java.util.List;
 import org.junit.jupiter.api.DisplayName;
@@ -25,6 +30,13 @@ import org.junit.jupiter.api.Test;
  * <li>that the method {@code addIngredient} adds the correct amount of an ingredient to the recipe,
  *     if the ingredient already exists.
  * <li>that the method {@code removeIngredient} removes an ingredient from the recipe.
+ * <li>that the method {@code setIngredientAmount} sets the amount of an ingredient.
+ * <li>that the method {@code getIngredients} returns the ingredients sorted by name, and reflects
+ *     later changes to the recipe.
+ * <li>that the methods {@code getIngredient} and {@code containsIngredient} find ingredients
+ *     regardless of case.
+ * <li>that the method {@code getIngredientSignature} returns equal signatures for recipes with the
+ *     same ingredient names, and a new signature after an ingredient is added or removed.
  * <li>that the method {@code toReadableString} returns the correct string representation of the recipe.
  * <li>that the method {@code toReadableString} returns the correct string representation of the recipe when
  *     the ingredients are empty.
@@ -52,6 +64,9 @@ import org.junit.jupiter.api.Test;
  * <li>that an exception is thrown when adding an ingredient to a recipe that is {@code null}.
  * <li>that an exception is thrown when removing an ingredient from a recipe that is {@code null}.
  * <li>that an exception is thrown when removing an ingredient that does not exist from a recipe.
+ * <li>that an exception is thrown when setting the amount of an ingredient that does not exist.
+ * <li>that an exception is thrown when trying to modify the list returned by
+ *     {@code getIngredients}.
  * </ul>
  * </ul>
  *
@@ -190,6 +205,82 @@ class RecipeTest {
       assertEquals(List.of(), recipe.getIngredients());
     }
 
+    /**
+     * Test that the method {@code getIngredients} returns the ingredients sorted by name, and that
+     * the returned list reflects later changes to the recipe.
+     */
+    @Test
+    @DisplayName("Test that the method getIngredients returns the ingredients sorted by name, and "
+        + "reflects later changes to the recipe.")
+    void testGetIngredientsSortedLiveView() {
+      Recipe recipe = new Recipe("Steak with Potatoes", "A delicious dish that has "
+          + "Steak and Potatoes.", "These are instructions", 3);
+      Ingredient potatoes = new Ingredient("Potatoes", "Vegetables", "pieces", 2);
+      Ingredient steak = new Ingredient("Steak", "Meat", "kg", 0.5);
+      Ingredient butter = new Ingredient("Butter", "Dairy", "grams", 50);
+
+      List<Ingredient> ingredients = recipe.getIngredients();
+      recipe.addIngredient(steak);
+      recipe.addIngredient(potatoes);
+      recipe.addIngredient(butter);
+
+      assertEquals(List.of(butter, potatoes, steak), ingredients);
+
+      recipe.removeIngredient(potatoes);
+
+      assertEquals(List.of(butter, steak), ingredients);
+    }
+
+    /**
+     * Test that the methods {@code getIngredient} and {@code containsIngredient} find ingredients
+     * regardless of the case of the provided name.
+     */
+    @Test
+    @DisplayName("Test that the methods getIngredient and containsIngredient find ingredients "
+        + "regardless of case.")
+    void testGetIngredientIgnoresCase() {
+      Recipe recipe = new Recipe("Steak with Potatoes", "A delicious dish that has "
+          + "Steak and Potatoes.", "These are instructions", 3);
+      Ingredient ingredient = new Ingredient("Soy sauce", "Sauces", "ml", 80);
+
+      recipe.addIngredient(ingredient);
+
+      assertEquals(ingredient, recipe.getIngredient("SOY SAUCE"));
+      assertTrue(recipe.containsIngredient("soy sauce"));
+      assertFalse(recipe.containsIngredient("Potatoes"));
+      assertFalse(recipe.containsIngredient(null));
+    }
+
+    /**
+     * Test that the method {@code getIngredientSignature} returns equal signatures for recipes with
+     * the same ingredient names, and that the signature is updated when an ingredient is added or
+     * removed.
+     */
+    @Test
+    @DisplayName("Test that the method getIngredientSignature depends only on the ingredient "
+        + "names, and is updated when an ingredient is added or removed.")
+    void testGetIngredientSignature() {
+      Recipe recipe1 = new Recipe("Steak with Potatoes", "A delicious dish that has "
+          + "Steak and Potatoes.", "These are instructions", 3);
+      Recipe recipe2 = new Recipe("Potatoes with Steak", "Another dish that has "
+          + "Steak and Potatoes.", "These are other instructions", 2);
+      Ingredient potatoes = new Ingredient("Potatoes", "Vegetables", "pieces", 2);
+
+      recipe1.addIngredient(potatoes);
+      recipe1.addIngredient(new Ingredient("Steak", "Meat", "kg", 0.5));
+      recipe2.addIngredient(new Ingredient("Steak", "Meat", "kg", 1));
+      recipe2.addIngredient(new Ingredient("Potatoes", "Vegetables", "kg", 1));
+
+      int[] signature = recipe1.getIngredientSignature();
+      assertArrayEquals(signature, recipe2.getIngredientSignature());
+
+      recipe1.removeIngredient(potatoes);
+      assertTrue(MinHash.estimateSimilarity(signature, recipe1.getIngredientSignature()) < 1);
+
+      recipe1.addIngredient(potatoes);
+      assertArrayEquals(signature, recipe1.getIngredientSignature());
+    }
+
     /**
      * Test that the method {@code toReadableString} returns the correct string representation of the
      * recipe.
@@ -218,6 +309,20 @@ class RecipeTest {
           """, recipe.toReadableString());
     }
 
+    /**
+     * Test that the method {@code setIngredientAmount} sets the amount of an ingredient.
+     */
+    @Test
+    @DisplayName("Test that the method setIngredientAmount sets the amount of an ingredient")
+    void testSetIngredientAmount() {
+      Recipe recipe = new Recipe("Steak with potatoes", "A delicious dish", "Instructions", 3);
+      recipe.addIngredient(new Ingredient("Potatoes", "Vegetables", "pieces", 2));
+
+      recipe.setIngredientAmount("potatoes", 5);
+
+      assertEquals(5, recipe.getIngredient("Potatoes").getAmount());
+    }
+
     /**
      * Test that the method {@code toReadableString} returns the correct string representation of the recipe
      * when the ingredients are empty.
@@ -414,5 +519,31 @@ class RecipeTest {
 
       assertThrows(IllegalArgumentException.class, () -> recipe.removeIngredient(ingredient));
     }
+
+    /**
+     * Test setting the amount of an ingredient that does not exist in a recipe. Check for thrown
+     * {@code IllegalArgumentException} in the case specified.
+     */
+    @Test
+    @DisplayName("Test setting the amount of an ingredient that does not exist in a recipe. Check "
+        + "for thrown IllegalArgumentException in the case specified.")
+    void ingredientNotFoundSetIngredientAmount() {
+      assertThrows(IllegalArgumentException.class,
+          () -> recipe.setIngredientAmount("Potatoes", 2));
+    }
+
+    /**
+     * Test modifying the list returned by {@code getIngredients}. Check for thrown
+     * {@code UnsupportedOperationException}, as the list is an unmodifiable view.
+     */
+    @Test
+    @DisplayName("Test modifying the list returned by getIngredients. Check for thrown "
+        + "UnsupportedOperationException.")
+    void modifyIngredientsList() {
+      Ingredient ingredient = new Ingredient("Potatoes", "Vegetables", "pieces", 2);
+
+      assertThrows(UnsupportedOperationException.class,
+          () -> recipe.getIngredients().add(ingredient));
+    }
   }
 }
\ No newline at end of file
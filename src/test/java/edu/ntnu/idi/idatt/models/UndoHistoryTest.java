@@ -0,0 +1,210 @@
+package edu.ntnu.idi.idatt.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the UndoHistory class.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that the method {@code undo} brings back a grocery that was consumed and removed, and that
+ *      the method {@code redo} makes the change again.
+ * <li>that the method {@code undo} brings back all groceries and recipes after they were all
+ *      removed, and that only the committed change is undone.
+ * <li>that the method {@code undo} brings back the ingredients of an edited recipe.
+ * <li>that the method {@code commit} drops the changes that were undone.
+ * <li>that the oldest changes are dropped when the memory budget is exceeded.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that the constructor throws an {@code IllegalArgumentException} when the food storage or
+ *      cookbook is null.
+ * <li>that the constructor throws an {@code IllegalArgumentException} when the memory budget is
+ *      negative.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the UndoHistory class")
+class UndoHistoryTest {
+
+  /**
+   * Positive tests for the UndoHistory class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the UndoHistory class")
+  class PositiveUndoHistoryTests {
+
+    /**
+     * Test that {@code undo} brings back a consumed and removed grocery, and that {@code redo}
+     * makes the change again.
+     */
+    @Test
+    @DisplayName("Test undo and redo of consuming and removing a grocery")
+    void testUndoAndRedoGroceryChanges() {
+      FoodStorage foodStorage = new FoodStorage();
+      Grocery milk = new Grocery("Milk", "Dairy", "liters",
+          new GroceryBatch(2, 20, LocalDate.of(2024, 12, 1)));
+      foodStorage.addGrocery(milk);
+      UndoHistory history = new UndoHistory(foodStorage, new Cookbook(),
+          UndoHistory.DEFAULT_MEMORY_BUDGET);
+
+      milk.consume(1.5);
+      history.commit();
+      foodStorage.removeGrocery(milk);
+      history.commit();
+
+      assertTrue(history.undo());
+      assertEquals(0.5, foodStorage.getGroceryByName("Milk").getTotalAmount());
+      assertTrue(history.undo());
+      assertEquals(2, foodStorage.getGroceryByName("Milk").getTotalAmount());
+      assertFalse(history.undo());
+
+      assertTrue(history.redo());
+      assertEquals(0.5, foodStorage.getGroceryByName("Milk").getTotalAmount());
+      assertTrue(history.redo());
+      assertFalse(foodStorage.containsGrocery("Milk"));
+      assertFalse(history.redo());
+    }
+
+    /**
+     * Test that {@code undo} brings back all groceries and recipes after they were all removed.
+     */
+    @Test
+    @DisplayName("Test undo of removing all groceries and recipes")
+    void testUndoRemoveAllData() {
+      FoodStorage foodStorage = new FoodStorage();
+      Cookbook cookbook = new Cookbook();
+      UndoHistory history = new UndoHistory(foodStorage, cookbook,
+          UndoHistory.DEFAULT_MEMORY_BUDGET);
+      for (int i = 0; i < 100; i++) {
+        foodStorage.addGrocery(new Grocery("Grocery " + i, "Category", "pieces",
+            new GroceryBatch(1, 1, LocalDate.of(2024, 12, 1))));
+      }
+      cookbook.addRecipe(new Recipe("Pancakes", "Thin pancakes", "Mix and fry", 4));
+      history.commit();
+
+      foodStorage.removeAllGroceries();
+      cookbook.removeAllRecipes();
+      history.commit();
+      history.undo();
+
+      assertEquals(100, foodStorage.getAllGroceries().size());
+      assertEquals("Pancakes", cookbook.getRecipe("Pancakes").getName());
+      assertEquals(1, history.getUndoCount());
+      assertEquals(1, history.getRedoCount());
+    }
+
+    /**
+     * Test that {@code undo} brings back the ingredients of an edited recipe.
+     */
+    @Test
+    @DisplayName("Test undo of editing a recipe")
+    void testUndoRecipeChanges() {
+      Cookbook cookbook = new Cookbook();
+      Recipe recipe = new Recipe("Pancakes", "Thin pancakes", "Mix and fry", 4);
+      recipe.addIngredient(new Ingredient("Milk", "Dairy", "liters", 0.5));
+      cookbook.addRecipe(recipe);
+      UndoHistory history = new UndoHistory(new FoodStorage(), cookbook,
+          UndoHistory.DEFAULT_MEMORY_BUDGET);
+
+      recipe.setIngredientAmount("Milk", 1);
+      recipe.addIngredient(new Ingredient("Egg", "Dairy", "pieces", 2));
+      history.undo();
+
+      Recipe restored = cookbook.getRecipe("Pancakes");
+      assertEquals(List.of("Milk"),
+          restored.getIngredients().stream().map(Ingredient::getName).toList());
+      assertEquals(0.5, restored.getIngredient("Milk").getAmount());
+      assertEquals(1, cookbook.getRecipes().size());
+    }
+
+    /**
+     * Test that {@code commit} drops the changes that were undone.
+     */
+    @Test
+    @DisplayName("Test that a new change drops the changes that were undone")
+    void testCommitDropsRedo() {
+      FoodStorage foodStorage = new FoodStorage();
+      UndoHistory history = new UndoHistory(foodStorage, new Cookbook(),
+          UndoHistory.DEFAULT_MEMORY_BUDGET);
+      foodStorage.addGrocery(new Grocery("Milk", "Dairy", "liters",
+          new GroceryBatch(1, 20, LocalDate.of(2024, 12, 1))));
+      history.commit();
+      history.undo();
+
+      foodStorage.addGrocery(new Grocery("Bread", "Bakery", "pieces",
+          new GroceryBatch(1, 30, LocalDate.of(2024, 12, 1))));
+      assertTrue(history.commit());
+
+      assertEquals(0, history.getRedoCount());
+      assertFalse(history.redo());
+      assertFalse(foodStorage.containsGrocery("Milk"));
+    }
+
+    /**
+     * Test that the oldest changes are dropped when the memory budget is exceeded.
+     */
+    @Test
+    @DisplayName("Test that the oldest changes are dropped when the memory budget is exceeded")
+    void testMemoryBudget() {
+      FoodStorage foodStorage = new FoodStorage();
+      UndoHistory history = new UndoHistory(foodStorage, new Cookbook(), 1024);
+      for (int i = 0; i < 20; i++) {
+        foodStorage.addGrocery(new Grocery("Grocery " + i, "Category", "pieces",
+            new GroceryBatch(1, 1, LocalDate.of(2024, 12, 1))));
+        history.commit();
+      }
+
+      int undoCount = history.getUndoCount();
+      assertTrue(undoCount > 0 && undoCount < 20);
+      assertTrue(history.getRetainedBytes() <= 1024);
+      while (history.undo()) {
+        // Undo every change that is kept.
+      }
+      assertEquals(20 - undoCount, foodStorage.getAllGroceries().size());
+    }
+  }
+
+  /**
+   * Negative tests for the UndoHistory class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the UndoHistory class")
+  class NegativeUndoHistoryTests {
+
+    /**
+     * Test that the constructor throws an {@code IllegalArgumentException} when the food storage
+     * or cookbook is null.
+     */
+    @Test
+    @DisplayName("Test constructor throws IllegalArgumentException when the food storage or cookbook is null")
+    void testCreateUndoHistoryWithNullModelsThrows() {
+      assertThrows(IllegalArgumentException.class,
+          () -> new UndoHistory(null, new Cookbook(), UndoHistory.DEFAULT_MEMORY_BUDGET));
+      assertThrows(IllegalArgumentException.class,
+          () -> new UndoHistory(new FoodStorage(), null, UndoHistory.DEFAULT_MEMORY_BUDGET));
+    }
+
+    /**
+     * Test that the constructor throws an {@code IllegalArgumentException} when the memory budget
+     * is negative.
+     */
+    @Test
+    @DisplayName("Test constructor throws IllegalArgumentException when the memory budget is negative")
+    void testCreateUndoHistoryWithNegativeBudgetThrows() {
+      assertThrows(IllegalArgumentException.class,
+          () -> new UndoHistory(new FoodStorage(), new Cookbook(), -1));
+    }
+  }
+}
@@ -0,0 +1,219 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for the GroceryImporter class.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that the rows of a CSV file are imported as batches, with quoted fields and the columns in
+ *      any order.
+ * <li>that the rows of a JSON-lines file are imported as batches.
+ * <li>that malformed CSV rows are rejected with their line numbers, and the rest are imported.
+ * <li>that malformed JSON lines are rejected with their line numbers, and the rest are imported.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that importing a CSV file missing a column throws an {@code IOException}.
+ * <li>that the constructor and {@code importGroceries} throw an
+ *      {@code IllegalArgumentException} when an argument is null.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the GroceryImporter class")
+class GroceryImporterTest {
+  @TempDir
+  Path directory;
+
+  private FoodStorage foodStorage;
+  private GroceryImporter importer;
+
+  @BeforeEach
+  void setUp() {
+    foodStorage = new FoodStorage();
+    importer = new GroceryImporter(foodStorage);
+  }
+
+  private Path file(String name, String... lines) throws IOException {
+    return Files.write(directory.resolve(name), List.of(lines));
+  }
+
+  private static List<Long> rejectedLines(ImportResult result) {
+    return result.getErrors().stream().map(ImportResult.RowError::lineNumber).toList();
+  }
+
+  /**
+   * Positive tests for the GroceryImporter class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the GroceryImporter class")
+  class PositiveGroceryImporterTests {
+
+    /**
+     * Test that the rows of a CSV file are imported as batches, with quoted fields and the
+     * columns in any order.
+     */
+    @Test
+    @DisplayName("Test that the rows of a CSV file are imported")
+    void testImportCsv() throws IOException {
+      final Path path = file("groceries.csv",
+          "unit,name,category,amount,pricePerUnit,expirationDate",
+          "liters,Milk,Dairy,2,20,2024-12-01",
+          "",
+          "liters, milk ,Dairy,1.5,22,2024-11-28",
+          "pieces,\"Bread, white\",\"The \"\"best\"\" bakery\",1,30,2024-12-03");
+
+      final ImportResult result = importer.importGroceries(path, FileFormat.CSV,
+          ImportProgressListener.NONE);
+
+      assertEquals(3, result.getImportedRows());
+      assertEquals(0, result.getRejectedRows());
+      final Grocery milk = foodStorage.getGroceryByName("Milk");
+      assertEquals(3.5, milk.getTotalAmount());
+      assertEquals(LocalDate.of(2024, 11, 28), milk.getBatches().getFirst().getExpirationDate());
+      final Grocery bread = foodStorage.getGroceryByName("Bread, white");
+      assertEquals("The \"best\" bakery", bread.getCategory());
+    }
+
+    /**
+     * Test that the rows of a JSON-lines file are imported as batches.
+     */
+    @Test
+    @DisplayName("Test that the rows of a JSON-lines file are imported")
+    void testImportJsonLines() throws IOException {
+      final Path path = file("groceries.jsonl",
+          "{\"name\": \"Milk\", \"category\": \"Dairy\", \"unit\": \"liters\", \"amount\": 2,"
+              + " \"pricePerUnit\": 20, \"expirationDate\": \"2024-12-01\"}",
+          "{\"name\": \"Milk\", \"category\": \"Dairy\", \"unit\": \"liters\", \"amount\": 1,"
+              + " \"pricePerUnit\": 22.5, \"expirationDate\": \"2024-12-05\"}");
+
+      final ImportResult result = importer.importGroceries(path, FileFormat.JSON_LINES,
+          ImportProgressListener.NONE);
+
+      assertEquals(2, result.getImportedRows());
+      assertEquals(3, foodStorage.getGroceryByName("Milk").getTotalAmount());
+      assertEquals(2, foodStorage.getGroceryByName("Milk").getBatches().size());
+    }
+
+    /**
+     * Test that malformed CSV rows are rejected with their line numbers, and the rest are
+     * imported.
+     */
+    @Test
+    @DisplayName("Test that malformed CSV rows are rejected and the rest imported")
+    void testMalformedCsvRows() throws IOException {
+      final Path path = file("groceries.csv",
+          "name,category,unit,amount,pricePerUnit,expirationDate",
+          "Milk,Dairy,liters,2,20,2024-12-01",
+          "Eggs,Dairy,pieces,twelve,4,2024-12-01",
+          "Rice,Grains,kg,1,30,2024-13-01",
+          "Flour,Baking,grams,500",
+          "Sugar,Baking,grams,-1,1,2024-12-01",
+          "Milk,Dairy,pieces,1,20,2024-12-01",
+          ",Dairy,liters,1,20,2024-12-01",
+          "Butter,Dairy,grams,250,0.1,2024-12-10",
+          // A quote that is not closed runs on to the end of the file.
+          "\"Salt,Spices,grams,100,1,2024-12-01");
+
+      final ImportResult result = importer.importGroceries(path, FileFormat.CSV,
+          ImportProgressListener.NONE);
+
+      assertEquals(2, result.getImportedRows());
+      assertEquals(7, result.getRejectedRows());
+      assertEquals(List.of(3L, 4L, 5L, 6L, 7L, 8L, 10L), rejectedLines(result));
+      assertTrue(result.getErrors().get(4).message().contains("does not match the unit"));
+      assertEquals(2, foodStorage.getGroceryByName("Milk").getTotalAmount());
+      assertTrue(foodStorage.containsGrocery("Butter"));
+      assertFalse(foodStorage.containsGrocery("Eggs"));
+      assertFalse(foodStorage.containsGrocery("Flour"));
+    }
+
+    /**
+     * Test that malformed JSON lines are rejected with their line numbers, and the rest are
+     * imported.
+     */
+    @Test
+    @DisplayName("Test that malformed JSON lines are rejected and the rest imported")
+    void testMalformedJsonLines() throws IOException {
+      final Path path = file("groceries.jsonl",
+          "{\"name\": \"Milk\", \"category\": \"Dairy\", \"unit\": \"liters\", \"amount\": 2,"
+              + " \"pricePerUnit\": 20, \"expirationDate\": \"2024-12-01\"}",
+          "{\"name\": \"Eggs\", \"category\": \"Dairy\", \"unit\": \"pieces\"",
+          "[1, 2, 3]",
+          "{\"name\": \"Rice\", \"category\": \"Grains\", \"unit\": \"kg\", \"amount\": \"1\","
+              + " \"pricePerUnit\": 30, \"expirationDate\": \"2024-12-01\"}",
+          "{\"name\": \"Salt\", \"category\": \"Spices\", \"unit\": \"grams\", \"amount\": 100,"
+              + " \"pricePerUnit\": 1, \"expirationDate\": \"December\"}",
+          "{\"name\": \"Salt\", \"category\": \"Spices\", \"unit\": \"grams\", \"amount\": 100,"
+              + " \"pricePerUnit\": 1}",
+          "not json at all");
+
+      final ImportResult result = importer.importGroceries(path, FileFormat.JSON_LINES,
+          ImportProgressListener.NONE);
+
+      assertEquals(1, result.getImportedRows());
+      assertEquals(List.of(2L, 3L, 4L, 5L, 6L, 7L), rejectedLines(result));
+      assertEquals(List.of("Milk"), foodStorage.getAllGroceries().stream()
+          .map(Grocery::getName).toList());
+    }
+  }
+
+  /**
+   * Negative tests for the GroceryImporter class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the GroceryImporter class")
+  class NegativeGroceryImporterTests {
+
+    /**
+     * Test that importing a CSV file missing a column throws an {@code IOException}.
+     */
+    @Test
+    @DisplayName("Test importGroceries throws IOException when a column is missing")
+    void testMissingColumnThrows() throws IOException {
+      final Path path = file("groceries.csv",
+          "name,category,unit,amount,expirationDate",
+          "Milk,Dairy,liters,2,2024-12-01");
+
+      assertThrows(IOException.class, () -> importer.importGroceries(path, FileFormat.CSV,
+          ImportProgressListener.NONE));
+      assertTrue(foodStorage.getAllGroceries().isEmpty());
+    }
+
+    /**
+     * Test that the constructor and {@code importGroceries} throw an
+     * {@code IllegalArgumentException} when an argument is null.
+     */
+    @Test
+    @DisplayName("Test that null arguments throw IllegalArgumentException")
+    void testNullArgumentsThrow() {
+      final Path path = directory.resolve("groceries.csv");
+      assertThrows(IllegalArgumentException.class, () -> new GroceryImporter(null));
+      assertThrows(IllegalArgumentException.class,
+          () -> importer.importGroceries(null, FileFormat.CSV, ImportProgressListener.NONE));
+      assertThrows(IllegalArgumentException.class,
+          () -> importer.importGroceries(path, null, ImportProgressListener.NONE));
+      assertThrows(IllegalArgumentException.class,
+          () -> importer.importGroceries(path, FileFormat.CSV, null));
+    }
+  }
+}
@@ -0,0 +1,235 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for the JournalCheckpointer class.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that a checkpoint holds the changes of the segments it covers, and that those segments are
+ *      deleted while the later ones are kept.
+ * <li>that a checkpoint is built from the previous checkpoint and the segments written since,
+ *      and that the previous checkpoint is deleted.
+ * <li>that a journal opened after a checkpoint replays the checkpoint and the later segments.
+ * <li>that a checkpoint left half-written is deleted with the files it would have replaced.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that a checkpoint over a corrupt segment throws an {@code IOException}, and writes or
+ *      deletes nothing.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the JournalCheckpointer class")
+class JournalCheckpointerTest {
+  private static final LocalDate DATE = LocalDate.of(2024, 12, 1);
+
+  @TempDir
+  Path directory;
+
+  /**
+   * Writes a segment file with a record for each encoder call.
+   */
+  private void writeSegment(long number, List<Consumer<JournalEncoder>> records)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(JournalFormat.segmentPath(directory, number),
+        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      final ByteBuffer header = ByteBuffer.allocate(JournalFormat.SEGMENT_HEADER_SIZE);
+      header.putInt(JournalFormat.MAGIC).putShort(JournalFormat.FORMAT_VERSION)
+          .putShort((short) 0);
+      header.flip();
+      channel.write(header);
+      final JournalEncoder out = new JournalEncoder();
+      records.forEach(record -> record.accept(out));
+      out.writeTo(channel);
+    }
+  }
+
+  private static Consumer<JournalEncoder> groceryAdded(String name, double amount) {
+    return out -> {
+      out.beginRecord(JournalFormat.GROCERY_ADDED);
+      MutationJournal.writeGrocery(out, new Grocery(name, "Category", "pieces",
+          new GroceryBatch(amount, 10, DATE)));
+      out.endRecord();
+    };
+  }
+
+  private static Consumer<JournalEncoder> groceryConsumed(String name, double amount) {
+    return out -> {
+      out.beginRecord(JournalFormat.GROCERY_CONSUMED);
+      out.writeString(name);
+      out.writeDouble(amount);
+      out.endRecord();
+    };
+  }
+
+  private static Consumer<JournalEncoder> recipeAdded(long id, String name) {
+    return out -> {
+      final Recipe recipe = new Recipe(name, "Description", "Instructions", 2);
+      recipe.addIngredient(new Ingredient("Milk", "Dairy", "liters", 0.5));
+      out.beginRecord(JournalFormat.RECIPE_ADDED);
+      MutationJournal.writeRecipe(out, id, recipe);
+      out.endRecord();
+    };
+  }
+
+  private static List<Long> numbers(List<Path> segments) {
+    return segments.stream().map(JournalFormat::segmentNumber).toList();
+  }
+
+  /**
+   * Replays a checkpoint file into a new food storage.
+   */
+  private static FoodStorage replayCheckpoint(Path checkpoint, Cookbook cookbook)
+      throws IOException {
+    final FoodStorage foodStorage = new FoodStorage();
+    new JournalReplay(foodStorage, cookbook).replayCheckpoint(checkpoint);
+    return foodStorage;
+  }
+
+  /**
+   * Positive tests for the JournalCheckpointer class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the JournalCheckpointer class")
+  class PositiveJournalCheckpointerTests {
+
+    /**
+     * Test that a checkpoint holds the changes of the segments it covers, and that those
+     * segments are deleted while the later ones are kept.
+     */
+    @Test
+    @DisplayName("Test that a checkpoint replaces the segments it covers")
+    void testCheckpoint() throws IOException {
+      writeSegment(1, List.of(groceryAdded("Milk", 3), recipeAdded(1, "Pancakes")));
+      writeSegment(2, List.of(groceryConsumed("Milk", 1), groceryAdded("Bread", 1)));
+      writeSegment(3, List.of(groceryAdded("Eggs", 12)));
+
+      JournalCheckpointer.checkpoint(directory, 2);
+
+      assertEquals(List.of(3L), numbers(JournalFormat.listSegments(directory)));
+      final List<Path> checkpoints = JournalFormat.listCheckpoints(directory);
+      assertEquals(1, checkpoints.size());
+      assertEquals(2, JournalFormat.checkpointNumber(checkpoints.getFirst()));
+
+      final Cookbook cookbook = new Cookbook();
+      final FoodStorage foodStorage = replayCheckpoint(checkpoints.getFirst(), cookbook);
+      assertEquals(2, foodStorage.getGroceryByName("Milk").getTotalAmount());
+      assertTrue(foodStorage.containsGrocery("Bread"));
+      assertFalse(foodStorage.containsGrocery("Eggs"));
+      assertEquals(0.5, cookbook.getRecipe("Pancakes").getIngredient("Milk").getAmount());
+    }
+
+    /**
+     * Test that a checkpoint is built from the previous checkpoint and the segments written
+     * since, and that the previous checkpoint is deleted.
+     */
+    @Test
+    @DisplayName("Test that a checkpoint builds on the previous checkpoint")
+    void testIncrementalCheckpoint() throws IOException {
+      writeSegment(1, List.of(groceryAdded("Milk", 3)));
+      JournalCheckpointer.checkpoint(directory, 1);
+      writeSegment(2, List.of(groceryConsumed("Milk", 1)));
+      writeSegment(3, List.of(groceryAdded("Rice", 2)));
+
+      JournalCheckpointer.checkpoint(directory, 3);
+
+      assertTrue(JournalFormat.listSegments(directory).isEmpty());
+      final List<Path> checkpoints = JournalFormat.listCheckpoints(directory);
+      assertEquals(List.of(3L), checkpoints.stream().map(JournalFormat::checkpointNumber)
+          .toList());
+      final FoodStorage foodStorage = replayCheckpoint(checkpoints.getFirst(), new Cookbook());
+      assertEquals(2, foodStorage.getGroceryByName("Milk").getTotalAmount());
+      assertEquals(2, foodStorage.getGroceryByName("Rice").getTotalAmount());
+    }
+
+    /**
+     * Test that a journal opened after a checkpoint replays the checkpoint and the later
+     * segments.
+     */
+    @Test
+    @DisplayName("Test that a journal is opened from a checkpoint and the later segments")
+    void testOpenAfterCheckpoint() throws IOException {
+      writeSegment(1, List.of(groceryAdded("Milk", 3)));
+      writeSegment(2, List.of(groceryConsumed("Milk", 1)));
+      JournalCheckpointer.checkpoint(directory, 1);
+
+      final FoodStorage foodStorage = new FoodStorage();
+      try (MutationJournal journal = MutationJournal.open(directory,
+          MutationJournal.Durability.SYNC, foodStorage, new Cookbook())) {
+        assertEquals(2, foodStorage.getGroceryByName("Milk").getTotalAmount());
+      }
+    }
+
+    /**
+     * Test that a checkpoint left half-written is deleted with the files it would have replaced.
+     */
+    @Test
+    @DisplayName("Test that a half-written checkpoint is deleted")
+    void testDeleteCoveredRemovesTemporaryFile() throws IOException {
+      writeSegment(1, List.of(groceryAdded("Milk", 3)));
+      final Path temporary = directory.resolve(
+          JournalFormat.checkpointPath(directory, 1).getFileName() + ".tmp");
+      Files.write(temporary, new byte[] {1, 2, 3});
+
+      JournalCheckpointer.deleteCovered(directory, 1);
+
+      assertFalse(Files.exists(temporary));
+      assertTrue(JournalFormat.listSegments(directory).isEmpty());
+    }
+  }
+
+  /**
+   * Negative tests for the JournalCheckpointer class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the JournalCheckpointer class")
+  class NegativeJournalCheckpointerTests {
+
+    /**
+     * Test that a checkpoint over a corrupt segment throws an {@code IOException}, and writes or
+     * deletes nothing.
+     */
+    @Test
+    @DisplayName("Test checkpoint throws IOException for a corrupt segment")
+    void testCorruptSegmentThrows() throws IOException {
+      writeSegment(1, List.of(groceryAdded("Milk", 3)));
+      writeSegment(2, List.of(groceryAdded("Rice", 2)));
+      // Cut the last record of the first segment short.
+      final Path first = JournalFormat.segmentPath(directory, 1);
+      try (FileChannel channel = FileChannel.open(first, StandardOpenOption.WRITE)) {
+        channel.truncate(channel.size() - 1);
+      }
+
+      assertThrows(IOException.class, () -> JournalCheckpointer.checkpoint(directory, 2));
+      assertEquals(List.of(1L, 2L), numbers(JournalFormat.listSegments(directory)));
+      assertTrue(JournalFormat.listCheckpoints(directory).isEmpty());
+    }
+  }
+}
@@ -0,0 +1,183 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the JsonMessages class.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that a grocery is read from a JSON object with one batch, and written with all its batches.
+ * <li>that a recipe is read from a JSON object with its ingredients, and written with or without
+ *      its texts.
+ * <li>that strings are escaped, and that whole numbers are written without a fraction and numbers
+ *      JSON cannot hold as null.
+ * <li>that a written grocery and recipe can be read back.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that parsing a message that is not a JSON object throws an
+ *      {@code IllegalArgumentException}.
+ * <li>that reading a grocery, batch or recipe with a missing or invalid field throws an
+ *      {@code IllegalArgumentException}.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the JsonMessages class")
+class JsonMessagesTest {
+  private static final LocalDate DATE = LocalDate.of(2024, 12, 1);
+
+  private static Map<String, Object> parse(String json) {
+    return JsonMessages.parseObject(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Positive tests for the JsonMessages class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the JsonMessages class")
+  class PositiveJsonMessagesTests {
+
+    /**
+     * Test that a grocery is read from a JSON object with one batch, and written with all its
+     * batches.
+     */
+    @Test
+    @DisplayName("Test that a grocery is read and written")
+    void testGrocery() {
+      final Grocery grocery = JsonMessages.groceryOf(parse("{\"name\": \"Milk\", \"category\":"
+          + " \"Dairy\", \"unit\": \"liters\", \"amount\": 2, \"pricePerUnit\": 20.5,"
+          + " \"expirationDate\": \"2024-12-01\"}"));
+      grocery.addBatch(JsonMessages.batchOf(parse("{\"amount\": 0.5, \"pricePerUnit\": 22,"
+          + " \"expirationDate\": \"2024-11-28\"}")));
+
+      assertEquals("{\"name\":\"Milk\",\"category\":\"Dairy\",\"unit\":\"liters\","
+          + "\"totalAmount\":2.5,\"batches\":["
+          + "{\"amount\":0.5,\"pricePerUnit\":22,\"expirationDate\":\"2024-11-28\"},"
+          + "{\"amount\":2,\"pricePerUnit\":20.5,\"expirationDate\":\"2024-12-01\"}]}",
+          JsonMessages.appendGrocery(new StringBuilder(), grocery).toString());
+    }
+
+    /**
+     * Test that a recipe is read from a JSON object with its ingredients, and written with or
+     * without its texts.
+     */
+    @Test
+    @DisplayName("Test that a recipe is read and written")
+    void testRecipe() {
+      final Recipe recipe = JsonMessages.recipeOf(parse("{\"name\": \"Pancakes\","
+          + " \"description\": \"Thin\", \"instructions\": \"Mix and fry\", \"servings\": 4,"
+          + " \"ingredients\": [{\"name\": \"Milk\", \"category\": \"Dairy\","
+          + " \"unit\": \"liters\", \"amount\": 0.5}]}"));
+
+      assertEquals("{\"name\":\"Pancakes\",\"description\":\"Thin\","
+          + "\"instructions\":\"Mix and fry\",\"servings\":4,\"ingredients\":["
+          + "{\"name\":\"Milk\",\"category\":\"Dairy\",\"unit\":\"liters\",\"amount\":0.5}]}",
+          JsonMessages.appendRecipe(new StringBuilder(), recipe, true).toString());
+      assertEquals("{\"name\":\"Pancakes\",\"servings\":4,\"ingredients\":["
+          + "{\"name\":\"Milk\",\"category\":\"Dairy\",\"unit\":\"liters\",\"amount\":0.5}]}",
+          JsonMessages.appendRecipe(new StringBuilder(), recipe, false).toString());
+      assertEquals(0, JsonMessages.recipeOf(parse("{\"name\": \"Toast\", \"description\":"
+          + " \"Crispy\", \"instructions\": \"Toast it\", \"servings\": 1}"))
+          .getIngredients().size());
+    }
+
+    /**
+     * Test that strings are escaped, and that whole numbers are written without a fraction and
+     * numbers JSON cannot hold as null.
+     */
+    @Test
+    @DisplayName("Test that strings and numbers are written as JSON")
+    void testStringsAndNumbers() {
+      assertEquals("\"a \\\"quote\\\", a \\\\, a\\nnew line\\t\\u0001 and æøå\"",
+          JsonMessages.appendString(new StringBuilder(),
+              "a \"quote\", a \\, a\nnew line\t\u0001 and æøå").toString());
+      assertEquals("3", JsonMessages.appendNumber(new StringBuilder(), 3.0).toString());
+      assertEquals("-0.25", JsonMessages.appendNumber(new StringBuilder(), -0.25).toString());
+      assertEquals("null", JsonMessages.appendNumber(new StringBuilder(),
+          Double.POSITIVE_INFINITY).toString());
+      assertEquals("null", JsonMessages.appendNumber(new StringBuilder(), Double.NaN)
+          .toString());
+      assertEquals("\"2024-12-01\"", JsonMessages.appendDate(new StringBuilder(), DATE)
+          .toString());
+    }
+
+    /**
+     * Test that a written grocery and recipe can be read back.
+     */
+    @Test
+    @DisplayName("Test that a written grocery and recipe are read back")
+    void testRoundTrip() {
+      final Grocery grocery = new Grocery("Bread, \"white\"", "Bakery\n", "pieces",
+          new GroceryBatch(1, 30, DATE));
+      final Map<String, Object> groceryObject =
+          parse(JsonMessages.appendGrocery(new StringBuilder(), grocery).toString());
+      assertEquals("Bread, \"white\"", JsonMessages.getString(groceryObject, "name"));
+      assertEquals(1, JsonMessages.getNumber(groceryObject, "totalAmount"));
+
+      final Recipe recipe = new Recipe("Toast", "Crispy \\ golden", "Toast it", 1);
+      recipe.addIngredient(new Ingredient("Bread", "Bakery", "pieces", 1));
+      final Recipe readBack = JsonMessages.recipeOf(
+          parse(JsonMessages.appendRecipe(new StringBuilder(), recipe, true).toString()));
+      assertEquals("Crispy \\ golden", readBack.getDescription());
+      assertEquals(1, readBack.getIngredient("Bread").getAmount());
+    }
+  }
+
+  /**
+   * Negative tests for the JsonMessages class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the JsonMessages class")
+  class NegativeJsonMessagesTests {
+
+    /**
+     * Test that parsing a message that is not a JSON object throws an
+     * {@code IllegalArgumentException}.
+     */
+    @Test
+    @DisplayName("Test parseObject throws IllegalArgumentException for an invalid message")
+    void testParseInvalidMessageThrows() {
+      assertThrows(IllegalArgumentException.class, () -> JsonMessages.parseObject(null));
+      assertThrows(IllegalArgumentException.class, () -> parse(""));
+      assertThrows(IllegalArgumentException.class, () -> parse("[1, 2]"));
+      assertThrows(IllegalArgumentException.class, () -> parse("{\"name\": \"Milk\""));
+      assertThrows(IllegalArgumentException.class, () -> parse("{\"a\": 1} trailing"));
+    }
+
+    /**
+     * Test that reading a grocery, batch or recipe with a missing or invalid field throws an
+     * {@code IllegalArgumentException}.
+     */
+    @Test
+    @DisplayName("Test that a missing or invalid field throws IllegalArgumentException")
+    void testInvalidFieldsThrow() {
+      assertThrows(IllegalArgumentException.class, () -> JsonMessages.groceryOf(
+          parse("{\"name\": \"Milk\", \"category\": \"Dairy\", \"unit\": \"liters\"}")));
+      assertThrows(IllegalArgumentException.class, () -> JsonMessages.batchOf(
+          parse("{\"amount\": \"2\", \"pricePerUnit\": 20, \"expirationDate\": \"2024-12-01\"}")));
+      assertThrows(IllegalArgumentException.class, () -> JsonMessages.getDate(
+          parse("{\"date\": \"December\"}"), "date"));
+      assertThrows(IllegalArgumentException.class, () -> JsonMessages.recipeOf(
+          parse("{\"name\": \"Toast\", \"description\": \"Crispy\", \"instructions\": \"Toast\","
+              + " \"servings\": 1, \"ingredients\": {}}")));
+      assertThrows(IllegalArgumentException.class, () -> JsonMessages.recipeOf(
+          parse("{\"name\": \"Toast\", \"description\": \"Crispy\", \"instructions\": \"Toast\","
+              + " \"servings\": 1, \"ingredients\": [1]}")));
+    }
+  }
+}
@@ -0,0 +1,285 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for the LsmGroceryStore and GroceryCodec classes.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that a grocery decoded from its bytes is equal to the grocery encoded, and that the first
+ *      expiration day is read without decoding.
+ * <li>that the groceries are kept when the store is closed and opened again.
+ * <li>that writing past the memtable limit writes a table, and every grocery can still be read.
+ * <li>that a removed grocery is hidden in a newer table, and not returned from an older one.
+ * <li>that the newest value of a grocery is returned when it is stored in more than one table,
+ *      and that merging the tables keeps only the newest values.
+ * <li>that the changes in the log are read back when the store was not closed.
+ * <li>that only the groceries expiring before a date are returned by
+ *      {@code forEachExpiringBefore}.
+ * <li>that the same grocery object is returned for a key while it is in use.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that the method {@code open} throws an {@code IllegalArgumentException} when the directory
+ *      is null or the cache size is negative.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the LsmGroceryStore class")
+class LsmGroceryStoreTest {
+  private static final LocalDate DATE = LocalDate.of(2024, 12, 1);
+  private static final long CACHE_BYTES = 1 << 20;
+
+  @TempDir
+  Path directory;
+
+  private static Grocery grocery(String name, double amount) {
+    return new Grocery(name, "Category", "pieces", new GroceryBatch(amount, 10, DATE));
+  }
+
+  private List<String> names(LsmGroceryStore store) {
+    final List<String> names = new ArrayList<>();
+    store.forEach(grocery -> names.add(grocery.getName()));
+    return names;
+  }
+
+  /**
+   * Positive tests for the LsmGroceryStore class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the LsmGroceryStore class")
+  class PositiveLsmGroceryStoreTests {
+
+    /**
+     * Test that a grocery decoded from its bytes is equal to the grocery encoded, and that the
+     * first expiration day is read without decoding.
+     */
+    @Test
+    @DisplayName("Test that GroceryCodec decodes the grocery it encoded")
+    void testCodecRoundTrip() {
+      final Grocery milk = new Grocery("Milk", "Dairy", "liters", new GroceryBatch(2, 20, DATE));
+      milk.addBatch(new GroceryBatch(1.5, 22, DATE.minusDays(3)));
+      final byte[] bytes = GroceryCodec.encode(milk);
+
+      assertEquals(DATE.minusDays(3).toEpochDay(), GroceryCodec.firstExpirationDay(bytes));
+      final Grocery decoded = GroceryCodec.decode("Milk", bytes);
+      assertEquals("Milk", decoded.getName());
+      assertEquals("Dairy", decoded.getCategory());
+      assertEquals("liters", decoded.getUnit());
+      assertEquals(2, decoded.getBatches().size());
+      assertEquals(1.5, decoded.getBatches().getFirst().getAmount());
+      assertEquals(22, decoded.getBatches().getFirst().getPricePerUnit());
+      assertEquals(DATE, decoded.getBatches().getLast().getExpirationDate());
+
+      final Grocery empty = GroceryCodec.emptyGrocery("Salt", "Spices", "grams");
+      final byte[] emptyBytes = GroceryCodec.encode(empty);
+      assertEquals(GroceryCodec.NO_EXPIRATION_DAY, GroceryCodec.firstExpirationDay(emptyBytes));
+      assertTrue(GroceryCodec.decode("Salt", emptyBytes).getBatches().isEmpty());
+    }
+
+    /**
+     * Test that the groceries are kept when the store is closed and opened again.
+     */
+    @Test
+    @DisplayName("Test that the groceries are kept when the store is opened again")
+    void testReopenAfterClose() throws IOException {
+      try (LsmGroceryStore store = LsmGroceryStore.open(directory, CACHE_BYTES)) {
+        store.put("Milk", grocery("Milk", 2));
+        store.put("Bread", grocery("Bread", 1));
+      }
+      try (LsmGroceryStore store = LsmGroceryStore.open(directory, CACHE_BYTES)) {
+        assertEquals(1, store.getTableCount());
+        assertEquals(2, store.get("Milk").getTotalAmount());
+        assertEquals(List.of("Bread", "Milk"), names(store));
+        assertNull(store.get("Eggs"));
+      }
+    }
+
+    /**
+     * Test that writing past the memtable limit writes a table, and every grocery can still be
+     * read.
+     */
+    @Test
+    @DisplayName("Test that writing past the memtable limit writes a table")
+    void testWritePastMemtableLimit() throws IOException {
+      final String category = "c".repeat(4096);
+      final int count = LsmGroceryStore.MEMTABLE_LIMIT / category.length() + 100;
+      try (LsmGroceryStore store = LsmGroceryStore.open(directory, CACHE_BYTES)) {
+        for (int i = 0; i < count; i++) {
+          final String name = String.format("Grocery %05d", i);
+          store.put(name, new Grocery(name, category, "pieces", new GroceryBatch(i + 1, 10, DATE)));
+        }
+        assertTrue(store.getTableCount() >= 1);
+        for (int i = 0; i < count; i += 97) {
+          assertEquals(i + 1, store.get(String.format("Grocery %05d", i)).getTotalAmount());
+        }
+        assertEquals(count, names(store).size());
+      }
+    }
+
+    /**
+     * Test that a removed grocery is hidden in a newer table, and not returned from an older
+     * one.
+     */
+    @Test
+    @DisplayName("Test that a removal in a newer table hides the grocery in an older one")
+    void testTombstoneHidesOlderTable() throws IOException {
+      try (LsmGroceryStore store = LsmGroceryStore.open(directory, CACHE_BYTES)) {
+        store.put("Milk", grocery("Milk", 2));
+        store.put("Bread", grocery("Bread", 1));
+      }
+      try (LsmGroceryStore store = LsmGroceryStore.open(directory, CACHE_BYTES)) {
+        store.remove("Milk");
+      }
+      try (LsmGroceryStore store = LsmGroceryStore.open(directory, CACHE_BYTES)) {
+        assertEquals(2, store.getTableCount());
+        assertNull(store.get("Milk"));
+        assertEquals(List.of("Bread"), names(store));
+      }
+    }
+
+    /**
+     * Test that the newest value of a grocery is returned when it is stored in more than one
+     * table, and that merging the tables keeps only the newest values.
+     */
+    @Test
+    @DisplayName("Test that the newest table wins, also when the tables are merged")
+    void testMergeOrderAcrossTables() throws IOException {
+      for (int i = 1; i <= LsmGroceryStore.MAX_TABLES; i++) {
+        try (LsmGroceryStore store = LsmGroceryStore.open(directory, CACHE_BYTES)) {
+          store.put("Milk", grocery("Milk", i));
+          store.put("Table " + i, grocery("Table " + i, i));
+          if (i == 3) {
+            store.remove("Table 1");
+          }
+        }
+      }
+      try (LsmGroceryStore store = LsmGroceryStore.open(directory, CACHE_BYTES)) {
+        assertEquals(LsmGroceryStore.MAX_TABLES, store.getTableCount());
+        assertEquals(LsmGroceryStore.MAX_TABLES, store.get("Milk").getTotalAmount());
+        assertNull(store.get("Table 1"));
+        // One more table makes too many, and they are merged into one.
+        store.put("Eggs", grocery("Eggs", 12));
+      }
+      try (LsmGroceryStore store = LsmGroceryStore.open(directory, CACHE_BYTES)) {
+        assertEquals(1, store.getTableCount());
+        assertEquals(LsmGroceryStore.MAX_TABLES, store.get("Milk").getTotalAmount());
+        assertNull(store.get("Table 1"));
+        assertEquals(3, store.get("Table 3").getTotalAmount());
+        assertEquals(LsmGroceryStore.MAX_TABLES + 1, names(store).size());
+      }
+    }
+
+    /**
+     * Test that the changes in the log are read back when the store was not closed.
+     */
+    @Test
+    @DisplayName("Test that the log is replayed when the store was not closed")
+    void testLogReplayAfterCrash(@TempDir Path crashed) throws IOException {
+      try (LsmGroceryStore store = LsmGroceryStore.open(directory, CACHE_BYTES)) {
+        store.put("Milk", grocery("Milk", 2));
+        store.put("Bread", grocery("Bread", 1));
+        store.remove("Bread");
+        store.put("Eggs", grocery("Eggs", 12));
+        // The files as they are when the application stops without closing the store, with a
+        // change that was only partly written.
+        try (var files = Files.list(directory)) {
+          for (Path file : files.toList()) {
+            Files.copy(file, crashed.resolve(file.getFileName()));
+          }
+        }
+        final Path log = crashed.resolve("memtable.log");
+        final long completeSize = Files.size(log);
+        Files.write(log, new byte[] {0, 0, 0, 50, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (LsmGroceryStore reopened = LsmGroceryStore.open(crashed, CACHE_BYTES)) {
+          assertEquals(0, reopened.getTableCount());
+          assertEquals(completeSize, Files.size(log));
+          assertEquals(2, reopened.get("Milk").getTotalAmount());
+          assertNull(reopened.get("Bread"));
+          assertEquals(List.of("Eggs", "Milk"), names(reopened));
+        }
+      }
+    }
+
+    /**
+     * Test that only the groceries expiring before a date are returned by
+     * {@code forEachExpiringBefore}.
+     */
+    @Test
+    @DisplayName("Test that forEachExpiringBefore returns only the groceries expiring before")
+    void testForEachExpiringBefore() throws IOException {
+      try (LsmGroceryStore store = LsmGroceryStore.open(directory, CACHE_BYTES)) {
+        store.put("Milk", grocery("Milk", 2));
+        store.put("Rice", new Grocery("Rice", "Grains", "kg",
+            new GroceryBatch(1, 30, DATE.plusDays(100))));
+      }
+      try (LsmGroceryStore store = LsmGroceryStore.open(directory, CACHE_BYTES)) {
+        store.put("Eggs", new Grocery("Eggs", "Dairy", "pieces",
+            new GroceryBatch(12, 4, DATE.minusDays(1))));
+        final List<String> expiring = new ArrayList<>();
+        store.forEachExpiringBefore(DATE.plusDays(1), grocery -> expiring.add(grocery.getName()));
+        assertEquals(List.of("Eggs", "Milk"), expiring);
+      }
+    }
+
+    /**
+     * Test that the same grocery object is returned for a key while it is in use.
+     */
+    @Test
+    @DisplayName("Test that the same grocery is returned while it is in use")
+    void testSameGroceryWhileInUse() throws IOException {
+      try (LsmGroceryStore store = LsmGroceryStore.open(directory, CACHE_BYTES)) {
+        store.put("Milk", grocery("Milk", 2));
+      }
+      try (LsmGroceryStore store = LsmGroceryStore.open(directory, CACHE_BYTES)) {
+        final Grocery milk = store.get("Milk");
+        assertSame(milk, store.get("Milk"));
+        final List<Grocery> iterated = new ArrayList<>();
+        store.forEach(iterated::add);
+        assertSame(milk, iterated.getFirst());
+      }
+    }
+  }
+
+  /**
+   * Negative tests for the LsmGroceryStore class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the LsmGroceryStore class")
+  class NegativeLsmGroceryStoreTests {
+
+    /**
+     * Test that {@code open} throws an {@code IllegalArgumentException} when the directory is
+     * null or the cache size is negative.
+     */
+    @Test
+    @DisplayName("Test open throws IllegalArgumentException when an argument is invalid")
+    void testOpenWithInvalidArgumentsThrows() {
+      assertThrows(IllegalArgumentException.class,
+          () -> LsmGroceryStore.open(null, CACHE_BYTES));
+      assertThrows(IllegalArgumentException.class, () -> LsmGroceryStore.open(directory, -1));
+    }
+  }
+}
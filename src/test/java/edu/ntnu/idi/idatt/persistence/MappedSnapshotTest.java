@@ -0,0 +1,261 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for the SnapshotWriter and MappedSnapshot classes.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that the groceries and recipes written to a snapshot are read back from it.
+ * <li>that loading a snapshot replaces the groceries and recipes.
+ * <li>that an empty food storage and cookbook are written and read back.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that opening a file that is not a snapshot, or is cut short, throws an
+ *      {@code IOException}.
+ * <li>that reading a record whose offset points outside its section throws an
+ *      {@code IllegalArgumentException}, and that loading it leaves the food storage and cookbook
+ *      as they were.
+ * <li>that reading a string stored outside the string section throws an
+ *      {@code IllegalArgumentException}.
+ * <li>that loading a snapshot with a grocery stored twice throws an
+ *      {@code IllegalArgumentException}, and leaves the food storage as it was.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the SnapshotWriter and MappedSnapshot classes")
+class MappedSnapshotTest {
+  private static final LocalDate DATE = LocalDate.of(2024, 12, 1);
+
+  @TempDir
+  Path directory;
+
+  private Path path;
+  private FoodStorage foodStorage;
+  private Cookbook cookbook;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    path = directory.resolve("data.snapshot");
+    foodStorage = new FoodStorage();
+    final Grocery milk = new Grocery("Milk", "Dairy", "liters", new GroceryBatch(2, 20, DATE));
+    milk.addBatch(new GroceryBatch(1, 22, DATE.minusDays(2)));
+    foodStorage.addGrocery(milk);
+    foodStorage.addGrocery(new Grocery("Bread", "Bakery", "pieces",
+        new GroceryBatch(1, 30, DATE)));
+    cookbook = new Cookbook();
+    final Recipe pancakes = new Recipe("Pancakes", "Thin pancakes", "Mix and fry", 4);
+    pancakes.addIngredient(new Ingredient("Milk", "Dairy", "liters", 0.5));
+    pancakes.addIngredient(new Ingredient("Flour", "Baking", "grams", 200));
+    cookbook.addRecipe(pancakes);
+    SnapshotWriter.write(path, foodStorage, cookbook);
+  }
+
+  /**
+   * Returns the offset and length of a section of a snapshot file, as stored in its header.
+   */
+  private static long[] section(Path path, int section) throws IOException {
+    final ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(path));
+    final int position = 2 * Integer.BYTES + section * 2 * Long.BYTES;
+    return new long[] {header.getLong(position), header.getLong(position + Long.BYTES)};
+  }
+
+  private static void writeInt(Path path, long position, int value) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, value), position);
+    }
+  }
+
+  /**
+   * Positive tests for the SnapshotWriter and MappedSnapshot classes.
+   */
+  @Nested
+  @DisplayName("Positive tests for the SnapshotWriter and MappedSnapshot classes")
+  class PositiveMappedSnapshotTests {
+
+    /**
+     * Test that the groceries and recipes written to a snapshot are read back from it.
+     */
+    @Test
+    @DisplayName("Test that the written groceries and recipes are read back")
+    void testRoundTrip() throws IOException {
+      final MappedSnapshot snapshot = MappedSnapshot.open(path);
+
+      assertEquals(2, snapshot.getGroceryCount());
+      assertEquals(1, snapshot.getRecipeCount());
+      assertEquals("Bread", snapshot.getGroceryName(0));
+      assertEquals("Milk", snapshot.getGroceryName(1));
+      final Grocery milk = snapshot.getGroceryByName("milk");
+      assertEquals("Dairy", milk.getCategory());
+      assertEquals(3, milk.getTotalAmount());
+      assertEquals(DATE.minusDays(2), milk.getBatches().getFirst().getExpirationDate());
+      assertEquals(22, milk.getBatches().getFirst().getPricePerUnit());
+      assertEquals(DATE.minusDays(2).toEpochDay(), snapshot.getGroceryFirstExpirationDay(1));
+
+      final Recipe pancakes = snapshot.getRecipe(0);
+      assertEquals("Pancakes", pancakes.getName());
+      assertEquals("Thin pancakes", pancakes.getDescription());
+      assertEquals("Mix and fry", pancakes.getInstructions());
+      assertEquals(4, pancakes.getServings());
+      assertEquals(2, pancakes.getIngredients().size());
+      assertEquals(200, pancakes.getIngredient("Flour").getAmount());
+      assertEquals(2, snapshot.getRecipeIngredientNameIds(0).length);
+    }
+
+    /**
+     * Test that loading a snapshot replaces the groceries and recipes.
+     */
+    @Test
+    @DisplayName("Test that loading a snapshot replaces the groceries and recipes")
+    void testLoadInto() throws IOException {
+      final FoodStorage loadedStorage = new FoodStorage();
+      loadedStorage.addGrocery(new Grocery("Eggs", "Dairy", "pieces",
+          new GroceryBatch(12, 4, DATE)));
+      final Cookbook loadedCookbook = new Cookbook();
+      loadedCookbook.addRecipe(new Recipe("Omelette", "Eggs", "Fry", 1));
+
+      MappedSnapshot.open(path).loadInto(loadedStorage, loadedCookbook);
+
+      assertEquals(List.of("Bread", "Milk"), loadedStorage.getAllGroceriesAlphabetically()
+          .stream().map(Grocery::getName).toList());
+      assertEquals(3, loadedStorage.getGroceryByName("Milk").getTotalAmount());
+      assertEquals(1, loadedCookbook.getRecipes().size());
+      assertEquals("Pancakes", loadedCookbook.getRecipes().getFirst().getName());
+    }
+
+    /**
+     * Test that an empty food storage and cookbook are written and read back.
+     */
+    @Test
+    @DisplayName("Test that an empty snapshot is written and read back")
+    void testEmptyRoundTrip() throws IOException {
+      final Path emptyPath = directory.resolve("empty.snapshot");
+      SnapshotWriter.write(emptyPath, new FoodStorage(), new Cookbook());
+      final MappedSnapshot snapshot = MappedSnapshot.open(emptyPath);
+
+      assertEquals(0, snapshot.getGroceryCount());
+      assertEquals(0, snapshot.getRecipeCount());
+      snapshot.loadInto(foodStorage, cookbook);
+      assertTrue(foodStorage.getAllGroceries().isEmpty());
+      assertTrue(cookbook.getRecipes().isEmpty());
+    }
+  }
+
+  /**
+   * Negative tests for the SnapshotWriter and MappedSnapshot classes.
+   */
+  @Nested
+  @DisplayName("Negative tests for the SnapshotWriter and MappedSnapshot classes")
+  class NegativeMappedSnapshotTests {
+
+    /**
+     * Test that opening a file that is not a snapshot, or is cut short, throws an
+     * {@code IOException}.
+     */
+    @Test
+    @DisplayName("Test open throws IOException for a file that is not a snapshot")
+    void testOpenNotASnapshotThrows() throws IOException {
+      final Path text = Files.writeString(directory.resolve("text.snapshot"),
+          "This is not a snapshot file, but it is long enough to have a header in it.");
+      final byte[] bytes = Files.readAllBytes(path);
+      final Path truncated = Files.write(directory.resolve("truncated.snapshot"),
+          Arrays.copyOf(bytes, bytes.length - 10));
+
+      assertThrows(IOException.class, () -> MappedSnapshot.open(text));
+      assertThrows(IOException.class, () -> MappedSnapshot.open(truncated));
+      assertThrows(IllegalArgumentException.class, () -> MappedSnapshot.open(null));
+    }
+
+    /**
+     * Test that reading a record whose offset points outside its section throws an
+     * {@code IllegalArgumentException}, and that loading it leaves the food storage and cookbook
+     * as they were.
+     */
+    @Test
+    @DisplayName("Test that a record outside its section throws IllegalArgumentException")
+    void testCorruptRecordOffsetThrows() throws IOException {
+      final long[] groceries = section(path, 0);
+      // The offset of the second grocery, in the offset table before the count.
+      writeInt(path, groceries[0] + groceries[1] - 2 * Integer.BYTES, Integer.MAX_VALUE - 2);
+      final MappedSnapshot snapshot = MappedSnapshot.open(path);
+
+      assertEquals("Bread", snapshot.getGrocery(0).getName());
+      assertThrows(IllegalArgumentException.class, () -> snapshot.getGrocery(1));
+      assertThrows(IllegalArgumentException.class, () -> snapshot.getGroceryName(1));
+      assertThrows(IllegalArgumentException.class,
+          () -> snapshot.getGroceryFirstExpirationDay(1));
+      assertThrows(IllegalArgumentException.class,
+          () -> snapshot.loadInto(foodStorage, cookbook));
+      assertEquals(2, foodStorage.getAllGroceries().size());
+      assertEquals(1, cookbook.getRecipes().size());
+    }
+
+    /**
+     * Test that reading a string stored outside the string section throws an
+     * {@code IllegalArgumentException}.
+     */
+    @Test
+    @DisplayName("Test that a string outside its section throws IllegalArgumentException")
+    void testCorruptStringOffsetThrows() throws IOException {
+      final long[] strings = section(path, 2);
+      // The end of the last string, which is the start of the offset table.
+      writeInt(path, strings[0] + strings[1] - 2 * Integer.BYTES, Integer.MAX_VALUE);
+      final MappedSnapshot snapshot = MappedSnapshot.open(path);
+
+      assertThrows(IllegalArgumentException.class, () -> {
+        for (int i = 0; i < snapshot.getGroceryCount(); i++) {
+          snapshot.getGrocery(i);
+        }
+        for (int i = 0; i < snapshot.getRecipeCount(); i++) {
+          snapshot.getRecipe(i);
+        }
+      });
+      assertThrows(IllegalArgumentException.class, () -> snapshot.getString(-1));
+    }
+
+    /**
+     * Test that loading a snapshot with a grocery stored twice throws an
+     * {@code IllegalArgumentException}, and leaves the food storage as it was.
+     */
+    @Test
+    @DisplayName("Test that loading a grocery stored twice throws IllegalArgumentException")
+    void testDuplicateGroceryThrows() throws IOException {
+      final Path duplicatePath = directory.resolve("duplicate.snapshot");
+      SnapshotWriter.write(duplicatePath, List.of(
+          new Grocery("Salt", "Spices", "grams", new GroceryBatch(100, 1, DATE)),
+          new Grocery("Salt", "Spices", "grams", new GroceryBatch(200, 1, DATE))), List.of());
+
+      assertThrows(IllegalArgumentException.class,
+          () -> MappedSnapshot.open(duplicatePath).loadInto(foodStorage, cookbook));
+      assertEquals(2, foodStorage.getAllGroceries().size());
+      assertEquals(3, foodStorage.getGroceryByName("Milk").getTotalAmount());
+    }
+  }
+}
@@ -0,0 +1,332 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Test class for the MutationJournal and JournalReplay classes.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that the changes recorded with each durability are replayed when the journal is opened
+ *      again.
+ * <li>that a torn record at the end of the last segment is cut off, and the records before it
+ *      are replayed.
+ * <li>that a record with a bad checksum in the middle of the last segment is treated as torn,
+ *      and the records before it are replayed.
+ * <li>that the changes are replayed from a checkpoint when the segments it covers are deleted.
+ * <li>that a record whose change cannot be made is skipped and reported, and the records after
+ *      it are still replayed.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that opening a journal with a bad checksum in the middle of a segment that is not the last
+ *      throws an {@code IOException}.
+ * <li>that the method {@code open} throws an {@code IllegalArgumentException} when an argument
+ *      is null.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the MutationJournal class")
+class MutationJournalTest {
+  private static final LocalDate DATE = LocalDate.of(2024, 12, 1);
+
+  @TempDir
+  Path directory;
+
+  /**
+   * Opens the journal in the test directory into a new food storage and cook book, runs the
+   * provided changes, and closes it.
+   */
+  private void record(MutationJournal.Durability durability,
+      Consumer<FoodStorage> groceryChanges, Consumer<Cookbook> recipeChanges)
+      throws IOException {
+    final FoodStorage foodStorage = new FoodStorage();
+    final Cookbook cookbook = new Cookbook();
+    try (MutationJournal journal = MutationJournal.open(directory, durability, foodStorage,
+        cookbook)) {
+      groceryChanges.accept(foodStorage);
+      recipeChanges.accept(cookbook);
+    }
+  }
+
+  private static void addMilkAndBread(FoodStorage foodStorage) {
+    final Grocery milk = new Grocery("Milk", "Dairy", "liters", new GroceryBatch(2, 20, DATE));
+    foodStorage.addGrocery(milk);
+    milk.addBatch(new GroceryBatch(1, 22, DATE.plusDays(5)));
+    milk.consume(0.5);
+    foodStorage.addGrocery(new Grocery("Bread", "Bakery", "pieces",
+        new GroceryBatch(1, 30, DATE)));
+  }
+
+  /**
+   * Writes a segment file with the provided magic number, with a record for each encoder call.
+   */
+  private static void writeFile(Path path, int magic, List<Consumer<JournalEncoder>> records)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.WRITE)) {
+      final ByteBuffer header = ByteBuffer.allocate(JournalFormat.SEGMENT_HEADER_SIZE);
+      header.putInt(magic).putShort(JournalFormat.FORMAT_VERSION).putShort((short) 0);
+      header.flip();
+      channel.write(header);
+      final JournalEncoder out = new JournalEncoder();
+      for (Consumer<JournalEncoder> record : records) {
+        record.accept(out);
+      }
+      out.writeTo(channel);
+    }
+  }
+
+  private static Consumer<JournalEncoder> groceryAdded(String name, double amount) {
+    return out -> {
+      out.beginRecord(JournalFormat.GROCERY_ADDED);
+      MutationJournal.writeGrocery(out, new Grocery(name, "Category", "pieces",
+          new GroceryBatch(amount, 10, DATE)));
+      out.endRecord();
+    };
+  }
+
+  private static Consumer<JournalEncoder> groceryConsumed(String name, double amount) {
+    return out -> {
+      out.beginRecord(JournalFormat.GROCERY_CONSUMED);
+      out.writeString(name);
+      out.writeDouble(amount);
+      out.endRecord();
+    };
+  }
+
+  /**
+   * Flips a byte of the checksum of the record at the provided offset.
+   */
+  private static void corruptChecksum(Path path, long recordOffset) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      final ByteBuffer checksum = ByteBuffer.allocate(1);
+      channel.read(checksum, recordOffset + 4);
+      checksum.flip();
+      final byte flipped = (byte) ~checksum.get();
+      channel.write(ByteBuffer.wrap(new byte[] {flipped}), recordOffset + 4);
+    }
+  }
+
+  /**
+   * Returns the size of the records of a grocery added with {@code groceryAdded}.
+   */
+  private static int groceryRecordSize(String name) {
+    final JournalEncoder out = new JournalEncoder();
+    groceryAdded(name, 1).accept(out);
+    return out.size();
+  }
+
+  /**
+   * Positive tests for the MutationJournal class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the MutationJournal class")
+  class PositiveMutationJournalTests {
+
+    /**
+     * Test that the changes recorded with each durability are replayed when the journal is opened
+     * again.
+     */
+    @ParameterizedTest
+    @EnumSource(MutationJournal.Durability.class)
+    @DisplayName("Test that the recorded changes are replayed with each durability")
+    void testRoundTrip(MutationJournal.Durability durability) throws IOException {
+      record(durability, MutationJournalTest::addMilkAndBread, cookbook -> {
+        final Recipe pancakes = new Recipe("Pancakes", "Thin", "Mix and fry", 4);
+        pancakes.addIngredient(new Ingredient("Milk", "Dairy", "liters", 0.5));
+        cookbook.addRecipe(pancakes);
+        pancakes.setIngredientAmount("Milk", 0.75);
+        pancakes.setServings(2);
+      });
+
+      final FoodStorage foodStorage = new FoodStorage();
+      final Cookbook cookbook = new Cookbook();
+      try (MutationJournal journal = MutationJournal.open(directory, durability, foodStorage,
+          cookbook)) {
+        assertTrue(journal.getSkippedRecords().isEmpty());
+        assertEquals(2.5, foodStorage.getGroceryByName("Milk").getTotalAmount());
+        assertEquals(2, foodStorage.getGroceryByName("Milk").getBatches().size());
+        assertEquals(1, foodStorage.getGroceryByName("Bread").getTotalAmount());
+        final Recipe pancakes = cookbook.getRecipes().getFirst();
+        assertEquals(2, pancakes.getServings());
+        assertEquals(0.75, pancakes.getIngredient("Milk").getAmount());
+      }
+    }
+
+    /**
+     * Test that a torn record at the end of the last segment is cut off, and the records before
+     * it are replayed.
+     */
+    @Test
+    @DisplayName("Test that a torn record at the end of the journal is cut off")
+    void testTornTailIsTruncated() throws IOException {
+      record(MutationJournal.Durability.SYNC, MutationJournalTest::addMilkAndBread, cookbook -> {
+      });
+      final Path segment = JournalFormat.listSegments(directory).getLast();
+      final long completeSize = Files.size(segment);
+      // A record header promising 100 bytes of body, followed by only 3 of them.
+      Files.write(segment, new byte[] {0, 0, 0, 100, 1, 2, 3, 4, 5, 6, 7},
+          StandardOpenOption.APPEND);
+
+      final FoodStorage foodStorage = new FoodStorage();
+      try (MutationJournal journal = MutationJournal.open(directory,
+          MutationJournal.Durability.SYNC, foodStorage, new Cookbook())) {
+        assertEquals(completeSize, Files.size(segment));
+        assertEquals(2, foodStorage.getAllGroceries().size());
+        foodStorage.getGroceryByName("Bread").consume(1);
+      }
+
+      final FoodStorage reopened = new FoodStorage();
+      try (MutationJournal journal = MutationJournal.open(directory,
+          MutationJournal.Durability.SYNC, reopened, new Cookbook())) {
+        assertEquals(0, reopened.getGroceryByName("Bread").getTotalAmount());
+      }
+    }
+
+    /**
+     * Test that a record with a bad checksum in the middle of the last segment is treated as
+     * torn, and the records before it are replayed.
+     */
+    @Test
+    @DisplayName("Test that a bad checksum in the last segment cuts it off there")
+    void testCorruptChecksumInLastSegment() throws IOException {
+      final Path segment = JournalFormat.segmentPath(directory, 1);
+      writeFile(segment, JournalFormat.MAGIC, List.of(groceryAdded("Milk", 1),
+          groceryAdded("Eggs", 1), groceryAdded("Rice", 1)));
+      final long eggsOffset = JournalFormat.SEGMENT_HEADER_SIZE + groceryRecordSize("Milk");
+      corruptChecksum(segment, eggsOffset);
+
+      final FoodStorage foodStorage = new FoodStorage();
+      try (MutationJournal journal = MutationJournal.open(directory,
+          MutationJournal.Durability.SYNC, foodStorage, new Cookbook())) {
+        assertTrue(foodStorage.containsGrocery("Milk"));
+        assertFalse(foodStorage.containsGrocery("Eggs"));
+        assertFalse(foodStorage.containsGrocery("Rice"));
+      }
+    }
+
+    /**
+     * Test that the changes are replayed from a checkpoint when the segments it covers are
+     * deleted.
+     */
+    @Test
+    @DisplayName("Test that the changes are replayed from a checkpoint")
+    void testReplayAfterCheckpoint() throws Exception {
+      final FoodStorage foodStorage = new FoodStorage();
+      // Every write closes the segment, and a checkpoint is written for it.
+      try (MutationJournal journal = MutationJournal.open(directory,
+          MutationJournal.Durability.SYNC,
+          new MutationJournal.CheckpointPolicy(1, Duration.ofMinutes(10)), foodStorage,
+          new Cookbook())) {
+        addMilkAndBread(foodStorage);
+        final long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (JournalFormat.listCheckpoints(directory).isEmpty()
+            && System.nanoTime() < deadline) {
+          Thread.sleep(10);
+        }
+        assertFalse(JournalFormat.listCheckpoints(directory).isEmpty());
+      }
+
+      final long checkpoint =
+          JournalFormat.checkpointNumber(JournalFormat.listCheckpoints(directory).getLast());
+      assertTrue(JournalFormat.listSegments(directory).stream()
+          .allMatch(segment -> JournalFormat.segmentNumber(segment) > checkpoint));
+
+      final FoodStorage reopened = new FoodStorage();
+      try (MutationJournal journal = MutationJournal.open(directory,
+          MutationJournal.Durability.SYNC, reopened, new Cookbook())) {
+        assertEquals(2.5, reopened.getGroceryByName("Milk").getTotalAmount());
+        assertEquals(1, reopened.getGroceryByName("Bread").getTotalAmount());
+      }
+    }
+
+    /**
+     * Test that a record whose change cannot be made is skipped and reported, and the records
+     * after it are still replayed.
+     */
+    @Test
+    @DisplayName("Test that a record that cannot be replayed is skipped")
+    void testUnreplayableRecordIsSkipped() throws IOException {
+      writeFile(JournalFormat.segmentPath(directory, 1), JournalFormat.MAGIC,
+          List.of(groceryAdded("Milk", 3), groceryConsumed("Missing", 1),
+              groceryConsumed("Milk", 1)));
+
+      final FoodStorage foodStorage = new FoodStorage();
+      try (MutationJournal journal = MutationJournal.open(directory,
+          MutationJournal.Durability.SYNC, foodStorage, new Cookbook())) {
+        assertEquals(1, journal.getSkippedRecords().size());
+        assertEquals(2, foodStorage.getGroceryByName("Milk").getTotalAmount());
+      }
+    }
+  }
+
+  /**
+   * Negative tests for the MutationJournal class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the MutationJournal class")
+  class NegativeMutationJournalTests {
+
+    /**
+     * Test that opening a journal with a bad checksum in the middle of a segment that is not the
+     * last throws an {@code IOException}.
+     */
+    @Test
+    @DisplayName("Test open throws IOException for a bad checksum in an earlier segment")
+    void testCorruptChecksumInEarlierSegmentThrows() throws IOException {
+      final Path first = JournalFormat.segmentPath(directory, 1);
+      writeFile(first, JournalFormat.MAGIC, List.of(groceryAdded("Milk", 1),
+          groceryAdded("Eggs", 1), groceryAdded("Rice", 1)));
+      writeFile(JournalFormat.segmentPath(directory, 2), JournalFormat.MAGIC,
+          List.of(groceryAdded("Salt", 1)));
+      corruptChecksum(first, JournalFormat.SEGMENT_HEADER_SIZE + groceryRecordSize("Milk"));
+
+      assertThrows(IOException.class, () -> MutationJournal.open(directory,
+          MutationJournal.Durability.SYNC, new FoodStorage(), new Cookbook()));
+    }
+
+    /**
+     * Test that {@code open} throws an {@code IllegalArgumentException} when an argument is null.
+     */
+    @Test
+    @DisplayName("Test open throws IllegalArgumentException when an argument is null")
+    void testOpenWithNullArgumentsThrows() {
+      assertThrows(IllegalArgumentException.class, () -> MutationJournal.open(null,
+          MutationJournal.Durability.SYNC, new FoodStorage(), new Cookbook()));
+      assertThrows(IllegalArgumentException.class, () -> MutationJournal.open(directory,
+          null, new FoodStorage(), new Cookbook()));
+      assertThrows(IllegalArgumentException.class, () -> MutationJournal.open(directory,
+          MutationJournal.Durability.SYNC, null, new Cookbook()));
+    }
+  }
+}
@@ -0,0 +1,200 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for the RecipeImporter class.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that the rows of a recipe in a CSV file are imported as one recipe with its ingredients,
+ *      and that a recipe without ingredients is imported.
+ * <li>that the lines of a JSON-lines file are imported as recipes.
+ * <li>that the rows of a rejected CSV recipe are all rejected, and that a row with an invalid
+ *      ingredient is rejected without rejecting the recipe.
+ * <li>that a JSON line with an invalid recipe or ingredient is rejected as a whole.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that importing a CSV file missing a column throws an {@code IOException}.
+ * <li>that the constructor throws an {@code IllegalArgumentException} when the cook book is null.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the RecipeImporter class")
+class RecipeImporterTest {
+  private static final String CSV_HEADER = "name,description,instructions,servings,"
+      + "ingredientName,ingredientCategory,ingredientUnit,ingredientAmount";
+
+  @TempDir
+  Path directory;
+
+  private Cookbook cookbook;
+  private RecipeImporter importer;
+
+  @BeforeEach
+  void setUp() {
+    cookbook = new Cookbook();
+    importer = new RecipeImporter(cookbook);
+  }
+
+  private Path file(String name, String... lines) throws IOException {
+    return Files.write(directory.resolve(name), List.of(lines));
+  }
+
+  private List<String> recipeNames() {
+    return cookbook.getRecipes().stream().map(Recipe::getName).toList();
+  }
+
+  /**
+   * Positive tests for the RecipeImporter class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the RecipeImporter class")
+  class PositiveRecipeImporterTests {
+
+    /**
+     * Test that the rows of a recipe in a CSV file are imported as one recipe with its
+     * ingredients, and that a recipe without ingredients is imported.
+     */
+    @Test
+    @DisplayName("Test that the rows of a CSV file are imported as recipes")
+    void testImportCsv() throws IOException {
+      final Path path = file("recipes.csv", CSV_HEADER,
+          "Pancakes,Thin,\"Mix, then fry\",4,Milk,Dairy,liters,0.5",
+          "Pancakes,Thin,\"Mix, then fry\",4,Flour,Baking,grams,200",
+          "Toast,Crispy,Toast it,1,,,,");
+
+      final ImportResult result = importer.importRecipes(path, FileFormat.CSV,
+          ImportProgressListener.NONE);
+
+      assertEquals(3, result.getImportedRows());
+      assertEquals(List.of("Pancakes", "Toast"), recipeNames());
+      final Recipe pancakes = cookbook.getRecipe("Pancakes");
+      assertEquals("Mix, then fry", pancakes.getInstructions());
+      assertEquals(2, pancakes.getIngredients().size());
+      assertTrue(cookbook.getRecipe("Toast").getIngredients().isEmpty());
+    }
+
+    /**
+     * Test that the lines of a JSON-lines file are imported as recipes.
+     */
+    @Test
+    @DisplayName("Test that the lines of a JSON-lines file are imported as recipes")
+    void testImportJsonLines() throws IOException {
+      final Path path = file("recipes.jsonl",
+          "{\"name\": \"Pancakes\", \"description\": \"Thin\", \"instructions\": \"Fry\","
+              + " \"servings\": 4, \"ingredients\": [{\"name\": \"Milk\", \"category\":"
+              + " \"Dairy\", \"unit\": \"liters\", \"amount\": 0.5}]}",
+          "{\"name\": \"Toast\", \"description\": \"Crispy\", \"instructions\": \"Toast it\","
+              + " \"servings\": 1}");
+
+      final ImportResult result = importer.importRecipes(path, FileFormat.JSON_LINES,
+          ImportProgressListener.NONE);
+
+      assertEquals(2, result.getImportedRows());
+      assertEquals(List.of("Pancakes", "Toast"), recipeNames());
+      assertEquals(0.5, cookbook.getRecipe("Pancakes").getIngredient("Milk").getAmount());
+    }
+
+    /**
+     * Test that the rows of a rejected CSV recipe are all rejected, and that a row with an
+     * invalid ingredient is rejected without rejecting the recipe.
+     */
+    @Test
+    @DisplayName("Test that malformed CSV rows are rejected and the rest imported")
+    void testMalformedCsvRows() throws IOException {
+      final Path path = file("recipes.csv", CSV_HEADER,
+          "Soup,Warm,Boil,zero,Water,Drinks,liters,1",
+          "Soup,Warm,Boil,zero,Salt,Spices,grams,5",
+          "Salad,Fresh,Mix,2,Lettuce,Vegetables,pieces,1",
+          "Salad,Fresh,Mix,2,Tomato,Vegetables,pieces,-2",
+          "Salad,Fresh,Mix,2,Cucumber,Vegetables,pieces,1",
+          // A quote that is not closed runs on to the end of the file.
+          "Salad,Fresh,Mix,2,\"Carrot,Vegetables,pieces,1");
+
+      final ImportResult result = importer.importRecipes(path, FileFormat.CSV,
+          ImportProgressListener.NONE);
+
+      assertEquals(2, result.getImportedRows());
+      assertEquals(4, result.getRejectedRows());
+      assertEquals(List.of(2L, 3L, 5L, 7L), result.getErrors().stream()
+          .map(ImportResult.RowError::lineNumber).toList());
+      assertEquals(List.of("Salad"), recipeNames());
+      assertEquals(2, cookbook.getRecipe("Salad").getIngredients().size());
+    }
+
+    /**
+     * Test that a JSON line with an invalid recipe or ingredient is rejected as a whole.
+     */
+    @Test
+    @DisplayName("Test that malformed JSON lines are rejected as a whole")
+    void testMalformedJsonLines() throws IOException {
+      final Path path = file("recipes.jsonl",
+          "{\"name\": \"Soup\", \"description\": \"Warm\", \"instructions\": \"Boil\","
+              + " \"servings\": 2.5}",
+          "{\"name\": \"Salad\", \"description\": \"Fresh\", \"instructions\": \"Mix\","
+              + " \"servings\": 2, \"ingredients\": [{\"name\": \"Tomato\"}]}",
+          "{\"name\": \"Stew\", \"description\": \"Slow\", \"instructions\": \"Simmer\","
+              + " \"servings\": 2, \"ingredients\": \"none\"}",
+          "{\"name\": \"Toast\", \"description\": \"Crispy\", \"instructions\": \"Toast it\","
+              + " \"servings\": 1}",
+          "{\"name\": \"Toast\"");
+
+      final ImportResult result = importer.importRecipes(path, FileFormat.JSON_LINES,
+          ImportProgressListener.NONE);
+
+      assertEquals(1, result.getImportedRows());
+      assertEquals(List.of(1L, 2L, 3L, 5L), result.getErrors().stream()
+          .map(ImportResult.RowError::lineNumber).toList());
+      assertEquals(List.of("Toast"), recipeNames());
+    }
+  }
+
+  /**
+   * Negative tests for the RecipeImporter class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the RecipeImporter class")
+  class NegativeRecipeImporterTests {
+
+    /**
+     * Test that importing a CSV file missing a column throws an {@code IOException}.
+     */
+    @Test
+    @DisplayName("Test importRecipes throws IOException when a column is missing")
+    void testMissingColumnThrows() throws IOException {
+      final Path path = file("recipes.csv", "name,description,servings",
+          "Toast,Crispy,1");
+
+      assertThrows(IOException.class, () -> importer.importRecipes(path, FileFormat.CSV,
+          ImportProgressListener.NONE));
+    }
+
+    /**
+     * Test that the constructor throws an {@code IllegalArgumentException} when the cook book is
+     * null.
+     */
+    @Test
+    @DisplayName("Test constructor throws IllegalArgumentException when the cook book is null")
+    void testConstructorWithNullThrows() {
+      assertThrows(IllegalArgumentException.class, () -> new RecipeImporter(null));
+    }
+  }
+}
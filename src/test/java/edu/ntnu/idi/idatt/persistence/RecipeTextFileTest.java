@@ -0,0 +1,169 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for the RecipeTextFile class.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that a stored text is read back with its handle, also when it is not cached.
+ * <li>that the text used longest ago is evicted when the cache is full, and that a text longer
+ *      than the cache is not cached.
+ * <li>that a cook book with a text store keeps the texts of its recipes in the file, and reads
+ *      them back, also after they are changed.
+ * <li>that the file is emptied when opened and deleted when closed.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that the method {@code open} throws an {@code IllegalArgumentException} when the file is
+ *      null or the capacity is negative.
+ * <li>that reading a handle past the end of the file throws an {@code UncheckedIOException}.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the RecipeTextFile class")
+class RecipeTextFileTest {
+  @TempDir
+  Path directory;
+
+  /**
+   * Positive tests for the RecipeTextFile class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the RecipeTextFile class")
+  class PositiveRecipeTextFileTests {
+
+    /**
+     * Test that a stored text is read back with its handle, also when it is not cached.
+     */
+    @Test
+    @DisplayName("Test that a stored text is read back with its handle")
+    void testPutAndGet() throws IOException {
+      try (RecipeTextFile store = RecipeTextFile.open(directory.resolve("texts.bin"), 0)) {
+        final long first = store.put("Mix the flour and milk.");
+        final long second = store.put("Fry in butter, with æ, ø and å.");
+        final long empty = store.put("");
+
+        assertEquals("Fry in butter, with æ, ø and å.", store.get(second));
+        assertEquals("Mix the flour and milk.", store.get(first));
+        assertEquals("", store.get(empty));
+        // With no room in the cache, only the empty text fits in it.
+        assertEquals(1, store.getCacheHits());
+        assertEquals(2, store.getCacheMisses());
+      }
+    }
+
+    /**
+     * Test that the text used longest ago is evicted when the cache is full, and that a text
+     * longer than the cache is not cached.
+     */
+    @Test
+    @DisplayName("Test that the least recently used text is evicted from the cache")
+    void testCacheEviction() throws IOException {
+      try (RecipeTextFile store = RecipeTextFile.open(directory.resolve("texts.bin"), 10)) {
+        final long a = store.put("aaaa");
+        final long b = store.put("bbbb");
+        store.get(a);
+        final long c = store.put("cccc");
+        final long longText = store.put("a text longer than the cache");
+        assertEquals(1, store.getCacheHits());
+
+        store.get(a);
+        store.get(c);
+        assertEquals(3, store.getCacheHits());
+        store.get(b);
+        store.get(longText);
+        assertEquals(3, store.getCacheHits());
+        assertEquals(2, store.getCacheMisses());
+      }
+    }
+
+    /**
+     * Test that a cook book with a text store keeps the texts of its recipes in the file, and
+     * reads them back, also after they are changed.
+     */
+    @Test
+    @DisplayName("Test that a cook book keeps the texts of its recipes in the file")
+    void testCookbookWithTextFile() throws IOException {
+      final Path file = directory.resolve("texts.bin");
+      try (RecipeTextFile store = RecipeTextFile.open(file, 0)) {
+        final Cookbook cookbook = new Cookbook(store);
+        final Recipe pancakes = new Recipe("Pancakes", "Thin pancakes", "Mix and fry", 4);
+        cookbook.addRecipe(pancakes);
+        assertTrue(Files.size(file) > 0);
+
+        assertEquals("Thin pancakes", pancakes.getDescription());
+        assertEquals("Mix and fry", pancakes.getInstructions());
+        pancakes.setInstructions("Mix, rest and fry");
+        assertEquals("Mix, rest and fry", cookbook.getRecipe("Pancakes").getInstructions());
+        assertEquals("Thin pancakes", pancakes.getDescription());
+        assertTrue(store.getCacheMisses() >= 3);
+      }
+    }
+
+    /**
+     * Test that the file is emptied when opened and deleted when closed.
+     */
+    @Test
+    @DisplayName("Test that the file is emptied when opened and deleted when closed")
+    void testFileLifecycle() throws IOException {
+      final Path file = Files.writeString(directory.resolve("texts.bin"), "left from before");
+      final RecipeTextFile store = RecipeTextFile.open(file, 0);
+      assertEquals(0, Files.size(file));
+      assertEquals(0, store.put("first"));
+
+      store.close();
+      assertFalse(Files.exists(file));
+    }
+  }
+
+  /**
+   * Negative tests for the RecipeTextFile class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the RecipeTextFile class")
+  class NegativeRecipeTextFileTests {
+
+    /**
+     * Test that {@code open} throws an {@code IllegalArgumentException} when the file is null or
+     * the capacity is negative.
+     */
+    @Test
+    @DisplayName("Test open throws IllegalArgumentException when an argument is invalid")
+    void testOpenWithInvalidArgumentsThrows() {
+      assertThrows(IllegalArgumentException.class, () -> RecipeTextFile.open(null, 0));
+      assertThrows(IllegalArgumentException.class,
+          () -> RecipeTextFile.open(directory.resolve("texts.bin"), -1));
+    }
+
+    /**
+     * Test that reading a handle past the end of the file throws an
+     * {@code UncheckedIOException}.
+     */
+    @Test
+    @DisplayName("Test get throws UncheckedIOException for a handle past the end of the file")
+    void testGetPastEndThrows() throws IOException {
+      try (RecipeTextFile store = RecipeTextFile.open(directory.resolve("texts.bin"), 0)) {
+        final long handle = store.put("text");
+        assertThrows(UncheckedIOException.class, () -> store.get(handle + 100));
+      }
+    }
+  }
+}
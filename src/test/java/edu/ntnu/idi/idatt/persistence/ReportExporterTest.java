@@ -0,0 +1,228 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for the ReportExporter and ReportWriter classes.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that the inventory is exported as CSV with one row for each batch, with fields quoted where
+ *      needed, and that the file can be imported again.
+ * <li>that the inventory is exported as JSON lines, with strings escaped.
+ * <li>that only the batches expiring on or before the last date are exported, with the days until
+ *      they expire.
+ * <li>that the availability of each recipe is exported, with the missing ingredients as a list.
+ * <li>that an export replaces an existing file, and leaves no temporary file behind.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that the export methods throw an {@code IllegalArgumentException} when an argument is null.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the ReportExporter class")
+class ReportExporterTest {
+  private static final LocalDate TODAY = LocalDate.of(2024, 12, 10);
+
+  @TempDir
+  Path directory;
+
+  private FoodStorage foodStorage;
+  private Cookbook cookbook;
+
+  @BeforeEach
+  void setUp() {
+    foodStorage = new FoodStorage();
+    final Grocery milk = new Grocery("Milk", "Dairy", "liters",
+        new GroceryBatch(2, 20, TODAY.plusDays(3)));
+    milk.addBatch(new GroceryBatch(0.5, 22, TODAY.minusDays(1)));
+    foodStorage.addGrocery(milk);
+    foodStorage.addGrocery(new Grocery("Bread", "Bakery, \"fresh\"", "pieces",
+        new GroceryBatch(1, 30, TODAY.plusDays(20))));
+
+    cookbook = new Cookbook();
+    final Recipe pancakes = new Recipe("Pancakes", "Thin", "Mix and fry", 4);
+    pancakes.addIngredient(new Ingredient("Milk", "Dairy", "liters", 1));
+    pancakes.addIngredient(new Ingredient("Flour", "Baking", "grams", 200));
+    pancakes.addIngredient(new Ingredient("Eggs", "Dairy", "pieces", 2));
+    cookbook.addRecipe(pancakes);
+    final Recipe toast = new Recipe("Toast", "Crispy", "Toast it", 1);
+    toast.addIngredient(new Ingredient("Bread", "Bakery", "pieces", 1));
+    cookbook.addRecipe(toast);
+  }
+
+  /**
+   * Returns the lines of a report, with the header first if there is one, and the rows sorted,
+   * as the rows are written in the order of the food storage.
+   */
+  private static List<String> lines(Path path, boolean header) throws IOException {
+    final List<String> lines = new ArrayList<>(Files.readAllLines(path));
+    final List<String> sorted = new ArrayList<>();
+    if (header) {
+      sorted.add(lines.removeFirst());
+    }
+    sorted.addAll(lines.stream().sorted().toList());
+    return sorted;
+  }
+
+  /**
+   * Positive tests for the ReportExporter class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the ReportExporter class")
+  class PositiveReportExporterTests {
+
+    /**
+     * Test that the inventory is exported as CSV with one row for each batch, with fields quoted
+     * where needed, and that the file can be imported again.
+     */
+    @Test
+    @DisplayName("Test that the inventory is exported as CSV and can be imported again")
+    void testExportInventoryCsv() throws IOException {
+      final Path path = directory.resolve("inventory.csv");
+
+      assertEquals(3, ReportExporter.exportInventory(path, FileFormat.CSV, foodStorage));
+      assertEquals(List.of(
+          "name,category,unit,amount,pricePerUnit,expirationDate,value",
+          "Bread,\"Bakery, \"\"fresh\"\"\",pieces,1,30,2024-12-30,30",
+          "Milk,Dairy,liters,0.5,22,2024-12-09,11",
+          "Milk,Dairy,liters,2,20,2024-12-13,40"), lines(path, true));
+
+      final FoodStorage imported = new FoodStorage();
+      final ImportResult result = new GroceryImporter(imported).importGroceries(path,
+          FileFormat.CSV, ImportProgressListener.NONE);
+      assertEquals(3, result.getImportedRows());
+      assertEquals(2.5, imported.getGroceryByName("Milk").getTotalAmount());
+      assertEquals("Bakery, \"fresh\"", imported.getGroceryByName("Bread").getCategory());
+    }
+
+    /**
+     * Test that the inventory is exported as JSON lines, with strings escaped.
+     */
+    @Test
+    @DisplayName("Test that the inventory is exported as JSON lines")
+    void testExportInventoryJsonLines() throws IOException {
+      final Path path = directory.resolve("inventory.jsonl");
+
+      assertEquals(3, ReportExporter.exportInventory(path, FileFormat.JSON_LINES, foodStorage));
+      assertEquals(List.of(
+          "{\"name\":\"Bread\",\"category\":\"Bakery, \\\"fresh\\\"\",\"unit\":\"pieces\","
+              + "\"amount\":1,\"pricePerUnit\":30,\"expirationDate\":\"2024-12-30\","
+              + "\"value\":30}",
+          "{\"name\":\"Milk\",\"category\":\"Dairy\",\"unit\":\"liters\",\"amount\":0.5,"
+              + "\"pricePerUnit\":22,\"expirationDate\":\"2024-12-09\",\"value\":11}",
+          "{\"name\":\"Milk\",\"category\":\"Dairy\",\"unit\":\"liters\",\"amount\":2,"
+              + "\"pricePerUnit\":20,\"expirationDate\":\"2024-12-13\",\"value\":40}"),
+          lines(path, false));
+    }
+
+    /**
+     * Test that only the batches expiring on or before the last date are exported, with the days
+     * until they expire.
+     */
+    @Test
+    @DisplayName("Test that only the batches expiring before the last date are exported")
+    void testExportExpiringBatches() throws IOException {
+      final Path path = directory.resolve("expiring.csv");
+
+      assertEquals(2, ReportExporter.exportExpiringBatches(path, FileFormat.CSV, foodStorage,
+          TODAY, TODAY.plusDays(3)));
+      assertEquals(List.of(
+          "name,category,unit,amount,expirationDate,daysUntilExpiry,expired",
+          "Milk,Dairy,liters,0.5,2024-12-09,-1,true",
+          "Milk,Dairy,liters,2,2024-12-13,3,false"), lines(path, true));
+    }
+
+    /**
+     * Test that the availability of each recipe is exported, with the missing ingredients as a
+     * list.
+     */
+    @Test
+    @DisplayName("Test that the availability of each recipe is exported")
+    void testExportRecipeAvailability() throws IOException {
+      final Path csv = directory.resolve("recipes.csv");
+      final Path json = directory.resolve("recipes.jsonl");
+
+      assertEquals(2, ReportExporter.exportRecipeAvailability(csv, FileFormat.CSV, foodStorage,
+          cookbook));
+      ReportExporter.exportRecipeAvailability(json, FileFormat.JSON_LINES, foodStorage,
+          cookbook);
+
+      assertEquals(List.of(
+          "name,servings,ingredients,availableIngredients,canBeMade,missingIngredients",
+          "Pancakes,4,3,1,false,\"Eggs; Flour\"",
+          "Toast,1,1,1,true,\"\""), Files.readAllLines(csv));
+      assertEquals(List.of(
+          "{\"name\":\"Pancakes\",\"servings\":4,\"ingredients\":3,\"availableIngredients\":1,"
+              + "\"canBeMade\":false,\"missingIngredients\":[\"Eggs\",\"Flour\"]}",
+          "{\"name\":\"Toast\",\"servings\":1,\"ingredients\":1,\"availableIngredients\":1,"
+              + "\"canBeMade\":true,\"missingIngredients\":[]}"), Files.readAllLines(json));
+    }
+
+    /**
+     * Test that an export replaces an existing file, and leaves no temporary file behind.
+     */
+    @Test
+    @DisplayName("Test that an export replaces an existing file")
+    void testExportReplacesFile() throws IOException {
+      final Path path = Files.writeString(directory.resolve("inventory.csv"),
+          "an old report\nwith more lines\nthan the new one\nhas\nat\nall\n");
+
+      ReportExporter.exportInventory(path, FileFormat.CSV, new FoodStorage());
+
+      assertEquals(List.of("name,category,unit,amount,pricePerUnit,expirationDate,value"),
+          Files.readAllLines(path));
+      assertFalse(Files.exists(directory.resolve("inventory.csv.tmp")));
+    }
+  }
+
+  /**
+   * Negative tests for the ReportExporter class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the ReportExporter class")
+  class NegativeReportExporterTests {
+
+    /**
+     * Test that the export methods throw an {@code IllegalArgumentException} when an argument is
+     * null.
+     */
+    @Test
+    @DisplayName("Test that the export methods throw IllegalArgumentException for null")
+    void testNullArgumentsThrow() {
+      final Path path = directory.resolve("report.csv");
+      assertThrows(IllegalArgumentException.class,
+          () -> ReportExporter.exportInventory(null, FileFormat.CSV, foodStorage));
+      assertThrows(IllegalArgumentException.class,
+          () -> ReportExporter.exportInventory(path, null, foodStorage));
+      assertThrows(IllegalArgumentException.class, () -> ReportExporter.exportExpiringBatches(
+          path, FileFormat.CSV, foodStorage, null, TODAY));
+      assertThrows(IllegalArgumentException.class, () -> ReportExporter.exportRecipeAvailability(
+          path, FileFormat.CSV, foodStorage, null));
+      assertFalse(Files.exists(path));
+    }
+  }
+}
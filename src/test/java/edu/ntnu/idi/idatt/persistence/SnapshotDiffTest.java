@@ -0,0 +1,320 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for the SnapshotDiff and MerkleTree classes.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that a tree over no entries, and a tree over one entry, have the expected depth, hashes and
+ *      entries.
+ * <li>that the hash of a node does not depend on the order of the entries.
+ * <li>that two snapshots with the same groceries and recipes have no differences, and that only
+ *      the roots of the trees are compared.
+ * <li>that a grocery changed among many is found by following one path down the tree, and that
+ *      applying the patch makes the food storage equal to the second snapshot.
+ * <li>that a one-entry snapshot with its one grocery changed is found at the root.
+ * <li>that groceries and recipes that were all added, changed or removed are found, and that
+ *      applying the patch makes the food storage and cook book equal to the second snapshot.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that applying a corrupt patch, or a file that is not a patch, throws an
+ *      {@code IOException}, and changes nothing.
+ * <li>that the methods throw an {@code IllegalArgumentException} when an argument is null.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the SnapshotDiff and MerkleTree classes")
+class SnapshotDiffTest {
+  private static final LocalDate DATE = LocalDate.of(2024, 12, 1);
+
+  @TempDir
+  Path directory;
+
+  /**
+   * Returns a food storage with the provided number of groceries, named "Grocery 0" and so on,
+   * each with one batch of the provided amount.
+   */
+  private static FoodStorage groceries(int count, double amount) {
+    final FoodStorage foodStorage = new FoodStorage();
+    for (int i = 0; i < count; i++) {
+      foodStorage.addGrocery(new Grocery("Grocery " + i, "Category", "pieces",
+          new GroceryBatch(amount, 10, DATE)));
+    }
+    return foodStorage;
+  }
+
+  private static Recipe recipe(String name, double milkAmount) {
+    final Recipe recipe = new Recipe(name, "Description", "Instructions", 2);
+    recipe.addIngredient(new Ingredient("Milk", "Dairy", "liters", milkAmount));
+    return recipe;
+  }
+
+  private static Cookbook cookbook(Recipe... recipes) {
+    final Cookbook cookbook = new Cookbook();
+    for (Recipe recipe : recipes) {
+      cookbook.addRecipe(recipe);
+    }
+    return cookbook;
+  }
+
+  /**
+   * Writes a snapshot of a food storage and cook book, and opens its indexes.
+   */
+  private SnapshotIndex snapshot(String name, FoodStorage foodStorage, Cookbook cookbook)
+      throws IOException {
+    final Path path = directory.resolve(name);
+    SnapshotWriter.write(path, foodStorage, cookbook);
+    return SnapshotIndex.open(path, MappedSnapshot.open(path));
+  }
+
+  private static MerkleTree tree(int count, List<String> keys, long[] hashes) {
+    return new MerkleTree(ByteBuffer.wrap(MerkleTree.build(count, keys::get,
+        index -> hashes[index])));
+  }
+
+  /**
+   * Applies the differences between two snapshots to a food storage and cook book, and checks
+   * that a snapshot of them has no differences from the second snapshot.
+   */
+  private void assertRoundTrip(SnapshotDiff diff, SnapshotIndex to, FoodStorage foodStorage,
+      Cookbook cookbook, int expectedRecords) throws IOException {
+    final Path patch = directory.resolve("changes.patch");
+    diff.writePatch(patch);
+    assertFalse(Files.exists(directory.resolve("changes.patch.tmp")));
+
+    assertEquals(expectedRecords, SnapshotDiff.applyPatch(patch, foodStorage, cookbook));
+    assertTrue(SnapshotDiff.compare(snapshot("patched.snapshot", foodStorage, cookbook), to)
+        .isEmpty());
+  }
+
+  /**
+   * Positive tests for the SnapshotDiff and MerkleTree classes.
+   */
+  @Nested
+  @DisplayName("Positive tests for the SnapshotDiff and MerkleTree classes")
+  class PositiveSnapshotDiffTests {
+
+    /**
+     * Test that a tree over no entries, and a tree over one entry, have the expected depth,
+     * hashes and entries.
+     */
+    @Test
+    @DisplayName("Test that trees over no entries and one entry are built")
+    void testEmptyAndOneEntryTrees() {
+      final MerkleTree empty = tree(0, List.of(), new long[0]);
+      assertEquals(0, empty.getDepth());
+      assertEquals(0, empty.getNodeHash(0, 0));
+      assertEquals(0, empty.getFirstEntry(0, 1));
+
+      final MerkleTree one = tree(1, List.of("Milk"), new long[] {42});
+      assertEquals(0, one.getDepth());
+      assertEquals(42, one.getNodeHash(0, 0));
+      assertEquals(1, one.getFirstEntry(0, 1));
+      assertEquals(0, one.getEntryIndex(0));
+      assertEquals(42, one.getEntryHash(0));
+    }
+
+    /**
+     * Test that the hash of a node does not depend on the order of the entries.
+     */
+    @Test
+    @DisplayName("Test that node hashes do not depend on the order of the entries")
+    void testNodeHashesIgnoreOrder() {
+      final List<String> keys = List.of("a", "b", "c", "d", "e", "f", "g", "h", "i");
+      final long[] hashes = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+      final MerkleTree tree = tree(keys.size(), keys, hashes);
+      final MerkleTree reversed = tree(keys.size(), keys.reversed(),
+          new long[] {9, 8, 7, 6, 5, 4, 3, 2, 1});
+
+      assertEquals(2, tree.getDepth());
+      assertEquals(45, tree.getNodeHash(0, 0));
+      for (int position = 0; position < 4; position++) {
+        assertEquals(tree.getNodeHash(2, position), reversed.getNodeHash(2, position));
+      }
+      assertEquals(keys.size(), tree.getFirstEntry(0, 1));
+    }
+
+    /**
+     * Test that two snapshots with the same groceries and recipes have no differences, and that
+     * only the roots of the trees are compared.
+     */
+    @Test
+    @DisplayName("Test that equal snapshots have no differences")
+    void testEmptyDiff() throws IOException {
+      final SnapshotIndex from = snapshot("from.snapshot", groceries(50, 1),
+          cookbook(recipe("Pancakes", 0.5)));
+      final SnapshotIndex to = snapshot("to.snapshot", groceries(50, 1),
+          cookbook(recipe("Pancakes", 0.5)));
+
+      final SnapshotDiff diff = SnapshotDiff.compare(from, to);
+
+      assertTrue(diff.isEmpty());
+      assertEquals(2, diff.getComparedNodeCount());
+      final FoodStorage foodStorage = groceries(50, 1);
+      assertRoundTrip(diff, to, foodStorage, cookbook(recipe("Pancakes", 0.5)), 0);
+      assertTrue(SnapshotDiff.compare(snapshot("a.snapshot", new FoodStorage(), new Cookbook()),
+          snapshot("b.snapshot", new FoodStorage(), new Cookbook())).isEmpty());
+    }
+
+    /**
+     * Test that a grocery changed among many is found by following one path down the tree, and
+     * that applying the patch makes the food storage equal to the second snapshot.
+     */
+    @Test
+    @DisplayName("Test that one changed grocery among many is found")
+    void testOneChangedGrocery() throws IOException {
+      final SnapshotIndex from = snapshot("from.snapshot", groceries(200, 1), new Cookbook());
+      final FoodStorage changed = groceries(200, 1);
+      changed.getGroceryByName("Grocery 123").addBatch(new GroceryBatch(1, 10, DATE));
+      final SnapshotIndex to = snapshot("to.snapshot", changed, new Cookbook());
+
+      final SnapshotDiff diff = SnapshotDiff.compare(from, to);
+
+      assertEquals(1, diff.getChangedGroceryCount());
+      assertEquals(0, diff.getRemovedGroceryCount());
+      assertEquals(0, diff.getChangedRecipeNameCount());
+      // Both children are compared on each level down to the bucket, and the recipe trees at
+      // their roots.
+      final int depth = to.getGroceryTree().getDepth();
+      assertTrue(depth > 0);
+      assertEquals(1 + 2 * depth + 1, diff.getComparedNodeCount());
+      final FoodStorage foodStorage = groceries(200, 1);
+      assertRoundTrip(diff, to, foodStorage, new Cookbook(), 1);
+      assertEquals(2, foodStorage.getGroceryByName("Grocery 123").getTotalAmount());
+    }
+
+    /**
+     * Test that a one-entry snapshot with its one grocery changed is found at the root.
+     */
+    @Test
+    @DisplayName("Test that the one grocery of a one-entry snapshot is found changed")
+    void testOneEntryDiff() throws IOException {
+      final SnapshotIndex from = snapshot("from.snapshot", groceries(1, 1), new Cookbook());
+      final SnapshotIndex to = snapshot("to.snapshot", groceries(1, 2), new Cookbook());
+
+      final SnapshotDiff diff = SnapshotDiff.compare(from, to);
+
+      assertEquals(1, diff.getChangedGroceryCount());
+      assertEquals(2, diff.getComparedNodeCount());
+      assertRoundTrip(diff, to, groceries(1, 1), new Cookbook(), 1);
+    }
+
+    /**
+     * Test that groceries and recipes that were all added, changed or removed are found, and
+     * that applying the patch makes the food storage and cook book equal to the second snapshot.
+     */
+    @Test
+    @DisplayName("Test that groceries and recipes that all changed are found")
+    void testAllChanged() throws IOException {
+      final FoodStorage fromStorage = groceries(20, 1);
+      fromStorage.addGrocery(new Grocery("Removed", "Category", "pieces",
+          new GroceryBatch(1, 10, DATE)));
+      final SnapshotIndex from = snapshot("from.snapshot", fromStorage,
+          cookbook(recipe("Pancakes", 0.5), recipe("Waffles", 0.5), recipe("Porridge", 1)));
+      final FoodStorage toStorage = groceries(20, 3);
+      toStorage.addGrocery(new Grocery("Added", "Category", "pieces",
+          new GroceryBatch(1, 10, DATE)));
+      final SnapshotIndex to = snapshot("to.snapshot", toStorage,
+          cookbook(recipe("Pancakes", 0.75), recipe("Waffles", 0.5), recipe("Waffles", 1),
+              recipe("Omelette", 0.1)));
+
+      final SnapshotDiff diff = SnapshotDiff.compare(from, to);
+
+      assertEquals(21, diff.getChangedGroceryCount());
+      assertEquals(1, diff.getRemovedGroceryCount());
+      assertEquals(4, diff.getChangedRecipeNameCount());
+      final FoodStorage foodStorage = groceries(20, 1);
+      foodStorage.addGrocery(new Grocery("Removed", "Category", "pieces",
+          new GroceryBatch(1, 10, DATE)));
+      final Cookbook cookbook = cookbook(recipe("Pancakes", 0.5), recipe("Waffles", 0.5),
+          recipe("Porridge", 1));
+      assertRoundTrip(diff, to, foodStorage, cookbook, 26);
+      assertFalse(foodStorage.containsGrocery("Removed"));
+      assertEquals(2, cookbook.getRecipes().stream()
+          .filter(recipe -> recipe.getName().equals("Waffles")).count());
+    }
+  }
+
+  /**
+   * Negative tests for the SnapshotDiff class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the SnapshotDiff class")
+  class NegativeSnapshotDiffTests {
+
+    /**
+     * Test that applying a corrupt patch, or a file that is not a patch, throws an
+     * {@code IOException}, and changes nothing.
+     */
+    @Test
+    @DisplayName("Test applyPatch throws IOException for a corrupt patch")
+    void testCorruptPatchThrows() throws IOException {
+      final SnapshotIndex from = snapshot("from.snapshot", groceries(3, 1), new Cookbook());
+      final SnapshotIndex to = snapshot("to.snapshot", groceries(3, 2), new Cookbook());
+      final Path patch = directory.resolve("changes.patch");
+      SnapshotDiff.compare(from, to).writePatch(patch);
+      // Flip a byte in the body of the last record.
+      final long position = Files.size(patch) - 1;
+      try (FileChannel channel = FileChannel.open(patch, StandardOpenOption.READ,
+          StandardOpenOption.WRITE)) {
+        final ByteBuffer last = ByteBuffer.allocate(1);
+        channel.read(last, position);
+        channel.write(ByteBuffer.wrap(new byte[] {(byte) ~last.get(0)}), position);
+      }
+      final FoodStorage foodStorage = groceries(3, 1);
+
+      assertThrows(IOException.class,
+          () -> SnapshotDiff.applyPatch(patch, foodStorage, new Cookbook()));
+      assertEquals(1, foodStorage.getGroceryByName("Grocery 0").getTotalAmount());
+
+      final Path notPatch = Files.writeString(directory.resolve("other.patch"), "not a patch");
+      assertThrows(IOException.class,
+          () -> SnapshotDiff.applyPatch(notPatch, foodStorage, new Cookbook()));
+    }
+
+    /**
+     * Test that the methods throw an {@code IllegalArgumentException} when an argument is null.
+     */
+    @Test
+    @DisplayName("Test that null arguments throw IllegalArgumentException")
+    void testNullArgumentsThrow() throws IOException {
+      final SnapshotIndex index = snapshot("data.snapshot", groceries(1, 1), new Cookbook());
+      final Path patch = directory.resolve("changes.patch");
+      assertThrows(IllegalArgumentException.class, () -> SnapshotDiff.compare(null, index));
+      assertThrows(IllegalArgumentException.class, () -> SnapshotDiff.compare(index, null));
+      assertThrows(IllegalArgumentException.class,
+          () -> SnapshotDiff.compare(index, index).writePatch(null));
+      assertThrows(IllegalArgumentException.class,
+          () -> SnapshotDiff.applyPatch(patch, null, new Cookbook()));
+      assertThrows(IllegalArgumentException.class,
+          () -> SnapshotDiff.applyPatch(patch, new FoodStorage(), null));
+    }
+  }
+}
@@ -0,0 +1,238 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for the SnapshotIndex class.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that the index file is built when it is missing, and loaded as it is when opened again.
+ * <li>that the groceries expiring before a date are found, sorted by the day they expire.
+ * <li>that the groceries in a category and the recipes with an ingredient are found ignoring
+ *      case, and that the recipes are listed by name.
+ * <li>that the index file is rebuilt when the snapshot has changed since it was built.
+ * <li>that the index file is rebuilt when a section is corrupt, or the file is cut short or is
+ *      not an index file.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that the method {@code open} throws an {@code IllegalArgumentException} when an argument is
+ *      null.
+ * <li>that the query methods throw an {@code IllegalArgumentException} when the key is null or
+ *      blank.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the SnapshotIndex class")
+class SnapshotIndexTest {
+  private static final LocalDate DATE = LocalDate.of(2024, 12, 1);
+
+  @TempDir
+  Path directory;
+
+  private Path path;
+  private FoodStorage foodStorage;
+  private Cookbook cookbook;
+
+  private static FoodStorage foodStorage(double milkAmount) {
+    final FoodStorage foodStorage = new FoodStorage();
+    foodStorage.addGrocery(new Grocery("Milk", "Dairy", "liters",
+        new GroceryBatch(milkAmount, 20, DATE.plusDays(3))));
+    foodStorage.addGrocery(new Grocery("Cheese", "dairy", "grams",
+        new GroceryBatch(200, 0.2, DATE.plusDays(10))));
+    foodStorage.addGrocery(new Grocery("Bread", "Bakery", "pieces",
+        new GroceryBatch(1, 30, DATE)));
+    return foodStorage;
+  }
+
+  @BeforeEach
+  void setUp() throws IOException {
+    path = directory.resolve("data.snapshot");
+    foodStorage = foodStorage(2);
+    cookbook = new Cookbook();
+    final Recipe toast = new Recipe("Toast", "Crispy", "Toast it", 1);
+    toast.addIngredient(new Ingredient("Bread", "Bakery", "pieces", 1));
+    toast.addIngredient(new Ingredient("Cheese", "Dairy", "grams", 20));
+    cookbook.addRecipe(toast);
+    final Recipe pancakes = new Recipe("Pancakes", "Thin", "Mix and fry", 4);
+    pancakes.addIngredient(new Ingredient("Milk", "Dairy", "liters", 0.5));
+    cookbook.addRecipe(pancakes);
+    SnapshotWriter.write(path, foodStorage, cookbook);
+  }
+
+  private SnapshotIndex open() throws IOException {
+    return SnapshotIndex.open(path, MappedSnapshot.open(path));
+  }
+
+  private static List<String> groceryNames(List<Grocery> groceries) {
+    return groceries.stream().map(Grocery::getName).toList();
+  }
+
+  private static List<String> recipeNames(List<Recipe> recipes) {
+    return recipes.stream().map(Recipe::getName).toList();
+  }
+
+  /**
+   * Positive tests for the SnapshotIndex class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the SnapshotIndex class")
+  class PositiveSnapshotIndexTests {
+
+    /**
+     * Test that the index file is built when it is missing, and loaded as it is when opened
+     * again.
+     */
+    @Test
+    @DisplayName("Test that the index file is built once")
+    void testBuiltOnce() throws IOException {
+      assertTrue(open().isRebuilt());
+      assertTrue(Files.exists(SnapshotIndex.indexPath(path)));
+      assertFalse(Files.exists(directory.resolve("data.snapshot.idx.tmp")));
+
+      assertFalse(open().isRebuilt());
+    }
+
+    /**
+     * Test that the groceries expiring before a date are found, sorted by the day they expire.
+     */
+    @Test
+    @DisplayName("Test that the groceries expiring before a date are found")
+    void testGroceriesExpiringBefore() throws IOException {
+      final SnapshotIndex index = open();
+
+      assertEquals(List.of(), groceryNames(index.getGroceriesExpiringBefore(DATE)));
+      assertEquals(List.of("Bread", "Milk"),
+          groceryNames(index.getGroceriesExpiringBefore(DATE.plusDays(4))));
+      assertEquals(List.of("Bread", "Milk", "Cheese"),
+          groceryNames(index.getGroceriesExpiringBefore(DATE.plusYears(1))));
+    }
+
+    /**
+     * Test that the groceries in a category and the recipes with an ingredient are found
+     * ignoring case, and that the recipes are listed by name.
+     */
+    @Test
+    @DisplayName("Test that groceries and recipes are found by category and ingredient")
+    void testPostingsAndRecipesByName() throws IOException {
+      final SnapshotIndex index = open();
+
+      assertEquals(List.of("Cheese", "Milk"),
+          groceryNames(index.getGroceriesInCategory("DAIRY")));
+      assertEquals(List.of(), index.getGroceriesInCategory("Spices"));
+      assertEquals(List.of("Toast"), recipeNames(index.getRecipesWithIngredient("cheese")));
+      assertEquals(List.of(), index.getRecipesWithIngredient("Eggs"));
+      assertEquals(List.of("Pancakes", "Toast"), recipeNames(index.getRecipesByName()));
+      assertThrows(IndexOutOfBoundsException.class,
+          () -> index.getRecipesByName().get(2));
+    }
+
+    /**
+     * Test that the index file is rebuilt when the snapshot has changed since it was built.
+     */
+    @Test
+    @DisplayName("Test that a stale index file is rebuilt")
+    void testStaleIndexRebuilt() throws IOException {
+      open();
+      // The same number of bytes as before, so only the checksum tells the snapshots apart.
+      SnapshotWriter.write(path, foodStorage(3), cookbook);
+
+      final SnapshotIndex index = open();
+
+      assertTrue(index.isRebuilt());
+      assertEquals(3, index.getGroceriesInCategory("Dairy").get(1).getTotalAmount());
+      assertFalse(open().isRebuilt());
+    }
+
+    /**
+     * Test that the index file is rebuilt when a section is corrupt, or the file is cut short or
+     * is not an index file.
+     */
+    @Test
+    @DisplayName("Test that a corrupt index file is rebuilt")
+    void testCorruptIndexRebuilt() throws IOException {
+      open();
+      final Path indexPath = SnapshotIndex.indexPath(path);
+      final byte[] valid = Files.readAllBytes(indexPath);
+
+      try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.WRITE)) {
+        channel.write(ByteBuffer.wrap(new byte[] {(byte) ~valid[valid.length - 1]}),
+            valid.length - 1);
+      }
+      assertTrue(open().isRebuilt());
+
+      Files.write(indexPath, Arrays.copyOf(valid, valid.length - 1));
+      assertTrue(open().isRebuilt());
+
+      Files.write(indexPath, Arrays.copyOf(valid, 16));
+      assertTrue(open().isRebuilt());
+
+      Files.writeString(indexPath, "not an index file, but long enough to hold a header, "
+          + "or at least the first few bytes of one, which is all that is read");
+      final SnapshotIndex index = open();
+      assertTrue(index.isRebuilt());
+      assertEquals(List.of("Bread"), groceryNames(index.getGroceriesInCategory("Bakery")));
+      assertEquals(valid.length, Files.size(indexPath));
+    }
+  }
+
+  /**
+   * Negative tests for the SnapshotIndex class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the SnapshotIndex class")
+  class NegativeSnapshotIndexTests {
+
+    /**
+     * Test that {@code open} throws an {@code IllegalArgumentException} when an argument is null.
+     */
+    @Test
+    @DisplayName("Test open throws IllegalArgumentException when an argument is null")
+    void testOpenWithNullThrows() throws IOException {
+      final MappedSnapshot snapshot = MappedSnapshot.open(path);
+      assertThrows(IllegalArgumentException.class, () -> SnapshotIndex.open(null, snapshot));
+      assertThrows(IllegalArgumentException.class, () -> SnapshotIndex.open(path, null));
+    }
+
+    /**
+     * Test that the query methods throw an {@code IllegalArgumentException} when the key is null
+     * or blank.
+     */
+    @Test
+    @DisplayName("Test the query methods throw IllegalArgumentException for a missing key")
+    void testQueriesWithInvalidKeyThrow() throws IOException {
+      final SnapshotIndex index = open();
+      assertThrows(IllegalArgumentException.class,
+          () -> index.getGroceriesExpiringBefore(null));
+      assertThrows(IllegalArgumentException.class, () -> index.getGroceriesInCategory(" "));
+      assertThrows(IllegalArgumentException.class, () -> index.getRecipesWithIngredient(null));
+    }
+  }
+}
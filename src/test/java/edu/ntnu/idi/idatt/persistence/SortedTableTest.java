@@ -0,0 +1,203 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for the SortedTable and BlockCache classes.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that every entry of a table spanning many blocks is found, and that a key not in the table
+ *      is not.
+ * <li>that a removed key is returned as the tombstone.
+ * <li>that a cursor reads the entries of a table in order.
+ * <li>that the blocks of a table are read through the cache.
+ * <li>that the cache evicts the block used longest ago when it is full, and removes the blocks of
+ *      a table when it is invalidated.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that opening a file that is not a table throws an {@code IOException}.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the SortedTable and BlockCache classes")
+class SortedTableTest {
+  private static final int ENTRY_COUNT = 5000;
+
+  @TempDir
+  Path directory;
+
+  private static String key(int i) {
+    return String.format("key-%05d", i);
+  }
+
+  private static byte[] value(int i) {
+    return ("value of " + key(i) + " ".repeat(64)).getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes a table with {@value #ENTRY_COUNT} entries, where every tenth key is removed.
+   */
+  private SortedTable writeTable(BlockCache cache) throws IOException {
+    final Path path = directory.resolve("table.sst");
+    try (SortedTable.Writer writer = new SortedTable.Writer(path, ENTRY_COUNT)) {
+      for (int i = 0; i < ENTRY_COUNT; i++) {
+        writer.add(key(i), i % 10 == 0 ? SortedTable.TOMBSTONE : value(i));
+      }
+      writer.finish();
+    }
+    return SortedTable.open(path, 1, cache);
+  }
+
+  /**
+   * Positive tests for the SortedTable and BlockCache classes.
+   */
+  @Nested
+  @DisplayName("Positive tests for the SortedTable and BlockCache classes")
+  class PositiveSortedTableTests {
+
+    /**
+     * Test that every entry of a table spanning many blocks is found, and that a key not in the
+     * table is not.
+     */
+    @Test
+    @DisplayName("Test that every entry of the table is found")
+    void testGet() throws IOException {
+      try (SortedTable table = writeTable(new BlockCache(1 << 20))) {
+        assertEquals(ENTRY_COUNT, table.getEntryCount());
+        assertTrue(Files.size(table.getPath()) > 10L * SortedTable.BLOCK_SIZE);
+        for (int i = 1; i < ENTRY_COUNT; i += 3) {
+          if (i % 10 != 0) {
+            assertArrayEquals(value(i), table.get(key(i)));
+          }
+        }
+        assertNull(table.get("a key before the first"));
+        assertNull(table.get("key-00001x"));
+        assertNull(table.get("zzz"));
+      }
+    }
+
+    /**
+     * Test that a removed key is returned as the tombstone.
+     */
+    @Test
+    @DisplayName("Test that a removed key is returned as the tombstone")
+    void testTombstone() throws IOException {
+      try (SortedTable table = writeTable(new BlockCache(1 << 20))) {
+        assertSame(SortedTable.TOMBSTONE, table.get(key(0)));
+        assertSame(SortedTable.TOMBSTONE, table.get(key(ENTRY_COUNT - 10)));
+      }
+    }
+
+    /**
+     * Test that a cursor reads the entries of a table in order.
+     */
+    @Test
+    @DisplayName("Test that a cursor reads the entries in order")
+    void testCursor() throws IOException {
+      try (SortedTable table = writeTable(new BlockCache(1 << 20));
+          EntryCursor cursor = table.cursor()) {
+        final List<String> keys = new ArrayList<>();
+        while (cursor.next()) {
+          keys.add(cursor.key());
+          if (keys.size() % 10 == 1) {
+            assertSame(SortedTable.TOMBSTONE, cursor.value());
+          } else {
+            assertArrayEquals(value(keys.size() - 1), cursor.value());
+          }
+        }
+        assertEquals(ENTRY_COUNT, keys.size());
+        assertEquals(key(0), keys.getFirst());
+        assertEquals(key(ENTRY_COUNT - 1), keys.getLast());
+      }
+    }
+
+    /**
+     * Test that the blocks of a table are read through the cache.
+     */
+    @Test
+    @DisplayName("Test that the blocks are read through the cache")
+    void testReadThroughCache() throws IOException {
+      final BlockCache cache = new BlockCache(1 << 20);
+      try (SortedTable table = writeTable(cache)) {
+        table.get(key(1));
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        table.get(key(2));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+      }
+    }
+
+    /**
+     * Test that the cache evicts the block used longest ago when it is full, and removes the
+     * blocks of a table when it is invalidated.
+     */
+    @Test
+    @DisplayName("Test that the cache evicts the least recently used block")
+    void testCacheEviction() {
+      final BlockCache cache = new BlockCache(300);
+      cache.put(BlockCache.key(1, 0), new byte[100]);
+      cache.put(BlockCache.key(1, 1), new byte[100]);
+      cache.put(BlockCache.key(2, 0), new byte[100]);
+      assertNotNull(cache.get(BlockCache.key(1, 0)));
+
+      cache.put(BlockCache.key(2, 1), new byte[100]);
+      assertNull(cache.get(BlockCache.key(1, 1)));
+      assertNotNull(cache.get(BlockCache.key(1, 0)));
+
+      cache.put(BlockCache.key(3, 0), new byte[301]);
+      assertNull(cache.get(BlockCache.key(3, 0)));
+
+      cache.invalidate(2);
+      assertNull(cache.get(BlockCache.key(2, 0)));
+      assertNull(cache.get(BlockCache.key(2, 1)));
+      assertNotNull(cache.get(BlockCache.key(1, 0)));
+      cache.put(BlockCache.key(4, 0), new byte[200]);
+      assertNotNull(cache.get(BlockCache.key(1, 0)));
+    }
+  }
+
+  /**
+   * Negative tests for the SortedTable class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the SortedTable class")
+  class NegativeSortedTableTests {
+
+    /**
+     * Test that opening a file that is not a table throws an {@code IOException}.
+     */
+    @Test
+    @DisplayName("Test open throws IOException for a file that is not a table")
+    void testOpenNotATableThrows() throws IOException {
+      final Path empty = Files.write(directory.resolve("empty.sst"), new byte[0]);
+      final Path text = Files.write(directory.resolve("text.sst"),
+          "not a table, but long enough to have a footer".getBytes(StandardCharsets.UTF_8));
+      final BlockCache cache = new BlockCache(1 << 20);
+
+      assertThrows(IOException.class, () -> SortedTable.open(empty, 1, cache));
+      assertThrows(IOException.class, () -> SortedTable.open(text, 2, cache));
+    }
+  }
+}
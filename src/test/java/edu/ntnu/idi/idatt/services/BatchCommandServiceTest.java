@@ -0,0 +1,227 @@
+package edu.ntnu.idi.idatt.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.persistence.CommandScript;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for the BatchCommandService and CommandScript classes.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that the commands of a script file change the food storage and cook book, and that the
+ *      commands that list something write it.
+ * <li>that a command that is not valid JSON, is unknown, misses a field or fails writes its line
+ *      number and reason, and that the script goes on with the next command.
+ * <li>that a script is read from a channel, with blank lines skipped and counted.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that running a script whose output cannot be written throws an {@code IOException}.
+ * <li>that the constructor and {@code runScript} throw an {@code IllegalArgumentException} when
+ *      an argument is null.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the BatchCommandService class")
+class BatchCommandServiceTest {
+  @TempDir
+  Path directory;
+
+  private FoodStorage foodStorage;
+  private Cookbook cookbook;
+  private StringBuilder out;
+  private BatchCommandService service;
+
+  @BeforeEach
+  void setUp() {
+    foodStorage = new FoodStorage();
+    cookbook = new Cookbook();
+    out = new StringBuilder();
+    service = new BatchCommandService(foodStorage, cookbook, out);
+  }
+
+  private long run(String... lines) throws IOException {
+    try (CommandScript script = CommandScript.open(
+        Files.write(directory.resolve("script.jsonl"), List.of(lines)))) {
+      return service.runScript(script);
+    }
+  }
+
+  private List<String> output() {
+    return out.toString().lines().toList();
+  }
+
+  /**
+   * Positive tests for the BatchCommandService class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the BatchCommandService class")
+  class PositiveBatchCommandServiceTests {
+
+    /**
+     * Test that the commands of a script file change the food storage and cook book, and that
+     * the commands that list something write it.
+     */
+    @Test
+    @DisplayName("Test that the commands of a script are run")
+    void testRunScript() throws IOException {
+      final long failures = run(
+          "{\"command\": \"addGrocery\", \"name\": \"Milk\", \"category\": \"Dairy\","
+              + " \"unit\": \"liters\", \"amount\": 2, \"pricePerUnit\": 20,"
+              + " \"expirationDate\": \"2024-12-01\"}",
+          "{\"command\": \"addGrocery\", \"name\": \"Milk\", \"category\": \"Dairy\","
+              + " \"unit\": \"liters\", \"amount\": 1, \"pricePerUnit\": 22,"
+              + " \"expirationDate\": \"2024-12-05\"}",
+          "{\"command\": \"addGrocery\", \"name\": \"Bread\", \"category\": \"Bakery\","
+              + " \"unit\": \"pieces\", \"amount\": 1, \"pricePerUnit\": 30,"
+              + " \"expirationDate\": \"2024-12-03\"}",
+          "{\"command\": \"consume\", \"name\": \"Milk\", \"amount\": 0.5}",
+          "{\"command\": \"consume\", \"name\": \"Bread\", \"amount\": 1}",
+          "{\"command\": \"addRecipe\", \"name\": \"Pancakes\", \"description\": \"Thin\","
+              + " \"instructions\": \"Mix and fry\", \"servings\": 4, \"ingredients\":"
+              + " [{\"name\": \"Milk\", \"category\": \"Dairy\", \"unit\": \"liters\","
+              + " \"amount\": 0.5}]}",
+          "{\"command\": \"suggestMeals\"}",
+          "{\"command\": \"removeRecipe\", \"name\": \"Pancakes\"}",
+          "{\"command\": \"suggestMeals\"}");
+
+      assertEquals(0, failures);
+      assertEquals(2.5, foodStorage.getGroceryByName("Milk").getTotalAmount());
+      assertEquals(2, foodStorage.getGroceryByName("Milk").getBatches().size());
+      assertFalse(foodStorage.containsGrocery("Bread"));
+      assertTrue(cookbook.getRecipes().isEmpty());
+      assertEquals(List.of("Meal suggestion: Pancakes (Milk)",
+          "No meal suggestions available.", "Ran 9 commands, 0 failed."), output());
+    }
+
+    /**
+     * Test that a command that is not valid JSON, is unknown, misses a field or fails writes its
+     * line number and reason, and that the script goes on with the next command.
+     */
+    @Test
+    @DisplayName("Test that bad command lines are reported and skipped")
+    void testBadCommandLines() throws IOException {
+      final long failures = run(
+          "{\"command\": \"addGrocery\", \"name\": \"Milk\", \"category\": \"Dairy\","
+              + " \"unit\": \"liters\", \"amount\": 2, \"pricePerUnit\": 20,"
+              + " \"expirationDate\": \"2024-12-01\"}",
+          "{\"command\": \"consume\", \"name\": \"Milk\"",
+          "{\"command\": \"freeze\", \"name\": \"Milk\"}",
+          "{\"name\": \"Milk\"}",
+          "{\"command\": \"consume\", \"name\": \"Milk\"}",
+          "{\"command\": \"consume\", \"name\": \"Eggs\", \"amount\": 1}",
+          "{\"command\": \"listGroceries\", \"expiringBefore\": \"soon\"}",
+          "{\"command\": \"consume\", \"name\": \"Milk\", \"amount\": 0.5}");
+
+      assertEquals(6, failures);
+      final List<String> output = output();
+      assertEquals(7, output.size());
+      assertEquals(List.of("Line 2: ", "Line 3: ", "Line 4: ", "Line 5: ", "Line 6: ",
+          "Line 7: "), output.subList(0, 6).stream()
+          .map(line -> line.substring(0, line.indexOf(':') + 2)).toList());
+      assertEquals("Line 3: Unknown command: freeze", output.get(1));
+      assertEquals("Line 5: Missing number value for amount", output.get(3));
+      assertEquals("Ran 7 commands, 6 failed.", output.getLast());
+      assertEquals(1.5, foodStorage.getGroceryByName("Milk").getTotalAmount());
+    }
+
+    /**
+     * Test that a script is read from a channel, with blank lines skipped and counted.
+     */
+    @Test
+    @DisplayName("Test that a script is read from a channel")
+    void testScriptFromChannel() throws IOException {
+      final byte[] bytes = ("\n{\"command\": \"recipeCosts\"}\n  \n{\"command\": \"x\","
+          + " \"amount\": 1}").getBytes(StandardCharsets.UTF_8);
+      try (CommandScript script = CommandScript.of(
+          Channels.newChannel(new ByteArrayInputStream(bytes)))) {
+        final Map<String, Object> first = script.nextCommand();
+        assertEquals("recipeCosts", first.get("command"));
+        assertEquals(2, script.getLineNumber());
+        assertEquals(1.0, script.nextCommand().get("amount"));
+        assertEquals(4, script.getLineNumber());
+        assertNull(script.nextCommand());
+      }
+    }
+  }
+
+  /**
+   * Negative tests for the BatchCommandService class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the BatchCommandService class")
+  class NegativeBatchCommandServiceTests {
+
+    /**
+     * Test that running a script whose output cannot be written throws an {@code IOException}.
+     */
+    @Test
+    @DisplayName("Test runScript throws IOException when the output cannot be written")
+    void testOutputErrorThrows() throws IOException {
+      final Appendable failing = new Appendable() {
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+          throw new IOException("Disk full");
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+          throw new IOException("Disk full");
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+          throw new IOException("Disk full");
+        }
+      };
+      final BatchCommandService failingService =
+          new BatchCommandService(foodStorage, cookbook, failing);
+      final Path path = Files.write(directory.resolve("script.jsonl"),
+          List.of("{\"command\": \"suggestMeals\"}"));
+
+      try (CommandScript script = CommandScript.open(path)) {
+        assertThrows(IOException.class, () -> failingService.runScript(script));
+      }
+    }
+
+    /**
+     * Test that the constructor and {@code runScript} throw an {@code IllegalArgumentException}
+     * when an argument is null.
+     */
+    @Test
+    @DisplayName("Test that null arguments throw IllegalArgumentException")
+    void testNullArgumentsThrow() {
+      assertThrows(IllegalArgumentException.class,
+          () -> new BatchCommandService(null, cookbook, out));
+      assertThrows(IllegalArgumentException.class,
+          () -> new BatchCommandService(foodStorage, null, out));
+      assertThrows(IllegalArgumentException.class,
+          () -> new BatchCommandService(foodStorage, cookbook, null));
+      assertThrows(IllegalArgumentException.class, () -> service.runScript(null));
+      assertThrows(IllegalArgumentException.class, () -> service.execute(null));
+      assertThrows(IllegalArgumentException.class, () -> CommandScript.open(null));
+    }
+  }
+}
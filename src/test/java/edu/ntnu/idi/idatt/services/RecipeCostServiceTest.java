@@ -0,0 +1,176 @@
+package edu.ntnu.idi.idatt.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the RecipeCostService class.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that the cost of a recipe is taken from the batches that expire first, at their prices.
+ * <li>that the cost of a recipe using the whole amount of a grocery is estimated, and that a
+ *      recipe without ingredients costs nothing.
+ * <li>that only the recipes that can be made are estimated, in the order of the cook book.
+ * <li>that the costs follow the food storage as it changes.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that {@code estimateCost} throws an {@code IllegalArgumentException} when the food storage
+ *      is missing a grocery, or does not have enough of it.
+ * <li>that the constructor and the methods throw an {@code IllegalArgumentException} when an
+ *      argument is null.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the RecipeCostService class")
+class RecipeCostServiceTest {
+  private static final LocalDate DATE = LocalDate.of(2024, 12, 1);
+
+  private FoodStorage foodStorage;
+  private RecipeCostService service;
+
+  @BeforeEach
+  void setUp() {
+    foodStorage = new FoodStorage();
+    final Grocery milk = new Grocery("Milk", "Dairy", "liters",
+        new GroceryBatch(2, 20, DATE.plusDays(3)));
+    milk.addBatch(new GroceryBatch(1, 22, DATE.minusDays(1)));
+    foodStorage.addGrocery(milk);
+    foodStorage.addGrocery(new Grocery("Flour", "Baking", "grams",
+        new GroceryBatch(1000, 0.05, DATE.plusDays(100))));
+    service = new RecipeCostService(foodStorage);
+  }
+
+  private static Recipe recipe(String name, int servings, Ingredient... ingredients) {
+    final Recipe recipe = new Recipe(name, "Description", "Instructions", servings);
+    for (Ingredient ingredient : ingredients) {
+      recipe.addIngredient(ingredient);
+    }
+    return recipe;
+  }
+
+  private static Ingredient milk(double amount) {
+    return new Ingredient("Milk", "Dairy", "liters", amount);
+  }
+
+  private static Ingredient flour(double amount) {
+    return new Ingredient("Flour", "Baking", "grams", amount);
+  }
+
+  /**
+   * Positive tests for the RecipeCostService class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the RecipeCostService class")
+  class PositiveRecipeCostServiceTests {
+
+    /**
+     * Test that the cost of a recipe is taken from the batches that expire first, at their
+     * prices.
+     */
+    @Test
+    @DisplayName("Test that the cost is taken from the batches that expire first")
+    void testEstimateCost() {
+      assertEquals(22 + 0.5 * 20 + 200 * 0.05,
+          service.estimateCost(recipe("Pancakes", 4, milk(1.5), flour(200))), 1e-9);
+      assertEquals(11, service.estimateCost(recipe("Milkshake", 1, milk(0.5))), 1e-9);
+    }
+
+    /**
+     * Test that the cost of a recipe using the whole amount of a grocery is estimated, and that
+     * a recipe without ingredients costs nothing.
+     */
+    @Test
+    @DisplayName("Test the cost of using all of a grocery, and of no ingredients")
+    void testEstimateCostEdgeCases() {
+      assertEquals(62, service.estimateCost(recipe("Milk bath", 1, milk(3))), 1e-9);
+      assertEquals(0, service.estimateCost(recipe("Water", 1)));
+    }
+
+    /**
+     * Test that only the recipes that can be made are estimated, in the order of the cook book.
+     */
+    @Test
+    @DisplayName("Test that only the recipes that can be made are estimated")
+    void testEstimateCosts() {
+      final Cookbook cookbook = new Cookbook();
+      cookbook.addRecipe(recipe("Pancakes", 4, milk(1.5), flour(200)));
+      cookbook.addRecipe(recipe("Omelette", 1, milk(0.1),
+          new Ingredient("Eggs", "Dairy", "pieces", 3)));
+      cookbook.addRecipe(recipe("Bread", 8, flour(2000)));
+      cookbook.addRecipe(recipe("Water", 1));
+
+      final Map<Recipe, Double> costs = service.estimateCosts(cookbook);
+
+      assertEquals(List.of("Pancakes", "Water"),
+          costs.keySet().stream().map(Recipe::getName).toList());
+      assertEquals(List.of(42.0, 0.0), List.copyOf(costs.values()));
+    }
+
+    /**
+     * Test that the costs follow the food storage as it changes.
+     */
+    @Test
+    @DisplayName("Test that the costs follow the food storage")
+    void testCostsFollowFoodStorage() {
+      final Recipe milkshake = recipe("Milkshake", 1, milk(0.5));
+      assertEquals(11, service.estimateCost(milkshake), 1e-9);
+
+      foodStorage.getGroceryByName("Milk").consume(1);
+      assertEquals(10, service.estimateCost(milkshake), 1e-9);
+
+      foodStorage.getGroceryByName("Milk").addBatch(new GroceryBatch(1, 30, DATE));
+      assertEquals(15, service.estimateCost(milkshake), 1e-9);
+    }
+  }
+
+  /**
+   * Negative tests for the RecipeCostService class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the RecipeCostService class")
+  class NegativeRecipeCostServiceTests {
+
+    /**
+     * Test that {@code estimateCost} throws an {@code IllegalArgumentException} when the food
+     * storage is missing a grocery, or does not have enough of it.
+     */
+    @Test
+    @DisplayName("Test estimateCost throws IllegalArgumentException without enough groceries")
+    void testNotEnoughThrows() {
+      assertThrows(IllegalArgumentException.class,
+          () -> service.estimateCost(recipe("Too much milk", 1, milk(3.5))));
+      assertThrows(IllegalArgumentException.class, () -> service.estimateCost(
+          recipe("Omelette", 1, new Ingredient("Eggs", "Dairy", "pieces", 3))));
+    }
+
+    /**
+     * Test that the constructor and the methods throw an {@code IllegalArgumentException} when
+     * an argument is null.
+     */
+    @Test
+    @DisplayName("Test that null arguments throw IllegalArgumentException")
+    void testNullArgumentsThrow() {
+      assertThrows(IllegalArgumentException.class, () -> new RecipeCostService(null));
+      assertThrows(IllegalArgumentException.class, () -> service.estimateCost(null));
+      assertThrows(IllegalArgumentException.class, () -> service.estimateCosts(null));
+    }
+  }
+}
@@ -0,0 +1,224 @@
+package edu.ntnu.idi.idatt.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the RecipeDeduplicationService class.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that recipes with similar ingredients are clustered, sorted by name, and that different
+ *      recipes and recipes without ingredients are not.
+ * <li>that recipes are clustered through a recipe they are both similar to.
+ * <li>that only recipes with the same ingredients are clustered with the threshold 1.
+ * <li>that many recipes with the same ingredients end up in one cluster.
+ * <li>that two similar recipes are clustered, even if every bucket they share starts with a
+ *      recipe neither is similar enough to.
+ * <li>that removing duplicates keeps the first recipe of each cluster, and only removes the
+ *      recipes in the clusters provided.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that {@code findDuplicateClusters} throws an {@code IllegalArgumentException} when the
+ *      threshold is not greater than 0 and at most 1.
+ * <li>that the constructor and {@code removeDuplicates} throw an
+ *      {@code IllegalArgumentException} when an argument is null, or a recipe to remove is no
+ *      longer in the cook book.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the RecipeDeduplicationService class")
+class RecipeDeduplicationServiceTest {
+  private Cookbook cookbook;
+  private RecipeDeduplicationService service;
+
+  @BeforeEach
+  void setUp() {
+    cookbook = new Cookbook();
+    service = new RecipeDeduplicationService(cookbook);
+  }
+
+  /**
+   * Adds a recipe with the ingredients named "Ingredient first" up to, but not including,
+   * "Ingredient end".
+   */
+  private Recipe addRecipe(String name, int first, int end) {
+    final Recipe recipe = new Recipe(name, "Description", "Instructions", 2);
+    for (int i = first; i < end; i++) {
+      recipe.addIngredient(new Ingredient("Ingredient " + i, "Category", "grams", 100));
+    }
+    cookbook.addRecipe(recipe);
+    return recipe;
+  }
+
+  private static List<List<String>> names(List<List<Recipe>> clusters) {
+    return clusters.stream()
+        .map(cluster -> cluster.stream().map(Recipe::getName).toList())
+        .toList();
+  }
+
+  /**
+   * Positive tests for the RecipeDeduplicationService class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the RecipeDeduplicationService class")
+  class PositiveRecipeDeduplicationServiceTests {
+
+    /**
+     * Test that recipes with similar ingredients are clustered, sorted by name, and that
+     * different recipes and recipes without ingredients are not.
+     */
+    @Test
+    @DisplayName("Test that recipes with similar ingredients are clustered")
+    void testFindDuplicateClusters() {
+      addRecipe("Pancakes", 0, 10);
+      addRecipe("Crepes", 0, 11);
+      addRecipe("Soup", 100, 110);
+      addRecipe("Stew", 100, 109);
+      addRecipe("Salad", 200, 210);
+      addRecipe("Water", 0, 0);
+      addRecipe("Ice", 0, 0);
+
+      assertEquals(List.of(List.of("Crepes", "Pancakes"), List.of("Soup", "Stew")),
+          names(service.findDuplicateClusters(0.8)));
+      assertTrue(service.findDuplicateClusters(0.95).isEmpty());
+    }
+
+    /**
+     * Test that recipes are clustered through a recipe they are both similar to.
+     */
+    @Test
+    @DisplayName("Test that recipes are clustered through a recipe similar to both")
+    void testTransitiveCluster() {
+      // Omelette and Quiche share 10 of 12 ingredients, below the threshold, but are both
+      // similar enough to Frittata.
+      addRecipe("Omelette", 0, 10);
+      addRecipe("Frittata", 0, 11);
+      addRecipe("Quiche", 0, 12);
+
+      assertEquals(List.of(List.of("Frittata", "Omelette", "Quiche")),
+          names(service.findDuplicateClusters(0.85)));
+    }
+
+    /**
+     * Test that only recipes with the same ingredients are clustered with the threshold 1.
+     */
+    @Test
+    @DisplayName("Test that the threshold 1 only clusters recipes with the same ingredients")
+    void testExactDuplicates() {
+      addRecipe("Toast", 0, 3);
+      addRecipe("Toast", 0, 3);
+      addRecipe("Toast with butter", 0, 4);
+
+      final List<List<Recipe>> clusters = service.findDuplicateClusters(1);
+
+      assertEquals(List.of(List.of("Toast", "Toast")), names(clusters));
+    }
+
+    /**
+     * Test that many recipes with the same ingredients end up in one cluster.
+     */
+    @Test
+    @DisplayName("Test that many recipes with the same ingredients form one cluster")
+    void testLargeBucket() {
+      for (int i = 0; i < 200; i++) {
+        addRecipe(String.format("Recipe %03d", i), 0, 5);
+      }
+      addRecipe("Other", 50, 55);
+
+      final List<List<Recipe>> clusters = service.findDuplicateClusters(0.9);
+
+      assertEquals(1, clusters.size());
+      assertEquals(200, clusters.getFirst().size());
+      assertEquals("Recipe 000", clusters.getFirst().getFirst().getName());
+    }
+
+    /**
+     * Test that two similar recipes are clustered, even if every bucket they share starts with a
+     * recipe neither is similar enough to.
+     */
+    @Test
+    @DisplayName("Test that recipes behind the first recipe of a bucket are compared")
+    void testPairsBehindFirstOfBucket() {
+      // Bread lacks one of the 40 ingredients of Buns and Rolls, but its signature has the same
+      // bands, so it comes first in every bucket the two share.
+      addRecipe("Bread", 1, 40);
+      addRecipe("Buns", 0, 40);
+      addRecipe("Rolls", 0, 40);
+
+      assertEquals(List.of(List.of("Buns", "Rolls")), names(service.findDuplicateClusters(1)));
+    }
+
+    /**
+     * Test that removing duplicates keeps the first recipe of each cluster, and only removes the
+     * recipes in the clusters provided.
+     */
+    @Test
+    @DisplayName("Test that removing duplicates removes the recipes in the clusters shown")
+    void testRemoveDuplicates() {
+      addRecipe("Pancakes", 0, 10);
+      addRecipe("Crepes", 0, 11);
+      addRecipe("Soup", 100, 110);
+      final List<List<Recipe>> shown = service.findDuplicateClusters(0.8);
+      // Added after the clusters were shown, so it is not removed.
+      addRecipe("Blinis", 0, 10);
+
+      assertEquals(1, service.removeDuplicates(shown));
+
+      assertEquals(List.of("Blinis", "Crepes", "Soup"),
+          cookbook.getRecipes().stream().map(Recipe::getName).toList());
+      assertEquals(0, service.removeDuplicates(List.of()));
+    }
+  }
+
+  /**
+   * Negative tests for the RecipeDeduplicationService class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the RecipeDeduplicationService class")
+  class NegativeRecipeDeduplicationServiceTests {
+
+    /**
+     * Test that {@code findDuplicateClusters} throws an {@code IllegalArgumentException} when
+     * the threshold is not greater than 0 and at most 1.
+     */
+    @Test
+    @DisplayName("Test findDuplicateClusters throws IllegalArgumentException for a bad threshold")
+    void testInvalidThresholdThrows() {
+      assertThrows(IllegalArgumentException.class, () -> service.findDuplicateClusters(0));
+      assertThrows(IllegalArgumentException.class, () -> service.findDuplicateClusters(-0.5));
+      assertThrows(IllegalArgumentException.class, () -> service.findDuplicateClusters(1.01));
+    }
+
+    /**
+     * Test that the constructor and {@code removeDuplicates} throw an
+     * {@code IllegalArgumentException} when an argument is null, or a recipe to remove is no
+     * longer in the cook book.
+     */
+    @Test
+    @DisplayName("Test that invalid arguments throw IllegalArgumentException")
+    void testInvalidArgumentsThrow() {
+      assertThrows(IllegalArgumentException.class, () -> new RecipeDeduplicationService(null));
+      assertThrows(IllegalArgumentException.class, () -> service.removeDuplicates(null));
+
+      final Recipe pancakes = addRecipe("Pancakes", 0, 10);
+      addRecipe("Crepes", 0, 10);
+      final List<List<Recipe>> clusters = service.findDuplicateClusters(0.8);
+      cookbook.removeRecipe(pancakes);
+      assertThrows(IllegalArgumentException.class, () -> service.removeDuplicates(clusters));
+    }
+  }
+}
@@ -0,0 +1,261 @@
+package edu.ntnu.idi.idatt.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the ReadableRenderer class.
+ * <p>
+ * The expected texts are the output of the {@code toReadableString} methods of {@link Recipe},
+ * {@link Ingredient} and {@link Grocery} from before they used the renderer, so the renderer
+ * writes exactly what the menus showed before. The numbers are formatted in the root locale.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that an ingredient is written with its amount to two decimals.
+ * <li>that a recipe is written with its ingredients, sorted by name, and that a recipe without
+ *      ingredients is written.
+ * <li>that a list of recipes is written with a separator before each recipe.
+ * <li>that a grocery is written with its batches, in the order they are consumed, and that a list
+ *      of groceries is written with a line separator after each grocery.
+ * <li>that the {@code toReadableString} methods write the same as the renderer.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that the constructor throws an {@code IllegalArgumentException} when the destination is
+ *      null.
+ * <li>that writing a recipe or grocery throws an {@code UncheckedIOException} when the
+ *      destination fails, even if only its first write fails.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the ReadableRenderer class")
+class ReadableRendererTest {
+  private static final String PANCAKES = """
+      Name: Pancakes
+      Description: Thin pancakes
+      Servings: 4
+
+      Instructions:
+      Mix and fry
+
+      Ingredients:
+      Flour (Baking): 200.00 grams
+      Milk (Dairy): 0.50 liters
+
+      """;
+  private static final String MILK = """
+      Milk
+      ---------------------------------
+      Category: Dairy
+      Unit: liters
+      Total amount: 3.00 liters
+      Batches:
+      - Amount 1.00 liters
+        Price per unit: 22.00 NOK
+        Expiration date: 2024-11-30
+
+      - Amount 2.00 liters
+        Price per unit: 20.50 NOK
+        Expiration date: 2024-12-04
+
+      """;
+
+  private Locale defaultLocale;
+  private StringBuilder out;
+  private ReadableRenderer renderer;
+  private Recipe pancakes;
+  private Grocery milk;
+
+  @BeforeEach
+  void setUp() {
+    defaultLocale = Locale.getDefault(Locale.Category.FORMAT);
+    Locale.setDefault(Locale.Category.FORMAT, Locale.ROOT);
+    out = new StringBuilder();
+    renderer = new ReadableRenderer(out);
+    pancakes = new Recipe("Pancakes", "Thin pancakes", "Mix and fry", 4);
+    pancakes.addIngredient(new Ingredient("Milk", "Dairy", "liters", 0.5));
+    pancakes.addIngredient(new Ingredient("Flour", "Baking", "grams", 200));
+    milk = new Grocery("Milk", "Dairy", "liters",
+        new GroceryBatch(2, 20.5, LocalDate.of(2024, 12, 4)));
+    milk.addBatch(new GroceryBatch(1, 22, LocalDate.of(2024, 11, 30)));
+  }
+
+  @AfterEach
+  void tearDown() {
+    Locale.setDefault(Locale.Category.FORMAT, defaultLocale);
+  }
+
+  /**
+   * An appendable that fails its first write, and accepts every write after it.
+   */
+  private static final class FailingOnceAppendable implements Appendable {
+    private final StringBuilder written = new StringBuilder();
+    private boolean failed;
+
+    private void failOnce() throws IOException {
+      if (!failed) {
+        failed = true;
+        throw new IOException("Disk full");
+      }
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+      failOnce();
+      written.append(csq);
+      return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+      failOnce();
+      written.append(csq, start, end);
+      return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+      failOnce();
+      written.append(c);
+      return this;
+    }
+  }
+
+  /**
+   * Positive tests for the ReadableRenderer class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the ReadableRenderer class")
+  class PositiveReadableRendererTests {
+
+    /**
+     * Test that an ingredient is written with its amount to two decimals.
+     */
+    @Test
+    @DisplayName("Test that an ingredient is written")
+    void testRenderIngredient() {
+      renderer.renderIngredient(new Ingredient("Salt", "Spices", "grams", 2.345));
+
+      assertEquals("Salt (Spices): 2.35 grams", out.toString());
+    }
+
+    /**
+     * Test that a recipe is written with its ingredients, sorted by name, and that a recipe
+     * without ingredients is written.
+     */
+    @Test
+    @DisplayName("Test that a recipe is written")
+    void testRenderRecipe() {
+      renderer.renderRecipe(pancakes);
+      assertEquals(PANCAKES, out.toString());
+
+      out.setLength(0);
+      renderer.renderRecipe(new Recipe("Water", "Wet", "Pour it", 1));
+      assertEquals("""
+          Name: Water
+          Description: Wet
+          Servings: 1
+
+          Instructions:
+          Pour it
+
+          Ingredients:
+
+          """, out.toString());
+    }
+
+    /**
+     * Test that a list of recipes is written with a separator before each recipe.
+     */
+    @Test
+    @DisplayName("Test that a list of recipes is written")
+    void testRenderRecipes() {
+      renderer.renderRecipes(List.of(pancakes, pancakes));
+
+      final String separator = "-------------------------------------------\n";
+      assertEquals(separator + PANCAKES + "\n" + separator + PANCAKES + "\n", out.toString());
+    }
+
+    /**
+     * Test that a grocery is written with its batches, in the order they are consumed, and that
+     * a list of groceries is written with a line separator after each grocery.
+     */
+    @Test
+    @DisplayName("Test that a grocery and a list of groceries are written")
+    void testRenderGroceries() {
+      renderer.renderGrocery(milk);
+      assertEquals(MILK, out.toString());
+
+      out.setLength(0);
+      renderer.renderGroceries(List.of(milk, milk));
+      assertEquals(MILK + System.lineSeparator() + MILK + System.lineSeparator(),
+          out.toString());
+    }
+
+    /**
+     * Test that the {@code toReadableString} methods write the same as the renderer.
+     */
+    @Test
+    @DisplayName("Test that toReadableString writes the same as the renderer")
+    void testToReadableString() {
+      assertEquals(PANCAKES, pancakes.toReadableString());
+      assertEquals(MILK, milk.toReadableString());
+      assertEquals("Milk (Dairy): 0.50 liters",
+          pancakes.getIngredient("Milk").toReadableString());
+    }
+  }
+
+  /**
+   * Negative tests for the ReadableRenderer class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the ReadableRenderer class")
+  class NegativeReadableRendererTests {
+
+    /**
+     * Test that the constructor throws an {@code IllegalArgumentException} when the destination
+     * is null.
+     */
+    @Test
+    @DisplayName("Test constructor throws IllegalArgumentException when the destination is null")
+    void testConstructorWithNullThrows() {
+      assertThrows(IllegalArgumentException.class, () -> new ReadableRenderer(null));
+    }
+
+    /**
+     * Test that writing a recipe or grocery throws an {@code UncheckedIOException} when the
+     * destination fails, even if only its first write fails.
+     */
+    @Test
+    @DisplayName("Test that a failed write throws UncheckedIOException")
+    void testFailedWriteThrows() {
+      final ReadableRenderer recipeRenderer = new ReadableRenderer(new FailingOnceAppendable());
+      assertThrows(UncheckedIOException.class,
+          () -> recipeRenderer.renderRecipe(new Recipe("Water", "Wet", "Pour it", 1)));
+
+      final Grocery empty = new Grocery("Salt", "Spices", "grams",
+          new GroceryBatch(1, 1, LocalDate.of(2024, 12, 1)));
+      empty.consume(1);
+      final ReadableRenderer groceryRenderer = new ReadableRenderer(new FailingOnceAppendable());
+      assertThrows(UncheckedIOException.class, () -> groceryRenderer.renderGrocery(empty));
+    }
+  }
+}
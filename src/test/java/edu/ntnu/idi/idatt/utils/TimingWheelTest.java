@@ -0,0 +1,154 @@
+package edu.ntnu.idi.idatt.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the TimingWheel class.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that values due on the first day of a block of 64 or 4096 days are handed out on that day,
+ *      in the order of their days.
+ * <li>that values far apart are handed out on their days when the wheel is advanced one day at a
+ *      time, from a day that does not start a block.
+ * <li>that a value scheduled on or before the current day is handed out at the next advance.
+ * <li>that a cancelled value is not handed out.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that cancelling a value that was handed out, or a null timer, returns false.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the TimingWheel class")
+class TimingWheelTest {
+  private List<Long> due;
+
+  @BeforeEach
+  void setUp() {
+    due = new ArrayList<>();
+  }
+
+  /**
+   * Positive tests for the TimingWheel class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the TimingWheel class")
+  class PositiveTimingWheelTests {
+
+    /**
+     * Test that values due on the first day of a block of 64 or 4096 days are handed out on that
+     * day, in the order of their days.
+     */
+    @Test
+    @DisplayName("Test that values due on the first day of a block are handed out on time")
+    void testBlockBoundaries() {
+      final TimingWheel<Long> wheel = new TimingWheel<>(0);
+      for (long day : new long[] {65, 64, 4097, 4096, 128, 8192}) {
+        wheel.schedule(day, day);
+      }
+
+      wheel.advanceTo(70, due::add);
+      assertEquals(List.of(64L, 65L), due);
+
+      due.clear();
+      wheel.advanceTo(4096, due::add);
+      assertEquals(List.of(128L, 4096L), due);
+
+      due.clear();
+      wheel.advanceTo(8192, due::add);
+      assertEquals(List.of(4097L, 8192L), due);
+      assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Test that values far apart are handed out on their days when the wheel is advanced one day
+     * at a time, from a day that does not start a block.
+     */
+    @Test
+    @DisplayName("Test that values are handed out on their days")
+    void testHandedOutOnTheirDays() {
+      final long start = 4096 * 3 + 17;
+      final TimingWheel<Long> wheel = new TimingWheel<>(start);
+      final long[] days = {start + 1, start + 47, start + 63, start + 4096 - 17, start + 5000,
+          (start + 262144) & -262144};
+      for (long day : days) {
+        wheel.schedule(day, day);
+      }
+
+      for (long day = start + 1; day <= days[days.length - 1]; day++) {
+        final long today = day;
+        wheel.advanceTo(day, value -> assertEquals(today, value));
+      }
+      assertEquals(0, wheel.size());
+      assertEquals(days[days.length - 1], wheel.getCurrentDay());
+    }
+
+    /**
+     * Test that a value scheduled on or before the current day is handed out at the next
+     * advance.
+     */
+    @Test
+    @DisplayName("Test that overdue values are handed out at the next advance")
+    void testOverdueValues() {
+      final TimingWheel<Long> wheel = new TimingWheel<>(100);
+      wheel.schedule(90, 90L);
+      wheel.schedule(100, 100L);
+
+      wheel.advanceTo(100, due::add);
+
+      assertEquals(List.of(90L, 100L), due);
+    }
+
+    /**
+     * Test that a cancelled value is not handed out.
+     */
+    @Test
+    @DisplayName("Test that a cancelled value is not handed out")
+    void testCancel() {
+      final TimingWheel<Long> wheel = new TimingWheel<>(0);
+      final TimingWheel.Timer<Long> timer = wheel.schedule(64, 64L);
+      wheel.schedule(65, 65L);
+
+      assertTrue(wheel.cancel(timer));
+      wheel.advanceTo(65, due::add);
+
+      assertEquals(List.of(65L), due);
+      assertFalse(timer.isScheduled());
+    }
+  }
+
+  /**
+   * Negative tests for the TimingWheel class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the TimingWheel class")
+  class NegativeTimingWheelTests {
+
+    /**
+     * Test that cancelling a value that was handed out, or a null timer, returns false.
+     */
+    @Test
+    @DisplayName("Test that cancelling a handed out value or null returns false")
+    void testCancelHandedOut() {
+      final TimingWheel<Long> wheel = new TimingWheel<>(0);
+      final TimingWheel.Timer<Long> timer = wheel.schedule(64, 64L);
+      wheel.advanceTo(64, due::add);
+
+      assertFalse(wheel.cancel(timer));
+      assertFalse(wheel.cancel(null));
+      assertEquals(0, wheel.size());
+    }
+  }
+}
@@ -0,0 +1,339 @@
+package edu.ntnu.idi.idatt.views;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.models.Cookbook;
+import edu.ntnu.idi.idatt.models.FoodStorage;
+import edu.ntnu.idi.idatt.models.Grocery;
+import edu.ntnu.idi.idatt.models.GroceryBatch;
+import edu.ntnu.idi.idatt.models.Ingredient;
+import edu.ntnu.idi.idatt.models.ModelChangeListener;
+import edu.ntnu.idi.idatt.models.Recipe;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the HttpApiServer class.
+ * <p>
+ * Performs the following tests:
+ * <ul>
+ * <li>Positive tests:
+ * <ul>
+ * <li>that the groceries are listed, by name, by category or by the date they expire before.
+ * <li>that a grocery is added, read and removed.
+ * <li>that a batch is added to a grocery, and that a grocery is consumed, and removed when all of
+ *      it is consumed.
+ * <li>that the recipes are listed without their texts, and that a recipe is added, read by its
+ *      name in any case, and removed.
+ * <li>that the recipes that can be made are suggested with the groceries they use, and that their
+ *      costs are estimated.
+ * </ul>
+ * <li>Negative tests:
+ * <ul>
+ * <li>that an unknown path, grocery or recipe gets the status 404, and a method a path does not
+ *      have 405.
+ * <li>that a body that is not valid JSON, misses a field or is too large, and a query with an
+ *      invalid date, get the status 400.
+ * <li>that adding a grocery or recipe that already exists gets the status 409, and consuming more
+ *      than there is of a grocery 400, without changing it.
+ * <li>that a change failing because the grocery was removed gets the status 409, and a change that
+ *      could not be written to disk 500, also when it is applied for the request by another
+ *      thread.
+ * <li>that the method {@code start} throws an {@code IllegalArgumentException} when an argument
+ *      is null.
+ * </ul>
+ * </ul>
+ */
+@DisplayName("Test cases for the HttpApiServer class")
+class HttpApiServerTest {
+  private static final LocalDate DATE = LocalDate.of(2024, 12, 1);
+  private static final String MILK = "{\"name\":\"Milk\",\"category\":\"Dairy\","
+      + "\"unit\":\"liters\",\"totalAmount\":2,\"batches\":[{\"amount\":2,\"pricePerUnit\":20,"
+      + "\"expirationDate\":\"2024-12-04\"}]}";
+  private static final String BREAD = "{\"name\":\"Bread\",\"category\":\"Bakery\","
+      + "\"unit\":\"pieces\",\"totalAmount\":1,\"batches\":[{\"amount\":1,\"pricePerUnit\":30,"
+      + "\"expirationDate\":\"2024-12-21\"}]}";
+
+  private FoodStorage foodStorage;
+  private Cookbook cookbook;
+  private HttpApiServer server;
+  private HttpClient client;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    foodStorage = new FoodStorage();
+    foodStorage.addGrocery(new Grocery("Milk", "Dairy", "liters",
+        new GroceryBatch(2, 20, DATE.plusDays(3))));
+    foodStorage.addGrocery(new Grocery("Bread", "Bakery", "pieces",
+        new GroceryBatch(1, 30, DATE.plusDays(20))));
+    cookbook = new Cookbook();
+    final Recipe pancakes = new Recipe("Pancakes", "Thin", "Mix and fry", 4);
+    pancakes.addIngredient(new Ingredient("Milk", "Dairy", "liters", 0.5));
+    cookbook.addRecipe(pancakes);
+    final Recipe cake = new Recipe("Cake", "Sweet", "Bake it", 8);
+    cake.addIngredient(new Ingredient("Flour", "Baking", "grams", 200));
+    cookbook.addRecipe(cake);
+    server = HttpApiServer.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+        foodStorage, cookbook);
+    client = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  void tearDown() {
+    client.close();
+    server.close();
+  }
+
+  /**
+   * Sends a request to the server, with a body if it is not null.
+   */
+  private HttpResponse<String> send(String method, String path, String body)
+      throws IOException, InterruptedException {
+    final URI uri = URI.create("http://" + server.getAddress().getHostString() + ":"
+        + server.getAddress().getPort() + path);
+    final HttpRequest request = HttpRequest.newBuilder(uri)
+        .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+            : HttpRequest.BodyPublishers.ofString(body))
+        .build();
+    return client.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+    return send("GET", path, null);
+  }
+
+  private static void assertResponse(int status, String body, HttpResponse<String> response) {
+    assertEquals(status, response.statusCode());
+    assertEquals(body, response.body());
+  }
+
+  /**
+   * Positive tests for the HttpApiServer class.
+   */
+  @Nested
+  @DisplayName("Positive tests for the HttpApiServer class")
+  class PositiveHttpApiServerTests {
+
+    /**
+     * Test that the groceries are listed, by name, by category or by the date they expire
+     * before.
+     */
+    @Test
+    @DisplayName("Test that the groceries are listed")
+    void testListGroceries() throws IOException, InterruptedException {
+      final HttpResponse<String> all = get("/groceries");
+      assertResponse(200, "[" + BREAD + "," + MILK + "]", all);
+      assertEquals("application/json; charset=utf-8",
+          all.headers().firstValue("Content-Type").orElseThrow());
+
+      assertResponse(200, "[" + MILK + "]", get("/groceries?category=Dairy"));
+      assertResponse(200, "[]", get("/groceries?category=Spices"));
+      assertResponse(200, "[" + MILK + "]", get("/groceries?expiringBefore=2024-12-10"));
+    }
+
+    /**
+     * Test that a grocery is added, read and removed.
+     */
+    @Test
+    @DisplayName("Test that a grocery is added, read and removed")
+    void testAddGetAndRemoveGrocery() throws IOException, InterruptedException {
+      final String eggs = "{\"name\":\"Eggs\",\"category\":\"Dairy\",\"unit\":\"pieces\","
+          + "\"totalAmount\":12,\"batches\":[{\"amount\":12,\"pricePerUnit\":4.5,"
+          + "\"expirationDate\":\"2024-12-15\"}]}";
+
+      assertResponse(201, eggs, send("POST", "/groceries", "{\"name\": \"Eggs\","
+          + " \"category\": \"Dairy\", \"unit\": \"pieces\", \"amount\": 12,"
+          + " \"pricePerUnit\": 4.5, \"expirationDate\": \"2024-12-15\"}"));
+      assertResponse(200, eggs, get("/groceries/Eggs"));
+      assertResponse(200, MILK, get("/groceries/Milk"));
+
+      assertResponse(204, "", send("DELETE", "/groceries/Eggs", null));
+      assertFalse(foodStorage.containsGrocery("Eggs"));
+    }
+
+    /**
+     * Test that a batch is added to a grocery, and that a grocery is consumed, and removed when
+     * all of it is consumed.
+     */
+    @Test
+    @DisplayName("Test that a batch is added and a grocery consumed")
+    void testAddBatchAndConsume() throws IOException, InterruptedException {
+      final HttpResponse<String> added = send("POST", "/groceries/Milk/batches",
+          "{\"amount\": 1, \"pricePerUnit\": 22, \"expirationDate\": \"2024-11-30\"}");
+      assertEquals(200, added.statusCode());
+      assertTrue(added.body().contains("\"totalAmount\":3,"));
+
+      final HttpResponse<String> consumed = send("POST", "/groceries/Milk/consume",
+          "{\"amount\": 1.5}");
+      assertResponse(200, "{\"name\":\"Milk\",\"category\":\"Dairy\",\"unit\":\"liters\","
+          + "\"totalAmount\":1.5,\"batches\":[{\"amount\":1.5,\"pricePerUnit\":20,"
+          + "\"expirationDate\":\"2024-12-04\"}]}", consumed);
+
+      assertResponse(204, "", send("POST", "/groceries/Milk/consume", "{\"amount\": 1.5}"));
+      assertFalse(foodStorage.containsGrocery("Milk"));
+    }
+
+    /**
+     * Test that the recipes are listed without their texts, and that a recipe is added, read by
+     * its name in any case, and removed.
+     */
+    @Test
+    @DisplayName("Test that the recipes are listed, added, read and removed")
+    void testRecipes() throws IOException, InterruptedException {
+      assertResponse(200, "[{\"name\":\"Cake\",\"servings\":8,\"ingredients\":[{\"name\":"
+          + "\"Flour\",\"category\":\"Baking\",\"unit\":\"grams\",\"amount\":200}]},"
+          + "{\"name\":\"Pancakes\",\"servings\":4,\"ingredients\":[{\"name\":\"Milk\","
+          + "\"category\":\"Dairy\",\"unit\":\"liters\",\"amount\":0.5}]}]", get("/recipes"));
+
+      final String toast = "{\"name\":\"Toast\",\"description\":\"Crispy\","
+          + "\"instructions\":\"Toast it\",\"servings\":1,\"ingredients\":[{\"name\":\"Bread\","
+          + "\"category\":\"Bakery\",\"unit\":\"pieces\",\"amount\":1}]}";
+      assertResponse(201, toast, send("POST", "/recipes", toast));
+      assertResponse(200, toast, get("/recipes/toast"));
+
+      assertResponse(204, "", send("DELETE", "/recipes/Toast", null));
+      assertEquals(2, cookbook.getRecipes().size());
+    }
+
+    /**
+     * Test that the recipes that can be made are suggested with the groceries they use, and
+     * that their costs are estimated.
+     */
+    @Test
+    @DisplayName("Test that recipes are suggested and their costs estimated")
+    void testSuggestionsAndCosts() throws IOException, InterruptedException {
+      assertResponse(200, "[{\"recipe\":\"Pancakes\",\"groceries\":[\"Milk\"]}]",
+          get("/suggestions"));
+      assertResponse(200, "[]", get("/suggestions?expiringBefore=2024-12-02"));
+      assertResponse(200, "[{\"recipe\":\"Pancakes\",\"cost\":10,\"costPerServing\":2.5}]",
+          get("/costs"));
+    }
+  }
+
+  /**
+   * Negative tests for the HttpApiServer class.
+   */
+  @Nested
+  @DisplayName("Negative tests for the HttpApiServer class")
+  class NegativeHttpApiServerTests {
+
+    /**
+     * Test that an unknown path, grocery or recipe gets the status 404, and a method a path does
+     * not have 405.
+     */
+    @Test
+    @DisplayName("Test that unknown paths and names get 404, and unknown methods 405")
+    void testNotFoundAndMethodNotAllowed() throws IOException, InterruptedException {
+      assertResponse(404, "{\"error\":\"Not found\"}", get("/households"));
+      assertResponse(404, "{\"error\":\"Not found\"}", get("/"));
+      assertResponse(404, "{\"error\":\"Not found\"}",
+          send("POST", "/groceries/Milk/freeze", "{}"));
+      assertResponse(404, "{\"error\":\"No grocery named Eggs\"}", get("/groceries/Eggs"));
+      assertResponse(404, "{\"error\":\"No grocery named Eggs\"}",
+          send("DELETE", "/groceries/Eggs", null));
+      assertResponse(404, "{\"error\":\"No grocery named Eggs\"}",
+          send("POST", "/groceries/Eggs/consume", "{\"amount\": 1}"));
+      assertResponse(404, "{\"error\":\"No recipe named Toast\"}", get("/recipes/Toast"));
+      assertResponse(405, "{\"error\":\"Method not allowed\"}",
+          send("PUT", "/groceries", "{}"));
+      assertResponse(405, "{\"error\":\"Method not allowed\"}",
+          send("DELETE", "/costs", null));
+    }
+
+    /**
+     * Test that a body that is not valid JSON, misses a field or is too large, and a query with
+     * an invalid date, get the status 400.
+     */
+    @Test
+    @DisplayName("Test that invalid requests get 400")
+    void testBadRequests() throws IOException, InterruptedException {
+      assertEquals(400, send("POST", "/groceries", "{\"name\": ").statusCode());
+      assertEquals(400, send("POST", "/groceries", "{\"name\": \"Eggs\"}").statusCode());
+      assertEquals(400, send("POST", "/recipes", "[]").statusCode());
+      assertEquals(400, send("POST", "/groceries/Milk/consume", "{\"amount\": \"all\"}")
+          .statusCode());
+      assertResponse(400, "{\"error\":\"Invalid date: tomorrow\"}",
+          get("/groceries?expiringBefore=tomorrow"));
+      assertEquals(400, send("POST", "/groceries",
+          "\"" + "x".repeat(HttpApiServer.MAX_BODY_BYTES) + "\"").statusCode());
+      assertEquals(2, foodStorage.getAllGroceries().size());
+    }
+
+    /**
+     * Test that adding a grocery or recipe that already exists gets the status 409, and
+     * consuming more than there is of a grocery 400, without changing it.
+     */
+    @Test
+    @DisplayName("Test that conflicts get 409 and consuming too much 400")
+    void testConflictsAndInsufficientAmount() throws IOException, InterruptedException {
+      assertResponse(409, "{\"error\":\"A grocery named Milk already exists\"}",
+          send("POST", "/groceries", "{\"name\": \"Milk\", \"category\": \"Dairy\","
+              + " \"unit\": \"liters\", \"amount\": 1, \"pricePerUnit\": 20,"
+              + " \"expirationDate\": \"2024-12-01\"}"));
+      assertResponse(409, "{\"error\":\"A recipe named Pancakes already exists\"}",
+          send("POST", "/recipes", "{\"name\": \"Pancakes\", \"description\": \"Thick\","
+              + " \"instructions\": \"Fry\", \"servings\": 2}"));
+      assertEquals(400, send("POST", "/groceries/Milk/consume", "{\"amount\": 5}")
+          .statusCode());
+      assertResponse(200, MILK, get("/groceries/Milk"));
+    }
+
+    /**
+     * Test that a change failing because the grocery was removed gets the status 409, and a
+     * change that could not be written to disk 500, also when it is applied for the request by
+     * another thread.
+     */
+    @Test
+    @DisplayName("Test that failed changes get 409 or 500")
+    void testFailedChanges() throws IOException, InterruptedException {
+      foodStorage.addChangeListener(new ModelChangeListener() {
+        @Override
+        public void batchAdded(Grocery grocery, GroceryBatch batch) {
+          throw new IllegalStateException("The grocery item was removed.");
+        }
+
+        @Override
+        public void groceryConsumed(Grocery grocery, double amount) {
+          throw new UncheckedIOException(new IOException("Disk full"));
+        }
+      });
+
+      assertResponse(409, "{\"error\":\"The grocery item was removed.\"}",
+          send("POST", "/groceries/Milk/batches", "{\"amount\": 1, \"pricePerUnit\": 20,"
+              + " \"expirationDate\": \"2024-12-04\"}"));
+      assertResponse(500, "{\"error\":\"The request failed: java.io.IOException: Disk full\"}",
+          send("POST", "/groceries/Milk/consume", "{\"amount\": 1}"));
+    }
+
+    /**
+     * Test that {@code start} throws an {@code IllegalArgumentException} when an argument is
+     * null.
+     */
+    @Test
+    @DisplayName("Test start throws IllegalArgumentException when an argument is null")
+    void testStartWithNullThrows() {
+      final InetSocketAddress address = new InetSocketAddress(0);
+      assertThrows(IllegalArgumentException.class,
+          () -> HttpApiServer.start(null, foodStorage, cookbook));
+      assertThrows(IllegalArgumentException.class,
+          () -> HttpApiServer.start(address, null, cookbook));
+      assertThrows(IllegalArgumentException.class,
+          () -> HttpApiServer.start(address, foodStorage, null));
+    }
+  }
+}